@@ -610,6 +610,79 @@ public interface AccessControlContext {
                                   ResourcePermission resourcePermission,
                                   ResourcePermission... resourcePermissions);
 
+   /**
+    * Validates the specified resource permissions against the specified resource class once, and returns them as a
+    * permission check that can be evaluated repeatedly without validating them again.
+    *
+    * @param resourceClassName   a string resource class name
+    * @param resourcePermissions the permissions to be checked
+    * @return a permission check for resources of the specified resource class
+    * @throws java.lang.IllegalArgumentException if no resource class of resourceClassName exists, or
+    *                                            if any resourcePermission is invalid for the resource class
+    */
+   PermissionCheck compilePermissionCheck(String resourceClassName,
+                                          Set<ResourcePermission> resourcePermissions);
+
+   /**
+    * Validates the specified resource permissions against the specified resource class once, and returns them as a
+    * permission check that can be evaluated repeatedly without validating them again.
+    *
+    * @param resourceClassName   a string resource class name
+    * @param resourcePermission  the permission to be checked
+    * @param resourcePermissions the other (optional) permissions to be checked
+    * @return a permission check for resources of the specified resource class
+    * @throws java.lang.IllegalArgumentException if no resource class of resourceClassName exists, or
+    *                                            if any resourcePermission is invalid for the resource class
+    */
+   PermissionCheck compilePermissionCheck(String resourceClassName,
+                                          ResourcePermission resourcePermission,
+                                          ResourcePermission... resourcePermissions);
+
+   /**
+    * Checks if the specified accessor resource has the resource permissions of the specified permission check
+    * to the specified accessed resource.
+    * This method takes into account direct, inherited and global permissions of accessor resource, as well
+    * as any super-user privileges.
+    *
+    * @param accessorResource the resource requesting the access
+    * @param accessedResource the resource on which access is being requested
+    * @param permissionCheck  the permission check, as returned by {@link #compilePermissionCheck}
+    * @return <strong>true</strong> if the accessor resource has the permissions of the permission check
+    * @throws java.lang.IllegalArgumentException if the accessorResource or the accessedResource does not exist, or
+    *                                            if the permission check was not compiled for the resource class
+    *                                            of accessedResource
+    * @throws com.acciente.oacc.NotAuthorizedException if the session resource is not the accessor resource and
+    *                                                  the session resource does not have query authorization on
+    *                                                  the accessor resource (explicitly via QUERY or implicitly via
+    *                                                  IMPERSONATE permissions)
+    */
+   boolean hasResourcePermissions(Resource accessorResource,
+                                  Resource accessedResource,
+                                  PermissionCheck permissionCheck);
+
+   /**
+    * Checks if the specified accessor resource has the resource permissions of the specified permission check
+    * to the specified accessed resource.
+    * This method takes into account direct, inherited and global permissions of accessor resource, as well
+    * as any super-user privileges.
+    *
+    * @param accessorResource the resource requesting the access
+    * @param accessedResource the resource on which access is being requested
+    * @param permissionCheck  the permission check, as returned by {@link #compilePermissionCheck}
+    * @throws java.lang.IllegalArgumentException if the accessorResource or the accessedResource does not exist, or
+    *                                            if the permission check was not compiled for the resource class
+    *                                            of accessedResource
+    * @throws com.acciente.oacc.NotAuthorizedException if the accessor resource <strong>does not</strong> have the
+    *                                                  permissions of the permission check, or
+    *                                                  if the session resource is not the accessor resource and
+    *                                                  the session resource does not have query authorization on
+    *                                                  the accessor resource (explicitly via QUERY or implicitly via
+    *                                                  IMPERSONATE permissions)
+    */
+   void assertResourcePermissions(Resource accessorResource,
+                                  Resource accessedResource,
+                                  PermissionCheck permissionCheck);
+
    /**
     * Checks if the specified accessor resource has the specified create permissions on an object of
     * the specified class in the specified domain.
@@ -938,6 +1011,267 @@ public interface AccessControlContext {
                                                             ResourcePermission resourcePermission,
                                                             ResourcePermission... resourcePermissions);
 
+   /**
+    * Returns the number of resources (of the specified resource class) on which
+    * the specified accessor resource has the specified permissions, regardless of domain.
+    * <p/>
+    * The method takes into account the same direct, inherited, global and SUPER-USER permissions as
+    * {@link #getResourcesByResourcePermissions}, but counts the resources in the database instead
+    * of loading them.
+    *
+    * @param accessorResource    the resource relative to which the accessible resources are determined
+    * @param resourceClassName   a string resource class name
+    * @param resourcePermissions the permissions to check
+    * @return the number of resources
+    * @throws java.lang.IllegalArgumentException if accessorResource does not exist, or
+    *                                            if no resource class of resourceClassName exists, or
+    *                                            if any resourcePermission is invalid for the specified resource class
+    * @throws com.acciente.oacc.NotAuthorizedException if the session resource is not the accessor resource and
+    *                                                  the session resource does not have query authorization on
+    *                                                  the accessor resource (explicitly via QUERY or implicitly via
+    *                                                  IMPERSONATE permissions)
+    */
+   long countResourcesByResourcePermissions(Resource accessorResource,
+                                            String resourceClassName,
+                                            Set<ResourcePermission> resourcePermissions);
+
+   /**
+    * Returns the number of resources (of the specified resource class) on which
+    * the specified accessor resource has the specified permissions, regardless of domain.
+    * <p/>
+    * The method takes into account the same direct, inherited, global and SUPER-USER permissions as
+    * {@link #getResourcesByResourcePermissions}, but counts the resources in the database instead
+    * of loading them.
+    *
+    * @param accessorResource    the resource relative to which the accessible resources are determined
+    * @param resourceClassName   a string resource class name
+    * @param resourcePermission  the permission to check
+    * @param resourcePermissions the other (optional) permissions to check
+    * @return the number of resources
+    * @throws java.lang.IllegalArgumentException if accessorResource does not exist, or
+    *                                            if no resource class of resourceClassName exists, or
+    *                                            if any resourcePermission is invalid for the specified resource class
+    * @throws com.acciente.oacc.NotAuthorizedException if the session resource is not the accessor resource and
+    *                                                  the session resource does not have query authorization on
+    *                                                  the accessor resource (explicitly via QUERY or implicitly via
+    *                                                  IMPERSONATE permissions)
+    */
+   long countResourcesByResourcePermissions(Resource accessorResource,
+                                            String resourceClassName,
+                                            ResourcePermission resourcePermission,
+                                            ResourcePermission... resourcePermissions);
+
+   /**
+    * Returns the number of resources (of the specified resource class) on which
+    * the specified accessor resource has the specified permissions, within the
+    * specified domain or within any descendant domains.
+    * <p/>
+    * The method takes into account the same direct, inherited, global and SUPER-USER permissions as
+    * {@link #getResourcesByResourcePermissionsAndDomain}, but counts the resources in the database instead
+    * of loading them.
+    *
+    * @param accessorResource    the resource relative to which the accessible resources are determined
+    * @param resourceClassName   a string resource class name
+    * @param domainName          a domain name
+    * @param resourcePermissions the permissions to check
+    * @return the number of resources
+    * @throws java.lang.IllegalArgumentException if accessorResource does not exist, or
+    *                                            if no resource class of resourceClassName exists, or
+    *                                            if no domain of domainName exists, or
+    *                                            if any resourcePermission is invalid for the specified resource class
+    * @throws com.acciente.oacc.NotAuthorizedException if the session resource is not the accessor resource and
+    *                                                  the session resource does not have query authorization on
+    *                                                  the accessor resource (explicitly via QUERY or implicitly via
+    *                                                  IMPERSONATE permissions)
+    */
+   long countResourcesByResourcePermissionsAndDomain(Resource accessorResource,
+                                                     String resourceClassName,
+                                                     String domainName,
+                                                     Set<ResourcePermission> resourcePermissions);
+
+   /**
+    * Returns the number of resources (of the specified resource class) on which
+    * the specified accessor resource has the specified permissions, within the
+    * specified domain or within any descendant domains.
+    * <p/>
+    * The method takes into account the same direct, inherited, global and SUPER-USER permissions as
+    * {@link #getResourcesByResourcePermissionsAndDomain}, but counts the resources in the database instead
+    * of loading them.
+    *
+    * @param accessorResource    the resource relative to which the accessible resources are determined
+    * @param resourceClassName   a string resource class name
+    * @param domainName          a domain name
+    * @param resourcePermission  the permission to check
+    * @param resourcePermissions the other (optional) permissions to check
+    * @return the number of resources
+    * @throws java.lang.IllegalArgumentException if accessorResource does not exist, or
+    *                                            if no resource class of resourceClassName exists, or
+    *                                            if no domain of domainName exists, or
+    *                                            if any resourcePermission is invalid for the specified resource class
+    * @throws com.acciente.oacc.NotAuthorizedException if the session resource is not the accessor resource and
+    *                                                  the session resource does not have query authorization on
+    *                                                  the accessor resource (explicitly via QUERY or implicitly via
+    *                                                  IMPERSONATE permissions)
+    */
+   long countResourcesByResourcePermissionsAndDomain(Resource accessorResource,
+                                                     String resourceClassName,
+                                                     String domainName,
+                                                     ResourcePermission resourcePermission,
+                                                     ResourcePermission... resourcePermissions);
+
+   /**
+    * Returns true if there is at least one resource (of the specified resource class) on which
+    * the specified accessor resource has the specified permissions, regardless of domain.
+    * <p/>
+    * The method takes into account the same direct, inherited, global and SUPER-USER permissions as
+    * {@link #getResourcesByResourcePermissions}, but stops at the first accessible resource
+    * instead of loading them all.
+    *
+    * @param accessorResource    the resource relative to which the accessible resources are determined
+    * @param resourceClassName   a string resource class name
+    * @param resourcePermissions the permissions to check
+    * @return true if the accessor resource has the specified permissions on any such resource, false otherwise
+    * @throws java.lang.IllegalArgumentException if accessorResource does not exist, or
+    *                                            if no resource class of resourceClassName exists, or
+    *                                            if any resourcePermission is invalid for the specified resource class
+    * @throws com.acciente.oacc.NotAuthorizedException if the session resource is not the accessor resource and
+    *                                                  the session resource does not have query authorization on
+    *                                                  the accessor resource (explicitly via QUERY or implicitly via
+    *                                                  IMPERSONATE permissions)
+    */
+   boolean hasAnyResourceByResourcePermissions(Resource accessorResource,
+                                               String resourceClassName,
+                                               Set<ResourcePermission> resourcePermissions);
+
+   /**
+    * Returns true if there is at least one resource (of the specified resource class) on which
+    * the specified accessor resource has the specified permissions, regardless of domain.
+    * <p/>
+    * The method takes into account the same direct, inherited, global and SUPER-USER permissions as
+    * {@link #getResourcesByResourcePermissions}, but stops at the first accessible resource
+    * instead of loading them all.
+    *
+    * @param accessorResource    the resource relative to which the accessible resources are determined
+    * @param resourceClassName   a string resource class name
+    * @param resourcePermission  the permission to check
+    * @param resourcePermissions the other (optional) permissions to check
+    * @return true if the accessor resource has the specified permissions on any such resource, false otherwise
+    * @throws java.lang.IllegalArgumentException if accessorResource does not exist, or
+    *                                            if no resource class of resourceClassName exists, or
+    *                                            if any resourcePermission is invalid for the specified resource class
+    * @throws com.acciente.oacc.NotAuthorizedException if the session resource is not the accessor resource and
+    *                                                  the session resource does not have query authorization on
+    *                                                  the accessor resource (explicitly via QUERY or implicitly via
+    *                                                  IMPERSONATE permissions)
+    */
+   boolean hasAnyResourceByResourcePermissions(Resource accessorResource,
+                                               String resourceClassName,
+                                               ResourcePermission resourcePermission,
+                                               ResourcePermission... resourcePermissions);
+
+   /**
+    * Returns true if there is at least one resource (of the specified resource class) on which
+    * the specified accessor resource has the specified permissions, within the
+    * specified domain or within any descendant domains.
+    * <p/>
+    * The method takes into account the same direct, inherited, global and SUPER-USER permissions as
+    * {@link #getResourcesByResourcePermissionsAndDomain}, but stops at the first accessible resource
+    * instead of loading them all.
+    *
+    * @param accessorResource    the resource relative to which the accessible resources are determined
+    * @param resourceClassName   a string resource class name
+    * @param domainName          a domain name
+    * @param resourcePermissions the permissions to check
+    * @return true if the accessor resource has the specified permissions on any such resource, false otherwise
+    * @throws java.lang.IllegalArgumentException if accessorResource does not exist, or
+    *                                            if no resource class of resourceClassName exists, or
+    *                                            if no domain of domainName exists, or
+    *                                            if any resourcePermission is invalid for the specified resource class
+    * @throws com.acciente.oacc.NotAuthorizedException if the session resource is not the accessor resource and
+    *                                                  the session resource does not have query authorization on
+    *                                                  the accessor resource (explicitly via QUERY or implicitly via
+    *                                                  IMPERSONATE permissions)
+    */
+   boolean hasAnyResourceByResourcePermissionsAndDomain(Resource accessorResource,
+                                                        String resourceClassName,
+                                                        String domainName,
+                                                        Set<ResourcePermission> resourcePermissions);
+
+   /**
+    * Returns true if there is at least one resource (of the specified resource class) on which
+    * the specified accessor resource has the specified permissions, within the
+    * specified domain or within any descendant domains.
+    * <p/>
+    * The method takes into account the same direct, inherited, global and SUPER-USER permissions as
+    * {@link #getResourcesByResourcePermissionsAndDomain}, but stops at the first accessible resource
+    * instead of loading them all.
+    *
+    * @param accessorResource    the resource relative to which the accessible resources are determined
+    * @param resourceClassName   a string resource class name
+    * @param domainName          a domain name
+    * @param resourcePermission  the permission to check
+    * @param resourcePermissions the other (optional) permissions to check
+    * @return true if the accessor resource has the specified permissions on any such resource, false otherwise
+    * @throws java.lang.IllegalArgumentException if accessorResource does not exist, or
+    *                                            if no resource class of resourceClassName exists, or
+    *                                            if no domain of domainName exists, or
+    *                                            if any resourcePermission is invalid for the specified resource class
+    * @throws com.acciente.oacc.NotAuthorizedException if the session resource is not the accessor resource and
+    *                                                  the session resource does not have query authorization on
+    *                                                  the accessor resource (explicitly via QUERY or implicitly via
+    *                                                  IMPERSONATE permissions)
+    */
+   boolean hasAnyResourceByResourcePermissionsAndDomain(Resource accessorResource,
+                                                        String resourceClassName,
+                                                        String domainName,
+                                                        ResourcePermission resourcePermission,
+                                                        ResourcePermission... resourcePermissions);
+
+   /**
+    * Issues a signed capability token that carries the effective permissions the session resource has on each of the
+    * specified resources.
+    * <p/>
+    * The token can be handed to other services, which can then use a {@link CapabilityTokenVerifier} with the same
+    * signing key to answer permission checks on these resources locally, without calling back into OACC.
+    * The token is a snapshot: permissions revoked after it was issued remain in effect for the token until it expires.
+    *
+    * @param signingKey        the secret key, at least 16 bytes long, with which to sign the token
+    * @param validityMillis    the number of milliseconds, from now, for which the token remains valid
+    * @param accessedResources the resources on which to include the effective permissions of the session resource
+    * @return the signed token in its string form
+    * @throws java.lang.IllegalArgumentException if any of the accessed resources does not exist, or
+    *                                            if the signing key is too short, or
+    *                                            if the validity is not positive
+    */
+   String issueCapabilityToken(byte[] signingKey,
+                               long validityMillis,
+                               Set<Resource> accessedResources);
+
+   /**
+    * Issues a signed capability token that carries the effective permissions the session resource has on each
+    * resource (of the specified resource class) within the specified domain or within any descendant domains,
+    * on which it has any permissions.
+    * <p/>
+    * The token can be handed to other services, which can then use a {@link CapabilityTokenVerifier} with the same
+    * signing key to answer permission checks on these resources locally, without calling back into OACC.
+    * The token is a snapshot: it does not cover resources created after it was issued, and permissions revoked after
+    * it was issued remain in effect for the token until it expires.
+    *
+    * @param signingKey        the secret key, at least 16 bytes long, with which to sign the token
+    * @param validityMillis    the number of milliseconds, from now, for which the token remains valid
+    * @param resourceClassName a string resource class name
+    * @param domainName        a domain name
+    * @return the signed token in its string form
+    * @throws java.lang.IllegalArgumentException if no resource class of resourceClassName exists, or
+    *                                            if no domain of domainName exists, or
+    *                                            if the signing key is too short, or
+    *                                            if the validity is not positive
+    */
+   String issueCapabilityTokenByDomain(byte[] signingKey,
+                                       long validityMillis,
+                                       String resourceClassName,
+                                       String domainName);
+
    /**
     * Returns a set of resources that have the specified permissions to the specified accessed resource.
     * <p/>
@@ -1117,6 +1451,28 @@ public interface AccessControlContext {
     */
    boolean deleteDomain(String domainName);
 
+   /**
+    * Deletes the specified domain (and any nested child domains), together with all resources contained
+    * in those domains.
+    * <p/>
+    * Note this method performs a cascading delete of any permissions any resource has as an accessor resource to
+    * this domain or to a resource class-domain tuple, of the contained resources' credentials, and of any
+    * permissions the contained resources have as accessor or accessed resources, before the domains are themselves
+    * deleted. The resources and permissions of the entire domain subtree are removed in bulk, rather than one
+    * resource at a time, and within a single transaction if the underlying connection is in auto-commit mode.
+    * <p/>
+    * If any of the deleted resources is the authenticated or session resource, this method will unauthenticate
+    * or unimpersonate, respectively, the same as {@link #deleteResource(Resource)}.
+    *
+    * @param domainName a string domain name
+    * @return <strong>true</strong> if the domain was deleted as a result of this call,
+    *         <strong>false</strong> if the specified domain did not exist
+    * @throws com.acciente.oacc.NotAuthorizedException if the session resource is not authorized to delete the
+    *                                                  specified domain, or to delete any of the resources
+    *                                                  contained in the domain or its descendant domains
+    */
+   boolean deleteDomainAndResources(String domainName);
+
    /**
     * Creates a new resource of the specified resource class within the specified domain.
     * <p/>
@@ -1192,6 +1548,50 @@ public interface AccessControlContext {
     */
    Resource createResource(String resourceClassName, String domainName, String externalId, Credentials credentials);
 
+   /**
+    * Creates the specified number of new resources of the specified resource class within the specified domain.
+    * <p/>
+    * This method is intended for bulk imports: the resource class, domain and the session resource's authorization
+    * are validated only once, the resource ids are reserved in blocks, and the new resources and their post-create
+    * permissions are inserted in batches, within a single transaction if the underlying connection is in auto-commit
+    * mode. The result is the same as calling {@link #createResource(String, String)} for each new resource, except
+    * that this method always requires an authenticated session.
+    * <p/>
+    * Note that a custom {@link AuthenticationProvider} implementation is required to support
+    * creation of authenticatable resources without providing explicit credentials
+    *
+    * @param resourceClassName a string resource class name
+    * @param domainName        a string domain name
+    * @param count             the number of resources to create
+    * @return the resource references of the newly created resources, in the order they were created
+    * @throws java.lang.IllegalArgumentException if no resource class of resourceClassName exists, or
+    *                                            if no domain of domainName exists, or
+    *                                            if count is less than one
+    * @throws com.acciente.oacc.NotAuthorizedException if the session resource is not authorized to create a new resource
+    *                                                  of the specified resource class in the specified domain
+    */
+   List<Resource> createResources(String resourceClassName, String domainName, int count);
+
+   /**
+    * Creates a new resource of the specified resource class within the specified domain for each of the specified
+    * external ids.
+    * <p/>
+    * This method is the bulk equivalent of {@link #createResource(String, String, String)}, and behaves like
+    * {@link #createResources(String, String, int)} otherwise.
+    *
+    * @param resourceClassName a string resource class name
+    * @param domainName        a string domain name
+    * @param externalIds       the list of unique string identifiers for the new resources
+    * @return the resource references of the newly created resources, in the same order as the specified external ids
+    * @throws java.lang.IllegalArgumentException if no resource class of resourceClassName exists, or
+    *                                            if no domain of domainName exists, or
+    *                                            if the list of external ids is empty or contains duplicates, or
+    *                                            if a resource with any of the externalIds already exists
+    * @throws com.acciente.oacc.NotAuthorizedException if the session resource is not authorized to create a new resource
+    *                                                  of the specified resource class in the specified domain
+    */
+   List<Resource> createResources(String resourceClassName, String domainName, List<String> externalIds);
+
    /**
     * Sets the external id of the specified resource as an alternative resource identifier, if none was previously set.
     * <p/>
@@ -1221,6 +1621,27 @@ public interface AccessControlContext {
     */
    boolean deleteResource(Resource obsoleteResource);
 
+   /**
+    * Deletes the specified resources.
+    * <p/>
+    * This method is equivalent to calling {@link #deleteResource(Resource)} for each of the specified resources,
+    * except that the permissions and resources are removed in batches, instead of one statement per table and resource.
+    * <p/>
+    * If the underlying connection is in auto-commit mode, all the resources are deleted within a single transaction,
+    * otherwise the deletes become part of the transaction already in progress on the connection. This includes the
+    * deletes of the credentials of authenticatable resources by the built-in authentication provider, while
+    * credentials managed by a custom {@link AuthenticationProvider} are deleted by that provider, outside of the
+    * transaction. Any specified resource that does not exist is ignored.
+    *
+    * @param obsoleteResources the set of resources to be deleted
+    * @return <strong>true</strong> if at least one resource was deleted as a result of this call,
+    *         <strong>false</strong> if none of the specified resources existed
+    * @throws com.acciente.oacc.NotAuthorizedException if the session resource is not authorized to delete any one of
+    *                                                  the specified obsolete resources, in which case none of them
+    *                                                  are deleted
+    */
+   boolean deleteResources(Set<Resource> obsoleteResources);
+
    /**
     * Sets the domain permissions the specified accessor resource will receive if it created a domain.
     * <p/>
@@ -0,0 +1,236 @@
+/*
+ * Copyright 2009-2016, Acciente LLC
+ *
+ * Acciente LLC licenses this file to you under the
+ * Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in
+ * writing, software distributed under the License is
+ * distributed on an "AS IS" BASIS, WITHOUT WARRANTIES
+ * OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.acciente.oacc;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * A snapshot of the effective permissions an accessor resource has on a set of resources, valid until an expiry time.
+ * <p/>
+ * Capability tokens are issued by {@link AccessControlContext#issueCapabilityToken} and
+ * {@link AccessControlContext#issueCapabilityTokenByDomain}, and are read back from their signed string form with a
+ * {@link CapabilityTokenVerifier}, which allows services that do not have access to the OACC database to answer
+ * permission checks locally.
+ * <p/>
+ * A capability token only knows about the resources it was issued for: it answers <code>false</code> for any other
+ * resource, and for any resource once it has expired. Because it is a snapshot, permissions revoked after the token
+ * was issued remain in effect for the token until it expires.
+ */
+public final class CapabilityToken {
+   private final Resource                               accessorResource;
+   private final long                                   expiresAt;
+   private final Map<Resource, Set<ResourcePermission>> resourcePermissions;
+   private final Map<Long, Resource>                    resourcesById;
+   private final Map<String, Resource>                  resourcesByExternalId;
+
+   /**
+    * Creates a capability token, which then has to be signed with {@link CapabilityTokenVerifier#sign} before it can
+    * be handed out.
+    *
+    * @param accessorResource    the resource whose permissions the token carries
+    * @param expiresAt           the time, in milliseconds since the epoch, after which the token is no longer valid
+    * @param resourcePermissions the effective permissions of the accessor resource, keyed by the accessed resource;
+    *                            every resource must have a resource id
+    */
+   public CapabilityToken(Resource accessorResource,
+                          long expiresAt,
+                          Map<Resource, Set<ResourcePermission>> resourcePermissions) {
+      if (accessorResource == null || accessorResource.getId() == null) {
+         throw new NullPointerException("Accessor resource with a resource id required, none specified");
+      }
+      if (resourcePermissions == null) {
+         throw new NullPointerException("Resource permissions required, none specified");
+      }
+
+      this.accessorResource = accessorResource;
+      this.expiresAt = expiresAt;
+      this.resourcePermissions = new LinkedHashMap<>(resourcePermissions.size());
+      this.resourcesById = new HashMap<>(resourcePermissions.size());
+      this.resourcesByExternalId = new HashMap<>();
+
+      for (Map.Entry<Resource, Set<ResourcePermission>> entry : resourcePermissions.entrySet()) {
+         final Resource accessedResource = entry.getKey();
+         if (accessedResource == null || accessedResource.getId() == null) {
+            throw new IllegalArgumentException("Capability token resources require a resource id: " + accessedResource);
+         }
+
+         this.resourcePermissions.put(accessedResource,
+                                      Collections.unmodifiableSet(new HashSet<>(entry.getValue())));
+         this.resourcesById.put(accessedResource.getId(), accessedResource);
+         if (accessedResource.getExternalId() != null) {
+            this.resourcesByExternalId.put(accessedResource.getExternalId(), accessedResource);
+         }
+      }
+   }
+
+   /**
+    * Get the resource whose permissions this token carries.
+    *
+    * @return the accessor resource
+    */
+   public Resource getAccessorResource() {
+      return accessorResource;
+   }
+
+   /**
+    * Get the time after which this token is no longer valid.
+    *
+    * @return the expiry time, in milliseconds since the epoch
+    */
+   public long getExpiresAt() {
+      return expiresAt;
+   }
+
+   /**
+    * Checks if this token has expired.
+    *
+    * @return <code>true</code> if the current time is past the expiry time of this token
+    */
+   public boolean isExpired() {
+      return System.currentTimeMillis() >= expiresAt;
+   }
+
+   /**
+    * Get the resources this token carries permissions for.
+    *
+    * @return a set of resources
+    */
+   public Set<Resource> getResources() {
+      return Collections.unmodifiableSet(resourcePermissions.keySet());
+   }
+
+   /**
+    * Get the effective permissions the accessor resource had on the specified resource when this token was issued.
+    *
+    * @param accessedResource the resource, identified by its resource id and/or external id
+    * @return a set of resource permissions, which is empty if this token does not carry the specified resource
+    */
+   public Set<ResourcePermission> getResourcePermissions(Resource accessedResource) {
+      if (accessedResource == null) {
+         throw new NullPointerException("Resource required, none specified");
+      }
+
+      final Resource resource = __findResource(accessedResource);
+
+      if (resource == null) {
+         return Collections.emptySet();
+      }
+      return resourcePermissions.get(resource);
+   }
+
+   /**
+    * Checks if the accessor resource of this token has all the specified permissions on the specified resource,
+    * according to this token.
+    *
+    * @param accessedResource    the resource, identified by its resource id and/or external id
+    * @param resourcePermissions the permissions to check
+    * @return <code>true</code> if the token has not expired and carries all the specified permissions on the
+    *         specified resource, <code>false</code> otherwise
+    */
+   public boolean hasResourcePermissions(Resource accessedResource, Set<ResourcePermission> resourcePermissions) {
+      if (resourcePermissions == null) {
+         throw new NullPointerException("Set of permissions required, none specified");
+      }
+      if (resourcePermissions.contains(null)) {
+         throw new NullPointerException("Set of permissions contains null element");
+      }
+
+      final Set<ResourcePermission> grantedResourcePermissions = getResourcePermissions(accessedResource);
+
+      if (isExpired() || grantedResourcePermissions.isEmpty()) {
+         return false;
+      }
+
+      for (ResourcePermission resourcePermission : resourcePermissions) {
+         // a permission with the grant option implies the same permission without it
+         if (!grantedResourcePermissions.contains(resourcePermission)
+               && (resourcePermission.isWithGrantOption()
+                     || !grantedResourcePermissions.contains(ResourcePermissions.getInstanceWithGrantOption(
+                           resourcePermission.getPermissionName())))) {
+            return false;
+         }
+      }
+
+      return true;
+   }
+
+   /**
+    * Checks if the accessor resource of this token has all the specified permissions on the specified resource,
+    * according to this token.
+    *
+    * @param accessedResource    the resource, identified by its resource id and/or external id
+    * @param resourcePermission  the permission to check
+    * @param resourcePermissions the other (optional) permissions to check
+    * @return <code>true</code> if the token has not expired and carries all the specified permissions on the
+    *         specified resource, <code>false</code> otherwise
+    */
+   public boolean hasResourcePermissions(Resource accessedResource,
+                                         ResourcePermission resourcePermission,
+                                         ResourcePermission... resourcePermissions) {
+      if (resourcePermission == null) {
+         throw new NullPointerException("Resource permission required, none specified");
+      }
+      if (resourcePermissions == null) {
+         throw new NullPointerException("An array or a sequence of resource permissions are required, but the null value was specified");
+      }
+
+      final Set<ResourcePermission> requestedResourcePermissions = new HashSet<>(resourcePermissions.length + 1);
+      requestedResourcePermissions.add(resourcePermission);
+      Collections.addAll(requestedResourcePermissions, resourcePermissions);
+
+      return hasResourcePermissions(accessedResource, requestedResourcePermissions);
+   }
+
+   // returns the resource of this token that matches the specified resource, or null if there is none
+   private Resource __findResource(Resource accessedResource) {
+      final Resource resource;
+
+      if (accessedResource.getId() != null) {
+         resource = resourcesById.get(accessedResource.getId());
+      }
+      else if (accessedResource.getExternalId() != null) {
+         resource = resourcesByExternalId.get(accessedResource.getExternalId());
+      }
+      else {
+         throw new IllegalArgumentException("Resource id and/or external id is required, none specified");
+      }
+
+      // a resource specified with both ids only matches if both ids agree
+      if (resource != null
+            && accessedResource.getExternalId() != null
+            && !accessedResource.getExternalId().equals(resource.getExternalId())) {
+         return null;
+      }
+
+      return resource;
+   }
+
+   @Override
+   public String toString() {
+      return "CapabilityToken{" +
+            "accessorResource=" + accessorResource +
+            ", expiresAt=" + expiresAt +
+            ", resourcePermissions=" + resourcePermissions +
+            '}';
+   }
+}
@@ -0,0 +1,343 @@
+/*
+ * Copyright 2009-2016, Acciente LLC
+ *
+ * Acciente LLC licenses this file to you under the
+ * Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in
+ * writing, software distributed under the License is
+ * distributed on an "AS IS" BASIS, WITHOUT WARRANTIES
+ * OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.acciente.oacc;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Signs capability tokens, and verifies signed capability tokens so that permission checks can be answered locally.
+ * <p/>
+ * A signed token is a compact, URL-safe string made of a binary encoding of the {@link CapabilityToken} and its
+ * HMAC-SHA256 signature. The verifier only depends on the JDK and on the OACC API value classes, so it can be used by
+ * services that neither have access to the OACC database nor an {@link AccessControlContext}.
+ * <p/>
+ * The signature is symmetric: every service that holds the signing key can verify tokens, but could also sign its own,
+ * so the key should only be shared with services that are trusted to that degree.
+ */
+public final class CapabilityTokenVerifier {
+   private static final String MAC_ALGORITHM          = "HmacSHA256";
+   private static final int    MIN_SIGNING_KEY_LENGTH = 16;
+   private static final byte   TOKEN_FORMAT_VERSION   = 1;
+   private static final char   SIGNATURE_SEPARATOR    = '.';
+   private static final char[] BASE64_URL_ALPHABET
+         = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789-_".toCharArray();
+
+   private final SecretKeySpec signingKey;
+
+   /**
+    * Creates a verifier for tokens signed with the specified key.
+    *
+    * @param signingKey the secret key, at least 16 bytes long, with which the tokens were signed
+    */
+   public CapabilityTokenVerifier(byte[] signingKey) {
+      if (signingKey == null) {
+         throw new NullPointerException("Signing key required, none specified");
+      }
+      if (signingKey.length < MIN_SIGNING_KEY_LENGTH) {
+         throw new IllegalArgumentException("Signing key must be at least " + MIN_SIGNING_KEY_LENGTH + " bytes long");
+      }
+      this.signingKey = new SecretKeySpec(signingKey, MAC_ALGORITHM);
+   }
+
+   /**
+    * Encodes and signs the specified capability token.
+    *
+    * @param capabilityToken the token to sign
+    * @return the signed token in its string form
+    */
+   public String sign(CapabilityToken capabilityToken) {
+      if (capabilityToken == null) {
+         throw new NullPointerException("Capability token required, none specified");
+      }
+
+      final byte[] payload = __encode(capabilityToken);
+
+      return __encodeBase64Url(payload) + SIGNATURE_SEPARATOR + __encodeBase64Url(__computeSignature(payload));
+   }
+
+   /**
+    * Verifies the signature and expiry of the specified signed token, and decodes it.
+    *
+    * @param signedToken the signed token in its string form
+    * @return the capability token
+    * @throws IllegalArgumentException if the token is malformed, its signature does not match, or it has expired
+    */
+   public CapabilityToken verify(String signedToken) {
+      if (signedToken == null) {
+         throw new NullPointerException("Capability token required, none specified");
+      }
+
+      final int separatorIndex = signedToken.indexOf(SIGNATURE_SEPARATOR);
+      if (separatorIndex < 0) {
+         throw new IllegalArgumentException("Capability token is malformed");
+      }
+
+      final byte[] payload = __decodeBase64Url(signedToken.substring(0, separatorIndex));
+      final byte[] signature = __decodeBase64Url(signedToken.substring(separatorIndex + 1));
+
+      // compare in constant time, to not reveal how much of a forged signature is correct
+      if (!MessageDigest.isEqual(signature, __computeSignature(payload))) {
+         throw new IllegalArgumentException("Capability token signature is invalid");
+      }
+
+      final CapabilityToken capabilityToken = __decode(payload);
+
+      if (capabilityToken.isExpired()) {
+         throw new IllegalArgumentException("Capability token expired at " + capabilityToken.getExpiresAt());
+      }
+
+      return capabilityToken;
+   }
+
+   /**
+    * Verifies the specified signed token and checks if its accessor resource has all the specified permissions on the
+    * specified resource.
+    *
+    * @param signedToken         the signed token in its string form
+    * @param accessedResource    the resource, identified by its resource id and/or external id
+    * @param resourcePermission  the permission to check
+    * @param resourcePermissions the other (optional) permissions to check
+    * @return <code>true</code> if the token carries all the specified permissions on the specified resource,
+    *         <code>false</code> otherwise
+    * @throws IllegalArgumentException if the token is malformed, its signature does not match, or it has expired
+    */
+   public boolean hasResourcePermissions(String signedToken,
+                                         Resource accessedResource,
+                                         ResourcePermission resourcePermission,
+                                         ResourcePermission... resourcePermissions) {
+      return verify(signedToken).hasResourcePermissions(accessedResource, resourcePermission, resourcePermissions);
+   }
+
+   // the binary layout of a token is: the format version, the accessor resource, the expiry time, the names of the
+   // permissions used in the token, and then for every resource its ids and its permissions, each permission written
+   // as an index into the permission names and a grant option flag
+   private static byte[] __encode(CapabilityToken capabilityToken) {
+      final List<String> permissionNames = new ArrayList<>();
+      final Map<String, Integer> permissionNameIndexes = new HashMap<>();
+
+      for (Resource resource : capabilityToken.getResources()) {
+         for (ResourcePermission resourcePermission : capabilityToken.getResourcePermissions(resource)) {
+            if (!permissionNameIndexes.containsKey(resourcePermission.getPermissionName())) {
+               permissionNameIndexes.put(resourcePermission.getPermissionName(), permissionNames.size());
+               permissionNames.add(resourcePermission.getPermissionName());
+            }
+         }
+      }
+
+      try {
+         final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+         final DataOutputStream out = new DataOutputStream(bytes);
+
+         out.writeByte(TOKEN_FORMAT_VERSION);
+         __writeResource(out, capabilityToken.getAccessorResource());
+         out.writeLong(capabilityToken.getExpiresAt());
+
+         out.writeInt(permissionNames.size());
+         for (String permissionName : permissionNames) {
+            out.writeUTF(permissionName);
+         }
+
+         out.writeInt(capabilityToken.getResources().size());
+         for (Resource resource : capabilityToken.getResources()) {
+            final Set<ResourcePermission> resourcePermissions = capabilityToken.getResourcePermissions(resource);
+
+            __writeResource(out, resource);
+            out.writeInt(resourcePermissions.size());
+            for (ResourcePermission resourcePermission : resourcePermissions) {
+               out.writeInt(permissionNameIndexes.get(resourcePermission.getPermissionName()));
+               out.writeBoolean(resourcePermission.isWithGrantOption());
+            }
+         }
+
+         out.flush();
+         return bytes.toByteArray();
+      }
+      catch (IOException e) {
+         throw new RuntimeException(e);
+      }
+   }
+
+   private static CapabilityToken __decode(byte[] payload) {
+      try {
+         final DataInputStream in = new DataInputStream(new ByteArrayInputStream(payload));
+
+         if (in.readByte() != TOKEN_FORMAT_VERSION) {
+            throw new IllegalArgumentException("Capability token format version is not supported");
+         }
+
+         final Resource accessorResource = __readResource(in);
+         final long expiresAt = in.readLong();
+
+         final int permissionNameCount = __readCount(in);
+         final List<String> permissionNames = new ArrayList<>(permissionNameCount);
+         for (int i = 0; i < permissionNameCount; i++) {
+            permissionNames.add(in.readUTF());
+         }
+
+         final int resourceCount = __readCount(in);
+         final Map<Resource, Set<ResourcePermission>> resourcePermissions = new LinkedHashMap<>(resourceCount);
+         for (int i = 0; i < resourceCount; i++) {
+            final Resource resource = __readResource(in);
+            final int resourcePermissionCount = __readCount(in);
+            final Set<ResourcePermission> permissions = new HashSet<>(resourcePermissionCount);
+
+            for (int j = 0; j < resourcePermissionCount; j++) {
+               final int permissionNameIndex = in.readInt();
+               if (permissionNameIndex < 0 || permissionNameIndex >= permissionNames.size()) {
+                  throw new IllegalArgumentException("Capability token is malformed");
+               }
+               final String permissionName = permissionNames.get(permissionNameIndex);
+               permissions.add(in.readBoolean()
+                               ? ResourcePermissions.getInstanceWithGrantOption(permissionName)
+                               : ResourcePermissions.getInstance(permissionName));
+            }
+            resourcePermissions.put(resource, permissions);
+         }
+
+         if (in.available() > 0) {
+            throw new IllegalArgumentException("Capability token is malformed");
+         }
+
+         return new CapabilityToken(accessorResource, expiresAt, resourcePermissions);
+      }
+      catch (IOException e) {
+         throw new IllegalArgumentException("Capability token is malformed", e);
+      }
+   }
+
+   private static void __writeResource(DataOutputStream out, Resource resource) throws IOException {
+      out.writeLong(resource.getId());
+      out.writeBoolean(resource.getExternalId() != null);
+      if (resource.getExternalId() != null) {
+         out.writeUTF(resource.getExternalId());
+      }
+   }
+
+   private static Resource __readResource(DataInputStream in) throws IOException {
+      final long resourceId = in.readLong();
+
+      if (in.readBoolean()) {
+         return Resources.getInstance(resourceId, in.readUTF());
+      }
+      return Resources.getInstance(resourceId);
+   }
+
+   private static int __readCount(DataInputStream in) throws IOException {
+      final int count = in.readInt();
+
+      // a count can never exceed the number of bytes that are left, which guards against absurd allocations
+      if (count < 0 || count > in.available()) {
+         throw new IllegalArgumentException("Capability token is malformed");
+      }
+      return count;
+   }
+
+   private byte[] __computeSignature(byte[] payload) {
+      try {
+         final Mac mac = Mac.getInstance(MAC_ALGORITHM);
+         mac.init(signingKey);
+         return mac.doFinal(payload);
+      }
+      catch (GeneralSecurityException e) {
+         throw new RuntimeException(e);
+      }
+   }
+
+   // unpadded base64url, see RFC 4648 section 5
+   private static String __encodeBase64Url(byte[] bytes) {
+      final StringBuilder encoded = new StringBuilder((bytes.length * 4 + 2) / 3);
+
+      for (int i = 0; i < bytes.length; i += 3) {
+         final int remaining = Math.min(3, bytes.length - i);
+         int block = (bytes[i] & 0xff) << 16;
+         if (remaining > 1) {
+            block |= (bytes[i + 1] & 0xff) << 8;
+         }
+         if (remaining > 2) {
+            block |= bytes[i + 2] & 0xff;
+         }
+
+         for (int j = 0; j <= remaining; j++) {
+            encoded.append(BASE64_URL_ALPHABET[(block >> (18 - 6 * j)) & 0x3f]);
+         }
+      }
+
+      return encoded.toString();
+   }
+
+   private static byte[] __decodeBase64Url(String encoded) {
+      if (encoded.length() % 4 == 1) {
+         throw new IllegalArgumentException("Capability token is malformed");
+      }
+
+      final byte[] bytes = new byte[encoded.length() * 3 / 4];
+      int byteIndex = 0;
+
+      for (int i = 0; i < encoded.length(); i += 4) {
+         final int remaining = Math.min(4, encoded.length() - i);
+         int block = 0;
+
+         for (int j = 0; j < 4; j++) {
+            block <<= 6;
+            if (j < remaining) {
+               block |= __decodeBase64UrlChar(encoded.charAt(i + j));
+            }
+         }
+
+         for (int j = 0; j < remaining - 1; j++) {
+            bytes[byteIndex++] = (byte) (block >> (16 - 8 * j));
+         }
+      }
+
+      return bytes;
+   }
+
+   private static int __decodeBase64UrlChar(char c) {
+      if (c >= 'A' && c <= 'Z') {
+         return c - 'A';
+      }
+      if (c >= 'a' && c <= 'z') {
+         return c - 'a' + 26;
+      }
+      if (c >= '0' && c <= '9') {
+         return c - '0' + 52;
+      }
+      if (c == '-') {
+         return 62;
+      }
+      if (c == '_') {
+         return 63;
+      }
+      throw new IllegalArgumentException("Capability token is malformed");
+   }
+}
@@ -55,6 +55,12 @@ public class DomainCreatePermissions {
       ungrantableCreatePermissionsByName = new ConcurrentHashMap<>(sysPermissionsByName.size());
       grantableCreatePermissionsByPostCreatePermission = new ConcurrentHashMap<>();
       ungrantableCreatePermissionsByPostCreatePermission = new ConcurrentHashMap<>();
+
+      // pre-populate the flyweight caches with the system permissions
+      for (String sysPermissionName : sysPermissionNames) {
+         getInstance(sysPermissionName);
+         getInstanceWithGrantOption(sysPermissionName);
+      }
    }
 
    public static List<String> getSysPermissionNames() {
@@ -100,7 +106,7 @@ public class DomainCreatePermissions {
     */
    @Deprecated
    public static DomainCreatePermission getInstance(String sysPermissionName, boolean withGrant) {
-      return new DomainCreatePermissionImpl(sysPermissionName, withGrant);
+      return withGrant ? getInstanceWithGrantOption(sysPermissionName) : getInstance(sysPermissionName);
    }
 
    /**
@@ -186,8 +192,9 @@ public class DomainCreatePermissions {
     */
    @Deprecated
    public static DomainCreatePermission getInstance(DomainPermission domainPostCreatePermission, boolean withGrant) {
-      domainPostCreatePermission = DomainPermissions.getInstance(domainPostCreatePermission);
-      return new DomainCreatePermissionImpl((DomainPermissionImpl) domainPostCreatePermission, withGrant);
+      return withGrant
+             ? getInstanceWithGrantOption(domainPostCreatePermission)
+             : getInstance(domainPostCreatePermission);
    }
 
    public static DomainCreatePermission getInstance(DomainCreatePermission domainCreatePermission) {
@@ -251,6 +258,9 @@ public class DomainCreatePermissions {
       private final DomainPermissionImpl postCreateDomainPermission;
       private final boolean              withGrantOption;
 
+      // the hash code is cached, since the flyweight instances are used as keys in hot lookups
+      private transient int hashCode;
+
       private DomainCreatePermissionImpl(String sysPermissionName,
                                          boolean withGrantOption) {
          SysPermission sysPermission = getSysPermission(sysPermissionName);
@@ -407,10 +417,15 @@ public class DomainCreatePermissions {
 
       @Override
       public int hashCode() {
+         if (hashCode != 0) {
+            return hashCode;
+         }
+
          int result = (int) (systemPermissionId ^ (systemPermissionId >>> 32));
          result = 31 * result + (sysPermissionName != null ? sysPermissionName.hashCode() : 0);
          result = 31 * result + (postCreateDomainPermission != null ? postCreateDomainPermission.hashCode() : 0);
          result = 31 * result + (withGrantOption ? 1 : 0);
+         hashCode = result;
          return result;
       }
 
@@ -426,6 +441,16 @@ public class DomainCreatePermissions {
          }
       }
 
+      // resolve deserialized instances to the cached flyweight, so that they are shared like all others
+      private Object readResolve() {
+         if (isSystemPermission()) {
+            return withGrantOption ? getInstanceWithGrantOption(sysPermissionName) : getInstance(sysPermissionName);
+         }
+         return withGrantOption
+                ? getInstanceWithGrantOption(postCreateDomainPermission)
+                : getInstance(postCreateDomainPermission);
+      }
+
       // private static helper method to convert a sys permission name to a sys permission object
 
       private static SysPermission getSysPermission(String permissionName) {
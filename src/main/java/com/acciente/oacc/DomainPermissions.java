@@ -55,6 +55,12 @@ public class DomainPermissions {
 
       grantablePermissionsByName = new ConcurrentHashMap<>(sysPermissionsByName.size());
       ungrantablePermissionsByName = new ConcurrentHashMap<>(sysPermissionsByName.size());
+
+      // pre-populate the flyweight caches with the system permissions
+      for (String sysPermissionName : sysPermissionNames) {
+         getInstance(sysPermissionName);
+         getInstanceWithGrantOption(sysPermissionName);
+      }
    }
 
    public static List<String> getSysPermissionNames() {
@@ -122,7 +128,7 @@ public class DomainPermissions {
     */
    @Deprecated
    public static DomainPermission getInstance(String sysPermissionName, boolean withGrant) {
-      return new DomainPermissionImpl(sysPermissionName, withGrant);
+      return withGrant ? getInstanceWithGrantOption(sysPermissionName) : getInstance(sysPermissionName);
    }
 
    public static DomainPermission getInstance(DomainPermission domainPermission) {
@@ -168,6 +174,9 @@ public class DomainPermissions {
       private final String  permissionName;
       private final boolean withGrantOption;
 
+      // the hash code is cached, since the flyweight instances are used as keys in hot lookups
+      private transient int hashCode;
+
       private DomainPermissionImpl(String sysPermissionName, boolean withGrantOption) {
          SysPermission sysPermission = getSysPermission(sysPermissionName);
 
@@ -268,8 +277,13 @@ public class DomainPermissions {
 
       @Override
       public int hashCode() {
+         if (hashCode != 0) {
+            return hashCode;
+         }
+
          int result = permissionName.hashCode();
          result = 31 * result + (withGrantOption ? 1 : 0);
+         hashCode = result;
          return result;
       }
 
@@ -286,6 +300,11 @@ public class DomainPermissions {
          }
       }
 
+      // resolve deserialized instances to the cached flyweight, so that they are shared like all others
+      private Object readResolve() {
+         return withGrantOption ? getInstanceWithGrantOption(permissionName) : getInstance(permissionName);
+      }
+
       // private static helper method
 
       private static SysPermission getSysPermission(String permissionName) {
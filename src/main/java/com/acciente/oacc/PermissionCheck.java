@@ -0,0 +1,46 @@
+/*
+ * Copyright 2009-2016, Acciente LLC
+ *
+ * Acciente LLC licenses this file to you under the
+ * Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in
+ * writing, software distributed under the License is
+ * distributed on an "AS IS" BASIS, WITHOUT WARRANTIES
+ * OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.acciente.oacc;
+
+import java.util.Set;
+
+/**
+ * A set of resource permissions on a resource class that was validated once, in order to be checked repeatedly
+ * without validating the permissions again.
+ * <p/>
+ * To compile a permission check use {@link AccessControlContext#compilePermissionCheck}, and to evaluate it use
+ * {@link AccessControlContext#hasResourcePermissions(Resource, Resource, PermissionCheck)} or
+ * {@link AccessControlContext#assertResourcePermissions(Resource, Resource, PermissionCheck)}.
+ * A permission check remains valid as long as its resource class exists, but can only be evaluated by access control
+ * contexts on the same OACC database as the one that compiled it.
+ */
+public interface PermissionCheck {
+   /**
+    * Get the name of the resource class of the resources this permission check can be evaluated on.
+    *
+    * @return a string resource class name
+    */
+   String getResourceClassName();
+
+   /**
+    * Get the resource permissions checked by this permission check.
+    *
+    * @return a set of resource permissions
+    */
+   Set<ResourcePermission> getResourcePermissions();
+}
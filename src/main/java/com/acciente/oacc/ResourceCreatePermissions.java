@@ -56,6 +56,12 @@ public class ResourceCreatePermissions {
       ungrantableCreatePermissionsByName = new ConcurrentHashMap<>(sysPermissionsByName.size());
       grantableCreatePermissionsByPostCreatePermission = new ConcurrentHashMap<>();
       ungrantableCreatePermissionsByPostCreatePermission = new ConcurrentHashMap<>();
+
+      // pre-populate the flyweight caches with the system permissions
+      for (String sysPermissionName : sysPermissionNames) {
+         getInstance(sysPermissionName);
+         getInstanceWithGrantOption(sysPermissionName);
+      }
    }
 
    public static List<String> getSysPermissionNames() {
@@ -106,7 +112,7 @@ public class ResourceCreatePermissions {
     */
    @Deprecated
    public static ResourceCreatePermission getInstance(String sysPermissionName, boolean withGrant) {
-      return new ResourceCreatePermissionImpl(sysPermissionName, withGrant);
+      return withGrant ? getInstanceWithGrantOption(sysPermissionName) : getInstance(sysPermissionName);
    }
 
 
@@ -195,8 +201,9 @@ public class ResourceCreatePermissions {
    @Deprecated
    public static ResourceCreatePermission getInstance(ResourcePermission postCreateResourcePermission,
                                                       boolean withGrant) {
-      postCreateResourcePermission = ResourcePermissions.getInstance(postCreateResourcePermission);
-      return new ResourceCreatePermissionImpl((ResourcePermissionImpl) postCreateResourcePermission, withGrant);
+      return withGrant
+             ? getInstanceWithGrantOption(postCreateResourcePermission)
+             : getInstance(postCreateResourcePermission);
    }
 
    public static ResourceCreatePermission getInstance(ResourceCreatePermission resourceCreatePermission) {
@@ -262,6 +269,9 @@ public class ResourceCreatePermissions {
       private final ResourcePermissionImpl postCreateResourcePermission;
       private final boolean                withGrantOption;
 
+      // the hash code is cached, since the flyweight instances are used as keys in hot lookups
+      private transient int hashCode;
+
       private ResourceCreatePermissionImpl(String sysPermissionName,
                                            boolean withGrantOption) {
          SysPermission sysPermission = getSysPermission(sysPermissionName);
@@ -415,10 +425,15 @@ public class ResourceCreatePermissions {
 
       @Override
       public int hashCode() {
+         if (hashCode != 0) {
+            return hashCode;
+         }
+
          int result = (int) (systemPermissionId ^ (systemPermissionId >>> 32));
          result = 31 * result + (sysPermissionName != null ? sysPermissionName.hashCode() : 0);
          result = 31 * result + (postCreateResourcePermission != null ? postCreateResourcePermission.hashCode() : 0);
          result = 31 * result + (withGrantOption ? 1 : 0);
+         hashCode = result;
          return result;
       }
 
@@ -434,6 +449,16 @@ public class ResourceCreatePermissions {
          }
       }
 
+      // resolve deserialized instances to the cached flyweight, so that they are shared like all others
+      private Object readResolve() {
+         if (isSystemPermission()) {
+            return withGrantOption ? getInstanceWithGrantOption(sysPermissionName) : getInstance(sysPermissionName);
+         }
+         return withGrantOption
+                ? getInstanceWithGrantOption(postCreateResourcePermission)
+                : getInstance(postCreateResourcePermission);
+      }
+
       // private static helper method to convert a sys permission name to a sys permission object
 
       private static SysPermission getSysPermission(String permissionName) {
@@ -62,6 +62,12 @@ public class ResourcePermissions {
 
       ungrantablePermissionByName = new ConcurrentHashMap<>();
       grantablePermissionByName = new ConcurrentHashMap<>();
+
+      // pre-populate the flyweight caches with the system permissions
+      for (String sysPermissionName : sysPermissionNames) {
+         getInstance(sysPermissionName);
+         getInstanceWithGrantOption(sysPermissionName);
+      }
    }
 
    public static List<String> getSysPermissionNames() {
@@ -129,7 +135,7 @@ public class ResourcePermissions {
     */
    @Deprecated
    public static ResourcePermission getInstance(String permissionName, boolean withGrant) {
-      return new ResourcePermissionImpl(permissionName, withGrant);
+      return withGrant ? getInstanceWithGrantOption(permissionName) : getInstance(permissionName);
    }
 
    public static ResourcePermission getInstance(ResourcePermission resourcePermission) {
@@ -176,6 +182,9 @@ public class ResourcePermissions {
       private final String  permissionName;
       private final boolean withGrantOption;
 
+      // the hash code is cached, since the flyweight instances are used as keys in hot lookups
+      private transient int hashCode;
+
       private ResourcePermissionImpl(String permissionName,
                                      boolean withGrantOption) {
          assertPermissionNameSpecified(permissionName);
@@ -190,7 +199,8 @@ public class ResourcePermissions {
          }
          else {
             this.systemPermissionId = 0;
-            this.permissionName = permissionName.intern();
+            // no need to intern, instances are only created through the flyweight cache keyed by this name
+            this.permissionName = permissionName;
          }
 
          this.withGrantOption = withGrantOption;
@@ -286,8 +296,13 @@ public class ResourcePermissions {
 
       @Override
       public int hashCode() {
+         if (hashCode != 0) {
+            return hashCode;
+         }
+
          int result = permissionName.hashCode();
          result = 31 * result + (withGrantOption ? 1 : 0);
+         hashCode = result;
          return result;
       }
 
@@ -297,6 +312,11 @@ public class ResourcePermissions {
                + (withGrantOption ? " /G" : "");
       }
 
+      // resolve deserialized instances to the cached flyweight, so that they are shared like all others
+      private Object readResolve() {
+         return withGrantOption ? getInstanceWithGrantOption(permissionName) : getInstance(permissionName);
+      }
+
       // private helper methods
 
       private void assertPermissionNameSpecified(String permissionName) {
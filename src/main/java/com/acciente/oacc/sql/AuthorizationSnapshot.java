@@ -0,0 +1,146 @@
+/*
+ * Copyright 2009-2016, Acciente LLC
+ *
+ * Acciente LLC licenses this file to you under the
+ * Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in
+ * writing, software distributed under the License is
+ * distributed on an "AS IS" BASIS, WITHOUT WARRANTIES
+ * OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.acciente.oacc.sql;
+
+import com.acciente.oacc.Resource;
+import com.acciente.oacc.ResourcePermission;
+import com.acciente.oacc.sql.internal.MappedAuthorizationSnapshot;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * A read-only view of the resource permissions of an OACC database, answered from a memory-mapped snapshot file
+ * built by {@link SQLAuthorizationSnapshotBuilder}, without any database connection.
+ * <p/>
+ * The checks follow the semantics of {@link com.acciente.oacc.AccessControlContext#hasResourcePermissions} and
+ * {@link com.acciente.oacc.AccessControlContext#getEffectiveResourcePermissions}: permissions are inherited from
+ * the resources the accessor has the *INHERIT permission on, global permissions apply to the domain's descendants,
+ * and super-users of a domain have all permissions on its resources. The snapshot reflects the database at the time
+ * it was built, and resolves resources by their id only; no authentication or query authorization is performed.
+ * <p/>
+ * A newer snapshot can be {@link #swap swapped in} at any time; every check reads from either the old or the new
+ * snapshot, never from both. Instances are thread-safe.
+ */
+public class AuthorizationSnapshot {
+   private volatile MappedAuthorizationSnapshot mappedSnapshot;
+
+   private AuthorizationSnapshot(MappedAuthorizationSnapshot mappedSnapshot) {
+      this.mappedSnapshot = mappedSnapshot;
+   }
+
+   /**
+    * Maps the specified authorization snapshot file.
+    *
+    * @param file the path of a snapshot built by {@link SQLAuthorizationSnapshotBuilder}
+    * @return an authorization snapshot
+    * @throws IllegalArgumentException if the file is not an authorization snapshot
+    */
+   public static AuthorizationSnapshot open(String file) throws IOException {
+      return new AuthorizationSnapshot(MappedAuthorizationSnapshot.map(Paths.get(file)));
+   }
+
+   /**
+    * Maps the specified authorization snapshot file and atomically replaces the current snapshot with it.
+    * <p/>
+    * The current snapshot keeps answering checks until the new one is completely mapped, so a snapshot that fails
+    * to map leaves the current one in place.
+    *
+    * @param file the path of a snapshot built by {@link SQLAuthorizationSnapshotBuilder}
+    * @throws IllegalArgumentException if the file is not an authorization snapshot
+    */
+   public void swap(String file) throws IOException {
+      mappedSnapshot = MappedAuthorizationSnapshot.map(Paths.get(file));
+   }
+
+   /**
+    * Returns the time the current snapshot was built, in milliseconds since the epoch.
+    */
+   public long getSnapshotMillis() {
+      return mappedSnapshot.getSnapshotMillis();
+   }
+
+   /**
+    * Returns the number of resources in the current snapshot.
+    */
+   public int getResourceCount() {
+      return mappedSnapshot.getResourceCount();
+   }
+
+   public boolean hasResourcePermissions(Resource accessorResource,
+                                         Resource accessedResource,
+                                         Set<ResourcePermission> resourcePermissions) {
+      __assertResourceSpecified(accessorResource);
+      __assertResourceSpecified(accessedResource);
+      __assertPermissionsSpecified(resourcePermissions);
+
+      return mappedSnapshot.hasResourcePermissions(accessorResource, accessedResource, resourcePermissions);
+   }
+
+   public boolean hasResourcePermissions(Resource accessorResource,
+                                         Resource accessedResource,
+                                         ResourcePermission resourcePermission,
+                                         ResourcePermission... resourcePermissions) {
+      if (resourcePermission == null) {
+         throw new NullPointerException("Resource permission required, none specified");
+      }
+      if (resourcePermissions == null) {
+         throw new NullPointerException("An array or a sequence of resource permissions are required, but the null value was specified");
+      }
+
+      final Set<ResourcePermission> requestedResourcePermissions = new HashSet<>(Arrays.asList(resourcePermissions));
+      requestedResourcePermissions.add(resourcePermission);
+      requestedResourcePermissions.remove(null);
+
+      return hasResourcePermissions(accessorResource, accessedResource, requestedResourcePermissions);
+   }
+
+   public Set<ResourcePermission> getEffectiveResourcePermissions(Resource accessorResource,
+                                                                  Resource accessedResource) {
+      __assertResourceSpecified(accessorResource);
+      __assertResourceSpecified(accessedResource);
+
+      return mappedSnapshot.getEffectiveResourcePermissions(accessorResource, accessedResource);
+   }
+
+   private static void __assertResourceSpecified(Resource resource) {
+      if (resource == null) {
+         throw new NullPointerException("Resource required, none specified");
+      }
+   }
+
+   private static void __assertPermissionsSpecified(Set<ResourcePermission> resourcePermissions) {
+      if (resourcePermissions == null) {
+         throw new NullPointerException("Set of permissions required, none specified");
+      }
+      if (resourcePermissions.contains(null)) {
+         throw new NullPointerException("Set of permissions contains null element");
+      }
+      if (resourcePermissions.isEmpty()) {
+         throw new IllegalArgumentException("Set of permissions required, empty set specified");
+      }
+   }
+
+   @Override
+   public String toString() {
+      return "AuthorizationSnapshot{snapshotMillis=" + getSnapshotMillis() + ", resourceCount=" + getResourceCount() + "}";
+   }
+}
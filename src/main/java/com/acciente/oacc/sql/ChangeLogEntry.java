@@ -0,0 +1,129 @@
+/*
+ * Copyright 2009-2016, Acciente LLC
+ *
+ * Acciente LLC licenses this file to you under the
+ * Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in
+ * writing, software distributed under the License is
+ * distributed on an "AS IS" BASIS, WITHOUT WARRANTIES
+ * OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.acciente.oacc.sql;
+
+import com.acciente.oacc.Resource;
+
+import java.io.Serializable;
+
+/**
+ * An entry in the OACC change log, describing a mutation of access control data.
+ * <p/>
+ * Each entry identifies the scope of the change as narrowly as the mutation allows: an accessor resource,
+ * an accessed resource, a domain name and/or a resource class name. Fields that do not apply to the type of
+ * change are null. Consumers are expected to use entries to invalidate locally cached access control data.
+ */
+public class ChangeLogEntry implements Serializable {
+   private static final long serialVersionUID = 1L;
+
+   public enum ChangeType {
+      DOMAIN_CREATE_PERMISSIONS(1),
+      DOMAIN_PERMISSIONS(2),
+      RESOURCE_CREATE_PERMISSIONS(3),
+      RESOURCE_PERMISSIONS(4),
+      GLOBAL_RESOURCE_PERMISSIONS(5),
+      RESOURCE_CLASS(6),
+      DOMAIN(7),
+      RESOURCE(8);
+
+      private final int code;
+
+      ChangeType(int code) {
+         this.code = code;
+      }
+
+      public int getCode() {
+         return code;
+      }
+
+      public static ChangeType getChangeType(int code) {
+         for (ChangeType changeType : values()) {
+            if (changeType.code == code) {
+               return changeType;
+            }
+         }
+         throw new IllegalArgumentException("Unsupported change type code: " + code);
+      }
+   }
+
+   private final long       changeVersion;
+   private final ChangeType changeType;
+   private final Resource   accessorResource;
+   private final Resource   accessedResource;
+   private final String     domainName;
+   private final String     resourceClassName;
+
+   public ChangeLogEntry(long changeVersion,
+                         ChangeType changeType,
+                         Resource accessorResource,
+                         Resource accessedResource,
+                         String domainName,
+                         String resourceClassName) {
+      if (changeType == null) {
+         throw new NullPointerException("Change type required, none specified");
+      }
+      this.changeVersion = changeVersion;
+      this.changeType = changeType;
+      this.accessorResource = accessorResource;
+      this.accessedResource = accessedResource;
+      this.domainName = domainName;
+      this.resourceClassName = resourceClassName;
+   }
+
+   /**
+    * Returns the version of this change, which increases monotonically in the order in which
+    * changes were assigned a version by the database.
+    *
+    * @return the change version
+    */
+   public long getChangeVersion() {
+      return changeVersion;
+   }
+
+   public ChangeType getChangeType() {
+      return changeType;
+   }
+
+   public Resource getAccessorResource() {
+      return accessorResource;
+   }
+
+   public Resource getAccessedResource() {
+      return accessedResource;
+   }
+
+   public String getDomainName() {
+      return domainName;
+   }
+
+   public String getResourceClassName() {
+      return resourceClassName;
+   }
+
+   @Override
+   public String toString() {
+      return "ChangeLogEntry{"
+            + "changeVersion=" + changeVersion
+            + ", changeType=" + changeType
+            + ", accessorResource=" + accessorResource
+            + ", accessedResource=" + accessedResource
+            + ", domainName='" + domainName + '\''
+            + ", resourceClassName='" + resourceClassName + '\''
+            + '}';
+   }
+}
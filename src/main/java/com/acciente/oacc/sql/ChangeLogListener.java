@@ -0,0 +1,33 @@
+/*
+ * Copyright 2009-2016, Acciente LLC
+ *
+ * Acciente LLC licenses this file to you under the
+ * Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in
+ * writing, software distributed under the License is
+ * distributed on an "AS IS" BASIS, WITHOUT WARRANTIES
+ * OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.acciente.oacc.sql;
+
+/**
+ * A callback that is notified of entries read from the OACC change log by a {@link SQLChangeLogPoller}.
+ */
+public interface ChangeLogListener {
+   /**
+    * Called once for each new change log entry, in ascending order of change version.
+    * <p/>
+    * An entry may be delivered more than once if a listener throws a runtime exception during delivery,
+    * so implementations should be idempotent, which cache invalidation naturally is.
+    *
+    * @param changeLogEntry the change that was recorded in the change log
+    */
+   void onChange(ChangeLogEntry changeLogEntry);
+}
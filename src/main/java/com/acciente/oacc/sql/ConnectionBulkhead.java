@@ -0,0 +1,178 @@
+/*
+ * Copyright 2009-2016, Acciente LLC
+ *
+ * Acciente LLC licenses this file to you under the
+ * Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in
+ * writing, software distributed under the License is
+ * distributed on an "AS IS" BASIS, WITHOUT WARRANTIES
+ * OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.acciente.oacc.sql;
+
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bounds the number of database connections that the access control contexts sharing it hold at the same time, so
+ * that slow operations cannot drain the connection pool and stall every other caller.
+ * <p/>
+ * When the bulkhead is at capacity, a request for another connection either fails right away, or waits up to a
+ * maximum time for a connection to be released, in order of arrival; a request that cannot be served fails with a
+ * {@link ConnectionRejectedException}, and is counted as rejected.
+ * <p/>
+ * A bulkhead is thread-safe, and is typically shared by all access control contexts that use the same data source.
+ */
+public class ConnectionBulkhead {
+   private final int        maxConcurrentConnections;
+   private final long       maxWaitMillis;
+   private final Semaphore  permits;
+   private final AtomicLong acquiredCount;
+   private final AtomicLong rejectedCount;
+
+   private ConnectionBulkhead(int maxConcurrentConnections, long maxWaitMillis) {
+      this.maxConcurrentConnections = maxConcurrentConnections;
+      this.maxWaitMillis = maxWaitMillis;
+      this.permits = new Semaphore(maxConcurrentConnections, true);
+      this.acquiredCount = new AtomicLong();
+      this.rejectedCount = new AtomicLong();
+   }
+
+   /**
+    * Returns a bulkhead that rejects a request for a connection right away when it is at capacity.
+    *
+    * @param maxConcurrentConnections the maximum number of connections held at the same time
+    * @return the connection bulkhead
+    * @throws IllegalArgumentException if the maximum number of connections is not positive
+    */
+   public static ConnectionBulkhead getInstance(int maxConcurrentConnections) {
+      return getInstance(maxConcurrentConnections, 0);
+   }
+
+   /**
+    * Returns a bulkhead that queues a request for a connection when it is at capacity, and rejects it if no
+    * connection was released within the specified time.
+    *
+    * @param maxConcurrentConnections the maximum number of connections held at the same time
+    * @param maxWaitMillis            the maximum time to wait for a connection, in milliseconds, or zero to reject
+    *                                 requests right away
+    * @return the connection bulkhead
+    * @throws IllegalArgumentException if the maximum number of connections is not positive, or the maximum wait
+    *                                  time is negative
+    */
+   public static ConnectionBulkhead getInstance(int maxConcurrentConnections, long maxWaitMillis) {
+      if (maxConcurrentConnections < 1) {
+         throw new IllegalArgumentException("Maximum number of concurrent connections must be positive: "
+                                                  + maxConcurrentConnections);
+      }
+      if (maxWaitMillis < 0) {
+         throw new IllegalArgumentException("Maximum connection wait time cannot be negative: " + maxWaitMillis);
+      }
+      return new ConnectionBulkhead(maxConcurrentConnections, maxWaitMillis);
+   }
+
+   public int getMaxConcurrentConnections() {
+      return maxConcurrentConnections;
+   }
+
+   public long getMaxWaitMillis() {
+      return maxWaitMillis;
+   }
+
+   /**
+    * Returns the number of connections currently held through this bulkhead.
+    *
+    * @return the number of active connections
+    */
+   public int getActiveConnectionCount() {
+      return maxConcurrentConnections - permits.availablePermits();
+   }
+
+   /**
+    * Returns the number of connections that were obtained through this bulkhead so far.
+    *
+    * @return the number of acquired connections
+    */
+   public long getAcquiredCount() {
+      return acquiredCount.get();
+   }
+
+   /**
+    * Returns the number of requests for a connection that this bulkhead rejected so far.
+    *
+    * @return the number of rejected requests
+    */
+   public long getRejectedCount() {
+      return rejectedCount.get();
+   }
+
+   /**
+    * Reserves a connection, waiting for one to be released if this bulkhead is at capacity and queues requests.
+    * <p/>
+    * This method is called by access control contexts, each successful call must be followed by a call to
+    * {@link #release()}.
+    *
+    * @throws ConnectionRejectedException if this bulkhead is at capacity and no connection was released in time
+    */
+   public void acquire() {
+      final boolean acquired;
+      try {
+         acquired = maxWaitMillis == 0
+                    ? permits.tryAcquire()
+                    : permits.tryAcquire(maxWaitMillis, TimeUnit.MILLISECONDS);
+      }
+      catch (InterruptedException e) {
+         Thread.currentThread().interrupt();
+         throw new RuntimeException(e);
+      }
+
+      if (!acquired) {
+         rejectedCount.incrementAndGet();
+         throw new ConnectionRejectedException("Connection bulkhead is at capacity of " + maxConcurrentConnections
+                                                     + " concurrent connections");
+      }
+      acquiredCount.incrementAndGet();
+   }
+
+   /**
+    * Reserves the specified number of connections at once if they are all available right away, without waiting and
+    * without counting a rejection if they are not.
+    * <p/>
+    * This method is called by access control contexts that already hold a connection and could do without the
+    * additional ones, each successful call must be followed by a call to {@link #release()} for each connection.
+    *
+    * @param connectionCount the number of connections to reserve
+    * @return true if all connections were reserved, false if none was
+    */
+   public boolean tryAcquire(int connectionCount) {
+      if (!permits.tryAcquire(connectionCount)) {
+         return false;
+      }
+      acquiredCount.addAndGet(connectionCount);
+      return true;
+   }
+
+   /**
+    * Releases a connection reserved with {@link #acquire()} or {@link #tryAcquire(int)}.
+    */
+   public void release() {
+      permits.release();
+   }
+
+   @Override
+   public String toString() {
+      return "ConnectionBulkhead{maxConcurrentConnections=" + maxConcurrentConnections
+            + ", maxWaitMillis=" + maxWaitMillis
+            + ", activeConnectionCount=" + getActiveConnectionCount()
+            + ", acquiredCount=" + getAcquiredCount()
+            + ", rejectedCount=" + getRejectedCount() + '}';
+   }
+}
@@ -0,0 +1,32 @@
+/*
+ * Copyright 2009-2016, Acciente LLC
+ *
+ * Acciente LLC licenses this file to you under the
+ * Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in
+ * writing, software distributed under the License is
+ * distributed on an "AS IS" BASIS, WITHOUT WARRANTIES
+ * OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.acciente.oacc.sql;
+
+import com.acciente.oacc.OaccException;
+
+/**
+ * Thrown when an access control context cannot obtain a database connection because its {@link ConnectionBulkhead}
+ * is at capacity.
+ */
+public class ConnectionRejectedException extends OaccException {
+   private static final long serialVersionUID = 1L;
+
+   public ConnectionRejectedException(String message) {
+      super(message);
+   }
+}
@@ -0,0 +1,36 @@
+/*
+ * Copyright 2009-2016, Acciente LLC
+ *
+ * Acciente LLC licenses this file to you under the
+ * Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in
+ * writing, software distributed under the License is
+ * distributed on an "AS IS" BASIS, WITHOUT WARRANTIES
+ * OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.acciente.oacc.sql;
+
+/**
+ * A scope that pins a single database connection for all calls made on an access control context
+ * until the scope is closed.
+ * <p/>
+ * Intended for use with try-with-resources, so that a sequence of calls - typically the authorization checks
+ * of a single request - only checks out one connection from the data source, instead of one per call.
+ * Obtain a scope from {@link SQLAccessControlContextFactory#openConnectionScope} or
+ * {@link SQLAccessControlContextFactory#openReadOnlyConnectionScope}.
+ */
+public interface ConnectionScope extends AutoCloseable {
+   /**
+    * Ends this scope: ends its read-only transaction, if any, restores the connection's original settings and
+    * releases the pinned connection. Closing a scope that was already closed has no effect.
+    */
+   @Override
+   void close();
+}
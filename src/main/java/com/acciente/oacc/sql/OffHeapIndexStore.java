@@ -0,0 +1,111 @@
+/*
+ * Copyright 2009-2016, Acciente LLC
+ *
+ * Acciente LLC licenses this file to you under the
+ * Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in
+ * writing, software distributed under the License is
+ * distributed on an "AS IS" BASIS, WITHOUT WARRANTIES
+ * OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.acciente.oacc.sql;
+
+import com.acciente.oacc.sql.internal.OffHeapIndex;
+
+/**
+ * A store of resolved resources and of the resources each accessor directly inherits from, which access control
+ * contexts share outside of the heap, so that large datasets can be cached without inflating the heap or the
+ * pauses of the garbage collector.
+ * <p/>
+ * Access control contexts on which the store was set with {@link SQLAccessControlContextFactory#setOffHeapIndexStore}
+ * look up the resource class and domain of resources specified by id in the store before querying them, and the
+ * resources an accessor inherits from, which a {@link SQLGrantFilter} needs to rule out inherited grants. Entries
+ * are held as packed longs in direct buffers, which are allocated up front for the specified maximum counts; see
+ * {@link #getAllocatedBytes()}. Once the store holds the maximum number of resources or accessors, those entries are
+ * cleared.
+ * <p/>
+ * The contexts remove the entries their own changes make obsolete, both when the change is made and once its
+ * transaction has ended, since other contexts may reload the obsolete entries until the change commits, and they
+ * do not add what they read within a transaction, which may never commit. For a transaction on a connection the
+ * caller manages, the end is only noticed on the context's next operation after it. Entries expire after the
+ * maximum age to pick up changes made through other contexts. Register the store as a listener of a
+ * {@link SQLChangeLogPoller} to remove the entries made obsolete by changes on other nodes right away instead.
+ * <p/>
+ * A store can be shared by any number of access control contexts, and is thread-safe.
+ */
+public class OffHeapIndexStore implements ChangeLogListener {
+   /**
+    * The default time, in milliseconds, for which entries are served after they were added.
+    */
+   public static final long DEFAULT_MAX_AGE_MILLIS = 5000;
+
+   private final OffHeapIndex offHeapIndex;
+
+   public OffHeapIndexStore(int maxResourceCount, int maxAccessorCount) {
+      this(maxResourceCount, maxAccessorCount, DEFAULT_MAX_AGE_MILLIS);
+   }
+
+   /**
+    * @param maxResourceCount the maximum number of resources the store holds
+    * @param maxAccessorCount the maximum number of accessors the store holds the inherited resources of
+    * @param maxAgeMillis     the time, in milliseconds, for which entries are served after they were added
+    */
+   public OffHeapIndexStore(int maxResourceCount, int maxAccessorCount, long maxAgeMillis) {
+      this.offHeapIndex = new OffHeapIndex(maxResourceCount, maxAccessorCount, maxAgeMillis);
+   }
+
+   public int getResourceCount() {
+      return offHeapIndex.getResourceCount();
+   }
+
+   public int getAccessorCount() {
+      return offHeapIndex.getAccessorCount();
+   }
+
+   /**
+    * Returns the number of bytes the store has allocated outside of the heap.
+    */
+   public long getAllocatedBytes() {
+      return offHeapIndex.getAllocatedBytes();
+   }
+
+   public long getHitCount() {
+      return offHeapIndex.getHitCount();
+   }
+
+   public long getMissCount() {
+      return offHeapIndex.getMissCount();
+   }
+
+   /**
+    * Removes all entries from the store.
+    */
+   public void clear() {
+      offHeapIndex.clear();
+   }
+
+   @Override
+   public void onChange(ChangeLogEntry changeLogEntry) {
+      offHeapIndex.onChange(changeLogEntry);
+   }
+
+   OffHeapIndex getOffHeapIndex() {
+      return offHeapIndex;
+   }
+
+   @Override
+   public String toString() {
+      return "OffHeapIndexStore{resourceCount=" + getResourceCount()
+            + ", accessorCount=" + getAccessorCount()
+            + ", allocatedBytes=" + getAllocatedBytes()
+            + ", hitCount=" + getHitCount()
+            + ", missCount=" + getMissCount() + "}";
+   }
+}
@@ -0,0 +1,96 @@
+/*
+ * Copyright 2009-2016, Acciente LLC
+ *
+ * Acciente LLC licenses this file to you under the
+ * Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in
+ * writing, software distributed under the License is
+ * distributed on an "AS IS" BASIS, WITHOUT WARRANTIES
+ * OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.acciente.oacc.sql;
+
+import java.io.Serializable;
+
+/**
+ * Determines how an access control context that was created with read data sources routes its queries.
+ * <p/>
+ * Queries (the {@code get*}, {@code has*} and {@code assert*} methods, and impersonation) are routed to one of
+ * the read data sources, selected according to the policy's {@link Selection}, while all methods that modify
+ * access control data, as well as authentication, always use the primary data source.
+ * <p/>
+ * Because read data sources are typically asynchronously replicated, a query issued right after a modification
+ * may not see it yet. To have a session read its own writes, specify a read-your-writes interval: for that long
+ * after the session last used the primary data source, its queries are routed to the primary as well.
+ */
+public class ReadRoutingPolicy implements Serializable {
+   private static final long serialVersionUID = 1L;
+
+   public enum Selection {
+      /**
+       * Selects the read data sources in turn.
+       */
+      ROUND_ROBIN,
+      /**
+       * Selects a read data source at random for each query.
+       */
+      RANDOM
+   }
+
+   private final Selection selection;
+   private final long      readYourWritesMillis;
+
+   private ReadRoutingPolicy(Selection selection, long readYourWritesMillis) {
+      this.selection = selection;
+      this.readYourWritesMillis = readYourWritesMillis;
+   }
+
+   /**
+    * Returns a policy that routes all queries to the read data sources.
+    *
+    * @param selection how to select among the read data sources
+    * @return the read routing policy
+    */
+   public static ReadRoutingPolicy getInstance(Selection selection) {
+      return getInstance(selection, 0);
+   }
+
+   /**
+    * Returns a policy that routes queries to the read data sources, except for queries a session issues within
+    * the specified interval after it last used the primary data source, which are routed to the primary.
+    *
+    * @param selection            how to select among the read data sources
+    * @param readYourWritesMillis the interval in milliseconds, typically the maximum expected replication lag,
+    *                             or zero to always route queries to the read data sources
+    * @return the read routing policy
+    */
+   public static ReadRoutingPolicy getInstance(Selection selection, long readYourWritesMillis) {
+      if (selection == null) {
+         throw new NullPointerException("Read data source selection required, none specified");
+      }
+      if (readYourWritesMillis < 0) {
+         throw new IllegalArgumentException("Read-your-writes interval cannot be negative: " + readYourWritesMillis);
+      }
+      return new ReadRoutingPolicy(selection, readYourWritesMillis);
+   }
+
+   public Selection getSelection() {
+      return selection;
+   }
+
+   public long getReadYourWritesMillis() {
+      return readYourWritesMillis;
+   }
+
+   @Override
+   public String toString() {
+      return "ReadRoutingPolicy{selection=" + selection + ", readYourWritesMillis=" + readYourWritesMillis + '}';
+   }
+}
@@ -0,0 +1,105 @@
+/*
+ * Copyright 2009-2016, Acciente LLC
+ *
+ * Acciente LLC licenses this file to you under the
+ * Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in
+ * writing, software distributed under the License is
+ * distributed on an "AS IS" BASIS, WITHOUT WARRANTIES
+ * OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.acciente.oacc.sql;
+
+import com.acciente.oacc.Resource;
+import com.acciente.oacc.ResourcePermission;
+
+import java.io.Serializable;
+
+/**
+ * A direct resource permission grant that does not add to the effective permissions of its accessor resource,
+ * because the accessor already has the permission - with at least the same grant option - by other means.
+ * <p/>
+ * Removing a redundant grant does not change what the accessor resource, or any resource inheriting from it,
+ * is able to access.
+ */
+public class RedundantGrant implements Serializable {
+   private static final long serialVersionUID = 1L;
+
+   /**
+    * The means by which the accessor resource has the permission of a redundant grant, in the order in which they
+    * are checked; a redundant grant reports the first that applies.
+    */
+   public enum Reason {
+      /** the accessor is super-user of the domain of the accessed resource */
+      SUPER_USER,
+      /** the accessor has a global permission, directly or inherited, on the domain of the accessed resource */
+      GLOBAL_PERMISSION,
+      /** the accessor inherits the permission on the accessed resource from another resource */
+      INHERITED_PERMISSION
+   }
+
+   private final Resource           accessorResource;
+   private final Resource           accessedResource;
+   private final ResourcePermission resourcePermission;
+   private final Reason             reason;
+
+   public RedundantGrant(Resource accessorResource,
+                         Resource accessedResource,
+                         ResourcePermission resourcePermission,
+                         Reason reason) {
+      if (accessorResource == null) {
+         throw new NullPointerException("Accessor resource required, none specified");
+      }
+      if (accessedResource == null) {
+         throw new NullPointerException("Accessed resource required, none specified");
+      }
+      if (resourcePermission == null) {
+         throw new NullPointerException("Resource permission required, none specified");
+      }
+      if (reason == null) {
+         throw new NullPointerException("Reason required, none specified");
+      }
+      this.accessorResource = accessorResource;
+      this.accessedResource = accessedResource;
+      this.resourcePermission = resourcePermission;
+      this.reason = reason;
+   }
+
+   public Resource getAccessorResource() {
+      return accessorResource;
+   }
+
+   public Resource getAccessedResource() {
+      return accessedResource;
+   }
+
+   /**
+    * Returns the directly granted permission, with the grant option it was granted with.
+    *
+    * @return the redundant resource permission
+    */
+   public ResourcePermission getResourcePermission() {
+      return resourcePermission;
+   }
+
+   public Reason getReason() {
+      return reason;
+   }
+
+   @Override
+   public String toString() {
+      return "RedundantGrant{"
+            + "accessorResource=" + accessorResource
+            + ", accessedResource=" + accessedResource
+            + ", resourcePermission=" + resourcePermission
+            + ", reason=" + reason
+            + '}';
+   }
+}
@@ -0,0 +1,83 @@
+/*
+ * Copyright 2009-2016, Acciente LLC
+ *
+ * Acciente LLC licenses this file to you under the
+ * Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in
+ * writing, software distributed under the License is
+ * distributed on an "AS IS" BASIS, WITHOUT WARRANTIES
+ * OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.acciente.oacc.sql;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The outcome of a redundant grant analysis of the direct resource permissions of an OACC database, which either
+ * only reports the redundant grants it found (a dry run), or has also removed them.
+ */
+public class RedundantGrantReport implements Serializable {
+   private static final long serialVersionUID = 1L;
+
+   private final long                 examinedGrantCount;
+   private final List<RedundantGrant> redundantGrants;
+   private final boolean              removed;
+
+   public RedundantGrantReport(long examinedGrantCount,
+                               List<RedundantGrant> redundantGrants,
+                               boolean removed) {
+      if (redundantGrants == null) {
+         throw new NullPointerException("Redundant grants required, none specified");
+      }
+      this.examinedGrantCount = examinedGrantCount;
+      this.redundantGrants = Collections.unmodifiableList(new ArrayList<>(redundantGrants));
+      this.removed = removed;
+   }
+
+   /**
+    * Returns the number of direct resource permission grants that were examined, which excludes INHERIT grants,
+    * because those define the inheritance graph itself and are never considered redundant.
+    *
+    * @return the number of examined grants
+    */
+   public long getExaminedGrantCount() {
+      return examinedGrantCount;
+   }
+
+   /**
+    * Returns the redundant grants, ordered by accessor and accessed resource id.
+    *
+    * @return a list of redundant grants
+    */
+   public List<RedundantGrant> getRedundantGrants() {
+      return redundantGrants;
+   }
+
+   /**
+    * Returns whether the redundant grants were removed, or only reported.
+    *
+    * @return true if the redundant grants were removed, false for a dry run
+    */
+   public boolean isRemoved() {
+      return removed;
+   }
+
+   @Override
+   public String toString() {
+      return "RedundantGrantReport{"
+            + "examinedGrantCount=" + examinedGrantCount
+            + ", redundantGrantCount=" + redundantGrants.size()
+            + ", removed=" + removed
+            + '}';
+   }
+}
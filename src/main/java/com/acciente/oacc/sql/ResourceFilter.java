@@ -0,0 +1,91 @@
+/*
+ * Copyright 2009-2016, Acciente LLC
+ *
+ * Acciente LLC licenses this file to you under the
+ * Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in
+ * writing, software distributed under the License is
+ * distributed on an "AS IS" BASIS, WITHOUT WARRANTIES
+ * OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.acciente.oacc.sql;
+
+import java.io.Serializable;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A SQL subquery that selects the ids of the resources an accessor resource has a set of permissions to, together
+ * with the values of its bind parameters, for embedding in application queries against the OACC database, e.g.:
+ * <pre>
+ * final ResourceFilter resourceFilter
+ *       = SQLAccessControlContextFactory.getResourceFilterByResourcePermissions(accessControlContext, ...);
+ * final PreparedStatement statement
+ *       = connection.prepareStatement("SELECT * FROM Document WHERE Status = ? AND ResourceId IN ( "
+ *                                           + resourceFilter.getSQL() + " ) ORDER BY Title");
+ * statement.setString(1, status);
+ * resourceFilter.setParameters(statement, 2);
+ * </pre>
+ * The subquery selects a single column named ResourceId. The accessor's inherited resources and the domains its
+ * global and super-user permissions apply to are resolved when the filter is obtained, so a filter should be used
+ * right away rather than kept around.
+ */
+public class ResourceFilter implements Serializable {
+   private static final long serialVersionUID = 1L;
+
+   private final String     sql;
+   private final List<Long> parameters;
+
+   public ResourceFilter(String sql, List<Long> parameters) {
+      this.sql = sql;
+      this.parameters = Collections.unmodifiableList(new ArrayList<>(parameters));
+   }
+
+   /**
+    * Get the SQL subquery, which contains a positional bind parameter for each of the {@link #getParameters()}.
+    *
+    * @return the SQL text of the subquery
+    */
+   public String getSQL() {
+      return sql;
+   }
+
+   /**
+    * Get the values of the bind parameters of the subquery, in order.
+    *
+    * @return a list of parameter values
+    */
+   public List<Long> getParameters() {
+      return parameters;
+   }
+
+   /**
+    * Sets the bind parameters of the subquery on the specified statement, starting at the specified parameter index.
+    *
+    * @param statement      the statement embedding the subquery
+    * @param parameterIndex the index of the first bind parameter of the subquery within the statement
+    * @return the index of the first bind parameter following the subquery
+    * @throws SQLException if a bind parameter could not be set
+    */
+   public int setParameters(PreparedStatement statement, int parameterIndex) throws SQLException {
+      for (Long parameter : parameters) {
+         statement.setLong(parameterIndex++, parameter);
+      }
+      return parameterIndex;
+   }
+
+   @Override
+   public String toString() {
+      return "ResourceFilter{sql='" + sql + "', parameters=" + parameters + "}";
+   }
+}
@@ -19,10 +19,14 @@ package com.acciente.oacc.sql;
 
 import com.acciente.oacc.AccessControlContext;
 import com.acciente.oacc.AuthenticationProvider;
+import com.acciente.oacc.Resource;
+import com.acciente.oacc.ResourcePermission;
 import com.acciente.oacc.sql.internal.SQLAccessControlContext;
 
 import javax.sql.DataSource;
 import java.sql.Connection;
+import java.util.List;
+import java.util.Set;
 
 /**
  * The factory that provides OACC's AccessControlContext implementation, which is backed by a database.
@@ -64,6 +68,64 @@ public class SQLAccessControlContextFactory {
                                                              authenticationProvider);
    }
 
+   /**
+    * Returns an access control context that routes queries to the specified read data sources, typically
+    * read replicas of the primary database, and all modifications to the primary data source.
+    * <p/>
+    * The {@code get*}, {@code has*} and {@code assert*} methods and impersonation use a read data source
+    * selected according to the specified routing policy, which also determines if a session reads its own
+    * recent writes from the primary. Authentication, including the built-in password authentication provider,
+    * and all methods that modify access control data use the primary data source, as do all calls made within
+    * a {@link ConnectionScope}.
+    *
+    * @param primaryDataSource the data source of the primary database
+    * @param readDataSources   one or more data sources from which queries may be served
+    * @param schemaName        the database schema of the OACC tables
+    * @param sqlProfile        the SQL profile of the database
+    * @param readRoutingPolicy determines how queries are routed to the read data sources
+    * @return the access control context
+    * @throws IllegalArgumentException if any data source or the routing policy is not specified
+    */
+   public static AccessControlContext getAccessControlContext(DataSource primaryDataSource,
+                                                              List<DataSource> readDataSources,
+                                                              String schemaName,
+                                                              SQLProfile sqlProfile,
+                                                              ReadRoutingPolicy readRoutingPolicy) {
+      return SQLAccessControlContext.getAccessControlContext(primaryDataSource,
+                                                             readDataSources,
+                                                             schemaName,
+                                                             sqlProfile,
+                                                             readRoutingPolicy);
+   }
+
+   /**
+    * Returns an access control context that routes queries to the specified read data sources and all
+    * modifications to the primary data source, and authenticates with the specified authentication provider.
+    *
+    * @param primaryDataSource      the data source of the primary database
+    * @param readDataSources        one or more data sources from which queries may be served
+    * @param schemaName             the database schema of the OACC tables
+    * @param sqlProfile             the SQL profile of the database
+    * @param readRoutingPolicy      determines how queries are routed to the read data sources
+    * @param authenticationProvider the authentication provider to use instead of the built-in one
+    * @return the access control context
+    * @throws IllegalArgumentException if any data source or the routing policy is not specified
+    * @see #getAccessControlContext(DataSource, List, String, SQLProfile, ReadRoutingPolicy)
+    */
+   public static AccessControlContext getAccessControlContext(DataSource primaryDataSource,
+                                                              List<DataSource> readDataSources,
+                                                              String schemaName,
+                                                              SQLProfile sqlProfile,
+                                                              ReadRoutingPolicy readRoutingPolicy,
+                                                              AuthenticationProvider authenticationProvider) {
+      return SQLAccessControlContext.getAccessControlContext(primaryDataSource,
+                                                             readDataSources,
+                                                             schemaName,
+                                                             sqlProfile,
+                                                             readRoutingPolicy,
+                                                             authenticationProvider);
+   }
+
    /**
     * @deprecated  As of v2.0.0-rc.6; no replacement method necessary because unserializable fields are now marked as transient
     */
@@ -100,4 +162,396 @@ public class SQLAccessControlContextFactory {
    public static void postDeserialize(AccessControlContext accessControlContext, DataSource dataSource) {
       SQLAccessControlContext.postDeserialize(accessControlContext, dataSource);
    }
-}
\ No newline at end of file
+
+   /**
+    * Re-initializes the specified deserialized accessControlContext with the specified primary and read data sources.
+    * <p/>
+    * This method is only intended to be called after the specified accessControlContext, which was originally
+    * obtained with read data sources, was successfully deserialized, in order to reset the transient data sources
+    * that were not serialized. If the method is called when a data source or connection has already been
+    * initialized, the method may pass through an IllegalStateException from the accessControlContext.
+    *
+    * @param accessControlContext the accessControlContext on which to reset the database connections
+    * @param primaryDataSource    the primary data source to be reset on the accessControlContext
+    * @param readDataSources      the read data sources to be reset on the accessControlContext
+    */
+   public static void postDeserialize(AccessControlContext accessControlContext,
+                                      DataSource primaryDataSource,
+                                      List<DataSource> readDataSources) {
+      SQLAccessControlContext.postDeserialize(accessControlContext, primaryDataSource, readDataSources);
+   }
+
+   /**
+    * Enables or disables recording of access control changes made through the specified accessControlContext
+    * in the OACC change log.
+    * <p/>
+    * When enabled, each mutation appends an entry to the {@code OAC_ChangeLog} table within the same transaction
+    * as the mutation, which is started for the mutation unless the caller's connection already has one in progress,
+    * so that other nodes can invalidate their cached access control data with a {@link SQLChangeLogPoller}.
+    * The change log is disabled by default.
+    *
+    * @param accessControlContext the accessControlContext on which to enable or disable the change log
+    * @param changeLogEnabled     true to record changes in the change log, false otherwise
+    */
+   public static void setChangeLogEnabled(AccessControlContext accessControlContext, boolean changeLogEnabled) {
+      SQLAccessControlContext.setChangeLogEnabled(accessControlContext, changeLogEnabled);
+   }
+
+   /**
+    * Enables or disables parallel evaluation of independent permission queries by the specified accessControlContext.
+    * <p/>
+    * When enabled, the effective resource permissions and the effective resource create permissions of a resource
+    * are computed by querying each grant source (direct, global and super-user) at the same time, each on its own
+    * connection from the data source, so that their latency is that of the slowest query rather than the sum of all.
+    * The queries run on a shared, bounded executor that uses virtual threads when the JVM supports them.
+    * <p/>
+    * Parallel evaluation only applies to access control contexts created with a data source, and the queries run
+    * sequentially on the caller's connection whenever that connection is pinned by a {@link ConnectionScope} or has a
+    * transaction in progress. Since the caller already holds a connection, the additional connections of an evaluation
+    * are all reserved at once and without waiting, within the capacity of the context's {@link ConnectionBulkhead},
+    * if any; when they are not all available right away, the queries run sequentially on the caller's connection
+    * instead. A connection pool sized at least to the capacity of the bulkhead ensures that reserved connections are
+    * never waited for. Parallel evaluation is disabled by default.
+    *
+    * @param accessControlContext   the accessControlContext on which to enable or disable parallel queries
+    * @param parallelQueriesEnabled true to run independent permission queries in parallel, false otherwise
+    */
+   public static void setParallelQueriesEnabled(AccessControlContext accessControlContext,
+                                                boolean parallelQueriesEnabled) {
+      SQLAccessControlContext.setParallelQueriesEnabled(accessControlContext, parallelQueriesEnabled);
+   }
+
+   /**
+    * Sets the timeouts of the SQL statements executed by the specified accessControlContext, separately for checks,
+    * listings and mutations, so that a pathologically slow query fails its operation after a bounded time instead
+    * of blocking the caller indefinitely.
+    * <p/>
+    * The policy is serialized with the accessControlContext. By default, statements have no timeout.
+    *
+    * @param accessControlContext   the accessControlContext on which to set the statement timeouts
+    * @param statementTimeoutPolicy the statement timeouts, or null for no timeouts
+    * @see StatementTimeoutPolicy
+    */
+   public static void setStatementTimeoutPolicy(AccessControlContext accessControlContext,
+                                                StatementTimeoutPolicy statementTimeoutPolicy) {
+      SQLAccessControlContext.setStatementTimeoutPolicy(accessControlContext, statementTimeoutPolicy);
+   }
+
+   /**
+    * Sets the bulkhead that bounds the number of connections the specified accessControlContext, together with all
+    * other access control contexts that share the bulkhead, checks out from its data sources at the same time.
+    * <p/>
+    * When the bulkhead is at capacity, an operation fails with a {@link ConnectionRejectedException}, either right
+    * away or after waiting for a connection to be released, as configured on the bulkhead, so that a burst of slow
+    * operations degrades the requests that issue them rather than draining the connection pool for all others.
+    * A connection pinned by a {@link ConnectionScope} holds its place in the bulkhead until the scope is closed, and
+    * parallel queries hold one place per concurrent query, so the bulkhead should be sized accordingly.
+    * <p/>
+    * The bulkhead only applies to access control contexts created with a data source, and does not extend to the
+    * connections used by the authentication provider. Like the data source, it is not serialized with the
+    * accessControlContext, and has to be set again after deserialization. By default, no bulkhead is used.
+    *
+    * @param accessControlContext the accessControlContext whose connections should be bounded
+    * @param connectionBulkhead   the bulkhead, or null to not bound the connections
+    * @see ConnectionBulkhead
+    */
+   public static void setConnectionBulkhead(AccessControlContext accessControlContext,
+                                            ConnectionBulkhead connectionBulkhead) {
+      SQLAccessControlContext.setConnectionBulkhead(accessControlContext, connectionBulkhead);
+   }
+
+   /**
+    * Sets the grant filter the specified accessControlContext consults before querying the grants of a resource
+    * permission check, so that most checks of accessors without any grant on the accessed resource are denied
+    * without querying the grant tables, and to which it adds its own changes.
+    * <p/>
+    * The filter can be shared by any number of access control contexts. Changes made through contexts without the
+    * filter have to reach it through a {@link SQLChangeLogPoller} it listens to, or they are not seen until its next
+    * rebuild. Like the data source, the filter is not serialized with the accessControlContext, and has to be set
+    * again after deserialization. By default, no grant filter is used.
+    *
+    * @param accessControlContext the accessControlContext that should consult the grant filter
+    * @param grantFilter          the grant filter, or null to always query the grants
+    * @see SQLGrantFilter
+    */
+   public static void setGrantFilter(AccessControlContext accessControlContext,
+                                     SQLGrantFilter grantFilter) {
+      SQLAccessControlContext.setGrantFilter(accessControlContext, grantFilter);
+   }
+
+   /**
+    * Sets the off-heap index store in which the specified accessControlContext looks up resolved resources, and
+    * the resources an accessor inherits from, before querying them, and to which it adds what it queried.
+    * <p/>
+    * The store can be shared by any number of access control contexts, so that large datasets can be cached
+    * outside of the heap once for all of them. Like the data source, the store is not serialized with the
+    * accessControlContext, and has to be set again after deserialization. By default, no store is used.
+    *
+    * @param accessControlContext the accessControlContext that should use the store
+    * @param offHeapIndexStore    the off-heap index store, or null to not use one
+    * @see OffHeapIndexStore
+    */
+   public static void setOffHeapIndexStore(AccessControlContext accessControlContext,
+                                           OffHeapIndexStore offHeapIndexStore) {
+      SQLAccessControlContext.setOffHeapIndex(accessControlContext,
+                                              offHeapIndexStore != null ? offHeapIndexStore.getOffHeapIndex() : null);
+   }
+
+   /**
+    * Enables the session snapshot of the specified accessControlContext, with the specified maximum age, or
+    * disables it.
+    * <p/>
+    * The snapshot holds the effective domain permissions of the session resource, and answers the super-user
+    * checks of most authorized operations without a query. It is discarded on changes through the
+    * accessControlContext that could affect it, but changes through other contexts, e.g. a revoked super-user
+    * permission, are only seen once the snapshot reaches the maximum age, unless the listener returned by
+    * {@link #getChangeLogListener} is registered with a {@link SQLChangeLogPoller}. The snapshot is not used while
+    * a connection the accessControlContext was created with has a transaction in progress, which the caller could
+    * roll back. The snapshot is disabled by default.
+    *
+    * @param accessControlContext        the accessControlContext on which to enable or disable the session snapshot
+    * @param sessionSnapshotMaxAgeMillis the time, in milliseconds, for which a snapshot is used after it was taken,
+    *                                    or 0 to disable the snapshot
+    * @throws IllegalArgumentException if the maximum age is negative
+    */
+   public static void setSessionSnapshotMaxAge(AccessControlContext accessControlContext,
+                                               long sessionSnapshotMaxAgeMillis) {
+      SQLAccessControlContext.setSessionSnapshotMaxAge(accessControlContext, sessionSnapshotMaxAgeMillis);
+   }
+
+   /**
+    * Enables the resource info cache of the specified accessControlContext, with the specified maximum size and
+    * age, or disables it.
+    * <p/>
+    * The cache holds resolved resources with their resource class and domain, so that resolving a resource
+    * costs at most one query while it is cached. Entries are removed on changes through the accessControlContext,
+    * but a resource deleted through another context, or an external id set or reused elsewhere, is only seen once
+    * its entry reaches the maximum age, unless the listener returned by {@link #getChangeLogListener} is registered
+    * with a {@link SQLChangeLogPoller}. The cache is disabled by default.
+    *
+    * @param accessControlContext the accessControlContext on which to enable or disable the resource info cache
+    * @param maxSize              the maximum number of resources the cache holds, or 0 to disable the cache
+    * @param maxAgeMillis         the time, in milliseconds, for which an entry is used after it was added
+    * @throws IllegalArgumentException if the maximum size or age is negative
+    */
+   public static void setResourceInfoCache(AccessControlContext accessControlContext,
+                                           int maxSize,
+                                           long maxAgeMillis) {
+      SQLAccessControlContext.setResourceInfoCache(accessControlContext, maxSize, maxAgeMillis);
+   }
+
+   /**
+    * Returns the listener that discards the state the specified accessControlContext caches for its session, i.e.
+    * its session snapshot and resource info cache, when changes made through other contexts could have made it
+    * obsolete.
+    * <p/>
+    * Register the listener with a {@link SQLChangeLogPoller} for as long as the accessControlContext is in use,
+    * and remove it afterwards, since the listener refers to the accessControlContext.
+    *
+    * @param accessControlContext the accessControlContext whose cached state the listener should discard
+    * @return a change log listener for the accessControlContext
+    */
+   public static ChangeLogListener getChangeLogListener(AccessControlContext accessControlContext) {
+      return SQLAccessControlContext.getChangeLogListener(accessControlContext);
+   }
+
+   /**
+    * Registers the listener that is notified of the operations, SQL statements and connection checkouts of all
+    * access control contexts obtained from this factory, replacing any previously registered listener.
+    * <p/>
+    * While no listener is registered, which is the default, no events are timed or dispatched at all.
+    *
+    * @param eventListener the listener to register, or null to stop dispatching events
+    * @see SQLEventListener
+    */
+   public static void setEventListener(SQLEventListener eventListener) {
+      SQLAccessControlContext.setEventListener(eventListener);
+   }
+
+   /**
+    * Registers the recorder that keeps the slow operations of all access control contexts obtained from this factory
+    * and wrapped with {@link #getObservedAccessControlContext(AccessControlContext)}, replacing any previously
+    * registered recorder.
+    * <p/>
+    * While a recorder is registered, the SQL statements and bound values of each observed operation are captured,
+    * and kept by the recorder if the operation turns out to be slow. No recorder is registered by default.
+    *
+    * @param slowOperationRecorder the recorder to register, or null to stop recording slow operations
+    * @see SlowOperationRecorder
+    */
+   public static void setSlowOperationRecorder(SlowOperationRecorder slowOperationRecorder) {
+      SQLAccessControlContext.setSlowOperationRecorder(slowOperationRecorder);
+   }
+
+   /**
+    * Returns an access control context that delegates to the specified accessControlContext, and reports each
+    * method invocation, with its session resource, outcome and duration, to the registered {@link SQLEventListener},
+    * and to the registered {@link SlowOperationRecorder} if the invocation was slow.
+    * <p/>
+    * The returned access control context can be used in place of the specified one, including with the other
+    * methods of this factory. While neither a listener nor a recorder is registered, the only overhead is that of a
+    * reflective call.
+    *
+    * @param accessControlContext the accessControlContext whose operations should be observed
+    * @return the observed access control context
+    */
+   public static AccessControlContext getObservedAccessControlContext(AccessControlContext accessControlContext) {
+      return SQLAccessControlContext.getObservedAccessControlContext(accessControlContext);
+   }
+
+   /**
+    * Opens a scope that pins a single database connection for all calls made on the specified
+    * accessControlContext, until the scope is closed.
+    * <p/>
+    * When the accessControlContext was created with a data source, every call otherwise checks out (and
+    * returns) its own connection; within the scope all calls share the one connection that was checked out
+    * when the scope was opened, which is returned to the data source when the scope is closed.
+    * Only one scope can be open on an accessControlContext at a time, and since access control contexts
+    * are not thread-safe, the scope must be closed by the thread that opened it, e.g.:
+    * <pre>
+    * try (ConnectionScope connectionScope = SQLAccessControlContextFactory.openConnectionScope(accessControlContext)) {
+    *    accessControlContext.assertResourcePermissions(...);
+    *    accessControlContext.assertDomainPermissions(...);
+    * }
+    * </pre>
+    * Note that the scope does not extend to the connections used by the authentication provider.
+    *
+    * @param accessControlContext the accessControlContext on which to pin a connection
+    * @return the connection scope, which must be closed to release the connection
+    * @throws IllegalArgumentException if the accessControlContext was not obtained from this factory
+    * @throws IllegalStateException    if a connection scope is already open on the accessControlContext
+    */
+   public static ConnectionScope openConnectionScope(AccessControlContext accessControlContext) {
+      return SQLAccessControlContext.openConnectionScope(accessControlContext);
+   }
+
+   /**
+    * Opens a scope that pins a single database connection for all calls made on the specified
+    * accessControlContext, and runs those calls as one read-only transaction with the specified isolation level.
+    * <p/>
+    * This works like {@link #openConnectionScope(AccessControlContext)}, except that all queries within the scope
+    * see data as of the specified isolation level, e.g. {@link java.sql.Connection#TRANSACTION_REPEATABLE_READ}
+    * for a consistent view across several authorization checks. Methods that modify access control data
+    * cannot be called within a read-only scope. The connection's original auto-commit, read-only and isolation
+    * settings are restored when the scope is closed.
+    *
+    * @param accessControlContext the accessControlContext on which to pin a connection
+    * @param transactionIsolation one of the {@code TRANSACTION_*} isolation levels of {@link java.sql.Connection},
+    *                             other than {@code TRANSACTION_NONE}
+    * @return the connection scope, which must be closed to end the transaction and release the connection
+    * @throws IllegalArgumentException if the accessControlContext was not obtained from this factory, or if the
+    *                                  isolation level is not supported
+    * @throws IllegalStateException    if a connection scope is already open on the accessControlContext, or if a
+    *                                  transaction is already in progress on the connection
+    */
+   public static ConnectionScope openReadOnlyConnectionScope(AccessControlContext accessControlContext,
+                                                             int transactionIsolation) {
+      return SQLAccessControlContext.openReadOnlyConnectionScope(accessControlContext, transactionIsolation);
+   }
+
+   /**
+    * Returns a SQL subquery, with its bind parameters, that selects the ids of the resources of the specified
+    * resource class to which the specified accessor resource has all of the specified permissions.
+    * <p/>
+    * The subquery selects the same resources as
+    * {@link AccessControlContext#getResourcesByResourcePermissions(Resource, String, Set)}, but instead of
+    * loading them it can be embedded in application queries against the OACC database, so that filtering and
+    * pagination of accessible application objects happens within a single query.
+    *
+    * @param accessControlContext the accessControlContext on which to evaluate the permissions
+    * @param accessorResource     the resource relative to which the permissions should be checked
+    * @param resourceClassName    a string resource class name
+    * @param resourcePermissions  the permissions to check
+    * @return the subquery and its bind parameters
+    * @throws IllegalArgumentException if the accessControlContext was not obtained from this factory, or
+    *                                  if the accessorResource does not exist, or
+    *                                  if no resource class of resourceClassName exists, or
+    *                                  if any resourcePermission is invalid for the resource class
+    * @throws com.acciente.oacc.NotAuthorizedException if the session resource is not the accessor resource and
+    *                                                  the session resource does not have query authorization on
+    *                                                  the accessor resource
+    */
+   public static ResourceFilter getResourceFilterByResourcePermissions(AccessControlContext accessControlContext,
+                                                                       Resource accessorResource,
+                                                                       String resourceClassName,
+                                                                       Set<ResourcePermission> resourcePermissions) {
+      return SQLAccessControlContext.getResourceFilterByResourcePermissions(accessControlContext,
+                                                                           accessorResource,
+                                                                           resourceClassName,
+                                                                           resourcePermissions);
+   }
+
+   /**
+    * Returns a SQL subquery, with its bind parameters, that selects the ids of the resources of the specified
+    * resource class within the specified domain (or any of its descendants) to which the specified accessor resource
+    * has all of the specified permissions.
+    * <p/>
+    * This works like {@link #getResourceFilterByResourcePermissions}, for the resources selected by
+    * {@link AccessControlContext#getResourcesByResourcePermissionsAndDomain(Resource, String, String, Set)}.
+    *
+    * @param accessControlContext the accessControlContext on which to evaluate the permissions
+    * @param accessorResource     the resource relative to which the permissions should be checked
+    * @param resourceClassName    a string resource class name
+    * @param domainName           a domain name
+    * @param resourcePermissions  the permissions to check
+    * @return the subquery and its bind parameters
+    * @throws IllegalArgumentException if the accessControlContext was not obtained from this factory, or
+    *                                  if the accessorResource does not exist, or
+    *                                  if no resource class of resourceClassName exists, or
+    *                                  if no domain of domainName exists, or
+    *                                  if any resourcePermission is invalid for the resource class
+    * @throws com.acciente.oacc.NotAuthorizedException if the session resource is not the accessor resource and
+    *                                                  the session resource does not have query authorization on
+    *                                                  the accessor resource
+    */
+   public static ResourceFilter getResourceFilterByResourcePermissionsAndDomain(AccessControlContext accessControlContext,
+                                                                                Resource accessorResource,
+                                                                                String resourceClassName,
+                                                                                String domainName,
+                                                                                Set<ResourcePermission> resourcePermissions) {
+      return SQLAccessControlContext.getResourceFilterByResourcePermissionsAndDomain(accessControlContext,
+                                                                                    accessorResource,
+                                                                                    resourceClassName,
+                                                                                    domainName,
+                                                                                    resourcePermissions);
+   }
+
+   /**
+    * Finds the direct resource permission grants that are redundant, because their accessor resources would have
+    * the same permissions, with at least the same grant option, without them: by being super-user of the domain of
+    * the accessed resource, through a global resource permission, or by inheriting the permission from another
+    * resource. INHERIT grants themselves are never reported.
+    * <p/>
+    * This is a dry run of {@link #removeRedundantGrants(AccessControlContext, int)}, which reads every direct grant
+    * of the OACC database, and is intended for maintenance rather than for regular use.
+    *
+    * @param accessControlContext the accessControlContext on which to find the redundant grants
+    * @return a report of the redundant grants
+    * @throws IllegalArgumentException if the accessControlContext was not obtained from this factory
+    * @throws com.acciente.oacc.NotAuthorizedException if the session resource is not the system resource
+    */
+   public static RedundantGrantReport findRedundantGrants(AccessControlContext accessControlContext) {
+      return SQLAccessControlContext.findRedundantGrants(accessControlContext);
+   }
+
+   /**
+    * Finds the redundant direct resource permission grants, like {@link #findRedundantGrants(AccessControlContext)},
+    * and removes them, which leaves the effective permissions of all resources unchanged.
+    * <p/>
+    * The grants are removed in transactions of at least the specified number of grants each, so that a large
+    * compaction does not hold locks on the grant tables for its whole duration. If the removal fails, only the grants
+    * of the current transaction are rolled back. If the connection of the accessControlContext already has a
+    * transaction in progress, all grants are removed within that transaction instead.
+    *
+    * @param accessControlContext the accessControlContext on which to remove the redundant grants
+    * @param batchSize            the number of grants after which to commit a transaction
+    * @return a report of the removed grants
+    * @throws IllegalArgumentException if the accessControlContext was not obtained from this factory, or
+    *                                  if batchSize is less than 1
+    * @throws com.acciente.oacc.NotAuthorizedException if the session resource is not the system resource
+    */
+   public static RedundantGrantReport removeRedundantGrants(AccessControlContext accessControlContext,
+                                                            int batchSize) {
+      return SQLAccessControlContext.removeRedundantGrants(accessControlContext, batchSize);
+   }
+}
@@ -0,0 +1,141 @@
+/*
+ * Copyright 2009-2016, Acciente LLC
+ *
+ * Acciente LLC licenses this file to you under the
+ * Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in
+ * writing, software distributed under the License is
+ * distributed on an "AS IS" BASIS, WITHOUT WARRANTIES
+ * OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.acciente.oacc.sql;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.util.Properties;
+
+/**
+ * Exports all the tables of an OACC database - domains, resource classes and their permissions, resources and
+ * their external ids, all grants and optionally the password hashes - to a compact, versioned binary stream, which
+ * {@link SQLAccessControlSystemImporter} can import into another OACC database.
+ * <p/>
+ * The rows are streamed from the database to the channel with a constant amount of memory.
+ */
+public class SQLAccessControlSystemExporter {
+   private static final String PROP_DbUrl     = "-dburl";
+   private static final String PROP_DbUser    = "-dbuser";
+   private static final String PROP_DbPwd     = "-dbpwd";
+   private static final String PROP_DbSchema  = "-dbschema";
+   private static final String PROP_File      = "-file";
+   private static final String PROP_Passwords = "-passwords";
+
+   public static void main(String args[]) throws SQLException, IOException {
+      if (args.length == 0) {
+         System.out.println("Usage: java com.acciente.oacc.sql.SQLAccessControlSystemExporter "
+                                  + PROP_DbUrl + "=<db-url> "
+                                  + PROP_DbUser + "=<db-user> "
+                                  + PROP_DbPwd + "=<db-password> "
+                                  + PROP_File + "=<export-file> "
+                                  + " [ " + PROP_DbSchema + "=<db-schema>]"
+                                  + " [ " + PROP_Passwords + "=true]");
+         return;
+      }
+
+      // first read the command line args into a properties object
+      Properties exportArgs = new Properties();
+
+      for (int i = 0; i < args.length; i++) {
+         exportArgs.load(new StringReader(args[i]));
+      }
+
+      String dbUrl;
+      String dbUser;
+      String dbPwd;
+      String dbSchema;
+      String file;
+      boolean includePasswords;
+
+      // get the parameters into local vars and assign defaults as needed
+      dbUrl = exportArgs.getProperty(PROP_DbUrl);
+      dbUser = exportArgs.getProperty(PROP_DbUser);
+      dbPwd = exportArgs.getProperty(PROP_DbPwd);
+      dbSchema = exportArgs.getProperty(PROP_DbSchema, "TEST_OACC");
+      file = exportArgs.getProperty(PROP_File);
+      includePasswords = Boolean.parseBoolean(exportArgs.getProperty(PROP_Passwords, "false"));
+
+      // check if we have all the required parameters
+      if (dbUrl == null) {
+         throw new IllegalArgumentException(PROP_DbUrl + " is required!");
+      }
+      if (dbUser == null) {
+         throw new IllegalArgumentException(PROP_DbUser + " is required!");
+      }
+      if (dbPwd == null) {
+         throw new IllegalArgumentException(PROP_DbPwd + " is required!");
+      }
+      if (file == null) {
+         throw new IllegalArgumentException(PROP_File + " is required!");
+      }
+
+      exportOACC(dbUrl, dbUser, dbPwd, dbSchema, file, includePasswords);
+   }
+
+   public static void exportOACC(String dbUrl,
+                                 String dbUser,
+                                 String dbPwd,
+                                 String dbSchema,
+                                 String file,
+                                 boolean includePasswords) throws SQLException, IOException {
+      System.out.println("Connecting to OACC database @ " + dbUrl);
+      Connection connection = DriverManager.getConnection(dbUrl, dbUser, dbPwd);
+
+      try (FileChannel channel = FileChannel.open(Paths.get(file),
+                                                  StandardOpenOption.CREATE,
+                                                  StandardOpenOption.TRUNCATE_EXISTING,
+                                                  StandardOpenOption.WRITE)) {
+         exportOACC(connection, dbSchema, channel, includePasswords);
+      }
+      finally {
+         System.out.println("Disconnecting from OACC database @ " + dbUrl);
+         connection.close();
+      }
+
+      System.out.println("Export..OK!");
+   }
+
+   /**
+    * Exports the OACC database on the specified connection to the specified channel.
+    * <p/>
+    * All tables are read within a single transaction, unless the connection already has a transaction in progress.
+    * The channel is not closed.
+    *
+    * @param connection       a connection to the OACC database
+    * @param dbSchema         the schema of the OACC tables, or null
+    * @param channel          the channel to write the export to
+    * @param includePasswords whether to export the password hashes of the built-in authentication provider
+    */
+   public static void exportOACC(Connection connection,
+                                 String dbSchema,
+                                 WritableByteChannel channel,
+                                 boolean includePasswords) throws SQLException, IOException {
+      // delegate to internal handler
+      com.acciente.oacc.sql.internal.SQLAccessControlSystemExporter.exportOACC(connection,
+                                                                               dbSchema,
+                                                                               channel,
+                                                                               includePasswords);
+   }
+}
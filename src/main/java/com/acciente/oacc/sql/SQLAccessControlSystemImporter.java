@@ -0,0 +1,151 @@
+/*
+ * Copyright 2009-2016, Acciente LLC
+ *
+ * Acciente LLC licenses this file to you under the
+ * Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in
+ * writing, software distributed under the License is
+ * distributed on an "AS IS" BASIS, WITHOUT WARRANTIES
+ * OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.acciente.oacc.sql;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.util.Properties;
+
+/**
+ * Imports an export written by {@link SQLAccessControlSystemExporter} into an initialized OACC database, e.g. to
+ * migrate or clone a tenant into another environment.
+ * <p/>
+ * Domains, resource classes and permissions are matched by name and only created if they do not exist yet; all
+ * resources (except the system resource) are created with new ids, and the grants are inserted with the new ids.
+ * Password hashes are bound to the id of their resource, so they are only imported for resources that keep their
+ * id, and the credentials of any other authenticatable resources have to be reset after the import.
+ */
+public class SQLAccessControlSystemImporter {
+   private static final String PROP_DbUrl      = "-dburl";
+   private static final String PROP_DbUser     = "-dbuser";
+   private static final String PROP_DbPwd      = "-dbpwd";
+   private static final String PROP_DbSchema   = "-dbschema";
+   private static final String PROP_SQLProfile = "-sqlprofile";
+   private static final String PROP_File       = "-file";
+   private static final String PROP_BatchSize  = "-batchsize";
+
+   public static void main(String args[]) throws SQLException, IOException {
+      if (args.length == 0) {
+         System.out.println("Usage: java com.acciente.oacc.sql.SQLAccessControlSystemImporter "
+                                  + PROP_DbUrl + "=<db-url> "
+                                  + PROP_DbUser + "=<db-user> "
+                                  + PROP_DbPwd + "=<db-password> "
+                                  + PROP_SQLProfile + "=<sql-profile> "
+                                  + PROP_File + "=<export-file> "
+                                  + " [ " + PROP_DbSchema + "=<db-schema>]"
+                                  + " [ " + PROP_BatchSize + "=<rows-per-transaction>]");
+         return;
+      }
+
+      // first read the command line args into a properties object
+      Properties importArgs = new Properties();
+
+      for (int i = 0; i < args.length; i++) {
+         importArgs.load(new StringReader(args[i]));
+      }
+
+      String dbUrl;
+      String dbUser;
+      String dbPwd;
+      String dbSchema;
+      String sqlProfileName;
+      String file;
+      int batchSize;
+
+      // get the parameters into local vars and assign defaults as needed
+      dbUrl = importArgs.getProperty(PROP_DbUrl);
+      dbUser = importArgs.getProperty(PROP_DbUser);
+      dbPwd = importArgs.getProperty(PROP_DbPwd);
+      dbSchema = importArgs.getProperty(PROP_DbSchema, "TEST_OACC");
+      sqlProfileName = importArgs.getProperty(PROP_SQLProfile);
+      file = importArgs.getProperty(PROP_File);
+      batchSize = Integer.parseInt(importArgs.getProperty(PROP_BatchSize, "10000"));
+
+      // check if we have all the required parameters
+      if (dbUrl == null) {
+         throw new IllegalArgumentException(PROP_DbUrl + " is required!");
+      }
+      if (dbUser == null) {
+         throw new IllegalArgumentException(PROP_DbUser + " is required!");
+      }
+      if (dbPwd == null) {
+         throw new IllegalArgumentException(PROP_DbPwd + " is required!");
+      }
+      if (sqlProfileName == null) {
+         throw new IllegalArgumentException(PROP_SQLProfile + " is required!");
+      }
+      if (file == null) {
+         throw new IllegalArgumentException(PROP_File + " is required!");
+      }
+
+      importOACC(dbUrl, dbUser, dbPwd, dbSchema, SQLProfile.valueOf(sqlProfileName), file, batchSize);
+   }
+
+   public static void importOACC(String dbUrl,
+                                 String dbUser,
+                                 String dbPwd,
+                                 String dbSchema,
+                                 SQLProfile sqlProfile,
+                                 String file,
+                                 int batchSize) throws SQLException, IOException {
+      System.out.println("Connecting to OACC database @ " + dbUrl);
+      Connection connection = DriverManager.getConnection(dbUrl, dbUser, dbPwd);
+
+      try (FileChannel channel = FileChannel.open(Paths.get(file), StandardOpenOption.READ)) {
+         importOACC(connection, dbSchema, sqlProfile, channel, batchSize);
+      }
+      finally {
+         System.out.println("Disconnecting from OACC database @ " + dbUrl);
+         connection.close();
+      }
+
+      System.out.println("Import..OK!");
+   }
+
+   /**
+    * Imports an export from the specified channel into the OACC database on the specified connection.
+    * <p/>
+    * The rows are inserted in JDBC batches and committed every batchSize rows, so a failed import leaves the rows
+    * that were committed until then in the database. The channel is not closed.
+    *
+    * @param connection a connection to an initialized OACC database
+    * @param dbSchema   the schema of the OACC tables, or null
+    * @param sqlProfile the SQL profile of the database
+    * @param channel    the channel to read the export from
+    * @param batchSize  the number of rows to insert per transaction
+    */
+   public static void importOACC(Connection connection,
+                                 String dbSchema,
+                                 SQLProfile sqlProfile,
+                                 ReadableByteChannel channel,
+                                 int batchSize) throws SQLException, IOException {
+      // delegate to internal handler
+      com.acciente.oacc.sql.internal.SQLAccessControlSystemImporter.importOACC(connection,
+                                                                               dbSchema,
+                                                                               sqlProfile,
+                                                                               channel,
+                                                                               batchSize);
+   }
+}
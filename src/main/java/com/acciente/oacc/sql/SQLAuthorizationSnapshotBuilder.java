@@ -0,0 +1,130 @@
+/*
+ * Copyright 2009-2016, Acciente LLC
+ *
+ * Acciente LLC licenses this file to you under the
+ * Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in
+ * writing, software distributed under the License is
+ * distributed on an "AS IS" BASIS, WITHOUT WARRANTIES
+ * OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.acciente.oacc.sql;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.file.Paths;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.util.Properties;
+
+/**
+ * Builds an {@link AuthorizationSnapshot authorization snapshot} of an OACC database: a file of sorted primitive
+ * arrays of the resources, the domain tree, the inheritance graph and the resource permission grants, which read-only
+ * nodes can memory-map to check resource permissions without a database connection.
+ * <p/>
+ * The file is replaced atomically, so that it can be rebuilt periodically while readers map it.
+ */
+public class SQLAuthorizationSnapshotBuilder {
+   private static final String PROP_DbUrl    = "-dburl";
+   private static final String PROP_DbUser   = "-dbuser";
+   private static final String PROP_DbPwd    = "-dbpwd";
+   private static final String PROP_DbSchema = "-dbschema";
+   private static final String PROP_File     = "-file";
+
+   public static void main(String args[]) throws SQLException, IOException {
+      if (args.length == 0) {
+         System.out.println("Usage: java com.acciente.oacc.sql.SQLAuthorizationSnapshotBuilder "
+                                  + PROP_DbUrl + "=<db-url> "
+                                  + PROP_DbUser + "=<db-user> "
+                                  + PROP_DbPwd + "=<db-password> "
+                                  + PROP_File + "=<snapshot-file> "
+                                  + " [ " + PROP_DbSchema + "=<db-schema>]");
+         return;
+      }
+
+      // first read the command line args into a properties object
+      Properties snapshotArgs = new Properties();
+
+      for (int i = 0; i < args.length; i++) {
+         snapshotArgs.load(new StringReader(args[i]));
+      }
+
+      String dbUrl;
+      String dbUser;
+      String dbPwd;
+      String dbSchema;
+      String file;
+
+      // get the parameters into local vars and assign defaults as needed
+      dbUrl = snapshotArgs.getProperty(PROP_DbUrl);
+      dbUser = snapshotArgs.getProperty(PROP_DbUser);
+      dbPwd = snapshotArgs.getProperty(PROP_DbPwd);
+      dbSchema = snapshotArgs.getProperty(PROP_DbSchema, "TEST_OACC");
+      file = snapshotArgs.getProperty(PROP_File);
+
+      // check if we have all the required parameters
+      if (dbUrl == null) {
+         throw new IllegalArgumentException(PROP_DbUrl + " is required!");
+      }
+      if (dbUser == null) {
+         throw new IllegalArgumentException(PROP_DbUser + " is required!");
+      }
+      if (dbPwd == null) {
+         throw new IllegalArgumentException(PROP_DbPwd + " is required!");
+      }
+      if (file == null) {
+         throw new IllegalArgumentException(PROP_File + " is required!");
+      }
+
+      buildSnapshot(dbUrl, dbUser, dbPwd, dbSchema, file);
+   }
+
+   public static void buildSnapshot(String dbUrl,
+                                    String dbUser,
+                                    String dbPwd,
+                                    String dbSchema,
+                                    String file) throws SQLException, IOException {
+      System.out.println("Connecting to OACC database @ " + dbUrl);
+      Connection connection = DriverManager.getConnection(dbUrl, dbUser, dbPwd);
+
+      try {
+         buildSnapshot(connection, dbSchema, file);
+      }
+      finally {
+         System.out.println("Disconnecting from OACC database @ " + dbUrl);
+         connection.close();
+      }
+
+      System.out.println("Snapshot..OK!");
+   }
+
+   /**
+    * Builds an authorization snapshot of the OACC database on the specified connection.
+    * <p/>
+    * All tables are read within a single serializable (or, where that is not supported, repeatable read) transaction,
+    * so that the snapshot is consistent even while the database is being written to, unless the connection already
+    * has a transaction in progress, whose isolation level then applies. On databases that implement these isolation
+    * levels with locks rather than snapshots, writers may be blocked until the snapshot has been built.
+    * The snapshot is written to a temporary file next to the specified file, which it then atomically replaces.
+    *
+    * @param connection a connection to the OACC database
+    * @param dbSchema   the schema of the OACC tables, or null
+    * @param file       the path of the snapshot file to create or replace
+    */
+   public static void buildSnapshot(Connection connection,
+                                    String dbSchema,
+                                    String file) throws SQLException, IOException {
+      // delegate to internal handler
+      com.acciente.oacc.sql.internal.SQLAuthorizationSnapshotBuilder.buildSnapshot(connection,
+                                                                                   dbSchema,
+                                                                                   Paths.get(file));
+   }
+}
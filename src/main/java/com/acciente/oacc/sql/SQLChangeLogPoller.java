@@ -0,0 +1,317 @@
+/*
+ * Copyright 2009-2016, Acciente LLC
+ *
+ * Acciente LLC licenses this file to you under the
+ * Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in
+ * writing, software distributed under the License is
+ * distributed on an "AS IS" BASIS, WITHOUT WARRANTIES
+ * OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.acciente.oacc.sql;
+
+import com.acciente.oacc.sql.internal.SchemaNameValidator;
+import com.acciente.oacc.sql.internal.persister.ChangeLogPersister;
+import com.acciente.oacc.sql.internal.persister.SQLConnection;
+import com.acciente.oacc.sql.internal.persister.SQLStrings;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.TreeSet;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Reads new entries from the OACC change log and dispatches them to registered {@link ChangeLogListener}s,
+ * so that nodes sharing one OACC database can precisely invalidate their locally cached access control data.
+ * <p/>
+ * The change log is only written to by access control contexts on which it was enabled with
+ * {@link SQLAccessControlContextFactory#setChangeLogEnabled}, and requires an {@code OAC_ChangeLog} table
+ * in the OACC schema, with the columns
+ * {@code ChangeVersion} (a BIGINT primary key, assigned from the {@code OAC_ChangeVersion} sequence or,
+ * for databases without sequences, an identity column), {@code ChangeType} (SMALLINT, not null),
+ * {@code AccessorResourceId} (BIGINT, nullable), {@code AccessedResourceId} (BIGINT, nullable),
+ * {@code DomainName} (VARCHAR, nullable) and {@code ResourceClassName} (VARCHAR, nullable).
+ * <p/>
+ * The poller does not start any threads itself: call {@link #poll()} directly, or schedule the poller, which
+ * is a {@link Runnable}, with a {@link java.util.concurrent.ScheduledExecutorService} at the desired interval.
+ * <p/>
+ * Change versions are assigned when a change is written, but a change only becomes visible to the poller
+ * when its transaction commits, so concurrent writers may leave temporary gaps in the sequence of visible
+ * versions. The poller therefore keeps re-reading from the lowest version it has not seen yet, and only gives
+ * up on a gap - assuming the version was rolled back or skipped by the sequence - after the gap timeout.
+ * <p/>
+ * The change log is not pruned automatically. Entries are only needed until every node has polled them, so
+ * operators should periodically call {@link #pruneUpTo(long)} with the lowest {@link #getLastChangeVersion()}
+ * across all nodes that poll the change log.
+ */
+public class SQLChangeLogPoller implements Runnable {
+   /**
+    * The default time, in milliseconds, to wait for a missing change version to become visible.
+    */
+   public static final long DEFAULT_GAP_TIMEOUT_MILLIS = 60000;
+
+   // the number of versions below the end of the change log that the first poll treats as possibly uncommitted
+   private static final long INITIAL_LOOKBACK_VERSIONS = 10000;
+
+   // services
+   private final DataSource dataSource;
+   private final Connection connection;
+
+   // persisters
+   private final ChangeLogPersister changeLogPersister;
+
+   private final List<ChangeLogListener> changeLogListeners = new CopyOnWriteArrayList<>();
+   private volatile long gapTimeoutMillis = DEFAULT_GAP_TIMEOUT_MILLIS;
+   private volatile RuntimeException lastPollFailure;
+
+   // state, guarded by this
+   private final TreeSet<Long> deliveredChangeVersions = new TreeSet<>();
+   private boolean             initialized;
+   private long                lastContiguousChangeVersion;
+   private long                gapFirstSeenMillis;
+   private long                initialChangeVersion;
+   private long                initializedMillis;
+
+   public SQLChangeLogPoller(Connection connection,
+                             String schemaName,
+                             SQLProfile sqlProfile) {
+      this(null, connection, schemaName, sqlProfile);
+      if (connection == null) {
+         throw new IllegalArgumentException("Connection required, none specified");
+      }
+   }
+
+   public SQLChangeLogPoller(DataSource dataSource,
+                             String schemaName,
+                             SQLProfile sqlProfile) {
+      this(dataSource, null, schemaName, sqlProfile);
+      if (dataSource == null) {
+         throw new IllegalArgumentException("DataSource required, none specified");
+      }
+   }
+
+   private SQLChangeLogPoller(DataSource dataSource,
+                              Connection connection,
+                              String schemaName,
+                              SQLProfile sqlProfile) {
+      SchemaNameValidator.assertValid(schemaName);
+      if (sqlProfile == null) {
+         throw new IllegalArgumentException("SQL profile required, none specified");
+      }
+
+      this.dataSource = dataSource;
+      this.connection = connection;
+      this.changeLogPersister = new ChangeLogPersister(sqlProfile, SQLStrings.getSQLStrings(schemaName, sqlProfile));
+   }
+
+   public void addChangeLogListener(ChangeLogListener changeLogListener) {
+      if (changeLogListener == null) {
+         throw new NullPointerException("Change log listener required, none specified");
+      }
+      changeLogListeners.add(changeLogListener);
+   }
+
+   public void removeChangeLogListener(ChangeLogListener changeLogListener) {
+      changeLogListeners.remove(changeLogListener);
+   }
+
+   /**
+    * Sets how long, in milliseconds, the poller waits for a missing change version to become visible before
+    * assuming the version will never be committed.
+    *
+    * @param gapTimeoutMillis the gap timeout in milliseconds
+    * @throws IllegalArgumentException if the gap timeout is negative
+    */
+   public void setGapTimeoutMillis(long gapTimeoutMillis) {
+      if (gapTimeoutMillis < 0) {
+         throw new IllegalArgumentException("Gap timeout cannot be negative: " + gapTimeoutMillis);
+      }
+      this.gapTimeoutMillis = gapTimeoutMillis;
+   }
+
+   /**
+    * Returns the highest change version up to which all changes have been delivered (or given up on).
+    *
+    * @return the last contiguous change version, or zero if the poller has not polled yet
+    */
+   public synchronized long getLastChangeVersion() {
+      return lastContiguousChangeVersion;
+   }
+
+   /**
+    * Returns the failure of the most recent call to {@link #run()}, if it failed.
+    *
+    * @return the runtime exception thrown by the most recent poll from {@link #run()}, or null if it succeeded
+    */
+   public RuntimeException getLastPollFailure() {
+      return lastPollFailure;
+   }
+
+   /**
+    * Reads the change log entries that were committed since the last poll and dispatches each of them to
+    * all registered listeners.
+    * <p/>
+    * The first poll only establishes the current position at the end of the change log and does not
+    * dispatch any entries, because changes made before the poller started are already reflected in
+    * any data the caller has yet to cache. Versions below the end of the change log that are not visible yet,
+    * because their transactions had not committed when the first poll ran, are treated like any other gap: they
+    * are dispatched once they become visible within the gap timeout.
+    *
+    * @return the number of change log entries that were dispatched
+    */
+   public synchronized int poll() {
+      SQLConnection sqlConnection = null;
+
+      try {
+         sqlConnection = __getConnection();
+
+         if (!initialized) {
+            initialChangeVersion = changeLogPersister.getLatestChangeVersion(sqlConnection);
+            initializedMillis = System.currentTimeMillis();
+            // the visible entries near the end are only marked as delivered, so that the versions missing between
+            // them, which may still be in flight, are waited for as gaps
+            lastContiguousChangeVersion = Math.max(0, initialChangeVersion - INITIAL_LOOKBACK_VERSIONS);
+            for (ChangeLogEntry changeLogEntry : changeLogPersister.getChangeLogEntriesAfterVersion(sqlConnection,
+                                                                                                   lastContiguousChangeVersion)) {
+               deliveredChangeVersions.add(changeLogEntry.getChangeVersion());
+            }
+            initialized = true;
+            __advanceLastContiguousChangeVersion();
+            return 0;
+         }
+
+         int dispatchedCount = 0;
+         for (ChangeLogEntry changeLogEntry : changeLogPersister.getChangeLogEntriesAfterVersion(sqlConnection,
+                                                                                                lastContiguousChangeVersion)) {
+            if (!deliveredChangeVersions.contains(changeLogEntry.getChangeVersion())) {
+               for (ChangeLogListener changeLogListener : changeLogListeners) {
+                  changeLogListener.onChange(changeLogEntry);
+               }
+               deliveredChangeVersions.add(changeLogEntry.getChangeVersion());
+               dispatchedCount++;
+            }
+         }
+
+         __advanceLastContiguousChangeVersion();
+
+         return dispatchedCount;
+      }
+      finally {
+         __closeConnection(sqlConnection);
+      }
+   }
+
+   /**
+    * Deletes the change log entries up to and including the specified change version, except for the entry with the
+    * highest change version, which is kept so that pollers started later still find the end of the change log.
+    * <p/>
+    * An entry may only be deleted once every node has polled it, so the specified version should be the lowest
+    * {@link #getLastChangeVersion()} across all nodes that poll the change log; a node that has not polled an entry
+    * before it is deleted never receives it.
+    *
+    * @param changeVersion the highest change version to delete
+    * @return the number of change log entries that were deleted
+    * @throws IllegalArgumentException if the change version is negative
+    */
+   public synchronized int pruneUpTo(long changeVersion) {
+      if (changeVersion < 0) {
+         throw new IllegalArgumentException("Change version cannot be negative: " + changeVersion);
+      }
+
+      SQLConnection sqlConnection = null;
+
+      try {
+         sqlConnection = __getConnection();
+
+         final long prunedChangeVersion
+               = Math.min(changeVersion, changeLogPersister.getLatestChangeVersion(sqlConnection) - 1);
+         if (prunedChangeVersion <= 0) {
+            return 0;
+         }
+         return changeLogPersister.deleteChangeLogEntriesUpToVersion(sqlConnection, prunedChangeVersion);
+      }
+      finally {
+         __closeConnection(sqlConnection);
+      }
+   }
+
+   /**
+    * Polls the change log once, see {@link #poll()}.
+    * <p/>
+    * Unlike {@link #poll()}, this method does not throw runtime exceptions, so that a failed poll does not
+    * cancel subsequent executions by a scheduled executor; the failure is instead available from
+    * {@link #getLastPollFailure()}.
+    */
+   @Override
+   public void run() {
+      try {
+         poll();
+         lastPollFailure = null;
+      }
+      catch (RuntimeException e) {
+         lastPollFailure = e;
+      }
+   }
+
+   private void __advanceLastContiguousChangeVersion() {
+      while (!deliveredChangeVersions.isEmpty()) {
+         final long lowestDeliveredChangeVersion = deliveredChangeVersions.first();
+
+         if (lowestDeliveredChangeVersion <= lastContiguousChangeVersion + 1) {
+            // the next version was delivered, so the watermark can move past it
+            deliveredChangeVersions.remove(lowestDeliveredChangeVersion);
+            lastContiguousChangeVersion = Math.max(lastContiguousChangeVersion, lowestDeliveredChangeVersion);
+            gapFirstSeenMillis = 0;
+         }
+         else {
+            // there is a gap below the lowest delivered version, wait for it to fill in until the timeout expires;
+            // a gap below the end of the change log at the first poll has been there since the first poll
+            final long currentMillis = System.currentTimeMillis();
+            if (gapFirstSeenMillis == 0) {
+               gapFirstSeenMillis = currentMillis;
+            }
+            final long waitedSinceMillis = lowestDeliveredChangeVersion <= initialChangeVersion
+                                           ? initializedMillis
+                                           : gapFirstSeenMillis;
+            if (currentMillis - waitedSinceMillis < gapTimeoutMillis) {
+               return;
+            }
+            lastContiguousChangeVersion = lowestDeliveredChangeVersion - 1;
+            gapFirstSeenMillis = 0;
+         }
+      }
+   }
+
+   private SQLConnection __getConnection() {
+      if (dataSource != null) {
+         try {
+            return SQLConnection.getConnection(dataSource);
+         }
+         catch (SQLException e) {
+            throw new RuntimeException(e);
+         }
+      }
+      return new SQLConnection(connection);
+   }
+
+   private void __closeConnection(SQLConnection sqlConnection) {
+      // only close the connection if we got it from a pool, otherwise just leave the connection open
+      if (dataSource != null && sqlConnection != null) {
+         try {
+            sqlConnection.close();
+         }
+         catch (SQLException e) {
+            throw new RuntimeException(e);
+         }
+      }
+   }
+}
@@ -0,0 +1,78 @@
+/*
+ * Copyright 2009-2016, Acciente LLC
+ *
+ * Acciente LLC licenses this file to you under the
+ * Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in
+ * writing, software distributed under the License is
+ * distributed on an "AS IS" BASIS, WITHOUT WARRANTIES
+ * OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.acciente.oacc.sql;
+
+import com.acciente.oacc.Resource;
+
+/**
+ * A callback that is notified of the operations, SQL statements and connection checkouts of the access control
+ * contexts obtained from {@link SQLAccessControlContextFactory}, e.g. to emit profiling events or metrics.
+ * <p/>
+ * A listener is registered globally with {@link SQLAccessControlContextFactory#setEventListener(SQLEventListener)}.
+ * While none is registered, no timing or bookkeeping of any kind is done. The callbacks are invoked synchronously
+ * on the thread that performed the work, so implementations should be fast and thread-safe; any runtime exception
+ * they throw is ignored.
+ * <p/>
+ * On JVMs with JDK Flight Recorder, a listener can commit a custom {@code jdk.jfr.Event} from each callback, e.g.
+ * <pre>
+ * public void onStatement(String statementId, int rowCount, long durationNanos) {
+ *    final StatementEvent statementEvent = new StatementEvent();   // extends jdk.jfr.Event
+ *    if (statementEvent.isEnabled()) {
+ *       statementEvent.statementId = statementId;
+ *       statementEvent.rowCount = rowCount;
+ *       statementEvent.durationNanos = durationNanos;
+ *       statementEvent.commit();
+ *    }
+ * }
+ * </pre>
+ * so that the events are enabled and disabled through the recording settings like any other JFR event.
+ */
+public interface SQLEventListener {
+   /**
+    * Called after each invocation of an {@link com.acciente.oacc.AccessControlContext} method on an access control
+    * context that was wrapped with
+    * {@link SQLAccessControlContextFactory#getObservedAccessControlContext(com.acciente.oacc.AccessControlContext)}.
+    *
+    * @param operationName   the name of the invoked method, e.g. {@code hasResourcePermissions}
+    * @param sessionResource the session resource on whose behalf the method was invoked, or null if the
+    *                        access control context was not authenticated
+    * @param failure         the exception the method threw, or null if it completed normally
+    * @param durationNanos   the elapsed time of the invocation, in nanoseconds
+    */
+   void onOperation(String operationName, Resource sessionResource, Throwable failure, long durationNanos);
+
+   /**
+    * Called after each SQL statement execution.
+    * <p/>
+    * For queries, the duration spans from the execution of the statement until its result set is closed, and thus
+    * includes fetching the rows.
+    *
+    * @param statementId   the name of the {@code SQL_*} constant that holds the statement, or {@code "unnamed"}
+    *                      for a statement that is assembled at runtime
+    * @param rowCount      the number of rows read by a query, or the number of rows affected by an update
+    * @param durationNanos the elapsed time of the execution, in nanoseconds
+    */
+   void onStatement(String statementId, int rowCount, long durationNanos);
+
+   /**
+    * Called after each connection is checked out from a data source.
+    *
+    * @param durationNanos the time spent waiting for the connection, in nanoseconds
+    */
+   void onConnectionCheckout(long durationNanos);
+}
@@ -0,0 +1,289 @@
+/*
+ * Copyright 2009-2016, Acciente LLC
+ *
+ * Acciente LLC licenses this file to you under the
+ * Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in
+ * writing, software distributed under the License is
+ * distributed on an "AS IS" BASIS, WITHOUT WARRANTIES
+ * OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.acciente.oacc.sql;
+
+import com.acciente.oacc.sql.internal.GrantFilterIndex;
+import com.acciente.oacc.sql.internal.SchemaNameValidator;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A probabilistic filter of the grants in an OACC database, which lets access control contexts answer most
+ * resource permission checks of accessors without any grant on the accessed resource without querying the
+ * grant tables.
+ * <p/>
+ * The filter is built from the database by {@link #rebuild()}, and until then rules nothing out. Access control
+ * contexts on which it was set with {@link SQLAccessControlContextFactory#setGrantFilter} consult it before
+ * querying the grants for {@code hasResourcePermissions()} and {@code getEffectiveResourcePermissions()}, and add
+ * their own changes to it incrementally. Because a filter that has missed a grant wrongly denies access until
+ * its next rebuild, changes made through any other access control context - in particular on other nodes -
+ * must reach the filter too, by registering it as a listener of a {@link SQLChangeLogPoller}, with the change log
+ * enabled on all contexts.
+ * <p/>
+ * Revoked grants are only removed by the next rebuild, so the filter should also be rebuilt periodically: it does
+ * not start any threads itself, but it is a {@link Runnable} that rebuilds it, which can be scheduled with a
+ * {@link java.util.concurrent.ScheduledExecutorService}. Changes received within the replay window before a
+ * rebuild started are added to the rebuilt filter again, in case they were not committed yet when it was read.
+ * <p/>
+ * A filter can be shared by any number of access control contexts, and is thread-safe.
+ */
+public class SQLGrantFilter implements Runnable, ChangeLogListener {
+   /**
+    * The default rate at which the filter fails to rule out an accessor without grants.
+    */
+   public static final double DEFAULT_FALSE_POSITIVE_RATE   = 0.01;
+   /**
+    * The default time, in milliseconds, for which changes are replayed into a rebuilt filter.
+    */
+   public static final long   DEFAULT_REPLAY_WINDOW_MILLIS = 60000;
+
+   // the fraction of keys the filter is sized for beyond those in the database, for changes between rebuilds
+   private static final double HEADROOM = 0.25;
+
+   // services
+   private final DataSource dataSource;
+   private final Connection connection;
+   private final String     schemaName;
+
+   private final double                      falsePositiveRate;
+   private volatile GrantFilterIndex         grantFilterIndex;
+   private volatile long                     replayWindowMillis = DEFAULT_REPLAY_WINDOW_MILLIS;
+   private volatile RuntimeException         lastRebuildFailure;
+   private final AtomicLong                  probeCount         = new AtomicLong();
+   private final AtomicLong                  ruledOutCount      = new AtomicLong();
+
+   // serializes rebuilds
+   private final Object rebuildLock = new Object();
+
+   // state, guarded by this
+   private final ArrayDeque<ReceivedChange> receivedChanges = new ArrayDeque<>();
+   private       long                       rebuildStartMillis = Long.MAX_VALUE;
+
+   public SQLGrantFilter(Connection connection, String schemaName, double falsePositiveRate) {
+      this(null, connection, schemaName, falsePositiveRate);
+      if (connection == null) {
+         throw new IllegalArgumentException("Connection required, none specified");
+      }
+   }
+
+   public SQLGrantFilter(DataSource dataSource, String schemaName, double falsePositiveRate) {
+      this(dataSource, null, schemaName, falsePositiveRate);
+      if (dataSource == null) {
+         throw new IllegalArgumentException("DataSource required, none specified");
+      }
+   }
+
+   private SQLGrantFilter(DataSource dataSource, Connection connection, String schemaName, double falsePositiveRate) {
+      SchemaNameValidator.assertValid(schemaName);
+      if (!(falsePositiveRate > 0 && falsePositiveRate < 1)) {
+         throw new IllegalArgumentException("False-positive rate must be between 0 and 1, but was: " + falsePositiveRate);
+      }
+
+      this.dataSource = dataSource;
+      this.connection = connection;
+      this.schemaName = schemaName;
+      this.falsePositiveRate = falsePositiveRate;
+   }
+
+   public double getFalsePositiveRate() {
+      return falsePositiveRate;
+   }
+
+   /**
+    * Sets how long, in milliseconds, before the start of a rebuild changes must have been received to not be
+    * added to the rebuilt filter again. It should exceed the duration of the longest transaction that changes
+    * grants.
+    *
+    * @param replayWindowMillis the replay window in milliseconds
+    * @throws IllegalArgumentException if the replay window is negative
+    */
+   public void setReplayWindowMillis(long replayWindowMillis) {
+      if (replayWindowMillis < 0) {
+         throw new IllegalArgumentException("Replay window cannot be negative: " + replayWindowMillis);
+      }
+      this.replayWindowMillis = replayWindowMillis;
+   }
+
+   /**
+    * Returns whether the filter has been built, and can thus rule out grants.
+    */
+   public boolean isBuilt() {
+      return grantFilterIndex != null;
+   }
+
+   /**
+    * Returns the number of times the filter was asked whether an accessor might have grants on a resource.
+    */
+   public long getProbeCount() {
+      return probeCount.get();
+   }
+
+   /**
+    * Returns the number of times the filter ruled out that an accessor has grants on a resource.
+    */
+   public long getRuledOutCount() {
+      return ruledOutCount.get();
+   }
+
+   /**
+    * Returns the failure of the most recent call to {@link #run()}, if it failed.
+    *
+    * @return the runtime exception thrown by the most recent rebuild from {@link #run()}, or null if it succeeded
+    */
+   public RuntimeException getLastRebuildFailure() {
+      return lastRebuildFailure;
+   }
+
+   /**
+    * Returns false if the filter rules out that the specified accessor inherits from any resource.
+    */
+   public boolean mightInherit(long accessorResourceId) {
+      final GrantFilterIndex grantFilterIndex = this.grantFilterIndex;
+      return grantFilterIndex == null || grantFilterIndex.mightInherit(accessorResourceId);
+   }
+
+   /**
+    * Returns false if the filter rules out that the specified accessor has any direct or global permission on the
+    * specified resource, or super-user permission on its domain. Permissions the accessor inherits from other
+    * resources are not considered, but those resources can be probed in turn.
+    */
+   public boolean mightHaveGrants(long accessorResourceId,
+                                  long accessedResourceId,
+                                  long accessedResourceClassId,
+                                  long accessedDomainId) {
+      final GrantFilterIndex grantFilterIndex = this.grantFilterIndex;
+      probeCount.incrementAndGet();
+      if (grantFilterIndex == null
+            || grantFilterIndex.mightHaveGrants(accessorResourceId, accessedResourceId, accessedResourceClassId, accessedDomainId)) {
+         return true;
+      }
+      ruledOutCount.incrementAndGet();
+      return false;
+   }
+
+   /**
+    * Rebuilds the filter from the grants in the database, and replaces the current filter with it.
+    */
+   public void rebuild() {
+      synchronized (rebuildLock) {
+         final long startMillis = System.currentTimeMillis();
+         synchronized (this) {
+            rebuildStartMillis = startMillis;
+         }
+
+         try {
+            final GrantFilterIndex rebuiltGrantFilterIndex = __buildGrantFilterIndex();
+
+            synchronized (this) {
+               // replay the changes that may not have been committed yet when the database was read
+               for (ReceivedChange receivedChange : receivedChanges) {
+                  if (receivedChange.receivedMillis >= startMillis - replayWindowMillis) {
+                     rebuiltGrantFilterIndex.addChange(receivedChange.changeLogEntry);
+                  }
+               }
+               grantFilterIndex = rebuiltGrantFilterIndex;
+            }
+         }
+         finally {
+            synchronized (this) {
+               rebuildStartMillis = Long.MAX_VALUE;
+               __discardExpiredChanges(System.currentTimeMillis());
+            }
+         }
+      }
+   }
+
+   /**
+    * Rebuilds the filter, and records rather than throws any failure, so that a failure does not cancel the
+    * schedule of a {@link java.util.concurrent.ScheduledExecutorService}; the current filter remains in use.
+    */
+   @Override
+   public void run() {
+      try {
+         rebuild();
+         lastRebuildFailure = null;
+      }
+      catch (RuntimeException e) {
+         lastRebuildFailure = e;
+      }
+   }
+
+   /**
+    * Adds the grants of the specified change to the filter.
+    */
+   @Override
+   public synchronized void onChange(ChangeLogEntry changeLogEntry) {
+      if (changeLogEntry == null) {
+         throw new NullPointerException("Change log entry required, none specified");
+      }
+
+      final long currentMillis = System.currentTimeMillis();
+      receivedChanges.addLast(new ReceivedChange(currentMillis, changeLogEntry));
+      __discardExpiredChanges(currentMillis);
+
+      if (grantFilterIndex != null) {
+         grantFilterIndex.addChange(changeLogEntry);
+      }
+   }
+
+   // discards the changes that no rebuild, including one in progress, would replay
+   private void __discardExpiredChanges(long currentMillis) {
+      final long expiryMillis = Math.min(currentMillis, rebuildStartMillis) - replayWindowMillis;
+      final Iterator<ReceivedChange> iterator = receivedChanges.iterator();
+      while (iterator.hasNext() && iterator.next().receivedMillis < expiryMillis) {
+         iterator.remove();
+      }
+   }
+
+   private GrantFilterIndex __buildGrantFilterIndex() {
+      try {
+         if (dataSource != null) {
+            try (Connection dataSourceConnection = dataSource.getConnection()) {
+               return GrantFilterIndex.build(dataSourceConnection, schemaName, falsePositiveRate, HEADROOM);
+            }
+         }
+         return GrantFilterIndex.build(connection, schemaName, falsePositiveRate, HEADROOM);
+      }
+      catch (SQLException e) {
+         throw new RuntimeException(e);
+      }
+   }
+
+   private static class ReceivedChange {
+      private final long           receivedMillis;
+      private final ChangeLogEntry changeLogEntry;
+
+      private ReceivedChange(long receivedMillis, ChangeLogEntry changeLogEntry) {
+         this.receivedMillis = receivedMillis;
+         this.changeLogEntry = changeLogEntry;
+      }
+   }
+
+   @Override
+   public String toString() {
+      return "SQLGrantFilter{falsePositiveRate=" + falsePositiveRate
+            + ", built=" + isBuilt()
+            + ", probeCount=" + getProbeCount()
+            + ", ruledOutCount=" + getRuledOutCount() + "}";
+   }
+}
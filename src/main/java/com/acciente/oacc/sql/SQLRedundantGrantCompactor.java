@@ -0,0 +1,147 @@
+/*
+ * Copyright 2009-2016, Acciente LLC
+ *
+ * Acciente LLC licenses this file to you under the
+ * Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in
+ * writing, software distributed under the License is
+ * distributed on an "AS IS" BASIS, WITHOUT WARRANTIES
+ * OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.acciente.oacc.sql;
+
+import com.acciente.oacc.AccessControlContext;
+import com.acciente.oacc.PasswordCredentials;
+import com.acciente.oacc.Resources;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.util.Properties;
+
+public class SQLRedundantGrantCompactor {
+   private static final String PROP_DbUrl       = "-dburl";
+   private static final String PROP_DbUser      = "-dbuser";
+   private static final String PROP_DbPwd       = "-dbpwd";
+   private static final String PROP_DbSchema    = "-dbschema";
+   private static final String PROP_SQLProfile  = "-sqlprofile";
+   private static final String PROP_OACCRootPwd = "-oaccsystempwd";
+   private static final String PROP_Apply       = "-apply";
+   private static final String PROP_BatchSize   = "-batchsize";
+
+   public static void main(String args[]) throws SQLException, IOException {
+      if (args.length == 0) {
+         System.out.println("Usage: java com.acciente.oacc.sql.SQLRedundantGrantCompactor "
+                                  + PROP_DbUrl + "=<db-url> "
+                                  + PROP_DbUser + "=<db-user> "
+                                  + PROP_DbPwd + "=<db-password> "
+                                  + PROP_SQLProfile + "=<sql-profile> "
+                                  + PROP_OACCRootPwd + "=<OACC-system-password> "
+                                  + " [ " + PROP_DbSchema + "=<db-schema>]"
+                                  + " [ " + PROP_Apply + "=true]"
+                                  + " [ " + PROP_BatchSize + "=<grants-per-transaction>]");
+         return;
+      }
+
+      // first read the command line args into a properties object
+      Properties compactArgs = new Properties();
+
+      for (int i = 0; i < args.length; i++) {
+         compactArgs.load(new StringReader(args[i]));
+      }
+
+      String dbUrl;
+      String dbUser;
+      String dbPwd;
+      String dbSchema;
+      String sqlProfileName;
+      String oaccRootPwd;
+      boolean apply;
+      int batchSize;
+
+      // get the parameters into local vars and assign defaults as needed
+      dbUrl = compactArgs.getProperty(PROP_DbUrl);
+      dbUser = compactArgs.getProperty(PROP_DbUser);
+      dbPwd = compactArgs.getProperty(PROP_DbPwd);
+      dbSchema = compactArgs.getProperty(PROP_DbSchema, "TEST_OACC");
+      sqlProfileName = compactArgs.getProperty(PROP_SQLProfile);
+      oaccRootPwd = compactArgs.getProperty(PROP_OACCRootPwd);
+      apply = Boolean.parseBoolean(compactArgs.getProperty(PROP_Apply, "false"));
+      batchSize = Integer.parseInt(compactArgs.getProperty(PROP_BatchSize, "1000"));
+
+      // check if we have all the required parameters
+      if (dbUrl == null) {
+         throw new IllegalArgumentException(PROP_DbUrl + " is required!");
+      }
+      if (dbUser == null) {
+         throw new IllegalArgumentException(PROP_DbUser + " is required!");
+      }
+      if (dbPwd == null) {
+         throw new IllegalArgumentException(PROP_DbPwd + " is required!");
+      }
+      if (sqlProfileName == null) {
+         throw new IllegalArgumentException(PROP_SQLProfile + " is required!");
+      }
+      if (oaccRootPwd == null) {
+         throw new IllegalArgumentException(PROP_OACCRootPwd + " is required!");
+      }
+
+      compactGrants(dbUrl,
+                    dbUser,
+                    dbPwd,
+                    dbSchema,
+                    SQLProfile.valueOf(sqlProfileName),
+                    oaccRootPwd.toCharArray(),
+                    apply,
+                    batchSize);
+   }
+
+   public static RedundantGrantReport compactGrants(String dbUrl,
+                                                    String dbUser,
+                                                    String dbPwd,
+                                                    String dbSchema,
+                                                    SQLProfile sqlProfile,
+                                                    char[] oaccRootPwd,
+                                                    boolean apply,
+                                                    int batchSize) throws SQLException {
+      System.out.println("Connecting to OACC database @ " + dbUrl);
+      Connection connection = DriverManager.getConnection(dbUrl, dbUser, dbPwd);
+      final RedundantGrantReport redundantGrantReport;
+
+      try {
+         final AccessControlContext accessControlContext
+               = SQLAccessControlContextFactory.getAccessControlContext(connection, dbSchema, sqlProfile);
+         accessControlContext.authenticate(Resources.getInstance(0), PasswordCredentials.newInstance(oaccRootPwd));
+
+         if (apply) {
+            redundantGrantReport = SQLAccessControlContextFactory.removeRedundantGrants(accessControlContext,
+                                                                                       batchSize);
+         }
+         else {
+            redundantGrantReport = SQLAccessControlContextFactory.findRedundantGrants(accessControlContext);
+         }
+      }
+      finally {
+         System.out.println("Disconnecting from OACC database @ " + dbUrl);
+         connection.close();
+      }
+
+      for (RedundantGrant redundantGrant : redundantGrantReport.getRedundantGrants()) {
+         System.out.println(redundantGrant);
+      }
+      System.out.println("Examined " + redundantGrantReport.getExaminedGrantCount() + " direct grant(s), "
+                               + redundantGrantReport.getRedundantGrants().size() + " redundant, "
+                               + (redundantGrantReport.isRemoved() ? "removed" : "none removed (dry run)"));
+
+      return redundantGrantReport;
+   }
+}
@@ -0,0 +1,111 @@
+/*
+ * Copyright 2009-2016, Acciente LLC
+ *
+ * Acciente LLC licenses this file to you under the
+ * Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in
+ * writing, software distributed under the License is
+ * distributed on an "AS IS" BASIS, WITHOUT WARRANTIES
+ * OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.acciente.oacc.sql;
+
+import com.acciente.oacc.Resource;
+
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * An access control context operation whose duration exceeded the threshold of a {@link SlowOperationRecorder},
+ * together with the SQL statements it executed.
+ */
+public class SlowOperation {
+   private final String                   operationName;
+   private final Resource                 sessionResource;
+   private final long                     startTimeMillis;
+   private final long                     durationNanos;
+   private final Throwable                failure;
+   private final List<StatementExecution> statementExecutions;
+
+   public SlowOperation(String operationName,
+                        Resource sessionResource,
+                        long startTimeMillis,
+                        long durationNanos,
+                        Throwable failure,
+                        List<StatementExecution> statementExecutions) {
+      this.operationName = operationName;
+      this.sessionResource = sessionResource;
+      this.startTimeMillis = startTimeMillis;
+      this.durationNanos = durationNanos;
+      this.failure = failure;
+      this.statementExecutions = Collections.unmodifiableList(statementExecutions);
+   }
+
+   /**
+    * Returns the name of the invoked access control context method, e.g. {@code getResourcesByResourcePermissions}.
+    *
+    * @return the operation name
+    */
+   public String getOperationName() {
+      return operationName;
+   }
+
+   /**
+    * Returns the session resource on whose behalf the operation was invoked.
+    *
+    * @return the session resource, or null if the access control context was not authenticated
+    */
+   public Resource getSessionResource() {
+      return sessionResource;
+   }
+
+   public long getStartTimeMillis() {
+      return startTimeMillis;
+   }
+
+   public long getDurationNanos() {
+      return durationNanos;
+   }
+
+   /**
+    * Returns the exception the operation threw.
+    *
+    * @return the exception, or null if the operation completed normally
+    */
+   public Throwable getFailure() {
+      return failure;
+   }
+
+   /**
+    * Returns the SQL statements executed by the operation, in order of completion.
+    *
+    * @return the statement executions
+    */
+   public List<StatementExecution> getStatementExecutions() {
+      return statementExecutions;
+   }
+
+   @Override
+   public String toString() {
+      final StringBuilder stringBuilder = new StringBuilder();
+      stringBuilder.append(new Date(startTimeMillis))
+            .append(' ').append(operationName)
+            .append(" by ").append(sessionResource)
+            .append(" took ").append(durationNanos / 1000000).append("ms");
+      if (failure != null) {
+         stringBuilder.append(" and failed with ").append(failure);
+      }
+      for (StatementExecution statementExecution : statementExecutions) {
+         stringBuilder.append(System.lineSeparator()).append("   ").append(statementExecution);
+      }
+      return stringBuilder.toString();
+   }
+}
@@ -0,0 +1,156 @@
+/*
+ * Copyright 2009-2016, Acciente LLC
+ *
+ * Acciente LLC licenses this file to you under the
+ * Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in
+ * writing, software distributed under the License is
+ * distributed on an "AS IS" BASIS, WITHOUT WARRANTIES
+ * OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.acciente.oacc.sql;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Keeps the most recent access control context operations that took longer than a threshold, together with the SQL
+ * statements they executed, their bound values, row counts and timings, to help diagnose slow operations that are
+ * hard to reproduce, e.g. caused by pathological domain or inheritance trees or missing indexes.
+ * <p/>
+ * A recorder is registered globally with
+ * {@link SQLAccessControlContextFactory#setSlowOperationRecorder(SlowOperationRecorder)}, and records the operations
+ * of access control contexts wrapped with
+ * {@link SQLAccessControlContextFactory#getObservedAccessControlContext(com.acciente.oacc.AccessControlContext)}.
+ * While a recorder is registered, the statements of every observed operation are captured, and discarded unless the
+ * operation turns out to be slow.
+ * <p/>
+ * The slow operations are kept in a fixed size ring buffer, which overwrites the oldest operation when it is full.
+ * Recording never blocks, so a recorder can safely be shared by any number of threads.
+ */
+public class SlowOperationRecorder {
+   private final long                                thresholdNanos;
+   private final AtomicReferenceArray<SlowOperation> slowOperations;
+   private final AtomicLong                          recordedCount;
+
+   private SlowOperationRecorder(long thresholdNanos, int capacity) {
+      this.thresholdNanos = thresholdNanos;
+      this.slowOperations = new AtomicReferenceArray<>(capacity);
+      this.recordedCount = new AtomicLong();
+   }
+
+   /**
+    * Returns a recorder of the operations that take at least the specified threshold.
+    *
+    * @param thresholdMillis the minimum duration of a recorded operation, in milliseconds
+    * @param capacity        the number of most recent slow operations to keep
+    * @return the slow operation recorder
+    * @throws IllegalArgumentException if the threshold is negative, or the capacity is not positive
+    */
+   public static SlowOperationRecorder getInstance(long thresholdMillis, int capacity) {
+      if (thresholdMillis < 0) {
+         throw new IllegalArgumentException("Slow operation threshold cannot be negative: " + thresholdMillis);
+      }
+      if (capacity < 1) {
+         throw new IllegalArgumentException("Slow operation recorder capacity must be positive: " + capacity);
+      }
+      return new SlowOperationRecorder(TimeUnit.MILLISECONDS.toNanos(thresholdMillis), capacity);
+   }
+
+   public long getThresholdMillis() {
+      return TimeUnit.NANOSECONDS.toMillis(thresholdNanos);
+   }
+
+   public int getCapacity() {
+      return slowOperations.length();
+   }
+
+   /**
+    * Returns the number of slow operations recorded so far, including those that have since been overwritten
+    * or cleared.
+    *
+    * @return the total number of recorded slow operations
+    */
+   public long getRecordedCount() {
+      return recordedCount.get();
+   }
+
+   /**
+    * Records the specified operation, if it took at least the threshold of this recorder.
+    *
+    * @param slowOperation the operation to record
+    * @return true if the operation was recorded, false otherwise
+    */
+   public boolean record(SlowOperation slowOperation) {
+      if (!isSlow(slowOperation.getDurationNanos())) {
+         return false;
+      }
+      final long sequence = recordedCount.getAndIncrement();
+      slowOperations.set((int) (sequence % slowOperations.length()), slowOperation);
+      return true;
+   }
+
+   /**
+    * Returns if an operation of the specified duration would be recorded.
+    *
+    * @param durationNanos the duration of an operation, in nanoseconds
+    * @return true if the duration is at least the threshold of this recorder, false otherwise
+    */
+   public boolean isSlow(long durationNanos) {
+      return durationNanos >= thresholdNanos;
+   }
+
+   /**
+    * Returns the slow operations currently held by this recorder, from the oldest to the most recent.
+    * <p/>
+    * The list is a snapshot; operations recorded while it is being taken may or may not be included.
+    *
+    * @return a list of slow operations, which is empty if none were recorded
+    */
+   public List<SlowOperation> getSlowOperations() {
+      final int capacity = slowOperations.length();
+      final long count = recordedCount.get();
+      final List<SlowOperation> snapshot = new ArrayList<>((int) Math.min(count, capacity));
+
+      for (long sequence = Math.max(0, count - capacity); sequence < count; sequence++) {
+         final SlowOperation slowOperation = slowOperations.get((int) (sequence % capacity));
+         if (slowOperation != null) {
+            snapshot.add(slowOperation);
+         }
+      }
+      return snapshot;
+   }
+
+   /**
+    * Discards all slow operations currently held by this recorder.
+    */
+   public void clear() {
+      for (int i = 0; i < slowOperations.length(); i++) {
+         slowOperations.set(i, null);
+      }
+   }
+
+   /**
+    * Writes a human readable description of the slow operations currently held by this recorder, from the oldest to
+    * the most recent, to the specified destination.
+    *
+    * @param appendable the destination, e.g. a {@link java.io.Writer} or a {@link StringBuilder}
+    * @throws IOException if writing to the destination fails
+    */
+   public void dump(Appendable appendable) throws IOException {
+      for (SlowOperation slowOperation : getSlowOperations()) {
+         appendable.append(slowOperation.toString()).append(System.lineSeparator());
+      }
+   }
+}
@@ -0,0 +1,117 @@
+/*
+ * Copyright 2009-2016, Acciente LLC
+ *
+ * Acciente LLC licenses this file to you under the
+ * Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in
+ * writing, software distributed under the License is
+ * distributed on an "AS IS" BASIS, WITHOUT WARRANTIES
+ * OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.acciente.oacc.sql;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A SQL statement executed within a {@link SlowOperation}, with the values that were bound to it.
+ */
+public class StatementExecution {
+   /**
+    * The value recorded in place of a bound value that must not be disclosed, such as a password.
+    */
+   public static final String REDACTED_VALUE = "<redacted>";
+
+   private final String             statementId;
+   private final List<Object>       parameters;
+   private final List<List<Object>> batchParameters;
+   private final int                rowCount;
+   private final long               durationNanos;
+
+   public StatementExecution(String statementId, List<Object> parameters, int rowCount, long durationNanos) {
+      this(statementId, parameters, Collections.<List<Object>>emptyList(), rowCount, durationNanos);
+   }
+
+   public StatementExecution(String statementId,
+                             List<Object> parameters,
+                             List<List<Object>> batchParameters,
+                             int rowCount,
+                             long durationNanos) {
+      this.statementId = statementId;
+      this.parameters = Collections.unmodifiableList(parameters);
+      final List<List<Object>> unmodifiableBatchParameters = new ArrayList<>(batchParameters.size());
+      for (List<Object> entryParameters : batchParameters) {
+         unmodifiableBatchParameters.add(Collections.unmodifiableList(entryParameters));
+      }
+      this.batchParameters = Collections.unmodifiableList(unmodifiableBatchParameters);
+      this.rowCount = rowCount;
+      this.durationNanos = durationNanos;
+   }
+
+   /**
+    * Returns the name of the {@code SQL_*} constant that holds the statement.
+    *
+    * @return the statement id, or {@code "unnamed"} for a statement that is assembled at runtime
+    */
+   public String getStatementId() {
+      return statementId;
+   }
+
+   /**
+    * Returns the values bound to the statement's parameters, in parameter order; for a batch, these are the values
+    * of its last entry, see {@link #getBatchParameters()} for those of each entry.
+    *
+    * @return the bound values, with null for parameters that were not bound or were bound to SQL NULL
+    */
+   public List<Object> getParameters() {
+      return parameters;
+   }
+
+   /**
+    * Returns the values bound to the statement's parameters for each entry of a batch, in the order the entries were
+    * added to the batch.
+    *
+    * @return a list of the bound values of each batch entry, or an empty list if the statement was not batched
+    */
+   public List<List<Object>> getBatchParameters() {
+      return batchParameters;
+   }
+
+   /**
+    * Returns the number of entries in the batch, if the statement was batched.
+    *
+    * @return the batch size, or zero if the statement was not batched
+    */
+   public int getBatchSize() {
+      return batchParameters.size();
+   }
+
+   /**
+    * Returns the number of rows read by a query, or the number of rows affected by an update.
+    *
+    * @return the row count
+    */
+   public int getRowCount() {
+      return rowCount;
+   }
+
+   public long getDurationNanos() {
+      return durationNanos;
+   }
+
+   @Override
+   public String toString() {
+      return statementId
+            + " " + (batchParameters.isEmpty() ? parameters : batchParameters)
+            + (batchParameters.isEmpty() ? "" : " batch=" + batchParameters.size())
+            + " rows=" + rowCount + " " + (durationNanos / 1000) + "us";
+   }
+}
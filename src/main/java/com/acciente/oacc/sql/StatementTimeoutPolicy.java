@@ -0,0 +1,93 @@
+/*
+ * Copyright 2009-2016, Acciente LLC
+ *
+ * Acciente LLC licenses this file to you under the
+ * Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in
+ * writing, software distributed under the License is
+ * distributed on an "AS IS" BASIS, WITHOUT WARRANTIES
+ * OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.acciente.oacc.sql;
+
+import java.io.Serializable;
+
+/**
+ * Determines the timeouts of the SQL statements an access control context executes, separately for each kind of
+ * operation, so that a pathologically slow query fails after a bounded time instead of blocking its caller
+ * indefinitely.
+ * <p/>
+ * The timeouts apply to each statement an operation executes, through {@link java.sql.Statement#setQueryTimeout(int)},
+ * and are grouped as follows:
+ * <ul>
+ * <li>checks: the {@code has*} and {@code assert*} methods, authentication, impersonation and compiled permission
+ * checks</li>
+ * <li>listings: the {@code get*} and {@code count*} methods, and issuing capability tokens</li>
+ * <li>mutations: all methods that modify access control data</li>
+ * </ul>
+ * When a statement times out, the operation fails with the JDBC driver's {@link java.sql.SQLException}, wrapped in a
+ * runtime exception.
+ */
+public class StatementTimeoutPolicy implements Serializable {
+   private static final long serialVersionUID = 1L;
+
+   private final int checkTimeoutSeconds;
+   private final int listingTimeoutSeconds;
+   private final int mutationTimeoutSeconds;
+
+   private StatementTimeoutPolicy(int checkTimeoutSeconds, int listingTimeoutSeconds, int mutationTimeoutSeconds) {
+      this.checkTimeoutSeconds = checkTimeoutSeconds;
+      this.listingTimeoutSeconds = listingTimeoutSeconds;
+      this.mutationTimeoutSeconds = mutationTimeoutSeconds;
+   }
+
+   /**
+    * Returns a policy with the specified statement timeouts, each of which may be zero for no timeout.
+    *
+    * @param checkTimeoutSeconds    the timeout of the statements of checks, in seconds
+    * @param listingTimeoutSeconds  the timeout of the statements of listings, in seconds
+    * @param mutationTimeoutSeconds the timeout of the statements of mutations, in seconds
+    * @return the statement timeout policy
+    * @throws IllegalArgumentException if any timeout is negative
+    */
+   public static StatementTimeoutPolicy getInstance(int checkTimeoutSeconds,
+                                                    int listingTimeoutSeconds,
+                                                    int mutationTimeoutSeconds) {
+      __assertTimeoutValid("Check", checkTimeoutSeconds);
+      __assertTimeoutValid("Listing", listingTimeoutSeconds);
+      __assertTimeoutValid("Mutation", mutationTimeoutSeconds);
+      return new StatementTimeoutPolicy(checkTimeoutSeconds, listingTimeoutSeconds, mutationTimeoutSeconds);
+   }
+
+   public int getCheckTimeoutSeconds() {
+      return checkTimeoutSeconds;
+   }
+
+   public int getListingTimeoutSeconds() {
+      return listingTimeoutSeconds;
+   }
+
+   public int getMutationTimeoutSeconds() {
+      return mutationTimeoutSeconds;
+   }
+
+   @Override
+   public String toString() {
+      return "StatementTimeoutPolicy{checkTimeoutSeconds=" + checkTimeoutSeconds
+            + ", listingTimeoutSeconds=" + listingTimeoutSeconds
+            + ", mutationTimeoutSeconds=" + mutationTimeoutSeconds + '}';
+   }
+
+   private static void __assertTimeoutValid(String operationKind, int timeoutSeconds) {
+      if (timeoutSeconds < 0) {
+         throw new IllegalArgumentException(operationKind + " statement timeout cannot be negative: " + timeoutSeconds);
+      }
+   }
+}
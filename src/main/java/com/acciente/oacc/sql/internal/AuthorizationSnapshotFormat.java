@@ -0,0 +1,95 @@
+/*
+ * Copyright 2009-2016, Acciente LLC
+ *
+ * Acciente LLC licenses this file to you under the
+ * Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in
+ * writing, software distributed under the License is
+ * distributed on an "AS IS" BASIS, WITHOUT WARRANTIES
+ * OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.acciente.oacc.sql.internal;
+
+import com.acciente.oacc.ResourcePermissions;
+
+/**
+ * Constants of the binary format of an authorization snapshot.
+ * <p/>
+ * A snapshot starts with a header of the {@link #MAGIC} number, the {@link #VERSION} of the format, the time the
+ * snapshot was taken, the number of resources and domains, and the file offset and byte length of each of the
+ * {@link #SECTION_COUNT} sections, in the order of the section constants below. All values are big-endian.
+ * <p/>
+ * Resources, domains and resource classes are referred to by their index in the snapshot, which is their position
+ * in the ascending order of their ids, so that every section except the dictionary is a plain array of ints (or of
+ * longs, for the resource ids) that can be read directly from a mapped buffer:
+ * <ul>
+ * <li>the dictionary holds the names of the resource classes, whether they are authenticatable, and the names of
+ * their permissions; the first indices of every class are the {@link #SYS_PERMISSION_NAMES system permissions}</li>
+ * <li>the resource ids, sorted, with the class index and domain index of each resource at the same position</li>
+ * <li>the parent index of each domain, or -1 for a root domain</li>
+ * <li>the inheritance graph, the super-user domains, the direct resource grants and the global resource grants,
+ * each in compressed sparse row form: an offsets array of length resources + 1, indexed by accessor resource,
+ * into an entries array sorted by the accessed key</li>
+ * </ul>
+ * Permissions are encoded as their index within their resource class, shifted left by one, with the low bit set
+ * if the permission is granted with the grant option.
+ */
+final class AuthorizationSnapshotFormat {
+   static final int MAGIC   = 0x4F414353;   // "OACS"
+   static final int VERSION = 1;
+
+   static final int SECTION_DICTIONARY         = 0;
+   static final int SECTION_RESOURCE_IDS       = 1;
+   static final int SECTION_RESOURCE_CLASSES   = 2;
+   static final int SECTION_RESOURCE_DOMAINS   = 3;
+   static final int SECTION_DOMAIN_PARENTS     = 4;
+   // int[] of inherited resource indices
+   static final int SECTION_INHERIT_OFFSETS    = 5;
+   static final int SECTION_INHERIT_ENTRIES    = 6;
+   // int[] of domain indices, on which the accessor has the *SUPER-USER permission
+   static final int SECTION_SUPER_USER_OFFSETS = 7;
+   static final int SECTION_SUPER_USER_ENTRIES = 8;
+   // int pairs of (accessed resource index, permission)
+   static final int SECTION_GRANT_OFFSETS      = 9;
+   static final int SECTION_GRANT_ENTRIES      = 10;
+   // int triples of (accessed domain index, resource class index, permission)
+   static final int SECTION_GLOBAL_OFFSETS     = 11;
+   static final int SECTION_GLOBAL_ENTRIES     = 12;
+   static final int SECTION_COUNT              = 13;
+
+   static final int HEADER_SIZE = 4 + 4 + 8 + 4 + 4 + 16 * SECTION_COUNT;
+
+   static final int GRANT_ENTRY_INTS  = 2;
+   static final int GLOBAL_ENTRY_INTS = 3;
+
+   // the system permissions of every resource class, by their permission index
+   static final String[] SYS_PERMISSION_NAMES = {ResourcePermissions.INHERIT,
+                                                 ResourcePermissions.DELETE,
+                                                 ResourcePermissions.QUERY,
+                                                 ResourcePermissions.IMPERSONATE,
+                                                 ResourcePermissions.RESET_CREDENTIALS};
+   // the system permissions above that only apply to authenticatable resource classes
+   static final int FIRST_AUTHENTICATABLE_SYS_PERMISSION_INDEX = 3;
+
+   private AuthorizationSnapshotFormat() {
+   }
+
+   static int encodePermission(int permissionIndex, boolean withGrant) {
+      return permissionIndex << 1 | (withGrant ? 1 : 0);
+   }
+
+   static int getPermissionIndex(int encodedPermission) {
+      return encodedPermission >>> 1;
+   }
+
+   static boolean isWithGrant(int encodedPermission) {
+      return (encodedPermission & 1) != 0;
+   }
+}
@@ -0,0 +1,107 @@
+/*
+ * Copyright 2009-2016, Acciente LLC
+ *
+ * Acciente LLC licenses this file to you under the
+ * Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in
+ * writing, software distributed under the License is
+ * distributed on an "AS IS" BASIS, WITHOUT WARRANTIES
+ * OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.acciente.oacc.sql.internal;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A Bloom filter of 64-bit key hashes, sized for an expected number of keys and a false-positive rate.
+ * <p/>
+ * Keys can be added concurrently with lookups; a key that was added is always reported as possibly contained,
+ * while a key that was not added is reported as possibly contained with about the configured probability.
+ */
+public class BloomFilter {
+   private final AtomicLongArray words;
+   private final long            bitCount;
+   private final int             hashCount;
+
+   public BloomFilter(long expectedKeyCount, double falsePositiveRate) {
+      if (expectedKeyCount < 1) {
+         throw new IllegalArgumentException("Expected key count must be positive, but was: " + expectedKeyCount);
+      }
+      if (!(falsePositiveRate > 0 && falsePositiveRate < 1)) {
+         throw new IllegalArgumentException("False-positive rate must be between 0 and 1, but was: " + falsePositiveRate);
+      }
+
+      // the optimal size and number of hash functions for the expected keys and false-positive rate
+      final double optimalBitCount = -expectedKeyCount * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2));
+      final long wordCount = Math.min(Integer.MAX_VALUE, Math.max(1, (long) Math.ceil(optimalBitCount / 64)));
+      this.words = new AtomicLongArray((int) wordCount);
+      this.bitCount = wordCount * 64;
+      this.hashCount = (int) Math.max(1, Math.min(16, Math.round((double) bitCount / expectedKeyCount * Math.log(2))));
+   }
+
+   public void add(long keyHash) {
+      final long hash1 = keyHash;
+      final long hash2 = (keyHash >>> 32 | keyHash << 32) | 1;
+      for (int i = 0; i < hashCount; i++) {
+         final long bitIndex = __floorMod(hash1 + i * hash2, bitCount);
+         final int wordIndex = (int) (bitIndex >>> 6);
+         final long mask = 1L << bitIndex;
+         long word = words.get(wordIndex);
+         while ((word & mask) == 0 && !words.compareAndSet(wordIndex, word, word | mask)) {
+            word = words.get(wordIndex);
+         }
+      }
+   }
+
+   public boolean mightContain(long keyHash) {
+      final long hash1 = keyHash;
+      final long hash2 = (keyHash >>> 32 | keyHash << 32) | 1;
+      for (int i = 0; i < hashCount; i++) {
+         final long bitIndex = __floorMod(hash1 + i * hash2, bitCount);
+         if ((words.get((int) (bitIndex >>> 6)) & 1L << bitIndex) == 0) {
+            return false;
+         }
+      }
+      return true;
+   }
+
+   public long getBitCount() {
+      return bitCount;
+   }
+
+   public int getHashCount() {
+      return hashCount;
+   }
+
+   /**
+    * Returns a well-distributed 64-bit hash of the specified key parts.
+    */
+   public static long hash(long part1, long part2, long part3, long part4) {
+      long hash = __mix(part1 * 0x9E3779B97F4A7C15L);
+      hash = __mix(hash ^ part2);
+      hash = __mix(hash ^ part3);
+      return __mix(hash ^ part4);
+   }
+
+   // the finalizer of MurmurHash3's 64-bit variant
+   private static long __mix(long value) {
+      value ^= value >>> 33;
+      value *= 0xFF51AFD7ED558CCDL;
+      value ^= value >>> 33;
+      value *= 0xC4CEB9FE1A85EC53L;
+      value ^= value >>> 33;
+      return value;
+   }
+
+   private static long __floorMod(long value, long modulus) {
+      final long remainder = value % modulus;
+      return remainder < 0 ? remainder + modulus : remainder;
+   }
+}
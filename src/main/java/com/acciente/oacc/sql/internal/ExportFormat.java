@@ -0,0 +1,40 @@
+/*
+ * Copyright 2009-2016, Acciente LLC
+ *
+ * Acciente LLC licenses this file to you under the
+ * Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in
+ * writing, software distributed under the License is
+ * distributed on an "AS IS" BASIS, WITHOUT WARRANTIES
+ * OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.acciente.oacc.sql.internal;
+
+/**
+ * Constants of the binary format of an exported OACC database.
+ * <p/>
+ * An export starts with a header of the {@link #MAGIC} number, the {@link #VERSION} of the format and a byte of
+ * {@link #FLAG_PASSWORDS flags}, which is followed by a section for each exported table. A section starts with the
+ * tag byte of its table, followed by its rows, each as a varint byte length and the row's fields; a row length of
+ * zero ends the section, and a tag of zero ends the export. Ids are encoded as zigzag varints, strings as the
+ * varint length of their UTF-8 bytes followed by the bytes, and nullable fields are preceded by a presence byte.
+ * <p/>
+ * Readers skip the sections of tables they do not know, and any trailing fields of a row they do not know, so
+ * that later versions of the format can add tables and columns.
+ */
+final class ExportFormat {
+   static final int  MAGIC          = 0x4F414343;   // "OACC"
+   static final int  VERSION        = 1;
+   static final byte FLAG_PASSWORDS = 0x01;
+   static final byte TAG_END        = 0;
+
+   private ExportFormat() {
+   }
+}
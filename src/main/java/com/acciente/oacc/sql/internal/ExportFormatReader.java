@@ -0,0 +1,193 @@
+/*
+ * Copyright 2009-2016, Acciente LLC
+ *
+ * Acciente LLC licenses this file to you under the
+ * Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in
+ * writing, software distributed under the License is
+ * distributed on an "AS IS" BASIS, WITHOUT WARRANTIES
+ * OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.acciente.oacc.sql.internal;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Reads the rows of an export from a channel, through a fixed size buffer, so that the memory used does not depend
+ * on the size of the export.
+ */
+class ExportFormatReader {
+   private static final int BUFFER_SIZE = 64 * 1024;
+
+   private final ReadableByteChannel channel;
+   private final ByteBuffer          buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+   private       long                rowRemaining;
+   private       boolean             passwordsIncluded;
+
+   ExportFormatReader(ReadableByteChannel channel) {
+      this.channel = channel;
+      this.buffer.limit(0);
+   }
+
+   void readHeader() throws IOException {
+      __ensureAvailable(7);
+      final int magic = buffer.getInt();
+      if (magic != ExportFormat.MAGIC) {
+         throw new IllegalArgumentException("Not an OACC export, unexpected magic number: " + Integer.toHexString(magic));
+      }
+      final int version = buffer.getShort();
+      if (version < 1 || version > ExportFormat.VERSION) {
+         throw new IllegalArgumentException("Unsupported OACC export format version: " + version
+                                                  + " (supported up to version " + ExportFormat.VERSION + ")");
+      }
+      passwordsIncluded = (buffer.get() & ExportFormat.FLAG_PASSWORDS) != 0;
+   }
+
+   boolean isPasswordsIncluded() {
+      return passwordsIncluded;
+   }
+
+   /**
+    * Returns the tag of the next section, or {@link ExportFormat#TAG_END} at the end of the export.
+    */
+   byte readSectionTag() throws IOException {
+      __ensureAvailable(1);
+      return buffer.get();
+   }
+
+   /**
+    * Advances to the next row of the current section, skipping any unread fields of the current row.
+    *
+    * @return false at the end of the section
+    */
+   boolean nextRow() throws IOException {
+      __skip(rowRemaining);
+      rowRemaining = 0;
+      final long rowLength = __getVarLong();
+      if (rowLength < 0) {
+         throw new IllegalArgumentException("Corrupt OACC export, invalid row length: " + rowLength);
+      }
+      rowRemaining = rowLength;
+      return rowLength > 0;
+   }
+
+   void skipSection() throws IOException {
+      while (nextRow()) {
+         // nextRow() skips each row
+      }
+   }
+
+   long readLong() throws IOException {
+      final long value = __getRowVarLong();
+      return (value >>> 1) ^ -(value & 1);
+   }
+
+   Long readNullableLong() throws IOException {
+      return __getPresence() ? readLong() : null;
+   }
+
+   boolean readFlag() throws IOException {
+      return __getRowByte() != 0;
+   }
+
+   String readString() throws IOException {
+      final long length = __getRowVarLong();
+      if (length < 0 || length > rowRemaining) {
+         throw new IllegalArgumentException("Corrupt OACC export, invalid string length: " + length);
+      }
+      final byte[] bytes = new byte[(int) length];
+      int offset = 0;
+      while (offset < bytes.length) {
+         if (!buffer.hasRemaining()) {
+            __fill();
+         }
+         final int chunkLength = Math.min(buffer.remaining(), bytes.length - offset);
+         buffer.get(bytes, offset, chunkLength);
+         offset += chunkLength;
+      }
+      rowRemaining -= length;
+      return new String(bytes, StandardCharsets.UTF_8);
+   }
+
+   String readNullableString() throws IOException {
+      return __getPresence() ? readString() : null;
+   }
+
+   private boolean __getPresence() throws IOException {
+      return __getRowByte() != 0;
+   }
+
+   private byte __getRowByte() throws IOException {
+      if (rowRemaining < 1) {
+         throw new IllegalArgumentException("Corrupt OACC export, row ended unexpectedly");
+      }
+      rowRemaining--;
+      __ensureAvailable(1);
+      return buffer.get();
+   }
+
+   private long __getRowVarLong() throws IOException {
+      long value = 0;
+      for (int shift = 0; shift < 64; shift += 7) {
+         final byte b = __getRowByte();
+         value |= (long) (b & 0x7F) << shift;
+         if ((b & 0x80) == 0) {
+            return value;
+         }
+      }
+      throw new IllegalArgumentException("Corrupt OACC export, varint too long");
+   }
+
+   private long __getVarLong() throws IOException {
+      long value = 0;
+      for (int shift = 0; shift < 64; shift += 7) {
+         __ensureAvailable(1);
+         final byte b = buffer.get();
+         value |= (long) (b & 0x7F) << shift;
+         if ((b & 0x80) == 0) {
+            return value;
+         }
+      }
+      throw new IllegalArgumentException("Corrupt OACC export, varint too long");
+   }
+
+   private void __skip(long length) throws IOException {
+      while (length > 0) {
+         if (!buffer.hasRemaining()) {
+            __fill();
+         }
+         final int skipLength = (int) Math.min(buffer.remaining(), length);
+         buffer.position(buffer.position() + skipLength);
+         length -= skipLength;
+      }
+   }
+
+   private void __ensureAvailable(int length) throws IOException {
+      while (buffer.remaining() < length) {
+         __fill();
+      }
+   }
+
+   private void __fill() throws IOException {
+      buffer.compact();
+      try {
+         if (channel.read(buffer) < 0) {
+            throw new EOFException("Unexpected end of OACC export");
+         }
+      }
+      finally {
+         buffer.flip();
+      }
+   }
+}
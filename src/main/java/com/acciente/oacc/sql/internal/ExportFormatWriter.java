@@ -0,0 +1,164 @@
+/*
+ * Copyright 2009-2016, Acciente LLC
+ *
+ * Acciente LLC licenses this file to you under the
+ * Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in
+ * writing, software distributed under the License is
+ * distributed on an "AS IS" BASIS, WITHOUT WARRANTIES
+ * OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.acciente.oacc.sql.internal;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Writes the rows of an export to a channel, through a fixed size buffer, so that the memory used does not depend
+ * on the size of the export.
+ */
+class ExportFormatWriter {
+   private static final int BUFFER_SIZE = 64 * 1024;
+
+   private final WritableByteChannel channel;
+   private final ByteBuffer          buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+   // the current row is assembled here, because its length has to be written ahead of it
+   private       ByteBuffer          rowBuffer = ByteBuffer.allocate(256);
+
+   ExportFormatWriter(WritableByteChannel channel) {
+      this.channel = channel;
+   }
+
+   void writeHeader(boolean passwordsIncluded) throws IOException {
+      __ensureCapacity(7);
+      buffer.putInt(ExportFormat.MAGIC);
+      buffer.putShort((short) ExportFormat.VERSION);
+      buffer.put(passwordsIncluded ? ExportFormat.FLAG_PASSWORDS : 0);
+   }
+
+   void beginSection(byte tag) throws IOException {
+      __ensureCapacity(1);
+      buffer.put(tag);
+   }
+
+   void beginRow() {
+      rowBuffer.clear();
+   }
+
+   void writeLong(long value) {
+      __putVarLong(__zigzag(value));
+   }
+
+   void writeNullableLong(Long value) {
+      __putPresence(value != null);
+      if (value != null) {
+         writeLong(value);
+      }
+   }
+
+   void writeFlag(boolean value) {
+      __ensureRowCapacity(1);
+      rowBuffer.put(value ? (byte) 1 : (byte) 0);
+   }
+
+   void writeString(String value) {
+      final byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+      __putVarLong(bytes.length);
+      __ensureRowCapacity(bytes.length);
+      rowBuffer.put(bytes);
+   }
+
+   void writeNullableString(String value) {
+      __putPresence(value != null);
+      if (value != null) {
+         writeString(value);
+      }
+   }
+
+   void endRow() throws IOException {
+      rowBuffer.flip();
+      // a row always has at least one field, so its length is never the zero that ends a section
+      __writeVarLong(rowBuffer.remaining());
+      while (rowBuffer.hasRemaining()) {
+         if (!buffer.hasRemaining()) {
+            __flushBuffer();
+         }
+         final int chunkLength = Math.min(buffer.remaining(), rowBuffer.remaining());
+         final ByteBuffer chunk = rowBuffer.duplicate();
+         chunk.limit(chunk.position() + chunkLength);
+         buffer.put(chunk);
+         rowBuffer.position(rowBuffer.position() + chunkLength);
+      }
+   }
+
+   void endSection() throws IOException {
+      __writeVarLong(0);
+   }
+
+   void finish() throws IOException {
+      __ensureCapacity(1);
+      buffer.put(ExportFormat.TAG_END);
+      __flushBuffer();
+   }
+
+   private void __putPresence(boolean present) {
+      __ensureRowCapacity(1);
+      rowBuffer.put(present ? (byte) 1 : (byte) 0);
+   }
+
+   private void __putVarLong(long value) {
+      __ensureRowCapacity(10);
+      while ((value & ~0x7FL) != 0) {
+         rowBuffer.put((byte) ((value & 0x7F) | 0x80));
+         value >>>= 7;
+      }
+      rowBuffer.put((byte) value);
+   }
+
+   private void __writeVarLong(long value) throws IOException {
+      __ensureCapacity(10);
+      while ((value & ~0x7FL) != 0) {
+         buffer.put((byte) ((value & 0x7F) | 0x80));
+         value >>>= 7;
+      }
+      buffer.put((byte) value);
+   }
+
+   private void __ensureRowCapacity(int length) {
+      if (rowBuffer.remaining() < length) {
+         final ByteBuffer largerRowBuffer
+               = ByteBuffer.allocate(Math.max(rowBuffer.capacity() * 2, rowBuffer.position() + length));
+         rowBuffer.flip();
+         largerRowBuffer.put(rowBuffer);
+         rowBuffer = largerRowBuffer;
+      }
+   }
+
+   private void __ensureCapacity(int length) throws IOException {
+      if (buffer.remaining() < length) {
+         __flushBuffer();
+      }
+   }
+
+   private void __flushBuffer() throws IOException {
+      buffer.flip();
+      while (buffer.hasRemaining()) {
+         channel.write(buffer);
+      }
+      buffer.clear();
+   }
+
+   private static long __zigzag(long value) {
+      // system permission ids are negative, so map signed values to small unsigned ones
+      return (value << 1) ^ (value >> 63);
+   }
+}
@@ -0,0 +1,229 @@
+/*
+ * Copyright 2009-2016, Acciente LLC
+ *
+ * Acciente LLC licenses this file to you under the
+ * Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in
+ * writing, software distributed under the License is
+ * distributed on an "AS IS" BASIS, WITHOUT WARRANTIES
+ * OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.acciente.oacc.sql.internal;
+
+/**
+ * The tables of an OACC database, in the order in which they are exported and imported, such that every table
+ * follows the tables its rows refer to.
+ */
+enum ExportTable {
+   DOMAIN(1,
+          "Domain",
+          "DomainId",
+          new Column("DomainId", ColumnType.DOMAIN_ID),
+          new Column("DomainName", ColumnType.STRING),
+          new Column("ParentDomainId", ColumnType.NULLABLE_DOMAIN_ID)),
+   RESOURCE_CLASS(2,
+                  "ResourceClass",
+                  "ResourceClassId",
+                  new Column("ResourceClassId", ColumnType.RESOURCE_CLASS_ID),
+                  new Column("ResourceClassName", ColumnType.STRING),
+                  new Column("IsAuthenticatable", ColumnType.FLAG),
+                  new Column("IsUnauthenticatedCreateAllowed", ColumnType.FLAG)),
+   RESOURCE_CLASS_PERMISSION(3,
+                             "ResourceClassPermission",
+                             "PermissionId",
+                             new Column("ResourceClassId", ColumnType.RESOURCE_CLASS_ID),
+                             new Column("PermissionId", ColumnType.PERMISSION_ID),
+                             new Column("PermissionName", ColumnType.STRING)),
+   // ordered by class and domain, so that the importer can create the resources in blocks
+   RESOURCE(4,
+            "Resource R LEFT JOIN {prefix}ResourceExternalId E ON E.ResourceId = R.ResourceId",
+            "R.ResourceClassId, R.DomainId, R.ResourceId",
+            new Column("R.ResourceId", ColumnType.RESOURCE_ID),
+            new Column("R.ResourceClassId", ColumnType.RESOURCE_CLASS_ID),
+            new Column("R.DomainId", ColumnType.DOMAIN_ID),
+            new Column("E.ExternalId", ColumnType.NULLABLE_STRING)),
+   RESOURCE_PASSWORD(5,
+                     "ResourcePassword",
+                     null,
+                     new Column("ResourceId", ColumnType.RESOURCE_ID),
+                     new Column("Password", ColumnType.STRING)),
+   GRANT_DOMAIN_PERMISSION_SYS(6,
+                               "Grant_DomPerm_Sys",
+                               null,
+                               new Column("AccessorResourceId", ColumnType.RESOURCE_ID),
+                               new Column("GrantorResourceId", ColumnType.RESOURCE_ID),
+                               new Column("AccessedDomainId", ColumnType.DOMAIN_ID),
+                               new Column("IsWithGrant", ColumnType.FLAG),
+                               new Column("SysPermissionId", ColumnType.SYS_PERMISSION_ID)),
+   GRANT_DOMAIN_CREATE_PERMISSION_SYS(7,
+                                      "Grant_DomCrPerm_Sys",
+                                      null,
+                                      new Column("AccessorResourceId", ColumnType.RESOURCE_ID),
+                                      new Column("GrantorResourceId", ColumnType.RESOURCE_ID),
+                                      new Column("IsWithGrant", ColumnType.FLAG),
+                                      new Column("SysPermissionId", ColumnType.SYS_PERMISSION_ID)),
+   GRANT_DOMAIN_CREATE_PERMISSION_POST_CREATE_SYS(8,
+                                                  "Grant_DomCrPerm_PostCr_Sys",
+                                                  null,
+                                                  new Column("AccessorResourceId", ColumnType.RESOURCE_ID),
+                                                  new Column("GrantorResourceId", ColumnType.RESOURCE_ID),
+                                                  new Column("IsWithGrant", ColumnType.FLAG),
+                                                  new Column("PostCreateIsWithGrant", ColumnType.FLAG),
+                                                  new Column("PostCreateSysPermissionId", ColumnType.SYS_PERMISSION_ID)),
+   GRANT_RESOURCE_CREATE_PERMISSION_SYS(9,
+                                        "Grant_ResCrPerm_Sys",
+                                        null,
+                                        new Column("AccessorResourceId", ColumnType.RESOURCE_ID),
+                                        new Column("GrantorResourceId", ColumnType.RESOURCE_ID),
+                                        new Column("AccessedDomainId", ColumnType.DOMAIN_ID),
+                                        new Column("IsWithGrant", ColumnType.FLAG),
+                                        new Column("ResourceClassId", ColumnType.RESOURCE_CLASS_ID),
+                                        new Column("SysPermissionId", ColumnType.SYS_PERMISSION_ID)),
+   GRANT_RESOURCE_CREATE_PERMISSION_POST_CREATE_SYS(10,
+                                                    "Grant_ResCrPerm_PostCr_Sys",
+                                                    null,
+                                                    new Column("AccessorResourceId", ColumnType.RESOURCE_ID),
+                                                    new Column("GrantorResourceId", ColumnType.RESOURCE_ID),
+                                                    new Column("AccessedDomainId", ColumnType.DOMAIN_ID),
+                                                    new Column("IsWithGrant", ColumnType.FLAG),
+                                                    new Column("PostCreateIsWithGrant", ColumnType.FLAG),
+                                                    new Column("ResourceClassId", ColumnType.RESOURCE_CLASS_ID),
+                                                    new Column("PostCreateSysPermissionId", ColumnType.SYS_PERMISSION_ID)),
+   GRANT_RESOURCE_CREATE_PERMISSION_POST_CREATE(11,
+                                                "Grant_ResCrPerm_PostCr",
+                                                null,
+                                                new Column("AccessorResourceId", ColumnType.RESOURCE_ID),
+                                                new Column("GrantorResourceId", ColumnType.RESOURCE_ID),
+                                                new Column("AccessedDomainId", ColumnType.DOMAIN_ID),
+                                                new Column("IsWithGrant", ColumnType.FLAG),
+                                                new Column("PostCreateIsWithGrant", ColumnType.FLAG),
+                                                new Column("ResourceClassId", ColumnType.RESOURCE_CLASS_ID),
+                                                new Column("PostCreatePermissionId", ColumnType.PERMISSION_ID)),
+   GRANT_RESOURCE_PERMISSION_SYS(12,
+                                 "Grant_ResPerm_Sys",
+                                 null,
+                                 new Column("AccessorResourceId", ColumnType.RESOURCE_ID),
+                                 new Column("GrantorResourceId", ColumnType.RESOURCE_ID),
+                                 new Column("AccessedResourceId", ColumnType.RESOURCE_ID),
+                                 new Column("IsWithGrant", ColumnType.FLAG),
+                                 new Column("ResourceClassId", ColumnType.RESOURCE_CLASS_ID),
+                                 new Column("SysPermissionId", ColumnType.SYS_PERMISSION_ID)),
+   GRANT_RESOURCE_PERMISSION(13,
+                             "Grant_ResPerm",
+                             null,
+                             new Column("AccessorResourceId", ColumnType.RESOURCE_ID),
+                             new Column("GrantorResourceId", ColumnType.RESOURCE_ID),
+                             new Column("AccessedResourceId", ColumnType.RESOURCE_ID),
+                             new Column("IsWithGrant", ColumnType.FLAG),
+                             new Column("ResourceClassId", ColumnType.RESOURCE_CLASS_ID),
+                             new Column("PermissionId", ColumnType.PERMISSION_ID)),
+   GRANT_GLOBAL_RESOURCE_PERMISSION_SYS(14,
+                                        "Grant_Global_ResPerm_Sys",
+                                        null,
+                                        new Column("AccessorResourceId", ColumnType.RESOURCE_ID),
+                                        new Column("GrantorResourceId", ColumnType.RESOURCE_ID),
+                                        new Column("AccessedDomainId", ColumnType.DOMAIN_ID),
+                                        new Column("IsWithGrant", ColumnType.FLAG),
+                                        new Column("ResourceClassId", ColumnType.RESOURCE_CLASS_ID),
+                                        new Column("SysPermissionId", ColumnType.SYS_PERMISSION_ID)),
+   GRANT_GLOBAL_RESOURCE_PERMISSION(15,
+                                    "Grant_Global_ResPerm",
+                                    null,
+                                    new Column("AccessorResourceId", ColumnType.RESOURCE_ID),
+                                    new Column("GrantorResourceId", ColumnType.RESOURCE_ID),
+                                    new Column("AccessedDomainId", ColumnType.DOMAIN_ID),
+                                    new Column("IsWithGrant", ColumnType.FLAG),
+                                    new Column("ResourceClassId", ColumnType.RESOURCE_CLASS_ID),
+                                    new Column("PermissionId", ColumnType.PERMISSION_ID));
+
+   enum ColumnType {
+      RESOURCE_ID,
+      DOMAIN_ID,
+      NULLABLE_DOMAIN_ID,
+      RESOURCE_CLASS_ID,
+      PERMISSION_ID,
+      SYS_PERMISSION_ID,
+      FLAG,
+      STRING,
+      NULLABLE_STRING
+   }
+
+   static class Column {
+      private final String     name;
+      private final ColumnType columnType;
+
+      Column(String name, ColumnType columnType) {
+         this.name = name;
+         this.columnType = columnType;
+      }
+
+      String getName() {
+         return name;
+      }
+
+      ColumnType getColumnType() {
+         return columnType;
+      }
+   }
+
+   private final byte     tag;
+   private final String   fromClause;
+   private final String   orderByClause;
+   private final Column[] columns;
+
+   ExportTable(int tag, String fromClause, String orderByClause, Column... columns) {
+      this.tag = (byte) tag;
+      this.fromClause = fromClause;
+      this.orderByClause = orderByClause;
+      this.columns = columns;
+   }
+
+   byte getTag() {
+      return tag;
+   }
+
+   Column[] getColumns() {
+      return columns;
+   }
+
+   static ExportTable getExportTable(byte tag) {
+      for (ExportTable exportTable : values()) {
+         if (exportTable.tag == tag) {
+            return exportTable;
+         }
+      }
+      return null;
+   }
+
+   String getSelectSQL(String schemaNameAndTablePrefix) {
+      final StringBuilder sql = new StringBuilder("SELECT ");
+      for (int i = 0; i < columns.length; i++) {
+         if (i > 0) {
+            sql.append(", ");
+         }
+         sql.append(columns[i].getName());
+      }
+      sql.append(" FROM ").append(schemaNameAndTablePrefix).append(fromClause.replace("{prefix}", schemaNameAndTablePrefix));
+      if (orderByClause != null) {
+         sql.append(" ORDER BY ").append(orderByClause);
+      }
+      return sql.toString();
+   }
+
+   String getInsertSQL(String schemaNameAndTablePrefix) {
+      final StringBuilder sql = new StringBuilder("INSERT INTO ").append(schemaNameAndTablePrefix).append(fromClause);
+      final StringBuilder values = new StringBuilder();
+      for (int i = 0; i < columns.length; i++) {
+         sql.append(i > 0 ? ", " : " ( ").append(columns[i].getName());
+         values.append(i > 0 ? ", ?" : "?");
+      }
+      return sql.append(" ) VALUES ( ").append(values).append(" )").toString();
+   }
+}
@@ -0,0 +1,380 @@
+/*
+ * Copyright 2009-2016, Acciente LLC
+ *
+ * Acciente LLC licenses this file to you under the
+ * Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in
+ * writing, software distributed under the License is
+ * distributed on an "AS IS" BASIS, WITHOUT WARRANTIES
+ * OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.acciente.oacc.sql.internal;
+
+import com.acciente.oacc.DomainPermissions;
+import com.acciente.oacc.Resource;
+import com.acciente.oacc.ResourcePermissions;
+import com.acciente.oacc.sql.ChangeLogEntry;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A Bloom filter over the grant keys of an OACC database, which can rule out that an accessor has any permission
+ * on a resource without querying the grant tables.
+ * <p/>
+ * The filter holds a key for each (accessor, accessed resource) pair with a direct resource permission, for each
+ * (accessor, resource class, domain) with a global resource permission, for each (accessor, domain) with the
+ * *SUPER-USER permission, and for each accessor that inherits from another resource. The domain tree, held off
+ * the heap, and the ids of the domains and resource classes are held exactly, so that global and super-user grants
+ * on ancestor domains can be probed, and so that lookups involving domains and resource classes created since the
+ * build are never ruled out.
+ * <p/>
+ * Changes are added incrementally from change log entries: keys are only ever added, so revoked grants remain as
+ * false positives until the next build, and changes that cannot be mapped to keys exactly mark their accessor or
+ * accessed resource as dirty, which excludes it from being ruled out. Instances are thread-safe.
+ */
+public class GrantFilterIndex {
+   private static final int FETCH_SIZE = 1000;
+
+   private static final long KEY_RESOURCE   = 1;
+   private static final long KEY_GLOBAL     = 2;
+   private static final long KEY_SUPER_USER = 3;
+   private static final long KEY_INHERITOR  = 4;
+
+   private static final long NO_PARENT_DOMAIN_ID = -1;
+
+   private static final long SYS_PERMISSION_ID_INHERIT
+         = ResourcePermissions.getInstance(ResourcePermissions.INHERIT).getSystemPermissionId();
+   private static final long SYS_PERMISSION_ID_SUPER_USER
+         = DomainPermissions.getInstance(DomainPermissions.SUPER_USER).getSystemPermissionId();
+
+   private final BloomFilter             bloomFilter;
+   private final long                    buildKeyCount;
+   // the parent of each domain, or NO_PARENT_DOMAIN_ID for a root domain, held off the heap
+   private final OffHeapLongTable        parentDomainIds;
+   private final Set<Long>               resourceClassIds;
+   // the ids by lower case name, since whether names are case-sensitive depends on the database
+   private final Map<String, List<Long>> domainIdsByName;
+   private final Map<String, List<Long>> resourceClassIdsByName;
+   private final Set<Long>               dirtyAccessorResourceIds = Collections.newSetFromMap(new ConcurrentHashMap<Long, Boolean>());
+   private volatile boolean              stale;
+
+   private GrantFilterIndex(BloomFilter bloomFilter,
+                            long buildKeyCount,
+                            OffHeapLongTable parentDomainIds,
+                            Set<Long> resourceClassIds,
+                            Map<String, List<Long>> domainIdsByName,
+                            Map<String, List<Long>> resourceClassIdsByName) {
+      this.bloomFilter = bloomFilter;
+      this.buildKeyCount = buildKeyCount;
+      this.parentDomainIds = parentDomainIds;
+      this.resourceClassIds = resourceClassIds;
+      this.domainIdsByName = domainIdsByName;
+      this.resourceClassIdsByName = resourceClassIdsByName;
+   }
+
+   /**
+    * Builds a filter of the grants in the OACC database on the specified connection.
+    * <p/>
+    * All tables are read within a single transaction, unless the connection already has a transaction in progress.
+    *
+    * @param connection        a connection to the OACC database
+    * @param dbSchema          the schema of the OACC tables, or null
+    * @param falsePositiveRate the rate at which the filter should fail to rule out an accessor without any grants
+    * @param headroom          the fraction of keys to size the filter for beyond those in the database, to keep
+    *                          the false-positive rate for keys added incrementally after the build
+    */
+   public static GrantFilterIndex build(Connection connection,
+                                        String dbSchema,
+                                        double falsePositiveRate,
+                                        double headroom) throws SQLException {
+      SchemaNameValidator.assertValid(dbSchema);
+
+      final String schemaNameAndTablePrefix = dbSchema != null ? dbSchema + ".OAC_" : "OAC_";
+
+      final boolean transactionStarted = connection.getAutoCommit();
+      if (transactionStarted) {
+         connection.setAutoCommit(false);
+      }
+      try {
+         // a domain created after it was counted is left out, and so is never ruled out, like one created after the build
+         final OffHeapLongTable parentDomainIds
+               = new OffHeapLongTable(Math.max(1, (int) __getRowCount(connection, schemaNameAndTablePrefix + "Domain")), 1);
+         final Map<String, List<Long>> domainIdsByName = new HashMap<>();
+         try (PreparedStatement statement = __prepareStatement(connection,
+                                                               "SELECT DomainId, DomainName, ParentDomainId FROM "
+                                                                     + schemaNameAndTablePrefix + "Domain");
+              ResultSet resultSet = statement.executeQuery()) {
+            while (resultSet.next()) {
+               final long domainId = resultSet.getLong(1);
+               final long parentDomainId = resultSet.getLong(3);
+               final boolean isRootDomain = resultSet.wasNull();
+               final long slot = parentDomainIds.insert(domainId);
+               if (slot >= 0) {
+                  parentDomainIds.setValue(slot, 0, isRootDomain ? NO_PARENT_DOMAIN_ID : parentDomainId);
+               }
+               __addIdByName(domainIdsByName, resultSet.getString(2), domainId);
+            }
+         }
+
+         final Set<Long> resourceClassIds = new HashSet<>();
+         final Map<String, List<Long>> resourceClassIdsByName = new HashMap<>();
+         try (PreparedStatement statement = __prepareStatement(connection,
+                                                               "SELECT ResourceClassId, ResourceClassName FROM "
+                                                                     + schemaNameAndTablePrefix + "ResourceClass");
+              ResultSet resultSet = statement.executeQuery()) {
+            while (resultSet.next()) {
+               resourceClassIds.add(resultSet.getLong(1));
+               __addIdByName(resourceClassIdsByName, resultSet.getString(2), resultSet.getLong(1));
+            }
+         }
+
+         // size the filter for the grants, each of which adds at most two keys, plus the headroom
+         long grantCount = 0;
+         for (String grantTable : new String[]{"Grant_ResPerm", "Grant_ResPerm_Sys", "Grant_Global_ResPerm",
+                                               "Grant_Global_ResPerm_Sys", "Grant_DomPerm_Sys"}) {
+            grantCount += __getRowCount(connection, schemaNameAndTablePrefix + grantTable);
+         }
+         final BloomFilter bloomFilter
+               = new BloomFilter(Math.max(1024, (long) (grantCount * (1 + headroom))), falsePositiveRate);
+
+         final GrantFilterIndex grantFilterIndex = new GrantFilterIndex(bloomFilter,
+                                                                        grantCount,
+                                                                        parentDomainIds,
+                                                                        resourceClassIds,
+                                                                        domainIdsByName,
+                                                                        resourceClassIdsByName);
+         grantFilterIndex.__addResourceGrants(connection, schemaNameAndTablePrefix);
+         grantFilterIndex.__addGlobalGrants(connection, schemaNameAndTablePrefix);
+         grantFilterIndex.__addSuperUserGrants(connection, schemaNameAndTablePrefix);
+
+         return grantFilterIndex;
+      }
+      finally {
+         if (transactionStarted) {
+            // nothing was written, so the transaction can simply be rolled back
+            connection.rollback();
+            connection.setAutoCommit(true);
+         }
+      }
+   }
+
+   /**
+    * Returns the number of grants in the database when the filter was built.
+    */
+   public long getBuildKeyCount() {
+      return buildKeyCount;
+   }
+
+   public BloomFilter getBloomFilter() {
+      return bloomFilter;
+   }
+
+   /**
+    * Returns false if the specified accessor is known not to inherit from any resource.
+    */
+   public boolean mightInherit(long accessorResourceId) {
+      return stale
+            || dirtyAccessorResourceIds.contains(accessorResourceId)
+            || bloomFilter.mightContain(BloomFilter.hash(KEY_INHERITOR, accessorResourceId, 0, 0));
+   }
+
+   /**
+    * Returns false if the specified accessor is known to have no direct permission on the specified resource,
+    * no global permission on its resource class in its domain or any ancestor domain, and no super-user permission
+    * on its domain or any ancestor domain. Permissions the accessor inherits are not considered.
+    */
+   public boolean mightHaveGrants(long accessorResourceId,
+                                  long accessedResourceId,
+                                  long accessedResourceClassId,
+                                  long accessedDomainId) {
+      if (stale
+            || dirtyAccessorResourceIds.contains(accessorResourceId)
+            || !resourceClassIds.contains(accessedResourceClassId)
+            || parentDomainIds.find(accessedDomainId) < 0) {
+         return true;
+      }
+
+      if (bloomFilter.mightContain(BloomFilter.hash(KEY_RESOURCE, accessorResourceId, accessedResourceId, 0))) {
+         return true;
+      }
+      for (long domainId = accessedDomainId; domainId != NO_PARENT_DOMAIN_ID; ) {
+         if (bloomFilter.mightContain(BloomFilter.hash(KEY_GLOBAL, accessorResourceId, accessedResourceClassId, domainId))
+               || bloomFilter.mightContain(BloomFilter.hash(KEY_SUPER_USER, accessorResourceId, domainId, 0))) {
+            return true;
+         }
+         final long slot = parentDomainIds.find(domainId);
+         if (slot < 0) {
+            // an ancestor that was left out of the build cannot be ruled out
+            return true;
+         }
+         domainId = parentDomainIds.getValue(slot, 0);
+      }
+      return false;
+   }
+
+   /**
+    * Adds the keys of the specified change, or marks the resources it affects as dirty, if its keys are not known.
+    */
+   public void addChange(ChangeLogEntry changeLogEntry) {
+      final Resource accessorResource = changeLogEntry.getAccessorResource();
+      final Resource accessedResource = changeLogEntry.getAccessedResource();
+
+      switch (changeLogEntry.getChangeType()) {
+         case RESOURCE_PERMISSIONS:
+            if (!__hasId(accessorResource)) {
+               stale = true;
+            }
+            else if (__hasId(accessedResource)) {
+               // the change may have granted *INHERIT
+               bloomFilter.add(BloomFilter.hash(KEY_RESOURCE, accessorResource.getId(), accessedResource.getId(), 0));
+               bloomFilter.add(BloomFilter.hash(KEY_INHERITOR, accessorResource.getId(), 0, 0));
+            }
+            else {
+               // permissions on resources created in bulk
+               dirtyAccessorResourceIds.add(accessorResource.getId());
+            }
+            break;
+         case GLOBAL_RESOURCE_PERMISSIONS: {
+            final List<Long> domainIds = __getIdsByName(domainIdsByName, changeLogEntry.getDomainName());
+            final List<Long> classIds = __getIdsByName(resourceClassIdsByName, changeLogEntry.getResourceClassName());
+            if (!__hasId(accessorResource)) {
+               stale = true;
+            }
+            else if (domainIds.isEmpty() || classIds.isEmpty()) {
+               dirtyAccessorResourceIds.add(accessorResource.getId());
+            }
+            else {
+               for (Long domainId : domainIds) {
+                  for (Long classId : classIds) {
+                     bloomFilter.add(BloomFilter.hash(KEY_GLOBAL, accessorResource.getId(), classId, domainId));
+                  }
+               }
+            }
+            break;
+         }
+         case DOMAIN_PERMISSIONS: {
+            final List<Long> domainIds = __getIdsByName(domainIdsByName, changeLogEntry.getDomainName());
+            if (!__hasId(accessorResource)) {
+               stale = true;
+            }
+            else if (domainIds.isEmpty()) {
+               dirtyAccessorResourceIds.add(accessorResource.getId());
+            }
+            else {
+               for (Long domainId : domainIds) {
+                  bloomFilter.add(BloomFilter.hash(KEY_SUPER_USER, accessorResource.getId(), domainId, 0));
+               }
+            }
+            break;
+         }
+         default:
+            // domains and resource classes created since the build are unknown, and thus never ruled out, create
+            // permissions do not grant any permissions on existing resources, and the permissions granted on a
+            // resource when it is created are recorded as resource permission changes of their own
+      }
+   }
+
+   private void __addResourceGrants(Connection connection, String schemaNameAndTablePrefix) throws SQLException {
+      try (PreparedStatement statement = __prepareStatement(connection,
+                                                            "SELECT AccessorResourceId, AccessedResourceId FROM "
+                                                                  + schemaNameAndTablePrefix + "Grant_ResPerm");
+           ResultSet resultSet = statement.executeQuery()) {
+         while (resultSet.next()) {
+            bloomFilter.add(BloomFilter.hash(KEY_RESOURCE, resultSet.getLong(1), resultSet.getLong(2), 0));
+         }
+      }
+      try (PreparedStatement statement = __prepareStatement(connection,
+                                                            "SELECT AccessorResourceId, AccessedResourceId, SysPermissionId FROM "
+                                                                  + schemaNameAndTablePrefix + "Grant_ResPerm_Sys");
+           ResultSet resultSet = statement.executeQuery()) {
+         while (resultSet.next()) {
+            bloomFilter.add(BloomFilter.hash(KEY_RESOURCE, resultSet.getLong(1), resultSet.getLong(2), 0));
+            if (resultSet.getLong(3) == SYS_PERMISSION_ID_INHERIT) {
+               bloomFilter.add(BloomFilter.hash(KEY_INHERITOR, resultSet.getLong(1), 0, 0));
+            }
+         }
+      }
+   }
+
+   private void __addGlobalGrants(Connection connection, String schemaNameAndTablePrefix) throws SQLException {
+      for (String grantTable : new String[]{"Grant_Global_ResPerm", "Grant_Global_ResPerm_Sys"}) {
+         try (PreparedStatement statement = __prepareStatement(connection,
+                                                               "SELECT AccessorResourceId, ResourceClassId, AccessedDomainId FROM "
+                                                                     + schemaNameAndTablePrefix + grantTable);
+              ResultSet resultSet = statement.executeQuery()) {
+            while (resultSet.next()) {
+               bloomFilter.add(BloomFilter.hash(KEY_GLOBAL, resultSet.getLong(1), resultSet.getLong(2), resultSet.getLong(3)));
+            }
+         }
+      }
+   }
+
+   private void __addSuperUserGrants(Connection connection, String schemaNameAndTablePrefix) throws SQLException {
+      try (PreparedStatement statement = __prepareStatement(connection,
+                                                            "SELECT AccessorResourceId, AccessedDomainId FROM "
+                                                                  + schemaNameAndTablePrefix + "Grant_DomPerm_Sys"
+                                                                  + " WHERE SysPermissionId = ?")) {
+         statement.setLong(1, SYS_PERMISSION_ID_SUPER_USER);
+         try (ResultSet resultSet = statement.executeQuery()) {
+            while (resultSet.next()) {
+               bloomFilter.add(BloomFilter.hash(KEY_SUPER_USER, resultSet.getLong(1), resultSet.getLong(2), 0));
+            }
+         }
+      }
+   }
+
+   private static PreparedStatement __prepareStatement(Connection connection, String sql) throws SQLException {
+      final PreparedStatement statement = connection.prepareStatement(sql,
+                                                                      ResultSet.TYPE_FORWARD_ONLY,
+                                                                      ResultSet.CONCUR_READ_ONLY);
+      // stream the rows, rather than have the driver load the whole table
+      statement.setFetchSize(FETCH_SIZE);
+      return statement;
+   }
+
+   private static long __getRowCount(Connection connection, String tableName) throws SQLException {
+      try (PreparedStatement statement = connection.prepareStatement("SELECT COUNT(*) FROM " + tableName);
+           ResultSet resultSet = statement.executeQuery()) {
+         resultSet.next();
+         return resultSet.getLong(1);
+      }
+   }
+
+   private static void __addIdByName(Map<String, List<Long>> idsByName, String name, long id) {
+      final String key = name.toLowerCase(Locale.ROOT);
+      List<Long> ids = idsByName.get(key);
+      if (ids == null) {
+         ids = new ArrayList<>(1);
+         idsByName.put(key, ids);
+      }
+      ids.add(id);
+   }
+
+   private static List<Long> __getIdsByName(Map<String, List<Long>> idsByName, String name) {
+      final List<Long> ids = name != null ? idsByName.get(name.trim().toLowerCase(Locale.ROOT)) : null;
+      return ids != null ? ids : Collections.<Long>emptyList();
+   }
+
+   private static boolean __hasId(Resource resource) {
+      return resource != null && resource.getId() != null;
+   }
+}
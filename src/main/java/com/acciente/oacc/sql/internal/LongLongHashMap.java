@@ -0,0 +1,107 @@
+/*
+ * Copyright 2009-2016, Acciente LLC
+ *
+ * Acciente LLC licenses this file to you under the
+ * Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in
+ * writing, software distributed under the License is
+ * distributed on an "AS IS" BASIS, WITHOUT WARRANTIES
+ * OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.acciente.oacc.sql.internal;
+
+import java.util.Arrays;
+
+/**
+ * A map of non-negative long keys to long values, using open addressing over primitive arrays, which takes a
+ * fraction of the memory of a HashMap with boxed keys and values when mapping millions of ids.
+ */
+class LongLongHashMap {
+   private static final long  NO_KEY      = -1;
+   private static final float LOAD_FACTOR = 0.75f;
+
+   private long[] keys;
+   private long[] values;
+   private int    size;
+
+   LongLongHashMap(int expectedSize) {
+      int capacity = 16;
+      while (capacity * LOAD_FACTOR < expectedSize) {
+         capacity <<= 1;
+      }
+      __allocate(capacity);
+   }
+
+   void put(long key, long value) {
+      if (key < 0) {
+         throw new IllegalArgumentException("Key must not be negative: " + key);
+      }
+      if (size + 1 > keys.length * LOAD_FACTOR) {
+         __grow();
+      }
+      __put(key, value);
+   }
+
+   /**
+    * Returns the value mapped to the specified key, or the specified default value if the key is not mapped.
+    */
+   long get(long key, long defaultValue) {
+      final int mask = keys.length - 1;
+      for (int index = __hash(key) & mask; ; index = (index + 1) & mask) {
+         if (keys[index] == key) {
+            return values[index];
+         }
+         if (keys[index] == NO_KEY) {
+            return defaultValue;
+         }
+      }
+   }
+
+   int size() {
+      return size;
+   }
+
+   private void __put(long key, long value) {
+      final int mask = keys.length - 1;
+      int index = __hash(key) & mask;
+      while (keys[index] != NO_KEY && keys[index] != key) {
+         index = (index + 1) & mask;
+      }
+      if (keys[index] == NO_KEY) {
+         keys[index] = key;
+         size++;
+      }
+      values[index] = value;
+   }
+
+   private void __grow() {
+      final long[] oldKeys = keys;
+      final long[] oldValues = values;
+      __allocate(oldKeys.length << 1);
+      for (int i = 0; i < oldKeys.length; i++) {
+         if (oldKeys[i] != NO_KEY) {
+            __put(oldKeys[i], oldValues[i]);
+         }
+      }
+   }
+
+   private void __allocate(int capacity) {
+      keys = new long[capacity];
+      values = new long[capacity];
+      Arrays.fill(keys, NO_KEY);
+      size = 0;
+   }
+
+   private static int __hash(long key) {
+      // ids are mostly consecutive, so spread them over the table
+      final long hash = key * 0x9E3779B97F4A7C15L;
+      return (int) (hash ^ (hash >>> 32));
+   }
+}
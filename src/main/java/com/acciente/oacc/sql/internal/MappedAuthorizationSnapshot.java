@@ -0,0 +1,440 @@
+/*
+ * Copyright 2009-2016, Acciente LLC
+ *
+ * Acciente LLC licenses this file to you under the
+ * Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in
+ * writing, software distributed under the License is
+ * distributed on an "AS IS" BASIS, WITHOUT WARRANTIES
+ * OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.acciente.oacc.sql.internal;
+
+import com.acciente.oacc.Resource;
+import com.acciente.oacc.ResourcePermission;
+import com.acciente.oacc.ResourcePermissions;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static com.acciente.oacc.sql.internal.AuthorizationSnapshotFormat.*;
+
+/**
+ * Answers resource permission checks from an authorization snapshot, which is memory-mapped read-only.
+ * <p/>
+ * Only the small dictionary of resource class and permission names is decoded when the snapshot is mapped; all
+ * lookups of resources, domains, inheritance and grants are binary searches and scans over the mapped buffers, so
+ * the heap used does not depend on the size of the snapshot. Instances are immutable and thread-safe.
+ */
+public class MappedAuthorizationSnapshot {
+   private static final byte LEVEL_WITHOUT_GRANT = 1;
+   private static final byte LEVEL_WITH_GRANT    = 2;
+
+   private final long                        snapshotMillis;
+   private final String[]                    resourceClassNames;
+   private final boolean[]                   authenticatables;
+   private final String[][]                  permissionNames;
+   private final List<Map<String, Integer>>  permissionIndices;
+   private final LongBuffer                  resourceIds;
+   private final IntBuffer                   resourceClasses;
+   private final IntBuffer                   resourceDomains;
+   private final IntBuffer                   domainParents;
+   private final IntBuffer                   inheritOffsets;
+   private final IntBuffer                   inheritEntries;
+   private final IntBuffer                   superUserOffsets;
+   private final IntBuffer                   superUserEntries;
+   private final IntBuffer                   grantOffsets;
+   private final IntBuffer                   grantEntries;
+   private final IntBuffer                   globalOffsets;
+   private final IntBuffer                   globalEntries;
+
+   private MappedAuthorizationSnapshot(long snapshotMillis, ByteBuffer[] sections) {
+      this.snapshotMillis = snapshotMillis;
+
+      final ByteBuffer dictionary = sections[SECTION_DICTIONARY];
+      final int resourceClassCount = dictionary.getInt();
+      resourceClassNames = new String[resourceClassCount];
+      authenticatables = new boolean[resourceClassCount];
+      permissionNames = new String[resourceClassCount][];
+      permissionIndices = new ArrayList<>(resourceClassCount);
+      for (int i = 0; i < resourceClassCount; i++) {
+         resourceClassNames[i] = __getString(dictionary);
+         authenticatables[i] = dictionary.get() != 0;
+         permissionNames[i] = Arrays.copyOf(SYS_PERMISSION_NAMES, SYS_PERMISSION_NAMES.length + dictionary.getInt());
+         final Map<String, Integer> classPermissionIndices = new HashMap<>(permissionNames[i].length * 2);
+         for (int permissionIndex = 0; permissionIndex < permissionNames[i].length; permissionIndex++) {
+            if (permissionIndex >= SYS_PERMISSION_NAMES.length) {
+               permissionNames[i][permissionIndex] = __getString(dictionary);
+            }
+            classPermissionIndices.put(permissionNames[i][permissionIndex], permissionIndex);
+         }
+         permissionIndices.add(classPermissionIndices);
+      }
+
+      resourceIds = sections[SECTION_RESOURCE_IDS].asLongBuffer();
+      resourceClasses = sections[SECTION_RESOURCE_CLASSES].asIntBuffer();
+      resourceDomains = sections[SECTION_RESOURCE_DOMAINS].asIntBuffer();
+      domainParents = sections[SECTION_DOMAIN_PARENTS].asIntBuffer();
+      inheritOffsets = sections[SECTION_INHERIT_OFFSETS].asIntBuffer();
+      inheritEntries = sections[SECTION_INHERIT_ENTRIES].asIntBuffer();
+      superUserOffsets = sections[SECTION_SUPER_USER_OFFSETS].asIntBuffer();
+      superUserEntries = sections[SECTION_SUPER_USER_ENTRIES].asIntBuffer();
+      grantOffsets = sections[SECTION_GRANT_OFFSETS].asIntBuffer();
+      grantEntries = sections[SECTION_GRANT_ENTRIES].asIntBuffer();
+      globalOffsets = sections[SECTION_GLOBAL_OFFSETS].asIntBuffer();
+      globalEntries = sections[SECTION_GLOBAL_ENTRIES].asIntBuffer();
+   }
+
+   /**
+    * Maps the specified authorization snapshot file.
+    * <p/>
+    * The mapping remains valid after the file is replaced by a newer snapshot, or deleted, and is released once
+    * the returned instance is garbage collected.
+    */
+   public static MappedAuthorizationSnapshot map(Path file) throws IOException {
+      try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+         final ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+         while (header.hasRemaining()) {
+            if (channel.read(header) < 0) {
+               throw new EOFException("Unexpected end of authorization snapshot " + file);
+            }
+         }
+         header.flip();
+
+         final int magic = header.getInt();
+         if (magic != MAGIC) {
+            throw new IllegalArgumentException("Not an OACC authorization snapshot, unexpected magic number: "
+                                                     + Integer.toHexString(magic));
+         }
+         final int version = header.getInt();
+         if (version != VERSION) {
+            throw new IllegalArgumentException("Unsupported OACC authorization snapshot version: " + version
+                                                     + " (supported version is " + VERSION + ")");
+         }
+         final long snapshotMillis = header.getLong();
+         final int resourceCount = header.getInt();
+         final int domainCount = header.getInt();
+
+         final ByteBuffer[] sections = new ByteBuffer[SECTION_COUNT];
+         for (int i = 0; i < SECTION_COUNT; i++) {
+            final long sectionOffset = header.getLong();
+            final long sectionLength = header.getLong();
+            if (sectionOffset < HEADER_SIZE || sectionLength < 0 || sectionOffset + sectionLength > channel.size()) {
+               throw new IllegalArgumentException("Corrupt OACC authorization snapshot, section " + i
+                                                        + " lies outside of the file");
+            }
+            sections[i] = channel.map(FileChannel.MapMode.READ_ONLY, sectionOffset, sectionLength);
+         }
+
+         if (sections[SECTION_RESOURCE_IDS].capacity() != resourceCount * 8L
+               || sections[SECTION_DOMAIN_PARENTS].capacity() != domainCount * 4L) {
+            throw new IllegalArgumentException("Corrupt OACC authorization snapshot, unexpected section lengths");
+         }
+
+         return new MappedAuthorizationSnapshot(snapshotMillis, sections);
+      }
+   }
+
+   public long getSnapshotMillis() {
+      return snapshotMillis;
+   }
+
+   public int getResourceCount() {
+      return resourceIds.capacity();
+   }
+
+   public Set<ResourcePermission> getEffectiveResourcePermissions(Resource accessorResource,
+                                                                  Resource accessedResource) {
+      final int accessedIndex = __getResourceIndex(accessedResource);
+      final int[] accessorIndices = __getAccessorIndices(__getResourceIndex(accessorResource));
+      final int[] domainIndices = __getDomainIndices(resourceDomains.get(accessedIndex));
+      final int resourceClassIndex = resourceClasses.get(accessedIndex);
+
+      final Set<ResourcePermission> resourcePermissions = new HashSet<>();
+
+      if (__isSuperUser(accessorIndices, domainIndices)) {
+         for (int permissionIndex = 0; permissionIndex < permissionNames[resourceClassIndex].length; permissionIndex++) {
+            if (__isApplicable(resourceClassIndex, permissionIndex)) {
+               resourcePermissions.add(ResourcePermissions
+                                             .getInstanceWithGrantOption(permissionNames[resourceClassIndex][permissionIndex]));
+            }
+         }
+         return resourcePermissions;
+      }
+
+      final byte[] permissionLevels
+            = __getPermissionLevels(accessorIndices, accessedIndex, domainIndices, resourceClassIndex);
+
+      for (int permissionIndex = 0; permissionIndex < permissionLevels.length; permissionIndex++) {
+         if (permissionLevels[permissionIndex] == LEVEL_WITH_GRANT) {
+            resourcePermissions.add(ResourcePermissions
+                                          .getInstanceWithGrantOption(permissionNames[resourceClassIndex][permissionIndex]));
+         }
+         else if (permissionLevels[permissionIndex] == LEVEL_WITHOUT_GRANT) {
+            resourcePermissions.add(ResourcePermissions.getInstance(permissionNames[resourceClassIndex][permissionIndex]));
+         }
+      }
+
+      return resourcePermissions;
+   }
+
+   public boolean hasResourcePermissions(Resource accessorResource,
+                                         Resource accessedResource,
+                                         Set<ResourcePermission> requestedResourcePermissions) {
+      final int accessedIndex = __getResourceIndex(accessedResource);
+      final int accessorIndex = __getResourceIndex(accessorResource);
+      final int resourceClassIndex = resourceClasses.get(accessedIndex);
+
+      // resolve the requested permissions first, so that invalid ones are reported regardless of the grants
+      final int[] requestedPermissions = new int[requestedResourcePermissions.size()];
+      int requestedCount = 0;
+      for (ResourcePermission requestedResourcePermission : requestedResourcePermissions) {
+         requestedPermissions[requestedCount++]
+               = encodePermission(__getPermissionIndex(resourceClassIndex, requestedResourcePermission),
+                                  requestedResourcePermission.isWithGrantOption());
+      }
+
+      final int[] accessorIndices = __getAccessorIndices(accessorIndex);
+      final int[] domainIndices = __getDomainIndices(resourceDomains.get(accessedIndex));
+      final byte[] permissionLevels
+            = __getPermissionLevels(accessorIndices, accessedIndex, domainIndices, resourceClassIndex);
+
+      boolean hasPermission = true;
+      for (int requestedPermission : requestedPermissions) {
+         final byte permissionLevel = permissionLevels[getPermissionIndex(requestedPermission)];
+         if (permissionLevel < (isWithGrant(requestedPermission) ? LEVEL_WITH_GRANT : LEVEL_WITHOUT_GRANT)) {
+            hasPermission = false;
+            break;
+         }
+      }
+
+      // next check super-user permissions to the domain of the accessed resource
+      return hasPermission || __isSuperUser(accessorIndices, domainIndices);
+   }
+
+   // returns the highest level at which each permission of the accessed resource's class is granted to any of the
+   // accessors, directly or globally on the accessed resource's domain or one of its ancestors
+   private byte[] __getPermissionLevels(int[] accessorIndices,
+                                        int accessedIndex,
+                                        int[] domainIndices,
+                                        int resourceClassIndex) {
+      final byte[] permissionLevels = new byte[permissionNames[resourceClassIndex].length];
+
+      for (int accessorIndex : accessorIndices) {
+         final int grantsEnd = grantOffsets.get(accessorIndex + 1);
+         for (int i = __findFirstGrant(grantOffsets.get(accessorIndex), grantsEnd, accessedIndex);
+              i < grantsEnd && grantEntries.get(i * GRANT_ENTRY_INTS) == accessedIndex;
+              i++) {
+            __raisePermissionLevel(permissionLevels, grantEntries.get(i * GRANT_ENTRY_INTS + 1));
+         }
+
+         final int globalGrantsEnd = globalOffsets.get(accessorIndex + 1);
+         for (int domainIndex : domainIndices) {
+            for (int i = __findFirstGlobalGrant(globalOffsets.get(accessorIndex), globalGrantsEnd, domainIndex, resourceClassIndex);
+                 i < globalGrantsEnd
+                       && globalEntries.get(i * GLOBAL_ENTRY_INTS) == domainIndex
+                       && globalEntries.get(i * GLOBAL_ENTRY_INTS + 1) == resourceClassIndex;
+                 i++) {
+               __raisePermissionLevel(permissionLevels, globalEntries.get(i * GLOBAL_ENTRY_INTS + 2));
+            }
+         }
+      }
+
+      return permissionLevels;
+   }
+
+   private static void __raisePermissionLevel(byte[] permissionLevels, int encodedPermission) {
+      final int permissionIndex = getPermissionIndex(encodedPermission);
+      final byte permissionLevel = isWithGrant(encodedPermission) ? LEVEL_WITH_GRANT : LEVEL_WITHOUT_GRANT;
+      if (permissionIndex < permissionLevels.length && permissionLevels[permissionIndex] < permissionLevel) {
+         permissionLevels[permissionIndex] = permissionLevel;
+      }
+   }
+
+   private boolean __isSuperUser(int[] accessorIndices, int[] domainIndices) {
+      for (int accessorIndex : accessorIndices) {
+         final int from = superUserOffsets.get(accessorIndex);
+         final int to = superUserOffsets.get(accessorIndex + 1);
+         if (from == to) {
+            continue;
+         }
+         for (int domainIndex : domainIndices) {
+            if (__binarySearch(superUserEntries, from, to, domainIndex)) {
+               return true;
+            }
+         }
+      }
+      return false;
+   }
+
+   // returns the accessor and all the resources it transitively inherits from
+   private int[] __getAccessorIndices(int accessorIndex) {
+      int[] accessorIndices = new int[8];
+      int accessorCount = 0;
+      accessorIndices[accessorCount++] = accessorIndex;
+
+      for (int i = 0; i < accessorCount; i++) {
+         final int to = inheritOffsets.get(accessorIndices[i] + 1);
+         for (int j = inheritOffsets.get(accessorIndices[i]); j < to; j++) {
+            final int inheritedIndex = inheritEntries.get(j);
+            if (!__contains(accessorIndices, accessorCount, inheritedIndex)) {
+               if (accessorCount == accessorIndices.length) {
+                  accessorIndices = Arrays.copyOf(accessorIndices, accessorCount * 2);
+               }
+               accessorIndices[accessorCount++] = inheritedIndex;
+            }
+         }
+      }
+
+      return Arrays.copyOf(accessorIndices, accessorCount);
+   }
+
+   // returns the domain and all its ancestors
+   private int[] __getDomainIndices(int domainIndex) {
+      int[] domainIndices = new int[8];
+      int domainCount = 0;
+
+      for (int index = domainIndex; index >= 0; index = domainParents.get(index)) {
+         if (domainCount == domainIndices.length) {
+            domainIndices = Arrays.copyOf(domainIndices, domainCount * 2);
+         }
+         domainIndices[domainCount++] = index;
+      }
+
+      return Arrays.copyOf(domainIndices, domainCount);
+   }
+
+   private int __findFirstGrant(int from, int to, int accessedIndex) {
+      while (from < to) {
+         final int middle = (from + to) >>> 1;
+         if (grantEntries.get(middle * GRANT_ENTRY_INTS) < accessedIndex) {
+            from = middle + 1;
+         }
+         else {
+            to = middle;
+         }
+      }
+      return from;
+   }
+
+   private int __findFirstGlobalGrant(int from, int to, int domainIndex, int resourceClassIndex) {
+      while (from < to) {
+         final int middle = (from + to) >>> 1;
+         final int middleDomainIndex = globalEntries.get(middle * GLOBAL_ENTRY_INTS);
+         if (middleDomainIndex < domainIndex
+               || (middleDomainIndex == domainIndex
+                     && globalEntries.get(middle * GLOBAL_ENTRY_INTS + 1) < resourceClassIndex)) {
+            from = middle + 1;
+         }
+         else {
+            to = middle;
+         }
+      }
+      return from;
+   }
+
+   private static boolean __binarySearch(IntBuffer values, int from, int to, int value) {
+      while (from < to) {
+         final int middle = (from + to) >>> 1;
+         final int middleValue = values.get(middle);
+         if (middleValue < value) {
+            from = middle + 1;
+         }
+         else if (middleValue > value) {
+            to = middle;
+         }
+         else {
+            return true;
+         }
+      }
+      return false;
+   }
+
+   private static boolean __contains(int[] values, int count, int value) {
+      for (int i = 0; i < count; i++) {
+         if (values[i] == value) {
+            return true;
+         }
+      }
+      return false;
+   }
+
+   private int __getResourceIndex(Resource resource) {
+      if (resource == null) {
+         throw new NullPointerException("Resource required, none specified");
+      }
+      if (resource.getId() == null) {
+         throw new IllegalArgumentException("Resource " + resource
+                                                  + " has no id, which an authorization snapshot requires");
+      }
+
+      final long resourceId = resource.getId();
+      int from = 0;
+      int to = resourceIds.capacity();
+      while (from < to) {
+         final int middle = (from + to) >>> 1;
+         final long middleResourceId = resourceIds.get(middle);
+         if (middleResourceId < resourceId) {
+            from = middle + 1;
+         }
+         else if (middleResourceId > resourceId) {
+            to = middle;
+         }
+         else {
+            return middle;
+         }
+      }
+      throw new IllegalArgumentException("Resource " + resource + " not found!");
+   }
+
+   private boolean __isApplicable(int resourceClassIndex, int permissionIndex) {
+      return permissionIndex < FIRST_AUTHENTICATABLE_SYS_PERMISSION_INDEX
+            || permissionIndex >= SYS_PERMISSION_NAMES.length
+            || authenticatables[resourceClassIndex];
+   }
+
+   private int __getPermissionIndex(int resourceClassIndex, ResourcePermission resourcePermission) {
+      final Integer permissionIndex = permissionIndices.get(resourceClassIndex).get(resourcePermission.getPermissionName());
+
+      if (permissionIndex == null) {
+         throw new IllegalArgumentException("Permission: "
+                                                  + resourcePermission.getPermissionName()
+                                                  + " is not defined for resource class: "
+                                                  + resourceClassNames[resourceClassIndex]);
+      }
+      if (!__isApplicable(resourceClassIndex, permissionIndex)) {
+         throw new IllegalArgumentException("Permission "
+                                                  + resourcePermission.getPermissionName()
+                                                  + " not valid for unauthenticatable resource class "
+                                                  + resourceClassNames[resourceClassIndex]);
+      }
+      return permissionIndex;
+   }
+
+   private static String __getString(ByteBuffer buffer) {
+      final byte[] bytes = new byte[buffer.getInt()];
+      buffer.get(bytes);
+      return new String(bytes, StandardCharsets.UTF_8);
+   }
+}
@@ -0,0 +1,332 @@
+/*
+ * Copyright 2009-2016, Acciente LLC
+ *
+ * Acciente LLC licenses this file to you under the
+ * Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in
+ * writing, software distributed under the License is
+ * distributed on an "AS IS" BASIS, WITHOUT WARRANTIES
+ * OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.acciente.oacc.sql.internal;
+
+import com.acciente.oacc.Resource;
+import com.acciente.oacc.Resources;
+import com.acciente.oacc.sql.ChangeLogEntry;
+import com.acciente.oacc.sql.internal.persister.id.DomainId;
+import com.acciente.oacc.sql.internal.persister.id.Id;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * An index of resolved resources and of the resources each accessor directly inherits from, held in packed
+ * primitive tables outside of the heap, which access control contexts share to avoid repeating the queries for
+ * them, without the heap and garbage collection cost of caching millions of entries as objects.
+ * <p/>
+ * Resources map to the ids of their resource class and domain, and accessors to a range of an array of inherited
+ * resource ids. The few distinct resource classes and domain names are held on the heap. Resources with an external
+ * id are not indexed, since their external id would have to be held on the heap as well.
+ * <p/>
+ * Like the caches of an access control context, entries are only served for a limited time after they were added,
+ * to pick up changes made through access control contexts that do not notify the index. Once a table is full, it
+ * is cleared. Instances are thread-safe.
+ */
+public class OffHeapIndex {
+   // the average number of inherited resources per accessor that the inheritance array is sized for
+   private static final int INHERITED_RESOURCES_PER_ACCESSOR = 4;
+
+   // resource id -> (resource class id, domain id, added millis)
+   private static final int RESOURCE_CLASS_ID     = 0;
+   private static final int RESOURCE_DOMAIN_ID    = 1;
+   private static final int RESOURCE_ADDED_MILLIS = 2;
+   // accessor resource id -> (offset into inheritedResourceIds, count, added millis)
+   private static final int INHERITED_OFFSET       = 0;
+   private static final int INHERITED_COUNT        = 1;
+   private static final int INHERITED_ADDED_MILLIS = 2;
+
+   private final long maxAgeMillis;
+
+   // guarded by lock
+   private final OffHeapLongTable resources;
+   private final OffHeapLongTable inheritors;
+   private final OffHeapLongArray inheritedResourceIds;
+   private       long             inheritedResourceIdCount;
+   private final ReadWriteLock    lock = new ReentrantReadWriteLock();
+
+   private final ConcurrentMap<Long, ResourceClassInternalInfo> resourceClassInfos = new ConcurrentHashMap<>();
+   private final ConcurrentMap<Long, String>                    domainNames        = new ConcurrentHashMap<>();
+   private final AtomicLong                                     hitCount           = new AtomicLong();
+   private final AtomicLong                                     missCount          = new AtomicLong();
+
+   /**
+    * @param maxResourceCount the maximum number of resolved resources to index
+    * @param maxAccessorCount the maximum number of accessors to index the inherited resources of
+    * @param maxAgeMillis     the time for which entries are served after they were added
+    */
+   public OffHeapIndex(int maxResourceCount, int maxAccessorCount, long maxAgeMillis) {
+      if (maxResourceCount <= 0) {
+         throw new IllegalArgumentException("Maximum resource count must be positive, but was: " + maxResourceCount);
+      }
+      if (maxAccessorCount <= 0) {
+         throw new IllegalArgumentException("Maximum accessor count must be positive, but was: " + maxAccessorCount);
+      }
+      if (maxAgeMillis < 0) {
+         throw new IllegalArgumentException("Maximum age must not be negative, but was: " + maxAgeMillis);
+      }
+      this.maxAgeMillis = maxAgeMillis;
+      this.resources = new OffHeapLongTable(maxResourceCount, 3);
+      this.inheritors = new OffHeapLongTable(maxAccessorCount, 3);
+      this.inheritedResourceIds = new OffHeapLongArray((long) maxAccessorCount * INHERITED_RESOURCES_PER_ACCESSOR);
+   }
+
+   /**
+    * Returns the indexed resource with the specified id, with its resource class and domain, or null if the
+    * resource is not indexed, or its entry has expired.
+    */
+   public ResourceInternalInfo getResourceInfo(long resourceId) {
+      final long resourceClassId;
+      final long domainId;
+      lock.readLock().lock();
+      try {
+         final long slot = resources.find(resourceId);
+         if (slot < 0 || __isExpired(resources.getValue(slot, RESOURCE_ADDED_MILLIS))) {
+            missCount.incrementAndGet();
+            return null;
+         }
+         resourceClassId = resources.getValue(slot, RESOURCE_CLASS_ID);
+         domainId = resources.getValue(slot, RESOURCE_DOMAIN_ID);
+      }
+      finally {
+         lock.readLock().unlock();
+      }
+
+      final ResourceClassInternalInfo resourceClassInfo = resourceClassInfos.get(resourceClassId);
+      final String domainName = domainNames.get(domainId);
+      if (resourceClassInfo == null || domainName == null) {
+         missCount.incrementAndGet();
+         return null;
+      }
+      hitCount.incrementAndGet();
+      return new ResourceInternalInfo(Resources.getInstance(resourceId),
+                                      resourceClassInfo,
+                                      Id.<DomainId>from(domainId),
+                                      domainName);
+   }
+
+   /**
+    * Indexes the specified resolved resource, unless it has an external id.
+    */
+   public void putResourceInfo(ResourceInternalInfo resourceInfo) {
+      final Resource resource = resourceInfo.getResource();
+      if (resource.getExternalId() != null) {
+         return;
+      }
+      final ResourceClassInternalInfo resourceClassInfo = resourceInfo.getResourceClassInfo();
+      final long domainId = resourceInfo.getDomainId().getValue();
+      resourceClassInfos.putIfAbsent(resourceClassInfo.getResourceClassId(), resourceClassInfo);
+      domainNames.putIfAbsent(domainId, resourceInfo.getDomainName());
+
+      lock.writeLock().lock();
+      try {
+         long slot = resources.insert(resource.getId());
+         if (slot < 0) {
+            resources.clear();
+            slot = resources.insert(resource.getId());
+         }
+         resources.setValue(slot, RESOURCE_CLASS_ID, resourceClassInfo.getResourceClassId());
+         resources.setValue(slot, RESOURCE_DOMAIN_ID, domainId);
+         resources.setValue(slot, RESOURCE_ADDED_MILLIS, System.currentTimeMillis());
+      }
+      finally {
+         lock.writeLock().unlock();
+      }
+   }
+
+   public void removeResourceInfo(long resourceId) {
+      lock.writeLock().lock();
+      try {
+         resources.remove(resourceId);
+      }
+      finally {
+         lock.writeLock().unlock();
+      }
+   }
+
+   /**
+    * Returns the ids of the resources the specified accessor directly inherits from, or null if the accessor is
+    * not indexed, or its entry has expired.
+    */
+   public long[] getInheritedResourceIds(long accessorResourceId) {
+      lock.readLock().lock();
+      try {
+         final long slot = inheritors.find(accessorResourceId);
+         if (slot < 0 || __isExpired(inheritors.getValue(slot, INHERITED_ADDED_MILLIS))) {
+            missCount.incrementAndGet();
+            return null;
+         }
+         final long offset = inheritors.getValue(slot, INHERITED_OFFSET);
+         final long[] resourceIds = new long[(int) inheritors.getValue(slot, INHERITED_COUNT)];
+         for (int i = 0; i < resourceIds.length; i++) {
+            resourceIds[i] = inheritedResourceIds.get(offset + i);
+         }
+         hitCount.incrementAndGet();
+         return resourceIds;
+      }
+      finally {
+         lock.readLock().unlock();
+      }
+   }
+
+   /**
+    * Indexes the ids of the resources the specified accessor directly inherits from.
+    */
+   public void putInheritedResourceIds(long accessorResourceId, long[] resourceIds) {
+      if (resourceIds.length > inheritedResourceIds.length()) {
+         return;
+      }
+      lock.writeLock().lock();
+      try {
+         // the ranges of replaced entries are not reused, so both are cleared once either one runs out of room
+         if (inheritedResourceIdCount + resourceIds.length > inheritedResourceIds.length()
+               || (inheritors.isFull() && inheritors.find(accessorResourceId) < 0)) {
+            __clearInheritedResourceIds();
+         }
+         final long slot = inheritors.insert(accessorResourceId);
+         inheritors.setValue(slot, INHERITED_OFFSET, inheritedResourceIdCount);
+         inheritors.setValue(slot, INHERITED_COUNT, resourceIds.length);
+         inheritors.setValue(slot, INHERITED_ADDED_MILLIS, System.currentTimeMillis());
+         for (long resourceId : resourceIds) {
+            inheritedResourceIds.set(inheritedResourceIdCount++, resourceId);
+         }
+      }
+      finally {
+         lock.writeLock().unlock();
+      }
+   }
+
+   public void removeInheritedResourceIds(long accessorResourceId) {
+      lock.writeLock().lock();
+      try {
+         inheritors.remove(accessorResourceId);
+      }
+      finally {
+         lock.writeLock().unlock();
+      }
+   }
+
+   /**
+    * Removes the entries the specified change could have made obsolete.
+    */
+   public void onChange(ChangeLogEntry changeLogEntry) {
+      switch (changeLogEntry.getChangeType()) {
+         case RESOURCE: {
+            final Resource accessedResource = changeLogEntry.getAccessedResource();
+            if (accessedResource != null && accessedResource.getId() != null) {
+               removeResourceInfo(accessedResource.getId());
+            }
+            else {
+               __clearResources();
+            }
+            break;
+         }
+         case RESOURCE_PERMISSIONS: {
+            final Resource accessorResource = changeLogEntry.getAccessorResource();
+            if (accessorResource != null && accessorResource.getId() != null) {
+               removeInheritedResourceIds(accessorResource.getId());
+            }
+            else {
+               clearInheritedResourceIds();
+            }
+            break;
+         }
+         default:
+            // other changes do not affect resolved resources or inheritance
+      }
+   }
+
+   public void clear() {
+      lock.writeLock().lock();
+      try {
+         resources.clear();
+         __clearInheritedResourceIds();
+      }
+      finally {
+         lock.writeLock().unlock();
+      }
+   }
+
+   public void clearInheritedResourceIds() {
+      lock.writeLock().lock();
+      try {
+         __clearInheritedResourceIds();
+      }
+      finally {
+         lock.writeLock().unlock();
+      }
+   }
+
+   public int getResourceCount() {
+      lock.readLock().lock();
+      try {
+         return resources.size();
+      }
+      finally {
+         lock.readLock().unlock();
+      }
+   }
+
+   public int getAccessorCount() {
+      lock.readLock().lock();
+      try {
+         return inheritors.size();
+      }
+      finally {
+         lock.readLock().unlock();
+      }
+   }
+
+   /**
+    * Returns the number of bytes allocated outside of the heap for this index.
+    */
+   public long getAllocatedBytes() {
+      return resources.getAllocatedBytes() + inheritors.getAllocatedBytes() + inheritedResourceIds.length() * 8;
+   }
+
+   public long getHitCount() {
+      return hitCount.get();
+   }
+
+   public long getMissCount() {
+      return missCount.get();
+   }
+
+   private boolean __isExpired(long addedMillis) {
+      return System.currentTimeMillis() - addedMillis > maxAgeMillis;
+   }
+
+   private void __clearResources() {
+      lock.writeLock().lock();
+      try {
+         resources.clear();
+      }
+      finally {
+         lock.writeLock().unlock();
+      }
+   }
+
+   private void __clearInheritedResourceIds() {
+      inheritors.clear();
+      inheritedResourceIdCount = 0;
+   }
+}
@@ -0,0 +1,62 @@
+/*
+ * Copyright 2009-2016, Acciente LLC
+ *
+ * Acciente LLC licenses this file to you under the
+ * Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in
+ * writing, software distributed under the License is
+ * distributed on an "AS IS" BASIS, WITHOUT WARRANTIES
+ * OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.acciente.oacc.sql.internal;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.LongBuffer;
+
+/**
+ * A fixed-length array of longs in direct buffers, which takes no heap space however long it is.
+ * <p/>
+ * The buffers are allocated in pages, so the array is not limited to the 2GB of a single buffer; the memory is
+ * released once the array is garbage collected. Like a plain array, this class is not thread-safe.
+ */
+class OffHeapLongArray {
+   private static final int PAGE_SHIFT         = 27;     // 1GB pages
+   private static final int PAGE_SIZE_IN_LONGS = 1 << PAGE_SHIFT;
+   private static final int PAGE_MASK          = PAGE_SIZE_IN_LONGS - 1;
+
+   private final long         length;
+   private final LongBuffer[] pages;
+
+   OffHeapLongArray(long length) {
+      if (length < 0) {
+         throw new IllegalArgumentException("Length must not be negative, but was: " + length);
+      }
+      this.length = length;
+
+      pages = new LongBuffer[(int) ((length + PAGE_MASK) >>> PAGE_SHIFT)];
+      for (int i = 0; i < pages.length; i++) {
+         final long pageLength = Math.min(PAGE_SIZE_IN_LONGS, length - ((long) i << PAGE_SHIFT));
+         pages[i] = ByteBuffer.allocateDirect((int) (pageLength * 8)).order(ByteOrder.nativeOrder()).asLongBuffer();
+      }
+   }
+
+   long length() {
+      return length;
+   }
+
+   long get(long index) {
+      return pages[(int) (index >>> PAGE_SHIFT)].get((int) (index & PAGE_MASK));
+   }
+
+   void set(long index, long value) {
+      pages[(int) (index >>> PAGE_SHIFT)].put((int) (index & PAGE_MASK), value);
+   }
+}
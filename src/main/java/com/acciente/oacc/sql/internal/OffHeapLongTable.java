@@ -0,0 +1,217 @@
+/*
+ * Copyright 2009-2016, Acciente LLC
+ *
+ * Acciente LLC licenses this file to you under the
+ * Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in
+ * writing, software distributed under the License is
+ * distributed on an "AS IS" BASIS, WITHOUT WARRANTIES
+ * OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.acciente.oacc.sql.internal;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.LongBuffer;
+
+/**
+ * A map of non-negative long keys to records of a fixed number of long values, using open addressing over direct
+ * buffers, so that neither the keys nor the values take heap space or add to the work of the garbage collector,
+ * however many entries the table holds.
+ * <p/>
+ * The table is allocated for a maximum number of entries up front and does not grow. Its buffers are allocated in
+ * pages, so it is not limited to the 2GB of a single buffer; the memory is released once the table is garbage
+ * collected. Entries are addressed by their slot, which remains valid until the table is next modified.
+ * <p/>
+ * Lookups do not modify the table and may run concurrently with each other, but not with modifications.
+ */
+class OffHeapLongTable {
+   private static final long  NO_KEY                 = -1;
+   private static final float LOAD_FACTOR            = 0.75f;
+   private static final int   MAX_PAGE_SIZE_IN_LONGS = 1 << 27;     // 1GB
+
+   private final int          valueCount;
+   private final int          recordLongs;
+   private final int          maxSize;
+   private final long         slotMask;
+   private final int          pageShift;
+   private final long         pageMask;
+   private final LongBuffer[] pages;
+   private int                size;
+
+   /**
+    * @param maxSize    the maximum number of entries the table holds
+    * @param valueCount the number of long values held with each key
+    */
+   OffHeapLongTable(int maxSize, int valueCount) {
+      if (maxSize <= 0) {
+         throw new IllegalArgumentException("Maximum size must be positive, but was: " + maxSize);
+      }
+      if (valueCount <= 0) {
+         throw new IllegalArgumentException("Value count must be positive, but was: " + valueCount);
+      }
+      this.valueCount = valueCount;
+      this.recordLongs = valueCount + 1;
+      this.maxSize = maxSize;
+
+      long capacity = 16;
+      while (capacity * LOAD_FACTOR < maxSize) {
+         capacity <<= 1;
+      }
+      slotMask = capacity - 1;
+
+      long slotsPerPage = Long.highestOneBit(MAX_PAGE_SIZE_IN_LONGS / recordLongs);
+      if (slotsPerPage > capacity) {
+         slotsPerPage = capacity;
+      }
+      pageShift = Long.numberOfTrailingZeros(slotsPerPage);
+      pageMask = slotsPerPage - 1;
+
+      pages = new LongBuffer[(int) (capacity >>> pageShift)];
+      for (int i = 0; i < pages.length; i++) {
+         pages[i] = ByteBuffer.allocateDirect((int) (slotsPerPage * recordLongs * 8))
+               .order(ByteOrder.nativeOrder())
+               .asLongBuffer();
+      }
+      clear();
+   }
+
+   int size() {
+      return size;
+   }
+
+   int getMaxSize() {
+      return maxSize;
+   }
+
+   boolean isFull() {
+      return size >= maxSize;
+   }
+
+   /**
+    * Returns the number of bytes allocated outside of the heap for this table.
+    */
+   long getAllocatedBytes() {
+      return (slotMask + 1) * recordLongs * 8;
+   }
+
+   /**
+    * Returns the slot of the specified key, or -1 if the key is not in the table.
+    */
+   long find(long key) {
+      for (long slot = __hash(key) & slotMask; ; slot = (slot + 1) & slotMask) {
+         final long slotKey = __getKey(slot);
+         if (slotKey == key) {
+            return slot;
+         }
+         if (slotKey == NO_KEY) {
+            return -1;
+         }
+      }
+   }
+
+   /**
+    * Returns the slot of the specified key, adding the key with values of zero if it is not in the table yet, or
+    * -1 if the key is not in the table and the table is full.
+    */
+   long insert(long key) {
+      if (key < 0) {
+         throw new IllegalArgumentException("Key must not be negative: " + key);
+      }
+      long slot = __hash(key) & slotMask;
+      for (long slotKey = __getKey(slot); slotKey != NO_KEY; slotKey = __getKey(slot)) {
+         if (slotKey == key) {
+            return slot;
+         }
+         slot = (slot + 1) & slotMask;
+      }
+      if (isFull()) {
+         return -1;
+      }
+      final LongBuffer page = pages[(int) (slot >>> pageShift)];
+      final int index = (int) (slot & pageMask) * recordLongs;
+      page.put(index, key);
+      for (int i = 1; i < recordLongs; i++) {
+         page.put(index + i, 0);
+      }
+      size++;
+      return slot;
+   }
+
+   long getValue(long slot, int valueIndex) {
+      __assertValueIndex(valueIndex);
+      return pages[(int) (slot >>> pageShift)].get((int) (slot & pageMask) * recordLongs + 1 + valueIndex);
+   }
+
+   void setValue(long slot, int valueIndex, long value) {
+      __assertValueIndex(valueIndex);
+      pages[(int) (slot >>> pageShift)].put((int) (slot & pageMask) * recordLongs + 1 + valueIndex, value);
+   }
+
+   /**
+    * Removes the specified key, and returns true if it was in the table.
+    */
+   boolean remove(long key) {
+      long hole = find(key);
+      if (hole < 0) {
+         return false;
+      }
+      // shift back the entries that follow in the same probe sequence, so that lookups never stop at the hole
+      for (long slot = (hole + 1) & slotMask; ; slot = (slot + 1) & slotMask) {
+         final long slotKey = __getKey(slot);
+         if (slotKey == NO_KEY) {
+            break;
+         }
+         final long homeSlot = __hash(slotKey) & slotMask;
+         if (((slot - homeSlot) & slotMask) >= ((slot - hole) & slotMask)) {
+            __copyRecord(slot, hole);
+            hole = slot;
+         }
+      }
+      pages[(int) (hole >>> pageShift)].put((int) (hole & pageMask) * recordLongs, NO_KEY);
+      size--;
+      return true;
+   }
+
+   void clear() {
+      for (LongBuffer page : pages) {
+         for (int index = 0; index < page.capacity(); index += recordLongs) {
+            page.put(index, NO_KEY);
+         }
+      }
+      size = 0;
+   }
+
+   private long __getKey(long slot) {
+      return pages[(int) (slot >>> pageShift)].get((int) (slot & pageMask) * recordLongs);
+   }
+
+   private void __copyRecord(long fromSlot, long toSlot) {
+      final LongBuffer fromPage = pages[(int) (fromSlot >>> pageShift)];
+      final LongBuffer toPage = pages[(int) (toSlot >>> pageShift)];
+      final int fromIndex = (int) (fromSlot & pageMask) * recordLongs;
+      final int toIndex = (int) (toSlot & pageMask) * recordLongs;
+      for (int i = 0; i < recordLongs; i++) {
+         toPage.put(toIndex + i, fromPage.get(fromIndex + i));
+      }
+   }
+
+   private void __assertValueIndex(int valueIndex) {
+      if (valueIndex < 0 || valueIndex >= valueCount) {
+         throw new IndexOutOfBoundsException("Value index " + valueIndex + " out of range [0, " + valueCount + ")");
+      }
+   }
+
+   private static long __hash(long key) {
+      // ids are mostly consecutive, so spread them over the table
+      final long hash = key * 0x9E3779B97F4A7C15L;
+      return hash ^ (hash >>> 32);
+   }
+}
@@ -0,0 +1,326 @@
+/*
+ * Copyright 2009-2016, Acciente LLC
+ *
+ * Acciente LLC licenses this file to you under the
+ * Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in
+ * writing, software distributed under the License is
+ * distributed on an "AS IS" BASIS, WITHOUT WARRANTIES
+ * OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.acciente.oacc.sql.internal;
+
+import com.acciente.oacc.sql.ConnectionBulkhead;
+import com.acciente.oacc.sql.internal.persister.OperationTrace;
+import com.acciente.oacc.sql.internal.persister.SQLConnection;
+import com.acciente.oacc.sql.internal.persister.SQLEvents;
+
+import javax.sql.DataSource;
+import java.lang.reflect.Method;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs independent queries concurrently, each on its own connection from a data source, so that the latency of a
+ * group of queries is that of the slowest one rather than the sum of all of them.
+ * <p/>
+ * The number of queries running at the same time is bounded, across all access control contexts, so that the
+ * connection pool is not drained by a burst of permission checks. Virtual threads are used when the JVM supports
+ * them (Java 21 and later), otherwise a fixed pool of daemon threads.
+ * <p/>
+ * Since the caller of a batch already holds a connection, the connections of a batch are all reserved up front and
+ * without waiting, or not at all, in which case the caller runs the queries on its own connection instead; callers
+ * that each held a connection while waiting for more could otherwise exhaust the pool and stall one another.
+ */
+class ParallelQueryExecutor {
+   private static final int MAX_CONCURRENT_QUERIES = Math.max(4, 2 * Runtime.getRuntime().availableProcessors());
+
+   private static volatile ParallelQueryExecutor sharedInstance;
+
+   private final ExecutorService executorService;
+   private final Semaphore       concurrencyLimit;
+
+   /**
+    * A query that is executed on the connection it is given.
+    */
+   interface Query<T> {
+      T execute(SQLConnection connection);
+   }
+
+   private ParallelQueryExecutor(ExecutorService executorService, Semaphore concurrencyLimit) {
+      this.executorService = executorService;
+      this.concurrencyLimit = concurrencyLimit;
+   }
+
+   static ParallelQueryExecutor getSharedInstance() {
+      if (sharedInstance == null) {
+         synchronized (ParallelQueryExecutor.class) {
+            if (sharedInstance == null) {
+               sharedInstance = __createInstance(MAX_CONCURRENT_QUERIES);
+            }
+         }
+      }
+      return sharedInstance;
+   }
+
+   /**
+    * Returns a batch that runs each of the specified number of queries concurrently on its own connection from the
+    * specified data source, whose statements have the specified timeout, or null if the connections could not all be
+    * reserved right away, with the specified bulkhead, if any, and within the bound of this executor.
+    * <p/>
+    * The connections are checked out from the data source before this method returns; since a reserved connection
+    * is only waited for if the pool has fewer connections than the bulkhead admits, the pool should be sized at least
+    * to the capacity of the bulkhead.
+    */
+   Batch newBatch(DataSource dataSource,
+                  ConnectionBulkhead connectionBulkhead,
+                  int queryTimeoutSeconds,
+                  int queryCount) {
+      if (!concurrencyLimit.tryAcquire(queryCount)) {
+         return null;
+      }
+      if (connectionBulkhead != null && !connectionBulkhead.tryAcquire(queryCount)) {
+         concurrencyLimit.release(queryCount);
+         return null;
+      }
+
+      final List<SQLConnection> reservedConnections = new ArrayList<>(queryCount);
+      try {
+         while (reservedConnections.size() < queryCount) {
+            final SQLConnection reservedConnection = SQLConnection.getReservedConnection(dataSource,
+                                                                                         connectionBulkhead);
+            reservedConnection.setQueryTimeoutSeconds(queryTimeoutSeconds);
+            reservedConnections.add(reservedConnection);
+         }
+      }
+      catch (SQLException | RuntimeException e) {
+         // the pool could not provide all connections, so the caller runs the queries on its own connection instead
+         if (connectionBulkhead != null) {
+            for (int i = reservedConnections.size(); i < queryCount; i++) {
+               connectionBulkhead.release();
+            }
+         }
+         for (int i = reservedConnections.size(); i < queryCount; i++) {
+            concurrencyLimit.release();
+         }
+         for (SQLConnection reservedConnection : reservedConnections) {
+            __releaseConnection(reservedConnection);
+         }
+         return null;
+      }
+
+      return new Batch(this, reservedConnections, null);
+   }
+
+   /**
+    * Returns a batch that runs each submitted query on the specified connection, in the calling thread and only once
+    * its result is requested, i.e. exactly as if the queries had been called directly.
+    */
+   static Batch newSequentialBatch(SQLConnection connection) {
+      return new Batch(null, null, connection);
+   }
+
+   private static ParallelQueryExecutor __createInstance(int maxConcurrentQueries) {
+      final ExecutorService virtualThreadExecutorService = __createVirtualThreadExecutorService();
+
+      if (virtualThreadExecutorService != null) {
+         return new ParallelQueryExecutor(virtualThreadExecutorService, new Semaphore(maxConcurrentQueries));
+      }
+
+      final ThreadPoolExecutor threadPoolExecutor
+            = new ThreadPoolExecutor(maxConcurrentQueries,
+                                     maxConcurrentQueries,
+                                     60, TimeUnit.SECONDS,
+                                     new LinkedBlockingQueue<Runnable>(),
+                                     new ThreadFactory() {
+                                        private final AtomicInteger threadCount = new AtomicInteger();
+
+                                        @Override
+                                        public Thread newThread(Runnable runnable) {
+                                           final Thread thread
+                                                 = new Thread(runnable,
+                                                              "oacc-parallel-query-" + threadCount.incrementAndGet());
+                                           thread.setDaemon(true);
+                                           return thread;
+                                        }
+                                     });
+      threadPoolExecutor.allowCoreThreadTimeOut(true);
+
+      // the pool has a thread for each query admitted by the limit, so that a query never waits for a thread while
+      // holding its connection
+      return new ParallelQueryExecutor(threadPoolExecutor, new Semaphore(maxConcurrentQueries));
+   }
+
+   // looked up reflectively, because the sources have to compile for Java 7
+   private static ExecutorService __createVirtualThreadExecutorService() {
+      try {
+         final Method method = java.util.concurrent.Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+         return (ExecutorService) method.invoke(null);
+      }
+      catch (Exception e) {
+         return null;
+      }
+   }
+
+   // closes a reserved connection, which releases its reservation with the bulkhead, and frees its slot in the limit
+   private void __releaseConnection(SQLConnection reservedConnection) {
+      try {
+         reservedConnection.close();
+      }
+      catch (SQLException e) {
+         // the query's result, or failure, is what matters to the caller
+      }
+      finally {
+         concurrencyLimit.release();
+      }
+   }
+
+   /**
+    * A group of queries whose results are collected by the caller, possibly after doing other work in between.
+    * <p/>
+    * Like the access control context that uses it, a batch must only be used by a single thread.
+    */
+   static class Batch {
+      private final ParallelQueryExecutor  parallelQueryExecutor;
+      private final List<SQLConnection>    reservedConnections;
+      private final SQLConnection          connection;
+      private final List<Future<?>>        futures;
+      private final List<ReservedQuery<?>> reservedQueries;
+
+      private Batch(ParallelQueryExecutor parallelQueryExecutor,
+                    List<SQLConnection> reservedConnections,
+                    SQLConnection connection) {
+         this.parallelQueryExecutor = parallelQueryExecutor;
+         this.reservedConnections = reservedConnections;
+         this.connection = connection;
+         this.futures = new ArrayList<>();
+         this.reservedQueries = new ArrayList<>();
+      }
+
+      <T> Future<T> submit(final Query<T> query) {
+         final Future<T> future;
+
+         if (parallelQueryExecutor == null) {
+            future = new FutureTask<>(new Callable<T>() {
+               @Override
+               public T call() {
+                  return query.execute(connection);
+               }
+            });
+         }
+         else {
+            if (reservedConnections.isEmpty()) {
+               throw new IllegalStateException("No reserved connection left for another query in this batch");
+            }
+            final ReservedQuery<T> reservedQuery = new ReservedQuery<>(query, reservedConnections.remove(0));
+            reservedQueries.add(reservedQuery);
+            future = parallelQueryExecutor.executorService.submit(reservedQuery);
+         }
+
+         futures.add(future);
+         return future;
+      }
+
+      <T> T getResult(Future<T> future) {
+         if (parallelQueryExecutor == null) {
+            // a sequential query runs on the caller's connection when its result is needed, and only then
+            ((FutureTask<T>) future).run();
+         }
+
+         try {
+            return future.get();
+         }
+         catch (ExecutionException e) {
+            final Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+               throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+               throw (Error) cause;
+            }
+            throw new RuntimeException(cause);
+         }
+         catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+         }
+      }
+
+      /**
+       * Discards the results of the queries submitted to this batch; queries that have not started yet are not run,
+       * and their connections are released right away, as are the connections reserved for queries never submitted.
+       */
+      void cancel() {
+         for (Future<?> future : futures) {
+            future.cancel(false);
+         }
+         for (ReservedQuery<?> reservedQuery : reservedQueries) {
+            reservedQuery.discard();
+         }
+         if (parallelQueryExecutor != null) {
+            for (SQLConnection reservedConnection : reservedConnections) {
+               parallelQueryExecutor.__releaseConnection(reservedConnection);
+            }
+            reservedConnections.clear();
+         }
+      }
+
+      // a query that runs on a connection reserved for it, which is released exactly once, either after the query ran
+      // or when the query is discarded before it started
+      private class ReservedQuery<T> implements Callable<T> {
+         private final Query<T>       query;
+         private final SQLConnection  reservedConnection;
+         private final OperationTrace operationTrace;
+         private final AtomicBoolean  claimed;
+
+         private ReservedQuery(Query<T> query, SQLConnection reservedConnection) {
+            this.query = query;
+            this.reservedConnection = reservedConnection;
+            // the query runs on behalf of the caller's operation, which may be traced
+            this.operationTrace = SQLEvents.getCurrentOperationTrace();
+            this.claimed = new AtomicBoolean();
+         }
+
+         @Override
+         public T call() {
+            if (!claimed.compareAndSet(false, true)) {
+               return null;
+            }
+            SQLEvents.setCurrentOperationTrace(operationTrace);
+            try {
+               return query.execute(reservedConnection);
+            }
+            finally {
+               SQLEvents.setCurrentOperationTrace(null);
+               parallelQueryExecutor.__releaseConnection(reservedConnection);
+            }
+         }
+
+         private void discard() {
+            if (claimed.compareAndSet(false, true)) {
+               parallelQueryExecutor.__releaseConnection(reservedConnection);
+            }
+         }
+      }
+   }
+}
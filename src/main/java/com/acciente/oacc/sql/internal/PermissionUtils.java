@@ -0,0 +1,240 @@
+/*
+ * Copyright 2009-2016, Acciente LLC
+ *
+ * Acciente LLC licenses this file to you under the
+ * Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in
+ * writing, software distributed under the License is
+ * distributed on an "AS IS" BASIS, WITHOUT WARRANTIES
+ * OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.acciente.oacc.sql.internal;
+
+import com.acciente.oacc.DomainCreatePermission;
+import com.acciente.oacc.DomainCreatePermissions;
+import com.acciente.oacc.DomainPermission;
+import com.acciente.oacc.DomainPermissions;
+import com.acciente.oacc.ResourceCreatePermission;
+import com.acciente.oacc.ResourceCreatePermissions;
+import com.acciente.oacc.ResourcePermission;
+import com.acciente.oacc.ResourcePermissions;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Static helpers that normalize and collapse the permission sets passed in and out of the access control context.
+ * <p/>
+ * These run on every permission-centric API call, so they avoid the pairwise {@code isGrantableFrom()}
+ * comparison and instead look up the grantable counterpart of each permission in the (hash-based) set,
+ * which keeps collapsing linear in the size of the set.
+ */
+public class PermissionUtils {
+   private PermissionUtils() {
+   }
+
+   public static Set<ResourcePermission> normalizeResourcePermissions(Set<ResourcePermission> resourcePermissions) {
+      final Set<ResourcePermission> normalizedPermissions = newHashSet(resourcePermissions.size());
+      for (ResourcePermission resourcePermission : resourcePermissions) {
+         normalizedPermissions.add(ResourcePermissions.getInstance(resourcePermission));
+      }
+      return normalizedPermissions;
+   }
+
+   public static Set<ResourceCreatePermission> normalizeResourceCreatePermissions(Set<ResourceCreatePermission> resourceCreatePermissions) {
+      final Set<ResourceCreatePermission> normalizedPermissions = newHashSet(resourceCreatePermissions.size());
+      for (ResourceCreatePermission resourceCreatePermission : resourceCreatePermissions) {
+         normalizedPermissions.add(ResourceCreatePermissions.getInstance(resourceCreatePermission));
+      }
+      return normalizedPermissions;
+   }
+
+   public static Set<DomainPermission> normalizeDomainPermissions(Set<DomainPermission> domainPermissions) {
+      final Set<DomainPermission> normalizedPermissions = newHashSet(domainPermissions.size());
+      for (DomainPermission domainPermission : domainPermissions) {
+         normalizedPermissions.add(DomainPermissions.getInstance(domainPermission));
+      }
+      return normalizedPermissions;
+   }
+
+   public static Set<DomainCreatePermission> normalizeDomainCreatePermissions(Set<DomainCreatePermission> domainCreatePermissions) {
+      final Set<DomainCreatePermission> normalizedPermissions = newHashSet(domainCreatePermissions.size());
+      for (DomainCreatePermission domainCreatePermission : domainCreatePermissions) {
+         normalizedPermissions.add(DomainCreatePermissions.getInstance(domainCreatePermission));
+      }
+      return normalizedPermissions;
+   }
+
+   /**
+    * Returns a copy of the specified set of normalized resource permissions, without any permission
+    * that is implied by its grantable counterpart also being in the set.
+    *
+    * @param resourcePermissions a set of normalized resource permissions
+    * @return the collapsed set of resource permissions
+    */
+   public static Set<ResourcePermission> collapseResourcePermissions(Set<ResourcePermission> resourcePermissions) {
+      final Set<ResourcePermission> collapsedPermissions = newHashSet(resourcePermissions.size());
+
+      for (ResourcePermission permission : resourcePermissions) {
+         if (permission.isWithGrantOption()
+               || !resourcePermissions.contains(ResourcePermissions.getInstanceWithGrantOption(permission.getPermissionName()))) {
+            collapsedPermissions.add(permission);
+         }
+      }
+
+      return collapsedPermissions;
+   }
+
+   /**
+    * Returns a copy of the specified set of normalized resource create permissions, without any permission
+    * that is implied by a grantable counterpart also being in the set.
+    *
+    * @param resourceCreatePermissions a set of normalized resource create permissions
+    * @return the collapsed set of resource create permissions
+    */
+   public static Set<ResourceCreatePermission> collapseResourceCreatePermissions(Set<ResourceCreatePermission> resourceCreatePermissions) {
+      final Set<ResourceCreatePermission> collapsedPermissions = newHashSet(resourceCreatePermissions.size());
+
+      for (ResourceCreatePermission permission : resourceCreatePermissions) {
+         if (!__isImpliedByGrantableResourceCreatePermission(permission, resourceCreatePermissions)) {
+            collapsedPermissions.add(permission);
+         }
+      }
+
+      return collapsedPermissions;
+   }
+
+   /**
+    * Returns a copy of the specified set of normalized domain permissions, without any permission
+    * that is implied by its grantable counterpart also being in the set.
+    *
+    * @param domainPermissions a set of normalized domain permissions
+    * @return the collapsed set of domain permissions
+    */
+   public static Set<DomainPermission> collapseDomainPermissions(Set<DomainPermission> domainPermissions) {
+      final Set<DomainPermission> collapsedPermissions = newHashSet(domainPermissions.size());
+
+      for (DomainPermission permission : domainPermissions) {
+         if (permission.isWithGrantOption()
+               || !domainPermissions.contains(DomainPermissions.getInstanceWithGrantOption(permission.getPermissionName()))) {
+            collapsedPermissions.add(permission);
+         }
+      }
+
+      return collapsedPermissions;
+   }
+
+   /**
+    * Returns a copy of the specified set of normalized domain create permissions, without any permission
+    * that is implied by a grantable counterpart also being in the set.
+    *
+    * @param domainCreatePermissions a set of normalized domain create permissions
+    * @return the collapsed set of domain create permissions
+    */
+   public static Set<DomainCreatePermission> collapseDomainCreatePermissions(Set<DomainCreatePermission> domainCreatePermissions) {
+      final Set<DomainCreatePermission> collapsedPermissions = newHashSet(domainCreatePermissions.size());
+
+      for (DomainCreatePermission permission : domainCreatePermissions) {
+         if (!__isImpliedByGrantableDomainCreatePermission(permission, domainCreatePermissions)) {
+            collapsedPermissions.add(permission);
+         }
+      }
+
+      return collapsedPermissions;
+   }
+
+   @SafeVarargs
+   public static <T> Set<T> getSetWithoutNullsOrDuplicates(T firstElement, T... elements) {
+      // not null constraint
+      if (elements == null) {
+         throw new NullPointerException("An array or a sequence of arguments are required, but none were specified");
+      }
+
+      final Set<T> resultSet = newHashSet(elements.length + 1);
+      resultSet.add(firstElement);
+
+      for (T element : elements) {
+         // non-null elements constraint
+         if (element == null) {
+            throw new NullPointerException("A " + elements.getClass().getSimpleName()
+                                                 + " argument (or sequence of varargs) without null elements is required, but received: "
+                                                 + Arrays.asList(elements));
+         }
+
+         // duplicate elements get ignored silently
+         if (!resultSet.add(element)) {
+            throw new IllegalArgumentException("Duplicate element: " + element);
+         }
+      }
+
+      return resultSet;
+   }
+
+   /**
+    * Returns a hash set that can hold the specified number of elements without being rehashed
+    * (the HashSet constructor takes a capacity, not an expected size).
+    */
+   static <T> Set<T> newHashSet(int expectedSize) {
+      return new HashSet<>(expectedSize * 4 / 3 + 1);
+   }
+
+   // private helper methods
+
+   private static boolean __isImpliedByGrantableResourceCreatePermission(ResourceCreatePermission permission,
+                                                                         Set<ResourceCreatePermission> resourceCreatePermissions) {
+      if (permission.isSystemPermission()) {
+         return !permission.isWithGrantOption()
+               && resourceCreatePermissions.contains(ResourceCreatePermissions.getInstanceWithGrantOption(permission.getPermissionName()));
+      }
+
+      final String postCreatePermissionName = permission.getPostCreateResourcePermission().getPermissionName();
+
+      // a grantable create permission whose post-create permission is also grantable implies all others
+      final ResourceCreatePermission fullyGrantablePermission
+            = ResourceCreatePermissions.getInstanceWithGrantOption(ResourcePermissions.getInstanceWithGrantOption(postCreatePermissionName));
+      if (!permission.equals(fullyGrantablePermission) && resourceCreatePermissions.contains(fullyGrantablePermission)) {
+         return true;
+      }
+
+      // a grantable create permission whose post-create permission is not grantable only implies the ungrantable one
+      if (!permission.getPostCreateResourcePermission().isWithGrantOption() && !permission.isWithGrantOption()) {
+         return resourceCreatePermissions.contains(
+               ResourceCreatePermissions.getInstanceWithGrantOption(ResourcePermissions.getInstance(postCreatePermissionName)));
+      }
+
+      return false;
+   }
+
+   private static boolean __isImpliedByGrantableDomainCreatePermission(DomainCreatePermission permission,
+                                                                       Set<DomainCreatePermission> domainCreatePermissions) {
+      if (permission.isSystemPermission()) {
+         return !permission.isWithGrantOption()
+               && domainCreatePermissions.contains(DomainCreatePermissions.getInstanceWithGrantOption(permission.getPermissionName()));
+      }
+
+      final String postCreatePermissionName = permission.getPostCreateDomainPermission().getPermissionName();
+
+      // a grantable create permission whose post-create permission is also grantable implies all others
+      final DomainCreatePermission fullyGrantablePermission
+            = DomainCreatePermissions.getInstanceWithGrantOption(DomainPermissions.getInstanceWithGrantOption(postCreatePermissionName));
+      if (!permission.equals(fullyGrantablePermission) && domainCreatePermissions.contains(fullyGrantablePermission)) {
+         return true;
+      }
+
+      // a grantable create permission whose post-create permission is not grantable only implies the ungrantable one
+      if (!permission.getPostCreateDomainPermission().isWithGrantOption() && !permission.isWithGrantOption()) {
+         return domainCreatePermissions.contains(
+               DomainCreatePermissions.getInstanceWithGrantOption(DomainPermissions.getInstance(postCreatePermissionName)));
+      }
+
+      return false;
+   }
+}
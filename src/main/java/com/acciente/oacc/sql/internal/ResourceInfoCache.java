@@ -0,0 +1,119 @@
+/*
+ * Copyright 2009-2016, Acciente LLC
+ *
+ * Acciente LLC licenses this file to you under the
+ * Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in
+ * writing, software distributed under the License is
+ * distributed on an "AS IS" BASIS, WITHOUT WARRANTIES
+ * OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.acciente.oacc.sql.internal;
+
+import com.acciente.oacc.Resource;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A bounded, least-recently-used cache of resolved resources and their resource class and domain, keyed by
+ * resource id and by external id.
+ * <p/>
+ * The resource class and domain of a resource never change, but a resource may be deleted, or get an external id,
+ * through another access control context, so entries are only served for a limited time after they were added.
+ * <p/>
+ * Like the access control context that owns it, this class is not thread-safe.
+ */
+class ResourceInfoCache {
+   private final int                   maxSize;
+   private final long                  maxAgeMillis;
+   private final Map<Long, CacheEntry> entriesByResourceId;
+   private final Map<String, Long>     resourceIdsByExternalId;
+
+   ResourceInfoCache(int maxSize, long maxAgeMillis) {
+      this.maxSize = maxSize;
+      this.maxAgeMillis = maxAgeMillis;
+      this.entriesByResourceId = new LinkedHashMap<Long, CacheEntry>(16, 0.75f, true) {
+         @Override
+         protected boolean removeEldestEntry(Map.Entry<Long, CacheEntry> eldest) {
+            if (size() > ResourceInfoCache.this.maxSize) {
+               __removeExternalId(eldest.getValue().resourceInfo);
+               return true;
+            }
+            return false;
+         }
+      };
+      this.resourceIdsByExternalId = new HashMap<>();
+   }
+
+   ResourceInternalInfo getByResourceId(long resourceId) {
+      final CacheEntry entry = entriesByResourceId.get(resourceId);
+
+      if (entry == null) {
+         return null;
+      }
+      if (System.currentTimeMillis() - entry.addedMillis > maxAgeMillis) {
+         remove(resourceId);
+         return null;
+      }
+      return entry.resourceInfo;
+   }
+
+   ResourceInternalInfo getByExternalId(String externalId) {
+      final Long resourceId = resourceIdsByExternalId.get(externalId);
+
+      if (resourceId == null) {
+         return null;
+      }
+      return getByResourceId(resourceId);
+   }
+
+   void put(ResourceInternalInfo resourceInfo) {
+      final Resource resource = resourceInfo.getResource();
+
+      remove(resource.getId());
+      entriesByResourceId.put(resource.getId(), new CacheEntry(resourceInfo, System.currentTimeMillis()));
+      if (resource.getExternalId() != null) {
+         resourceIdsByExternalId.put(resource.getExternalId(), resource.getId());
+      }
+   }
+
+   void remove(long resourceId) {
+      final CacheEntry entry = entriesByResourceId.remove(resourceId);
+
+      if (entry != null) {
+         __removeExternalId(entry.resourceInfo);
+      }
+   }
+
+   void clear() {
+      entriesByResourceId.clear();
+      resourceIdsByExternalId.clear();
+   }
+
+   private void __removeExternalId(ResourceInternalInfo resourceInfo) {
+      final String externalId = resourceInfo.getResource().getExternalId();
+
+      if (externalId != null) {
+         resourceIdsByExternalId.remove(externalId);
+      }
+   }
+
+   private static class CacheEntry {
+      private final ResourceInternalInfo resourceInfo;
+      private final long                 addedMillis;
+
+      private CacheEntry(ResourceInternalInfo resourceInfo, long addedMillis) {
+         this.resourceInfo = resourceInfo;
+         this.addedMillis = addedMillis;
+      }
+   }
+}
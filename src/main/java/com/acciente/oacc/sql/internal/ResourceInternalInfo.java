@@ -0,0 +1,55 @@
+/*
+ * Copyright 2009-2016, Acciente LLC
+ *
+ * Acciente LLC licenses this file to you under the
+ * Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in
+ * writing, software distributed under the License is
+ * distributed on an "AS IS" BASIS, WITHOUT WARRANTIES
+ * OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.acciente.oacc.sql.internal;
+
+import com.acciente.oacc.Resource;
+import com.acciente.oacc.sql.internal.persister.id.DomainId;
+import com.acciente.oacc.sql.internal.persister.id.Id;
+
+public class ResourceInternalInfo {
+   private final Resource                  resource;
+   private final ResourceClassInternalInfo resourceClassInfo;
+   private final long                      domainId;
+   private final String                    domainName;
+
+   public ResourceInternalInfo(Resource resource,
+                               ResourceClassInternalInfo resourceClassInfo,
+                               Id<DomainId> domainId,
+                               String domainName) {
+      this.resource = resource;
+      this.resourceClassInfo = resourceClassInfo;
+      this.domainId = domainId.getValue();
+      this.domainName = domainName;
+   }
+
+   public Resource getResource() {
+      return resource;
+   }
+
+   public ResourceClassInternalInfo getResourceClassInfo() {
+      return resourceClassInfo;
+   }
+
+   public Id<DomainId> getDomainId() {
+      return Id.from(domainId);
+   }
+
+   public String getDomainName() {
+      return domainName;
+   }
+}
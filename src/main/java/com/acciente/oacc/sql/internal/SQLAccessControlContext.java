@@ -19,6 +19,8 @@ package com.acciente.oacc.sql.internal;
 
 import com.acciente.oacc.AccessControlContext;
 import com.acciente.oacc.AuthenticationProvider;
+import com.acciente.oacc.CapabilityToken;
+import com.acciente.oacc.CapabilityTokenVerifier;
 import com.acciente.oacc.Credentials;
 import com.acciente.oacc.DomainCreatePermission;
 import com.acciente.oacc.DomainCreatePermissions;
@@ -27,6 +29,7 @@ import com.acciente.oacc.DomainPermissions;
 import com.acciente.oacc.NotAuthenticatedException;
 import com.acciente.oacc.NotAuthorizedException;
 import com.acciente.oacc.OaccException;
+import com.acciente.oacc.PermissionCheck;
 import com.acciente.oacc.Resource;
 import com.acciente.oacc.ResourceClassInfo;
 import com.acciente.oacc.ResourceCreatePermission;
@@ -34,7 +37,22 @@ import com.acciente.oacc.ResourceCreatePermissions;
 import com.acciente.oacc.ResourcePermission;
 import com.acciente.oacc.ResourcePermissions;
 import com.acciente.oacc.Resources;
+import com.acciente.oacc.sql.ChangeLogEntry;
+import com.acciente.oacc.sql.ChangeLogEntry.ChangeType;
+import com.acciente.oacc.sql.ChangeLogListener;
+import com.acciente.oacc.sql.ConnectionBulkhead;
+import com.acciente.oacc.sql.ConnectionScope;
+import com.acciente.oacc.sql.ReadRoutingPolicy;
+import com.acciente.oacc.sql.RedundantGrant;
+import com.acciente.oacc.sql.RedundantGrantReport;
+import com.acciente.oacc.sql.ResourceFilter;
+import com.acciente.oacc.sql.SQLEventListener;
+import com.acciente.oacc.sql.SQLGrantFilter;
+import com.acciente.oacc.sql.SlowOperation;
+import com.acciente.oacc.sql.SlowOperationRecorder;
+import com.acciente.oacc.sql.StatementTimeoutPolicy;
 import com.acciente.oacc.sql.SQLProfile;
+import com.acciente.oacc.sql.internal.persister.ChangeLogPersister;
 import com.acciente.oacc.sql.internal.persister.DomainPersister;
 import com.acciente.oacc.sql.internal.persister.GrantDomainCreatePermissionPostCreateSysPersister;
 import com.acciente.oacc.sql.internal.persister.GrantDomainCreatePermissionSysPersister;
@@ -58,6 +76,7 @@ import com.acciente.oacc.sql.internal.persister.NonRecursiveGrantResourceCreateP
 import com.acciente.oacc.sql.internal.persister.NonRecursiveGrantResourcePermissionPersister;
 import com.acciente.oacc.sql.internal.persister.NonRecursiveGrantResourcePermissionSysPersister;
 import com.acciente.oacc.sql.internal.persister.NonRecursiveResourcePersister;
+import com.acciente.oacc.sql.internal.persister.OperationTrace;
 import com.acciente.oacc.sql.internal.persister.RecursiveDomainPersister;
 import com.acciente.oacc.sql.internal.persister.RecursiveGrantDomainCreatePermissionPostCreateSysPersister;
 import com.acciente.oacc.sql.internal.persister.RecursiveGrantDomainCreatePermissionSysPersister;
@@ -70,10 +89,13 @@ import com.acciente.oacc.sql.internal.persister.RecursiveGrantResourceCreatePerm
 import com.acciente.oacc.sql.internal.persister.RecursiveGrantResourcePermissionPersister;
 import com.acciente.oacc.sql.internal.persister.RecursiveGrantResourcePermissionSysPersister;
 import com.acciente.oacc.sql.internal.persister.RecursiveResourcePersister;
+import com.acciente.oacc.sql.internal.persister.RedundantGrantPersister;
 import com.acciente.oacc.sql.internal.persister.ResourceClassPermissionPersister;
 import com.acciente.oacc.sql.internal.persister.ResourceClassPersister;
+import com.acciente.oacc.sql.internal.persister.ResourceFilterPersister;
 import com.acciente.oacc.sql.internal.persister.ResourcePersister;
 import com.acciente.oacc.sql.internal.persister.SQLConnection;
+import com.acciente.oacc.sql.internal.persister.SQLEvents;
 import com.acciente.oacc.sql.internal.persister.SQLStrings;
 import com.acciente.oacc.sql.internal.persister.id.DomainId;
 import com.acciente.oacc.sql.internal.persister.id.Id;
@@ -83,27 +105,52 @@ import com.acciente.oacc.sql.internal.persister.id.ResourcePermissionId;
 
 import javax.sql.DataSource;
 import java.io.Serializable;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
 import java.sql.Connection;
 import java.sql.SQLException;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
 
 @SuppressWarnings({"UnusedAssignment", "ThrowFromFinallyBlock"})
 public class SQLAccessControlContext implements AccessControlContext, Serializable {
    private static final long serialVersionUID = 1L;
 
    // services
-   private transient DataSource dataSource;
-   private transient Connection connection;
+   private transient DataSource       dataSource;
+   private transient Connection       connection;
+   private transient List<DataSource> readDataSources;   // queries are routed to these, if specified
+   private transient SQLConnection    scopedConnection;  // pinned by an open connection scope, if any
+   private transient SQLConnection    primaryConnection; // the primary connection in use, if any
 
    // state
    private AuthenticationProvider authenticationProvider;
    private boolean                hasDefaultAuthenticationProvider;
+   private boolean                changeLogEnabled;
+   private boolean                parallelQueriesEnabled;
+   private StatementTimeoutPolicy statementTimeoutPolicy;
+   private transient ConnectionBulkhead connectionBulkhead;   // bounds the connections held, if specified
+   private transient SQLGrantFilter     grantFilter;          // rules out grants before querying them, if specified
+   private transient OffHeapIndex       offHeapIndex;         // shares resolved resources and inheritance off heap, if specified
+   private transient List<ChangeLogEntry> offHeapIndexChangesInTransaction; // evicted again once the transaction ends
+   private ReadRoutingPolicy      readRoutingPolicy;
+   private transient int          readDataSourceIndex;
+   private transient boolean      mutationTransactionStarted;   // by the mutation in progress, if any
+   private transient boolean      mutationFailed;               // the mutation in progress, if any, has failed
+   private transient long         lastPrimaryConnectionMillis;
 
    // The resource that authenticated in this session with a call to one of the authenticate() methods
    private Resource authenticatedResource;
@@ -116,6 +163,28 @@ public class SQLAccessControlContext implements AccessControlContext, Serializab
    private Resource defensiveCopyOfSessionResource;
    private String   sessionResourceDomainName;
 
+   // A snapshot of the session resource's effective domain permissions, by domain name and expanded over descendant
+   // domains, which answers the super-user prechecks of most authorized operations without a query, if enabled with
+   // a maximum age. It is taken on the first check after authentication or impersonation, discarded on changes
+   // through this context that could affect it, and on such changes through other contexts delivered to the change
+   // log listener of this context, and retaken after the maximum age to pick up any other changes
+   private long                                         sessionDomainPermissionsSnapshotMaxAgeMillis; // 0 if disabled
+   private transient Map<String, Set<DomainPermission>> sessionDomainPermissionsSnapshot;
+   private transient long                               sessionDomainPermissionsSnapshotMillis;
+   private transient long                               sessionDomainPermissionsSnapshotChangeCount;
+   // incremented by the change log listener, on the poller's thread, for changes that could affect the snapshot
+   private transient volatile long                      domainPermissionsChangeCount;
+
+   // resolved resources with their resource class and domain, so that each costs at most one query while cached, if
+   // enabled with a maximum size; entries are removed on changes through this context, and on changes through other
+   // contexts delivered to the change log listener of this context, and expire to pick up any other deletions
+   private int                         resourceInfoCacheMaxSize;     // 0 if disabled
+   private long                        resourceInfoCacheMaxAgeMillis;
+   private transient ResourceInfoCache resourceInfoCache;
+
+   // the listener for changes through other contexts, if one was requested
+   private transient volatile SessionChangeLogListener changeLogListener;
+
    // resource ID constants
    private static final Long SYSTEM_RESOURCE_ID = Long.valueOf(0);
 
@@ -170,6 +239,9 @@ public class SQLAccessControlContext implements AccessControlContext, Serializab
    private final GrantGlobalResourcePermissionSysPersister           grantGlobalResourcePermissionSysPersister;
    private final GrantResourcePermissionPersister                    grantResourcePermissionPersister;
    private final GrantGlobalResourcePermissionPersister              grantGlobalResourcePermissionPersister;
+   private final ChangeLogPersister                                  changeLogPersister;
+   private final ResourceFilterPersister                             resourceFilterPersister;
+   private final RedundantGrantPersister                             redundantGrantPersister;
 
    public static AccessControlContext getAccessControlContext(Connection connection,
                                                               String schemaName,
@@ -201,6 +273,35 @@ public class SQLAccessControlContext implements AccessControlContext, Serializab
       return new SQLAccessControlContext(dataSource, schemaName, sqlProfile, authenticationProvider);
    }
 
+   public static AccessControlContext getAccessControlContext(DataSource primaryDataSource,
+                                                              List<DataSource> readDataSources,
+                                                              String schemaName,
+                                                              SQLProfile sqlProfile,
+                                                              ReadRoutingPolicy readRoutingPolicy) {
+      __assertDataSourceSpecified(primaryDataSource);
+      __assertReadDataSourcesSpecified(readDataSources);
+      __assertReadRoutingPolicySpecified(readRoutingPolicy);
+      final SQLAccessControlContext sqlAccessControlContext
+            = new SQLAccessControlContext(primaryDataSource, schemaName, sqlProfile);
+      sqlAccessControlContext.__setReadDataSources(readDataSources, readRoutingPolicy);
+      return sqlAccessControlContext;
+   }
+
+   public static AccessControlContext getAccessControlContext(DataSource primaryDataSource,
+                                                              List<DataSource> readDataSources,
+                                                              String schemaName,
+                                                              SQLProfile sqlProfile,
+                                                              ReadRoutingPolicy readRoutingPolicy,
+                                                              AuthenticationProvider authenticationProvider) {
+      __assertDataSourceSpecified(primaryDataSource);
+      __assertReadDataSourcesSpecified(readDataSources);
+      __assertReadRoutingPolicySpecified(readRoutingPolicy);
+      final SQLAccessControlContext sqlAccessControlContext
+            = new SQLAccessControlContext(primaryDataSource, schemaName, sqlProfile, authenticationProvider);
+      sqlAccessControlContext.__setReadDataSources(readDataSources, readRoutingPolicy);
+      return sqlAccessControlContext;
+   }
+
    /**
     * @deprecated  As of v2.0.0-rc.6; no replacement method necessary because unserializable fields are now marked as transient
     */
@@ -209,6 +310,7 @@ public class SQLAccessControlContext implements AccessControlContext, Serializab
    }
 
    public static void postDeserialize(AccessControlContext accessControlContext, Connection connection) {
+      accessControlContext = __unwrapObservedAccessControlContext(accessControlContext);
       if (accessControlContext instanceof SQLAccessControlContext) {
          SQLAccessControlContext sqlAccessControlContext = (SQLAccessControlContext) accessControlContext;
          sqlAccessControlContext.__postDeserialize(connection);
@@ -216,12 +318,212 @@ public class SQLAccessControlContext implements AccessControlContext, Serializab
    }
 
    public static void postDeserialize(AccessControlContext accessControlContext, DataSource dataSource) {
+      accessControlContext = __unwrapObservedAccessControlContext(accessControlContext);
       if (accessControlContext instanceof SQLAccessControlContext) {
          SQLAccessControlContext sqlAccessControlContext = (SQLAccessControlContext) accessControlContext;
          sqlAccessControlContext.__postDeserialize(dataSource);
       }
    }
 
+   public static void postDeserialize(AccessControlContext accessControlContext,
+                                      DataSource primaryDataSource,
+                                      List<DataSource> readDataSources) {
+      accessControlContext = __unwrapObservedAccessControlContext(accessControlContext);
+      if (accessControlContext instanceof SQLAccessControlContext) {
+         __assertReadDataSourcesSpecified(readDataSources);
+         SQLAccessControlContext sqlAccessControlContext = (SQLAccessControlContext) accessControlContext;
+         sqlAccessControlContext.__postDeserialize(primaryDataSource);
+         if (sqlAccessControlContext.readRoutingPolicy != null) {
+            sqlAccessControlContext.readDataSources = __copyReadDataSources(readDataSources);
+         }
+      }
+   }
+
+   public static void setChangeLogEnabled(AccessControlContext accessControlContext, boolean changeLogEnabled) {
+      accessControlContext = __unwrapObservedAccessControlContext(accessControlContext);
+      if (accessControlContext instanceof SQLAccessControlContext) {
+         SQLAccessControlContext sqlAccessControlContext = (SQLAccessControlContext) accessControlContext;
+         sqlAccessControlContext.changeLogEnabled = changeLogEnabled;
+      }
+   }
+
+   public static void setParallelQueriesEnabled(AccessControlContext accessControlContext,
+                                                boolean parallelQueriesEnabled) {
+      accessControlContext = __unwrapObservedAccessControlContext(accessControlContext);
+      if (accessControlContext instanceof SQLAccessControlContext) {
+         SQLAccessControlContext sqlAccessControlContext = (SQLAccessControlContext) accessControlContext;
+         sqlAccessControlContext.parallelQueriesEnabled = parallelQueriesEnabled;
+      }
+   }
+
+   public static void setStatementTimeoutPolicy(AccessControlContext accessControlContext,
+                                                StatementTimeoutPolicy statementTimeoutPolicy) {
+      accessControlContext = __unwrapObservedAccessControlContext(accessControlContext);
+      if (accessControlContext instanceof SQLAccessControlContext) {
+         SQLAccessControlContext sqlAccessControlContext = (SQLAccessControlContext) accessControlContext;
+         sqlAccessControlContext.statementTimeoutPolicy = statementTimeoutPolicy;
+      }
+   }
+
+   public static void setConnectionBulkhead(AccessControlContext accessControlContext,
+                                            ConnectionBulkhead connectionBulkhead) {
+      accessControlContext = __unwrapObservedAccessControlContext(accessControlContext);
+      if (accessControlContext instanceof SQLAccessControlContext) {
+         SQLAccessControlContext sqlAccessControlContext = (SQLAccessControlContext) accessControlContext;
+         sqlAccessControlContext.connectionBulkhead = connectionBulkhead;
+      }
+   }
+
+   public static void setGrantFilter(AccessControlContext accessControlContext,
+                                     SQLGrantFilter grantFilter) {
+      accessControlContext = __unwrapObservedAccessControlContext(accessControlContext);
+      if (accessControlContext instanceof SQLAccessControlContext) {
+         SQLAccessControlContext sqlAccessControlContext = (SQLAccessControlContext) accessControlContext;
+         sqlAccessControlContext.grantFilter = grantFilter;
+      }
+   }
+
+   public static void setOffHeapIndex(AccessControlContext accessControlContext,
+                                      OffHeapIndex offHeapIndex) {
+      accessControlContext = __unwrapObservedAccessControlContext(accessControlContext);
+      if (accessControlContext instanceof SQLAccessControlContext) {
+         SQLAccessControlContext sqlAccessControlContext = (SQLAccessControlContext) accessControlContext;
+         sqlAccessControlContext.offHeapIndex = offHeapIndex;
+      }
+   }
+
+   public static void setSessionSnapshotMaxAge(AccessControlContext accessControlContext,
+                                               long sessionSnapshotMaxAgeMillis) {
+      if (sessionSnapshotMaxAgeMillis < 0) {
+         throw new IllegalArgumentException("Session snapshot max age must not be negative, got: "
+                                                  + sessionSnapshotMaxAgeMillis);
+      }
+      accessControlContext = __unwrapObservedAccessControlContext(accessControlContext);
+      if (accessControlContext instanceof SQLAccessControlContext) {
+         SQLAccessControlContext sqlAccessControlContext = (SQLAccessControlContext) accessControlContext;
+         sqlAccessControlContext.sessionDomainPermissionsSnapshotMaxAgeMillis = sessionSnapshotMaxAgeMillis;
+         sqlAccessControlContext.__discardSessionDomainPermissionsSnapshot();
+      }
+   }
+
+   public static void setResourceInfoCache(AccessControlContext accessControlContext,
+                                           int maxSize,
+                                           long maxAgeMillis) {
+      if (maxSize < 0) {
+         throw new IllegalArgumentException("Resource info cache max size must not be negative, got: " + maxSize);
+      }
+      if (maxAgeMillis < 0) {
+         throw new IllegalArgumentException("Resource info cache max age must not be negative, got: " + maxAgeMillis);
+      }
+      accessControlContext = __unwrapObservedAccessControlContext(accessControlContext);
+      if (accessControlContext instanceof SQLAccessControlContext) {
+         SQLAccessControlContext sqlAccessControlContext = (SQLAccessControlContext) accessControlContext;
+         sqlAccessControlContext.resourceInfoCacheMaxSize = maxSize;
+         sqlAccessControlContext.resourceInfoCacheMaxAgeMillis = maxAgeMillis;
+         sqlAccessControlContext.resourceInfoCache = null;
+      }
+   }
+
+   public static ChangeLogListener getChangeLogListener(AccessControlContext accessControlContext) {
+      final SQLAccessControlContext sqlAccessControlContext = __getSQLAccessControlContext(accessControlContext);
+      synchronized (sqlAccessControlContext) {
+         if (sqlAccessControlContext.changeLogListener == null) {
+            sqlAccessControlContext.changeLogListener = sqlAccessControlContext.new SessionChangeLogListener();
+         }
+         return sqlAccessControlContext.changeLogListener;
+      }
+   }
+
+   public static void setEventListener(SQLEventListener eventListener) {
+      SQLEvents.setEventListener(eventListener);
+   }
+
+   public static void setSlowOperationRecorder(SlowOperationRecorder slowOperationRecorder) {
+      SQLEvents.setSlowOperationRecorder(slowOperationRecorder);
+   }
+
+   public static AccessControlContext getObservedAccessControlContext(AccessControlContext accessControlContext) {
+      if (accessControlContext == null) {
+         throw new NullPointerException("Access control context required, none specified");
+      }
+      if (__unwrapObservedAccessControlContext(accessControlContext) != accessControlContext) {
+         // already observed
+         return accessControlContext;
+      }
+      return (AccessControlContext) Proxy.newProxyInstance(AccessControlContext.class.getClassLoader(),
+                                                           new Class<?>[]{AccessControlContext.class,
+                                                                          Serializable.class},
+                                                           new ObservingInvocationHandler(accessControlContext));
+   }
+
+   public static ConnectionScope openConnectionScope(AccessControlContext accessControlContext) {
+      return __getSQLAccessControlContext(accessControlContext).__openConnectionScope(false,
+                                                                                      Connection.TRANSACTION_NONE);
+   }
+
+   public static ConnectionScope openReadOnlyConnectionScope(AccessControlContext accessControlContext,
+                                                             int transactionIsolation) {
+      __assertTransactionIsolationValid(transactionIsolation);
+      return __getSQLAccessControlContext(accessControlContext).__openConnectionScope(true, transactionIsolation);
+   }
+
+   public static ResourceFilter getResourceFilterByResourcePermissions(AccessControlContext accessControlContext,
+                                                                       Resource accessorResource,
+                                                                       String resourceClassName,
+                                                                       Set<ResourcePermission> resourcePermissions) {
+      return __getSQLAccessControlContext(accessControlContext).__getResourceFilter(accessorResource,
+                                                                                    resourceClassName,
+                                                                                    null,
+                                                                                    resourcePermissions);
+   }
+
+   public static ResourceFilter getResourceFilterByResourcePermissionsAndDomain(AccessControlContext accessControlContext,
+                                                                                Resource accessorResource,
+                                                                                String resourceClassName,
+                                                                                String domainName,
+                                                                                Set<ResourcePermission> resourcePermissions) {
+      final SQLAccessControlContext sqlAccessControlContext = __getSQLAccessControlContext(accessControlContext);
+      sqlAccessControlContext.__assertDomainSpecified(domainName);
+      return sqlAccessControlContext.__getResourceFilter(accessorResource,
+                                                         resourceClassName,
+                                                         domainName,
+                                                         resourcePermissions);
+   }
+
+   public static RedundantGrantReport findRedundantGrants(AccessControlContext accessControlContext) {
+      return __getSQLAccessControlContext(accessControlContext).__findRedundantGrants(false, 0);
+   }
+
+   public static RedundantGrantReport removeRedundantGrants(AccessControlContext accessControlContext,
+                                                            int batchSize) {
+      if (batchSize < 1) {
+         throw new IllegalArgumentException("Batch size must be at least 1, got: " + batchSize);
+      }
+      return __getSQLAccessControlContext(accessControlContext).__findRedundantGrants(true, batchSize);
+   }
+
+   private static SQLAccessControlContext __getSQLAccessControlContext(AccessControlContext accessControlContext) {
+      if (accessControlContext == null) {
+         throw new NullPointerException("Access control context required, none specified");
+      }
+      accessControlContext = __unwrapObservedAccessControlContext(accessControlContext);
+      if (!(accessControlContext instanceof SQLAccessControlContext)) {
+         throw new IllegalArgumentException("Access control context is not a SQL access control context: "
+                                                  + accessControlContext.getClass().getName());
+      }
+      return (SQLAccessControlContext) accessControlContext;
+   }
+
+   private static AccessControlContext __unwrapObservedAccessControlContext(AccessControlContext accessControlContext) {
+      if (accessControlContext != null && Proxy.isProxyClass(accessControlContext.getClass())) {
+         final InvocationHandler invocationHandler = Proxy.getInvocationHandler(accessControlContext);
+         if (invocationHandler instanceof ObservingInvocationHandler) {
+            return ((ObservingInvocationHandler) invocationHandler).accessControlContext;
+         }
+      }
+      return accessControlContext;
+   }
+
    private SQLAccessControlContext(Connection connection,
                                    String schemaName,
                                    SQLProfile sqlProfile) {
@@ -276,6 +578,12 @@ public class SQLAccessControlContext implements AccessControlContext, Serializab
             = new ResourceClassPersister(sqlProfile, sqlStrings);
       resourceClassPermissionPersister
             = new ResourceClassPermissionPersister(sqlProfile, sqlStrings);
+      changeLogPersister
+            = new ChangeLogPersister(sqlProfile, sqlStrings);
+      resourceFilterPersister
+            = new ResourceFilterPersister(sqlProfile, sqlStrings);
+      redundantGrantPersister
+            = new RedundantGrantPersister(sqlProfile, sqlStrings);
 
       if (sqlProfile.isRecursiveCTEEnabled()) {
          grantDomainCreatePermissionSysPersister
@@ -331,6 +639,15 @@ public class SQLAccessControlContext implements AccessControlContext, Serializab
       }
    }
 
+   private void __setReadDataSources(List<DataSource> readDataSources, ReadRoutingPolicy readRoutingPolicy) {
+      this.readDataSources = __copyReadDataSources(readDataSources);
+      this.readRoutingPolicy = readRoutingPolicy;
+   }
+
+   private static List<DataSource> __copyReadDataSources(List<DataSource> readDataSources) {
+      return Collections.unmodifiableList(new ArrayList<>(readDataSources));
+   }
+
    private void __postDeserialize(DataSource dataSource) {
       if (this.dataSource != null || this.connection != null) {
          throw new IllegalStateException("Cannot re-initialize an already initialized SQLAccessControlContext");
@@ -380,7 +697,7 @@ public class SQLAccessControlContext implements AccessControlContext, Serializab
 
       final String resourceDomainForResource;
       try {
-         connection = __getConnection();
+         connection = __getConnection(OperationKind.CHECK);
 
          // resolve the resource here - instead of outside this method - to avoid having
          // to keep the connection open across a potentially long call to a third-party authenticationProvider or
@@ -388,7 +705,7 @@ public class SQLAccessControlContext implements AccessControlContext, Serializab
          resource = __resolveResource(connection, resource);
 
          final ResourceClassInternalInfo resourceClassInternalInfo
-               = resourceClassPersister.getResourceClassInfoByResourceId(connection, resource);
+               = __getResourceClassInfo(connection, resource);
 
          // complain if the resource is not marked as supporting authentication
          if (!resourceClassInternalInfo.isAuthenticatable()) {
@@ -396,7 +713,7 @@ public class SQLAccessControlContext implements AccessControlContext, Serializab
                                                      + " is not of an authenticatable resource class: "
                                                      + resourceClassInternalInfo.getResourceClassName());
          }
-         resourceDomainForResource = domainPersister.getResourceDomainNameByResourceId(connection, resource);
+         resourceDomainForResource = __getResourceDomainName(connection, resource);
       }
       finally {
          __closeConnection(connection);
@@ -417,6 +734,7 @@ public class SQLAccessControlContext implements AccessControlContext, Serializab
       sessionResource = authenticatedResource;
       defensiveCopyOfSessionResource = null;
       sessionResourceDomainName = authenticatedResourceDomainName;
+      __discardSessionDomainPermissionsSnapshot();
    }
 
    @Override
@@ -424,6 +742,7 @@ public class SQLAccessControlContext implements AccessControlContext, Serializab
       sessionResource = authenticatedResource = null;
       defensiveCopyOfSessionResource = defensiveCopyOfAuthenticatedResource = null;
       sessionResourceDomainName = authenticatedResourceDomainName = null;
+      __discardSessionDomainPermissionsSnapshot();
    }
 
    @Override
@@ -434,7 +753,7 @@ public class SQLAccessControlContext implements AccessControlContext, Serializab
       __assertResourceSpecified(resource);
 
       try {
-         connection = __getConnection();
+         connection = __getReadConnection(OperationKind.CHECK);
 
          resource = __resolveResource(connection, resource);
          __assertImpersonatePermission(connection, resource);
@@ -442,7 +761,8 @@ public class SQLAccessControlContext implements AccessControlContext, Serializab
          // switch the session credentials to the new resource
          sessionResource = resource;
          defensiveCopyOfSessionResource = null;
-         sessionResourceDomainName = domainPersister.getResourceDomainNameByResourceId(connection, resource);
+         sessionResourceDomainName = __getResourceDomainName(connection, resource);
+         __discardSessionDomainPermissionsSnapshot();
       }
       finally {
          __closeConnection(connection);
@@ -451,7 +771,7 @@ public class SQLAccessControlContext implements AccessControlContext, Serializab
 
    private void __assertImpersonatePermission(SQLConnection connection, Resource resource) {
       final ResourceClassInternalInfo resourceClassInternalInfo
-            = resourceClassPersister.getResourceClassInfoByResourceId(connection, resource);
+            = __getResourceClassInfo(connection, resource);
 
       // complain if the resource is not of an authenticatable resource-class
       if (!resourceClassInternalInfo.isAuthenticatable()) {
@@ -474,7 +794,7 @@ public class SQLAccessControlContext implements AccessControlContext, Serializab
       if (!impersonatePermissionOK) {
          // next check global direct permissions
          final String
-               domainName = domainPersister.getResourceDomainNameByResourceId(connection, resource);
+               domainName = __getResourceDomainName(connection, resource);
          final Set<ResourcePermission>
                globalResourcePermissions = __getEffectiveGlobalResourcePermissions(connection,
                                                                                    authenticatedResource,
@@ -504,6 +824,7 @@ public class SQLAccessControlContext implements AccessControlContext, Serializab
       sessionResource = authenticatedResource;
       defensiveCopyOfSessionResource = defensiveCopyOfAuthenticatedResource;
       sessionResourceDomainName = authenticatedResourceDomainName;
+      __discardSessionDomainPermissionsSnapshot();
    }
 
    @Override
@@ -522,10 +843,10 @@ public class SQLAccessControlContext implements AccessControlContext, Serializab
       final ResourceClassInternalInfo resourceClassInfo;
       final String domainName;
       try {
-         connection = __getConnection();
+         connection = __getMutationConnection();
 
          resource = __resolveResource(connection, resource);
-         resourceClassInfo = resourceClassPersister.getResourceClassInfoByResourceId(connection, resource);
+         resourceClassInfo = __getResourceClassInfo(connection, resource);
 
          if (!resourceClassInfo.isAuthenticatable()) {
             throw new IllegalArgumentException("Calling setCredentials for an unauthenticatable resource is not valid");
@@ -536,15 +857,19 @@ public class SQLAccessControlContext implements AccessControlContext, Serializab
             // skip permission checks if the authenticated resource is trying to set its own credentials
          }
          else {
-            domainName = domainPersister.getResourceDomainNameByResourceId(connection, resource);
+            domainName = __getResourceDomainName(connection, resource);
             __assertResetCredentialsResourcePermission(connection,
                                                        resource,
                                                        resourceClassInfo.getResourceClassName(),
                                                        domainName);
          }
       }
+      catch (RuntimeException | Error e) {
+         __abortMutation(connection, e);
+         throw e;
+      }
       finally {
-         __closeConnection(connection);
+         __closeMutationConnection(connection);
       }
 
       authenticationProvider.validateCredentials(resourceClassInfo.getResourceClassName(),
@@ -608,7 +933,7 @@ public class SQLAccessControlContext implements AccessControlContext, Serializab
       __assertResourceClassNameValid(resourceClassName);
 
       try {
-         connection = __getConnection();
+         connection = __getMutationConnection();
 
          resourceClassName = resourceClassName.trim();
 
@@ -621,9 +946,15 @@ public class SQLAccessControlContext implements AccessControlContext, Serializab
                                                  resourceClassName,
                                                  authenticatable,
                                                  unauthenticatedCreateAllowed);
+
+         __onChange(connection, ChangeType.RESOURCE_CLASS, null, null, null, resourceClassName);
+      }
+      catch (RuntimeException | Error e) {
+         __abortMutation(connection, e);
+         throw e;
       }
       finally {
-         __closeConnection(connection);
+         __closeMutationConnection(connection);
       }
    }
 
@@ -637,7 +968,7 @@ public class SQLAccessControlContext implements AccessControlContext, Serializab
       __assertPermissionNameValid(permissionName);
 
       try {
-         connection = __getConnection();
+         connection = __getMutationConnection();
 
          resourceClassName = resourceClassName.trim();
          permissionName = permissionName.trim();
@@ -658,9 +989,15 @@ public class SQLAccessControlContext implements AccessControlContext, Serializab
          }
 
          resourceClassPermissionPersister.addResourceClassPermission(connection, resourceClassId, permissionName);
+
+         __onChange(connection, ChangeType.RESOURCE_CLASS, null, null, null, resourceClassName);
+      }
+      catch (RuntimeException | Error e) {
+         __abortMutation(connection, e);
+         throw e;
       }
       finally {
-         __closeConnection(connection);
+         __closeMutationConnection(connection);
       }
    }
 
@@ -672,13 +1009,17 @@ public class SQLAccessControlContext implements AccessControlContext, Serializab
       __assertDomainSpecified(domainName);
 
       try {
-         connection = __getConnection();
+         connection = __getMutationConnection();
          domainName = domainName.trim();
 
          __createDomain(connection, domainName, null);
       }
+      catch (RuntimeException | Error e) {
+         __abortMutation(connection, e);
+         throw e;
+      }
       finally {
-         __closeConnection(connection);
+         __closeMutationConnection(connection);
       }
    }
 
@@ -692,15 +1033,19 @@ public class SQLAccessControlContext implements AccessControlContext, Serializab
       __assertParentDomainSpecified(parentDomainName);
 
       try {
-         connection = __getConnection();
+         connection = __getMutationConnection();
 
          domainName = domainName.trim();
          parentDomainName = parentDomainName.trim();
 
          __createDomain(connection, domainName, parentDomainName);
       }
+      catch (RuntimeException | Error e) {
+         __abortMutation(connection, e);
+         throw e;
+      }
       finally {
-         __closeConnection(connection);
+         __closeMutationConnection(connection);
       }
    }
 
@@ -742,7 +1087,10 @@ public class SQLAccessControlContext implements AccessControlContext, Serializab
          // we need to check if the currently authenticated resource is allowed to create child domains in the parent
          Set<DomainPermission> parentDomainPermissions;
 
-         parentDomainPermissions = __getEffectiveDomainPermissions(connection, sessionResource, parentDomainName);
+         parentDomainPermissions = __getSessionDomainPermissionsFromSnapshot(connection, parentDomainName);
+         if (parentDomainPermissions == null) {
+            parentDomainPermissions = __getEffectiveDomainPermissions(connection, sessionResource, parentDomainName);
+         }
 
          if (!parentDomainPermissions.contains(DomainPermission_CREATE_CHILD_DOMAIN)
                && !parentDomainPermissions.contains(DomainPermission_CREATE_CHILD_DOMAIN_GRANT)
@@ -756,6 +1104,8 @@ public class SQLAccessControlContext implements AccessControlContext, Serializab
          domainPersister.addResourceDomain(connection, domainName, parentDomainId);
       }
 
+      __onChange(connection, ChangeType.DOMAIN, null, null, domainName, null);
+
       if (newDomainPermissions.size() > 0) {
          // grant the currently authenticated resource the privileges to the new domain
          __setDirectDomainPermissions(connection,
@@ -774,12 +1124,16 @@ public class SQLAccessControlContext implements AccessControlContext, Serializab
       __assertDomainSpecified(domainName);
 
       try {
-         connection = __getConnection();
+         connection = __getMutationConnection();
 
          return __deleteDomain(connection, domainName);
       }
+      catch (RuntimeException | Error e) {
+         __abortMutation(connection, e);
+         throw e;
+      }
       finally {
-         __closeConnection(connection);
+         __closeMutationConnection(connection);
       }
 
    }
@@ -819,6 +1173,78 @@ public class SQLAccessControlContext implements AccessControlContext, Serializab
       // remove the domain
       domainPersister.deleteDomain(connection, domainId);
 
+      __onChange(connection, ChangeType.DOMAIN, null, null, domainName, null);
+
+      return true;
+   }
+
+   @Override
+   public boolean deleteDomainAndResources(String domainName) {
+      SQLConnection connection = null;
+
+      __assertAuthenticated();
+      __assertDomainSpecified(domainName);
+
+      try {
+         connection = __getMutationConnection();
+
+         final boolean transactionStarted = __beginTransaction(connection);
+         boolean successful = false;
+         try {
+            final boolean deleted = __deleteDomainAndResources(connection, domainName);
+            successful = true;
+            return deleted;
+         }
+         finally {
+            __endTransaction(connection, transactionStarted, successful);
+         }
+      }
+      catch (RuntimeException | Error e) {
+         __abortMutation(connection, e);
+         throw e;
+      }
+      finally {
+         __closeMutationConnection(connection);
+      }
+   }
+
+   private boolean __deleteDomainAndResources(SQLConnection connection, String domainName) {
+      // short-circuit out of this call if the specified domain does not exist
+      final Id<DomainId> domainId = domainPersister.getResourceDomainId(connection, domainName);
+      if (domainId == null) {
+         return false;
+      }
+
+      // check for authorization (using internal has-permission method is ok because querying for session resource)
+      if (!__hasDomainPermissions(connection,
+                                  sessionResource,
+                                  domainName,
+                                  Collections.singleton(DomainPermission_DELETE))) {
+         throw NotAuthorizedException.newInstanceForDomainPermissions(sessionResource,
+                                                                      domainName,
+                                                                      DomainPermission_DELETE);
+      }
+
+      // look up the resources of the entire domain subtree once, then remove them (and their permissions) in bulk;
+      // the resource-level authorization is checked as part of the bulk removal
+      final Set<Resource> obsoleteResources = resourcePersister.getResourcesInDomainOrDescendants(connection, domainId);
+      if (!obsoleteResources.isEmpty()) {
+         __deleteResolvedResources(connection, obsoleteResources);
+      }
+
+      // remove any permissions any resource has as an accessor resource to the domain subtree
+      grantDomainPermissionSysPersister.removeAllDomainSysPermissions(connection, domainId);
+      grantResourceCreatePermissionPostCreatePersister.removeAllResourceCreatePostCreatePermissions(connection, domainId);
+      grantResourceCreatePermissionPostCreateSysPersister.removeAllResourceCreatePostCreateSysPermissions(connection, domainId);
+      grantResourceCreatePermissionSysPersister.removeAllResourceCreateSysPermissions(connection, domainId);
+      grantGlobalResourcePermissionPersister.removeAllGlobalResourcePermissions(connection, domainId);
+      grantGlobalResourcePermissionSysPersister.removeAllGlobalSysPermissions(connection, domainId);
+
+      // remove the domain
+      domainPersister.deleteDomain(connection, domainId);
+
+      __onChange(connection, ChangeType.DOMAIN, null, null, domainName, null);
+
       return true;
    }
 
@@ -827,12 +1253,16 @@ public class SQLAccessControlContext implements AccessControlContext, Serializab
       SQLConnection connection = null;
 
       try {
-         connection = __getConnection();
+         connection = __getMutationConnection();
 
          return __createResource(connection, resourceClassName, domainName, null, null);
       }
+      catch (RuntimeException | Error e) {
+         __abortMutation(connection, e);
+         throw e;
+      }
       finally {
-         __closeConnection(connection);
+         __closeMutationConnection(connection);
       }
    }
 
@@ -845,12 +1275,16 @@ public class SQLAccessControlContext implements AccessControlContext, Serializab
       __assertCredentialsSpecified(credentials);
 
       try {
-         connection = __getConnection();
+         connection = __getMutationConnection();
 
          return __createResource(connection, resourceClassName, domainName, null, credentials);
       }
+      catch (RuntimeException | Error e) {
+         __abortMutation(connection, e);
+         throw e;
+      }
       finally {
-         __closeConnection(connection);
+         __closeMutationConnection(connection);
       }
    }
 
@@ -863,12 +1297,16 @@ public class SQLAccessControlContext implements AccessControlContext, Serializab
       __assertExternalIdSpecified(externalId);
 
       try {
-         connection = __getConnection();
+         connection = __getMutationConnection();
 
          return __createResource(connection, resourceClassName, domainName, externalId, null);
       }
+      catch (RuntimeException | Error e) {
+         __abortMutation(connection, e);
+         throw e;
+      }
       finally {
-         __closeConnection(connection);
+         __closeMutationConnection(connection);
       }
    }
 
@@ -883,12 +1321,16 @@ public class SQLAccessControlContext implements AccessControlContext, Serializab
       __assertCredentialsSpecified(credentials);
 
       try {
-         connection = __getConnection();
+         connection = __getMutationConnection();
 
          return __createResource(connection, resourceClassName, domainName, externalId, credentials);
       }
+      catch (RuntimeException | Error e) {
+         __abortMutation(connection, e);
+         throw e;
+      }
       finally {
-         __closeConnection(connection);
+         __closeMutationConnection(connection);
       }
    }
 
@@ -985,6 +1427,8 @@ public class SQLAccessControlContext implements AccessControlContext, Serializab
                                                                     domainId,
                                                                     externalId);
 
+      __onChange(connection, ChangeType.RESOURCE, null, newResource, null, null);
+
       // set permissions on the new resource, if applicable
       if (newResourcePermissions != null && newResourcePermissions.size() > 0) {
          if (sessionResource != null) {
@@ -1014,103 +1458,261 @@ public class SQLAccessControlContext implements AccessControlContext, Serializab
    }
 
    @Override
-   public Resource setExternalId(Resource resource, String externalId) {
+   public List<Resource> createResources(String resourceClassName, String domainName, int count) {
       SQLConnection connection = null;
 
       __assertAuthenticated();
-      __assertResourceSpecified(resource);
-      __assertExternalIdSpecified(externalId);
-
-      try {
-         connection = __getConnection();
-         resource = __resolveResource(connection, resource);
-
-         return __setExternalId(connection, resource, externalId);
+      if (count < 1) {
+         throw new IllegalArgumentException("Number of resources to create must be at least one, but was: " + count);
       }
-      finally {
-         __closeConnection(connection);
-      }
-   }
 
-   private Resource __setExternalId(SQLConnection connection, Resource resource, String externalId) {
-      final Resource resourceByExternalId = resourcePersister.resolveResourceByExternalId(connection, externalId);
+      try {
+         connection = __getMutationConnection();
 
-      if (resourceByExternalId == null) {
-         // ok, that externalId is unused, we can go ahead and set it, unless the existing resource already has a different one set
-         if (resource.getExternalId() != null){
-            // setting external id is a one-time operation - resetting to a different value is not allowed
-            throw new IllegalArgumentException("Could not reset the resource's external id to a different value");
-         }
-      }
-      else {
-         // the externalId is already used - let's check if it's on the same resource we're trying to set
-         if (resource.getId().equals(resourceByExternalId.getId())) {
-            // for idempotency - if externalId is already set to the specified value, do nothing
-            return resource;
+         final boolean transactionStarted = __beginTransaction(connection);
+         boolean successful = false;
+         try {
+            final List<Resource> newResources
+                  = __createResources(connection, resourceClassName, domainName, Collections.<String>nCopies(count, null));
+            successful = true;
+            return newResources;
          }
-         else {
-            // the externalId has already been assigned to a different resource
-            throw new IllegalArgumentException("External id is not unique: " + externalId);
+         finally {
+            __endTransaction(connection, transactionStarted, successful);
          }
       }
-
-      // check create-permission on the resource's domain and resource class in order to set external id
-      final Id<ResourceClassId> resourceClassId
-            = Id.from(resourceClassPersister.getResourceClassInfoByResourceId(connection, resource).getResourceClassId());
-      final Id<DomainId> domainId = resourcePersister.getDomainIdByResource(connection, resource);
-      final Set<ResourceCreatePermission> resourceCreateSysPermissions
-            = grantResourceCreatePermissionSysPersister.getResourceCreateSysPermissionsIncludeInherited(connection,
-                                                                                                        sessionResource,
-                                                                                                        resourceClassId,
-                                                                                                        domainId);
-
-      boolean createPermissionOK = false;
-      if (resourceCreateSysPermissions.size() > 0) {
-         createPermissionOK = true;
-      }
-
-      // check if the session resource has super user permissions to the resource's domain, if necessary
-      if (!createPermissionOK) {
-         createPermissionOK = __isSuperUserOfDomain(connection, sessionResource, domainId);
+      catch (RuntimeException | Error e) {
+         __abortMutation(connection, e);
+         throw e;
       }
-
-      if (!createPermissionOK) {
-         throw NotAuthorizedException.newInstanceForAction(sessionResource, "set external id of resource " + resource);
+      finally {
+         __closeMutationConnection(connection);
       }
-
-      return resourcePersister.setExternalId(connection, Id.<ResourceId>from(resource.getId()), externalId);
    }
 
    @Override
-   public boolean deleteResource(Resource obsoleteResource) {
+   public List<Resource> createResources(String resourceClassName, String domainName, List<String> externalIds) {
       SQLConnection connection = null;
 
       __assertAuthenticated();
-      __assertResourceSpecified(obsoleteResource);
+      __assertExternalIdsSpecified(externalIds);
 
       try {
-         connection = __getConnection();
+         connection = __getMutationConnection();
 
-         // we deliberately don't resolve the resource before calling the handler method, because the
-         // delete operation should be idempotent and return false if the resource does not resolve/exist
-         return __deleteResource(connection, obsoleteResource);
+         final boolean transactionStarted = __beginTransaction(connection);
+         boolean successful = false;
+         try {
+            final List<Resource> newResources = __createResources(connection, resourceClassName, domainName, externalIds);
+            successful = true;
+            return newResources;
+         }
+         finally {
+            __endTransaction(connection, transactionStarted, successful);
+         }
+      }
+      catch (RuntimeException | Error e) {
+         __abortMutation(connection, e);
+         throw e;
       }
       finally {
-         __closeConnection(connection);
+         __closeMutationConnection(connection);
       }
    }
 
-   private boolean __deleteResource(SQLConnection connection,
-                                    Resource obsoleteResource) {
-      try {
-         obsoleteResource = __resolveResource(connection, obsoleteResource);
-      }
-      catch (IllegalArgumentException e) {
-         // short-circuit out of this call if the specified resource does not exist/resolve
-         // NOTE that this will still throw an exception if a resource does not match its
-         // specified external id
-         if (e.getMessage().toLowerCase().contains("not found")) {
-            return false;
+   private List<Resource> __createResources(SQLConnection connection,
+                                            String resourceClassName,
+                                            String domainName,
+                                            List<String> externalIds) {
+      __assertResourceClassSpecified(resourceClassName);
+      __assertDomainSpecified(domainName);
+
+      // validate the resource class
+      resourceClassName = resourceClassName.trim();
+      final ResourceClassInternalInfo resourceClassInternalInfo = __getResourceClassInternalInfo(connection,
+                                                                                                 resourceClassName);
+
+      if (resourceClassInternalInfo.isAuthenticatable()) {
+         // bulk creation does not support explicit credentials, so validate that the provider allows none
+         authenticationProvider.validateCredentials(resourceClassName, domainName, null);
+      }
+
+      // validate the domain
+      final Id<DomainId> domainId = domainPersister.getResourceDomainId(connection, domainName);
+
+      if (domainId == null) {
+         throw new IllegalArgumentException("Could not find domain: " + domainName);
+      }
+
+      // check to ensure that none of the specified external ids already exist
+      for (String externalId : externalIds) {
+         if (externalId != null && resourcePersister.resolveResourceByExternalId(connection, externalId) != null) {
+            throw new IllegalArgumentException("External id is not unique: " + externalId);
+         }
+      }
+
+      // check the create permissions once for all new resources
+      final Set<ResourceCreatePermission> resourceCreatePermissions
+            = __getEffectiveResourceCreatePermissionsIgnoringSuperUserPrivileges(connection,
+                                                                                 sessionResource,
+                                                                                 resourceClassName,
+                                                                                 domainName);
+      final Set<ResourcePermission> newResourcePermissions = __getPostCreateResourcePermissions(resourceCreatePermissions);
+
+      if (resourceCreatePermissions.isEmpty() && !__isSuperUserOfDomain(connection, sessionResource, domainName)) {
+         throw NotAuthorizedException.newInstanceForAction(sessionResource,
+                                                           "create resource of resource class " + resourceClassName);
+      }
+
+      // create the new resources
+      final Id<ResourceClassId> resourceClassId = Id.from(resourceClassInternalInfo.getResourceClassId());
+      final List<Resource> newResources = resourcePersister.createResources(connection,
+                                                                            resourceClassId,
+                                                                            domainId,
+                                                                            externalIds);
+      if (changeLogEnabled) {
+         changeLogPersister.addResourceChangeLogEntries(connection, new HashSet<>(newResources));
+      }
+
+      // set the post create permissions on all new resources, if applicable
+      if (!newResourcePermissions.isEmpty()) {
+         __assertUniqueResourcePermissionsNamesForResourceClass(connection,
+                                                                newResourcePermissions,
+                                                                resourceClassInternalInfo);
+
+         final Set<Resource> newResourceSet = new HashSet<>(newResources);
+
+         grantResourcePermissionSysPersister.addResourceSysPermissions(connection,
+                                                                       sessionResource,
+                                                                       newResourceSet,
+                                                                       resourceClassId,
+                                                                       newResourcePermissions,
+                                                                       sessionResource);
+
+         grantResourcePermissionPersister.addResourcePermissions(connection,
+                                                                 sessionResource,
+                                                                 newResourceSet,
+                                                                 resourceClassId,
+                                                                 newResourcePermissions,
+                                                                 sessionResource);
+
+         __onChange(connection, ChangeType.RESOURCE_PERMISSIONS, sessionResource, null, domainName, resourceClassName);
+      }
+
+      return newResources;
+   }
+
+   @Override
+   public Resource setExternalId(Resource resource, String externalId) {
+      SQLConnection connection = null;
+
+      __assertAuthenticated();
+      __assertResourceSpecified(resource);
+      __assertExternalIdSpecified(externalId);
+
+      try {
+         connection = __getMutationConnection();
+         resource = __resolveResource(connection, resource);
+
+         return __setExternalId(connection, resource, externalId);
+      }
+      catch (RuntimeException | Error e) {
+         __abortMutation(connection, e);
+         throw e;
+      }
+      finally {
+         __closeMutationConnection(connection);
+      }
+   }
+
+   private Resource __setExternalId(SQLConnection connection, Resource resource, String externalId) {
+      final Resource resourceByExternalId = resourcePersister.resolveResourceByExternalId(connection, externalId);
+
+      if (resourceByExternalId == null) {
+         // ok, that externalId is unused, we can go ahead and set it, unless the existing resource already has a different one set
+         if (resource.getExternalId() != null){
+            // setting external id is a one-time operation - resetting to a different value is not allowed
+            throw new IllegalArgumentException("Could not reset the resource's external id to a different value");
+         }
+      }
+      else {
+         // the externalId is already used - let's check if it's on the same resource we're trying to set
+         if (resource.getId().equals(resourceByExternalId.getId())) {
+            // for idempotency - if externalId is already set to the specified value, do nothing
+            return resource;
+         }
+         else {
+            // the externalId has already been assigned to a different resource
+            throw new IllegalArgumentException("External id is not unique: " + externalId);
+         }
+      }
+
+      // check create-permission on the resource's domain and resource class in order to set external id
+      final Id<ResourceClassId> resourceClassId
+            = Id.from(__getResourceClassInfo(connection, resource).getResourceClassId());
+      final Id<DomainId> domainId = __getResourceDomainId(connection, resource);
+      final Set<ResourceCreatePermission> resourceCreateSysPermissions
+            = grantResourceCreatePermissionSysPersister.getResourceCreateSysPermissionsIncludeInherited(connection,
+                                                                                                        sessionResource,
+                                                                                                        resourceClassId,
+                                                                                                        domainId);
+
+      boolean createPermissionOK = false;
+      if (resourceCreateSysPermissions.size() > 0) {
+         createPermissionOK = true;
+      }
+
+      // check if the session resource has super user permissions to the resource's domain, if necessary
+      if (!createPermissionOK) {
+         createPermissionOK = __isSuperUserOfDomain(connection, sessionResource, domainId);
+      }
+
+      if (!createPermissionOK) {
+         throw NotAuthorizedException.newInstanceForAction(sessionResource, "set external id of resource " + resource);
+      }
+
+      final Resource resolvedResource
+            = resourcePersister.setExternalId(connection, Id.<ResourceId>from(resource.getId()), externalId);
+
+      __onChange(connection, ChangeType.RESOURCE, null, resolvedResource, null, null);
+
+      return resolvedResource;
+   }
+
+   @Override
+   public boolean deleteResource(Resource obsoleteResource) {
+      SQLConnection connection = null;
+
+      __assertAuthenticated();
+      __assertResourceSpecified(obsoleteResource);
+
+      try {
+         connection = __getMutationConnection();
+
+         // we deliberately don't resolve the resource before calling the handler method, because the
+         // delete operation should be idempotent and return false if the resource does not resolve/exist
+         return __deleteResource(connection, obsoleteResource);
+      }
+      catch (RuntimeException | Error e) {
+         __abortMutation(connection, e);
+         throw e;
+      }
+      finally {
+         __closeMutationConnection(connection);
+      }
+   }
+
+   private boolean __deleteResource(SQLConnection connection,
+                                    Resource obsoleteResource) {
+      try {
+         obsoleteResource = __resolveResource(connection, obsoleteResource);
+      }
+      catch (IllegalArgumentException e) {
+         // short-circuit out of this call if the specified resource does not exist/resolve
+         // NOTE that this will still throw an exception if a resource does not match its
+         // specified external id
+         if (e.getMessage().toLowerCase().contains("not found")) {
+            return false;
          }
          throw e;
       }
@@ -1130,7 +1732,7 @@ public class SQLAccessControlContext implements AccessControlContext, Serializab
 
       // remove the resource's credentials, if necessary
       final ResourceClassInternalInfo resourceClassInternalInfo
-            = resourceClassPersister.getResourceClassInfoByResourceId(connection, obsoleteResource);
+            = __getResourceClassInfo(connection, obsoleteResource);
 
       if (resourceClassInternalInfo.isAuthenticatable()) {
          authenticationProvider.deleteCredentials(obsoleteResource);
@@ -1153,6 +1755,8 @@ public class SQLAccessControlContext implements AccessControlContext, Serializab
       // remove the resource
       resourcePersister.deleteResource(connection, obsoleteResource);
 
+      __onChange(connection, ChangeType.RESOURCE, null, obsoleteResource, null, null);
+
       // handle special case where deleted resource is the session or authenticated resource
       if (authenticatedResource.equals(obsoleteResource)) {
          unauthenticate();
@@ -1164,6 +1768,161 @@ public class SQLAccessControlContext implements AccessControlContext, Serializab
       return true;
    }
 
+   @Override
+   public boolean deleteResources(Set<Resource> obsoleteResources) {
+      SQLConnection connection = null;
+
+      __assertAuthenticated();
+      __assertResourcesSpecified(obsoleteResources);
+
+      try {
+         connection = __getMutationConnection();
+
+         final boolean transactionStarted = __beginTransaction(connection);
+         boolean successful = false;
+         try {
+            final boolean deleted = __deleteResources(connection, obsoleteResources);
+            successful = true;
+            return deleted;
+         }
+         finally {
+            __endTransaction(connection, transactionStarted, successful);
+         }
+      }
+      catch (RuntimeException | Error e) {
+         __abortMutation(connection, e);
+         throw e;
+      }
+      finally {
+         __closeMutationConnection(connection);
+      }
+   }
+
+   private boolean __deleteResources(SQLConnection connection,
+                                     Set<Resource> obsoleteResources) {
+      final Set<Resource> resolvedObsoleteResources = new HashSet<>(obsoleteResources.size());
+
+      for (Resource obsoleteResource : obsoleteResources) {
+         try {
+            resolvedObsoleteResources.add(__resolveResource(connection, obsoleteResource));
+         }
+         catch (IllegalArgumentException e) {
+            // skip the specified resource if it does not exist/resolve, same as in deleteResource()
+            if (!e.getMessage().toLowerCase().contains("not found")) {
+               throw e;
+            }
+         }
+      }
+
+      if (resolvedObsoleteResources.isEmpty()) {
+         return false;
+      }
+
+      __deleteResolvedResources(connection, resolvedObsoleteResources);
+
+      return true;
+   }
+
+   private void __deleteResolvedResources(SQLConnection connection,
+                                          Set<Resource> resolvedObsoleteResources) {
+      // check for authorization, evaluating the super-user and global permissions only once per domain and resource class
+      final Map<Id<DomainId>, Boolean> isSuperUserByDomainId = new HashMap<>();
+      final Map<List<Long>, Boolean> hasGlobalDeletePermissionByResourceClassAndDomainId = new HashMap<>();
+      final Set<Resource> authenticatableObsoleteResources = new HashSet<>();
+
+      for (Resource obsoleteResource : resolvedObsoleteResources) {
+         final Id<DomainId> domainId = __getResourceDomainId(connection, obsoleteResource);
+         final ResourceClassInternalInfo resourceClassInternalInfo
+               = __getResourceClassInfo(connection, obsoleteResource);
+
+         if (resourceClassInternalInfo.isAuthenticatable()) {
+            authenticatableObsoleteResources.add(obsoleteResource);
+         }
+
+         Boolean isAuthorized = isSuperUserByDomainId.get(domainId);
+         if (isAuthorized == null) {
+            isAuthorized = __isSuperUserOfDomain(connection, sessionResource, domainId);
+            isSuperUserByDomainId.put(domainId, isAuthorized);
+         }
+
+         if (!isAuthorized) {
+            final Id<ResourceClassId> resourceClassId = Id.from(resourceClassInternalInfo.getResourceClassId());
+            final List<Long> resourceClassAndDomainId = Arrays.asList(resourceClassId.getValue(), domainId.getValue());
+
+            isAuthorized = hasGlobalDeletePermissionByResourceClassAndDomainId.get(resourceClassAndDomainId);
+            if (isAuthorized == null) {
+               final Set<ResourcePermission> globalPermissions
+                     = grantGlobalResourcePermissionSysPersister.getGlobalSysPermissionsIncludeInherited(connection,
+                                                                                                       sessionResource,
+                                                                                                       resourceClassId,
+                                                                                                       domainId);
+               isAuthorized = globalPermissions.contains(ResourcePermission_DELETE)
+                     || globalPermissions.contains(ResourcePermission_DELETE_GRANT);
+               hasGlobalDeletePermissionByResourceClassAndDomainId.put(resourceClassAndDomainId, isAuthorized);
+            }
+         }
+
+         if (!isAuthorized) {
+            final Set<ResourcePermission> sessionResourcePermissions
+                  = __getEffectiveResourcePermissionsIgnoringSuperUserPrivileges(connection,
+                                                                                 sessionResource,
+                                                                                 obsoleteResource);
+
+            if (!sessionResourcePermissions.contains(ResourcePermission_DELETE) &&
+                  !sessionResourcePermissions.contains(ResourcePermission_DELETE_GRANT)) {
+               throw NotAuthorizedException.newInstanceForActionOnResource(sessionResource, "delete", obsoleteResource);
+            }
+         }
+      }
+
+      // remove the resources' credentials, if necessary; the built-in provider keeps them in the same database, so
+      // they are removed in the same transaction as the resources, whereas a custom provider has a store of its own
+      if (!authenticatableObsoleteResources.isEmpty()) {
+         if (authenticationProvider instanceof SQLPasswordAuthenticationProvider) {
+            ((SQLPasswordAuthenticationProvider) authenticationProvider).deleteCredentials(connection,
+                                                                                           authenticatableObsoleteResources);
+         }
+         else {
+            for (Resource authenticatableObsoleteResource : authenticatableObsoleteResources) {
+               authenticationProvider.deleteCredentials(authenticatableObsoleteResource);
+            }
+         }
+      }
+
+      // remove any permissions the obsolete resources have as accessor resources
+      grantDomainCreatePermissionPostCreateSysPersister.removeDomainCreatePostCreateSysPermissions(connection, resolvedObsoleteResources);
+      grantDomainCreatePermissionSysPersister.removeDomainCreateSysPermissions(connection, resolvedObsoleteResources);
+      grantDomainPermissionSysPersister.removeAllDomainSysPermissions(connection, resolvedObsoleteResources);
+      grantResourceCreatePermissionPostCreatePersister.removeAllResourceCreatePostCreatePermissions(connection, resolvedObsoleteResources);
+      grantResourceCreatePermissionPostCreateSysPersister.removeAllResourceCreatePostCreateSysPermissions(connection, resolvedObsoleteResources);
+      grantResourceCreatePermissionSysPersister.removeAllResourceCreateSysPermissions(connection, resolvedObsoleteResources);
+      grantGlobalResourcePermissionPersister.removeAllGlobalResourcePermissions(connection, resolvedObsoleteResources);
+      grantGlobalResourcePermissionSysPersister.removeAllGlobalSysPermissions(connection, resolvedObsoleteResources);
+
+      // remove any permissions the obsolete resources have as accessor resources OR as accessed resources
+      grantResourcePermissionPersister.removeAllResourcePermissionsAsAccessorOrAccessed(connection, resolvedObsoleteResources);
+      grantResourcePermissionSysPersister.removeAllResourceSysPermissionsAsAccessorOrAccessed(connection, resolvedObsoleteResources);
+
+      // remove the resources
+      resourcePersister.deleteResources(connection, resolvedObsoleteResources);
+
+      __discardSessionDomainPermissionsSnapshot();
+      for (Resource obsoleteResource : resolvedObsoleteResources) {
+         __discardResourceInfo(obsoleteResource);
+      }
+      if (changeLogEnabled) {
+         changeLogPersister.addResourceChangeLogEntries(connection, resolvedObsoleteResources);
+      }
+
+      // handle special case where a deleted resource is the session or authenticated resource
+      if (resolvedObsoleteResources.contains(authenticatedResource)) {
+         unauthenticate();
+      }
+      else if (resolvedObsoleteResources.contains(sessionResource)) {
+         unimpersonate();
+      }
+   }
+
    @Override
    public void setDomainPermissions(Resource accessorResource,
                                     String domainName,
@@ -1178,13 +1937,17 @@ public class SQLAccessControlContext implements AccessControlContext, Serializab
       final Set<DomainPermission> normalizedDomainPermissions = __normalizeDomainPermissions(permissions);
 
       try {
-         connection = __getConnection();
+         connection = __getMutationConnection();
          accessorResource = __resolveResource(connection, accessorResource);
 
          __setDirectDomainPermissions(connection, accessorResource, domainName, normalizedDomainPermissions, false);
       }
+      catch (RuntimeException | Error e) {
+         __abortMutation(connection, e);
+         throw e;
+      }
       finally {
-         __closeConnection(connection);
+         __closeMutationConnection(connection);
       }
    }
    private void __setDirectDomainPermissions(SQLConnection connection,
@@ -1261,6 +2024,8 @@ public class SQLAccessControlContext implements AccessControlContext, Serializab
                                                                 sessionResource,
                                                                 domainId,
                                                                 requestedDomainPermissions);
+
+      __onChange(connection, ChangeType.DOMAIN_PERMISSIONS, accessorResource, null, domainName, null);
    }
 
    private Set<DomainPermission> __getDirectDomainPermissions(SQLConnection connection,
@@ -1301,13 +2066,17 @@ public class SQLAccessControlContext implements AccessControlContext, Serializab
       final Set<DomainPermission> normalizedDomainPermissions = __normalizeDomainPermissions(domainPermissions);
 
       try {
-         connection = __getConnection();
+         connection = __getMutationConnection();
          accessorResource = __resolveResource(connection, accessorResource);
 
          __grantDirectDomainPermissions(connection, accessorResource, domainName, normalizedDomainPermissions);
       }
+      catch (RuntimeException | Error e) {
+         __abortMutation(connection, e);
+         throw e;
+      }
       finally {
-         __closeConnection(connection);
+         __closeMutationConnection(connection);
       }
    }
 
@@ -1325,16 +2094,21 @@ public class SQLAccessControlContext implements AccessControlContext, Serializab
       __assertVarargPermissionsSpecified(domainPermissions);
 
       final Set<DomainPermission> normalizedDomainPermissions
-            = __normalizeDomainPermissions(__getSetWithoutNullsOrDuplicates(domainPermission, domainPermissions));
+            = __normalizeDomainPermissions(PermissionUtils.getSetWithoutNullsOrDuplicates(domainPermission,
+                                                                                          domainPermissions));
 
       try {
-         connection = __getConnection();
+         connection = __getMutationConnection();
          accessorResource = __resolveResource(connection, accessorResource);
 
          __grantDirectDomainPermissions(connection, accessorResource, domainName, normalizedDomainPermissions);
       }
+      catch (RuntimeException | Error e) {
+         __abortMutation(connection, e);
+         throw e;
+      }
       finally {
-         __closeConnection(connection);
+         __closeMutationConnection(connection);
       }
    }
 
@@ -1406,19 +2180,15 @@ public class SQLAccessControlContext implements AccessControlContext, Serializab
          }
       }
 
-      // update any existing permissions that accessor to has to this domain directly
-      grantDomainPermissionSysPersister.updateDomainSysPermissions(connection,
-                                                                   accessorResource,
-                                                                   sessionResource,
-                                                                   domainId,
-                                                                   updatePermissions);
+      // add the new permissions and update any existing permissions that accessor to has to this domain directly
+      grantDomainPermissionSysPersister.addOrUpdateDomainSysPermissions(connection,
+                                                                        accessorResource,
+                                                                        sessionResource,
+                                                                        domainId,
+                                                                        addPermissions,
+                                                                        updatePermissions);
 
-      // add the new permissions
-      grantDomainPermissionSysPersister.addDomainSysPermissions(connection,
-                                                                accessorResource,
-                                                                sessionResource,
-                                                                domainId,
-                                                                addPermissions);
+      __onChange(connection, ChangeType.DOMAIN_PERMISSIONS, accessorResource, null, domainName, null);
    }
 
    private void __assertUniqueDomainPermissionsNames(Set<DomainPermission> domainPermissions) {
@@ -1450,13 +2220,17 @@ public class SQLAccessControlContext implements AccessControlContext, Serializab
       final Set<DomainPermission> normalizedDomainPermissions = __normalizeDomainPermissions(domainPermissions);
 
       try {
-         connection = __getConnection();
+         connection = __getMutationConnection();
          accessorResource = __resolveResource(connection, accessorResource);
 
          __revokeDirectDomainPermissions(connection, accessorResource, domainName, normalizedDomainPermissions);
       }
+      catch (RuntimeException | Error e) {
+         __abortMutation(connection, e);
+         throw e;
+      }
       finally {
-         __closeConnection(connection);
+         __closeMutationConnection(connection);
       }
    }
 
@@ -1474,16 +2248,21 @@ public class SQLAccessControlContext implements AccessControlContext, Serializab
       __assertVarargPermissionsSpecified(domainPermissions);
 
       final Set<DomainPermission> normalizedDomainPermissions
-            = __normalizeDomainPermissions(__getSetWithoutNullsOrDuplicates(domainPermission, domainPermissions));
+            = __normalizeDomainPermissions(PermissionUtils.getSetWithoutNullsOrDuplicates(domainPermission,
+                                                                                          domainPermissions));
 
       try {
-         connection = __getConnection();
+         connection = __getMutationConnection();
          accessorResource = __resolveResource(connection, accessorResource);
 
          __revokeDirectDomainPermissions(connection, accessorResource, domainName, normalizedDomainPermissions);
       }
+      catch (RuntimeException | Error e) {
+         __abortMutation(connection, e);
+         throw e;
+      }
       finally {
-         __closeConnection(connection);
+         __closeMutationConnection(connection);
       }
    }
 
@@ -1545,6 +2324,8 @@ public class SQLAccessControlContext implements AccessControlContext, Serializab
                                                                    accessorResource,
                                                                    domainId,
                                                                    removePermissions);
+
+      __onChange(connection, ChangeType.DOMAIN_PERMISSIONS, accessorResource, null, domainName, null);
    }
 
    @Override
@@ -1557,7 +2338,7 @@ public class SQLAccessControlContext implements AccessControlContext, Serializab
       __assertDomainSpecified(domainName);
 
       try {
-         connection = __getConnection();
+         connection = __getReadConnection(OperationKind.LISTING);
          accessorResource = __resolveResource(connection, accessorResource);
          __assertQueryAuthorization(connection, accessorResource);
 
@@ -1582,7 +2363,7 @@ public class SQLAccessControlContext implements AccessControlContext, Serializab
       __assertResourceSpecified(accessorResource);
 
       try {
-         connection = __getConnection();
+         connection = __getReadConnection(OperationKind.LISTING);
          accessorResource = __resolveResource(connection, accessorResource);
          __assertQueryAuthorization(connection, accessorResource);
 
@@ -1605,7 +2386,7 @@ public class SQLAccessControlContext implements AccessControlContext, Serializab
       __assertDomainSpecified(domainName);
 
       try {
-         connection = __getConnection();
+         connection = __getReadConnection(OperationKind.LISTING);
          accessorResource = __resolveResource(connection, accessorResource);
          __assertQueryAuthorization(connection, accessorResource);
 
@@ -1647,18 +2428,7 @@ public class SQLAccessControlContext implements AccessControlContext, Serializab
    }
 
    private Set<DomainPermission> __collapseDomainPermissions(Set<DomainPermission> domainPermissions) {
-      final Set<DomainPermission> collapsedPermissions = new HashSet<>(domainPermissions);
-
-      for (DomainPermission permission : domainPermissions) {
-         for (DomainPermission grantEquivalentPermission : domainPermissions) {
-            if (permission.isGrantableFrom(grantEquivalentPermission) && !permission.equals(grantEquivalentPermission)) {
-               collapsedPermissions.remove(permission);
-               break;
-            }
-         }
-      }
-
-      return collapsedPermissions;
+      return PermissionUtils.collapseDomainPermissions(domainPermissions);
    }
 
    @Override
@@ -1669,7 +2439,7 @@ public class SQLAccessControlContext implements AccessControlContext, Serializab
       __assertResourceSpecified(accessorResource);
 
       try {
-         connection = __getConnection();
+         connection = __getReadConnection(OperationKind.LISTING);
          accessorResource = __resolveResource(connection, accessorResource);
          __assertQueryAuthorization(connection, accessorResource);
 
@@ -1733,13 +2503,17 @@ public class SQLAccessControlContext implements AccessControlContext, Serializab
             = __normalizeDomainCreatePermissions(domainCreatePermissions);
 
       try {
-         connection = __getConnection();
+         connection = __getMutationConnection();
          accessorResource = __resolveResource(connection, accessorResource);
 
          __setDirectDomainCreatePermissions(connection, accessorResource, normalizedDomainCreatePermissions);
       }
+      catch (RuntimeException | Error e) {
+         __abortMutation(connection, e);
+         throw e;
+      }
       finally {
-         __closeConnection(connection);
+         __closeMutationConnection(connection);
       }
    }
 
@@ -1807,6 +2581,8 @@ public class SQLAccessControlContext implements AccessControlContext, Serializab
                                                      accessorResource,
                                                      sessionResource,
                                                      requestedDomainCreatePermissions);
+
+      __onChange(connection, ChangeType.DOMAIN_CREATE_PERMISSIONS, accessorResource, null, null, null);
    }
 
    private void __assertSetContainsDomainCreateSystemPermission(Set<DomainCreatePermission> domainCreatePermissions) {
@@ -1871,13 +2647,17 @@ public class SQLAccessControlContext implements AccessControlContext, Serializab
             = __normalizeDomainCreatePermissions(domainCreatePermissions);
 
       try {
-         connection = __getConnection();
+         connection = __getMutationConnection();
          accessorResource = __resolveResource(connection, accessorResource);
 
          __grantDirectDomainCreatePermissions(connection, accessorResource, normalizedDomainCreatePermissions);
       }
+      catch (RuntimeException | Error e) {
+         __abortMutation(connection, e);
+         throw e;
+      }
       finally {
-         __closeConnection(connection);
+         __closeMutationConnection(connection);
       }
    }
 
@@ -1893,16 +2673,21 @@ public class SQLAccessControlContext implements AccessControlContext, Serializab
       __assertVarargPermissionsSpecified(domainCreatePermissions);
 
       final Set<DomainCreatePermission> normalizedDomainCreatePermissions
-            = __normalizeDomainCreatePermissions(__getSetWithoutNullsOrDuplicates(domainCreatePermission, domainCreatePermissions));
+            = __normalizeDomainCreatePermissions(PermissionUtils.getSetWithoutNullsOrDuplicates(domainCreatePermission,
+                                                                                                domainCreatePermissions));
 
       try {
-         connection = __getConnection();
+         connection = __getMutationConnection();
          accessorResource = __resolveResource(connection, accessorResource);
 
          __grantDirectDomainCreatePermissions(connection, accessorResource, normalizedDomainCreatePermissions);
       }
+      catch (RuntimeException | Error e) {
+         __abortMutation(connection, e);
+         throw e;
+      }
       finally {
-         __closeConnection(connection);
+         __closeMutationConnection(connection);
       }
    }
 
@@ -2001,29 +2786,21 @@ public class SQLAccessControlContext implements AccessControlContext, Serializab
          }
       }
 
-      // update the domain system permissions (*CREATE), if necessary
-      grantDomainCreatePermissionSysPersister.updateDomainCreateSysPermissions(connection,
-                                                                               accessorResource,
-                                                                               sessionResource,
-                                                                               updatePermissions);
-      // update the domain post create system permissions, if necessary
+      // add any new and update any existing domain system permissions (*CREATE)
+      grantDomainCreatePermissionSysPersister.addOrUpdateDomainCreateSysPermissions(connection,
+                                                                                    accessorResource,
+                                                                                    sessionResource,
+                                                                                    addPermissions,
+                                                                                    updatePermissions);
+      // add any new and update any existing domain post create system permissions
       grantDomainCreatePermissionPostCreateSysPersister
-            .updateDomainCreatePostCreateSysPermissions(connection,
-                                                        accessorResource,
-                                                        sessionResource,
-                                                        updatePermissions);
+            .addOrUpdateDomainCreatePostCreateSysPermissions(connection,
+                                                             accessorResource,
+                                                             sessionResource,
+                                                             addPermissions,
+                                                             updatePermissions);
 
-      // add any new domain system permissions (*CREATE)
-      grantDomainCreatePermissionSysPersister.addDomainCreateSysPermissions(connection,
-                                                                            accessorResource,
-                                                                            sessionResource,
-                                                                            addPermissions);
-      // add any new domain post create system permissions
-      grantDomainCreatePermissionPostCreateSysPersister
-            .addDomainCreatePostCreateSysPermissions(connection,
-                                                     accessorResource,
-                                                     sessionResource,
-                                                     addPermissions);
+      __onChange(connection, ChangeType.DOMAIN_CREATE_PERMISSIONS, accessorResource, null, null, null);
    }
 
    private void __assertUniqueSystemOrPostCreateDomainPermissionNames(Set<DomainCreatePermission> domainCreatePermissions) {
@@ -2070,13 +2847,17 @@ public class SQLAccessControlContext implements AccessControlContext, Serializab
             = __normalizeDomainCreatePermissions(domainCreatePermissions);
 
       try {
-         connection = __getConnection();
+         connection = __getMutationConnection();
          accessorResource = __resolveResource(connection, accessorResource);
 
          __revokeDirectDomainCreatePermissions(connection, accessorResource, normalizedDomainCreatePermissions);
       }
+      catch (RuntimeException | Error e) {
+         __abortMutation(connection, e);
+         throw e;
+      }
       finally {
-         __closeConnection(connection);
+         __closeMutationConnection(connection);
       }
    }
 
@@ -2092,16 +2873,21 @@ public class SQLAccessControlContext implements AccessControlContext, Serializab
       __assertVarargPermissionsSpecified(domainCreatePermissions);
 
       final Set<DomainCreatePermission> normalizedDomainCreatePermissions
-            = __normalizeDomainCreatePermissions(__getSetWithoutNullsOrDuplicates(domainCreatePermission, domainCreatePermissions));
+            = __normalizeDomainCreatePermissions(PermissionUtils.getSetWithoutNullsOrDuplicates(domainCreatePermission,
+                                                                                                domainCreatePermissions));
 
       try {
-         connection = __getConnection();
+         connection = __getMutationConnection();
          accessorResource = __resolveResource(connection, accessorResource);
 
          __revokeDirectDomainCreatePermissions(connection, accessorResource, normalizedDomainCreatePermissions);
       }
+      catch (RuntimeException | Error e) {
+         __abortMutation(connection, e);
+         throw e;
+      }
       finally {
-         __closeConnection(connection);
+         __closeMutationConnection(connection);
       }
    }
 
@@ -2172,6 +2958,8 @@ public class SQLAccessControlContext implements AccessControlContext, Serializab
       grantDomainCreatePermissionPostCreateSysPersister.removeDomainCreatePostCreateSysPermissions(connection,
                                                                                                    accessorResource,
                                                                                                    removePermissions);
+
+      __onChange(connection, ChangeType.DOMAIN_CREATE_PERMISSIONS, accessorResource, null, null, null);
    }
 
    @Override
@@ -2182,7 +2970,7 @@ public class SQLAccessControlContext implements AccessControlContext, Serializab
       __assertResourceSpecified(accessorResource);
 
       try {
-         connection = __getConnection();
+         connection = __getReadConnection(OperationKind.LISTING);
          accessorResource = __resolveResource(connection, accessorResource);
          __assertQueryAuthorization(connection, accessorResource);
 
@@ -2201,7 +2989,7 @@ public class SQLAccessControlContext implements AccessControlContext, Serializab
       __assertResourceSpecified(accessorResource);
 
       try {
-         connection = __getConnection();
+         connection = __getReadConnection(OperationKind.LISTING);
          accessorResource = __resolveResource(connection, accessorResource);
          __assertQueryAuthorization(connection, accessorResource);
 
@@ -2226,18 +3014,7 @@ public class SQLAccessControlContext implements AccessControlContext, Serializab
    }
 
    private Set<DomainCreatePermission> __collapseDomainCreatePermissions(Set<DomainCreatePermission> domainCreatePermissions) {
-      final Set<DomainCreatePermission> collapsedPermissions = new HashSet<>(domainCreatePermissions);
-
-      for (DomainCreatePermission permission : domainCreatePermissions) {
-         for (DomainCreatePermission grantEquivalentPermission : domainCreatePermissions) {
-            if (permission.isGrantableFrom(grantEquivalentPermission) && !permission.equals(grantEquivalentPermission)) {
-               collapsedPermissions.remove(permission);
-               break;
-            }
-         }
-      }
-
-      return collapsedPermissions;
+      return PermissionUtils.collapseDomainCreatePermissions(domainCreatePermissions);
    }
 
    @Override
@@ -2257,7 +3034,7 @@ public class SQLAccessControlContext implements AccessControlContext, Serializab
             = __normalizeResourceCreatePermission(resourceCreatePermissions);
 
       try {
-         connection = __getConnection();
+         connection = __getMutationConnection();
          accessorResource = __resolveResource(connection, accessorResource);
 
          __setDirectResourceCreatePermissions(connection,
@@ -2266,8 +3043,12 @@ public class SQLAccessControlContext implements AccessControlContext, Serializab
                                               domainName,
                                               normalizedResourceCreatePermissions);
       }
+      catch (RuntimeException | Error e) {
+         __abortMutation(connection, e);
+         throw e;
+      }
       finally {
-         __closeConnection(connection);
+         __closeMutationConnection(connection);
       }
    }
 
@@ -2384,6 +3165,8 @@ public class SQLAccessControlContext implements AccessControlContext, Serializab
                                                                                               domainId,
                                                                                               requestedResourceCreatePermissions,
                                                                                               sessionResource);
+
+      __onChange(connection, ChangeType.RESOURCE_CREATE_PERMISSIONS, accessorResource, null, domainName, resourceClassName);
    }
 
    private void __assertSetContainsResourceCreateSystemPermission(Set<ResourceCreatePermission> resourceCreatePermissions) {
@@ -2526,7 +3309,7 @@ public class SQLAccessControlContext implements AccessControlContext, Serializab
             = __normalizeResourceCreatePermission(resourceCreatePermissions);
 
       try {
-         connection = __getConnection();
+         connection = __getMutationConnection();
          accessorResource = __resolveResource(connection, accessorResource);
 
          __grantDirectResourceCreatePermissions(connection,
@@ -2535,8 +3318,12 @@ public class SQLAccessControlContext implements AccessControlContext, Serializab
                                                 domainName,
                                                 normalizedResourceCreatePermissions);
       }
+      catch (RuntimeException | Error e) {
+         __abortMutation(connection, e);
+         throw e;
+      }
       finally {
-         __closeConnection(connection);
+         __closeMutationConnection(connection);
       }
    }
 
@@ -2556,10 +3343,10 @@ public class SQLAccessControlContext implements AccessControlContext, Serializab
       __assertVarargPermissionsSpecified(resourceCreatePermissions);
 
       final Set<ResourceCreatePermission> normalizedResourceCreatePermissions
-            = __normalizeResourceCreatePermission(__getSetWithoutNullsOrDuplicates(resourceCreatePermission,
-                                                                                   resourceCreatePermissions));
+            = __normalizeResourceCreatePermission(PermissionUtils.getSetWithoutNullsOrDuplicates(resourceCreatePermission,
+                                                                                                 resourceCreatePermissions));
       try {
-         connection = __getConnection();
+         connection = __getMutationConnection();
          accessorResource = __resolveResource(connection, accessorResource);
 
          __grantDirectResourceCreatePermissions(connection,
@@ -2568,8 +3355,12 @@ public class SQLAccessControlContext implements AccessControlContext, Serializab
                                                 domainName,
                                                 normalizedResourceCreatePermissions);
       }
+      catch (RuntimeException | Error e) {
+         __abortMutation(connection, e);
+         throw e;
+      }
       finally {
-         __closeConnection(connection);
+         __closeMutationConnection(connection);
       }
    }
 
@@ -2693,52 +3484,34 @@ public class SQLAccessControlContext implements AccessControlContext, Serializab
          }
       }
 
-      // update *CREATE system permission, if necessary
-      grantResourceCreatePermissionSysPersister.updateResourceCreateSysPermissions(connection,
-                                                                                   accessorResource,
-                                                                                   resourceClassId,
-                                                                                   domainId,
-                                                                                   updatePermissions,
-                                                                                   sessionResource);
-
-      // update any post create system permissions, if necessary
-      grantResourceCreatePermissionPostCreateSysPersister.updateResourceCreatePostCreateSysPermissions(connection,
-                                                                                                       accessorResource,
-                                                                                                       resourceClassId,
-                                                                                                       domainId,
-                                                                                                       updatePermissions,
-                                                                                                       sessionResource);
-
-      // update any post create non-system permissions, if necessary
-      grantResourceCreatePermissionPostCreatePersister.updateResourceCreatePostCreatePermissions(connection,
-                                                                                                 accessorResource,
-                                                                                                 resourceClassId,
-                                                                                                 domainId,
-                                                                                                 updatePermissions,
-                                                                                                 sessionResource);
-      // grant the *CREATE system permissions, if necessary
-      grantResourceCreatePermissionSysPersister.addResourceCreateSysPermissions(connection,
-                                                                                accessorResource,
-                                                                                resourceClassId,
-                                                                                domainId,
-                                                                                addPermissions,
-                                                                                sessionResource);
-
-      // grant any post create system permissions, if necessary
-      grantResourceCreatePermissionPostCreateSysPersister.addResourceCreatePostCreateSysPermissions(connection,
-                                                                                                    accessorResource,
-                                                                                                    resourceClassId,
-                                                                                                    domainId,
-                                                                                                    addPermissions,
-                                                                                                    sessionResource);
+      // add any new and update any existing *CREATE system permissions
+      grantResourceCreatePermissionSysPersister.addOrUpdateResourceCreateSysPermissions(connection,
+                                                                                        accessorResource,
+                                                                                        resourceClassId,
+                                                                                        domainId,
+                                                                                        addPermissions,
+                                                                                        updatePermissions,
+                                                                                        sessionResource);
+
+      // add any new and update any existing post create system permissions
+      grantResourceCreatePermissionPostCreateSysPersister.addOrUpdateResourceCreatePostCreateSysPermissions(connection,
+                                                                                                            accessorResource,
+                                                                                                            resourceClassId,
+                                                                                                            domainId,
+                                                                                                            addPermissions,
+                                                                                                            updatePermissions,
+                                                                                                            sessionResource);
+
+      // add any new and update any existing post create non-system permissions
+      grantResourceCreatePermissionPostCreatePersister.addOrUpdateResourceCreatePostCreatePermissions(connection,
+                                                                                                      accessorResource,
+                                                                                                      resourceClassId,
+                                                                                                      domainId,
+                                                                                                      addPermissions,
+                                                                                                      updatePermissions,
+                                                                                                      sessionResource);
 
-      // grant any post create non-system permissions, if necessary
-      grantResourceCreatePermissionPostCreatePersister.addResourceCreatePostCreatePermissions(connection,
-                                                                                              accessorResource,
-                                                                                              resourceClassId,
-                                                                                              domainId,
-                                                                                              addPermissions,
-                                                                                              sessionResource);
+      __onChange(connection, ChangeType.RESOURCE_CREATE_PERMISSIONS, accessorResource, null, domainName, resourceClassName);
    }
 
    @Override
@@ -2759,7 +3532,7 @@ public class SQLAccessControlContext implements AccessControlContext, Serializab
             = __normalizeResourceCreatePermission(resourceCreatePermissions);
 
       try {
-         connection = __getConnection();
+         connection = __getMutationConnection();
          accessorResource = __resolveResource(connection, accessorResource);
 
          __revokeDirectResourceCreatePermissions(connection,
@@ -2768,8 +3541,12 @@ public class SQLAccessControlContext implements AccessControlContext, Serializab
                                                  domainName,
                                                  normalizedResourceCreatePermissions);
       }
+      catch (RuntimeException | Error e) {
+         __abortMutation(connection, e);
+         throw e;
+      }
       finally {
-         __closeConnection(connection);
+         __closeMutationConnection(connection);
       }
    }
 
@@ -2789,11 +3566,11 @@ public class SQLAccessControlContext implements AccessControlContext, Serializab
       __assertVarargPermissionsSpecified(resourceCreatePermissions);
 
       final Set<ResourceCreatePermission> normalizedResourceCreatePermissions
-            = __normalizeResourceCreatePermission(__getSetWithoutNullsOrDuplicates(resourceCreatePermission,
-                                                                                   resourceCreatePermissions));
+            = __normalizeResourceCreatePermission(PermissionUtils.getSetWithoutNullsOrDuplicates(resourceCreatePermission,
+                                                                                                 resourceCreatePermissions));
 
       try {
-         connection = __getConnection();
+         connection = __getMutationConnection();
          accessorResource = __resolveResource(connection, accessorResource);
 
          __revokeDirectResourceCreatePermissions(connection,
@@ -2802,8 +3579,12 @@ public class SQLAccessControlContext implements AccessControlContext, Serializab
                                                  domainName,
                                                  normalizedResourceCreatePermissions);
       }
+      catch (RuntimeException | Error e) {
+         __abortMutation(connection, e);
+         throw e;
+      }
       finally {
-         __closeConnection(connection);
+         __closeMutationConnection(connection);
       }
    }
 
@@ -2914,6 +3695,8 @@ public class SQLAccessControlContext implements AccessControlContext, Serializab
                                                                                                  resourceClassId,
                                                                                                  domainId,
                                                                                                  removePermissions);
+
+      __onChange(connection, ChangeType.RESOURCE_CREATE_PERMISSIONS, accessorResource, null, domainName, resourceClassName);
    }
 
    private boolean __setContainsResourceCreateSystemPermission(Set<ResourceCreatePermission> resourceCreatePermissions) {
@@ -2938,7 +3721,7 @@ public class SQLAccessControlContext implements AccessControlContext, Serializab
       __assertDomainSpecified(domainName);
 
       try {
-         connection = __getConnection();
+         connection = __getReadConnection(OperationKind.LISTING);
          accessorResource = __resolveResource(connection, accessorResource);
          __assertQueryAuthorization(connection, accessorResource);
 
@@ -2987,7 +3770,7 @@ public class SQLAccessControlContext implements AccessControlContext, Serializab
       __assertResourceSpecified(accessorResource);
 
       try {
-         connection = __getConnection();
+         connection = __getReadConnection(OperationKind.LISTING);
          accessorResource = __resolveResource(connection, accessorResource);
          __assertQueryAuthorization(connection, accessorResource);
 
@@ -3035,7 +3818,7 @@ public class SQLAccessControlContext implements AccessControlContext, Serializab
       __assertDomainSpecified(domainName);
 
       try {
-         connection = __getConnection();
+         connection = __getReadConnection(OperationKind.LISTING);
          accessorResource = __resolveResource(connection, accessorResource);
          __assertQueryAuthorization(connection, accessorResource);
 
@@ -3148,18 +3931,7 @@ public class SQLAccessControlContext implements AccessControlContext, Serializab
    }
 
    private Set<ResourceCreatePermission> __collapseResourceCreatePermissions(Set<ResourceCreatePermission> resourceCreatePermissions) {
-      final Set<ResourceCreatePermission> collapsedPermissions = new HashSet<>(resourceCreatePermissions);
-
-      for (ResourceCreatePermission permission : resourceCreatePermissions) {
-         for (ResourceCreatePermission grantEquivalentPermission : resourceCreatePermissions) {
-            if (permission.isGrantableFrom(grantEquivalentPermission) && !permission.equals(grantEquivalentPermission)) {
-               collapsedPermissions.remove(permission);
-               break;
-            }
-         }
-      }
-
-      return collapsedPermissions;
+      return PermissionUtils.collapseResourceCreatePermissions(resourceCreatePermissions);
    }
 
    @Override
@@ -3170,7 +3942,7 @@ public class SQLAccessControlContext implements AccessControlContext, Serializab
       __assertResourceSpecified(accessorResource);
 
       try {
-         connection = __getConnection();
+         connection = __getReadConnection(OperationKind.LISTING);
          accessorResource = __resolveResource(connection, accessorResource);
          __assertQueryAuthorization(connection, accessorResource);
 
@@ -3184,35 +3956,63 @@ public class SQLAccessControlContext implements AccessControlContext, Serializab
 
    private Map<String, Map<String, Set<ResourceCreatePermission>>> __getEffectiveResourceCreatePermissionsMap(
          SQLConnection connection,
-         Resource accessorResource) {
+         final Resource accessorResource) {
+      // the grant sources are independent of each other and of the domain permissions, so they may run in parallel
+      final ParallelQueryExecutor.Batch queryBatch = __newQueryBatch(connection, 3);
+
+      // the *CREATE system permissions
+      final Future<Map<String, Map<String, Set<ResourceCreatePermission>>>> createSysPermissionsMap
+            = queryBatch.submit(new ParallelQueryExecutor.Query<Map<String, Map<String, Set<ResourceCreatePermission>>>>() {
+         @Override
+         public Map<String, Map<String, Set<ResourceCreatePermission>>> execute(SQLConnection queryConnection) {
+            return grantResourceCreatePermissionSysPersister
+                  .getResourceCreateSysPermissionsIncludeInherited(queryConnection, accessorResource);
+         }
+      });
+
+      // the post create system permissions
+      final Future<Map<String, Map<String, Set<ResourceCreatePermission>>>> postCreateSysPermissionsMap
+            = queryBatch.submit(new ParallelQueryExecutor.Query<Map<String, Map<String, Set<ResourceCreatePermission>>>>() {
+         @Override
+         public Map<String, Map<String, Set<ResourceCreatePermission>>> execute(SQLConnection queryConnection) {
+            return grantResourceCreatePermissionPostCreateSysPersister
+                  .getResourceCreatePostCreateSysPermissionsIncludeInherited(queryConnection, accessorResource);
+         }
+      });
+
+      // the post create non-system permissions
+      final Future<Map<String, Map<String, Set<ResourceCreatePermission>>>> postCreatePermissionsMap
+            = queryBatch.submit(new ParallelQueryExecutor.Query<Map<String, Map<String, Set<ResourceCreatePermission>>>>() {
+         @Override
+         public Map<String, Map<String, Set<ResourceCreatePermission>>> execute(SQLConnection queryConnection) {
+            return grantResourceCreatePermissionPostCreatePersister
+                  .getResourceCreatePostCreatePermissionsIncludeInherited(queryConnection, accessorResource);
+         }
+      });
+
+      // the domain permissions are read on this connection, since they may come from the session's snapshot
+      final Map<String, Set<DomainPermission>> effectiveDomainPermissionsMap
+            = __getEffectiveDomainPermissionsMap(connection, accessorResource);
+
       // collect all the create permissions that the accessor has
       Map<String, Map<String, Set<ResourceCreatePermission>>> allResourceCreatePermissionsMap = new HashMap<>();
 
-      // read the *CREATE system permissions and add to allResourceCreatePermissionsMap
-      allResourceCreatePermissionsMap
-            .putAll(grantResourceCreatePermissionSysPersister
-                          .getResourceCreateSysPermissionsIncludeInherited(connection, accessorResource));
+      // add the *CREATE system permissions to allResourceCreatePermissionsMap
+      allResourceCreatePermissionsMap.putAll(queryBatch.getResult(createSysPermissionsMap));
 
-      // read the post create system permissions and add to allResourceCreatePermissionsMap
-      __mergeSourceCreatePermissionsMapIntoTargetCreatePermissionsMap(
-            grantResourceCreatePermissionPostCreateSysPersister
-                  .getResourceCreatePostCreateSysPermissionsIncludeInherited(connection, accessorResource),
-            allResourceCreatePermissionsMap);
+      // add the post create system permissions to allResourceCreatePermissionsMap
+      __mergeSourceCreatePermissionsMapIntoTargetCreatePermissionsMap(queryBatch.getResult(postCreateSysPermissionsMap),
+                                                                      allResourceCreatePermissionsMap);
 
-      // read the post create non-system permissions and add to allResourceCreatePermissionsMap
-      __mergeSourceCreatePermissionsMapIntoTargetCreatePermissionsMap(
-            grantResourceCreatePermissionPostCreatePersister
-                  .getResourceCreatePostCreatePermissionsIncludeInherited(connection, accessorResource),
-            allResourceCreatePermissionsMap);
+      // add the post create non-system permissions to allResourceCreatePermissionsMap
+      __mergeSourceCreatePermissionsMapIntoTargetCreatePermissionsMap(queryBatch.getResult(postCreatePermissionsMap),
+                                                                      allResourceCreatePermissionsMap);
 
       // finally, collect all applicable create permissions when accessor has super-user privileges to any domain
       // and add them into the globalALLPermissionsMap
       final Map<String, Map<String, Set<ResourceCreatePermission>>> allSuperResourceCreatePermissionsMap = new HashMap<>();
       Map<String, Set<ResourceCreatePermission>> superResourceCreatePermissionsMap = null;
 
-      final Map<String, Set<DomainPermission>> effectiveDomainPermissionsMap
-            = __getEffectiveDomainPermissionsMap(connection, accessorResource);
-
       for (Map.Entry<String, Set<DomainPermission>>
             effectiveDomainPermissionsByDomainEntry : effectiveDomainPermissionsMap.entrySet()) {
          final Set<DomainPermission> effectiveDomainPermissions = effectiveDomainPermissionsByDomainEntry.getValue();
@@ -3306,7 +4106,7 @@ public class SQLAccessControlContext implements AccessControlContext, Serializab
       final Set<ResourcePermission> normalizedResourcePermissions = __normalizeResourcePermission(resourcePermissions);
 
       try {
-         connection = __getConnection();
+         connection = __getMutationConnection();
          accessorResource = __resolveResource(connection, accessorResource);
          accessedResource = __resolveResource(connection, accessedResource);
 
@@ -3317,8 +4117,12 @@ public class SQLAccessControlContext implements AccessControlContext, Serializab
                                         sessionResource,
                                         false);
       }
+      catch (RuntimeException | Error e) {
+         __abortMutation(connection, e);
+         throw e;
+      }
       finally {
-         __closeConnection(connection);
+         __closeMutationConnection(connection);
       }
    }
 
@@ -3329,7 +4133,7 @@ public class SQLAccessControlContext implements AccessControlContext, Serializab
                                                Resource grantorResource,
                                                boolean newResourceMode) {
       final ResourceClassInternalInfo accessedResourceClassInternalInfo
-            = resourceClassPersister.getResourceClassInfoByResourceId(connection, accessedResource);
+            = __getResourceClassInfo(connection, accessedResource);
 
       // next ensure that the requested permissions are all in the correct resource class
       __assertUniqueResourcePermissionsNamesForResourceClass(connection,
@@ -3431,6 +4235,8 @@ public class SQLAccessControlContext implements AccessControlContext, Serializab
                                                                                              .getResourceClassId()),
                                                               requestedResourcePermissions,
                                                               grantorResource);
+
+      __onChange(connection, ChangeType.RESOURCE_PERMISSIONS, accessorResource, accessedResource, null, null);
    }
 
    private void __assertUniqueResourcePermissionsNamesForResourceClass(SQLConnection connection,
@@ -3498,14 +4304,18 @@ public class SQLAccessControlContext implements AccessControlContext, Serializab
       final Set<ResourcePermission> normalizedResourcePermissions = __normalizeResourcePermission(resourcePermissions);
 
       try {
-         connection = __getConnection();
+         connection = __getMutationConnection();
          accessorResource = __resolveResource(connection, accessorResource);
          accessedResource = __resolveResource(connection, accessedResource);
 
          __grantDirectResourcePermissions(connection, accessorResource, accessedResource, normalizedResourcePermissions);
       }
+      catch (RuntimeException | Error e) {
+         __abortMutation(connection, e);
+         throw e;
+      }
       finally {
-         __closeConnection(connection);
+         __closeMutationConnection(connection);
       }
    }
 
@@ -3523,17 +4333,22 @@ public class SQLAccessControlContext implements AccessControlContext, Serializab
       __assertVarargPermissionsSpecified(resourcePermissions);
 
       final Set<ResourcePermission> normalizedResourcePermissions
-            = __normalizeResourcePermission(__getSetWithoutNullsOrDuplicates(resourcePermission, resourcePermissions));
+            = __normalizeResourcePermission(PermissionUtils.getSetWithoutNullsOrDuplicates(resourcePermission,
+                                                                                           resourcePermissions));
 
       try {
-         connection = __getConnection();
+         connection = __getMutationConnection();
          accessorResource = __resolveResource(connection, accessorResource);
          accessedResource = __resolveResource(connection, accessedResource);
 
          __grantDirectResourcePermissions(connection, accessorResource, accessedResource, normalizedResourcePermissions);
       }
+      catch (RuntimeException | Error e) {
+         __abortMutation(connection, e);
+         throw e;
+      }
       finally {
-         __closeConnection(connection);
+         __closeMutationConnection(connection);
       }
    }
 
@@ -3542,7 +4357,7 @@ public class SQLAccessControlContext implements AccessControlContext, Serializab
                                                  Resource accessedResource,
                                                  Set<ResourcePermission> requestedResourcePermissions) {
       final ResourceClassInternalInfo accessedResourceClassInternalInfo
-            = resourceClassPersister.getResourceClassInfoByResourceId(connection, accessedResource);
+            = __getResourceClassInfo(connection, accessedResource);
 
       // next ensure that the requested permissions are all in the correct resource class
       __assertUniqueResourcePermissionsNamesForResourceClass(connection,
@@ -3617,40 +4432,25 @@ public class SQLAccessControlContext implements AccessControlContext, Serializab
          }
       }
 
-      // update any necessary direct system permissions between the accessor and the accessed resource
-      grantResourcePermissionSysPersister.updateResourceSysPermissions(connection,
-                                                                       accessorResource,
-                                                                       accessedResource,
-                                                                       Id.<ResourceClassId>from(
-                                                                             accessedResourceClassInternalInfo.getResourceClassId()),
-                                                                       updatePermissions,
-                                                                       sessionResource);
-
-      // update any necessary direct non-system permissions between the accessor and the accessed resource
-      grantResourcePermissionPersister.updateResourcePermissions(connection,
-                                                                 accessorResource,
-                                                                 accessedResource,
-                                                                 Id.<ResourceClassId>from(
-                                                                       accessedResourceClassInternalInfo.getResourceClassId()),
-                                                                 updatePermissions,
-                                                                 sessionResource);
+      // add any new and update any existing direct system permissions between the accessor and the accessed resource
+      grantResourcePermissionSysPersister.addOrUpdateResourceSysPermissions(connection,
+                                                                            accessorResource,
+                                                                            accessedResource,
+                                                                            Id.<ResourceClassId>from(accessedResourceClassInternalInfo.getResourceClassId()),
+                                                                            addPermissions,
+                                                                            updatePermissions,
+                                                                            sessionResource);
 
-      // add the new direct system permissions
-      grantResourcePermissionSysPersister.addResourceSysPermissions(connection,
-                                                                    accessorResource,
-                                                                    accessedResource,
-                                                                    Id.<ResourceClassId>from(
-                                                                          accessedResourceClassInternalInfo.getResourceClassId()),
-                                                                    addPermissions,
-                                                                    sessionResource);
+      // add any new and update any existing direct non-system permissions between the accessor and the accessed resource
+      grantResourcePermissionPersister.addOrUpdateResourcePermissions(connection,
+                                                                      accessorResource,
+                                                                      accessedResource,
+                                                                      Id.<ResourceClassId>from(accessedResourceClassInternalInfo.getResourceClassId()),
+                                                                      addPermissions,
+                                                                      updatePermissions,
+                                                                      sessionResource);
 
-      // add the new direct non-system permissions
-      grantResourcePermissionPersister.addResourcePermissions(connection,
-                                                              accessorResource,
-                                                              accessedResource,
-                                                              Id.<ResourceClassId>from(accessedResourceClassInternalInfo.getResourceClassId()),
-                                                              addPermissions,
-                                                              sessionResource);
+      __onChange(connection, ChangeType.RESOURCE_PERMISSIONS, accessorResource, accessedResource, null, null);
    }
 
    @Override
@@ -3668,14 +4468,18 @@ public class SQLAccessControlContext implements AccessControlContext, Serializab
       final Set<ResourcePermission> normalizedResourcePermissions = __normalizeResourcePermission(resourcePermissions);
 
       try {
-         connection = __getConnection();
+         connection = __getMutationConnection();
          accessorResource = __resolveResource(connection, accessorResource);
          accessedResource = __resolveResource(connection, accessedResource);
 
          __revokeDirectResourcePermissions(connection, accessorResource, accessedResource, normalizedResourcePermissions);
       }
+      catch (RuntimeException | Error e) {
+         __abortMutation(connection, e);
+         throw e;
+      }
       finally {
-         __closeConnection(connection);
+         __closeMutationConnection(connection);
       }
    }
 
@@ -3693,17 +4497,22 @@ public class SQLAccessControlContext implements AccessControlContext, Serializab
       __assertVarargPermissionsSpecified(resourcePermissions);
 
       final Set<ResourcePermission> normalizedResourcePermissions
-            = __normalizeResourcePermission(__getSetWithoutNullsOrDuplicates(resourcePermission, resourcePermissions));
+            = __normalizeResourcePermission(PermissionUtils.getSetWithoutNullsOrDuplicates(resourcePermission,
+                                                                                           resourcePermissions));
 
       try {
-         connection = __getConnection();
+         connection = __getMutationConnection();
          accessorResource = __resolveResource(connection, accessorResource);
          accessedResource = __resolveResource(connection, accessedResource);
 
          __revokeDirectResourcePermissions(connection, accessorResource, accessedResource, normalizedResourcePermissions);
       }
+      catch (RuntimeException | Error e) {
+         __abortMutation(connection, e);
+         throw e;
+      }
       finally {
-         __closeConnection(connection);
+         __closeMutationConnection(connection);
       }
    }
 
@@ -3712,7 +4521,7 @@ public class SQLAccessControlContext implements AccessControlContext, Serializab
                                                   Resource accessedResource,
                                                   Set<ResourcePermission> obsoleteResourcePermissions) {
       final ResourceClassInternalInfo accessedResourceClassInternalInfo
-            = resourceClassPersister.getResourceClassInfoByResourceId(connection, accessedResource);
+            = __getResourceClassInfo(connection, accessedResource);
 
       // next ensure that the requested permissions are unique in name
       __assertUniqueResourcePermissionsNamesForResourceClass(connection,
@@ -3769,6 +4578,8 @@ public class SQLAccessControlContext implements AccessControlContext, Serializab
                                                                        accessedResourceClassInternalInfo
                                                                              .getResourceClassId()),
                                                                  removePermissions);
+
+      __onChange(connection, ChangeType.RESOURCE_PERMISSIONS, accessorResource, accessedResource, null, null);
    }
 
    @Override
@@ -3781,7 +4592,7 @@ public class SQLAccessControlContext implements AccessControlContext, Serializab
       __assertResourceSpecified(accessedResource);
 
       try {
-         connection = __getConnection();
+         connection = __getReadConnection(OperationKind.LISTING);
          accessorResource = __resolveResource(connection, accessorResource);
          accessedResource = __resolveResource(connection, accessedResource);
          __assertQueryAuthorization(connection, accessorResource);
@@ -3820,7 +4631,7 @@ public class SQLAccessControlContext implements AccessControlContext, Serializab
       __assertResourceSpecified(accessedResource);
 
       try {
-         connection = __getConnection();
+         connection = __getReadConnection(OperationKind.LISTING);
          accessorResource = __resolveResource(connection, accessorResource);
          accessedResource = __resolveResource(connection, accessedResource);
          __assertQueryAuthorization(connection, accessorResource);
@@ -3835,43 +4646,144 @@ public class SQLAccessControlContext implements AccessControlContext, Serializab
    private Set<ResourcePermission> __getEffectiveResourcePermissions(SQLConnection connection,
                                                                      Resource accessorResource,
                                                                      Resource accessedResource) {
+      if (__isRuledOutByGrantFilter(connection, accessorResource, accessedResource)) {
+         return new HashSet<>();
+      }
+      return __queryEffectiveResourcePermissions(connection, accessorResource, accessedResource);
+   }
+
+   private Set<ResourcePermission> __queryEffectiveResourcePermissions(SQLConnection connection,
+                                                                       final Resource accessorResource,
+                                                                       final Resource accessedResource) {
       Set<ResourcePermission> resourcePermissions = new HashSet<>();
 
-      final Id<DomainId> accessedDomainId = resourcePersister.getDomainIdByResource(connection, accessedResource);
+      final Id<DomainId> accessedDomainId = __getResourceDomainId(connection, accessedResource);
       final ResourceClassInternalInfo resourceClassInternalInfo
-            = resourceClassPersister.getResourceClassInfoByResourceId(connection, accessedResource);
+            = __getResourceClassInfo(connection, accessedResource);
+      final Id<ResourceClassId> accessedResourceClassId = Id.from(resourceClassInternalInfo.getResourceClassId());
+
+      // the grant sources are independent of each other and of the super-user check, so they may run in parallel
+      final ParallelQueryExecutor.Batch queryBatch = __newQueryBatch(connection, 4);
+
+      // the system permissions that the accessor resource has to the accessed resource
+      final Future<Set<ResourcePermission>> directSysPermissions
+            = queryBatch.submit(new ParallelQueryExecutor.Query<Set<ResourcePermission>>() {
+         @Override
+         public Set<ResourcePermission> execute(SQLConnection queryConnection) {
+            return grantResourcePermissionSysPersister.getResourceSysPermissionsIncludeInherited(queryConnection,
+                                                                                                 accessorResource,
+                                                                                                 accessedResource);
+         }
+      });
+
+      // the non-system permissions that the accessor has to the accessed resource
+      final Future<Set<ResourcePermission>> directPermissions
+            = queryBatch.submit(new ParallelQueryExecutor.Query<Set<ResourcePermission>>() {
+         @Override
+         public Set<ResourcePermission> execute(SQLConnection queryConnection) {
+            return grantResourcePermissionPersister.getResourcePermissionsIncludeInherited(queryConnection,
+                                                                                           accessorResource,
+                                                                                           accessedResource);
+         }
+      });
+
+      // the global system permissions that the accessor has to the accessed resource's domain
+      final Future<Set<ResourcePermission>> globalSysPermissions
+            = queryBatch.submit(new ParallelQueryExecutor.Query<Set<ResourcePermission>>() {
+         @Override
+         public Set<ResourcePermission> execute(SQLConnection queryConnection) {
+            return grantGlobalResourcePermissionSysPersister.getGlobalSysPermissionsIncludeInherited(queryConnection,
+                                                                                                     accessorResource,
+                                                                                                     accessedResourceClassId,
+                                                                                                     accessedDomainId);
+         }
+      });
+
+      // the global non-system permissions that the accessor has to the accessed resource's domain
+      final Future<Set<ResourcePermission>> globalPermissions
+            = queryBatch.submit(new ParallelQueryExecutor.Query<Set<ResourcePermission>>() {
+         @Override
+         public Set<ResourcePermission> execute(SQLConnection queryConnection) {
+            return grantGlobalResourcePermissionPersister.getGlobalResourcePermissionsIncludeInherited(queryConnection,
+                                                                                                       accessorResource,
+                                                                                                       accessedResourceClassId,
+                                                                                                       accessedDomainId);
+         }
+      });
 
       if (__isSuperUserOfDomain(connection, accessorResource, accessedDomainId)) {
+         queryBatch.cancel();
          return __getApplicableResourcePermissions(connection, resourceClassInternalInfo);
       }
 
-      // collect the system permissions that the accessor resource has to the accessed resource
-      resourcePermissions.addAll(grantResourcePermissionSysPersister
-                                       .getResourceSysPermissionsIncludeInherited(connection,
-                                                                                  accessorResource,
-                                                                                  accessedResource));
+      resourcePermissions.addAll(queryBatch.getResult(directSysPermissions));
+      resourcePermissions.addAll(queryBatch.getResult(directPermissions));
+      resourcePermissions.addAll(queryBatch.getResult(globalSysPermissions));
+      resourcePermissions.addAll(queryBatch.getResult(globalPermissions));
 
-      // collect the non-system permissions that the accessor has to the accessed resource
-      resourcePermissions.addAll(grantResourcePermissionPersister.getResourcePermissionsIncludeInherited(connection,
-                                                                                                         accessorResource,
-                                                                                                         accessedResource));
+      return __collapseResourcePermissions(resourcePermissions);
+   }
 
-      final Id<ResourceClassId> accessedResourceClassId = Id.from(resourceClassInternalInfo.getResourceClassId());
+   // returns true if the grant filter, if any, rules out that the accessor resource, or any resource it inherits
+   // from, has a direct or global permission on the accessed resource, or super-user permission on its domain; the
+   // resources the accessor inherits from are only queried for accessors the filter cannot rule out inheriting
+   private boolean __isRuledOutByGrantFilter(SQLConnection connection,
+                                             Resource accessorResource,
+                                             Resource accessedResource) {
+      if (grantFilter == null || !grantFilter.isBuilt()) {
+         return false;
+      }
 
-      // collect the global system permissions that the accessor has to the accessed resource's domain
-      resourcePermissions
-            .addAll(grantGlobalResourcePermissionSysPersister.getGlobalSysPermissionsIncludeInherited(connection,
-                                                                                                      accessorResource,
-                                                                                                      accessedResourceClassId,
-                                                                                                      accessedDomainId));
+      final long accessedDomainId = __getResourceDomainId(connection, accessedResource).getValue();
+      final long accessedResourceClassId = __getResourceClassInfo(connection, accessedResource).getResourceClassId();
 
-      // first collect the global non-system permissions that the accessor this resource has to the accessed resource's domain
-      resourcePermissions
-            .addAll(grantGlobalResourcePermissionPersister.getGlobalResourcePermissionsIncludeInherited(connection,
-                                                                                                        accessorResource,
-                                                                                                        accessedResourceClassId,
-                                                                                                        accessedDomainId));
-      return __collapseResourcePermissions(resourcePermissions);
+      final List<Long> accessorResourceIds = new ArrayList<>();
+      final Set<Long> visitedResourceIds = new HashSet<>();
+      accessorResourceIds.add(accessorResource.getId());
+      visitedResourceIds.add(accessorResource.getId());
+
+      for (int i = 0; i < accessorResourceIds.size(); i++) {
+         final long candidateResourceId = accessorResourceIds.get(i);
+
+         if (grantFilter.mightHaveGrants(candidateResourceId,
+                                         accessedResource.getId(),
+                                         accessedResourceClassId,
+                                         accessedDomainId)) {
+            return false;
+         }
+         if (grantFilter.mightInherit(candidateResourceId)) {
+            for (long inheritedResourceId : __getDirectlyInheritedResourceIds(connection, candidateResourceId)) {
+               if (visitedResourceIds.add(inheritedResourceId)) {
+                  accessorResourceIds.add(inheritedResourceId);
+               }
+            }
+         }
+      }
+
+      return true;
+   }
+
+   // returns the ids of the resources the accessor directly inherits from, looked up with a single query unless
+   // they are in the off-heap index
+   private long[] __getDirectlyInheritedResourceIds(SQLConnection connection,
+                                                    long accessorResourceId) {
+      long[] inheritedResourceIds = offHeapIndex != null ? offHeapIndex.getInheritedResourceIds(accessorResourceId) : null;
+
+      if (inheritedResourceIds == null) {
+         final Set<Resource> inheritedResources
+               = redundantGrantPersister.getDirectlyInheritedResources(connection, Resources.getInstance(accessorResourceId));
+         inheritedResourceIds = new long[inheritedResources.size()];
+         int i = 0;
+         for (Resource inheritedResource : inheritedResources) {
+            inheritedResourceIds[i++] = inheritedResource.getId();
+         }
+         // what is read within a transaction may never commit, so it is not shared with other contexts
+         if (offHeapIndex != null && !__isInTransaction(connection)) {
+            offHeapIndex.putInheritedResourceIds(accessorResourceId, inheritedResourceIds);
+         }
+      }
+
+      return inheritedResourceIds;
    }
 
    private Set<ResourcePermission> __getEffectiveResourcePermissionsIgnoringSuperUserPrivileges(SQLConnection connection,
@@ -3890,11 +4802,9 @@ public class SQLAccessControlContext implements AccessControlContext, Serializab
                                                                                                          accessorResource,
                                                                                                          accessedResource));
 
-      final Id<DomainId> accessedDomainId = resourcePersister.getDomainIdByResource(connection, accessedResource);
+      final Id<DomainId> accessedDomainId = __getResourceDomainId(connection, accessedResource);
       final Id<ResourceClassId> accessedResourceClassId
-            = Id.from(resourceClassPersister
-                            .getResourceClassInfoByResourceId(connection, accessedResource)
-                            .getResourceClassId());
+            = Id.from(__getResourceClassInfo(connection, accessedResource).getResourceClassId());
 
       // collect the global system permissions that the accessor has to the accessed resource's domain
       resourcePermissions
@@ -3928,7 +4838,7 @@ public class SQLAccessControlContext implements AccessControlContext, Serializab
       final Set<ResourcePermission> normalizedResourcePermissions = __normalizeResourcePermission(resourcePermissions);
 
       try {
-         connection = __getConnection();
+         connection = __getMutationConnection();
          accessorResource = __resolveResource(connection, accessorResource);
          resourceClassName = resourceClassName.trim();
          domainName = domainName.trim();
@@ -3939,8 +4849,12 @@ public class SQLAccessControlContext implements AccessControlContext, Serializab
                                       domainName,
                                       normalizedResourcePermissions);
       }
+      catch (RuntimeException | Error e) {
+         __abortMutation(connection, e);
+         throw e;
+      }
       finally {
-         __closeConnection(connection);
+         __closeMutationConnection(connection);
       }
    }
 
@@ -4041,6 +4955,8 @@ public class SQLAccessControlContext implements AccessControlContext, Serializab
                                                                           domainId,
                                                                           requestedResourcePermissions,
                                                                           sessionResource);
+
+      __onChange(connection, ChangeType.GLOBAL_RESOURCE_PERMISSIONS, accessorResource, null, domainName, resourceClassName);
    }
 
    private Set<ResourcePermission> __getDirectGlobalResourcePermissions(SQLConnection connection,
@@ -4124,7 +5040,7 @@ public class SQLAccessControlContext implements AccessControlContext, Serializab
       final Set<ResourcePermission> normalizedResourcePermissions = __normalizeResourcePermission(resourcePermissions);
 
       try {
-         connection = __getConnection();
+         connection = __getMutationConnection();
          accessorResource = __resolveResource(connection, accessorResource);
          resourceClassName = resourceClassName.trim();
          domainName = domainName.trim();
@@ -4135,8 +5051,12 @@ public class SQLAccessControlContext implements AccessControlContext, Serializab
                                         domainName,
                                         normalizedResourcePermissions);
       }
+      catch (RuntimeException | Error e) {
+         __abortMutation(connection, e);
+         throw e;
+      }
       finally {
-         __closeConnection(connection);
+         __closeMutationConnection(connection);
       }
    }
 
@@ -4156,10 +5076,11 @@ public class SQLAccessControlContext implements AccessControlContext, Serializab
       __assertVarargPermissionsSpecified(resourcePermissions);
 
       final Set<ResourcePermission> normalizedResourcePermissions
-            = __normalizeResourcePermission(__getSetWithoutNullsOrDuplicates(resourcePermission, resourcePermissions));
+            = __normalizeResourcePermission(PermissionUtils.getSetWithoutNullsOrDuplicates(resourcePermission,
+                                                                                           resourcePermissions));
 
       try {
-         connection = __getConnection();
+         connection = __getMutationConnection();
          accessorResource = __resolveResource(connection, accessorResource);
          resourceClassName = resourceClassName.trim();
          domainName = domainName.trim();
@@ -4170,8 +5091,12 @@ public class SQLAccessControlContext implements AccessControlContext, Serializab
                                         domainName,
                                         normalizedResourcePermissions);
       }
+      catch (RuntimeException | Error e) {
+         __abortMutation(connection, e);
+         throw e;
+      }
       finally {
-         __closeConnection(connection);
+         __closeMutationConnection(connection);
       }
    }
 
@@ -4247,37 +5172,25 @@ public class SQLAccessControlContext implements AccessControlContext, Serializab
          }
       }
 
-      // update any necessary direct system permissions between the accessor and the accessed resource
-      grantGlobalResourcePermissionSysPersister.updateGlobalSysPermissions(connection,
-                                                                           accessorResource,
-                                                                           resourceClassId,
-                                                                           domainId,
-                                                                           updatePermissions,
-                                                                           sessionResource);
-
-      // update any necessary direct non-system permissions between the accessor and the accessed resource
-      grantGlobalResourcePermissionPersister.updateGlobalResourcePermissions(connection,
-                                                                             accessorResource,
-                                                                             resourceClassId,
-                                                                             domainId,
-                                                                             updatePermissions,
-                                                                             sessionResource);
+      // add any new and update any existing system permissions
+      grantGlobalResourcePermissionSysPersister.addOrUpdateGlobalSysPermissions(connection,
+                                                                                accessorResource,
+                                                                                resourceClassId,
+                                                                                domainId,
+                                                                                addPermissions,
+                                                                                updatePermissions,
+                                                                                sessionResource);
 
-      // add the new system permissions
-      grantGlobalResourcePermissionSysPersister.addGlobalSysPermissions(connection,
-                                                                        accessorResource,
-                                                                        resourceClassId,
-                                                                        domainId,
-                                                                        addPermissions,
-                                                                        sessionResource);
+      // add any new and update any existing non-system permissions
+      grantGlobalResourcePermissionPersister.addOrUpdateGlobalResourcePermissions(connection,
+                                                                                  accessorResource,
+                                                                                  resourceClassId,
+                                                                                  domainId,
+                                                                                  addPermissions,
+                                                                                  updatePermissions,
+                                                                                  sessionResource);
 
-      // add the new non-system permissions
-      grantGlobalResourcePermissionPersister.addGlobalResourcePermissions(connection,
-                                                                          accessorResource,
-                                                                          resourceClassId,
-                                                                          domainId,
-                                                                          addPermissions,
-                                                                          sessionResource);
+      __onChange(connection, ChangeType.GLOBAL_RESOURCE_PERMISSIONS, accessorResource, null, domainName, resourceClassName);
    }
 
    @Override
@@ -4297,7 +5210,7 @@ public class SQLAccessControlContext implements AccessControlContext, Serializab
       final Set<ResourcePermission> normalizedResourcePermissions = __normalizeResourcePermission(resourcePermissions);
 
       try {
-         connection = __getConnection();
+         connection = __getMutationConnection();
          accessorResource = __resolveResource(connection, accessorResource);
          resourceClassName = resourceClassName.trim();
          domainName = domainName.trim();
@@ -4308,8 +5221,12 @@ public class SQLAccessControlContext implements AccessControlContext, Serializab
                                          domainName,
                                          normalizedResourcePermissions);
       }
+      catch (RuntimeException | Error e) {
+         __abortMutation(connection, e);
+         throw e;
+      }
       finally {
-         __closeConnection(connection);
+         __closeMutationConnection(connection);
       }
    }
 
@@ -4329,10 +5246,11 @@ public class SQLAccessControlContext implements AccessControlContext, Serializab
       __assertVarargPermissionsSpecified(resourcePermissions);
 
       final Set<ResourcePermission> normalizedResourcePermissions
-            = __normalizeResourcePermission(__getSetWithoutNullsOrDuplicates(resourcePermission, resourcePermissions));
+            = __normalizeResourcePermission(PermissionUtils.getSetWithoutNullsOrDuplicates(resourcePermission,
+                                                                                           resourcePermissions));
 
       try {
-         connection = __getConnection();
+         connection = __getMutationConnection();
          accessorResource = __resolveResource(connection, accessorResource);
          resourceClassName = resourceClassName.trim();
          domainName = domainName.trim();
@@ -4343,8 +5261,12 @@ public class SQLAccessControlContext implements AccessControlContext, Serializab
                                          domainName,
                                          normalizedResourcePermissions);
       }
+      catch (RuntimeException | Error e) {
+         __abortMutation(connection, e);
+         throw e;
+      }
       finally {
-         __closeConnection(connection);
+         __closeMutationConnection(connection);
       }
    }
 
@@ -4416,6 +5338,8 @@ public class SQLAccessControlContext implements AccessControlContext, Serializab
                                                                              resourceClassId,
                                                                              domainId,
                                                                              removePermissions);
+
+      __onChange(connection, ChangeType.GLOBAL_RESOURCE_PERMISSIONS, accessorResource, null, domainName, resourceClassName);
    }
 
    @Override
@@ -4430,7 +5354,7 @@ public class SQLAccessControlContext implements AccessControlContext, Serializab
       __assertDomainSpecified(domainName);
 
       try {
-         connection = __getConnection();
+         connection = __getReadConnection(OperationKind.LISTING);
          accessorResource = __resolveResource(connection, accessorResource);
          __assertQueryAuthorization(connection, accessorResource);
 
@@ -4483,7 +5407,7 @@ public class SQLAccessControlContext implements AccessControlContext, Serializab
       __assertDomainSpecified(domainName);
 
       try {
-         connection = __getConnection();
+         connection = __getReadConnection(OperationKind.LISTING);
          accessorResource = __resolveResource(connection, accessorResource);
          __assertQueryAuthorization(connection, accessorResource);
 
@@ -4608,18 +5532,7 @@ public class SQLAccessControlContext implements AccessControlContext, Serializab
    }
 
    private Set<ResourcePermission> __collapseResourcePermissions(Set<ResourcePermission> resourcePermissions) {
-      final Set<ResourcePermission> collapsedPermissions = new HashSet<>(resourcePermissions);
-
-      for (ResourcePermission permission : resourcePermissions) {
-         for (ResourcePermission grantEquivalentPermission : resourcePermissions) {
-            if (permission.isGrantableFrom(grantEquivalentPermission) && !permission.equals(grantEquivalentPermission)) {
-               collapsedPermissions.remove(permission);
-               break;
-            }
-         }
-      }
-
-      return collapsedPermissions;
+      return PermissionUtils.collapseResourcePermissions(resourcePermissions);
    }
 
    @Override
@@ -4630,7 +5543,7 @@ public class SQLAccessControlContext implements AccessControlContext, Serializab
       __assertResourceSpecified(accessorResource);
 
       try {
-         connection = __getConnection();
+         connection = __getReadConnection(OperationKind.LISTING);
          accessorResource = __resolveResource(connection, accessorResource);
          __assertQueryAuthorization(connection, accessorResource);
 
@@ -4666,7 +5579,7 @@ public class SQLAccessControlContext implements AccessControlContext, Serializab
       __assertResourceSpecified(accessorResource);
 
       try {
-         connection = __getConnection();
+         connection = __getReadConnection(OperationKind.LISTING);
          accessorResource = __resolveResource(connection, accessorResource);
          __assertQueryAuthorization(connection, accessorResource);
 
@@ -4786,7 +5699,7 @@ public class SQLAccessControlContext implements AccessControlContext, Serializab
       __assertResourceSpecified(resource);
 
       try {
-         connection = __getConnection();
+         connection = __getReadConnection(OperationKind.LISTING);
          resource = __resolveResource(connection, resource);
 
          if (sessionResource.equals(resource)) {
@@ -4796,7 +5709,7 @@ public class SQLAccessControlContext implements AccessControlContext, Serializab
             return authenticatedResourceDomainName;
          }
 
-         return domainPersister.getResourceDomainNameByResourceId(connection, resource);
+         return __getResourceDomainName(connection, resource);
       }
       finally {
          __closeConnection(connection);
@@ -4811,7 +5724,7 @@ public class SQLAccessControlContext implements AccessControlContext, Serializab
       __assertDomainSpecified(domainName);
 
       try {
-         connection = __getConnection();
+         connection = __getReadConnection(OperationKind.LISTING);
          domainName = domainName.trim();
 
          return domainPersister.getResourceDomainNameDescendants(connection, domainName);
@@ -4829,7 +5742,7 @@ public class SQLAccessControlContext implements AccessControlContext, Serializab
       __assertResourceClassSpecified(resourceClassName);
 
       try {
-         connection = __getConnection();
+         connection = __getReadConnection(OperationKind.LISTING);
 
          final ResourceClassInternalInfo resourceClassInternalInfo = __getResourceClassInternalInfo(connection,
                                                                                                     resourceClassName);
@@ -4851,11 +5764,11 @@ public class SQLAccessControlContext implements AccessControlContext, Serializab
       __assertResourceSpecified(resource);
 
       try {
-         connection = __getConnection();
+         connection = __getReadConnection(OperationKind.LISTING);
 
          resource = __resolveResource(connection, resource);
          final ResourceClassInternalInfo resourceClassInternalInfo
-               = resourceClassPersister.getResourceClassInfoByResourceId(connection, resource);
+               = __getResourceClassInfo(connection, resource);
          return new ResourceClassInfo(resourceClassInternalInfo.getResourceClassName(),
                                       resourceClassInternalInfo.isAuthenticatable(),
                                       resourceClassInternalInfo.isUnauthenticatedCreateAllowed());
@@ -4924,7 +5837,7 @@ public class SQLAccessControlContext implements AccessControlContext, Serializab
       final Set<DomainPermission> normalizedDomainPermissions = __normalizeDomainPermissions(domainPermissions);
 
       try {
-         connection = __getConnection();
+         connection = __getReadConnection(OperationKind.CHECK);
          accessorResource = __resolveResource(connection, accessorResource);
 
          return __hasPostCreateDomainPermissions(connection, accessorResource, normalizedDomainPermissions);
@@ -4946,10 +5859,11 @@ public class SQLAccessControlContext implements AccessControlContext, Serializab
       __assertVarargPermissionsSpecified(domainPermissions);
 
       final Set<DomainPermission> normalizedDomainPermissions
-            = __normalizeDomainPermissions(__getSetWithoutNullsOrDuplicates(domainPermission, domainPermissions));
+            = __normalizeDomainPermissions(PermissionUtils.getSetWithoutNullsOrDuplicates(domainPermission,
+                                                                                          domainPermissions));
 
       try {
-         connection = __getConnection();
+         connection = __getReadConnection(OperationKind.CHECK);
          accessorResource = __resolveResource(connection, accessorResource);
 
          return __hasPostCreateDomainPermissions(connection,
@@ -5050,7 +5964,7 @@ public class SQLAccessControlContext implements AccessControlContext, Serializab
       final Set<DomainPermission> normalizedDomainPermissions = __normalizeDomainPermissions(domainPermissions);
 
       try {
-         connection = __getConnection();
+         connection = __getReadConnection(OperationKind.CHECK);
          accessorResource = __resolveResource(connection, accessorResource);
 
          return __hasDomainPermissions(connection, accessorResource, domainName, normalizedDomainPermissions);
@@ -5074,10 +5988,11 @@ public class SQLAccessControlContext implements AccessControlContext, Serializab
       __assertVarargPermissionsSpecified(domainPermissions);
 
       final Set<DomainPermission> normalizedDomainPermissions
-            = __normalizeDomainPermissions(__getSetWithoutNullsOrDuplicates(domainPermission, domainPermissions));
+            = __normalizeDomainPermissions(PermissionUtils.getSetWithoutNullsOrDuplicates(domainPermission,
+                                                                                          domainPermissions));
 
       try {
-         connection = __getConnection();
+         connection = __getReadConnection(OperationKind.CHECK);
          accessorResource = __resolveResource(connection, accessorResource);
 
          return __hasDomainPermissions(connection, accessorResource, domainName, normalizedDomainPermissions);
@@ -5148,7 +6063,7 @@ public class SQLAccessControlContext implements AccessControlContext, Serializab
             = __normalizeDomainCreatePermissions(domainCreatePermissions);
 
       try {
-         connection = __getConnection();
+         connection = __getReadConnection(OperationKind.CHECK);
          accessorResource = __resolveResource(connection, accessorResource);
 
          return __hasDomainCreatePermissions(connection, accessorResource, normalizedDomainCreatePermissions);
@@ -5170,11 +6085,11 @@ public class SQLAccessControlContext implements AccessControlContext, Serializab
       __assertVarargPermissionsSpecified(domainCreatePermissions);
 
       final Set<DomainCreatePermission> normalizedDomainCreatePermissions
-            = __normalizeDomainCreatePermissions(__getSetWithoutNullsOrDuplicates(domainCreatePermission,
-                                                                                  domainCreatePermissions));
+            = __normalizeDomainCreatePermissions(PermissionUtils.getSetWithoutNullsOrDuplicates(domainCreatePermission,
+                                                                                                domainCreatePermissions));
 
       try {
-         connection = __getConnection();
+         connection = __getReadConnection(OperationKind.CHECK);
          accessorResource = __resolveResource(connection, accessorResource);
 
          return __hasDomainCreatePermissions(connection, accessorResource, normalizedDomainCreatePermissions);
@@ -5264,7 +6179,7 @@ public class SQLAccessControlContext implements AccessControlContext, Serializab
       final Set<ResourcePermission> normalizedResourcePermissions = __normalizeResourcePermission(resourcePermissions);
 
       try {
-         connection = __getConnection();
+         connection = __getReadConnection(OperationKind.CHECK);
          accessorResource = __resolveResource(connection, accessorResource);
          resourceClassName = resourceClassName.trim();
          domainName = domainName.trim();
@@ -5296,10 +6211,11 @@ public class SQLAccessControlContext implements AccessControlContext, Serializab
       __assertVarargPermissionsSpecified(resourcePermissions);
 
       final Set<ResourcePermission> normalizedResourcePermissions
-            = __normalizeResourcePermission(__getSetWithoutNullsOrDuplicates(resourcePermission, resourcePermissions));
+            = __normalizeResourcePermission(PermissionUtils.getSetWithoutNullsOrDuplicates(resourcePermission,
+                                                                                           resourcePermissions));
 
       try {
-         connection = __getConnection();
+         connection = __getReadConnection(OperationKind.CHECK);
          accessorResource = __resolveResource(connection, accessorResource);
          resourceClassName = resourceClassName.trim();
          domainName = domainName.trim();
@@ -5441,7 +6357,7 @@ public class SQLAccessControlContext implements AccessControlContext, Serializab
       final Set<ResourcePermission> normalizedResourcePermissions = __normalizeResourcePermission(resourcePermissions);
 
       try {
-         connection = __getConnection();
+         connection = __getReadConnection(OperationKind.CHECK);
          accessorResource = __resolveResource(connection, accessorResource);
          resourceClassName = resourceClassName.trim();
          domainName = domainName.trim();
@@ -5473,10 +6389,11 @@ public class SQLAccessControlContext implements AccessControlContext, Serializab
       __assertVarargPermissionsSpecified(resourcePermissions);
 
       final Set<ResourcePermission> normalizedResourcePermissions
-            = __normalizeResourcePermission(__getSetWithoutNullsOrDuplicates(resourcePermission, resourcePermissions));
+            = __normalizeResourcePermission(PermissionUtils.getSetWithoutNullsOrDuplicates(resourcePermission,
+                                                                                           resourcePermissions));
 
       try {
-         connection = __getConnection();
+         connection = __getReadConnection(OperationKind.CHECK);
          accessorResource = __resolveResource(connection, accessorResource);
          resourceClassName = resourceClassName.trim();
          domainName = domainName.trim();
@@ -5559,7 +6476,7 @@ public class SQLAccessControlContext implements AccessControlContext, Serializab
       final Set<ResourcePermission> normalizedResourcePermissions = __normalizeResourcePermission(resourcePermissions);
 
       try {
-         connection = __getConnection();
+         connection = __getReadConnection(OperationKind.CHECK);
          accessorResource = __resolveResource(connection, accessorResource);
          accessedResource = __resolveResource(connection, accessedResource);
 
@@ -5584,10 +6501,11 @@ public class SQLAccessControlContext implements AccessControlContext, Serializab
       __assertVarargPermissionsSpecified(resourcePermissions);
 
       final Set<ResourcePermission> normalizedResourcePermissions
-            = __normalizeResourcePermission(__getSetWithoutNullsOrDuplicates(resourcePermission, resourcePermissions));
+            = __normalizeResourcePermission(PermissionUtils.getSetWithoutNullsOrDuplicates(resourcePermission,
+                                                                                           resourcePermissions));
 
       try {
-         connection = __getConnection();
+         connection = __getReadConnection(OperationKind.CHECK);
          accessorResource = __resolveResource(connection, accessorResource);
          accessedResource = __resolveResource(connection, accessedResource);
 
@@ -5605,30 +6523,163 @@ public class SQLAccessControlContext implements AccessControlContext, Serializab
       __assertQueryAuthorization(connection, accessorResource);
 
       final ResourceClassInternalInfo resourceClassInternalInfo
-            = resourceClassPersister.getResourceClassInfoByResourceId(connection, accessedResource);
+            = __getResourceClassInfo(connection, accessedResource);
       __assertPermissionsValid(connection,
                                resourceClassInternalInfo.getResourceClassName(),
                                requestedResourcePermissions);
 
-      // first check for effective permissions
-      final Set<ResourcePermission> effectiveResourcePermissions
-            = __getEffectiveResourcePermissions(connection,
-                                                accessorResource,
-                                                accessedResource);
-
-      boolean hasPermission = true;
+      return __hasValidResourcePermissions(connection, accessorResource, accessedResource, requestedResourcePermissions);
+   }
 
-      for (ResourcePermission requestedResourcePermission : requestedResourcePermissions) {
-         if (!__isPermissible(requestedResourcePermission, effectiveResourcePermissions)) {
-            hasPermission = false;
-            break;
-         }
-      }
+   @Override
+   public PermissionCheck compilePermissionCheck(String resourceClassName,
+                                                 Set<ResourcePermission> resourcePermissions) {
+      SQLConnection connection = null;
 
-      // next check super-user permissions to the domain of the accessed resource
+      __assertAuthenticated();
+      __assertResourceClassSpecified(resourceClassName);
+      __assertPermissionsSpecified(resourcePermissions);
+      __assertPermissionsSetNotEmpty(resourcePermissions);
+
+      final Set<ResourcePermission> normalizedResourcePermissions = __normalizeResourcePermission(resourcePermissions);
+
+      try {
+         connection = __getReadConnection(OperationKind.CHECK);
+
+         return __compilePermissionCheck(connection, resourceClassName.trim(), normalizedResourcePermissions);
+      }
+      finally {
+         __closeConnection(connection);
+      }
+   }
+
+   @Override
+   public PermissionCheck compilePermissionCheck(String resourceClassName,
+                                                 ResourcePermission resourcePermission,
+                                                 ResourcePermission... resourcePermissions) {
+      SQLConnection connection = null;
+
+      __assertAuthenticated();
+      __assertResourceClassSpecified(resourceClassName);
+      __assertPermissionSpecified(resourcePermission);
+      __assertVarargPermissionsSpecified(resourcePermissions);
+
+      final Set<ResourcePermission> normalizedResourcePermissions
+            = __normalizeResourcePermission(PermissionUtils.getSetWithoutNullsOrDuplicates(resourcePermission,
+                                                                                           resourcePermissions));
+
+      try {
+         connection = __getReadConnection(OperationKind.CHECK);
+
+         return __compilePermissionCheck(connection, resourceClassName.trim(), normalizedResourcePermissions);
+      }
+      finally {
+         __closeConnection(connection);
+      }
+   }
+
+   private PermissionCheck __compilePermissionCheck(SQLConnection connection,
+                                                    String resourceClassName,
+                                                    Set<ResourcePermission> resourcePermissions) {
+      final ResourceClassInternalInfo resourceClassInternalInfo
+            = __getResourceClassInternalInfo(connection, resourceClassName);
+      __assertPermissionsValid(connection, resourceClassInternalInfo.getResourceClassName(), resourcePermissions);
+
+      return new SQLPermissionCheck(resourceClassInternalInfo, resourcePermissions);
+   }
+
+   @Override
+   public boolean hasResourcePermissions(Resource accessorResource,
+                                         Resource accessedResource,
+                                         PermissionCheck permissionCheck) {
+      SQLConnection connection = null;
+
+      __assertAuthenticated();
+      __assertResourceSpecified(accessorResource);
+      __assertResourceSpecified(accessedResource);
+      final SQLPermissionCheck sqlPermissionCheck = __getSQLPermissionCheck(permissionCheck);
+
+      try {
+         connection = __getReadConnection(OperationKind.CHECK);
+         accessorResource = __resolveResource(connection, accessorResource);
+         accessedResource = __resolveResource(connection, accessedResource);
+
+         __assertQueryAuthorization(connection, accessorResource);
+
+         // the permissions were validated when the check was compiled, so we only need to make sure that
+         // the accessed resource is of the resource class they were validated against
+         final ResourceClassInternalInfo resourceClassInternalInfo = __getResourceClassInfo(connection, accessedResource);
+         if (resourceClassInternalInfo.getResourceClassId() != sqlPermissionCheck.getResourceClassId()
+               || !resourceClassInternalInfo.getResourceClassName().equals(sqlPermissionCheck.getResourceClassName())) {
+            throw new IllegalArgumentException("Permission check for resource class "
+                                                     + sqlPermissionCheck.getResourceClassName()
+                                                     + " is not valid for resource "
+                                                     + accessedResource
+                                                     + " of resource class "
+                                                     + resourceClassInternalInfo.getResourceClassName());
+         }
+
+         return __hasValidResourcePermissions(connection,
+                                              accessorResource,
+                                              accessedResource,
+                                              sqlPermissionCheck.getResourcePermissions());
+      }
+      finally {
+         __closeConnection(connection);
+      }
+   }
+
+   @Override
+   public void assertResourcePermissions(Resource accessorResource,
+                                         Resource accessedResource,
+                                         PermissionCheck permissionCheck) {
+      if (!hasResourcePermissions(accessorResource, accessedResource, permissionCheck)) {
+         throw NotAuthorizedException.newInstanceForResourcePermissions(accessorResource,
+                                                                        accessedResource,
+                                                                        permissionCheck.getResourcePermissions());
+      }
+   }
+
+   private static SQLPermissionCheck __getSQLPermissionCheck(PermissionCheck permissionCheck) {
+      if (permissionCheck == null) {
+         throw new NullPointerException("Permission check required, none specified");
+      }
+      if (!(permissionCheck instanceof SQLPermissionCheck)) {
+         throw new IllegalArgumentException("Permission check was not compiled by a SQL access control context");
+      }
+      return (SQLPermissionCheck) permissionCheck;
+   }
+
+   // returns whether the accessor resource has the specified permissions, which callers have to have validated
+   // against the accessed resource's resource class, to the accessed resource
+   private boolean __hasValidResourcePermissions(SQLConnection connection,
+                                                 Resource accessorResource,
+                                                 Resource accessedResource,
+                                                 Set<ResourcePermission> requestedResourcePermissions) {
+      // a grant filter may rule out any grants, including super-user permissions, without querying them
+      if (__isRuledOutByGrantFilter(connection, accessorResource, accessedResource)) {
+         return false;
+      }
+
+      // first check for effective permissions
+      final Set<ResourcePermission> effectiveResourcePermissions
+            = __queryEffectiveResourcePermissions(connection,
+                                                  accessorResource,
+                                                  accessedResource);
+
+      boolean hasPermission = true;
+
+      for (ResourcePermission requestedResourcePermission : requestedResourcePermissions) {
+         if (!__isPermissible(requestedResourcePermission, effectiveResourcePermissions)) {
+            hasPermission = false;
+            break;
+         }
+      }
+
+      // next check super-user permissions to the domain of the accessed resource
       if (!hasPermission) {
          final String domainName
-               = domainPersister.getResourceDomainNameByResourceId(connection, accessedResource);
+               = __getResourceDomainName(connection, accessedResource);
 
          hasPermission = __isSuperUserOfDomain(connection, accessorResource, domainName);
       }
@@ -5685,7 +6736,7 @@ public class SQLAccessControlContext implements AccessControlContext, Serializab
             = __normalizeResourceCreatePermission(resourceCreatePermissions);
 
       try {
-         connection = __getConnection();
+         connection = __getReadConnection(OperationKind.CHECK);
          accessorResource = __resolveResource(connection, accessorResource);
          resourceClassName = resourceClassName.trim();
          domainName = domainName.trim();
@@ -5717,11 +6768,11 @@ public class SQLAccessControlContext implements AccessControlContext, Serializab
       __assertVarargPermissionsSpecified(resourceCreatePermissions);
 
       final Set<ResourceCreatePermission> normalizedResourceCreatePermissions
-            = __normalizeResourceCreatePermission(__getSetWithoutNullsOrDuplicates(resourceCreatePermission,
-                                                                                   resourceCreatePermissions));
+            = __normalizeResourceCreatePermission(PermissionUtils.getSetWithoutNullsOrDuplicates(resourceCreatePermission,
+                                                                                                 resourceCreatePermissions));
 
       try {
-         connection = __getConnection();
+         connection = __getReadConnection(OperationKind.CHECK);
          accessorResource = __resolveResource(connection, accessorResource);
          resourceClassName = resourceClassName.trim();
          domainName = domainName.trim();
@@ -5796,7 +6847,7 @@ public class SQLAccessControlContext implements AccessControlContext, Serializab
       final Set<ResourcePermission> normalizedResourcePermissions = __normalizeResourcePermission(resourcePermissions);
 
       try {
-         connection = __getConnection();
+         connection = __getReadConnection(OperationKind.LISTING);
 
          accessorResource = __resolveResource(connection, accessorResource);
          __assertQueryAuthorization(connection, accessorResource);
@@ -5827,10 +6878,11 @@ public class SQLAccessControlContext implements AccessControlContext, Serializab
       __assertVarargPermissionsSpecified(resourcePermissions);
 
       final Set<ResourcePermission> normalizedResourcePermissions
-            = __normalizeResourcePermission(__getSetWithoutNullsOrDuplicates(resourcePermission, resourcePermissions));
+            = __normalizeResourcePermission(PermissionUtils.getSetWithoutNullsOrDuplicates(resourcePermission,
+                                                                                           resourcePermissions));
 
       try {
-         connection = __getConnection();
+         connection = __getReadConnection(OperationKind.LISTING);
 
          accessorResource = __resolveResource(connection, accessorResource);
          __assertQueryAuthorization(connection, accessorResource);
@@ -5957,7 +7009,7 @@ public class SQLAccessControlContext implements AccessControlContext, Serializab
       final Set<ResourcePermission> normalizedResourcePermissions = __normalizeResourcePermission(resourcePermissions);
 
       try {
-         connection = __getConnection();
+         connection = __getReadConnection(OperationKind.LISTING);
 
          accessorResource = __resolveResource(connection, accessorResource);
          __assertQueryAuthorization(connection, accessorResource);
@@ -5991,10 +7043,11 @@ public class SQLAccessControlContext implements AccessControlContext, Serializab
       __assertVarargPermissionsSpecified(resourcePermissions);
 
       final Set<ResourcePermission> normalizedResourcePermissions
-            = __normalizeResourcePermission(__getSetWithoutNullsOrDuplicates(resourcePermission, resourcePermissions));
+            = __normalizeResourcePermission(PermissionUtils.getSetWithoutNullsOrDuplicates(resourcePermission,
+                                                                                           resourcePermissions));
 
       try {
-         connection = __getConnection();
+         connection = __getReadConnection(OperationKind.LISTING);
 
          accessorResource = __resolveResource(connection, accessorResource);
          __assertQueryAuthorization(connection, accessorResource);
@@ -6117,14 +7170,14 @@ public class SQLAccessControlContext implements AccessControlContext, Serializab
       return resources;
    }
 
-   @Override
-   public Set<Resource> getAccessorResourcesByResourcePermissions(Resource accessedResource,
-                                                                  String resourceClassName,
-                                                                  Set<ResourcePermission> resourcePermissions) {
+   private ResourceFilter __getResourceFilter(Resource accessorResource,
+                                              String resourceClassName,
+                                              String domainName,
+                                              Set<ResourcePermission> resourcePermissions) {
       SQLConnection connection = null;
 
       __assertAuthenticated();
-      __assertResourceSpecified(accessedResource);
+      __assertResourceSpecified(accessorResource);
       __assertResourceClassSpecified(resourceClassName);
       __assertPermissionsSpecified(resourcePermissions);
       __assertPermissionsSetNotEmpty(resourcePermissions);
@@ -6132,196 +7185,830 @@ public class SQLAccessControlContext implements AccessControlContext, Serializab
       final Set<ResourcePermission> normalizedResourcePermissions = __normalizeResourcePermission(resourcePermissions);
 
       try {
-         connection = __getConnection();
-
-         accessedResource = __resolveResource(connection, accessedResource);
-         __assertQueryAuthorization(connection, accessedResource);
-
-         resourceClassName = resourceClassName.trim();
-
-         return __getAccessorResourcesByResourcePermissions(connection,
-                                                            accessedResource,
-                                                            resourceClassName,
-                                                            normalizedResourcePermissions);
-      }
-      finally {
-         __closeConnection(connection);
-      }
-   }
-
-   @Override
-   public Set<Resource> getAccessorResourcesByResourcePermissions(Resource accessedResource,
-                                                                  String resourceClassName,
-                                                                  ResourcePermission resourcePermission,
-                                                                  ResourcePermission... resourcePermissions) {
-      SQLConnection connection = null;
-
-      __assertAuthenticated();
-      __assertResourceSpecified(accessedResource);
-      __assertResourceClassSpecified(resourceClassName);
-      __assertPermissionSpecified(resourcePermission);
-      __assertVarargPermissionsSpecified(resourcePermissions);
-
-      final Set<ResourcePermission> normalizedResourcePermissions
-            = __normalizeResourcePermission(__getSetWithoutNullsOrDuplicates(resourcePermission, resourcePermissions));
-
-      try {
-         connection = __getConnection();
+         connection = __getReadConnection(OperationKind.LISTING);
 
-         accessedResource = __resolveResource(connection, accessedResource);
-         __assertQueryAuthorization(connection, accessedResource);
+         accessorResource = __resolveResource(connection, accessorResource);
+         __assertQueryAuthorization(connection, accessorResource);
 
          resourceClassName = resourceClassName.trim();
 
-         return __getAccessorResourcesByResourcePermissions(connection,
-                                                            accessedResource,
-                                                            resourceClassName,
-                                                            normalizedResourcePermissions);
+         return __getResourceFilter(connection,
+                                    accessorResource,
+                                    resourceClassName,
+                                    domainName,
+                                    normalizedResourcePermissions);
       }
       finally {
          __closeConnection(connection);
       }
    }
 
-   private Set<Resource> __getAccessorResourcesByResourcePermissions(SQLConnection connection,
-                                                                     Resource accessedResource,
-                                                                     String resourceClassName,
-                                                                     Set<ResourcePermission> requestedResourcePermissions) {
-      // first verify that resource class is defined
-      Id<ResourceClassId> resourceClassId;
-      Id<ResourcePermissionId> permissionId;
-
-      resourceClassId = resourceClassPersister.getResourceClassId(connection, resourceClassName);
+   private ResourceFilter __getResourceFilter(SQLConnection connection,
+                                              Resource accessorResource,
+                                              String resourceClassName,
+                                              String domainName,
+                                              Set<ResourcePermission> normalizedResourcePermissions) {
+      // verify that resource class and domain are defined
+      final Id<ResourceClassId> resourceClassId = resourceClassPersister.getResourceClassId(connection, resourceClassName);
 
       if (resourceClassId == null) {
          throw new IllegalArgumentException("Could not find resource class: " + resourceClassName);
       }
 
-      // verify permissions are valid for the resource class
-      __assertPermissionsValid(connection, resourceClassName, requestedResourcePermissions);
-
-      Set<Resource> resources = new HashSet<>();
-
-      for (ResourcePermission resourcePermission : requestedResourcePermissions) {
-         Set<Resource> currentResources = new HashSet<>();
+      Id<DomainId> domainId = null;
+      if (domainName != null) {
+         domainId = domainPersister.getResourceDomainId(connection, domainName.trim());
 
-         if (resourcePermission.isSystemPermission()) {
-            // get the list of objects of the specified type that the session has access to via direct permissions
-            currentResources.addAll(grantResourcePermissionSysPersister
-                                          .getAccessorResourcesByResourceSysPermission(connection,
-                                                                                       accessedResource,
-                                                                                       resourceClassId,
-                                                                                       resourcePermission));
+         if (domainId == null) {
+            throw new IllegalArgumentException("Could not find domain: " + domainName);
          }
-         else {
-            // check if the non-system permission name is valid
-            permissionId = resourceClassPermissionPersister.getResourceClassPermissionId(connection,
-                                                                                         resourceClassId,
-                                                                                         resourcePermission
-                                                                                               .getPermissionName());
+      }
 
-            if (permissionId == null) {
-               throw new IllegalArgumentException("Permission: " + resourcePermission + " is not defined for resource class: " + resourceClassName);
-            }
+      // verify permissions are valid for resource class, and look up the ids of the non-system permissions
+      __assertPermissionsValid(connection, resourceClassName, normalizedResourcePermissions);
 
-            // get the list of objects of the specified type that the session has access to via direct permissions
-            currentResources.addAll(grantResourcePermissionPersister
-                                          .getAccessorResourcesByResourcePermission(connection,
-                                                                                    accessedResource,
-                                                                                    resourceClassId,
-                                                                                    resourcePermission,
-                                                                                    permissionId));
-         }
-         if (currentResources.isEmpty()) {
-            // we got an empty set for a permission, we are done since this and all future intersects will be empty
-            resources = currentResources;
-            break;
+      final Map<ResourcePermission, Id<ResourcePermissionId>> resourcePermissionIds = new HashMap<>();
+      for (ResourcePermission resourcePermission : normalizedResourcePermissions) {
+         if (resourcePermission.isSystemPermission()) {
+            resourcePermissionIds.put(resourcePermission, null);
          }
          else {
-            // the only way resources will be empty below is if we never entered this else clause before
-            if (resources.isEmpty()) {
-               resources = currentResources;
-            }
-            else {
-               // compute the intersection of previous iterations and the current resources
-               resources.retainAll(currentResources);
-               if (resources.isEmpty()) {
-                  // if intersection with previous results is empty, then all future intersections will be empty, as well
-                  break;
-               }
-            }
+            resourcePermissionIds.put(resourcePermission,
+                                      resourceClassPermissionPersister.getResourceClassPermissionId(connection,
+                                                                                                    resourceClassId,
+                                                                                                    resourcePermission
+                                                                                                          .getPermissionName()));
          }
       }
 
-      return resources;
+      return resourceFilterPersister.getResourceFilter(connection,
+                                                       accessorResource,
+                                                       resourceClassId,
+                                                       domainId,
+                                                       resourcePermissionIds);
    }
 
-   @Override
-   public List<String> getResourceClassNames() {
+   private RedundantGrantReport __findRedundantGrants(boolean removeRedundantGrants, int batchSize) {
       SQLConnection connection = null;
+      boolean transactionStarted = false;
+      boolean successful = false;
 
-      __assertAuthenticated();
+      __assertAuthenticatedAsSystemResource();
 
       try {
-         connection = __getConnection();
+         // a dry run only reads, but the removal has to see its own earlier batches
+         connection = removeRedundantGrants
+                      ? __getConnection(OperationKind.MUTATION)
+                      : __getReadConnection(OperationKind.LISTING);
+
+         final List<RedundantGrant> redundantGrants = new ArrayList<>();
+         long examinedGrantCount = 0;
+         int uncommittedGrantCount = 0;
+
+         for (Resource accessorResource : redundantGrantPersister.getAccessorResourcesWithDirectPermissions(connection)) {
+            for (Resource accessedResource : redundantGrantPersister.getAccessedResourcesByDirectPermissions(connection,
+                                                                                                           accessorResource)) {
+               final Set<ResourcePermission> directResourcePermissions
+                     = __getDirectResourcePermissions(connection, accessorResource, accessedResource);
+
+               // INHERIT grants make up the inheritance graph that the other grants are checked against
+               directResourcePermissions.remove(ResourcePermission_INHERIT);
+               directResourcePermissions.remove(ResourcePermission_INHERIT_GRANT);
+               examinedGrantCount += directResourcePermissions.size();
+
+               final List<RedundantGrant> redundantDirectGrants = __getRedundantGrants(connection,
+                                                                                       accessorResource,
+                                                                                       accessedResource,
+                                                                                       directResourcePermissions);
+               redundantGrants.addAll(redundantDirectGrants);
 
-         return resourceClassPersister.getResourceClassNames(connection);
+               if (removeRedundantGrants && !redundantDirectGrants.isEmpty()) {
+                  if (!transactionStarted) {
+                     transactionStarted = __beginTransaction(connection);
+                  }
+                  __removeRedundantGrants(connection, accessorResource, accessedResource, redundantDirectGrants);
+                  uncommittedGrantCount += redundantDirectGrants.size();
+
+                  if (transactionStarted && uncommittedGrantCount >= batchSize) {
+                     __endTransaction(connection, true, true);
+                     transactionStarted = false;
+                     uncommittedGrantCount = 0;
+                     __onMutationCommitted();
+                  }
+               }
+            }
+         }
+
+         successful = true;
+         return new RedundantGrantReport(examinedGrantCount, redundantGrants, removeRedundantGrants);
       }
       finally {
-         __closeConnection(connection);
+         // only the current batch is rolled back on failure, any earlier batches remain committed
+         try {
+            __endTransaction(connection, transactionStarted, successful);
+            if (removeRedundantGrants && successful) {
+               __onMutationCommitted();
+            }
+         }
+         finally {
+            __closeConnection(connection);
+         }
       }
    }
 
-   @Override
-   public List<String> getResourcePermissionNames(String resourceClassName) {
-      SQLConnection connection = null;
+   // returns the specified direct permissions of the accessor to the accessed resource, which the accessor would still
+   // have without them, with at least the same grant option: because it is super-user of the accessed resource's
+   // domain, has a global permission to it, or inherits the permission from another resource; the grants these
+   // checks rely on are never redundant themselves (domain permissions, global permissions and INHERIT), or belong to
+   // a resource further along the acyclic inheritance graph, so removing all the redundant grants is safe
+   private List<RedundantGrant> __getRedundantGrants(SQLConnection connection,
+                                                     Resource accessorResource,
+                                                     Resource accessedResource,
+                                                     Set<ResourcePermission> directResourcePermissions) {
+      final List<RedundantGrant> redundantGrants = new ArrayList<>();
 
-      __assertAuthenticated();
-      __assertResourceClassSpecified(resourceClassName);
+      if (directResourcePermissions.isEmpty()) {
+         return redundantGrants;
+      }
 
-      try {
-         connection = __getConnection();
-         resourceClassName = resourceClassName.trim();
+      final Id<DomainId> accessedDomainId = __getResourceDomainId(connection, accessedResource);
 
-         return __getApplicableResourcePermissionNames(connection, resourceClassName);
-      }
-      finally {
-         __closeConnection(connection);
+      if (__isSuperUserOfDomain(connection, accessorResource, accessedDomainId)) {
+         for (ResourcePermission directResourcePermission : directResourcePermissions) {
+            redundantGrants.add(new RedundantGrant(accessorResource,
+                                                   accessedResource,
+                                                   directResourcePermission,
+                                                   RedundantGrant.Reason.SUPER_USER));
+         }
+         return redundantGrants;
       }
-   }
-
-   // private shared helper methods
 
-   private static Set<DomainPermission> __normalizeDomainPermissions(Set<DomainPermission> domainPermissions) {
-      Set<DomainPermission> normalizedPermissions = new HashSet<>(domainPermissions.size());
-      for (DomainPermission domainPermission : domainPermissions) {
-         normalizedPermissions.add(DomainPermissions.getInstance(domainPermission));
+      final Id<ResourceClassId> accessedResourceClassId
+            = Id.from(__getResourceClassInfo(connection, accessedResource).getResourceClassId());
+
+      final Set<ResourcePermission> globalResourcePermissions = new HashSet<>();
+      globalResourcePermissions.addAll(grantGlobalResourcePermissionSysPersister
+                                             .getGlobalSysPermissionsIncludeInherited(connection,
+                                                                                      accessorResource,
+                                                                                      accessedResourceClassId,
+                                                                                      accessedDomainId));
+      globalResourcePermissions.addAll(grantGlobalResourcePermissionPersister
+                                             .getGlobalResourcePermissionsIncludeInherited(connection,
+                                                                                           accessorResource,
+                                                                                           accessedResourceClassId,
+                                                                                           accessedDomainId));
+
+      // the permissions inherited to the accessed resource are only looked up if the global ones do not suffice
+      Set<ResourcePermission> inheritedResourcePermissions = null;
+
+      for (ResourcePermission directResourcePermission : directResourcePermissions) {
+         if (__isPermissible(directResourcePermission, globalResourcePermissions)) {
+            redundantGrants.add(new RedundantGrant(accessorResource,
+                                                   accessedResource,
+                                                   directResourcePermission,
+                                                   RedundantGrant.Reason.GLOBAL_PERMISSION));
+            continue;
+         }
+
+         if (inheritedResourcePermissions == null) {
+            inheritedResourcePermissions = __getInheritedResourcePermissions(connection,
+                                                                             accessorResource,
+                                                                             accessedResource);
+         }
+         if (__isPermissible(directResourcePermission, inheritedResourcePermissions)) {
+            redundantGrants.add(new RedundantGrant(accessorResource,
+                                                   accessedResource,
+                                                   directResourcePermission,
+                                                   RedundantGrant.Reason.INHERITED_PERMISSION));
+         }
       }
-      return normalizedPermissions;
+
+      return redundantGrants;
    }
 
-   private static Set<DomainCreatePermission> __normalizeDomainCreatePermissions(Set<DomainCreatePermission> domainCreatePermissions) {
-      Set<DomainCreatePermission> normalizedPermissions = new HashSet<>(domainCreatePermissions.size());
-      for (DomainCreatePermission permission : domainCreatePermissions) {
-         normalizedPermissions.add(DomainCreatePermissions.getInstance(permission));
+   // returns the direct permissions to the accessed resource of all the resources the accessor inherits from, i.e.
+   // the accessor's permissions to the accessed resource without its own direct ones
+   private Set<ResourcePermission> __getInheritedResourcePermissions(SQLConnection connection,
+                                                                     Resource accessorResource,
+                                                                     Resource accessedResource) {
+      final Set<ResourcePermission> resourcePermissions = new HashSet<>();
+
+      for (Resource inheritedResource : redundantGrantPersister.getDirectlyInheritedResources(connection,
+                                                                                              accessorResource)) {
+         resourcePermissions.addAll(grantResourcePermissionSysPersister
+                                          .getResourceSysPermissionsIncludeInherited(connection,
+                                                                                     inheritedResource,
+                                                                                     accessedResource));
+         resourcePermissions.addAll(grantResourcePermissionPersister
+                                          .getResourcePermissionsIncludeInherited(connection,
+                                                                                  inheritedResource,
+                                                                                  accessedResource));
       }
-      return normalizedPermissions;
+
+      return resourcePermissions;
    }
 
-   private static Set<ResourcePermission> __normalizeResourcePermission(Set<ResourcePermission> resourcePermissions) {
-      Set<ResourcePermission> normalizedPermissions = new HashSet<>(resourcePermissions.size());
-      for (ResourcePermission resourcePermission : resourcePermissions) {
-         normalizedPermissions.add(ResourcePermissions.getInstance(resourcePermission));
+   private void __removeRedundantGrants(SQLConnection connection,
+                                        Resource accessorResource,
+                                        Resource accessedResource,
+                                        List<RedundantGrant> redundantGrants) {
+      final Id<ResourceClassId> accessedResourceClassId
+            = Id.from(__getResourceClassInfo(connection, accessedResource).getResourceClassId());
+
+      final Set<ResourcePermission> redundantResourcePermissions = new HashSet<>(redundantGrants.size());
+      for (RedundantGrant redundantGrant : redundantGrants) {
+         redundantResourcePermissions.add(redundantGrant.getResourcePermission());
       }
-      return normalizedPermissions;
+
+      grantResourcePermissionSysPersister.removeResourceSysPermissions(connection,
+                                                                       accessorResource,
+                                                                       accessedResource,
+                                                                       accessedResourceClassId,
+                                                                       redundantResourcePermissions);
+      grantResourcePermissionPersister.removeResourcePermissions(connection,
+                                                                 accessorResource,
+                                                                 accessedResource,
+                                                                 accessedResourceClassId,
+                                                                 redundantResourcePermissions);
+
+      __onChange(connection, ChangeType.RESOURCE_PERMISSIONS, accessorResource, accessedResource, null, null);
    }
 
-   private static Set<ResourceCreatePermission> __normalizeResourceCreatePermission(Set<ResourceCreatePermission> resourceCreatePermissions) {
-      Set<ResourceCreatePermission> normalizedPermissions = new HashSet<>(resourceCreatePermissions.size());
-      for (ResourceCreatePermission resourceCreatePermission : resourceCreatePermissions) {
-         normalizedPermissions.add(ResourceCreatePermissions.getInstance(resourceCreatePermission));
+   @Override
+   public long countResourcesByResourcePermissions(Resource accessorResource,
+                                                   String resourceClassName,
+                                                   Set<ResourcePermission> resourcePermissions) {
+      SQLConnection connection = null;
+
+      __assertAuthenticated();
+      __assertResourceSpecified(accessorResource);
+      __assertResourceClassSpecified(resourceClassName);
+      __assertPermissionsSpecified(resourcePermissions);
+      __assertPermissionsSetNotEmpty(resourcePermissions);
+
+      final Set<ResourcePermission> normalizedResourcePermissions = __normalizeResourcePermission(resourcePermissions);
+
+      try {
+         connection = __getReadConnection(OperationKind.LISTING);
+
+         accessorResource = __resolveResource(connection, accessorResource);
+         __assertQueryAuthorization(connection, accessorResource);
+
+         resourceClassName = resourceClassName.trim();
+
+         final ResourceFilter resourceFilter = __getResourceFilter(connection,
+                                                                   accessorResource,
+                                                                   resourceClassName,
+                                                                   null,
+                                                                   normalizedResourcePermissions);
+         return resourceFilterPersister.getResourceCount(connection, resourceFilter);
+      }
+      finally {
+         __closeConnection(connection);
+      }
+   }
+
+   @Override
+   public long countResourcesByResourcePermissions(Resource accessorResource,
+                                                   String resourceClassName,
+                                                   ResourcePermission resourcePermission,
+                                                   ResourcePermission... resourcePermissions) {
+      SQLConnection connection = null;
+
+      __assertAuthenticated();
+      __assertResourceSpecified(accessorResource);
+      __assertResourceClassSpecified(resourceClassName);
+      __assertPermissionSpecified(resourcePermission);
+      __assertVarargPermissionsSpecified(resourcePermissions);
+
+      final Set<ResourcePermission> normalizedResourcePermissions
+            = __normalizeResourcePermission(PermissionUtils.getSetWithoutNullsOrDuplicates(resourcePermission,
+                                                                                           resourcePermissions));
+
+      try {
+         connection = __getReadConnection(OperationKind.LISTING);
+
+         accessorResource = __resolveResource(connection, accessorResource);
+         __assertQueryAuthorization(connection, accessorResource);
+
+         resourceClassName = resourceClassName.trim();
+
+         final ResourceFilter resourceFilter = __getResourceFilter(connection,
+                                                                   accessorResource,
+                                                                   resourceClassName,
+                                                                   null,
+                                                                   normalizedResourcePermissions);
+         return resourceFilterPersister.getResourceCount(connection, resourceFilter);
+      }
+      finally {
+         __closeConnection(connection);
+      }
+   }
+
+   @Override
+   public long countResourcesByResourcePermissionsAndDomain(Resource accessorResource,
+                                                            String resourceClassName,
+                                                            String domainName,
+                                                            Set<ResourcePermission> resourcePermissions) {
+      SQLConnection connection = null;
+
+      __assertAuthenticated();
+      __assertResourceSpecified(accessorResource);
+      __assertResourceClassSpecified(resourceClassName);
+      __assertDomainSpecified(domainName);
+      __assertPermissionsSpecified(resourcePermissions);
+      __assertPermissionsSetNotEmpty(resourcePermissions);
+
+      final Set<ResourcePermission> normalizedResourcePermissions = __normalizeResourcePermission(resourcePermissions);
+
+      try {
+         connection = __getReadConnection(OperationKind.LISTING);
+
+         accessorResource = __resolveResource(connection, accessorResource);
+         __assertQueryAuthorization(connection, accessorResource);
+
+         resourceClassName = resourceClassName.trim();
+
+         final ResourceFilter resourceFilter = __getResourceFilter(connection,
+                                                                   accessorResource,
+                                                                   resourceClassName,
+                                                                   domainName,
+                                                                   normalizedResourcePermissions);
+         return resourceFilterPersister.getResourceCount(connection, resourceFilter);
+      }
+      finally {
+         __closeConnection(connection);
+      }
+   }
+
+   @Override
+   public long countResourcesByResourcePermissionsAndDomain(Resource accessorResource,
+                                                            String resourceClassName,
+                                                            String domainName,
+                                                            ResourcePermission resourcePermission,
+                                                            ResourcePermission... resourcePermissions) {
+      SQLConnection connection = null;
+
+      __assertAuthenticated();
+      __assertResourceSpecified(accessorResource);
+      __assertResourceClassSpecified(resourceClassName);
+      __assertDomainSpecified(domainName);
+      __assertPermissionSpecified(resourcePermission);
+      __assertVarargPermissionsSpecified(resourcePermissions);
+
+      final Set<ResourcePermission> normalizedResourcePermissions
+            = __normalizeResourcePermission(PermissionUtils.getSetWithoutNullsOrDuplicates(resourcePermission,
+                                                                                           resourcePermissions));
+
+      try {
+         connection = __getReadConnection(OperationKind.LISTING);
+
+         accessorResource = __resolveResource(connection, accessorResource);
+         __assertQueryAuthorization(connection, accessorResource);
+
+         resourceClassName = resourceClassName.trim();
+
+         final ResourceFilter resourceFilter = __getResourceFilter(connection,
+                                                                   accessorResource,
+                                                                   resourceClassName,
+                                                                   domainName,
+                                                                   normalizedResourcePermissions);
+         return resourceFilterPersister.getResourceCount(connection, resourceFilter);
+      }
+      finally {
+         __closeConnection(connection);
       }
-      return normalizedPermissions;
+   }
+
+   @Override
+   public boolean hasAnyResourceByResourcePermissions(Resource accessorResource,
+                                                      String resourceClassName,
+                                                      Set<ResourcePermission> resourcePermissions) {
+      SQLConnection connection = null;
+
+      __assertAuthenticated();
+      __assertResourceSpecified(accessorResource);
+      __assertResourceClassSpecified(resourceClassName);
+      __assertPermissionsSpecified(resourcePermissions);
+      __assertPermissionsSetNotEmpty(resourcePermissions);
+
+      final Set<ResourcePermission> normalizedResourcePermissions = __normalizeResourcePermission(resourcePermissions);
+
+      try {
+         connection = __getReadConnection(OperationKind.CHECK);
+
+         accessorResource = __resolveResource(connection, accessorResource);
+         __assertQueryAuthorization(connection, accessorResource);
+
+         resourceClassName = resourceClassName.trim();
+
+         final ResourceFilter resourceFilter = __getResourceFilter(connection,
+                                                                   accessorResource,
+                                                                   resourceClassName,
+                                                                   null,
+                                                                   normalizedResourcePermissions);
+         return resourceFilterPersister.hasAnyResource(connection, resourceFilter);
+      }
+      finally {
+         __closeConnection(connection);
+      }
+   }
+
+   @Override
+   public boolean hasAnyResourceByResourcePermissions(Resource accessorResource,
+                                                      String resourceClassName,
+                                                      ResourcePermission resourcePermission,
+                                                      ResourcePermission... resourcePermissions) {
+      SQLConnection connection = null;
+
+      __assertAuthenticated();
+      __assertResourceSpecified(accessorResource);
+      __assertResourceClassSpecified(resourceClassName);
+      __assertPermissionSpecified(resourcePermission);
+      __assertVarargPermissionsSpecified(resourcePermissions);
+
+      final Set<ResourcePermission> normalizedResourcePermissions
+            = __normalizeResourcePermission(PermissionUtils.getSetWithoutNullsOrDuplicates(resourcePermission,
+                                                                                           resourcePermissions));
+
+      try {
+         connection = __getReadConnection(OperationKind.CHECK);
+
+         accessorResource = __resolveResource(connection, accessorResource);
+         __assertQueryAuthorization(connection, accessorResource);
+
+         resourceClassName = resourceClassName.trim();
+
+         final ResourceFilter resourceFilter = __getResourceFilter(connection,
+                                                                   accessorResource,
+                                                                   resourceClassName,
+                                                                   null,
+                                                                   normalizedResourcePermissions);
+         return resourceFilterPersister.hasAnyResource(connection, resourceFilter);
+      }
+      finally {
+         __closeConnection(connection);
+      }
+   }
+
+   @Override
+   public boolean hasAnyResourceByResourcePermissionsAndDomain(Resource accessorResource,
+                                                               String resourceClassName,
+                                                               String domainName,
+                                                               Set<ResourcePermission> resourcePermissions) {
+      SQLConnection connection = null;
+
+      __assertAuthenticated();
+      __assertResourceSpecified(accessorResource);
+      __assertResourceClassSpecified(resourceClassName);
+      __assertDomainSpecified(domainName);
+      __assertPermissionsSpecified(resourcePermissions);
+      __assertPermissionsSetNotEmpty(resourcePermissions);
+
+      final Set<ResourcePermission> normalizedResourcePermissions = __normalizeResourcePermission(resourcePermissions);
+
+      try {
+         connection = __getReadConnection(OperationKind.CHECK);
+
+         accessorResource = __resolveResource(connection, accessorResource);
+         __assertQueryAuthorization(connection, accessorResource);
+
+         resourceClassName = resourceClassName.trim();
+
+         final ResourceFilter resourceFilter = __getResourceFilter(connection,
+                                                                   accessorResource,
+                                                                   resourceClassName,
+                                                                   domainName,
+                                                                   normalizedResourcePermissions);
+         return resourceFilterPersister.hasAnyResource(connection, resourceFilter);
+      }
+      finally {
+         __closeConnection(connection);
+      }
+   }
+
+   @Override
+   public boolean hasAnyResourceByResourcePermissionsAndDomain(Resource accessorResource,
+                                                               String resourceClassName,
+                                                               String domainName,
+                                                               ResourcePermission resourcePermission,
+                                                               ResourcePermission... resourcePermissions) {
+      SQLConnection connection = null;
+
+      __assertAuthenticated();
+      __assertResourceSpecified(accessorResource);
+      __assertResourceClassSpecified(resourceClassName);
+      __assertDomainSpecified(domainName);
+      __assertPermissionSpecified(resourcePermission);
+      __assertVarargPermissionsSpecified(resourcePermissions);
+
+      final Set<ResourcePermission> normalizedResourcePermissions
+            = __normalizeResourcePermission(PermissionUtils.getSetWithoutNullsOrDuplicates(resourcePermission,
+                                                                                           resourcePermissions));
+
+      try {
+         connection = __getReadConnection(OperationKind.CHECK);
+
+         accessorResource = __resolveResource(connection, accessorResource);
+         __assertQueryAuthorization(connection, accessorResource);
+
+         resourceClassName = resourceClassName.trim();
+
+         final ResourceFilter resourceFilter = __getResourceFilter(connection,
+                                                                   accessorResource,
+                                                                   resourceClassName,
+                                                                   domainName,
+                                                                   normalizedResourcePermissions);
+         return resourceFilterPersister.hasAnyResource(connection, resourceFilter);
+      }
+      finally {
+         __closeConnection(connection);
+      }
+   }
+
+   @Override
+   public String issueCapabilityToken(byte[] signingKey,
+                                      long validityMillis,
+                                      Set<Resource> accessedResources) {
+      SQLConnection connection = null;
+
+      __assertAuthenticated();
+      __assertResourcesSpecified(accessedResources);
+      __assertCapabilityTokenValidityValid(validityMillis);
+
+      final CapabilityTokenVerifier capabilityTokenVerifier = new CapabilityTokenVerifier(signingKey);
+
+      try {
+         connection = __getReadConnection(OperationKind.LISTING);
+
+         final Map<Resource, Set<ResourcePermission>> resourcePermissions = new LinkedHashMap<>(accessedResources.size());
+         for (Resource accessedResource : accessedResources) {
+            final Resource resolvedAccessedResource = __resolveResource(connection, accessedResource);
+            resourcePermissions.put(resolvedAccessedResource,
+                                    __getEffectiveResourcePermissions(connection,
+                                                                      sessionResource,
+                                                                      resolvedAccessedResource));
+         }
+
+         return capabilityTokenVerifier.sign(new CapabilityToken(sessionResource,
+                                                                 System.currentTimeMillis() + validityMillis,
+                                                                 resourcePermissions));
+      }
+      finally {
+         __closeConnection(connection);
+      }
+   }
+
+   @Override
+   public String issueCapabilityTokenByDomain(byte[] signingKey,
+                                              long validityMillis,
+                                              String resourceClassName,
+                                              String domainName) {
+      SQLConnection connection = null;
+
+      __assertAuthenticated();
+      __assertResourceClassSpecified(resourceClassName);
+      __assertDomainSpecified(domainName);
+      __assertCapabilityTokenValidityValid(validityMillis);
+
+      final CapabilityTokenVerifier capabilityTokenVerifier = new CapabilityTokenVerifier(signingKey);
+
+      try {
+         connection = __getReadConnection(OperationKind.LISTING);
+
+         resourceClassName = resourceClassName.trim();
+         domainName = domainName.trim();
+
+         final Map<Resource, Set<ResourcePermission>> resourcePermissions = new LinkedHashMap<>();
+
+         // look up the resources by each permission applicable to the resource class, once with and once without
+         // the grant option, which keeps the number of queries independent of the number of resources in the domain
+         for (String permissionName : __getApplicableResourcePermissionNames(connection, resourceClassName)) {
+            final ResourcePermission resourcePermission
+                  = ResourcePermissions.getInstance(permissionName);
+            final ResourcePermission resourcePermissionWithGrant
+                  = ResourcePermissions.getInstanceWithGrantOption(permissionName);
+
+            final Set<Resource> grantableResources
+                  = __getResourcesByPermissionsAndDomain(connection,
+                                                         sessionResource,
+                                                         resourceClassName,
+                                                         domainName,
+                                                         Collections.singleton(resourcePermissionWithGrant));
+
+            for (Resource resource : __getResourcesByPermissionsAndDomain(connection,
+                                                                          sessionResource,
+                                                                          resourceClassName,
+                                                                          domainName,
+                                                                          Collections.singleton(resourcePermission))) {
+               Set<ResourcePermission> permissions = resourcePermissions.get(resource);
+               if (permissions == null) {
+                  permissions = new HashSet<>();
+                  resourcePermissions.put(resource, permissions);
+               }
+               permissions.add(grantableResources.contains(resource) ? resourcePermissionWithGrant : resourcePermission);
+            }
+         }
+
+         return capabilityTokenVerifier.sign(new CapabilityToken(sessionResource,
+                                                                 System.currentTimeMillis() + validityMillis,
+                                                                 resourcePermissions));
+      }
+      finally {
+         __closeConnection(connection);
+      }
+   }
+
+   @Override
+   public Set<Resource> getAccessorResourcesByResourcePermissions(Resource accessedResource,
+                                                                  String resourceClassName,
+                                                                  Set<ResourcePermission> resourcePermissions) {
+      SQLConnection connection = null;
+
+      __assertAuthenticated();
+      __assertResourceSpecified(accessedResource);
+      __assertResourceClassSpecified(resourceClassName);
+      __assertPermissionsSpecified(resourcePermissions);
+      __assertPermissionsSetNotEmpty(resourcePermissions);
+
+      final Set<ResourcePermission> normalizedResourcePermissions = __normalizeResourcePermission(resourcePermissions);
+
+      try {
+         connection = __getReadConnection(OperationKind.LISTING);
+
+         accessedResource = __resolveResource(connection, accessedResource);
+         __assertQueryAuthorization(connection, accessedResource);
+
+         resourceClassName = resourceClassName.trim();
+
+         return __getAccessorResourcesByResourcePermissions(connection,
+                                                            accessedResource,
+                                                            resourceClassName,
+                                                            normalizedResourcePermissions);
+      }
+      finally {
+         __closeConnection(connection);
+      }
+   }
+
+   @Override
+   public Set<Resource> getAccessorResourcesByResourcePermissions(Resource accessedResource,
+                                                                  String resourceClassName,
+                                                                  ResourcePermission resourcePermission,
+                                                                  ResourcePermission... resourcePermissions) {
+      SQLConnection connection = null;
+
+      __assertAuthenticated();
+      __assertResourceSpecified(accessedResource);
+      __assertResourceClassSpecified(resourceClassName);
+      __assertPermissionSpecified(resourcePermission);
+      __assertVarargPermissionsSpecified(resourcePermissions);
+
+      final Set<ResourcePermission> normalizedResourcePermissions
+            = __normalizeResourcePermission(PermissionUtils.getSetWithoutNullsOrDuplicates(resourcePermission,
+                                                                                           resourcePermissions));
+
+      try {
+         connection = __getReadConnection(OperationKind.LISTING);
+
+         accessedResource = __resolveResource(connection, accessedResource);
+         __assertQueryAuthorization(connection, accessedResource);
+
+         resourceClassName = resourceClassName.trim();
+
+         return __getAccessorResourcesByResourcePermissions(connection,
+                                                            accessedResource,
+                                                            resourceClassName,
+                                                            normalizedResourcePermissions);
+      }
+      finally {
+         __closeConnection(connection);
+      }
+   }
+
+   private Set<Resource> __getAccessorResourcesByResourcePermissions(SQLConnection connection,
+                                                                     Resource accessedResource,
+                                                                     String resourceClassName,
+                                                                     Set<ResourcePermission> requestedResourcePermissions) {
+      // first verify that resource class is defined
+      Id<ResourceClassId> resourceClassId;
+      Id<ResourcePermissionId> permissionId;
+
+      resourceClassId = resourceClassPersister.getResourceClassId(connection, resourceClassName);
+
+      if (resourceClassId == null) {
+         throw new IllegalArgumentException("Could not find resource class: " + resourceClassName);
+      }
+
+      // verify permissions are valid for the resource class
+      __assertPermissionsValid(connection, resourceClassName, requestedResourcePermissions);
+
+      Set<Resource> resources = new HashSet<>();
+
+      for (ResourcePermission resourcePermission : requestedResourcePermissions) {
+         Set<Resource> currentResources = new HashSet<>();
+
+         if (resourcePermission.isSystemPermission()) {
+            // get the list of objects of the specified type that the session has access to via direct permissions
+            currentResources.addAll(grantResourcePermissionSysPersister
+                                          .getAccessorResourcesByResourceSysPermission(connection,
+                                                                                       accessedResource,
+                                                                                       resourceClassId,
+                                                                                       resourcePermission));
+         }
+         else {
+            // check if the non-system permission name is valid
+            permissionId = resourceClassPermissionPersister.getResourceClassPermissionId(connection,
+                                                                                         resourceClassId,
+                                                                                         resourcePermission
+                                                                                               .getPermissionName());
+
+            if (permissionId == null) {
+               throw new IllegalArgumentException("Permission: " + resourcePermission + " is not defined for resource class: " + resourceClassName);
+            }
+
+            // get the list of objects of the specified type that the session has access to via direct permissions
+            currentResources.addAll(grantResourcePermissionPersister
+                                          .getAccessorResourcesByResourcePermission(connection,
+                                                                                    accessedResource,
+                                                                                    resourceClassId,
+                                                                                    resourcePermission,
+                                                                                    permissionId));
+         }
+         if (currentResources.isEmpty()) {
+            // we got an empty set for a permission, we are done since this and all future intersects will be empty
+            resources = currentResources;
+            break;
+         }
+         else {
+            // the only way resources will be empty below is if we never entered this else clause before
+            if (resources.isEmpty()) {
+               resources = currentResources;
+            }
+            else {
+               // compute the intersection of previous iterations and the current resources
+               resources.retainAll(currentResources);
+               if (resources.isEmpty()) {
+                  // if intersection with previous results is empty, then all future intersections will be empty, as well
+                  break;
+               }
+            }
+         }
+      }
+
+      return resources;
+   }
+
+   @Override
+   public List<String> getResourceClassNames() {
+      SQLConnection connection = null;
+
+      __assertAuthenticated();
+
+      try {
+         connection = __getReadConnection(OperationKind.LISTING);
+
+         return resourceClassPersister.getResourceClassNames(connection);
+      }
+      finally {
+         __closeConnection(connection);
+      }
+   }
+
+   @Override
+   public List<String> getResourcePermissionNames(String resourceClassName) {
+      SQLConnection connection = null;
+
+      __assertAuthenticated();
+      __assertResourceClassSpecified(resourceClassName);
+
+      try {
+         connection = __getReadConnection(OperationKind.LISTING);
+         resourceClassName = resourceClassName.trim();
+
+         return __getApplicableResourcePermissionNames(connection, resourceClassName);
+      }
+      finally {
+         __closeConnection(connection);
+      }
+   }
+
+   // private shared helper methods
+
+   private static Set<DomainPermission> __normalizeDomainPermissions(Set<DomainPermission> domainPermissions) {
+      return PermissionUtils.normalizeDomainPermissions(domainPermissions);
+   }
+
+   private static Set<DomainCreatePermission> __normalizeDomainCreatePermissions(Set<DomainCreatePermission> domainCreatePermissions) {
+      return PermissionUtils.normalizeDomainCreatePermissions(domainCreatePermissions);
+   }
+
+   private static Set<ResourcePermission> __normalizeResourcePermission(Set<ResourcePermission> resourcePermissions) {
+      return PermissionUtils.normalizeResourcePermissions(resourcePermissions);
+   }
+
+   private static Set<ResourceCreatePermission> __normalizeResourceCreatePermission(Set<ResourceCreatePermission> resourceCreatePermissions) {
+      return PermissionUtils.normalizeResourceCreatePermissions(resourceCreatePermissions);
    }
 
    private Resource __resolveResource(SQLConnection connection,
@@ -6334,38 +8021,108 @@ public class SQLAccessControlContext implements AccessControlContext, Serializab
          return authenticatedResource;
       }
 
-      final Resource resolvedResource;
+      return __getResourceInfo(connection, resource).getResource();
+   }
+
+   // returns the resolved resource together with its resource class and domain, looked up with a single query
+   // unless the resource is already cached
+   private ResourceInternalInfo __getResourceInfo(SQLConnection connection,
+                                                  Resource resource) {
+      final ResourceInfoCache resourceInfoCache = __getResourceInfoCache();
+
+      ResourceInternalInfo resourceInfo = null;
 
       if (resource.getId() != null) {
-         if (resource.getExternalId() != null) {
-            // the resource has both internal and external Ids, so let's see if they match
-            resolvedResource = resourcePersister.resolveResourceByExternalId(connection, resource.getExternalId());
-            if (resolvedResource == null || !resource.equals(resolvedResource)) {
-               throw new IllegalArgumentException("Resource " + resource + "'s id does not resolve to the specified externalId!");
+         // ensure that we have a valid internal resource id, so we might as well also fully resolve it
+         if (resourceInfoCache != null) {
+            resourceInfo = resourceInfoCache.getByResourceId(resource.getId());
+         }
+         if (resourceInfo == null && offHeapIndex != null) {
+            resourceInfo = offHeapIndex.getResourceInfo(resource.getId());
+            if (resourceInfo != null && resourceInfoCache != null) {
+               resourceInfoCache.put(resourceInfo);
             }
          }
-         else {
-            // ensure that we have a valid internal resource id, so we might as well also fully resolve it
-            resolvedResource = resourcePersister.resolveResourceByResourceId(connection, resource);
+         if (resourceInfo == null) {
+            resourceInfo = resourcePersister.getResourceInfoByResourceId(connection, resource);
 
-            if (resolvedResource == null) {
+            if (resourceInfo == null) {
                throw new IllegalArgumentException("Resource " + resource + " not found!");
             }
+            if (resourceInfoCache != null) {
+               resourceInfoCache.put(resourceInfo);
+            }
+            // what is read within a transaction may never commit, so it is not shared with other contexts
+            if (offHeapIndex != null && !__isInTransaction(connection)) {
+               offHeapIndex.putResourceInfo(resourceInfo);
+            }
+         }
+
+         // if the resource has both internal and external Ids, let's see if they match
+         if (resource.getExternalId() != null && !resource.equals(resourceInfo.getResource())) {
+            throw new IllegalArgumentException("Resource " + resource + "'s id does not resolve to the specified externalId!");
          }
       }
       else if (resource.getExternalId() != null) {
          // there is no internal resource Id, so we need to look it up
-         resolvedResource = resourcePersister.resolveResourceByExternalId(connection, resource.getExternalId());
+         if (resourceInfoCache != null) {
+            resourceInfo = resourceInfoCache.getByExternalId(resource.getExternalId());
+         }
+         if (resourceInfo == null) {
+            resourceInfo = resourcePersister.getResourceInfoByExternalId(connection, resource.getExternalId());
+
+            if (resourceInfo == null) {
+               throw new IllegalArgumentException("Resource " + resource + " not found!");
+            }
+            if (resourceInfoCache != null) {
+               resourceInfoCache.put(resourceInfo);
+            }
+         }
+      }
+      else {
+         throw new IllegalArgumentException("A resource id and/or external id is required, but neither was specified");
+      }
+
+      return resourceInfo;
+   }
+
+   // returns the resource info cache, without the resources changed through other contexts since the last call, or
+   // null if the cache is disabled
+   private ResourceInfoCache __getResourceInfoCache() {
+      if (resourceInfoCacheMaxSize == 0) {
+         return null;
+      }
+      if (resourceInfoCache == null) {
+         resourceInfoCache = new ResourceInfoCache(resourceInfoCacheMaxSize, resourceInfoCacheMaxAgeMillis);
+      }
+      if (changeLogListener != null) {
+         changeLogListener.discardChangedResources(resourceInfoCache);
+      }
+      return resourceInfoCache;
+   }
+
+   private ResourceClassInternalInfo __getResourceClassInfo(SQLConnection connection,
+                                                            Resource resource) {
+      return __getResourceInfo(connection, resource).getResourceClassInfo();
+   }
+
+   private String __getResourceDomainName(SQLConnection connection,
+                                          Resource resource) {
+      return __getResourceInfo(connection, resource).getDomainName();
+   }
 
-         if (resolvedResource == null) {
-            throw new IllegalArgumentException("Resource " + resource + " not found!");
-         }
+   private Id<DomainId> __getResourceDomainId(SQLConnection connection,
+                                              Resource resource) {
+      return __getResourceInfo(connection, resource).getDomainId();
+   }
+
+   private void __discardResourceInfo(Resource resource) {
+      if (resourceInfoCache != null) {
+         resourceInfoCache.remove(resource.getId());
       }
-      else {
-         throw new IllegalArgumentException("A resource id and/or external id is required, but neither was specified");
+      if (offHeapIndex != null) {
+         offHeapIndex.removeResourceInfo(resource.getId());
       }
-
-      return resolvedResource;
    }
 
    private static boolean __isEqual(Resource resource1, Resource resource2) {
@@ -6439,14 +8196,21 @@ public class SQLAccessControlContext implements AccessControlContext, Serializab
                                            Resource accessedResource) {
       return __isSuperUserOfDomain(connection,
                                    accessorResource,
-                                   domainPersister.getResourceDomainNameByResourceId(connection, accessedResource));
+                                   __getResourceDomainName(connection, accessedResource));
    }
 
 
    private boolean __isSuperUserOfDomain(SQLConnection connection,
                                          Resource accessorResource,
                                          String queriedDomain) {
-      Set<DomainPermission> domainPermissions = __getEffectiveDomainPermissions(connection, accessorResource, queriedDomain);
+      Set<DomainPermission> domainPermissions = null;
+
+      if (accessorResource.equals(sessionResource)) {
+         domainPermissions = __getSessionDomainPermissionsFromSnapshot(connection, queriedDomain);
+      }
+      if (domainPermissions == null) {
+         domainPermissions = __getEffectiveDomainPermissions(connection, accessorResource, queriedDomain);
+      }
 
       return domainPermissions.contains(DomainPermission_SUPER_USER)
             || domainPermissions.contains(DomainPermission_SUPER_USER_GRANT);
@@ -6463,6 +8227,49 @@ public class SQLAccessControlContext implements AccessControlContext, Serializab
             || domainPermissions.contains(DomainPermission_SUPER_USER_GRANT);
    }
 
+   // returns the session resource's effective permissions on the specified domain from the session snapshot, or null
+   // if the snapshot has no entry for the domain, e.g. because it was created through another context since the
+   // snapshot was taken, or because it only matches a snapshot entry on a case-insensitive database
+   // if the snapshot is disabled, or the connection is in a transaction the caller may roll back, also returns null
+   private Set<DomainPermission> __getSessionDomainPermissionsFromSnapshot(SQLConnection connection,
+                                                                           String domainName) {
+      if (sessionDomainPermissionsSnapshotMaxAgeMillis == 0) {
+         return null;
+      }
+      // a snapshot taken within a transaction on the caller's connection could hold changes that are rolled back
+      // without this context noticing, and one taken before could miss changes rolled back since
+      if (dataSource == null && __isInTransaction(connection)) {
+         __discardSessionDomainPermissionsSnapshot();
+         return null;
+      }
+
+      final long currentMillis = System.currentTimeMillis();
+      final long changeCount = domainPermissionsChangeCount;
+
+      if (sessionDomainPermissionsSnapshot == null
+            || sessionDomainPermissionsSnapshotChangeCount != changeCount
+            || currentMillis - sessionDomainPermissionsSnapshotMillis > sessionDomainPermissionsSnapshotMaxAgeMillis) {
+         sessionDomainPermissionsSnapshot = __getEffectiveDomainPermissionsMap(connection, sessionResource);
+         sessionDomainPermissionsSnapshotMillis = currentMillis;
+         sessionDomainPermissionsSnapshotChangeCount = changeCount;
+      }
+
+      return sessionDomainPermissionsSnapshot.get(domainName);
+   }
+
+   private static boolean __isInTransaction(SQLConnection connection) {
+      try {
+         return !connection.getAutoCommit();
+      }
+      catch (SQLException e) {
+         throw new RuntimeException(e);
+      }
+   }
+
+   private void __discardSessionDomainPermissionsSnapshot() {
+      sessionDomainPermissionsSnapshot = null;
+   }
+
    private Set<DomainPermission> __getPostCreateDomainPermissions(Set<DomainCreatePermission> domainCreatePermissions) {
       Set<DomainPermission> domainPermissions = new HashSet<>();
 
@@ -6499,12 +8306,72 @@ public class SQLAccessControlContext implements AccessControlContext, Serializab
       }
    }
 
+   private static void __assertReadDataSourcesSpecified(List<DataSource> readDataSources) {
+      if (readDataSources == null) {
+         throw new IllegalArgumentException("Read data sources required, none specified");
+      }
+      if (readDataSources.isEmpty()) {
+         throw new IllegalArgumentException("Read data sources required, empty list specified");
+      }
+      if (readDataSources.contains(null)) {
+         throw new IllegalArgumentException("Read data sources cannot contain null elements");
+      }
+   }
+
+   private static void __assertReadRoutingPolicySpecified(ReadRoutingPolicy readRoutingPolicy) {
+      if (readRoutingPolicy == null) {
+         throw new IllegalArgumentException("Read routing policy required, none specified");
+      }
+   }
+
+   private static void __assertTransactionIsolationValid(int transactionIsolation) {
+      if (transactionIsolation != Connection.TRANSACTION_READ_UNCOMMITTED
+            && transactionIsolation != Connection.TRANSACTION_READ_COMMITTED
+            && transactionIsolation != Connection.TRANSACTION_REPEATABLE_READ
+            && transactionIsolation != Connection.TRANSACTION_SERIALIZABLE) {
+         throw new IllegalArgumentException("Unsupported transaction isolation level: " + transactionIsolation);
+      }
+   }
+
    private void __assertResourceSpecified(Resource resource) {
       if (resource == null) {
          throw new NullPointerException("Resource required, none specified");
       }
    }
 
+   private void __assertResourcesSpecified(Set<Resource> resources) {
+      if (resources == null) {
+         throw new NullPointerException("Set of resources required, none specified");
+      }
+
+      if (resources.contains(null)) {
+         throw new NullPointerException("Set of resources contains null element");
+      }
+
+      if (resources.isEmpty()) {
+         throw new IllegalArgumentException("Set of resources required, empty set specified");
+      }
+   }
+
+   private void __assertExternalIdsSpecified(List<String> externalIds) {
+      if (externalIds == null) {
+         throw new NullPointerException("List of external ids required, none specified");
+      }
+
+      if (externalIds.isEmpty()) {
+         throw new IllegalArgumentException("List of external ids required, empty list specified");
+      }
+
+      final Set<String> uniqueExternalIds = new HashSet<>(externalIds.size());
+      for (String externalId : externalIds) {
+         __assertExternalIdSpecified(externalId);
+
+         if (!uniqueExternalIds.add(externalId)) {
+            throw new IllegalArgumentException("Duplicate external id: " + externalId);
+         }
+      }
+   }
+
    private void __assertCredentialsSpecified(Credentials credentials) {
       if (credentials == null) {
          throw new NullPointerException("Credentials required, none specified");
@@ -6572,6 +8439,12 @@ public class SQLAccessControlContext implements AccessControlContext, Serializab
       }
    }
 
+   private void __assertCapabilityTokenValidityValid(long validityMillis) {
+      if (validityMillis <= 0) {
+         throw new IllegalArgumentException("Capability token validity must be positive, but was: " + validityMillis);
+      }
+   }
+
    private void __assertVarargPermissionsSpecified(ResourcePermission... resourcePermissions) {
       if (resourcePermissions == null) {
          throw new NullPointerException("An array or a sequence of resource permissions are required, but the null value was specified");
@@ -6693,39 +8566,430 @@ public class SQLAccessControlContext implements AccessControlContext, Serializab
       }
    }
 
-   @SafeVarargs
-   private static <T> Set<T> __getSetWithoutNullsOrDuplicates(T firstElement, T... elements) {
-      // not null constraint
-      if (elements == null) {
-         throw new NullPointerException("An array or a sequence of arguments are required, but none were specified");
+   // private connection management helper methods
+
+   // handles the specified change: discards session state the change could invalidate, and records the change in
+   // the change log, if enabled, on the connection - and thus within any transaction - of the change itself
+   private void __onChange(SQLConnection connection,
+                           ChangeType changeType,
+                           Resource accessorResource,
+                           Resource accessedResource,
+                           String domainName,
+                           String resourceClassName) {
+      // the session's effective domain permissions depend on domains, domain permissions and the resources it
+      // inherits from (so on resource permissions and resource deletion)
+      if (changeType == ChangeType.DOMAIN
+            || changeType == ChangeType.DOMAIN_PERMISSIONS
+            || changeType == ChangeType.RESOURCE_PERMISSIONS
+            || changeType == ChangeType.RESOURCE) {
+         __discardSessionDomainPermissionsSnapshot();
+      }
+      // a resource's external id is cached with the resource
+      if (changeType == ChangeType.RESOURCE) {
+         __discardResourceInfo(accessedResource);
+      }
+      // a grant filter must learn of new grants right away, or it would deny them until its next rebuild, and the
+      // off-heap index is shared with other contexts, which would otherwise serve its obsolete entries
+      if (grantFilter != null || offHeapIndex != null) {
+         final ChangeLogEntry changeLogEntry = new ChangeLogEntry(0,
+                                                                  changeType,
+                                                                  accessorResource,
+                                                                  accessedResource,
+                                                                  domainName,
+                                                                  resourceClassName);
+         if (grantFilter != null) {
+            grantFilter.onChange(changeLogEntry);
+         }
+         if (offHeapIndex != null) {
+            offHeapIndex.onChange(changeLogEntry);
+            // until the change commits, other contexts may reload the obsolete entries from the database, so they
+            // are evicted again once the transaction has ended
+            if (__isInTransaction(connection)) {
+               if (offHeapIndexChangesInTransaction == null) {
+                  offHeapIndexChangesInTransaction = new ArrayList<>();
+               }
+               offHeapIndexChangesInTransaction.add(changeLogEntry);
+            }
+         }
+      }
+
+      if (changeLogEnabled) {
+         changeLogPersister.addChangeLogEntry(connection,
+                                              changeType,
+                                              accessorResource,
+                                              accessedResource,
+                                              domainName,
+                                              resourceClassName);
+      }
+   }
+
+   private ConnectionScope __openConnectionScope(boolean readOnlyTransaction, int transactionIsolation) {
+      if (scopedConnection != null) {
+         throw new IllegalStateException("Cannot open a connection scope while another one is open on this access control context");
+      }
+
+      final SQLConnection connection = __checkOutConnection();
+      boolean successful = false;
+
+      try {
+         final SQLConnectionScope connectionScope
+               = new SQLConnectionScope(connection, readOnlyTransaction, transactionIsolation);
+         scopedConnection = connection;
+         successful = true;
+         return connectionScope;
+      }
+      catch (SQLException e) {
+         throw new RuntimeException(e);
+      }
+      finally {
+         if (!successful) {
+            __closeConnection(connection);
+         }
+      }
+   }
+
+   // the kinds of operations, for which statement timeouts can be configured separately
+   private enum OperationKind {
+      CHECK,
+      LISTING,
+      MUTATION
+   }
+
+   // reports each invocation of an access control context method to the registered event listener, if any, and
+   // records it with the registered slow operation recorder, if any, if it turns out to be slow
+   private static class ObservingInvocationHandler implements InvocationHandler, Serializable {
+      private static final long serialVersionUID = 1L;
+
+      private final AccessControlContext accessControlContext;
+
+      private ObservingInvocationHandler(AccessControlContext accessControlContext) {
+         this.accessControlContext = accessControlContext;
+      }
+
+      @Override
+      public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+         if (method.getDeclaringClass() == Object.class) {
+            // the observed context is a distinct object from the one it delegates to
+            if (method.getName().equals("equals")) {
+               return proxy == args[0];
+            }
+            if (method.getName().equals("hashCode")) {
+               return System.identityHashCode(proxy);
+            }
+            return __invoke(method, args);
+         }
+
+         final SQLEventListener eventListener = SQLEvents.getEventListener();
+         final SlowOperationRecorder slowOperationRecorder = SQLEvents.getSlowOperationRecorder();
+         if (eventListener == null && slowOperationRecorder == null) {
+            return __invoke(method, args);
+         }
+
+         // trace the statements of this operation for the slow operation recorder
+         final OperationTrace operationTrace;
+         if (slowOperationRecorder != null && SQLEvents.getCurrentOperationTrace() == null) {
+            operationTrace = new OperationTrace();
+            SQLEvents.setCurrentOperationTrace(operationTrace);
+         }
+         else {
+            operationTrace = null;
+         }
+
+         Resource sessionResource = __getSessionResource();
+         Throwable failure = null;
+         final long startTimeMillis = System.currentTimeMillis();
+         final long startNanos = System.nanoTime();
+         try {
+            return __invoke(method, args);
+         }
+         catch (Throwable t) {
+            failure = t;
+            throw t;
+         }
+         finally {
+            final long durationNanos = System.nanoTime() - startNanos;
+            if (sessionResource == null) {
+               // report the resource that authenticated, if the operation was an authentication
+               sessionResource = __getSessionResource();
+            }
+            if (operationTrace != null) {
+               SQLEvents.setCurrentOperationTrace(null);
+               if (slowOperationRecorder.isSlow(durationNanos)) {
+                  slowOperationRecorder.record(new SlowOperation(method.getName(),
+                                                                 sessionResource,
+                                                                 startTimeMillis,
+                                                                 durationNanos,
+                                                                 failure,
+                                                                 operationTrace.getStatementExecutions()));
+               }
+            }
+            if (eventListener != null) {
+               SQLEvents.fireOperation(eventListener, method.getName(), sessionResource, failure, durationNanos);
+            }
+         }
       }
 
-      final HashSet<T> resultSet = new HashSet<>(elements.length + 1);
-      resultSet.add(firstElement);
+      private Object __invoke(Method method, Object[] args) throws Throwable {
+         try {
+            return method.invoke(accessControlContext, args);
+         }
+         catch (InvocationTargetException e) {
+            throw e.getCause();
+         }
+      }
 
-      for (T element : elements) {
-         // non-null elements constraint
-         if (element == null) {
-            throw new NullPointerException("A " + elements.getClass().getSimpleName()
-                                                 + " argument (or sequence of varargs) without null elements is required, but received: "
-                                                 + Arrays.asList(elements));
+      private Resource __getSessionResource() {
+         if (accessControlContext instanceof SQLAccessControlContext) {
+            return ((SQLAccessControlContext) accessControlContext).sessionResource;
          }
+         return null;
+      }
+   }
+
+   // discards the state of this context that changes made through other contexts, and delivered by a change log
+   // poller, could have made obsolete; it is called on the poller's thread, so it only signals the session's thread
+   private class SessionChangeLogListener implements ChangeLogListener {
+      // the resources changed since the session's thread last discarded them from the resource info cache, up to
+      // a bound, beyond which the whole cache is cleared instead
+      private final Set<Long>   changedResourceIds = Collections.newSetFromMap(new ConcurrentHashMap<Long, Boolean>());
+      private volatile boolean  changedResourceIdsOverflowed;
 
-         // duplicate elements get ignored silently
-         if (!resultSet.add(element)) {
-            throw new IllegalArgumentException("Duplicate element: " + element);
+      @Override
+      public void onChange(ChangeLogEntry changeLogEntry) {
+         final ChangeType changeType = changeLogEntry.getChangeType();
+
+         // the same changes that discard the session snapshot when made through this context, see __onChange()
+         if (changeType == ChangeType.DOMAIN
+               || changeType == ChangeType.DOMAIN_PERMISSIONS
+               || changeType == ChangeType.RESOURCE_PERMISSIONS
+               || changeType == ChangeType.RESOURCE) {
+            domainPermissionsChangeCount++;
+         }
+         // a resource may have been deleted, or its external id set or reused
+         if (changeType == ChangeType.RESOURCE
+               && resourceInfoCacheMaxSize > 0
+               && changeLogEntry.getAccessedResource() != null) {
+            if (changedResourceIds.size() < resourceInfoCacheMaxSize) {
+               changedResourceIds.add(changeLogEntry.getAccessedResource().getId());
+            }
+            else {
+               changedResourceIdsOverflowed = true;
+            }
          }
       }
 
-      return resultSet;
+      // called on the session's thread
+      private void discardChangedResources(ResourceInfoCache resourceInfoCache) {
+         if (changedResourceIdsOverflowed) {
+            changedResourceIdsOverflowed = false;
+            resourceInfoCache.clear();
+         }
+         for (Iterator<Long> iterator = changedResourceIds.iterator(); iterator.hasNext(); ) {
+            resourceInfoCache.remove(iterator.next());
+            iterator.remove();
+         }
+      }
    }
 
-   // private connection management helper methods
+   // a connection scope pins the connection it was opened with, and optionally runs all calls within the scope
+   // as one read-only transaction; the connection's original settings are restored when the scope is closed
+   private class SQLConnectionScope implements ConnectionScope {
+      private final SQLConnection connection;
+      private final boolean       readOnlyTransaction;
+      private final boolean       originalAutoCommit;
+      private final boolean       originalReadOnly;
+      private final int           originalTransactionIsolation;
+      private       boolean       closed;
+
+      private SQLConnectionScope(SQLConnection connection,
+                                 boolean readOnlyTransaction,
+                                 int transactionIsolation) throws SQLException {
+         this.connection = connection;
+         this.readOnlyTransaction = readOnlyTransaction;
+
+         if (readOnlyTransaction) {
+            originalAutoCommit = connection.getAutoCommit();
+            originalReadOnly = connection.isReadOnly();
+            originalTransactionIsolation = connection.getTransactionIsolation();
+
+            // isolation level and read-only mode can only be changed before a transaction starts
+            if (!originalAutoCommit) {
+               throw new IllegalStateException("Cannot open a read-only connection scope while a transaction is in progress on the connection");
+            }
+            try {
+               connection.setTransactionIsolation(transactionIsolation);
+               connection.setReadOnly(true);
+               connection.setAutoCommit(false);
+            }
+            catch (SQLException | RuntimeException e) {
+               // restore the settings that were already changed before the connection is released
+               try {
+                  __restoreConnectionSettings();
+               }
+               catch (SQLException | RuntimeException restoreException) {
+                  e.addSuppressed(restoreException);
+               }
+               throw e;
+            }
+         }
+         else {
+            originalAutoCommit = true;
+            originalReadOnly = false;
+            originalTransactionIsolation = Connection.TRANSACTION_NONE;
+         }
+      }
+
+      @Override
+      public void close() {
+         if (closed) {
+            return;
+         }
+         closed = true;
+         scopedConnection = null;
+
+         try {
+            if (readOnlyTransaction) {
+               try {
+                  // nothing was written, so committing just ends the transaction
+                  connection.commit();
+               }
+               catch (SQLException e) {
+                  try {
+                     connection.rollback();
+                  }
+                  catch (SQLException rollbackException) {
+                     e.addSuppressed(rollbackException);
+                  }
+                  throw e;
+               }
+               finally {
+                  // even if the transaction could not be ended, so that the connection is not released read-only,
+                  // or with auto-commit off, to a connection pool
+                  __restoreConnectionSettings();
+               }
+            }
+         }
+         catch (SQLException e) {
+            throw new RuntimeException(e);
+         }
+         finally {
+            __closeConnection(connection);
+         }
+      }
+
+      // restores each of the connection's original settings, even if restoring another one fails
+      private void __restoreConnectionSettings() throws SQLException {
+         try {
+            connection.setAutoCommit(originalAutoCommit);
+         }
+         finally {
+            try {
+               connection.setReadOnly(originalReadOnly);
+            }
+            finally {
+               connection.setTransactionIsolation(originalTransactionIsolation);
+            }
+         }
+      }
+   }
+
+   // returns a connection for a query, which is routed to a read data source if the context has any, unless the
+   // session has to read its own recent writes or the connection is pinned by a connection scope
+   private SQLConnection __getReadConnection(OperationKind operationKind) {
+      if (readDataSources == null
+            || scopedConnection != null
+            || (lastPrimaryConnectionMillis > 0
+            && System.currentTimeMillis() - lastPrimaryConnectionMillis < readRoutingPolicy.getReadYourWritesMillis())) {
+         return __getConnection(operationKind);
+      }
+
+      try {
+         final SQLConnection readConnection = SQLConnection.getConnection(__selectReadDataSource(), connectionBulkhead);
+         readConnection.setQueryTimeoutSeconds(__getQueryTimeoutSeconds(operationKind));
+         return readConnection;
+      }
+      catch (SQLException e) {
+         throw new RuntimeException(e);
+      }
+   }
+
+   private DataSource __selectReadDataSource() {
+      if (readRoutingPolicy.getSelection() == ReadRoutingPolicy.Selection.RANDOM) {
+         return readDataSources.get(ThreadLocalRandom.current().nextInt(readDataSources.size()));
+      }
+      else {
+         readDataSourceIndex = (readDataSourceIndex + 1) % readDataSources.size();
+         return readDataSources.get(readDataSourceIndex);
+      }
+   }
+
+   // returns a batch that runs the specified number of queries in parallel, each on a connection of its own from the
+   // same data source as the specified connection, if parallel queries are enabled and that is safe, i.e. unless only
+   // a single connection is available, or the specified connection is pinned by a connection scope or has a
+   // transaction in progress, whose uncommitted changes the other connections would not see; otherwise, or if the
+   // connections cannot all be reserved right away, the queries run on this connection
+   private ParallelQueryExecutor.Batch __newQueryBatch(SQLConnection connection, int queryCount) {
+      if (!parallelQueriesEnabled || dataSource == null || connection == scopedConnection) {
+         return ParallelQueryExecutor.newSequentialBatch(connection);
+      }
+
+      try {
+         if (!connection.getAutoCommit()) {
+            return ParallelQueryExecutor.newSequentialBatch(connection);
+         }
+      }
+      catch (SQLException e) {
+         throw new RuntimeException(e);
+      }
+
+      // the queries of the batch get the same timeout as the caller's
+      final int queryTimeoutSeconds = connection.getQueryTimeoutSeconds();
+      final DataSource queryDataSource
+            = readDataSources == null || connection == primaryConnection ? dataSource : __selectReadDataSource();
+      final ParallelQueryExecutor.Batch queryBatch
+            = ParallelQueryExecutor.getSharedInstance().newBatch(queryDataSource,
+                                                                 connectionBulkhead,
+                                                                 queryTimeoutSeconds,
+                                                                 queryCount);
+      if (queryBatch == null) {
+         return ParallelQueryExecutor.newSequentialBatch(connection);
+      }
+      return queryBatch;
+   }
+
+   // returns a connection whose statements time out as configured for the specified kind of operation
+   private SQLConnection __getConnection(OperationKind operationKind) {
+      final SQLConnection connection = __checkOutConnection();
+      connection.setQueryTimeoutSeconds(__getQueryTimeoutSeconds(operationKind));
+      return connection;
+   }
+
+   private int __getQueryTimeoutSeconds(OperationKind operationKind) {
+      if (statementTimeoutPolicy == null) {
+         return 0;
+      }
+      switch (operationKind) {
+         case CHECK:
+            return statementTimeoutPolicy.getCheckTimeoutSeconds();
+         case LISTING:
+            return statementTimeoutPolicy.getListingTimeoutSeconds();
+         default:
+            return statementTimeoutPolicy.getMutationTimeoutSeconds();
+      }
+   }
 
-   private SQLConnection __getConnection() {
+   private SQLConnection __checkOutConnection() {
+      if (scopedConnection != null) {
+         return scopedConnection;
+      }
       if (dataSource != null) {
          try {
-            return new SQLConnection(dataSource.getConnection());
+            if (readDataSources != null) {
+               // remember the primary connection, so that queries batched on it are kept on the primary data source
+               primaryConnection = SQLConnection.getConnection(dataSource, connectionBulkhead);
+               return primaryConnection;
+            }
+            return SQLConnection.getConnection(dataSource, connectionBulkhead);
          }
          catch (SQLException e) {
             throw new RuntimeException(e);
@@ -6739,7 +9003,160 @@ public class SQLAccessControlContext implements AccessControlContext, Serializab
       }
    }
 
+   // starts a transaction on the specified connection, unless the caller already has one in progress (i.e. auto-commit
+   // is off), and returns true if a transaction was started, which then has to be ended by calling __endTransaction()
+   private boolean __beginTransaction(SQLConnection connection) {
+      try {
+         if (connection.getAutoCommit()) {
+            connection.setAutoCommit(false);
+            return true;
+         }
+         return false;
+      }
+      catch (SQLException e) {
+         throw new RuntimeException(e);
+      }
+   }
+
+   private void __endTransaction(SQLConnection connection, boolean transactionStarted, boolean commit) {
+      if (transactionStarted) {
+         try {
+            try {
+               if (commit) {
+                  try {
+                     connection.commit();
+                  }
+                  catch (SQLException e) {
+                     // a failed commit may leave the transaction open, and the connection is released after this
+                     __discardSessionDomainPermissionsSnapshot();
+                     if (resourceInfoCache != null) {
+                        resourceInfoCache.clear();
+                     }
+                     try {
+                        connection.rollback();
+                     }
+                     catch (SQLException rollbackException) {
+                        e.addSuppressed(rollbackException);
+                     }
+                     throw e;
+                  }
+               }
+               else {
+                  // the session snapshot and cached resources may have been taken from changes that are now
+                  // rolled back
+                  __discardSessionDomainPermissionsSnapshot();
+                  if (resourceInfoCache != null) {
+                     resourceInfoCache.clear();
+                  }
+                  connection.rollback();
+               }
+            }
+            finally {
+               __evictOffHeapIndexChangesInTransaction();
+               connection.setAutoCommit(true);
+            }
+         }
+         catch (SQLException e) {
+            throw new RuntimeException(e);
+         }
+      }
+   }
+
+   // evicts the off-heap index entries made obsolete by the changes of the transaction that just ended again, since
+   // other contexts may have reloaded them before the transaction committed
+   private void __evictOffHeapIndexChangesInTransaction() {
+      if (offHeapIndexChangesInTransaction != null) {
+         if (offHeapIndex != null) {
+            for (ChangeLogEntry changeLogEntry : offHeapIndexChangesInTransaction) {
+               offHeapIndex.onChange(changeLogEntry);
+            }
+         }
+         offHeapIndexChangesInTransaction = null;
+      }
+   }
+
+   // returns a connection for a mutation, which has to be released by calling __closeMutationConnection(), after
+   // calling __abortMutation() if the mutation failed; with the change log enabled, a transaction is started unless
+   // the caller already has one in progress, so that the mutation and its change log entries commit together
+   private SQLConnection __getMutationConnection() {
+      mutationTransactionStarted = false;
+      mutationFailed = false;
+
+      final SQLConnection connection = __getConnection(OperationKind.MUTATION);
+      boolean successful = false;
+      try {
+         mutationTransactionStarted = changeLogEnabled && __beginTransaction(connection);
+         successful = true;
+         return connection;
+      }
+      finally {
+         if (!successful) {
+            __closeConnection(connection);
+         }
+      }
+   }
+
+   // rolls back the transaction of the failed mutation, if it was started by __getMutationConnection()
+   private void __abortMutation(SQLConnection connection, Throwable failure) {
+      mutationFailed = true;
+      if (mutationTransactionStarted) {
+         mutationTransactionStarted = false;
+         try {
+            __endTransaction(connection, true, false);
+         }
+         catch (RuntimeException e) {
+            failure.addSuppressed(e);
+         }
+      }
+   }
+
+   // commits the transaction of the mutation, if it was started by __getMutationConnection() and the mutation did
+   // not fail, and releases the connection
+   private void __closeMutationConnection(SQLConnection connection) {
+      try {
+         if (mutationTransactionStarted && !mutationFailed) {
+            mutationTransactionStarted = false;
+            __endTransaction(connection, true, true);
+         }
+         if (!mutationFailed) {
+            __onMutationCommitted();
+         }
+      }
+      finally {
+         mutationTransactionStarted = false;
+         mutationFailed = false;
+         __closeConnection(connection);
+      }
+   }
+
+   // records that a mutation was committed, so that the session's queries read its writes from the primary data
+   // source for a while, instead of from read data sources that may not have replicated them yet
+   private void __onMutationCommitted() {
+      if (readDataSources != null) {
+         lastPrimaryConnectionMillis = System.currentTimeMillis();
+      }
+   }
+
    private void __closeConnection(SQLConnection connection) {
+      // a connection pinned by a connection scope is only released when the scope is closed
+      if (connection != null && connection == scopedConnection) {
+         return;
+      }
+      if (connection != null && connection == primaryConnection) {
+         primaryConnection = null;
+      }
+      // the changes of a transaction on the caller's connection are only known to have ended once the connection is
+      // back in auto-commit mode, i.e. on the first operation after the caller committed or rolled back
+      if (connection != null && offHeapIndexChangesInTransaction != null && dataSource == null) {
+         try {
+            if (connection.getAutoCommit()) {
+               __evictOffHeapIndexChangesInTransaction();
+            }
+         }
+         catch (SQLException e) {
+            // keep the changes until the connection's state can be determined, without masking any earlier failure
+         }
+      }
       // only close the connection if we got it from a pool, otherwise just leave the connection open
       if (dataSource != null) {
          if (connection != null) {
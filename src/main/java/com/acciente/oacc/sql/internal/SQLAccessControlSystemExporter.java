@@ -0,0 +1,121 @@
+/*
+ * Copyright 2009-2016, Acciente LLC
+ *
+ * Acciente LLC licenses this file to you under the
+ * Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in
+ * writing, software distributed under the License is
+ * distributed on an "AS IS" BASIS, WITHOUT WARRANTIES
+ * OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.acciente.oacc.sql.internal;
+
+import java.io.IOException;
+import java.nio.channels.WritableByteChannel;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+public class SQLAccessControlSystemExporter {
+   private static final int FETCH_SIZE = 1000;
+
+   public static void exportOACC(Connection connection,
+                                 String dbSchema,
+                                 WritableByteChannel channel,
+                                 boolean includePasswords) throws SQLException, IOException {
+      SchemaNameValidator.assertValid(dbSchema);
+
+      final String schemaNameAndTablePrefix = dbSchema != null ? dbSchema + ".OAC_" : "OAC_";
+      final ExportFormatWriter writer = new ExportFormatWriter(channel);
+
+      writer.writeHeader(includePasswords);
+
+      // read all tables within one transaction, which some drivers (e.g. PostgreSQL's) also need to stream the rows,
+      // unless the caller already has a transaction in progress
+      final boolean transactionStarted = connection.getAutoCommit();
+      if (transactionStarted) {
+         connection.setAutoCommit(false);
+      }
+      try {
+         for (ExportTable exportTable : ExportTable.values()) {
+            if (exportTable == ExportTable.RESOURCE_PASSWORD && !includePasswords) {
+               continue;
+            }
+            final long rowCount = __exportTable(connection, schemaNameAndTablePrefix, exportTable, writer);
+            System.out.println("Exported " + rowCount + " row(s) of " + exportTable);
+         }
+      }
+      finally {
+         if (transactionStarted) {
+            // nothing was written, so the transaction can simply be rolled back
+            connection.rollback();
+            connection.setAutoCommit(true);
+         }
+      }
+
+      writer.finish();
+   }
+
+   private static long __exportTable(Connection connection,
+                                     String schemaNameAndTablePrefix,
+                                     ExportTable exportTable,
+                                     ExportFormatWriter writer) throws SQLException, IOException {
+      final ExportTable.Column[] columns = exportTable.getColumns();
+      long rowCount = 0;
+
+      writer.beginSection(exportTable.getTag());
+
+      try (PreparedStatement statement = connection.prepareStatement(exportTable.getSelectSQL(schemaNameAndTablePrefix),
+                                                                     ResultSet.TYPE_FORWARD_ONLY,
+                                                                     ResultSet.CONCUR_READ_ONLY)) {
+         // stream the rows, rather than have the driver load the whole table
+         statement.setFetchSize(FETCH_SIZE);
+
+         try (ResultSet resultSet = statement.executeQuery()) {
+            while (resultSet.next()) {
+               writer.beginRow();
+               for (int i = 0; i < columns.length; i++) {
+                  __writeColumn(resultSet, i + 1, columns[i].getColumnType(), writer);
+               }
+               writer.endRow();
+               rowCount++;
+            }
+         }
+      }
+
+      writer.endSection();
+      return rowCount;
+   }
+
+   private static void __writeColumn(ResultSet resultSet,
+                                     int columnIndex,
+                                     ExportTable.ColumnType columnType,
+                                     ExportFormatWriter writer) throws SQLException {
+      switch (columnType) {
+         case NULLABLE_DOMAIN_ID: {
+            final long value = resultSet.getLong(columnIndex);
+            writer.writeNullableLong(resultSet.wasNull() ? null : value);
+            break;
+         }
+         case FLAG:
+            writer.writeFlag(resultSet.getInt(columnIndex) != 0);
+            break;
+         case STRING:
+            writer.writeString(resultSet.getString(columnIndex));
+            break;
+         case NULLABLE_STRING:
+            writer.writeNullableString(resultSet.getString(columnIndex));
+            break;
+         default:
+            writer.writeLong(resultSet.getLong(columnIndex));
+      }
+   }
+}
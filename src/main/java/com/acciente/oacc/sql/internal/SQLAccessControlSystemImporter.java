@@ -0,0 +1,455 @@
+/*
+ * Copyright 2009-2016, Acciente LLC
+ *
+ * Acciente LLC licenses this file to you under the
+ * Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in
+ * writing, software distributed under the License is
+ * distributed on an "AS IS" BASIS, WITHOUT WARRANTIES
+ * OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.acciente.oacc.sql.internal;
+
+import com.acciente.oacc.Resource;
+import com.acciente.oacc.sql.SQLProfile;
+import com.acciente.oacc.sql.internal.persister.DomainPersister;
+import com.acciente.oacc.sql.internal.persister.NonRecursiveDomainPersister;
+import com.acciente.oacc.sql.internal.persister.NonRecursiveResourcePersister;
+import com.acciente.oacc.sql.internal.persister.RecursiveDomainPersister;
+import com.acciente.oacc.sql.internal.persister.RecursiveResourcePersister;
+import com.acciente.oacc.sql.internal.persister.ResourceClassPermissionPersister;
+import com.acciente.oacc.sql.internal.persister.ResourceClassPersister;
+import com.acciente.oacc.sql.internal.persister.ResourcePersister;
+import com.acciente.oacc.sql.internal.persister.SQLConnection;
+import com.acciente.oacc.sql.internal.persister.SQLStrings;
+import com.acciente.oacc.sql.internal.persister.id.DomainId;
+import com.acciente.oacc.sql.internal.persister.id.Id;
+import com.acciente.oacc.sql.internal.persister.id.ResourceClassId;
+import com.acciente.oacc.sql.internal.persister.id.ResourcePermissionId;
+
+import java.io.IOException;
+import java.nio.channels.ReadableByteChannel;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+public class SQLAccessControlSystemImporter {
+   private static final long SYSTEM_RESOURCE_ID = 0;
+   private static final long SYSTEM_DOMAIN_ID   = 0;
+
+   private final Connection                       connection;
+   private final SQLConnection                    sqlConnection;
+   private final String                           schemaNameAndTablePrefix;
+   private final int                              batchSize;
+   private final DomainPersister                  domainPersister;
+   private final ResourceClassPersister           resourceClassPersister;
+   private final ResourceClassPermissionPersister resourceClassPermissionPersister;
+   private final ResourcePersister                resourcePersister;
+
+   // maps of the exported ids to the ids in the importing database
+   private final Map<Long, Long> domainIds        = new HashMap<>();
+   private final Map<Long, Long> resourceClassIds = new HashMap<>();
+   private final Map<Long, Long> permissionIds    = new HashMap<>();
+   private final LongLongHashMap resourceIds      = new LongLongHashMap(1024);
+   private       int             uncommittedRowCount;
+
+   /**
+    * Imports an export written by {@link SQLAccessControlSystemExporter} into an initialized OACC database.
+    * <p/>
+    * Domains, resource classes and their permissions are matched by name, and created if they do not exist yet.
+    * Resources are always created, with new ids, except for the system resource, which every OACC database already
+    * has. The grants are inserted with the new ids, except for those that the initializer gives the system resource,
+    * which also already exist. Password hashes are bound to the id of their resource, so only those of resources that
+    * happen to keep their id are imported; the credentials of other authenticatable resources have to be reset.
+    * <p/>
+    * The rows are inserted in JDBC batches, and committed every batchSize rows, so a failed import leaves the rows
+    * committed until then in the database.
+    */
+   public static void importOACC(Connection connection,
+                                 String dbSchema,
+                                 SQLProfile sqlProfile,
+                                 ReadableByteChannel channel,
+                                 int batchSize) throws SQLException, IOException {
+      SchemaNameValidator.assertValid(dbSchema);
+      if (batchSize < 1) {
+         throw new IllegalArgumentException("Batch size must be at least 1, got: " + batchSize);
+      }
+
+      new SQLAccessControlSystemImporter(connection, dbSchema, sqlProfile, batchSize).__importOACC(channel);
+   }
+
+   private SQLAccessControlSystemImporter(Connection connection,
+                                          String dbSchema,
+                                          SQLProfile sqlProfile,
+                                          int batchSize) {
+      final SQLStrings sqlStrings = SQLStrings.getSQLStrings(dbSchema, sqlProfile);
+
+      this.connection = connection;
+      this.sqlConnection = new SQLConnection(connection);
+      this.schemaNameAndTablePrefix = dbSchema != null ? dbSchema + ".OAC_" : "OAC_";
+      this.batchSize = batchSize;
+
+      resourceClassPersister = new ResourceClassPersister(sqlProfile, sqlStrings);
+      resourceClassPermissionPersister = new ResourceClassPermissionPersister(sqlProfile, sqlStrings);
+      if (sqlProfile.isRecursiveCTEEnabled()) {
+         domainPersister = new RecursiveDomainPersister(sqlProfile, sqlStrings);
+         resourcePersister = new RecursiveResourcePersister(sqlProfile, sqlStrings);
+      }
+      else {
+         domainPersister = new NonRecursiveDomainPersister(sqlProfile, sqlStrings);
+         resourcePersister = new NonRecursiveResourcePersister(sqlProfile, sqlStrings);
+      }
+
+      resourceIds.put(SYSTEM_RESOURCE_ID, SYSTEM_RESOURCE_ID);
+   }
+
+   private void __importOACC(ReadableByteChannel channel) throws SQLException, IOException {
+      final ExportFormatReader reader = new ExportFormatReader(channel);
+      reader.readHeader();
+
+      final boolean originalAutoCommit = connection.getAutoCommit();
+      boolean successful = false;
+      connection.setAutoCommit(false);
+
+      try {
+         for (byte tag = reader.readSectionTag(); tag != ExportFormat.TAG_END; tag = reader.readSectionTag()) {
+            final ExportTable exportTable = ExportTable.getExportTable(tag);
+
+            if (exportTable == null) {
+               // a table added by a later version of the format
+               reader.skipSection();
+               continue;
+            }
+
+            final long rowCount;
+            switch (exportTable) {
+               case DOMAIN:
+                  rowCount = __importDomains(reader);
+                  break;
+               case RESOURCE_CLASS:
+                  rowCount = __importResourceClasses(reader);
+                  break;
+               case RESOURCE_CLASS_PERMISSION:
+                  rowCount = __importResourceClassPermissions(reader);
+                  break;
+               case RESOURCE:
+                  rowCount = __importResources(reader);
+                  break;
+               case RESOURCE_PASSWORD:
+                  rowCount = __importPasswords(reader);
+                  break;
+               default:
+                  rowCount = __importGrants(reader, exportTable);
+            }
+
+            __commit();
+            System.out.println("Imported " + rowCount + " row(s) of " + exportTable);
+         }
+
+         successful = true;
+      }
+      finally {
+         if (!successful) {
+            connection.rollback();
+         }
+         connection.setAutoCommit(originalAutoCommit);
+      }
+   }
+
+   private long __importDomains(ExportFormatReader reader) throws IOException {
+      long rowCount = 0;
+
+      while (reader.nextRow()) {
+         final long domainId = reader.readLong();
+         final String domainName = reader.readString();
+         final Long parentDomainId = reader.readNullableLong();
+
+         Id<DomainId> newDomainId = domainPersister.getResourceDomainId(sqlConnection, domainName);
+         if (newDomainId == null) {
+            if (parentDomainId == null) {
+               domainPersister.addResourceDomain(sqlConnection, domainName);
+            }
+            else {
+               domainPersister.addResourceDomain(sqlConnection,
+                                                 domainName,
+                                                 Id.<DomainId>from(__getMappedId(domainIds, parentDomainId, "domain")));
+            }
+            newDomainId = domainPersister.getResourceDomainId(sqlConnection, domainName);
+            rowCount++;
+         }
+         domainIds.put(domainId, newDomainId.getValue());
+      }
+
+      return rowCount;
+   }
+
+   private long __importResourceClasses(ExportFormatReader reader) throws IOException {
+      long rowCount = 0;
+
+      while (reader.nextRow()) {
+         final long resourceClassId = reader.readLong();
+         final String resourceClassName = reader.readString();
+         final boolean authenticatable = reader.readFlag();
+         final boolean unauthenticatedCreateAllowed = reader.readFlag();
+
+         Id<ResourceClassId> newResourceClassId = resourceClassPersister.getResourceClassId(sqlConnection,
+                                                                                            resourceClassName);
+         if (newResourceClassId == null) {
+            resourceClassPersister.addResourceClass(sqlConnection,
+                                                    resourceClassName,
+                                                    authenticatable,
+                                                    unauthenticatedCreateAllowed);
+            newResourceClassId = resourceClassPersister.getResourceClassId(sqlConnection, resourceClassName);
+            rowCount++;
+         }
+         resourceClassIds.put(resourceClassId, newResourceClassId.getValue());
+      }
+
+      return rowCount;
+   }
+
+   private long __importResourceClassPermissions(ExportFormatReader reader) throws IOException {
+      long rowCount = 0;
+
+      while (reader.nextRow()) {
+         final Id<ResourceClassId> newResourceClassId
+               = Id.from(__getMappedId(resourceClassIds, reader.readLong(), "resource class"));
+         final long permissionId = reader.readLong();
+         final String permissionName = reader.readString();
+
+         Id<ResourcePermissionId> newPermissionId
+               = resourceClassPermissionPersister.getResourceClassPermissionId(sqlConnection,
+                                                                               newResourceClassId,
+                                                                               permissionName);
+         if (newPermissionId == null) {
+            resourceClassPermissionPersister.addResourceClassPermission(sqlConnection,
+                                                                        newResourceClassId,
+                                                                        permissionName);
+            newPermissionId = resourceClassPermissionPersister.getResourceClassPermissionId(sqlConnection,
+                                                                                            newResourceClassId,
+                                                                                            permissionName);
+            rowCount++;
+         }
+         permissionIds.put(permissionId, newPermissionId.getValue());
+      }
+
+      return rowCount;
+   }
+
+   private long __importResources(ExportFormatReader reader) throws IOException, SQLException {
+      // the resources are exported ordered by class and domain, and created in blocks of the same class and domain
+      final List<Long> blockResourceIds = new ArrayList<>(Math.min(batchSize, 10000));
+      final List<String> blockExternalIds = new ArrayList<>(Math.min(batchSize, 10000));
+      long blockResourceClassId = -1;
+      long blockDomainId = -1;
+      long rowCount = 0;
+
+      while (reader.nextRow()) {
+         final long resourceId = reader.readLong();
+         final long resourceClassId = reader.readLong();
+         final long domainId = reader.readLong();
+         final String externalId = reader.readNullableString();
+
+         if (resourceId == SYSTEM_RESOURCE_ID) {
+            continue;
+         }
+
+         if (!blockResourceIds.isEmpty()
+               && (resourceClassId != blockResourceClassId
+               || domainId != blockDomainId
+               || blockResourceIds.size() >= batchSize)) {
+            rowCount += __createResources(blockResourceClassId, blockDomainId, blockResourceIds, blockExternalIds);
+         }
+
+         blockResourceClassId = resourceClassId;
+         blockDomainId = domainId;
+         blockResourceIds.add(resourceId);
+         blockExternalIds.add(externalId);
+      }
+
+      if (!blockResourceIds.isEmpty()) {
+         rowCount += __createResources(blockResourceClassId, blockDomainId, blockResourceIds, blockExternalIds);
+      }
+
+      return rowCount;
+   }
+
+   private int __createResources(long resourceClassId,
+                                 long domainId,
+                                 List<Long> blockResourceIds,
+                                 List<String> blockExternalIds) throws SQLException {
+      final List<Resource> newResources
+            = resourcePersister.createResources(sqlConnection,
+                                                Id.<ResourceClassId>from(__getMappedId(resourceClassIds,
+                                                                                       resourceClassId,
+                                                                                       "resource class")),
+                                                Id.<DomainId>from(__getMappedId(domainIds, domainId, "domain")),
+                                                blockExternalIds);
+
+      for (int i = 0; i < newResources.size(); i++) {
+         resourceIds.put(blockResourceIds.get(i), newResources.get(i).getId());
+      }
+
+      final int createdCount = blockResourceIds.size();
+      blockResourceIds.clear();
+      blockExternalIds.clear();
+      __onRowsImported(createdCount);
+      return createdCount;
+   }
+
+   private long __importPasswords(ExportFormatReader reader) throws IOException, SQLException {
+      long rowCount = 0;
+      long skippedCount = 0;
+
+      try (PreparedStatement statement
+                 = connection.prepareStatement(ExportTable.RESOURCE_PASSWORD.getInsertSQL(schemaNameAndTablePrefix))) {
+         int batchedCount = 0;
+
+         while (reader.nextRow()) {
+            final long resourceId = reader.readLong();
+            final String password = reader.readString();
+
+            // the password hash is bound to the id of the resource, so it only remains valid if the id is unchanged
+            if (resourceId == SYSTEM_RESOURCE_ID || __getMappedResourceId(resourceId) != resourceId) {
+               skippedCount++;
+               continue;
+            }
+
+            statement.setLong(1, resourceId);
+            statement.setString(2, password);
+            statement.addBatch();
+            batchedCount++;
+
+            if (batchedCount >= batchSize) {
+               statement.executeBatch();
+               rowCount += batchedCount;
+               __onRowsImported(batchedCount);
+               batchedCount = 0;
+            }
+         }
+
+         statement.executeBatch();
+         rowCount += batchedCount;
+      }
+
+      if (skippedCount > 0) {
+         System.out.println("Skipped " + skippedCount + " password(s) of resources with a new id, or of the system resource");
+      }
+      return rowCount;
+   }
+
+   private long __importGrants(ExportFormatReader reader, ExportTable exportTable) throws IOException, SQLException {
+      final ExportTable.Column[] columns = exportTable.getColumns();
+      final long[] values = new long[columns.length];
+      long rowCount = 0;
+
+      try (PreparedStatement statement = connection.prepareStatement(exportTable.getInsertSQL(schemaNameAndTablePrefix))) {
+         int batchedCount = 0;
+
+         while (reader.nextRow()) {
+            // the grant tables only hold ids and flags, with flags read as 0 or 1
+            for (int i = 0; i < columns.length; i++) {
+               values[i] = columns[i].getColumnType() == ExportTable.ColumnType.FLAG
+                           ? (reader.readFlag() ? 1 : 0)
+                           : reader.readLong();
+            }
+
+            if (__isInitialSystemResourceGrant(exportTable, values)) {
+               continue;
+            }
+
+            for (int i = 0; i < columns.length; i++) {
+               if (columns[i].getColumnType() == ExportTable.ColumnType.FLAG) {
+                  statement.setInt(i + 1, (int) values[i]);
+               }
+               else {
+                  statement.setLong(i + 1, __getMappedValue(columns[i].getColumnType(), values[i]));
+               }
+            }
+            statement.addBatch();
+            batchedCount++;
+
+            if (batchedCount >= batchSize) {
+               statement.executeBatch();
+               rowCount += batchedCount;
+               __onRowsImported(batchedCount);
+               batchedCount = 0;
+            }
+         }
+
+         statement.executeBatch();
+         rowCount += batchedCount;
+      }
+
+      return rowCount;
+   }
+
+   // returns true for the grants that the initializer gives the system resource, which the importing database has
+   private static boolean __isInitialSystemResourceGrant(ExportTable exportTable, long[] values) {
+      switch (exportTable) {
+         case GRANT_DOMAIN_PERMISSION_SYS:
+            // the columns are AccessorResourceId, GrantorResourceId, AccessedDomainId, ...
+            return values[0] == SYSTEM_RESOURCE_ID && values[2] == SYSTEM_DOMAIN_ID;
+         case GRANT_DOMAIN_CREATE_PERMISSION_SYS:
+         case GRANT_DOMAIN_CREATE_PERMISSION_POST_CREATE_SYS:
+            return values[0] == SYSTEM_RESOURCE_ID;
+         default:
+            return false;
+      }
+   }
+
+   private long __getMappedValue(ExportTable.ColumnType columnType, long value) {
+      switch (columnType) {
+         case RESOURCE_ID:
+            return __getMappedResourceId(value);
+         case DOMAIN_ID:
+            return __getMappedId(domainIds, value, "domain");
+         case RESOURCE_CLASS_ID:
+            return __getMappedId(resourceClassIds, value, "resource class");
+         case PERMISSION_ID:
+            return __getMappedId(permissionIds, value, "permission");
+         default:
+            // system permission ids are the same in every OACC database
+            return value;
+      }
+   }
+
+   private long __getMappedResourceId(long resourceId) {
+      final long newResourceId = resourceIds.get(resourceId, -1);
+      if (newResourceId < 0) {
+         throw new IllegalStateException("Corrupt OACC export, reference to an unknown resource: " + resourceId);
+      }
+      return newResourceId;
+   }
+
+   private static long __getMappedId(Map<Long, Long> ids, long id, String idDescription) {
+      final Long newId = ids.get(id);
+      if (newId == null) {
+         throw new IllegalStateException("Corrupt OACC export, reference to an unknown " + idDescription + ": " + id);
+      }
+      return newId;
+   }
+
+   private void __onRowsImported(int rowCount) throws SQLException {
+      uncommittedRowCount += rowCount;
+      if (uncommittedRowCount >= batchSize) {
+         __commit();
+      }
+   }
+
+   private void __commit() throws SQLException {
+      connection.commit();
+      uncommittedRowCount = 0;
+   }
+}
@@ -0,0 +1,607 @@
+/*
+ * Copyright 2009-2016, Acciente LLC
+ *
+ * Acciente LLC licenses this file to you under the
+ * Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in
+ * writing, software distributed under the License is
+ * distributed on an "AS IS" BASIS, WITHOUT WARRANTIES
+ * OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.acciente.oacc.sql.internal;
+
+import com.acciente.oacc.DomainPermissions;
+import com.acciente.oacc.ResourcePermissions;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static com.acciente.oacc.sql.internal.AuthorizationSnapshotFormat.*;
+
+public class SQLAuthorizationSnapshotBuilder {
+   private static final int FETCH_SIZE = 1000;
+
+   // a section is mapped as one buffer, which cannot exceed 2GB
+   private static final long MAX_SECTION_INTS = Integer.MAX_VALUE / 4;
+
+   private static final long SYS_PERMISSION_ID_INHERIT
+         = ResourcePermissions.getInstance(ResourcePermissions.INHERIT).getSystemPermissionId();
+   private static final long SYS_PERMISSION_ID_SUPER_USER
+         = DomainPermissions.getInstance(DomainPermissions.SUPER_USER).getSystemPermissionId();
+
+   /**
+    * Builds an authorization snapshot of the OACC database on the specified connection.
+    * <p/>
+    * The snapshot is first written to a temporary file in the directory of the specified file, which then atomically
+    * replaces the specified file, so that readers never see a partially written snapshot.
+    */
+   public static void buildSnapshot(Connection connection, String dbSchema, Path file) throws SQLException, IOException {
+      SchemaNameValidator.assertValid(dbSchema);
+
+      final String schemaNameAndTablePrefix = dbSchema != null ? dbSchema + ".OAC_" : "OAC_";
+      final Path absoluteFile = file.toAbsolutePath();
+      final Path tempFile = Files.createTempFile(absoluteFile.getParent(), absoluteFile.getFileName().toString(), ".tmp");
+
+      // read all tables within one transaction, unless the caller already has a transaction in progress, with an
+      // isolation level under which every section sees the same committed state; under the read committed default
+      // of most databases, a grant could otherwise reference a resource created after the resources were read
+      final boolean transactionStarted = connection.getAutoCommit();
+      final int originalTransactionIsolation = connection.getTransactionIsolation();
+      if (transactionStarted) {
+         connection.setTransactionIsolation(__getConsistentTransactionIsolation(connection));
+         try {
+            connection.setAutoCommit(false);
+         }
+         catch (SQLException | RuntimeException e) {
+            try {
+               connection.setTransactionIsolation(originalTransactionIsolation);
+            }
+            catch (SQLException | RuntimeException restoreException) {
+               e.addSuppressed(restoreException);
+            }
+            throw e;
+         }
+      }
+      try {
+         final long[] sectionOffsets = new long[SECTION_COUNT];
+         final long[] sectionLengths = new long[SECTION_COUNT];
+         final int resourceCount;
+         final int domainCount;
+
+         try (SnapshotOutput output = new SnapshotOutput(tempFile)) {
+            // the header is written last, once the offsets of the sections are known
+            output.skip(HEADER_SIZE);
+
+            final Dictionary dictionary = __writeDictionary(connection, schemaNameAndTablePrefix, output,
+                                                            sectionOffsets, sectionLengths);
+            final long[] domainIds = __writeDomains(connection, schemaNameAndTablePrefix, output,
+                                                    sectionOffsets, sectionLengths);
+            final long[] resourceIds = __writeResources(connection, schemaNameAndTablePrefix, output, dictionary,
+                                                        domainIds, sectionOffsets, sectionLengths);
+            __writeSuperUserGrants(connection, schemaNameAndTablePrefix, output, resourceIds, domainIds,
+                                   sectionOffsets, sectionLengths);
+            __writeResourceGrants(connection, schemaNameAndTablePrefix, output, dictionary, resourceIds,
+                                  sectionOffsets, sectionLengths);
+            __writeGlobalGrants(connection, schemaNameAndTablePrefix, output, dictionary, resourceIds, domainIds,
+                                sectionOffsets, sectionLengths);
+            resourceCount = resourceIds.length;
+            domainCount = domainIds.length;
+         }
+
+         __writeHeader(tempFile, resourceCount, domainCount, sectionOffsets, sectionLengths);
+         Files.move(tempFile, absoluteFile, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+
+         System.out.println("Built authorization snapshot of " + resourceCount + " resource(s) in "
+                                  + domainCount + " domain(s)");
+      }
+      finally {
+         try {
+            if (transactionStarted) {
+               // nothing was written, so the transaction can simply be rolled back
+               try {
+                  connection.rollback();
+               }
+               finally {
+                  try {
+                     connection.setAutoCommit(true);
+                  }
+                  finally {
+                     connection.setTransactionIsolation(originalTransactionIsolation);
+                  }
+               }
+            }
+         }
+         finally {
+            Files.deleteIfExists(tempFile);
+         }
+      }
+   }
+
+   // returns serializable, under which the transaction does not see changes committed by others while it runs, or
+   // the next strictest level, repeatable read, for databases that do not support serializable
+   private static int __getConsistentTransactionIsolation(Connection connection) throws SQLException {
+      final DatabaseMetaData metaData = connection.getMetaData();
+
+      if (metaData.supportsTransactionIsolationLevel(Connection.TRANSACTION_SERIALIZABLE)) {
+         return Connection.TRANSACTION_SERIALIZABLE;
+      }
+      if (metaData.supportsTransactionIsolationLevel(Connection.TRANSACTION_REPEATABLE_READ)) {
+         return Connection.TRANSACTION_REPEATABLE_READ;
+      }
+      return connection.getTransactionIsolation();
+   }
+
+   private static Dictionary __writeDictionary(Connection connection,
+                                               String schemaNameAndTablePrefix,
+                                               SnapshotOutput output,
+                                               long[] sectionOffsets,
+                                               long[] sectionLengths) throws SQLException, IOException {
+      final Dictionary dictionary = new Dictionary();
+      final List<String> resourceClassNames = new ArrayList<>();
+      final List<Boolean> authenticatables = new ArrayList<>();
+      final List<List<String>> permissionNames = new ArrayList<>();
+
+      try (PreparedStatement statement = __prepareStatement(connection,
+                                                            "SELECT ResourceClassId, ResourceClassName, IsAuthenticatable FROM "
+                                                                  + schemaNameAndTablePrefix + "ResourceClass"
+                                                                  + " ORDER BY ResourceClassId");
+           ResultSet resultSet = statement.executeQuery()) {
+         while (resultSet.next()) {
+            dictionary.resourceClassIds.add(resultSet.getLong(1));
+            dictionary.permissionIndices.add(new HashMap<Long, Integer>());
+            resourceClassNames.add(resultSet.getString(2));
+            authenticatables.add(resultSet.getInt(3) != 0);
+            permissionNames.add(new ArrayList<String>());
+         }
+      }
+
+      try (PreparedStatement statement = __prepareStatement(connection,
+                                                            "SELECT ResourceClassId, PermissionId, PermissionName FROM "
+                                                                  + schemaNameAndTablePrefix + "ResourceClassPermission"
+                                                                  + " ORDER BY ResourceClassId, PermissionId");
+           ResultSet resultSet = statement.executeQuery()) {
+         while (resultSet.next()) {
+            final int resourceClassIndex = dictionary.getResourceClassIndex(resultSet.getLong(1));
+            final List<String> classPermissionNames = permissionNames.get(resourceClassIndex);
+            dictionary.permissionIndices.get(resourceClassIndex).put(resultSet.getLong(2),
+                                                                     SYS_PERMISSION_NAMES.length + classPermissionNames.size());
+            classPermissionNames.add(resultSet.getString(3));
+         }
+      }
+
+      sectionOffsets[SECTION_DICTIONARY] = output.getPosition();
+      output.writeInt(resourceClassNames.size());
+      for (int i = 0; i < resourceClassNames.size(); i++) {
+         output.writeString(resourceClassNames.get(i));
+         output.writeBoolean(authenticatables.get(i));
+         output.writeInt(permissionNames.get(i).size());
+         for (String permissionName : permissionNames.get(i)) {
+            output.writeString(permissionName);
+         }
+      }
+      sectionLengths[SECTION_DICTIONARY] = output.getPosition() - sectionOffsets[SECTION_DICTIONARY];
+
+      return dictionary;
+   }
+
+   private static long[] __writeDomains(Connection connection,
+                                        String schemaNameAndTablePrefix,
+                                        SnapshotOutput output,
+                                        long[] sectionOffsets,
+                                        long[] sectionLengths) throws SQLException, IOException {
+      final LongList domainIds = new LongList();
+      final LongList parentDomainIds = new LongList();
+
+      try (PreparedStatement statement = __prepareStatement(connection,
+                                                            "SELECT DomainId, ParentDomainId FROM "
+                                                                  + schemaNameAndTablePrefix + "Domain"
+                                                                  + " ORDER BY DomainId");
+           ResultSet resultSet = statement.executeQuery()) {
+         while (resultSet.next()) {
+            domainIds.add(resultSet.getLong(1));
+            final long parentDomainId = resultSet.getLong(2);
+            parentDomainIds.add(resultSet.wasNull() ? -1 : parentDomainId);
+         }
+      }
+
+      final long[] sortedDomainIds = domainIds.toArray();
+
+      sectionOffsets[SECTION_DOMAIN_PARENTS] = output.getPosition();
+      for (int i = 0; i < sortedDomainIds.length; i++) {
+         final long parentDomainId = parentDomainIds.get(i);
+         output.writeInt(parentDomainId < 0 ? -1 : __getIndex(sortedDomainIds, parentDomainId));
+      }
+      sectionLengths[SECTION_DOMAIN_PARENTS] = output.getPosition() - sectionOffsets[SECTION_DOMAIN_PARENTS];
+
+      return sortedDomainIds;
+   }
+
+   private static long[] __writeResources(Connection connection,
+                                          String schemaNameAndTablePrefix,
+                                          SnapshotOutput output,
+                                          Dictionary dictionary,
+                                          long[] domainIds,
+                                          long[] sectionOffsets,
+                                          long[] sectionLengths) throws SQLException, IOException {
+      final LongList resourceIds = new LongList();
+      final IntList resourceClassIndices = new IntList();
+      final IntList domainIndices = new IntList();
+
+      try (PreparedStatement statement = __prepareStatement(connection,
+                                                            "SELECT ResourceId, ResourceClassId, DomainId FROM "
+                                                                  + schemaNameAndTablePrefix + "Resource"
+                                                                  + " ORDER BY ResourceId");
+           ResultSet resultSet = statement.executeQuery()) {
+         while (resultSet.next()) {
+            resourceIds.add(resultSet.getLong(1));
+            resourceClassIndices.add(dictionary.getResourceClassIndex(resultSet.getLong(2)));
+            domainIndices.add(__getIndex(domainIds, resultSet.getLong(3)));
+         }
+      }
+      __assertSectionSize(resourceIds.size(), 2, "resources");
+
+      sectionOffsets[SECTION_RESOURCE_IDS] = output.getPosition();
+      for (int i = 0; i < resourceIds.size(); i++) {
+         output.writeLong(resourceIds.get(i));
+      }
+      sectionLengths[SECTION_RESOURCE_IDS] = output.getPosition() - sectionOffsets[SECTION_RESOURCE_IDS];
+
+      __writeInts(output, SECTION_RESOURCE_CLASSES, resourceClassIndices, sectionOffsets, sectionLengths);
+      __writeInts(output, SECTION_RESOURCE_DOMAINS, domainIndices, sectionOffsets, sectionLengths);
+
+      return resourceIds.toArray();
+   }
+
+   private static void __writeSuperUserGrants(Connection connection,
+                                              String schemaNameAndTablePrefix,
+                                              SnapshotOutput output,
+                                              long[] resourceIds,
+                                              long[] domainIds,
+                                              long[] sectionOffsets,
+                                              long[] sectionLengths) throws SQLException, IOException {
+      final int[] offsets = new int[resourceIds.length + 1];
+      long entryCount = 0;
+
+      sectionOffsets[SECTION_SUPER_USER_ENTRIES] = output.getPosition();
+      try (PreparedStatement statement = __prepareStatement(connection,
+                                                            "SELECT DISTINCT AccessorResourceId, AccessedDomainId FROM "
+                                                                  + schemaNameAndTablePrefix + "Grant_DomPerm_Sys"
+                                                                  + " WHERE SysPermissionId = ?"
+                                                                  + " ORDER BY AccessorResourceId, AccessedDomainId")) {
+         statement.setLong(1, SYS_PERMISSION_ID_SUPER_USER);
+         try (ResultSet resultSet = statement.executeQuery()) {
+            while (resultSet.next()) {
+               offsets[__getIndex(resourceIds, resultSet.getLong(1)) + 1]++;
+               output.writeInt(__getIndex(domainIds, resultSet.getLong(2)));
+               entryCount++;
+            }
+         }
+      }
+      sectionLengths[SECTION_SUPER_USER_ENTRIES] = output.getPosition() - sectionOffsets[SECTION_SUPER_USER_ENTRIES];
+      __assertSectionSize(entryCount, 1, "super-user grants");
+
+      __writeOffsets(output, SECTION_SUPER_USER_OFFSETS, offsets, sectionOffsets, sectionLengths);
+   }
+
+   private static void __writeResourceGrants(Connection connection,
+                                             String schemaNameAndTablePrefix,
+                                             SnapshotOutput output,
+                                             Dictionary dictionary,
+                                             long[] resourceIds,
+                                             long[] sectionOffsets,
+                                             long[] sectionLengths) throws SQLException, IOException {
+      final int[] offsets = new int[resourceIds.length + 1];
+      final int[] inheritOffsets = new int[resourceIds.length + 1];
+      final IntList inheritEntries = new IntList();
+      long entryCount = 0;
+
+      // the rows are ordered by the resource ids, and hence by the resource indices, of the accessor and accessed
+      sectionOffsets[SECTION_GRANT_ENTRIES] = output.getPosition();
+      try (PreparedStatement statement = __prepareStatement(connection,
+                                                            "SELECT AccessorResourceId, AccessedResourceId, ResourceClassId, PermissionId, IsWithGrant, 0 FROM "
+                                                                  + schemaNameAndTablePrefix + "Grant_ResPerm"
+                                                                  + " UNION ALL "
+                                                                  + "SELECT AccessorResourceId, AccessedResourceId, ResourceClassId, SysPermissionId, IsWithGrant, 1 FROM "
+                                                                  + schemaNameAndTablePrefix + "Grant_ResPerm_Sys"
+                                                                  + " ORDER BY 1, 2");
+           ResultSet resultSet = statement.executeQuery()) {
+         while (resultSet.next()) {
+            final int accessorIndex = __getIndex(resourceIds, resultSet.getLong(1));
+            final int accessedIndex = __getIndex(resourceIds, resultSet.getLong(2));
+            final long permissionId = resultSet.getLong(4);
+            final boolean isSysPermission = resultSet.getInt(6) != 0;
+            final int permissionIndex
+                  = isSysPermission
+                    ? __getSysPermissionIndex(permissionId)
+                    : dictionary.getPermissionIndex(resultSet.getLong(3), permissionId);
+
+            offsets[accessorIndex + 1]++;
+            output.writeInt(accessedIndex);
+            output.writeInt(encodePermission(permissionIndex, resultSet.getInt(5) != 0));
+            entryCount++;
+
+            if (isSysPermission && permissionId == SYS_PERMISSION_ID_INHERIT) {
+               inheritOffsets[accessorIndex + 1]++;
+               inheritEntries.add(accessedIndex);
+            }
+         }
+      }
+      sectionLengths[SECTION_GRANT_ENTRIES] = output.getPosition() - sectionOffsets[SECTION_GRANT_ENTRIES];
+      __assertSectionSize(entryCount, GRANT_ENTRY_INTS, "resource grants");
+
+      __writeOffsets(output, SECTION_GRANT_OFFSETS, offsets, sectionOffsets, sectionLengths);
+      __writeOffsets(output, SECTION_INHERIT_OFFSETS, inheritOffsets, sectionOffsets, sectionLengths);
+      __writeInts(output, SECTION_INHERIT_ENTRIES, inheritEntries, sectionOffsets, sectionLengths);
+   }
+
+   private static void __writeGlobalGrants(Connection connection,
+                                           String schemaNameAndTablePrefix,
+                                           SnapshotOutput output,
+                                           Dictionary dictionary,
+                                           long[] resourceIds,
+                                           long[] domainIds,
+                                           long[] sectionOffsets,
+                                           long[] sectionLengths) throws SQLException, IOException {
+      final int[] offsets = new int[resourceIds.length + 1];
+      long entryCount = 0;
+
+      // the rows are ordered by the ids, and hence by the indices, of the accessor, domain and resource class
+      sectionOffsets[SECTION_GLOBAL_ENTRIES] = output.getPosition();
+      try (PreparedStatement statement = __prepareStatement(connection,
+                                                            "SELECT AccessorResourceId, AccessedDomainId, ResourceClassId, PermissionId, IsWithGrant, 0 FROM "
+                                                                  + schemaNameAndTablePrefix + "Grant_Global_ResPerm"
+                                                                  + " UNION ALL "
+                                                                  + "SELECT AccessorResourceId, AccessedDomainId, ResourceClassId, SysPermissionId, IsWithGrant, 1 FROM "
+                                                                  + schemaNameAndTablePrefix + "Grant_Global_ResPerm_Sys"
+                                                                  + " ORDER BY 1, 2, 3");
+           ResultSet resultSet = statement.executeQuery()) {
+         while (resultSet.next()) {
+            final long resourceClassId = resultSet.getLong(3);
+            final long permissionId = resultSet.getLong(4);
+            final int permissionIndex
+                  = resultSet.getInt(6) != 0
+                    ? __getSysPermissionIndex(permissionId)
+                    : dictionary.getPermissionIndex(resourceClassId, permissionId);
+
+            offsets[__getIndex(resourceIds, resultSet.getLong(1)) + 1]++;
+            output.writeInt(__getIndex(domainIds, resultSet.getLong(2)));
+            output.writeInt(dictionary.getResourceClassIndex(resourceClassId));
+            output.writeInt(encodePermission(permissionIndex, resultSet.getInt(5) != 0));
+            entryCount++;
+         }
+      }
+      sectionLengths[SECTION_GLOBAL_ENTRIES] = output.getPosition() - sectionOffsets[SECTION_GLOBAL_ENTRIES];
+      __assertSectionSize(entryCount, GLOBAL_ENTRY_INTS, "global resource grants");
+
+      __writeOffsets(output, SECTION_GLOBAL_OFFSETS, offsets, sectionOffsets, sectionLengths);
+   }
+
+   private static void __writeHeader(Path file,
+                                     int resourceCount,
+                                     int domainCount,
+                                     long[] sectionOffsets,
+                                     long[] sectionLengths) throws IOException {
+      final ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+      header.putInt(MAGIC);
+      header.putInt(VERSION);
+      header.putLong(System.currentTimeMillis());
+      header.putInt(resourceCount);
+      header.putInt(domainCount);
+      for (int i = 0; i < SECTION_COUNT; i++) {
+         header.putLong(sectionOffsets[i]);
+         header.putLong(sectionLengths[i]);
+      }
+      header.flip();
+
+      try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+         while (header.hasRemaining()) {
+            channel.write(header, header.position());
+         }
+         // make sure the snapshot is durable before it replaces the previous one
+         channel.force(true);
+      }
+   }
+
+   // converts the per-accessor entry counts, at index + 1, to the offset of the first entry of each accessor
+   private static void __writeOffsets(SnapshotOutput output,
+                                      int section,
+                                      int[] offsets,
+                                      long[] sectionOffsets,
+                                      long[] sectionLengths) throws IOException {
+      sectionOffsets[section] = output.getPosition();
+      for (int i = 1; i < offsets.length; i++) {
+         offsets[i] += offsets[i - 1];
+      }
+      for (int offset : offsets) {
+         output.writeInt(offset);
+      }
+      sectionLengths[section] = output.getPosition() - sectionOffsets[section];
+   }
+
+   private static void __writeInts(SnapshotOutput output,
+                                   int section,
+                                   IntList values,
+                                   long[] sectionOffsets,
+                                   long[] sectionLengths) throws IOException {
+      sectionOffsets[section] = output.getPosition();
+      for (int i = 0; i < values.size(); i++) {
+         output.writeInt(values.get(i));
+      }
+      sectionLengths[section] = output.getPosition() - sectionOffsets[section];
+   }
+
+   private static void __assertSectionSize(long entryCount, int entryInts, String entryDescription) {
+      if (entryCount * entryInts > MAX_SECTION_INTS) {
+         throw new IllegalArgumentException("Too many " + entryDescription + " for an authorization snapshot: "
+                                                  + entryCount);
+      }
+   }
+
+   private static PreparedStatement __prepareStatement(Connection connection, String sql) throws SQLException {
+      final PreparedStatement statement = connection.prepareStatement(sql,
+                                                                      ResultSet.TYPE_FORWARD_ONLY,
+                                                                      ResultSet.CONCUR_READ_ONLY);
+      // stream the rows, rather than have the driver load the whole table
+      statement.setFetchSize(FETCH_SIZE);
+      return statement;
+   }
+
+   private static int __getIndex(long[] sortedIds, long id) {
+      final int index = Arrays.binarySearch(sortedIds, id);
+      if (index < 0) {
+         // the foreign keys of the tables rule this out, unless the tables changed outside of the transaction
+         throw new IllegalStateException("Could not find id " + id + " while building the authorization snapshot");
+      }
+      return index;
+   }
+
+   private static int __getSysPermissionIndex(long sysPermissionId) {
+      final String sysPermissionName = ResourcePermissions.getSysPermissionName(sysPermissionId);
+      for (int i = 0; i < SYS_PERMISSION_NAMES.length; i++) {
+         if (SYS_PERMISSION_NAMES[i].equals(sysPermissionName)) {
+            return i;
+         }
+      }
+      throw new IllegalArgumentException("Invalid system permission ID: " + sysPermissionId);
+   }
+
+   private static class Dictionary {
+      private final LongList                 resourceClassIds  = new LongList();
+      private final List<Map<Long, Integer>> permissionIndices = new ArrayList<>();
+
+      // the resource classes are added in the order of their ids
+      int getResourceClassIndex(long resourceClassId) {
+         final int index = Arrays.binarySearch(resourceClassIds.values, 0, resourceClassIds.size, resourceClassId);
+         if (index < 0) {
+            throw new IllegalStateException("Could not find resource class id " + resourceClassId
+                                                  + " while building the authorization snapshot");
+         }
+         return index;
+      }
+
+      int getPermissionIndex(long resourceClassId, long permissionId) {
+         final Integer permissionIndex = permissionIndices.get(getResourceClassIndex(resourceClassId)).get(permissionId);
+         if (permissionIndex == null) {
+            throw new IllegalStateException("Could not find permission id " + permissionId
+                                                  + " while building the authorization snapshot");
+         }
+         return permissionIndex;
+      }
+   }
+
+   private static class LongList {
+      private long[] values = new long[1024];
+      private int    size;
+
+      void add(long value) {
+         if (size == values.length) {
+            values = Arrays.copyOf(values, size * 2);
+         }
+         values[size++] = value;
+      }
+
+      long get(int index) {
+         return values[index];
+      }
+
+      int size() {
+         return size;
+      }
+
+      long[] toArray() {
+         return Arrays.copyOf(values, size);
+      }
+   }
+
+   private static class IntList {
+      private int[] values = new int[1024];
+      private int   size;
+
+      void add(int value) {
+         if (size == values.length) {
+            values = Arrays.copyOf(values, size * 2);
+         }
+         values[size++] = value;
+      }
+
+      int get(int index) {
+         return values[index];
+      }
+
+      int size() {
+         return size;
+      }
+   }
+
+   // a buffered output stream that keeps track of its position, beyond the 2GB that DataOutputStream counts
+   private static class SnapshotOutput implements Closeable {
+      private final DataOutputStream outputStream;
+      private       long             position;
+
+      SnapshotOutput(Path file) throws IOException {
+         outputStream = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file), 64 * 1024));
+      }
+
+      long getPosition() {
+         return position;
+      }
+
+      void skip(int length) throws IOException {
+         outputStream.write(new byte[length]);
+         position += length;
+      }
+
+      void writeInt(int value) throws IOException {
+         outputStream.writeInt(value);
+         position += 4;
+      }
+
+      void writeLong(long value) throws IOException {
+         outputStream.writeLong(value);
+         position += 8;
+      }
+
+      void writeBoolean(boolean value) throws IOException {
+         outputStream.writeBoolean(value);
+         position += 1;
+      }
+
+      void writeString(String value) throws IOException {
+         final byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+         writeInt(bytes.length);
+         outputStream.write(bytes);
+         position += bytes.length;
+      }
+
+      @Override
+      public void close() throws IOException {
+         outputStream.close();
+      }
+   }
+}
@@ -35,6 +35,7 @@ import java.io.ObjectInputStream;
 import java.io.Serializable;
 import java.sql.Connection;
 import java.sql.SQLException;
+import java.util.Set;
 
 public class SQLPasswordAuthenticationProvider implements AuthenticationProvider, Serializable {
    private static final long serialVersionUID = 1L;
@@ -233,6 +234,17 @@ public class SQLPasswordAuthenticationProvider implements AuthenticationProvider
       }
    }
 
+   /**
+    * Deletes the credentials of the specified resources in a single batch on the specified connection, so that the
+    * deletes become part of the transaction in progress on that connection, if any.
+    *
+    * @param connection the connection of the access control context that deletes the resources
+    * @param resources  the resources whose credentials to delete
+    */
+   void deleteCredentials(SQLConnection connection, Set<Resource> resources) {
+      resourcePasswordPersister.removeEncryptedBoundPasswordsByResourceId(connection, resources);
+   }
+
    private void __setResourcePassword(SQLConnection connection, Resource resource, char[] newPassword) {
       char[] newBoundPassword = null;
       try {
@@ -273,7 +285,7 @@ public class SQLPasswordAuthenticationProvider implements AuthenticationProvider
    private SQLConnection getConnection() {
       if (dataSource != null) {
          try {
-            return new SQLConnection(dataSource.getConnection());
+            return SQLConnection.getConnection(dataSource);
          }
          catch (SQLException e) {
             throw new RuntimeException(e);
@@ -0,0 +1,60 @@
+/*
+ * Copyright 2009-2016, Acciente LLC
+ *
+ * Acciente LLC licenses this file to you under the
+ * Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in
+ * writing, software distributed under the License is
+ * distributed on an "AS IS" BASIS, WITHOUT WARRANTIES
+ * OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.acciente.oacc.sql.internal;
+
+import com.acciente.oacc.PermissionCheck;
+import com.acciente.oacc.ResourcePermission;
+
+import java.io.Serializable;
+import java.util.Collections;
+import java.util.Set;
+
+class SQLPermissionCheck implements PermissionCheck, Serializable {
+   private static final long serialVersionUID = 1L;
+
+   private final long                    resourceClassId;
+   private final String                  resourceClassName;
+   private final Set<ResourcePermission> resourcePermissions;
+
+   SQLPermissionCheck(ResourceClassInternalInfo resourceClassInfo,
+                      Set<ResourcePermission> normalizedResourcePermissions) {
+      this.resourceClassId = resourceClassInfo.getResourceClassId();
+      this.resourceClassName = resourceClassInfo.getResourceClassName();
+      this.resourcePermissions = Collections.unmodifiableSet(normalizedResourcePermissions);
+   }
+
+   long getResourceClassId() {
+      return resourceClassId;
+   }
+
+   @Override
+   public String getResourceClassName() {
+      return resourceClassName;
+   }
+
+   @Override
+   public Set<ResourcePermission> getResourcePermissions() {
+      return resourcePermissions;
+   }
+
+   @Override
+   public String toString() {
+      return "PermissionCheck{resourceClassName='" + resourceClassName
+            + "', resourcePermissions=" + resourcePermissions + "}";
+   }
+}
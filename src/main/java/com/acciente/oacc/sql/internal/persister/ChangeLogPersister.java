@@ -0,0 +1,194 @@
+/*
+ * Copyright 2009-2016, Acciente LLC
+ *
+ * Acciente LLC licenses this file to you under the
+ * Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in
+ * writing, software distributed under the License is
+ * distributed on an "AS IS" BASIS, WITHOUT WARRANTIES
+ * OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.acciente.oacc.sql.internal.persister;
+
+import com.acciente.oacc.Resource;
+import com.acciente.oacc.sql.ChangeLogEntry;
+import com.acciente.oacc.sql.ChangeLogEntry.ChangeType;
+import com.acciente.oacc.sql.SQLProfile;
+
+import java.io.Serializable;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+public class ChangeLogPersister extends Persister implements Serializable {
+   private static final long serialVersionUID = 1L;
+
+   protected final SQLProfile sqlProfile;
+   private final   SQLStrings sqlStrings;
+
+   public ChangeLogPersister(SQLProfile sqlProfile,
+                             SQLStrings sqlStrings) {
+      this.sqlProfile = sqlProfile;
+      this.sqlStrings = sqlStrings;
+   }
+
+   public void addChangeLogEntry(SQLConnection connection,
+                                 ChangeType changeType,
+                                 Resource accessorResource,
+                                 Resource accessedResource,
+                                 String domainName,
+                                 String resourceClassName) {
+      SQLStatement statement = null;
+
+      try {
+         statement = connection.prepareStatement(sqlStrings.SQL_createInChangeLog_WITH_ChangeType_AccessorID_AccessedID_DomainName_ResourceClassName);
+         setChangeLogEntryParameters(statement, changeType, accessorResource, accessedResource, domainName, resourceClassName);
+
+         assertOneRowInserted(statement.executeUpdate());
+      }
+      catch (SQLException e) {
+         throw new RuntimeException(e);
+      }
+      finally {
+         closeStatement(statement);
+      }
+   }
+
+   public void addResourceChangeLogEntries(SQLConnection connection,
+                                           Set<Resource> resources) {
+      SQLStatement statement = null;
+
+      try {
+         statement = connection.prepareStatement(sqlStrings.SQL_createInChangeLog_WITH_ChangeType_AccessorID_AccessedID_DomainName_ResourceClassName);
+
+         for (Resource resource : resources) {
+            setChangeLogEntryParameters(statement, ChangeType.RESOURCE, null, resource, null, null);
+            statement.addBatch();
+         }
+
+         assertOneRowInsertedPerBatchEntry(statement.executeBatch());
+      }
+      catch (SQLException e) {
+         throw new RuntimeException(e);
+      }
+      finally {
+         closeStatement(statement);
+      }
+   }
+
+   public List<ChangeLogEntry> getChangeLogEntriesAfterVersion(SQLConnection connection,
+                                                               long changeVersion) {
+      SQLStatement statement = null;
+
+      try {
+         List<ChangeLogEntry> changeLogEntries = new ArrayList<>();
+
+         statement = connection.prepareStatement(sqlStrings.SQL_findInChangeLog_ChangeVersion_ChangeType_AccessorID_AccessedID_DomainName_ResourceClassName_BY_ChangeVersion);
+         statement.setChangeVersion(1, changeVersion);
+         SQLResult resultSet = statement.executeQuery();
+
+         while (resultSet.next()) {
+            changeLogEntries.add(new ChangeLogEntry(resultSet.getChangeVersion("ChangeVersion"),
+                                                    ChangeType.getChangeType(resultSet.getInteger("ChangeType")),
+                                                    resultSet.getNullableResource("AccessorResourceId"),
+                                                    resultSet.getNullableResource("AccessedResourceId"),
+                                                    resultSet.getString("DomainName"),
+                                                    resultSet.getString("ResourceClassName")));
+         }
+         resultSet.close();
+
+         return changeLogEntries;
+      }
+      catch (SQLException e) {
+         throw new RuntimeException(e);
+      }
+      finally {
+         closeStatement(statement);
+      }
+   }
+
+   public long getLatestChangeVersion(SQLConnection connection) {
+      SQLStatement statement = null;
+
+      try {
+         long latestChangeVersion = 0;
+
+         statement = connection.prepareStatement(sqlStrings.SQL_findInChangeLog_MAXChangeVersion);
+         SQLResult resultSet = statement.executeQuery();
+
+         // MAX() over an empty change log returns NULL, which reads as zero
+         if (resultSet.next()) {
+            latestChangeVersion = resultSet.getChangeVersion("MAXChangeVersion");
+         }
+         resultSet.close();
+
+         return latestChangeVersion;
+      }
+      catch (SQLException e) {
+         throw new RuntimeException(e);
+      }
+      finally {
+         closeStatement(statement);
+      }
+   }
+
+   public int deleteChangeLogEntriesUpToVersion(SQLConnection connection,
+                                                long changeVersion) {
+      SQLStatement statement = null;
+
+      try {
+         statement = connection.prepareStatement(sqlStrings.SQL_removeInChangeLog_BY_ChangeVersion);
+         statement.setChangeVersion(1, changeVersion);
+
+         return statement.executeUpdate();
+      }
+      catch (SQLException e) {
+         throw new RuntimeException(e);
+      }
+      finally {
+         closeStatement(statement);
+      }
+   }
+
+   private static void setChangeLogEntryParameters(SQLStatement statement,
+                                                   ChangeType changeType,
+                                                   Resource accessorResource,
+                                                   Resource accessedResource,
+                                                   String domainName,
+                                                   String resourceClassName) throws SQLException {
+      statement.setInteger(1, changeType.getCode());
+      if (accessorResource != null) {
+         statement.setResourceId(2, accessorResource);
+      }
+      else {
+         statement.setNull(2, Types.BIGINT);
+      }
+      if (accessedResource != null) {
+         statement.setResourceId(3, accessedResource);
+      }
+      else {
+         statement.setNull(3, Types.BIGINT);
+      }
+      if (domainName != null) {
+         statement.setString(4, domainName);
+      }
+      else {
+         statement.setNull(4, Types.VARCHAR);
+      }
+      if (resourceClassName != null) {
+         statement.setString(5, resourceClassName);
+      }
+      else {
+         statement.setNull(5, Types.VARCHAR);
+      }
+   }
+}
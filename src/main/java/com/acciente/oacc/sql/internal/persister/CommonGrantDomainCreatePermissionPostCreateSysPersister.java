@@ -110,6 +110,27 @@ public abstract class CommonGrantDomainCreatePermissionPostCreateSysPersister ex
       }
    }
 
+   @Override
+   public void removeDomainCreatePostCreateSysPermissions(SQLConnection connection,
+                                                          Set<Resource> accessorResources) {
+      SQLStatement statement = null;
+
+      try {
+         statement = connection.prepareStatement(sqlStrings.SQL_removeInGrantDomainCreatePermissionPostCreateSys_BY_AccessorID);
+         for (Resource accessorResource : accessorResources) {
+            statement.setResourceId(1, accessorResource);
+            statement.addBatch();
+         }
+         statement.executeBatch();
+      }
+      catch (SQLException e) {
+         throw new RuntimeException(e);
+      }
+      finally {
+         closeStatement(statement);
+      }
+   }
+
    @Override
    public void removeDomainCreatePostCreateSysPermissions(SQLConnection connection,
                                                           Resource accessorResource,
@@ -154,9 +175,10 @@ public abstract class CommonGrantDomainCreatePermissionPostCreateSysPersister ex
                statement.setBoolean(4, domainCreatePermission.getPostCreateDomainPermission().isWithGrantOption());
                statement.setDomainSystemPermissionId(5, domainCreatePermission.getPostCreateDomainPermission().getSystemPermissionId());
 
-               assertOneRowInserted(statement.executeUpdate());
+               statement.addBatch();
             }
          }
+         assertOneRowInsertedPerBatchEntry(statement.executeBatch());
       }
       catch (SQLException e) {
          throw new RuntimeException(e);
@@ -184,9 +206,58 @@ public abstract class CommonGrantDomainCreatePermissionPostCreateSysPersister ex
                statement.setResourceId(4, accessorResource);
                statement.setDomainSystemPermissionId(5, domainCreatePermission.getPostCreateDomainPermission().getSystemPermissionId());
 
-               assertOneRowUpdated(statement.executeUpdate());
+               statement.addBatch();
+            }
+         }
+         assertOneRowUpdatedPerBatchEntry(statement.executeBatch());
+      }
+      catch (SQLException e) {
+         throw new RuntimeException(e);
+      }
+      finally {
+         closeStatement(statement);
+      }
+   }
+
+   @Override
+   public void addOrUpdateDomainCreatePostCreateSysPermissions(SQLConnection connection,
+                                                               Resource accessorResource,
+                                                               Resource grantorResource,
+                                                               Set<DomainCreatePermission> domainCreatePermissionsToAdd,
+                                                               Set<DomainCreatePermission> domainCreatePermissionsToUpdate) {
+      if (sqlStrings.SQL_upsertInGrantDomainCreatePermissionPostCreateSys_WITH_AccessorID_GrantorID_IsWithGrant_PostCreateIsWithGrant_PostCreateSysPermissionID == null) {
+         // the database does not support a single statement upsert, so update and add the permissions in two batches
+         updateDomainCreatePostCreateSysPermissions(connection,
+                                                    accessorResource,
+                                                    grantorResource,
+                                                    domainCreatePermissionsToUpdate);
+         addDomainCreatePostCreateSysPermissions(connection,
+                                                 accessorResource,
+                                                 grantorResource,
+                                                 domainCreatePermissionsToAdd);
+         return;
+      }
+
+      final Set<DomainCreatePermission> upsertedDomainCreatePermissions = new HashSet<>(domainCreatePermissionsToAdd);
+      upsertedDomainCreatePermissions.addAll(domainCreatePermissionsToUpdate);
+
+      SQLStatement statement = null;
+
+      try {
+         statement = connection.prepareStatement(sqlStrings.SQL_upsertInGrantDomainCreatePermissionPostCreateSys_WITH_AccessorID_GrantorID_IsWithGrant_PostCreateIsWithGrant_PostCreateSysPermissionID);
+         for (DomainCreatePermission domainCreatePermission : upsertedDomainCreatePermissions) {
+            if (!domainCreatePermission.isSystemPermission()
+                  && domainCreatePermission.getPostCreateDomainPermission().isSystemPermission()) {
+               statement.setResourceId(1, accessorResource);
+               statement.setResourceId(2, grantorResource);
+               statement.setBoolean(3, domainCreatePermission.isWithGrantOption());
+               statement.setBoolean(4, domainCreatePermission.getPostCreateDomainPermission().isWithGrantOption());
+               statement.setDomainSystemPermissionId(5, domainCreatePermission.getPostCreateDomainPermission().getSystemPermissionId());
+
+               statement.addBatch();
             }
          }
+         assertOneRowUpsertedPerBatchEntry(statement.executeBatch());
       }
       catch (SQLException e) {
          throw new RuntimeException(e);
@@ -98,9 +98,10 @@ public abstract class CommonGrantDomainCreatePermissionSysPersister extends Pers
                statement.setBoolean(3, domainCreatePermission.isWithGrantOption());
                statement.setDomainCreateSystemPermissionId(4, domainCreatePermission.getSystemPermissionId());
 
-               assertOneRowInserted(statement.executeUpdate());
+               statement.addBatch();
             }
          }
+         assertOneRowInsertedPerBatchEntry(statement.executeBatch());
       }
       catch (SQLException e) {
          throw new RuntimeException(e);
@@ -126,9 +127,56 @@ public abstract class CommonGrantDomainCreatePermissionSysPersister extends Pers
                statement.setResourceId(3, accessorResource);
                statement.setDomainCreateSystemPermissionId(4, domainCreatePermission.getSystemPermissionId());
 
-               assertOneRowUpdated(statement.executeUpdate());
+               statement.addBatch();
             }
          }
+         assertOneRowUpdatedPerBatchEntry(statement.executeBatch());
+      }
+      catch (SQLException e) {
+         throw new RuntimeException(e);
+      }
+      finally {
+         closeStatement(statement);
+      }
+   }
+
+   @Override
+   public void addOrUpdateDomainCreateSysPermissions(SQLConnection connection,
+                                                     Resource accessorResource,
+                                                     Resource grantorResource,
+                                                     Set<DomainCreatePermission> domainCreatePermissionsToAdd,
+                                                     Set<DomainCreatePermission> domainCreatePermissionsToUpdate) {
+      if (sqlStrings.SQL_upsertInGrantDomainCreatePermissionSys_WITH_AccessorID_GrantorID_IsWithGrant_SysPermissionID == null) {
+         // the database does not support a single statement upsert, so update and add the permissions in two batches
+         updateDomainCreateSysPermissions(connection,
+                                          accessorResource,
+                                          grantorResource,
+                                          domainCreatePermissionsToUpdate);
+         addDomainCreateSysPermissions(connection,
+                                       accessorResource,
+                                       grantorResource,
+                                       domainCreatePermissionsToAdd);
+         return;
+      }
+
+      final Set<DomainCreatePermission> upsertedDomainCreatePermissions = new HashSet<>(domainCreatePermissionsToAdd);
+      upsertedDomainCreatePermissions.addAll(domainCreatePermissionsToUpdate);
+
+      SQLStatement statement = null;
+
+      try {
+         statement = connection.prepareStatement(sqlStrings.SQL_upsertInGrantDomainCreatePermissionSys_WITH_AccessorID_GrantorID_IsWithGrant_SysPermissionID);
+         for (DomainCreatePermission domainCreatePermission : upsertedDomainCreatePermissions) {
+            if (domainCreatePermission.isSystemPermission()) {
+               statement.setResourceId(1, accessorResource);
+               statement.setResourceId(2, grantorResource);
+               statement.setBoolean(3, domainCreatePermission.isWithGrantOption());
+               statement.setDomainCreateSystemPermissionId(4, domainCreatePermission.getSystemPermissionId());
+
+               statement.addBatch();
+            }
+         }
+         assertOneRowUpsertedPerBatchEntry(statement.executeBatch());
       }
       catch (SQLException e) {
          throw new RuntimeException(e);
@@ -156,6 +204,27 @@ public abstract class CommonGrantDomainCreatePermissionSysPersister extends Pers
       }
    }
 
+   @Override
+   public void removeDomainCreateSysPermissions(SQLConnection connection,
+                                                Set<Resource> accessorResources) {
+      SQLStatement statement = null;
+
+      try {
+         statement = connection.prepareStatement(sqlStrings.SQL_removeInGrantDomainCreatePermissionSys_BY_AccessorID);
+         for (Resource accessorResource : accessorResources) {
+            statement.setResourceId(1, accessorResource);
+            statement.addBatch();
+         }
+         statement.executeBatch();
+      }
+      catch (SQLException e) {
+         throw new RuntimeException(e);
+      }
+      finally {
+         closeStatement(statement);
+      }
+   }
+
    @Override
    public void removeDomainCreateSysPermissions(SQLConnection connection,
                                                 Resource accessorResource,
@@ -164,8 +164,9 @@ public abstract class CommonGrantDomainPermissionSysPersister extends Persister
             statement.setBoolean(4, domainPermission.isWithGrantOption());
             statement.setDomainSystemPermissionId(5, domainPermission.getSystemPermissionId());
 
-            assertOneRowInserted(statement.executeUpdate());
+            statement.addBatch();
          }
+         assertOneRowInsertedPerBatchEntry(statement.executeBatch());
       }
       catch (SQLException e) {
          throw new RuntimeException(e);
@@ -193,8 +194,58 @@ public abstract class CommonGrantDomainPermissionSysPersister extends Persister
             statement.setResourceDomainId(4, resourceDomainId);
             statement.setDomainSystemPermissionId(5, domainPermission.getSystemPermissionId());
 
-            assertOneRowUpdated(statement.executeUpdate());
+            statement.addBatch();
+         }
+         assertOneRowUpdatedPerBatchEntry(statement.executeBatch());
+      }
+      catch (SQLException e) {
+         throw new RuntimeException(e);
+      }
+      finally {
+         closeStatement(statement);
+      }
+   }
+
+   @Override
+   public void addOrUpdateDomainSysPermissions(SQLConnection connection,
+                                               Resource accessorResource,
+                                               Resource grantorResource,
+                                               Id<DomainId> resourceDomainId,
+                                               Set<DomainPermission> domainPermissionsToAdd,
+                                               Set<DomainPermission> domainPermissionsToUpdate) {
+      if (sqlStrings.SQL_upsertInGrantDomainPermissionSys_WITH_AccessorID_GrantorID_AccessedDomainID_IsWithGrant_SysPermissionID == null) {
+         // the database does not support a single statement upsert, so update and add the permissions in two batches
+         updateDomainSysPermissions(connection,
+                                    accessorResource,
+                                    grantorResource,
+                                    resourceDomainId,
+                                    domainPermissionsToUpdate);
+         addDomainSysPermissions(connection,
+                                 accessorResource,
+                                 grantorResource,
+                                 resourceDomainId,
+                                 domainPermissionsToAdd);
+         return;
+      }
+
+      final Set<DomainPermission> upsertedDomainPermissions = new HashSet<>(domainPermissionsToAdd);
+      upsertedDomainPermissions.addAll(domainPermissionsToUpdate);
+
+      SQLStatement statement = null;
+
+      try {
+         statement = connection.prepareStatement(sqlStrings.SQL_upsertInGrantDomainPermissionSys_WITH_AccessorID_GrantorID_AccessedDomainID_IsWithGrant_SysPermissionID);
+
+         for (DomainPermission domainPermission : upsertedDomainPermissions) {
+            statement.setResourceId(1, accessorResource);
+            statement.setResourceId(2, grantorResource);
+            statement.setResourceDomainId(3, resourceDomainId);
+            statement.setBoolean(4, domainPermission.isWithGrantOption());
+            statement.setDomainSystemPermissionId(5, domainPermission.getSystemPermissionId());
+
+            statement.addBatch();
          }
+         assertOneRowUpsertedPerBatchEntry(statement.executeBatch());
       }
       catch (SQLException e) {
          throw new RuntimeException(e);
@@ -222,6 +273,27 @@ public abstract class CommonGrantDomainPermissionSysPersister extends Persister
       }
    }
 
+   @Override
+   public void removeAllDomainSysPermissions(SQLConnection connection,
+                                             Set<Resource> accessorResources) {
+      SQLStatement statement = null;
+
+      try {
+         statement = connection.prepareStatement(sqlStrings.SQL_removeInGrantDomainPermissionSys_BY_AccessorID);
+         for (Resource accessorResource : accessorResources) {
+            statement.setResourceId(1, accessorResource);
+            statement.addBatch();
+         }
+         statement.executeBatch();
+      }
+      catch (SQLException e) {
+         throw new RuntimeException(e);
+      }
+      finally {
+         closeStatement(statement);
+      }
+   }
+
    @Override
    public abstract void removeAllDomainSysPermissions(SQLConnection connection, Id<DomainId> domainId) ;
 
@@ -179,9 +179,10 @@ public abstract class CommonGrantGlobalResourcePermissionPersister extends Persi
                statement.setResourceClassId(5, accessedResourceClassId);
                statement.setString(6, resourcePermission.getPermissionName());
 
-               assertOneRowInserted(statement.executeUpdate());
+               statement.addBatch();
             }
          }
+         assertOneRowInsertedPerBatchEntry(statement.executeBatch());
       }
       catch (SQLException e) {
          throw new RuntimeException(e);
@@ -211,9 +212,64 @@ public abstract class CommonGrantGlobalResourcePermissionPersister extends Persi
                statement.setResourceClassId(5, accessedResourceClassId);
                statement.setString(6, resourcePermission.getPermissionName());
 
-               assertOneRowUpdated(statement.executeUpdate());
+               statement.addBatch();
+            }
+         }
+         assertOneRowUpdatedPerBatchEntry(statement.executeBatch());
+      }
+      catch (SQLException e) {
+         throw new RuntimeException(e);
+      }
+      finally {
+         closeStatement(statement);
+      }
+   }
+
+   @Override
+   public void addOrUpdateGlobalResourcePermissions(SQLConnection connection,
+                                                    Resource accessorResource,
+                                                    Id<ResourceClassId> accessedResourceClassId,
+                                                    Id<DomainId> accessedResourceDomainId,
+                                                    Set<ResourcePermission> resourcePermissionsToAdd,
+                                                    Set<ResourcePermission> resourcePermissionsToUpdate,
+                                                    Resource grantorResource) {
+      if (sqlStrings.SQL_upsertInGrantGlobalResourcePermission_WITH_AccessorID_GrantorID_AccessedDomainID_IsWithGrant_ResourceClassID_PermissionName == null) {
+         // the database does not support a single statement upsert, so update and add the permissions in two batches
+         updateGlobalResourcePermissions(connection,
+                                         accessorResource,
+                                         accessedResourceClassId,
+                                         accessedResourceDomainId,
+                                         resourcePermissionsToUpdate,
+                                         grantorResource);
+         addGlobalResourcePermissions(connection,
+                                      accessorResource,
+                                      accessedResourceClassId,
+                                      accessedResourceDomainId,
+                                      resourcePermissionsToAdd,
+                                      grantorResource);
+         return;
+      }
+
+      final Set<ResourcePermission> upsertedResourcePermissions = new HashSet<>(resourcePermissionsToAdd);
+      upsertedResourcePermissions.addAll(resourcePermissionsToUpdate);
+
+      SQLStatement statement = null;
+      try {
+         // add the new non-system permissions
+         statement = connection.prepareStatement(sqlStrings.SQL_upsertInGrantGlobalResourcePermission_WITH_AccessorID_GrantorID_AccessedDomainID_IsWithGrant_ResourceClassID_PermissionName);
+         for (ResourcePermission resourcePermission : upsertedResourcePermissions) {
+            if (!resourcePermission.isSystemPermission()) {
+               statement.setResourceId(1, accessorResource);
+               statement.setResourceId(2, grantorResource);
+               statement.setResourceDomainId(3, accessedResourceDomainId);
+               statement.setBoolean(4, resourcePermission.isWithGrantOption());
+               statement.setResourceClassId(5, accessedResourceClassId);
+               statement.setString(6, resourcePermission.getPermissionName());
+
+               statement.addBatch();
             }
          }
+         assertOneRowUpsertedPerBatchEntry(statement.executeBatch());
       }
       catch (SQLException e) {
          throw new RuntimeException(e);
@@ -242,6 +298,28 @@ public abstract class CommonGrantGlobalResourcePermissionPersister extends Persi
       }
    }
 
+   @Override
+   public void removeAllGlobalResourcePermissions(SQLConnection connection,
+                                                  Set<Resource> accessorResources) {
+
+      SQLStatement statement = null;
+      try {
+         // revoke any existing non-system permissions this accessor has to any domain + resource class
+         statement = connection.prepareStatement(sqlStrings.SQL_removeInGrantGlobalResourcePermission_BY_AccessorID);
+         for (Resource accessorResource : accessorResources) {
+            statement.setResourceId(1, accessorResource);
+            statement.addBatch();
+         }
+         statement.executeBatch();
+      }
+      catch (SQLException e) {
+         throw new RuntimeException(e);
+      }
+      finally {
+         closeStatement(statement);
+      }
+   }
+
    @Override
    public abstract void removeAllGlobalResourcePermissions(SQLConnection connection,
                                                            Id<DomainId> accessedDomainId);
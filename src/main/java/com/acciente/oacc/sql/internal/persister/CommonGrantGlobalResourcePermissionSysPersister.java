@@ -176,9 +176,10 @@ public abstract class CommonGrantGlobalResourcePermissionSysPersister extends Pe
                statement.setResourceClassId(5, accessedResourceClassId);
                statement.setResourceSystemPermissionId(6, resourcePermission.getSystemPermissionId());
 
-               assertOneRowInserted(statement.executeUpdate());
+               statement.addBatch();
             }
          }
+         assertOneRowInsertedPerBatchEntry(statement.executeBatch());
       }
       catch (SQLException e) {
          throw new RuntimeException(e);
@@ -208,9 +209,64 @@ public abstract class CommonGrantGlobalResourcePermissionSysPersister extends Pe
                statement.setResourceClassId(5, accessedResourceClassId);
                statement.setResourceSystemPermissionId(6, resourcePermission.getSystemPermissionId());
 
-               assertOneRowUpdated(statement.executeUpdate());
+               statement.addBatch();
+            }
+         }
+         assertOneRowUpdatedPerBatchEntry(statement.executeBatch());
+      }
+      catch (SQLException e) {
+         throw new RuntimeException(e);
+      }
+      finally {
+         closeStatement(statement);
+      }
+   }
+
+   @Override
+   public void addOrUpdateGlobalSysPermissions(SQLConnection connection,
+                                               Resource accessorResource,
+                                               Id<ResourceClassId> accessedResourceClassId,
+                                               Id<DomainId> accessedResourceDomainId,
+                                               Set<ResourcePermission> resourcePermissionsToAdd,
+                                               Set<ResourcePermission> resourcePermissionsToUpdate,
+                                               Resource grantorResource) {
+      if (sqlStrings.SQL_upsertInGrantGlobalResourcePermissionSys_WITH_AccessorID_GrantorID_AccessedDomainID_IsWithGrant_ResourceClassID_SysPermissionID == null) {
+         // the database does not support a single statement upsert, so update and add the permissions in two batches
+         updateGlobalSysPermissions(connection,
+                                    accessorResource,
+                                    accessedResourceClassId,
+                                    accessedResourceDomainId,
+                                    resourcePermissionsToUpdate,
+                                    grantorResource);
+         addGlobalSysPermissions(connection,
+                                 accessorResource,
+                                 accessedResourceClassId,
+                                 accessedResourceDomainId,
+                                 resourcePermissionsToAdd,
+                                 grantorResource);
+         return;
+      }
+
+      final Set<ResourcePermission> upsertedResourcePermissions = new HashSet<>(resourcePermissionsToAdd);
+      upsertedResourcePermissions.addAll(resourcePermissionsToUpdate);
+
+      SQLStatement statement = null;
+      try {
+         // add the new system permissions
+         statement = connection.prepareStatement(sqlStrings.SQL_upsertInGrantGlobalResourcePermissionSys_WITH_AccessorID_GrantorID_AccessedDomainID_IsWithGrant_ResourceClassID_SysPermissionID);
+         for (ResourcePermission resourcePermission : upsertedResourcePermissions) {
+            if (resourcePermission.isSystemPermission()) {
+               statement.setResourceId(1, accessorResource);
+               statement.setResourceId(2, grantorResource);
+               statement.setResourceDomainId(3, accessedResourceDomainId);
+               statement.setBoolean(4, resourcePermission.isWithGrantOption());
+               statement.setResourceClassId(5, accessedResourceClassId);
+               statement.setResourceSystemPermissionId(6, resourcePermission.getSystemPermissionId());
+
+               statement.addBatch();
             }
          }
+         assertOneRowUpsertedPerBatchEntry(statement.executeBatch());
       }
       catch (SQLException e) {
          throw new RuntimeException(e);
@@ -239,6 +295,28 @@ public abstract class CommonGrantGlobalResourcePermissionSysPersister extends Pe
       }
    }
 
+   @Override
+   public void removeAllGlobalSysPermissions(SQLConnection connection,
+                                             Set<Resource> accessorResources) {
+
+      SQLStatement statement = null;
+      try {
+         // revoke any existing system permissions this accessor has to any domain + resource class
+         statement = connection.prepareStatement(sqlStrings.SQL_removeInGrantGlobalResourcePermissionSys_BY_AccessorID);
+         for (Resource accessorResource : accessorResources) {
+            statement.setResourceId(1, accessorResource);
+            statement.addBatch();
+         }
+         statement.executeBatch();
+      }
+      catch (SQLException e) {
+         throw new RuntimeException(e);
+      }
+      finally {
+         closeStatement(statement);
+      }
+   }
+
    @Override
    public abstract void removeAllGlobalSysPermissions(SQLConnection connection,
                                                       Id<DomainId> accessedDomainId);
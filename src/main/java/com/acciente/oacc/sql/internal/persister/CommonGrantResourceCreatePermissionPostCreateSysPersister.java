@@ -177,9 +177,10 @@ public abstract class CommonGrantResourceCreatePermissionPostCreateSysPersister
                statement.setResourceClassId(6, accessedResourceClassId);
                statement.setResourceSystemPermissionId(7, resourceCreatePermission.getPostCreateResourcePermission().getSystemPermissionId());
 
-               assertOneRowInserted(statement.executeUpdate());
+               statement.addBatch();
             }
          }
+         assertOneRowInsertedPerBatchEntry(statement.executeBatch());
       }
       catch (SQLException e) {
          throw new RuntimeException(e);
@@ -211,9 +212,66 @@ public abstract class CommonGrantResourceCreatePermissionPostCreateSysPersister
                statement.setResourceClassId(6, accessedResourceClassId);
                statement.setResourceSystemPermissionId(7, resourceCreatePermission.getPostCreateResourcePermission().getSystemPermissionId());
 
-               assertOneRowUpdated(statement.executeUpdate());
+               statement.addBatch();
             }
          }
+         assertOneRowUpdatedPerBatchEntry(statement.executeBatch());
+      }
+      catch (SQLException e) {
+         throw new RuntimeException(e);
+      }
+      finally {
+         closeStatement(statement);
+      }
+   }
+
+   @Override
+   public void addOrUpdateResourceCreatePostCreateSysPermissions(SQLConnection connection,
+                                                                 Resource accessorResource,
+                                                                 Id<ResourceClassId> accessedResourceClassId,
+                                                                 Id<DomainId> accessedResourceDomainId,
+                                                                 Set<ResourceCreatePermission> resourceCreatePermissionsToAdd,
+                                                                 Set<ResourceCreatePermission> resourceCreatePermissionsToUpdate,
+                                                                 Resource grantorResource) {
+      if (sqlStrings.SQL_upsertInGrantResourceCreatePermissionPostCreateSys_WITH_AccessorID_GrantorID_AccessedDomainID_IsWithGrant_PostCreateIsWithGrant_ResourceClassID_PostCreateSysPermissionID == null) {
+         // the database does not support a single statement upsert, so update and add the permissions in two batches
+         updateResourceCreatePostCreateSysPermissions(connection,
+                                                      accessorResource,
+                                                      accessedResourceClassId,
+                                                      accessedResourceDomainId,
+                                                      resourceCreatePermissionsToUpdate,
+                                                      grantorResource);
+         addResourceCreatePostCreateSysPermissions(connection,
+                                                   accessorResource,
+                                                   accessedResourceClassId,
+                                                   accessedResourceDomainId,
+                                                   resourceCreatePermissionsToAdd,
+                                                   grantorResource);
+         return;
+      }
+
+      final Set<ResourceCreatePermission> upsertedResourceCreatePermissions = new HashSet<>(resourceCreatePermissionsToAdd);
+      upsertedResourceCreatePermissions.addAll(resourceCreatePermissionsToUpdate);
+
+      SQLStatement statement = null;
+      try {
+         // add the new post-create system permissions
+         statement = connection.prepareStatement(sqlStrings.SQL_upsertInGrantResourceCreatePermissionPostCreateSys_WITH_AccessorID_GrantorID_AccessedDomainID_IsWithGrant_PostCreateIsWithGrant_ResourceClassID_PostCreateSysPermissionID);
+         for (ResourceCreatePermission resourceCreatePermission : upsertedResourceCreatePermissions) {
+            if (!resourceCreatePermission.isSystemPermission()
+                  && resourceCreatePermission.getPostCreateResourcePermission().isSystemPermission()) {
+               statement.setResourceId(1, accessorResource);
+               statement.setResourceId(2, grantorResource);
+               statement.setResourceDomainId(3, accessedResourceDomainId);
+               statement.setBoolean(4, resourceCreatePermission.isWithGrantOption());
+               statement.setBoolean(5, resourceCreatePermission.getPostCreateResourcePermission().isWithGrantOption());
+               statement.setResourceClassId(6, accessedResourceClassId);
+               statement.setResourceSystemPermissionId(7, resourceCreatePermission.getPostCreateResourcePermission().getSystemPermissionId());
+
+               statement.addBatch();
+            }
+         }
+         assertOneRowUpsertedPerBatchEntry(statement.executeBatch());
       }
       catch (SQLException e) {
          throw new RuntimeException(e);
@@ -241,6 +299,27 @@ public abstract class CommonGrantResourceCreatePermissionPostCreateSysPersister
       }
    }
 
+   @Override
+   public void removeAllResourceCreatePostCreateSysPermissions(SQLConnection connection,
+                                                               Set<Resource> accessorResources) {
+      SQLStatement statement = null;
+      try {
+         // revoke any existing post-create system permissions this accessor has to any domain + resource class
+         statement = connection.prepareStatement(sqlStrings.SQL_removeInGrantResourceCreatePermissionPostCreateSys_BY_AccessorID);
+         for (Resource accessorResource : accessorResources) {
+            statement.setResourceId(1, accessorResource);
+            statement.addBatch();
+         }
+         statement.executeBatch();
+      }
+      catch (SQLException e) {
+         throw new RuntimeException(e);
+      }
+      finally {
+         closeStatement(statement);
+      }
+   }
+
    @Override
    public abstract void removeAllResourceCreatePostCreateSysPermissions(SQLConnection connection,
                                                                         Id<DomainId> accessedDomainId);
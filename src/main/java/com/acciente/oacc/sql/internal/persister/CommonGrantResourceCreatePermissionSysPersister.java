@@ -164,9 +164,10 @@ public abstract class CommonGrantResourceCreatePermissionSysPersister extends Pe
                statement.setResourceClassId(5, accessedResourceClassId);
                statement.setResourceCreateSystemPermissionId(6, resourceCreatePermission.getSystemPermissionId());
 
-               assertOneRowInserted(statement.executeUpdate());
+               statement.addBatch();
             }
          }
+         assertOneRowInsertedPerBatchEntry(statement.executeBatch());
       }
       catch (SQLException e) {
          throw new RuntimeException(e);
@@ -196,9 +197,64 @@ public abstract class CommonGrantResourceCreatePermissionSysPersister extends Pe
                statement.setResourceClassId(5, accessedResourceClassId);
                statement.setResourceCreateSystemPermissionId(6, resourceCreatePermission.getSystemPermissionId());
 
-               assertOneRowUpdated(statement.executeUpdate());
+               statement.addBatch();
             }
          }
+         assertOneRowUpdatedPerBatchEntry(statement.executeBatch());
+      }
+      catch (SQLException e) {
+         throw new RuntimeException(e);
+      }
+      finally {
+         closeStatement(statement);
+      }
+   }
+
+   @Override
+   public void addOrUpdateResourceCreateSysPermissions(SQLConnection connection,
+                                                       Resource accessorResource,
+                                                       Id<ResourceClassId> accessedResourceClassId,
+                                                       Id<DomainId> accessedResourceDomainId,
+                                                       Set<ResourceCreatePermission> resourceCreatePermissionsToAdd,
+                                                       Set<ResourceCreatePermission> resourceCreatePermissionsToUpdate,
+                                                       Resource grantorResource) {
+      if (sqlStrings.SQL_upsertInGrantResourceCreatePermissionSys_WITH_AccessorID_GrantorID_AccessedDomainID_IsWithGrant_ResourceClassID_SysPermissionId == null) {
+         // the database does not support a single statement upsert, so update and add the permissions in two batches
+         updateResourceCreateSysPermissions(connection,
+                                            accessorResource,
+                                            accessedResourceClassId,
+                                            accessedResourceDomainId,
+                                            resourceCreatePermissionsToUpdate,
+                                            grantorResource);
+         addResourceCreateSysPermissions(connection,
+                                         accessorResource,
+                                         accessedResourceClassId,
+                                         accessedResourceDomainId,
+                                         resourceCreatePermissionsToAdd,
+                                         grantorResource);
+         return;
+      }
+
+      final Set<ResourceCreatePermission> upsertedResourceCreatePermissions = new HashSet<>(resourceCreatePermissionsToAdd);
+      upsertedResourceCreatePermissions.addAll(resourceCreatePermissionsToUpdate);
+
+      SQLStatement statement = null;
+      try {
+         // add the new create system permissions
+         statement = connection.prepareStatement(sqlStrings.SQL_upsertInGrantResourceCreatePermissionSys_WITH_AccessorID_GrantorID_AccessedDomainID_IsWithGrant_ResourceClassID_SysPermissionId);
+         for (ResourceCreatePermission resourceCreatePermission : upsertedResourceCreatePermissions) {
+            if (resourceCreatePermission.isSystemPermission()) {
+               statement.setResourceId(1, accessorResource);
+               statement.setResourceId(2, grantorResource);
+               statement.setResourceDomainId(3, accessedResourceDomainId);
+               statement.setBoolean(4, resourceCreatePermission.isWithGrantOption());
+               statement.setResourceClassId(5, accessedResourceClassId);
+               statement.setResourceCreateSystemPermissionId(6, resourceCreatePermission.getSystemPermissionId());
+
+               statement.addBatch();
+            }
+         }
+         assertOneRowUpsertedPerBatchEntry(statement.executeBatch());
       }
       catch (SQLException e) {
          throw new RuntimeException(e);
@@ -226,6 +282,27 @@ public abstract class CommonGrantResourceCreatePermissionSysPersister extends Pe
       }
    }
 
+   @Override
+   public void removeAllResourceCreateSysPermissions(SQLConnection connection,
+                                                     Set<Resource> accessorResources) {
+      SQLStatement statement = null;
+      try {
+         // revoke any existing create system permissions this accessor has to any domain + resource class
+         statement = connection.prepareStatement(sqlStrings.SQL_removeInGrantResourceCreatePermissionSys_BY_AccessorID);
+         for (Resource accessorResource : accessorResources) {
+            statement.setResourceId(1, accessorResource);
+            statement.addBatch();
+         }
+         statement.executeBatch();
+      }
+      catch (SQLException e) {
+         throw new RuntimeException(e);
+      }
+      finally {
+         closeStatement(statement);
+      }
+   }
+
    @Override
    public abstract void removeAllResourceCreateSysPermissions(SQLConnection connection,
                                                               Id<DomainId> accessedDomainId);
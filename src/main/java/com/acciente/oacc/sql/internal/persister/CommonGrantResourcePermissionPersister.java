@@ -160,9 +160,44 @@ public abstract class CommonGrantResourcePermissionPersister extends Persister i
                statement.setResourceClassId(5, accessedResourceClassId);
                statement.setString(6, resourcePermission.getPermissionName());
 
-               assertOneRowInserted(statement.executeUpdate());
+               statement.addBatch();
             }
          }
+         assertOneRowInsertedPerBatchEntry(statement.executeBatch());
+      }
+      catch (SQLException e) {
+         throw new RuntimeException(e);
+      }
+      finally {
+         closeStatement(statement);
+      }
+   }
+
+   @Override
+   public void addResourcePermissions(SQLConnection connection,
+                                      Resource accessorResource,
+                                      Set<Resource> accessedResources,
+                                      Id<ResourceClassId> accessedResourceClassId,
+                                      Set<ResourcePermission> requestedResourcePermissions,
+                                      Resource grantorResource) {
+      SQLStatement statement = null;
+      try {
+         statement = connection.prepareStatement(sqlStrings.SQL_createInGrantResourcePermission_WITH_AccessorID_GrantorID_AccessedID_IsWithGrant_ResourceClassID_PermissionName);
+         for (Resource accessedResource : accessedResources) {
+            for (ResourcePermission resourcePermission : requestedResourcePermissions) {
+               if (!resourcePermission.isSystemPermission()) {
+                  statement.setResourceId(1, accessorResource);
+                  statement.setResourceId(2, grantorResource);
+                  statement.setResourceId(3, accessedResource);
+                  statement.setBoolean(4, resourcePermission.isWithGrantOption());
+                  statement.setResourceClassId(5, accessedResourceClassId);
+                  statement.setString(6, resourcePermission.getPermissionName());
+
+                  statement.addBatch();
+               }
+            }
+         }
+         assertOneRowInsertedPerBatchEntry(statement.executeBatch());
       }
       catch (SQLException e) {
          throw new RuntimeException(e);
@@ -191,9 +226,63 @@ public abstract class CommonGrantResourcePermissionPersister extends Persister i
                statement.setResourceClassId(5, accessedResourceClassId);
                statement.setString(6, resourcePermission.getPermissionName());
 
-               assertOneRowUpdated(statement.executeUpdate());
+               statement.addBatch();
+            }
+         }
+         assertOneRowUpdatedPerBatchEntry(statement.executeBatch());
+      }
+      catch (SQLException e) {
+         throw new RuntimeException(e);
+      }
+      finally {
+         closeStatement(statement);
+      }
+   }
+
+   @Override
+   public void addOrUpdateResourcePermissions(SQLConnection connection,
+                                              Resource accessorResource,
+                                              Resource accessedResource,
+                                              Id<ResourceClassId> accessedResourceClassId,
+                                              Set<ResourcePermission> resourcePermissionsToAdd,
+                                              Set<ResourcePermission> resourcePermissionsToUpdate,
+                                              Resource grantorResource) {
+      if (sqlStrings.SQL_upsertInGrantResourcePermission_WITH_AccessorID_GrantorID_AccessedID_IsWithGrant_ResourceClassID_PermissionName == null) {
+         // the database does not support a single statement upsert, so update and add the permissions in two batches
+         updateResourcePermissions(connection,
+                                   accessorResource,
+                                   accessedResource,
+                                   accessedResourceClassId,
+                                   resourcePermissionsToUpdate,
+                                   grantorResource);
+         addResourcePermissions(connection,
+                                accessorResource,
+                                accessedResource,
+                                accessedResourceClassId,
+                                resourcePermissionsToAdd,
+                                grantorResource);
+         return;
+      }
+
+      final Set<ResourcePermission> upsertedResourcePermissions = new HashSet<>(resourcePermissionsToAdd);
+      upsertedResourcePermissions.addAll(resourcePermissionsToUpdate);
+
+      SQLStatement statement = null;
+      try {
+         statement = connection.prepareStatement(sqlStrings.SQL_upsertInGrantResourcePermission_WITH_AccessorID_GrantorID_AccessedID_IsWithGrant_ResourceClassID_PermissionName);
+         for (ResourcePermission resourcePermission : upsertedResourcePermissions) {
+            if (!resourcePermission.isSystemPermission()) {
+               statement.setResourceId(1, accessorResource);
+               statement.setResourceId(2, grantorResource);
+               statement.setResourceId(3, accessedResource);
+               statement.setBoolean(4, resourcePermission.isWithGrantOption());
+               statement.setResourceClassId(5, accessedResourceClassId);
+               statement.setString(6, resourcePermission.getPermissionName());
+
+               statement.addBatch();
             }
          }
+         assertOneRowUpsertedPerBatchEntry(statement.executeBatch());
       }
       catch (SQLException e) {
          throw new RuntimeException(e);
@@ -221,6 +310,27 @@ public abstract class CommonGrantResourcePermissionPersister extends Persister i
       }
    }
 
+   @Override
+   public void removeAllResourcePermissionsAsAccessorOrAccessed(SQLConnection connection,
+                                                                Set<Resource> resources) {
+      SQLStatement statement = null;
+      try {
+         statement = connection.prepareStatement(sqlStrings.SQL_removeInGrantResourcePermission_BY_AccessorID_OR_AccessedID);
+         for (Resource resource : resources) {
+            statement.setResourceId(1, resource);
+            statement.setResourceId(2, resource);
+            statement.addBatch();
+         }
+         statement.executeBatch();
+      }
+      catch (SQLException e) {
+         throw new RuntimeException(e);
+      }
+      finally {
+         closeStatement(statement);
+      }
+   }
+
    @Override
    public void removeResourcePermissions(SQLConnection connection,
                                          Resource accessorResource,
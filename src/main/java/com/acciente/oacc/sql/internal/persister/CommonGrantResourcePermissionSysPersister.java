@@ -158,9 +158,45 @@ public abstract class CommonGrantResourcePermissionSysPersister extends Persiste
                statement.setResourceClassId(5, accessedResourceClassId);
                statement.setResourceSystemPermissionId(6, resourcePermission.getSystemPermissionId());
 
-               assertOneRowInserted(statement.executeUpdate());
+               statement.addBatch();
             }
          }
+         assertOneRowInsertedPerBatchEntry(statement.executeBatch());
+      }
+      catch (SQLException e) {
+         throw new RuntimeException(e);
+      }
+      finally {
+         closeStatement(statement);
+      }
+   }
+
+   @Override
+   public void addResourceSysPermissions(SQLConnection connection,
+                                         Resource accessorResource,
+                                         Set<Resource> accessedResources,
+                                         Id<ResourceClassId> accessedResourceClassId,
+                                         Set<ResourcePermission> requestedResourcePermissions,
+                                         Resource grantorResource) {
+      SQLStatement statement = null;
+      try {
+         // add the new system permissions
+         statement = connection.prepareStatement(sqlStrings.SQL_createInGrantResourcePermissionSys_WITH_AccessorID_GrantorID_AccessedID_IsWithGrant_ResourceClassID_SysPermissionID);
+         for (Resource accessedResource : accessedResources) {
+            for (ResourcePermission resourcePermission : requestedResourcePermissions) {
+               if (resourcePermission.isSystemPermission()) {
+                  statement.setResourceId(1, accessorResource);
+                  statement.setResourceId(2, grantorResource);
+                  statement.setResourceId(3, accessedResource);
+                  statement.setBoolean(4, resourcePermission.isWithGrantOption());
+                  statement.setResourceClassId(5, accessedResourceClassId);
+                  statement.setResourceSystemPermissionId(6, resourcePermission.getSystemPermissionId());
+
+                  statement.addBatch();
+               }
+            }
+         }
+         assertOneRowInsertedPerBatchEntry(statement.executeBatch());
       }
       catch (SQLException e) {
          throw new RuntimeException(e);
@@ -190,9 +226,64 @@ public abstract class CommonGrantResourcePermissionSysPersister extends Persiste
                statement.setResourceClassId(5, accessedResourceClassId);
                statement.setResourceSystemPermissionId(6, resourcePermission.getSystemPermissionId());
 
-               assertOneRowUpdated(statement.executeUpdate());
+               statement.addBatch();
+            }
+         }
+         assertOneRowUpdatedPerBatchEntry(statement.executeBatch());
+      }
+      catch (SQLException e) {
+         throw new RuntimeException(e);
+      }
+      finally {
+         closeStatement(statement);
+      }
+   }
+
+   @Override
+   public void addOrUpdateResourceSysPermissions(SQLConnection connection,
+                                                 Resource accessorResource,
+                                                 Resource accessedResource,
+                                                 Id<ResourceClassId> accessedResourceClassId,
+                                                 Set<ResourcePermission> resourcePermissionsToAdd,
+                                                 Set<ResourcePermission> resourcePermissionsToUpdate,
+                                                 Resource grantorResource) {
+      if (sqlStrings.SQL_upsertInGrantResourcePermissionSys_WITH_AccessorID_GrantorID_AccessedID_IsWithGrant_ResourceClassID_SysPermissionID == null) {
+         // the database does not support a single statement upsert, so update and add the permissions in two batches
+         updateResourceSysPermissions(connection,
+                                      accessorResource,
+                                      accessedResource,
+                                      accessedResourceClassId,
+                                      resourcePermissionsToUpdate,
+                                      grantorResource);
+         addResourceSysPermissions(connection,
+                                   accessorResource,
+                                   accessedResource,
+                                   accessedResourceClassId,
+                                   resourcePermissionsToAdd,
+                                   grantorResource);
+         return;
+      }
+
+      final Set<ResourcePermission> upsertedResourcePermissions = new HashSet<>(resourcePermissionsToAdd);
+      upsertedResourcePermissions.addAll(resourcePermissionsToUpdate);
+
+      SQLStatement statement = null;
+      try {
+         // add the new system permissions
+         statement = connection.prepareStatement(sqlStrings.SQL_upsertInGrantResourcePermissionSys_WITH_AccessorID_GrantorID_AccessedID_IsWithGrant_ResourceClassID_SysPermissionID);
+         for (ResourcePermission resourcePermission : upsertedResourcePermissions) {
+            if (resourcePermission.isSystemPermission()) {
+               statement.setResourceId(1, accessorResource);
+               statement.setResourceId(2, grantorResource);
+               statement.setResourceId(3, accessedResource);
+               statement.setBoolean(4, resourcePermission.isWithGrantOption());
+               statement.setResourceClassId(5, accessedResourceClassId);
+               statement.setResourceSystemPermissionId(6, resourcePermission.getSystemPermissionId());
+
+               statement.addBatch();
             }
          }
+         assertOneRowUpsertedPerBatchEntry(statement.executeBatch());
       }
       catch (SQLException e) {
          throw new RuntimeException(e);
@@ -220,6 +311,27 @@ public abstract class CommonGrantResourcePermissionSysPersister extends Persiste
       }
    }
 
+   @Override
+   public void removeAllResourceSysPermissionsAsAccessorOrAccessed(SQLConnection connection,
+                                                                   Set<Resource> resources) {
+      SQLStatement statement = null;
+      try {
+         statement = connection.prepareStatement(sqlStrings.SQL_removeInGrantResourcePermissionSys_BY_AccessorID_OR_AccessedID);
+         for (Resource resource : resources) {
+            statement.setResourceId(1, resource);
+            statement.setResourceId(2, resource);
+            statement.addBatch();
+         }
+         statement.executeBatch();
+      }
+      catch (SQLException e) {
+         throw new RuntimeException(e);
+      }
+      finally {
+         closeStatement(statement);
+      }
+   }
+
    @Override
    public void removeResourceSysPermissions(SQLConnection connection,
                                             Resource accessorResource,
@@ -20,6 +20,8 @@ package com.acciente.oacc.sql.internal.persister;
 import com.acciente.oacc.Resource;
 import com.acciente.oacc.Resources;
 import com.acciente.oacc.sql.SQLProfile;
+import com.acciente.oacc.sql.internal.ResourceClassInternalInfo;
+import com.acciente.oacc.sql.internal.ResourceInternalInfo;
 import com.acciente.oacc.sql.internal.persister.id.DomainId;
 import com.acciente.oacc.sql.internal.persister.id.Id;
 import com.acciente.oacc.sql.internal.persister.id.ResourceClassId;
@@ -27,6 +29,9 @@ import com.acciente.oacc.sql.internal.persister.id.ResourceId;
 
 import java.io.Serializable;
 import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
 
 public abstract class CommonResourcePersister extends Persister implements ResourcePersister, Serializable {
    private static final long serialVersionUID = 1L;
@@ -136,6 +141,213 @@ public abstract class CommonResourcePersister extends Persister implements Resou
       }
    }
 
+   @Override
+   public List<Resource> createResources(SQLConnection connection,
+                                         Id<ResourceClassId> resourceClassId,
+                                         Id<DomainId> resourceDomainId,
+                                         List<String> externalIds) {
+      // pick the resource creation strategy based on if the database supports sequence generators
+      final List<Id<ResourceId>> newResourceIds;
+      if (sqlProfile.isSequenceEnabled()) {
+         newResourceIds = createResourcesWithSequenceIds(connection, resourceClassId, resourceDomainId, externalIds.size());
+      }
+      else {
+         newResourceIds = createResourcesWithGeneratedIds(connection, resourceClassId, resourceDomainId, externalIds.size());
+      }
+
+      SQLStatement statement = null;
+
+      try {
+         final List<Resource> newResources = new ArrayList<>(newResourceIds.size());
+
+         // save the new resources' external ids, if necessary
+         statement = connection.prepareStatement(sqlStrings.SQL_createInResourceExternalId_WITH_ResourceID_ExternalID);
+         for (int i = 0; i < newResourceIds.size(); i++) {
+            final Id<ResourceId> newResourceId = newResourceIds.get(i);
+            final String externalId = externalIds.get(i);
+
+            if (externalId != null) {
+               statement.setResourceId(1, newResourceId);
+               statement.setString(2, externalId);
+               statement.addBatch();
+
+               newResources.add(Resources.getInstance(newResourceId.getValue(), externalId));
+            }
+            else {
+               newResources.add(Resources.getInstance(newResourceId.getValue()));
+            }
+
+            if ((i + 1) % SQLStrings.CREATE_RESOURCE_BLOCK_SIZE == 0) {
+               assertOneRowInsertedPerBatchEntry(statement.executeBatch());
+            }
+         }
+         assertOneRowInsertedPerBatchEntry(statement.executeBatch());
+
+         return newResources;
+      }
+      catch (SQLException e) {
+         throw new RuntimeException(e);
+      }
+      finally {
+         closeStatement(statement);
+      }
+   }
+
+   private List<Id<ResourceId>> createResourcesWithSequenceIds(SQLConnection connection,
+                                                               Id<ResourceClassId> resourceClassId,
+                                                               Id<DomainId> resourceDomainId,
+                                                               int count) {
+      SQLStatement statement = null;
+
+      try {
+         final List<Id<ResourceId>> newResourceIds = new ArrayList<>(count);
+
+         statement = connection.prepareStatement(sqlStrings.SQL_createInResource_WITH_ResourceID_ResourceClassID_DomainID);
+         while (newResourceIds.size() < count) {
+            // reserve the ids for the next block of resources, then insert the block as a single batch
+            final int blockSize = Math.min(count - newResourceIds.size(), SQLStrings.CREATE_RESOURCE_BLOCK_SIZE);
+
+            for (Id<ResourceId> newResourceId : getNextResourceIds(connection, blockSize)) {
+               statement.setResourceId(1, newResourceId);
+               statement.setResourceClassId(2, resourceClassId);
+               statement.setResourceDomainId(3, resourceDomainId);
+               statement.addBatch();
+
+               newResourceIds.add(newResourceId);
+            }
+            assertOneRowInsertedPerBatchEntry(statement.executeBatch());
+         }
+
+         return newResourceIds;
+      }
+      catch (SQLException e) {
+         throw new RuntimeException(e);
+      }
+      finally {
+         closeStatement(statement);
+      }
+   }
+
+   private List<Id<ResourceId>> getNextResourceIds(SQLConnection connection, int count) {
+      final List<Id<ResourceId>> newResourceIds = new ArrayList<>(count);
+
+      // fall back to one round-trip per id if the database cannot select several sequence values in one query
+      if (sqlStrings.SQL_nextResourceIDs == null) {
+         for (int i = 0; i < count; i++) {
+            final Id<ResourceId> nextResourceId = getNextResourceId(connection);
+            if (nextResourceId == null) {
+               throw new IllegalStateException("could not retrieve next ResourceId from sequence");
+            }
+            newResourceIds.add(nextResourceId);
+         }
+         return newResourceIds;
+      }
+
+      SQLStatement statement = null;
+
+      try {
+         SQLResult resultSet;
+
+         statement = connection.prepareStatement(sqlStrings.SQL_nextResourceIDs);
+         statement.setInteger(1, count);
+         resultSet = statement.executeQuery();
+
+         while (resultSet.next()) {
+            newResourceIds.add(resultSet.getNextResourceId(1));
+         }
+         resultSet.close();
+
+         if (newResourceIds.size() != count) {
+            throw new IllegalStateException("could not retrieve " + count + " next ResourceIds from sequence");
+         }
+
+         return newResourceIds;
+      }
+      catch (SQLException e) {
+         throw new RuntimeException(e);
+      }
+      finally {
+         closeStatement(statement);
+      }
+   }
+
+   private List<Id<ResourceId>> createResourcesWithGeneratedIds(SQLConnection connection,
+                                                                Id<ResourceClassId> resourceClassId,
+                                                                Id<DomainId> resourceDomainId,
+                                                                int count) {
+      final List<Id<ResourceId>> newResourceIds = new ArrayList<>(count);
+      SQLStatement statement = null;
+
+      try {
+         // insert full blocks of resources with one multi-row insert each
+         if (count >= SQLStrings.CREATE_RESOURCE_BLOCK_SIZE) {
+            statement = connection.prepareStatement(sqlStrings.SQL_createInResource_WITH_ResourceClassID_DomainID_BLOCK,
+                                                    GENERATED_KEY_COLUMNS);
+
+            while (count - newResourceIds.size() >= SQLStrings.CREATE_RESOURCE_BLOCK_SIZE) {
+               for (int i = 0; i < SQLStrings.CREATE_RESOURCE_BLOCK_SIZE; i++) {
+                  statement.setResourceClassId(2 * i + 1, resourceClassId);
+                  statement.setResourceDomainId(2 * i + 2, resourceDomainId);
+               }
+
+               assertRowsInserted(SQLStrings.CREATE_RESOURCE_BLOCK_SIZE, statement.executeUpdate());
+
+               newResourceIds.addAll(getGeneratedResourceIds(statement, SQLStrings.CREATE_RESOURCE_BLOCK_SIZE));
+            }
+            closeStatement(statement);
+         }
+
+         // insert the remaining resources one at a time
+         statement = connection.prepareStatement(sqlStrings.SQL_createInResource_WITH_ResourceClassID_DomainID,
+                                                 GENERATED_KEY_COLUMNS);
+         while (newResourceIds.size() < count) {
+            statement.setResourceClassId(1, resourceClassId);
+            statement.setResourceDomainId(2, resourceDomainId);
+
+            assertOneRowInserted(statement.executeUpdate());
+
+            newResourceIds.addAll(getGeneratedResourceIds(statement, 1));
+         }
+
+         return newResourceIds;
+      }
+      catch (SQLException e) {
+         throw new RuntimeException(e);
+      }
+      finally {
+         closeStatement(statement);
+      }
+   }
+
+   // returns the ids generated by the last (possibly multi-row) insert executed by the specified statement
+   private static List<Id<ResourceId>> getGeneratedResourceIds(SQLStatement statement,
+                                                              int rowCount) throws SQLException {
+      final List<Id<ResourceId>> generatedResourceIds = new ArrayList<>(rowCount);
+      final SQLResult generatedKeys = statement.getGeneratedKeys();
+
+      while (generatedKeys.next()) {
+         generatedResourceIds.add(generatedKeys.getNextResourceId(1));
+      }
+      generatedKeys.close();
+
+      if (generatedResourceIds.size() == rowCount) {
+         return generatedResourceIds;
+      }
+
+      // some drivers (e.g. SQLite's) only return the last id of a multi-row insert, which assigns consecutive
+      // ids to the inserted rows, so we derive the preceding ids from it
+      if (generatedResourceIds.size() == 1) {
+         final long lastResourceId = generatedResourceIds.get(0).getValue();
+         generatedResourceIds.clear();
+         for (long resourceId = lastResourceId - rowCount + 1; resourceId <= lastResourceId; resourceId++) {
+            generatedResourceIds.add(Id.<ResourceId>from(resourceId));
+         }
+         return generatedResourceIds;
+      }
+
+      throw new IllegalStateException("could not retrieve auto-generated ResourceIds");
+   }
+
    @Override
    public Resource setExternalId(SQLConnection connection,
                                  Id<ResourceId> resourceId,
@@ -186,6 +398,38 @@ public abstract class CommonResourcePersister extends Persister implements Resou
       }
    }
 
+   @Override
+   public void deleteResources(SQLConnection connection,
+                               Set<Resource> resources) {
+      SQLStatement statement = null;
+
+      try {
+         // delete the resources' external id mappings, if they exist
+         statement = connection.prepareStatement(sqlStrings.SQL_removeInResourceExternalId_BY_ResourceID);
+         for (Resource resource : resources) {
+            statement.setResourceId(1, resource);
+            statement.addBatch();
+         }
+         statement.executeBatch();
+         closeStatement(statement);
+
+         // delete the resources
+         statement = connection.prepareStatement(sqlStrings.SQL_removeInResource_BY_ResourceID);
+         for (Resource resource : resources) {
+            statement.setResourceId(1, resource);
+            statement.addBatch();
+         }
+
+         assertOneRowUpdatedPerBatchEntry(statement.executeBatch());
+      }
+      catch (SQLException e) {
+         throw new RuntimeException(e);
+      }
+      finally {
+         closeStatement(statement);
+      }
+   }
+
    @Override
    public Id<DomainId> getDomainIdByResource(SQLConnection connection,
                                              Resource resource) {
@@ -312,4 +556,65 @@ public abstract class CommonResourcePersister extends Persister implements Resou
          closeStatement(statement);
       }
    }
+
+   @Override
+   public ResourceInternalInfo getResourceInfoByResourceId(SQLConnection connection,
+                                                           Resource resource) {
+      SQLStatement statement = null;
+
+      try {
+         statement = connection.prepareStatement(sqlStrings.SQL_findInResource_ResourceId_ExternalId_ResourceClassInfo_DomainID_DomainName_BY_ResourceID);
+         statement.setResourceId(1, resource);
+
+         return __getResourceInfo(statement.executeQuery(), "Resource " + resource);
+      }
+      catch (SQLException e) {
+         throw new RuntimeException(e);
+      }
+      finally {
+         closeStatement(statement);
+      }
+   }
+
+   @Override
+   public ResourceInternalInfo getResourceInfoByExternalId(SQLConnection connection,
+                                                           String externalId) {
+      SQLStatement statement = null;
+
+      try {
+         statement = connection.prepareStatement(sqlStrings.SQL_findInResource_ResourceId_ExternalId_ResourceClassInfo_DomainID_DomainName_BY_ExternalID);
+         statement.setString(1, externalId);
+
+         return __getResourceInfo(statement.executeQuery(), "External id " + externalId);
+      }
+      catch (SQLException e) {
+         throw new RuntimeException(e);
+      }
+      finally {
+         closeStatement(statement);
+      }
+   }
+
+   private static ResourceInternalInfo __getResourceInfo(SQLResult resultSet,
+                                                         String lookupDescription) throws SQLException {
+      if (!resultSet.next()) {
+         return null;
+      }
+
+      final ResourceInternalInfo resourceInfo
+            = new ResourceInternalInfo(resultSet.getResource("ResourceId", "ExternalId"),
+                                       new ResourceClassInternalInfo(resultSet.getResourceClassId("ResourceClassId"),
+                                                                     resultSet.getString("ResourceClassName"),
+                                                                     resultSet.getBoolean("IsAuthenticatable"),
+                                                                     resultSet.getBoolean("IsUnauthenticatedCreateAllowed")),
+                                       resultSet.getResourceDomainId("DomainId"),
+                                       resultSet.getString("DomainName"));
+
+      // complain if we found more than one resource - external ids are supposed to be globally unique
+      if (resultSet.next()) {
+         throw new IllegalStateException(lookupDescription + " maps to more than one resource!");
+      }
+
+      return resourceInfo;
+   }
 }
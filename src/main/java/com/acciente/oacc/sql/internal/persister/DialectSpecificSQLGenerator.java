@@ -26,14 +26,43 @@ class DialectSpecificSQLGenerator {
    private final String nextSeqValueStatementSuffix;
    private final String nextSeqValueFragmentPrefix;
    private final String nextSeqValueFragmentSuffix;
+   private final String nextSeqValuesStatementPrefix;
+   private final String nextSeqValuesStatementSuffix;
+   private final UpsertStyle upsertStyle;
+   private final String singleRowFromClause;
+   private final boolean castParameterMarkers;
+   private final String statementTerminator;
 
-   private static final DialectSpecificSQLGenerator DB2_10_5       = new DialectSpecificSQLGenerator("WITH", "UNION ALL", "VALUES ( NEXT VALUE FOR ", " )", "NEXT VALUE FOR ", "");
-   private static final DialectSpecificSQLGenerator Oracle_11_2    = new DialectSpecificSQLGenerator("WITH", "UNION ALL", "SELECT ", ".NEXTVAL FROM DUAL", "", ".NEXTVAL");
-   private static final DialectSpecificSQLGenerator PostgreSQL_9_3 = new DialectSpecificSQLGenerator("WITH RECURSIVE", "UNION ALL", "SELECT nextval('", "')", "nextval('", "')");
-   private static final DialectSpecificSQLGenerator SQLServer_12_0 = new DialectSpecificSQLGenerator("WITH", "UNION ALL", "SELECT NEXT VALUE FOR ", "", "NEXT VALUE FOR ", "");
-   private static final DialectSpecificSQLGenerator SQLite_3_8     = new DialectSpecificSQLGenerator("WITH RECURSIVE", "UNION ALL", null, null, null, null);
-   private static final DialectSpecificSQLGenerator MySQL_5_6      = new DialectSpecificSQLGenerator(null, null, null, null, null, null);
-   private static final DialectSpecificSQLGenerator HSQLDB_2_3     = new DialectSpecificSQLGenerator(null, null, "VALUES NEXT VALUE FOR ", "", "NEXT VALUE FOR ", "");
+   private enum UpsertStyle {
+      MERGE,                     // MERGE INTO ... USING ... WHEN MATCHED ... WHEN NOT MATCHED ...
+      INSERT_ON_DUPLICATE_KEY,   // INSERT ... ON DUPLICATE KEY UPDATE ...
+      INSERT_OR_REPLACE,         // INSERT OR REPLACE INTO ...
+      NONE,                      // no single statement upsert, caller falls back to UPDATE and INSERT
+   }
+
+   private static final DialectSpecificSQLGenerator DB2_10_5       = new DialectSpecificSQLGenerator("WITH", "UNION ALL", "VALUES ( NEXT VALUE FOR ", " )", "NEXT VALUE FOR ", "",
+                                                                                                     "WITH N( I ) AS ( VALUES ( 1 ) UNION ALL SELECT I + 1 FROM N WHERE I < ? ) SELECT NEXT VALUE FOR ", " FROM N",
+                                                                                                     UpsertStyle.MERGE, " FROM SYSIBM.SYSDUMMY1", true, "");
+   private static final DialectSpecificSQLGenerator Oracle_11_2    = new DialectSpecificSQLGenerator("WITH", "UNION ALL", "SELECT ", ".NEXTVAL FROM DUAL", "", ".NEXTVAL",
+                                                                                                     "SELECT ", ".NEXTVAL FROM DUAL CONNECT BY LEVEL <= ?",
+                                                                                                     UpsertStyle.MERGE, " FROM DUAL", false, "");
+   // ON CONFLICT ... DO UPDATE is only available as of PostgreSQL 9.5
+   private static final DialectSpecificSQLGenerator PostgreSQL_9_3 = new DialectSpecificSQLGenerator("WITH RECURSIVE", "UNION ALL", "SELECT nextval('", "')", "nextval('", "')",
+                                                                                                     "SELECT nextval('", "') FROM generate_series( 1, ? )",
+                                                                                                     UpsertStyle.NONE, "", false, "");
+   // NEXT VALUE FOR is too restricted in multi-row queries, so sequence values are fetched one at a time
+   private static final DialectSpecificSQLGenerator SQLServer_12_0 = new DialectSpecificSQLGenerator("WITH", "UNION ALL", "SELECT NEXT VALUE FOR ", "", "NEXT VALUE FOR ", "",
+                                                                                                     null, null,
+                                                                                                     UpsertStyle.MERGE, "", false, ";");
+   private static final DialectSpecificSQLGenerator SQLite_3_8     = new DialectSpecificSQLGenerator("WITH RECURSIVE", "UNION ALL", null, null, null, null,
+                                                                                                     null, null,
+                                                                                                     UpsertStyle.INSERT_OR_REPLACE, "", false, "");
+   private static final DialectSpecificSQLGenerator MySQL_5_6      = new DialectSpecificSQLGenerator(null, null, null, null, null, null,
+                                                                                                     null, null,
+                                                                                                     UpsertStyle.INSERT_ON_DUPLICATE_KEY, "", false, "");
+   private static final DialectSpecificSQLGenerator HSQLDB_2_3     = new DialectSpecificSQLGenerator(null, null, "VALUES NEXT VALUE FOR ", "", "NEXT VALUE FOR ", "",
+                                                                                                     null, null,
+                                                                                                     UpsertStyle.MERGE, " FROM ( VALUES ( 0 ) ) X", true, "");
 
    static DialectSpecificSQLGenerator getInstance(SQLDialect sqlDialect) {
       switch (sqlDialect) {
@@ -72,18 +101,130 @@ class DialectSpecificSQLGenerator {
       return nextSeqValueFragmentPrefix + qualifiedSequenceName + nextSeqValueFragmentSuffix;
    }
 
+   /**
+    * Returns a query that selects the specified number of next values from the sequence, one per row, where
+    * the number of values is bound as the query's only parameter.
+    *
+    * @return the query, or null if the dialect cannot fetch more than one sequence value per query
+    */
+   String nextSequenceValuesStatement(String qualifiedSequenceName) {
+      if (nextSeqValuesStatementPrefix == null) {
+         return null;
+      }
+      return nextSeqValuesStatementPrefix + qualifiedSequenceName + nextSeqValuesStatementSuffix;
+   }
+
+   /**
+    * Returns a parameter marker that may be used in the select list of a query, which some databases
+    * only allow if the marker is cast to an explicit type.
+    */
+   String parameterMarker(String sqlType) {
+      return castParameterMarkers ? "CAST( ? AS " + sqlType + " )" : "?";
+   }
+
+   /**
+    * Returns the FROM clause (including a leading space) of a query that selects exactly one row
+    * without reading any table, or an empty string if the database does not require one.
+    */
+   String singleRowFromClause() {
+      return singleRowFromClause;
+   }
+
+   /**
+    * Returns a statement that inserts the row(s) produced by the specified source query into the specified table,
+    * or -- if a row with the same key columns already exists -- updates the specified columns of that row instead.
+    * <p/>
+    * The source query has to alias each of its result columns with the name of the corresponding table column,
+    * listed in the same order as the specified column names.
+    *
+    * @return the upsert statement, or null if the dialect does not support a single statement upsert
+    */
+   String upsertStatement(String qualifiedTableName,
+                          String[] columnNames,
+                          String[] keyColumnNames,
+                          String[] updateColumnNames,
+                          String sourceQuery) {
+      final StringBuilder sql = new StringBuilder();
+
+      switch (upsertStyle) {
+         case MERGE:
+            sql.append("MERGE INTO ").append(qualifiedTableName).append(" D USING ( ").append(sourceQuery).append(" ) S ON ( ");
+            for (int i = 0; i < keyColumnNames.length; i++) {
+               if (i > 0) {
+                  sql.append(" AND ");
+               }
+               sql.append("D.").append(keyColumnNames[i]).append(" = S.").append(keyColumnNames[i]);
+            }
+            sql.append(" ) WHEN MATCHED THEN UPDATE SET ");
+            for (int i = 0; i < updateColumnNames.length; i++) {
+               if (i > 0) {
+                  sql.append(", ");
+               }
+               sql.append(updateColumnNames[i]).append(" = S.").append(updateColumnNames[i]);
+            }
+            sql.append(" WHEN NOT MATCHED THEN INSERT ( ").append(joinColumnNames("", columnNames)).append(" ) VALUES ( ")
+                  .append(joinColumnNames("S.", columnNames)).append(" )");
+            break;
+
+         case INSERT_ON_DUPLICATE_KEY:
+            sql.append("INSERT INTO ").append(qualifiedTableName).append(" ( ").append(joinColumnNames("", columnNames))
+                  .append(" ) ").append(sourceQuery).append(" ON DUPLICATE KEY UPDATE ");
+            for (int i = 0; i < updateColumnNames.length; i++) {
+               if (i > 0) {
+                  sql.append(", ");
+               }
+               sql.append(updateColumnNames[i]).append(" = VALUES( ").append(updateColumnNames[i]).append(" )");
+            }
+            break;
+
+         case INSERT_OR_REPLACE:
+            // the grant tables are not referenced by any foreign keys, so replacing the row is equivalent to updating it
+            sql.append("INSERT OR REPLACE INTO ").append(qualifiedTableName).append(" ( ").append(joinColumnNames("", columnNames))
+                  .append(" ) ").append(sourceQuery);
+            break;
+
+         default:
+            return null;
+      }
+
+      return sql.append(statementTerminator).toString();
+   }
+
+   private static String joinColumnNames(String prefix, String[] columnNames) {
+      final StringBuilder columnList = new StringBuilder();
+      for (int i = 0; i < columnNames.length; i++) {
+         if (i > 0) {
+            columnList.append(", ");
+         }
+         columnList.append(prefix).append(columnNames[i]);
+      }
+      return columnList.toString();
+   }
+
    // private constructor to force use of constants
    private DialectSpecificSQLGenerator(String withClause,
                       String unionClause,
                       String nextSeqValueStatementPrefix,
                       String nextSeqValueStatementSuffix,
                       String nextSeqValueFragmentPrefix,
-                      String nextSeqValueFragmentSuffix) {
+                      String nextSeqValueFragmentSuffix,
+                      String nextSeqValuesStatementPrefix,
+                      String nextSeqValuesStatementSuffix,
+                      UpsertStyle upsertStyle,
+                      String singleRowFromClause,
+                      boolean castParameterMarkers,
+                      String statementTerminator) {
       this.withClause = withClause;
       this.unionClause = unionClause;
       this.nextSeqValueStatementPrefix = nextSeqValueStatementPrefix;
       this.nextSeqValueStatementSuffix = nextSeqValueStatementSuffix;
       this.nextSeqValueFragmentPrefix = nextSeqValueFragmentPrefix;
       this.nextSeqValueFragmentSuffix = nextSeqValueFragmentSuffix;
+      this.nextSeqValuesStatementPrefix = nextSeqValuesStatementPrefix;
+      this.nextSeqValuesStatementSuffix = nextSeqValuesStatementSuffix;
+      this.upsertStyle = upsertStyle;
+      this.singleRowFromClause = singleRowFromClause;
+      this.castParameterMarkers = castParameterMarkers;
+      this.statementTerminator = statementTerminator;
    }
 }
@@ -32,6 +32,9 @@ public interface GrantDomainCreatePermissionPostCreateSysPersister {
    void removeDomainCreatePostCreateSysPermissions(SQLConnection connection,
                                                    Resource accessorResource);
 
+   void removeDomainCreatePostCreateSysPermissions(SQLConnection connection,
+                                                   Set<Resource> accessorResources);
+
    void removeDomainCreatePostCreateSysPermissions(SQLConnection connection,
                                                    Resource accessorResource,
                                                    Set<DomainCreatePermission> domainCreatePermissions);
@@ -45,4 +48,10 @@ public interface GrantDomainCreatePermissionPostCreateSysPersister {
                                                    Resource accessorResource,
                                                    Resource grantorResource,
                                                    Set<DomainCreatePermission> domainCreatePermissions);
+
+   void addOrUpdateDomainCreatePostCreateSysPermissions(SQLConnection connection,
+                                                        Resource accessorResource,
+                                                        Resource grantorResource,
+                                                        Set<DomainCreatePermission> domainCreatePermissionsToAdd,
+                                                        Set<DomainCreatePermission> domainCreatePermissionsToUpdate);
 }
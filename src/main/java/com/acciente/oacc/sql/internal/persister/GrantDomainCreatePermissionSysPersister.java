@@ -42,7 +42,16 @@ public interface GrantDomainCreatePermissionSysPersister {
    void removeDomainCreateSysPermissions(SQLConnection connection,
                                          Resource accessorResource);
 
+   void removeDomainCreateSysPermissions(SQLConnection connection,
+                                         Set<Resource> accessorResources);
+
    void removeDomainCreateSysPermissions(SQLConnection connection,
                                          Resource accessorResource,
                                          Set<DomainCreatePermission> domainCreatePermissions);
+
+   void addOrUpdateDomainCreateSysPermissions(SQLConnection connection,
+                                              Resource accessorResource,
+                                              Resource grantorResource,
+                                              Set<DomainCreatePermission> domainCreatePermissionsToAdd,
+                                              Set<DomainCreatePermission> domainCreatePermissionsToUpdate);
 }
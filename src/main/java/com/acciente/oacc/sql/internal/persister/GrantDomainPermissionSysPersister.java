@@ -65,6 +65,9 @@ public interface GrantDomainPermissionSysPersister {
    void removeAllDomainSysPermissions(SQLConnection connection,
                                       Resource accessorResource);
 
+   void removeAllDomainSysPermissions(SQLConnection connection,
+                                      Set<Resource> accessorResources);
+
    void removeAllDomainSysPermissions(SQLConnection connection,
                                       Id<DomainId> domainId);
 
@@ -76,4 +79,11 @@ public interface GrantDomainPermissionSysPersister {
                                    Resource accessorResource,
                                    Id<DomainId> resourceDomainId,
                                    Set<DomainPermission> requestedDomainPermissions);
+
+   void addOrUpdateDomainSysPermissions(SQLConnection connection,
+                                        Resource accessorResource,
+                                        Resource grantorResource,
+                                        Id<DomainId> resourceDomainId,
+                                        Set<DomainPermission> domainPermissionsToAdd,
+                                        Set<DomainPermission> domainPermissionsToUpdate);
 }
@@ -74,6 +74,9 @@ public interface GrantGlobalResourcePermissionPersister {
    void removeAllGlobalResourcePermissions(SQLConnection connection,
                                            Resource accessorResource);
 
+   void removeAllGlobalResourcePermissions(SQLConnection connection,
+                                           Set<Resource> accessorResources);
+
    void removeAllGlobalResourcePermissions(SQLConnection connection,
                                            Id<DomainId> accessedDomainId);
 
@@ -87,4 +90,12 @@ public interface GrantGlobalResourcePermissionPersister {
                                         Id<ResourceClassId> accessedResourceClassId,
                                         Id<DomainId> accessedResourceDomainId,
                                         Set<ResourcePermission> requestedResourcePermissions);
+
+   void addOrUpdateGlobalResourcePermissions(SQLConnection connection,
+                                             Resource accessorResource,
+                                             Id<ResourceClassId> accessedResourceClassId,
+                                             Id<DomainId> accessedResourceDomainId,
+                                             Set<ResourcePermission> resourcePermissionsToAdd,
+                                             Set<ResourcePermission> resourcePermissionsToUpdate,
+                                             Resource grantorResource);
 }
@@ -71,6 +71,9 @@ public interface GrantGlobalResourcePermissionSysPersister {
    void removeAllGlobalSysPermissions(SQLConnection connection,
                                       Resource accessorResource);
 
+   void removeAllGlobalSysPermissions(SQLConnection connection,
+                                      Set<Resource> accessorResources);
+
    void removeAllGlobalSysPermissions(SQLConnection connection,
                                       Id<DomainId> accessedDomainId);
 
@@ -84,4 +87,12 @@ public interface GrantGlobalResourcePermissionSysPersister {
                                    Id<ResourceClassId> accessedResourceClassId,
                                    Id<DomainId> accessedResourceDomainId,
                                    Set<ResourcePermission> requestedResourcePermissions);
+
+   void addOrUpdateGlobalSysPermissions(SQLConnection connection,
+                                        Resource accessorResource,
+                                        Id<ResourceClassId> accessedResourceClassId,
+                                        Id<DomainId> accessedResourceDomainId,
+                                        Set<ResourcePermission> resourcePermissionsToAdd,
+                                        Set<ResourcePermission> resourcePermissionsToUpdate,
+                                        Resource grantorResource);
 }
@@ -61,6 +61,9 @@ public interface GrantResourceCreatePermissionPostCreatePersister {
    void removeAllResourceCreatePostCreatePermissions(SQLConnection connection,
                                                      Resource accessorResource);
 
+   void removeAllResourceCreatePostCreatePermissions(SQLConnection connection,
+                                                     Set<Resource> accessorResources);
+
    void removeAllResourceCreatePostCreatePermissions(SQLConnection connection,
                                                      Id<DomainId> accessedDomainId);
 
@@ -74,4 +77,12 @@ public interface GrantResourceCreatePermissionPostCreatePersister {
                                                   Id<ResourceClassId> accessedResourceClassId,
                                                   Id<DomainId> accessedResourceDomainId,
                                                   Set<ResourceCreatePermission> requestedResourceCreatePermissions);
+
+   void addOrUpdateResourceCreatePostCreatePermissions(SQLConnection connection,
+                                                       Resource accessorResource,
+                                                       Id<ResourceClassId> accessedResourceClassId,
+                                                       Id<DomainId> accessedResourceDomainId,
+                                                       Set<ResourceCreatePermission> resourceCreatePermissionsToAdd,
+                                                       Set<ResourceCreatePermission> resourceCreatePermissionsToUpdate,
+                                                       Resource grantorResource);
 }
@@ -61,6 +61,9 @@ public interface GrantResourceCreatePermissionPostCreateSysPersister {
    void removeAllResourceCreatePostCreateSysPermissions(SQLConnection connection,
                                                         Resource accessorResource);
 
+   void removeAllResourceCreatePostCreateSysPermissions(SQLConnection connection,
+                                                        Set<Resource> accessorResources);
+
    void removeAllResourceCreatePostCreateSysPermissions(SQLConnection connection,
                                                         Id<DomainId> accessedDomainId);
 
@@ -74,4 +77,12 @@ public interface GrantResourceCreatePermissionPostCreateSysPersister {
                                                      Id<ResourceClassId> accessedResourceClassId,
                                                      Id<DomainId> accessedResourceDomainId,
                                                      Set<ResourceCreatePermission> requestedResourceCreatePermissions);
+
+   void addOrUpdateResourceCreatePostCreateSysPermissions(SQLConnection connection,
+                                                          Resource accessorResource,
+                                                          Id<ResourceClassId> accessedResourceClassId,
+                                                          Id<DomainId> accessedResourceDomainId,
+                                                          Set<ResourceCreatePermission> resourceCreatePermissionsToAdd,
+                                                          Set<ResourceCreatePermission> resourceCreatePermissionsToUpdate,
+                                                          Resource grantorResource);
 }
@@ -60,6 +60,9 @@ public interface GrantResourceCreatePermissionSysPersister {
    void removeAllResourceCreateSysPermissions(SQLConnection connection,
                                               Resource accessorResource);
 
+   void removeAllResourceCreateSysPermissions(SQLConnection connection,
+                                              Set<Resource> accessorResources);
+
    void removeAllResourceCreateSysPermissions(SQLConnection connection,
                                               Id<DomainId> accessedDomainId);
 
@@ -73,4 +76,12 @@ public interface GrantResourceCreatePermissionSysPersister {
                                            Id<ResourceClassId> accessedResourceClassId,
                                            Id<DomainId> accessedResourceDomainId,
                                            Set<ResourceCreatePermission> requestedResourceCreatePermissions);
+
+   void addOrUpdateResourceCreateSysPermissions(SQLConnection connection,
+                                                Resource accessorResource,
+                                                Id<ResourceClassId> accessedResourceClassId,
+                                                Id<DomainId> accessedResourceDomainId,
+                                                Set<ResourceCreatePermission> resourceCreatePermissionsToAdd,
+                                                Set<ResourceCreatePermission> resourceCreatePermissionsToUpdate,
+                                                Resource grantorResource);
 }
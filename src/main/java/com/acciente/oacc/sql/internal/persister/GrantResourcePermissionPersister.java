@@ -61,6 +61,13 @@ public interface GrantResourcePermissionPersister {
                                Set<ResourcePermission> requestedResourcePermissions,
                                Resource grantorResource);
 
+   void addResourcePermissions(SQLConnection connection,
+                               Resource accessorResource,
+                               Set<Resource> accessedResources,
+                               Id<ResourceClassId> accessedResourceClassId,
+                               Set<ResourcePermission> requestedResourcePermissions,
+                               Resource grantorResource);
+
    void updateResourcePermissions(SQLConnection connection,
                                   Resource accessorResource,
                                   Resource accessedResource,
@@ -71,6 +78,9 @@ public interface GrantResourcePermissionPersister {
    void removeAllResourcePermissionsAsAccessorOrAccessed(SQLConnection connection,
                                                          Resource resource);
 
+   void removeAllResourcePermissionsAsAccessorOrAccessed(SQLConnection connection,
+                                                         Set<Resource> resources);
+
    void removeResourcePermissions(SQLConnection connection,
                                   Resource accessorResource,
                                   Resource accessedResource);
@@ -80,4 +90,12 @@ public interface GrantResourcePermissionPersister {
                                   Resource accessedResource,
                                   Id<ResourceClassId> accessedResourceClassId,
                                   Set<ResourcePermission> requestedResourcePermissions);
+
+   void addOrUpdateResourcePermissions(SQLConnection connection,
+                                       Resource accessorResource,
+                                       Resource accessedResource,
+                                       Id<ResourceClassId> accessedResourceClassId,
+                                       Set<ResourcePermission> resourcePermissionsToAdd,
+                                       Set<ResourcePermission> resourcePermissionsToUpdate,
+                                       Resource grantorResource);
 }
@@ -57,6 +57,13 @@ public interface GrantResourcePermissionSysPersister {
                                   Set<ResourcePermission> requestedResourcePermissions,
                                   Resource grantorResource);
 
+   void addResourceSysPermissions(SQLConnection connection,
+                                  Resource accessorResource,
+                                  Set<Resource> accessedResources,
+                                  Id<ResourceClassId> accessedResourceClassId,
+                                  Set<ResourcePermission> requestedResourcePermissions,
+                                  Resource grantorResource);
+
    void updateResourceSysPermissions(SQLConnection connection,
                                      Resource accessorResource,
                                      Resource accessedResource,
@@ -67,6 +74,9 @@ public interface GrantResourcePermissionSysPersister {
    void removeAllResourceSysPermissionsAsAccessorOrAccessed(SQLConnection connection,
                                                             Resource resource);
 
+   void removeAllResourceSysPermissionsAsAccessorOrAccessed(SQLConnection connection,
+                                                            Set<Resource> resources);
+
    void removeResourceSysPermissions(SQLConnection connection,
                                      Resource accessorResource,
                                      Resource accessedResource);
@@ -76,4 +86,12 @@ public interface GrantResourcePermissionSysPersister {
                                      Resource accessedResource,
                                      Id<ResourceClassId> accessedResourceClassId,
                                      Set<ResourcePermission> requestedResourcePermissions);
+
+   void addOrUpdateResourceSysPermissions(SQLConnection connection,
+                                          Resource accessorResource,
+                                          Resource accessedResource,
+                                          Id<ResourceClassId> accessedResourceClassId,
+                                          Set<ResourcePermission> resourcePermissionsToAdd,
+                                          Set<ResourcePermission> resourcePermissionsToUpdate,
+                                          Resource grantorResource);
 }
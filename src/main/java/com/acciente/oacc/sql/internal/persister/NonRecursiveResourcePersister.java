@@ -17,12 +17,14 @@
  */
 package com.acciente.oacc.sql.internal.persister;
 
+import com.acciente.oacc.Resource;
 import com.acciente.oacc.sql.SQLProfile;
 import com.acciente.oacc.sql.internal.persister.id.DomainId;
 import com.acciente.oacc.sql.internal.persister.id.Id;
 
 import java.io.Serializable;
 import java.sql.SQLException;
+import java.util.HashSet;
 import java.util.Set;
 
 public class NonRecursiveResourcePersister extends CommonResourcePersister implements Serializable {
@@ -73,4 +75,38 @@ public class NonRecursiveResourcePersister extends CommonResourcePersister imple
          closeStatement(statement);
       }
    }
+
+   @Override
+   public Set<Resource> getResourcesInDomainOrDescendants(SQLConnection connection, Id<DomainId> resourceDomainId) {
+      SQLStatement statement = null;
+
+      try {
+         SQLResult resultSet;
+         Set<Resource> resources = new HashSet<>();
+
+         final Set<Id<DomainId>> descendantDomainIds
+               = NonRecursivePersisterHelper.getDescendantDomainIdsOrderedByAscendingLevel(sqlStrings,
+                                                                                           connection,
+                                                                                           resourceDomainId);
+
+         statement = connection.prepareStatement(sqlStrings.SQL_findInResource_withoutInheritance_ResourceId_ExternalId_BY_DomainID);
+         for (Id<DomainId> descendantDomainId : descendantDomainIds) {
+            statement.setResourceDomainId(1, descendantDomainId);
+            resultSet = statement.executeQuery();
+
+            while (resultSet.next()) {
+               resources.add(resultSet.getResource("ResourceId", "ExternalId"));
+            }
+            resultSet.close();
+         }
+
+         return resources;
+      }
+      catch (SQLException e) {
+         throw new RuntimeException(e);
+      }
+      finally {
+         closeStatement(statement);
+      }
+   }
 }
@@ -0,0 +1,40 @@
+/*
+ * Copyright 2009-2016, Acciente LLC
+ *
+ * Acciente LLC licenses this file to you under the
+ * Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in
+ * writing, software distributed under the License is
+ * distributed on an "AS IS" BASIS, WITHOUT WARRANTIES
+ * OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.acciente.oacc.sql.internal.persister;
+
+import com.acciente.oacc.sql.StatementExecution;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Collects the statements executed on behalf of one access control context operation, which may include statements
+ * executed concurrently on other threads, e.g. by parallel queries.
+ */
+public class OperationTrace {
+   private final ConcurrentLinkedQueue<StatementExecution> statementExecutions = new ConcurrentLinkedQueue<>();
+
+   void addStatementExecution(StatementExecution statementExecution) {
+      statementExecutions.add(statementExecution);
+   }
+
+   public List<StatementExecution> getStatementExecutions() {
+      return new ArrayList<>(statementExecutions);
+   }
+}
@@ -19,6 +19,7 @@ package com.acciente.oacc.sql.internal.persister;
 
 import java.io.Serializable;
 import java.sql.SQLException;
+import java.sql.Statement;
 
 /**
  * Base class for persisters
@@ -45,9 +46,43 @@ public abstract class Persister implements Serializable {
       }
    }
 
+   protected void assertRowsInserted(int expectedRowCount, int rowCount) {
+      if (rowCount != expectedRowCount) {
+         throw new IllegalStateException("Security table data insert, " + expectedRowCount + " rows expected, got: " + rowCount);
+      }
+   }
+
    protected void assertOneRowUpdated(int rowCount) {
       if (rowCount != 1) {
          throw new IllegalStateException("Security table data update, 1 row expected, got: " + rowCount);
       }
    }
+
+   protected void assertOneRowInsertedPerBatchEntry(int[] rowCounts) {
+      for (int rowCount : rowCounts) {
+         // some drivers do not report the row count of each batch entry
+         if (rowCount != Statement.SUCCESS_NO_INFO) {
+            assertOneRowInserted(rowCount);
+         }
+      }
+   }
+
+   protected void assertOneRowUpdatedPerBatchEntry(int[] rowCounts) {
+      for (int rowCount : rowCounts) {
+         // some drivers do not report the row count of each batch entry
+         if (rowCount != Statement.SUCCESS_NO_INFO) {
+            assertOneRowUpdated(rowCount);
+         }
+      }
+   }
+
+   protected void assertOneRowUpsertedPerBatchEntry(int[] rowCounts) {
+      for (int rowCount : rowCounts) {
+         // some drivers do not report the row count of each batch entry, and MySQL counts an upsert that updated
+         // the existing row as two rows
+         if (rowCount != Statement.SUCCESS_NO_INFO && rowCount != 1 && rowCount != 2) {
+            throw new IllegalStateException("Security table data upsert, 1 row expected, got: " + rowCount);
+         }
+      }
+   }
 }
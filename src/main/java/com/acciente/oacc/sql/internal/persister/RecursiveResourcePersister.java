@@ -17,12 +17,15 @@
  */
 package com.acciente.oacc.sql.internal.persister;
 
+import com.acciente.oacc.Resource;
 import com.acciente.oacc.sql.SQLProfile;
 import com.acciente.oacc.sql.internal.persister.id.DomainId;
 import com.acciente.oacc.sql.internal.persister.id.Id;
 
 import java.io.Serializable;
 import java.sql.SQLException;
+import java.util.HashSet;
+import java.util.Set;
 
 public class RecursiveResourcePersister extends CommonResourcePersister implements Serializable {
    private static final long serialVersionUID = 1L;
@@ -60,4 +63,31 @@ public class RecursiveResourcePersister extends CommonResourcePersister implemen
          closeStatement(statement);
       }
    }
+
+   @Override
+   public Set<Resource> getResourcesInDomainOrDescendants(SQLConnection connection, Id<DomainId> resourceDomainId) {
+      SQLStatement statement = null;
+
+      try {
+         SQLResult resultSet;
+         Set<Resource> resources = new HashSet<>();
+
+         statement = connection.prepareStatement(sqlStrings.SQL_findInResource_ResourceId_ExternalId_BY_DomainID);
+         statement.setResourceDomainId(1, resourceDomainId);
+         resultSet = statement.executeQuery();
+
+         while (resultSet.next()) {
+            resources.add(resultSet.getResource("ResourceId", "ExternalId"));
+         }
+         resultSet.close();
+
+         return resources;
+      }
+      catch (SQLException e) {
+         throw new RuntimeException(e);
+      }
+      finally {
+         closeStatement(statement);
+      }
+   }
 }
@@ -0,0 +1,109 @@
+/*
+ * Copyright 2009-2016, Acciente LLC
+ *
+ * Acciente LLC licenses this file to you under the
+ * Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in
+ * writing, software distributed under the License is
+ * distributed on an "AS IS" BASIS, WITHOUT WARRANTIES
+ * OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.acciente.oacc.sql.internal.persister;
+
+import com.acciente.oacc.Resource;
+import com.acciente.oacc.sql.SQLProfile;
+
+import java.io.Serializable;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+public class RedundantGrantPersister extends Persister implements Serializable {
+   private static final long serialVersionUID = 1L;
+
+   protected final SQLProfile sqlProfile;
+   private final   SQLStrings sqlStrings;
+
+   public RedundantGrantPersister(SQLProfile sqlProfile,
+                                  SQLStrings sqlStrings) {
+      this.sqlProfile = sqlProfile;
+      this.sqlStrings = sqlStrings;
+   }
+
+   /**
+    * Returns the accessor resources that have any direct resource permission other than INHERIT, in ascending
+    * order of their ids.
+    */
+   public List<Resource> getAccessorResourcesWithDirectPermissions(SQLConnection connection) {
+      SQLStatement statement = null;
+      try {
+         statement = connection.prepareStatement(sqlStrings.SQL_findInGrantResourcePermission_withoutInheritance_AccessorID);
+         return __getResources(statement.executeQuery());
+      }
+      catch (SQLException e) {
+         throw new RuntimeException(e);
+      }
+      finally {
+         closeStatement(statement);
+      }
+   }
+
+   /**
+    * Returns the resources to which the specified accessor has any direct resource permission other than INHERIT,
+    * in ascending order of their ids.
+    */
+   public List<Resource> getAccessedResourcesByDirectPermissions(SQLConnection connection,
+                                                                 Resource accessorResource) {
+      SQLStatement statement = null;
+      try {
+         statement = connection.prepareStatement(sqlStrings.SQL_findInGrantResourcePermission_withoutInheritance_AccessedID_BY_AccessorID);
+         statement.setResourceId(1, accessorResource);
+         statement.setResourceId(2, accessorResource);
+         return __getResources(statement.executeQuery());
+      }
+      catch (SQLException e) {
+         throw new RuntimeException(e);
+      }
+      finally {
+         closeStatement(statement);
+      }
+   }
+
+   /**
+    * Returns the resources on which the specified accessor has a direct INHERIT permission, i.e. the resources it
+    * inherits from directly, not counting those it inherits from through them.
+    */
+   public Set<Resource> getDirectlyInheritedResources(SQLConnection connection,
+                                                      Resource accessorResource) {
+      SQLStatement statement = null;
+      try {
+         statement = connection.prepareStatement(sqlStrings.SQL_findInGrantResourcePermissionSys_directInheritance_ResourceID_BY_AccessorID);
+         statement.setResourceId(1, accessorResource);
+         return new HashSet<>(__getResources(statement.executeQuery()));
+      }
+      catch (SQLException e) {
+         throw new RuntimeException(e);
+      }
+      finally {
+         closeStatement(statement);
+      }
+   }
+
+   private static List<Resource> __getResources(SQLResult resultSet) throws SQLException {
+      final List<Resource> resources = new ArrayList<>();
+      while (resultSet.next()) {
+         resources.add(resultSet.getResource("ResourceId"));
+      }
+      resultSet.close();
+      return resources;
+   }
+}
@@ -0,0 +1,338 @@
+/*
+ * Copyright 2009-2016, Acciente LLC
+ *
+ * Acciente LLC licenses this file to you under the
+ * Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in
+ * writing, software distributed under the License is
+ * distributed on an "AS IS" BASIS, WITHOUT WARRANTIES
+ * OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.acciente.oacc.sql.internal.persister;
+
+import com.acciente.oacc.Resource;
+import com.acciente.oacc.ResourcePermission;
+import com.acciente.oacc.sql.ResourceFilter;
+import com.acciente.oacc.sql.SQLProfile;
+import com.acciente.oacc.sql.internal.persister.id.DomainId;
+import com.acciente.oacc.sql.internal.persister.id.Id;
+import com.acciente.oacc.sql.internal.persister.id.ResourceClassId;
+import com.acciente.oacc.sql.internal.persister.id.ResourceId;
+import com.acciente.oacc.sql.internal.persister.id.ResourcePermissionId;
+
+import java.io.Serializable;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static com.acciente.oacc.sql.internal.persister.CommonGrantDomainPermissionSysPersister.DOMAIN_PERMISSION_SUPER_USER;
+
+public class ResourceFilterPersister extends Persister implements Serializable {
+   private static final long serialVersionUID = 1L;
+
+   // the maximum number of values in an IN list, e.g. Oracle rejects longer lists with ORA-01795
+   private static final int MAX_IN_LIST_SIZE = 1000;
+
+   // the maximum number of ids in a list for which bind parameters are used, longer lists are written out as literals,
+   // since a statement may only have a limited number of bind parameters, e.g. 2100 in SQL Server
+   private static final int MAX_BOUND_IDS = 100;
+
+   protected final SQLProfile sqlProfile;
+   private final   SQLStrings sqlStrings;
+
+   public ResourceFilterPersister(SQLProfile sqlProfile,
+                                  SQLStrings sqlStrings) {
+      this.sqlProfile = sqlProfile;
+      this.sqlStrings = sqlStrings;
+   }
+
+   /**
+    * Returns a subquery that selects the ids of the resources of the specified class, optionally restricted to the
+    * specified domain and its descendants, to which the accessor has all of the specified permissions.
+    * <p/>
+    * The accessor's inherited resources and the domains that its global and super-user permissions apply to are
+    * resolved here, in Java, so that the subquery itself is free of recursion and can be embedded anywhere.
+    *
+    * @param resourcePermissionIds the requested permissions, mapped to their permission ids, or to null for
+    *                              system permissions
+    */
+   public ResourceFilter getResourceFilter(SQLConnection connection,
+                                           Resource accessorResource,
+                                           Id<ResourceClassId> resourceClassId,
+                                           Id<DomainId> resourceDomainId,
+                                           Map<ResourcePermission, Id<ResourcePermissionId>> resourcePermissionIds) {
+      // first get all the resources from which the accessor inherits any permissions
+      final Set<Id<ResourceId>> accessorResourceIds
+            = NonRecursivePersisterHelper.getInheritedAccessorResourceIds(sqlStrings, connection, accessorResource);
+
+      final StringBuilder sql = new StringBuilder(sqlStrings.SQL_findInResource_ResourceID_BY_ResourceClassID);
+      final List<Long> parameters = new ArrayList<>();
+      parameters.add(resourceClassId.getValue());
+
+      if (resourceDomainId != null) {
+         final Set<Id<DomainId>> domainIds
+               = NonRecursivePersisterHelper.getDescendantDomainIdsOrderedByAscendingLevel(sqlStrings,
+                                                                                           connection,
+                                                                                           resourceDomainId);
+         sql.append(" AND ");
+         __appendIdsIn(sql, parameters, "R.DomainId", domainIds);
+      }
+
+      // the accessor has to have each of the permissions, either directly or via global permissions...
+      sql.append(" AND ( ( ");
+      boolean firstPermission = true;
+      for (Map.Entry<ResourcePermission, Id<ResourcePermissionId>> entry : resourcePermissionIds.entrySet()) {
+         final ResourcePermission resourcePermission = entry.getKey();
+
+         if (!firstPermission) {
+            sql.append(" AND ");
+         }
+         firstPermission = false;
+
+         sql.append("( R.ResourceId IN ( ");
+         if (resourcePermission.isSystemPermission()) {
+            sql.append(sqlStrings.SQL_findInGrantResourcePermissionSys_withoutInheritance_AccessedID_BY_ResourceClassID_SysPermissionID_IsWithGrant_AccessorIDs);
+            parameters.add(resourceClassId.getValue());
+            parameters.add(resourcePermission.getSystemPermissionId());
+         }
+         else {
+            sql.append(sqlStrings.SQL_findInGrantResourcePermission_withoutInheritance_AccessedID_BY_ResourceClassID_PermissionID_IsWithGrant_AccessorIDs);
+            parameters.add(resourceClassId.getValue());
+            parameters.add(entry.getValue().getValue());
+         }
+         parameters.add(resourcePermission.isWithGrantOption() ? 1L : 0L);
+         __appendIdsIn(sql, parameters, "G.AccessorResourceId", accessorResourceIds);
+         sql.append(" )");
+
+         final Set<Id<DomainId>> globalDomainIds
+               = __getDescendantDomainIds(connection,
+                                          __getGlobalPermissionDomainIds(connection,
+                                                                         accessorResourceIds,
+                                                                         resourceClassId,
+                                                                         resourcePermission,
+                                                                         entry.getValue()));
+         if (!globalDomainIds.isEmpty()) {
+            sql.append(" OR ");
+            __appendIdsIn(sql, parameters, "R.DomainId", globalDomainIds);
+         }
+         sql.append(" )");
+      }
+      sql.append(" )");
+
+      // ...or via super-user permissions on the resource's domain
+      final Set<Id<DomainId>> superUserDomainIds
+            = __getDescendantDomainIds(connection, __getSuperUserDomainIds(connection, accessorResourceIds));
+      if (!superUserDomainIds.isEmpty()) {
+         sql.append(" OR ");
+         __appendIdsIn(sql, parameters, "R.DomainId", superUserDomainIds);
+      }
+      sql.append(" )");
+
+      return new ResourceFilter(sql.toString(), parameters);
+   }
+
+   /**
+    * Returns the number of resources selected by the specified resource filter.
+    */
+   public long getResourceCount(SQLConnection connection,
+                                ResourceFilter resourceFilter) {
+      SQLStatement statement = null;
+
+      try {
+         statement = connection.prepareStatement(sqlStrings.SQL_findInResourceFilter_COUNTResourceID_PREFIX
+                                                       + resourceFilter.getSQL()
+                                                       + sqlStrings.SQL_findInResourceFilter_COUNTResourceID_SUFFIX);
+         __setParameters(statement, resourceFilter);
+         SQLResult resultSet = statement.executeQuery();
+
+         long resourceCount = 0;
+         if (resultSet.next()) {
+            resourceCount = resultSet.getLong("COUNTResourceID");
+         }
+         resultSet.close();
+
+         return resourceCount;
+      }
+      catch (SQLException e) {
+         throw new RuntimeException(e);
+      }
+      finally {
+         closeStatement(statement);
+      }
+   }
+
+   /**
+    * Returns true if the specified resource filter selects at least one resource.
+    * <p/>
+    * The filter is wrapped in an EXISTS predicate, so the database may stop at the first matching resource.
+    */
+   public boolean hasAnyResource(SQLConnection connection,
+                                 ResourceFilter resourceFilter) {
+      SQLStatement statement = null;
+
+      try {
+         statement = connection.prepareStatement(sqlStrings.SQL_findInResourceFilter_HasResource_PREFIX
+                                                       + resourceFilter.getSQL()
+                                                       + sqlStrings.SQL_findInResourceFilter_HasResource_SUFFIX);
+         __setParameters(statement, resourceFilter);
+         SQLResult resultSet = statement.executeQuery();
+
+         boolean hasResource = false;
+         if (resultSet.next()) {
+            hasResource = resultSet.getInteger("HasResource") != 0;
+         }
+         resultSet.close();
+
+         return hasResource;
+      }
+      catch (SQLException e) {
+         throw new RuntimeException(e);
+      }
+      finally {
+         closeStatement(statement);
+      }
+   }
+
+   private static void __setParameters(SQLStatement statement, ResourceFilter resourceFilter) throws SQLException {
+      int parameterIndex = 1;
+      for (Long parameter : resourceFilter.getParameters()) {
+         statement.setLong(parameterIndex++, parameter);
+      }
+   }
+
+   private Set<Id<DomainId>> __getGlobalPermissionDomainIds(SQLConnection connection,
+                                                            Set<Id<ResourceId>> accessorResourceIds,
+                                                            Id<ResourceClassId> resourceClassId,
+                                                            ResourcePermission resourcePermission,
+                                                            Id<ResourcePermissionId> resourcePermissionId) {
+      SQLStatement statement = null;
+
+      try {
+         final Set<Id<DomainId>> domainIds = new HashSet<>();
+
+         if (resourcePermission.isSystemPermission()) {
+            statement = connection.prepareStatement(sqlStrings.SQL_findInGrantGlobalResourcePermissionSys_withoutInheritance_ResourceDomainID_BY_AccessorID_ResourceClassID_SysPermissionID_IsWithGrant);
+         }
+         else {
+            statement = connection.prepareStatement(sqlStrings.SQL_findInGrantGlobalResourcePermission_withoutInheritance_ResourceDomainID_BY_AccessorID_ResourceClassID_PermissionID_IsWithGrant);
+         }
+
+         for (Id<ResourceId> accessorResourceId : accessorResourceIds) {
+            statement.setResourceId(1, accessorResourceId);
+            statement.setResourceClassId(2, resourceClassId);
+            if (resourcePermission.isSystemPermission()) {
+               statement.setResourceSystemPermissionId(3, resourcePermission.getSystemPermissionId());
+            }
+            else {
+               statement.setResourcePermissionId(3, resourcePermissionId);
+            }
+            statement.setBoolean(4, resourcePermission.isWithGrantOption());
+            SQLResult resultSet = statement.executeQuery();
+
+            while (resultSet.next()) {
+               domainIds.add(resultSet.getResourceDomainId("DomainId"));
+            }
+            resultSet.close();
+         }
+
+         return domainIds;
+      }
+      catch (SQLException e) {
+         throw new RuntimeException(e);
+      }
+      finally {
+         closeStatement(statement);
+      }
+   }
+
+   private Set<Id<DomainId>> __getSuperUserDomainIds(SQLConnection connection,
+                                                     Set<Id<ResourceId>> accessorResourceIds) {
+      SQLStatement statement = null;
+
+      try {
+         final Set<Id<DomainId>> domainIds = new HashSet<>();
+         statement = connection.prepareStatement(sqlStrings.SQL_findInGrantDomainPermissionSys_withoutInheritance_ResourceDomainId_BY_AccessorID_SysPermissionID_IsWithGrant);
+
+         for (Id<ResourceId> accessorResourceId : accessorResourceIds) {
+            statement.setResourceId(1, accessorResourceId);
+            statement.setDomainSystemPermissionId(2, DOMAIN_PERMISSION_SUPER_USER.getSystemPermissionId());
+            statement.setBoolean(3, false);
+            SQLResult resultSet = statement.executeQuery();
+
+            while (resultSet.next()) {
+               domainIds.add(resultSet.getResourceDomainId("AccessedDomainId"));
+            }
+            resultSet.close();
+         }
+
+         return domainIds;
+      }
+      catch (SQLException e) {
+         throw new RuntimeException(e);
+      }
+      finally {
+         closeStatement(statement);
+      }
+   }
+
+   private Set<Id<DomainId>> __getDescendantDomainIds(SQLConnection connection,
+                                                      Set<Id<DomainId>> domainIds) {
+      final Set<Id<DomainId>> descendantDomainIds = new HashSet<>();
+
+      for (Id<DomainId> domainId : domainIds) {
+         // skip domains that were already reached as the descendant of another one
+         if (!descendantDomainIds.contains(domainId)) {
+            descendantDomainIds.addAll(NonRecursivePersisterHelper.getDescendantDomainIdsOrderedByAscendingLevel(sqlStrings,
+                                                                                                                 connection,
+                                                                                                                 domainId));
+         }
+      }
+
+      return descendantDomainIds;
+   }
+
+   // appends a parenthesized predicate that the specified column has one of the specified (non-empty) ids, as IN lists
+   // of at most MAX_IN_LIST_SIZE ids each that are ORed together, and with a bind parameter for each id unless there
+   // are more than MAX_BOUND_IDS of them, in which case the ids, which are numbers read from the database, are inlined
+   private static void __appendIdsIn(StringBuilder sql,
+                                     List<Long> parameters,
+                                     String columnName,
+                                     Collection<? extends Id<?>> ids) {
+      final boolean bindIds = ids.size() <= MAX_BOUND_IDS;
+
+      sql.append("( ");
+      int idCount = 0;
+      for (Id<?> id : ids) {
+         if (idCount % MAX_IN_LIST_SIZE == 0) {
+            if (idCount > 0) {
+               sql.append(" ) OR ");
+            }
+            sql.append(columnName).append(" IN ( ");
+         }
+         else {
+            sql.append(", ");
+         }
+         idCount++;
+
+         if (bindIds) {
+            sql.append('?');
+            parameters.add(id.getValue());
+         }
+         else {
+            sql.append(id.getValue());
+         }
+      }
+      sql.append(" ) )");
+   }
+}
@@ -23,6 +23,7 @@ import com.acciente.oacc.sql.internal.persister.id.ResourceId;
 
 import java.io.Serializable;
 import java.sql.SQLException;
+import java.util.Set;
 
 public class ResourcePasswordPersister extends Persister implements Serializable {
    private static final long serialVersionUID = 1L;
@@ -100,7 +101,7 @@ public class ResourcePasswordPersister extends Persister implements Serializable
             // insert new row
             insertStatement = connection.prepareStatement(sqlPasswordStrings.SQL_createInResourcePassword_WITH_ResourceID_Password);
             insertStatement.setResourceId(1, resourceId);
-            insertStatement.setString(2, newEncryptedBoundPassword);
+            insertStatement.setEncryptedPassword(2, newEncryptedBoundPassword);
 
             assertOneRowInserted(insertStatement.executeUpdate());
          }
@@ -112,7 +113,7 @@ public class ResourcePasswordPersister extends Persister implements Serializable
 
             // update existing row
             updateStatement = connection.prepareStatement(sqlPasswordStrings.SQL_updateInResourcePassword_Password_BY_ResourceID);
-            updateStatement.setString(1, newEncryptedBoundPassword);
+            updateStatement.setEncryptedPassword(1, newEncryptedBoundPassword);
             updateStatement.setResourceId(2, resourceId);
 
             assertOneRowUpdated(updateStatement.executeUpdate());
@@ -145,4 +146,24 @@ public class ResourcePasswordPersister extends Persister implements Serializable
       }
    }
 
+   public void removeEncryptedBoundPasswordsByResourceId(SQLConnection connection, Set<Resource> resources) {
+      SQLStatement statement = null;
+
+      try {
+         statement = connection.prepareStatement(sqlPasswordStrings.SQL_removeInResourcePassword_BY_ResourceID);
+         for (Resource resource : resources) {
+            statement.setResourceId(1, resource);
+            statement.addBatch();
+         }
+
+         assertOneRowUpdatedPerBatchEntry(statement.executeBatch());
+      }
+      catch (SQLException e) {
+         throw new RuntimeException(e);
+      }
+      finally {
+         closeStatement(statement);
+      }
+   }
+
 }
@@ -18,11 +18,15 @@
 package com.acciente.oacc.sql.internal.persister;
 
 import com.acciente.oacc.Resource;
+import com.acciente.oacc.sql.internal.ResourceInternalInfo;
 import com.acciente.oacc.sql.internal.persister.id.DomainId;
 import com.acciente.oacc.sql.internal.persister.id.Id;
 import com.acciente.oacc.sql.internal.persister.id.ResourceClassId;
 import com.acciente.oacc.sql.internal.persister.id.ResourceId;
 
+import java.util.List;
+import java.util.Set;
+
 public interface ResourcePersister {
    void verifyResourceExists(SQLConnection connection,
                              Resource resource);
@@ -32,6 +36,11 @@ public interface ResourcePersister {
                            Id<DomainId> resourceDomainId,
                            String externalId);
 
+   List<Resource> createResources(SQLConnection connection,
+                                  Id<ResourceClassId> resourceClassId,
+                                  Id<DomainId> resourceDomainId,
+                                  List<String> externalIds);
+
    Resource setExternalId(SQLConnection connection,
                           Id<ResourceId> resourceId,
                           String externalId);
@@ -39,6 +48,9 @@ public interface ResourcePersister {
    void deleteResource(SQLConnection connection,
                        Resource resource);
 
+   void deleteResources(SQLConnection connection,
+                        Set<Resource> resources);
+
    Id<DomainId> getDomainIdByResource(SQLConnection connection,
                                       Resource resource);
 
@@ -47,9 +59,18 @@ public interface ResourcePersister {
    boolean isDomainEmpty(SQLConnection connection,
                          Id<DomainId> resourceDomainId);
 
+   Set<Resource> getResourcesInDomainOrDescendants(SQLConnection connection,
+                                                   Id<DomainId> resourceDomainId);
+
    Resource resolveResourceByExternalId(SQLConnection connection,
                                         String externalId);
 
    Resource resolveResourceByResourceId(SQLConnection connection,
                                         Resource resource);
+
+   ResourceInternalInfo getResourceInfoByResourceId(SQLConnection connection,
+                                                    Resource resource);
+
+   ResourceInternalInfo getResourceInfoByExternalId(SQLConnection connection,
+                                                    String externalId);
 }
@@ -17,25 +17,167 @@
  */
 package com.acciente.oacc.sql.internal.persister;
 
+import com.acciente.oacc.sql.ConnectionBulkhead;
+import com.acciente.oacc.sql.SQLEventListener;
+
+import javax.sql.DataSource;
 import java.sql.Connection;
 import java.sql.SQLException;
 
 public class SQLConnection {
-   private final Connection connection;
+   private final Connection         connection;
+   private final ConnectionBulkhead connectionBulkhead;
+   private int     queryTimeoutSeconds;
+   private boolean released;
 
    public SQLConnection(Connection connection) {
+      this(connection, null);
+   }
+
+   private SQLConnection(Connection connection, ConnectionBulkhead connectionBulkhead) {
       this.connection = connection;
+      this.connectionBulkhead = connectionBulkhead;
+   }
+
+   /**
+    * Checks out a connection from the specified data source, and reports the time spent waiting for it to the
+    * registered event listener, if any.
+    *
+    * @param dataSource the data source from which to check out the connection
+    * @return the connection
+    * @throws SQLException if the data source fails to provide a connection
+    */
+   public static SQLConnection getConnection(DataSource dataSource) throws SQLException {
+      return getConnection(dataSource, null);
+   }
+
+   /**
+    * Checks out a connection from the specified data source, after reserving it with the specified bulkhead, if any,
+    * which is released again when the connection is closed.
+    *
+    * @param dataSource         the data source from which to check out the connection
+    * @param connectionBulkhead the bulkhead that bounds the number of connections held at the same time, or null
+    * @return the connection
+    * @throws SQLException if the data source fails to provide a connection
+    * @throws com.acciente.oacc.sql.ConnectionRejectedException if the bulkhead is at capacity
+    */
+   public static SQLConnection getConnection(DataSource dataSource,
+                                             ConnectionBulkhead connectionBulkhead) throws SQLException {
+      final SQLEventListener eventListener = SQLEvents.getEventListener();
+      final long startNanos = eventListener != null ? System.nanoTime() : 0;
+
+      if (connectionBulkhead != null) {
+         connectionBulkhead.acquire();
+      }
+      final SQLConnection sqlConnection;
+      try {
+         sqlConnection = new SQLConnection(dataSource.getConnection(), connectionBulkhead);
+      }
+      catch (SQLException | RuntimeException e) {
+         if (connectionBulkhead != null) {
+            connectionBulkhead.release();
+         }
+         throw e;
+      }
+
+      if (eventListener != null) {
+         SQLEvents.fireConnectionCheckout(eventListener, System.nanoTime() - startNanos);
+      }
+      return sqlConnection;
+   }
+
+   /**
+    * Checks out a connection from the specified data source, for which a connection was already reserved with the
+    * specified bulkhead, if any, which is released again when the connection is closed. If the checkout fails, the
+    * reservation is left to the caller to release.
+    *
+    * @param dataSource         the data source from which to check out the connection
+    * @param connectionBulkhead the bulkhead with which the connection was reserved, or null
+    * @return the connection
+    * @throws SQLException if the data source fails to provide a connection
+    */
+   public static SQLConnection getReservedConnection(DataSource dataSource,
+                                                     ConnectionBulkhead connectionBulkhead) throws SQLException {
+      final SQLEventListener eventListener = SQLEvents.getEventListener();
+      final long startNanos = eventListener != null ? System.nanoTime() : 0;
+
+      final SQLConnection sqlConnection = new SQLConnection(dataSource.getConnection(), connectionBulkhead);
+
+      if (eventListener != null) {
+         SQLEvents.fireConnectionCheckout(eventListener, System.nanoTime() - startNanos);
+      }
+      return sqlConnection;
+   }
+
+   public int getQueryTimeoutSeconds() {
+      return queryTimeoutSeconds;
+   }
+
+   /**
+    * Sets the timeout of the statements subsequently prepared on this connection.
+    *
+    * @param queryTimeoutSeconds the timeout in seconds, or zero for no timeout
+    */
+   public void setQueryTimeoutSeconds(int queryTimeoutSeconds) {
+      this.queryTimeoutSeconds = queryTimeoutSeconds;
    }
 
    public SQLStatement prepareStatement(String sql) throws SQLException {
-      return new SQLStatement(connection.prepareStatement(sql));
+      return __applyQueryTimeout(new SQLStatement(connection.prepareStatement(sql), sql));
    }
 
    public SQLStatement prepareStatement(String sql, String[] generatedKeyColumns) throws SQLException {
-      return new SQLStatement(connection.prepareStatement(sql, generatedKeyColumns));
+      return __applyQueryTimeout(new SQLStatement(connection.prepareStatement(sql, generatedKeyColumns), sql));
+   }
+
+   public boolean getAutoCommit() throws SQLException {
+      return connection.getAutoCommit();
+   }
+
+   public void setAutoCommit(boolean autoCommit) throws SQLException {
+      connection.setAutoCommit(autoCommit);
+   }
+
+   public boolean isReadOnly() throws SQLException {
+      return connection.isReadOnly();
+   }
+
+   public void setReadOnly(boolean readOnly) throws SQLException {
+      connection.setReadOnly(readOnly);
+   }
+
+   public int getTransactionIsolation() throws SQLException {
+      return connection.getTransactionIsolation();
+   }
+
+   public void setTransactionIsolation(int transactionIsolation) throws SQLException {
+      connection.setTransactionIsolation(transactionIsolation);
+   }
+
+   public void commit() throws SQLException {
+      connection.commit();
+   }
+
+   public void rollback() throws SQLException {
+      connection.rollback();
    }
 
    public void close() throws SQLException {
-      this.connection.close();
+      try {
+         this.connection.close();
+      }
+      finally {
+         if (connectionBulkhead != null && !released) {
+            released = true;
+            connectionBulkhead.release();
+         }
+      }
+   }
+
+   private SQLStatement __applyQueryTimeout(SQLStatement statement) throws SQLException {
+      if (queryTimeoutSeconds > 0) {
+         statement.setQueryTimeout(queryTimeoutSeconds);
+      }
+      return statement;
    }
 }
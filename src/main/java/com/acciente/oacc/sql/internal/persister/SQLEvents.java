@@ -0,0 +1,150 @@
+/*
+ * Copyright 2009-2016, Acciente LLC
+ *
+ * Acciente LLC licenses this file to you under the
+ * Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in
+ * writing, software distributed under the License is
+ * distributed on an "AS IS" BASIS, WITHOUT WARRANTIES
+ * OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.acciente.oacc.sql.internal.persister;
+
+import com.acciente.oacc.Resource;
+import com.acciente.oacc.sql.SQLEventListener;
+import com.acciente.oacc.sql.SlowOperationRecorder;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Holds the globally registered {@link SQLEventListener} and {@link SlowOperationRecorder}, dispatches events to the
+ * former, and tracks the operation, if any, on whose behalf the current thread executes statements for the latter.
+ */
+public final class SQLEvents {
+   public static final String UNNAMED_STATEMENT_ID = "unnamed";
+
+   private static volatile SQLEventListener      eventListener;
+   private static volatile SlowOperationRecorder slowOperationRecorder;
+
+   private static final ThreadLocal<OperationTrace> currentOperationTrace = new ThreadLocal<>();
+
+   // maps the text of each SQL statement held by a SQLStrings instance to the name of the field holding it;
+   // bounded by the number of distinct schema and dialect combinations in use
+   private static final ConcurrentHashMap<String, String> statementIds = new ConcurrentHashMap<>();
+   private static final List<Field>                       statementFields = __getStatementFields();
+
+   private SQLEvents() {
+   }
+
+   public static void setEventListener(SQLEventListener eventListener) {
+      SQLEvents.eventListener = eventListener;
+   }
+
+   public static SQLEventListener getEventListener() {
+      return eventListener;
+   }
+
+   public static void setSlowOperationRecorder(SlowOperationRecorder slowOperationRecorder) {
+      SQLEvents.slowOperationRecorder = slowOperationRecorder;
+   }
+
+   public static SlowOperationRecorder getSlowOperationRecorder() {
+      return slowOperationRecorder;
+   }
+
+   /**
+    * Returns the trace of the operation on whose behalf the current thread executes statements.
+    *
+    * @return the operation trace, or null if no slow operation recorder is registered or no operation is traced
+    */
+   public static OperationTrace getCurrentOperationTrace() {
+      if (slowOperationRecorder == null) {
+         return null;
+      }
+      return currentOperationTrace.get();
+   }
+
+   public static void setCurrentOperationTrace(OperationTrace operationTrace) {
+      if (operationTrace == null) {
+         currentOperationTrace.remove();
+      }
+      else {
+         currentOperationTrace.set(operationTrace);
+      }
+   }
+
+   public static void fireOperation(SQLEventListener eventListener,
+                                    String operationName,
+                                    Resource sessionResource,
+                                    Throwable failure,
+                                    long durationNanos) {
+      try {
+         eventListener.onOperation(operationName, sessionResource, failure, durationNanos);
+      }
+      catch (RuntimeException e) {
+         // a failing listener must not affect the outcome of the operation it observes
+      }
+   }
+
+   static void fireStatement(SQLEventListener eventListener, String sql, int rowCount, long durationNanos) {
+      try {
+         eventListener.onStatement(getStatementId(sql), rowCount, durationNanos);
+      }
+      catch (RuntimeException e) {
+         // a failing listener must not affect the outcome of the statement it observes
+      }
+   }
+
+   static String getStatementId(String sql) {
+      final String statementId = statementIds.get(sql);
+      return statementId != null ? statementId : UNNAMED_STATEMENT_ID;
+   }
+
+   static void registerStatementIds(SQLStrings sqlStrings) {
+      for (Field statementField : statementFields) {
+         try {
+            final String sql = (String) statementField.get(sqlStrings);
+            if (sql != null) {
+               statementIds.putIfAbsent(sql, statementField.getName());
+            }
+         }
+         catch (IllegalAccessException e) {
+            throw new RuntimeException(e);
+         }
+      }
+   }
+
+   static void fireConnectionCheckout(SQLEventListener eventListener, long durationNanos) {
+      try {
+         eventListener.onConnectionCheckout(durationNanos);
+      }
+      catch (RuntimeException e) {
+         // a failing listener must not cause the connection to leak
+      }
+   }
+
+   // helpers
+
+   private static List<Field> __getStatementFields() {
+      final List<Field> statementFields = new ArrayList<>();
+      for (Field field : SQLStrings.class.getFields()) {
+         if (field.getType() == String.class
+               && field.getName().startsWith("SQL_")
+               && !Modifier.isStatic(field.getModifiers())) {
+            statementFields.add(field);
+         }
+      }
+      return statementFields;
+   }
+}
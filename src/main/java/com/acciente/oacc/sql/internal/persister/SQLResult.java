@@ -23,6 +23,7 @@ import com.acciente.oacc.Resource;
 import com.acciente.oacc.ResourceCreatePermissions;
 import com.acciente.oacc.ResourcePermissions;
 import com.acciente.oacc.Resources;
+import com.acciente.oacc.sql.SQLEventListener;
 import com.acciente.oacc.sql.internal.persister.id.DomainId;
 import com.acciente.oacc.sql.internal.persister.id.Id;
 import com.acciente.oacc.sql.internal.persister.id.ResourceClassId;
@@ -33,10 +34,22 @@ import java.sql.ResultSet;
 import java.sql.SQLException;
 
 public class SQLResult {
-   private final ResultSet resultSet;
+   private final ResultSet        resultSet;
+   private final SQLStatement     observedStatement;
+   private final SQLEventListener eventListener;
+   private final long             startNanos;
+   private int     rowCount;
+   private boolean closed;
 
    SQLResult(ResultSet resultSet) {
+      this(resultSet, null, null, 0);
+   }
+
+   SQLResult(ResultSet resultSet, SQLStatement observedStatement, SQLEventListener eventListener, long startNanos) {
       this.resultSet = resultSet;
+      this.observedStatement = observedStatement;
+      this.eventListener = eventListener;
+      this.startNanos = startNanos;
    }
 
    public Id<ResourceId> getResourceId(String columnLabel) throws SQLException {
@@ -52,6 +65,11 @@ public class SQLResult {
                                    resultSet.getString(externalIdColumnLabel));
    }
 
+   public Resource getNullableResource(String columnLabel) throws SQLException {
+      final long resourceId = resultSet.getLong(columnLabel);
+      return resultSet.wasNull() ? null : Resources.getInstance(resourceId);
+   }
+
    public Id<ResourceId> getNextResourceId(int columnIndex) throws SQLException {
       return Id.from(resultSet.getLong(columnIndex));
    }
@@ -88,6 +106,10 @@ public class SQLResult {
       return resultSet.getLong(columnLabel);
    }
 
+   public long getChangeVersion(String columnLabel) throws SQLException {
+      return resultSet.getLong(columnLabel);
+   }
+
    public boolean getBoolean(String columnLabel) throws SQLException {
       return int2bool(resultSet.getInt(columnLabel));
    }
@@ -100,16 +122,28 @@ public class SQLResult {
       return resultSet.getInt(columnIndex);
    }
 
+   public long getLong(String columnLabel) throws SQLException {
+      return resultSet.getLong(columnLabel);
+   }
+
    public String getString(String columnLabel) throws SQLException {
       return resultSet.getString(columnLabel);
    }
 
    public boolean next() throws SQLException {
-      return resultSet.next();
+      if (resultSet.next()) {
+         rowCount++;
+         return true;
+      }
+      return false;
    }
 
    public void close() throws SQLException {
       resultSet.close();
+      if (observedStatement != null && !closed) {
+         closed = true;
+         observedStatement.reportExecution(eventListener, rowCount, System.nanoTime() - startNanos);
+      }
    }
 
    // helpers
@@ -18,6 +18,8 @@
 package com.acciente.oacc.sql.internal.persister;
 
 import com.acciente.oacc.Resource;
+import com.acciente.oacc.sql.SQLEventListener;
+import com.acciente.oacc.sql.StatementExecution;
 import com.acciente.oacc.sql.internal.persister.id.DomainId;
 import com.acciente.oacc.sql.internal.persister.id.Id;
 import com.acciente.oacc.sql.internal.persister.id.ResourceClassId;
@@ -26,69 +28,183 @@ import com.acciente.oacc.sql.internal.persister.id.ResourcePermissionId;
 
 import java.sql.PreparedStatement;
 import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 
 public class SQLStatement {
    private final PreparedStatement statement;
+   private final String            sql;
+   private final OperationTrace    operationTrace;
+   private final List<Object>       parameters;        // only captured for a traced operation
+   private final List<List<Object>> batchParameters;   // the parameters of each batch entry, likewise
+   private int batchSize;
 
-   SQLStatement(PreparedStatement statement) {
+   SQLStatement(PreparedStatement statement, String sql) {
       this.statement = statement;
+      this.sql = sql;
+      this.operationTrace = SQLEvents.getCurrentOperationTrace();
+      this.parameters = operationTrace != null ? new ArrayList<>() : null;
+      this.batchParameters = operationTrace != null ? new ArrayList<List<Object>>() : null;
+   }
+
+   void setQueryTimeout(int queryTimeoutSeconds) throws SQLException {
+      statement.setQueryTimeout(queryTimeoutSeconds);
    }
 
    public void setResourceId(int parameterIndex, Id<ResourceId> resourceId) throws SQLException {
       statement.setLong(parameterIndex, resourceId.getValue());
+      __captureParameter(parameterIndex, resourceId.getValue());
    }
 
    public void setResourceId(int parameterIndex, Resource resource) throws SQLException {
       statement.setLong(parameterIndex, resource.getId());
+      __captureParameter(parameterIndex, resource.getId());
    }
 
    public void setResourceClassId(int parameterIndex, Id<ResourceClassId> id) throws SQLException {
       statement.setLong(parameterIndex, id.getValue());
+      __captureParameter(parameterIndex, id.getValue());
    }
 
    public void setResourceDomainId(int parameterIndex, Id<DomainId> id) throws SQLException {
       statement.setLong(parameterIndex, id.getValue());
+      __captureParameter(parameterIndex, id.getValue());
    }
 
    public void setResourceCreateSystemPermissionId(int parameterIndex, long resourceCreateSystemPermissionId) throws SQLException {
       statement.setLong(parameterIndex, resourceCreateSystemPermissionId);
+      __captureParameter(parameterIndex, resourceCreateSystemPermissionId);
    }
 
    public void setResourceSystemPermissionId(int parameterIndex, long resourceSystemPermissionId) throws SQLException {
       statement.setLong(parameterIndex, resourceSystemPermissionId);
+      __captureParameter(parameterIndex, resourceSystemPermissionId);
    }
 
    public void setResourcePermissionId(int parameterIndex,
                                        Id<ResourcePermissionId> resourcePermissionId) throws SQLException {
       statement.setLong(parameterIndex, resourcePermissionId.getValue());
+      __captureParameter(parameterIndex, resourcePermissionId.getValue());
    }
 
    public void setDomainCreateSystemPermissionId(int parameterIndex, long domainCreateSystemPermissionId) throws SQLException {
       statement.setLong(parameterIndex, domainCreateSystemPermissionId);
+      __captureParameter(parameterIndex, domainCreateSystemPermissionId);
    }
 
    public void setDomainSystemPermissionId(int parameterIndex, long domainSystemPermissionId) throws SQLException {
       statement.setLong(parameterIndex, domainSystemPermissionId);
+      __captureParameter(parameterIndex, domainSystemPermissionId);
+   }
+
+   public void setChangeVersion(int parameterIndex, long changeVersion) throws SQLException {
+      statement.setLong(parameterIndex, changeVersion);
+      __captureParameter(parameterIndex, changeVersion);
    }
 
    public void setBoolean(int parameterIndex, boolean value) throws SQLException {
       statement.setInt(parameterIndex, bool2int(value));
+      __captureParameter(parameterIndex, bool2int(value));
+   }
+
+   public void setInteger(int parameterIndex, int value) throws SQLException {
+      statement.setInt(parameterIndex, value);
+      __captureParameter(parameterIndex, value);
+   }
+
+   public void setLong(int parameterIndex, long value) throws SQLException {
+      statement.setLong(parameterIndex, value);
+      __captureParameter(parameterIndex, value);
    }
 
    public void setString(int parameterIndex, String value) throws SQLException {
       statement.setString(parameterIndex, value);
+      __captureParameter(parameterIndex, value);
+   }
+
+   // binds a password, which is never captured for a slow operation recording
+   public void setEncryptedPassword(int parameterIndex, String encryptedPassword) throws SQLException {
+      statement.setString(parameterIndex, encryptedPassword);
+      __captureParameter(parameterIndex, StatementExecution.REDACTED_VALUE);
    }
 
    public void setNull(int parameterIndex, int sqlType) throws SQLException {
       statement.setNull(parameterIndex, sqlType);
+      __captureParameter(parameterIndex, (Object) null);
    }
 
    SQLResult executeQuery() throws SQLException {
-      return new SQLResult(statement.executeQuery());
+      final SQLEventListener eventListener = SQLEvents.getEventListener();
+      if (eventListener == null && operationTrace == null) {
+         return new SQLResult(statement.executeQuery());
+      }
+
+      // the execution is reported when the result is closed, so that it covers fetching the rows
+      final long startNanos = System.nanoTime();
+      return new SQLResult(statement.executeQuery(), this, eventListener, startNanos);
    }
 
    int executeUpdate() throws SQLException {
-      return statement.executeUpdate();
+      final SQLEventListener eventListener = SQLEvents.getEventListener();
+      if (eventListener == null && operationTrace == null) {
+         return statement.executeUpdate();
+      }
+
+      final long startNanos = System.nanoTime();
+      final int rowCount = statement.executeUpdate();
+      reportExecution(eventListener, rowCount, System.nanoTime() - startNanos);
+      return rowCount;
+   }
+
+   void addBatch() throws SQLException {
+      statement.addBatch();
+      batchSize++;
+      if (batchParameters != null) {
+         // each entry may bind different values to the same parameters, so they are captured as of each entry
+         batchParameters.add(new ArrayList<>(parameters));
+      }
+   }
+
+   int[] executeBatch() throws SQLException {
+      // not all drivers accept an empty batch, and there is no need for the round-trip anyway
+      if (batchSize == 0) {
+         return new int[0];
+      }
+      batchSize = 0;
+
+      final SQLEventListener eventListener = SQLEvents.getEventListener();
+      if (eventListener == null && operationTrace == null) {
+         return statement.executeBatch();
+      }
+
+      final List<List<Object>> executedBatchParameters;
+      if (batchParameters != null) {
+         executedBatchParameters = new ArrayList<>(batchParameters);
+         batchParameters.clear();
+      }
+      else {
+         executedBatchParameters = null;
+      }
+
+      final long startNanos = System.nanoTime();
+      final int[] rowCounts = statement.executeBatch();
+      final long durationNanos = System.nanoTime() - startNanos;
+      int rowCount = 0;
+      for (int batchRowCount : rowCounts) {
+         // drivers may report Statement.SUCCESS_NO_INFO instead of a row count
+         if (batchRowCount > 0) {
+            rowCount += batchRowCount;
+         }
+      }
+      __reportExecution(eventListener, executedBatchParameters, rowCount, durationNanos);
+      return rowCounts;
+   }
+
+   // reports an execution of this statement to the specified event listener, if any, and to the trace of the
+   // operation on whose behalf the statement was prepared, if any
+   void reportExecution(SQLEventListener eventListener, int rowCount, long durationNanos) {
+      __reportExecution(eventListener, Collections.<List<Object>>emptyList(), rowCount, durationNanos);
    }
 
    public SQLResult getGeneratedKeys() throws SQLException {
@@ -101,6 +217,37 @@ public class SQLStatement {
 
    // helpers
 
+   private void __reportExecution(SQLEventListener eventListener,
+                                  List<List<Object>> executedBatchParameters,
+                                  int rowCount,
+                                  long durationNanos) {
+      if (eventListener != null) {
+         SQLEvents.fireStatement(eventListener, sql, rowCount, durationNanos);
+      }
+      if (operationTrace != null) {
+         operationTrace.addStatementExecution(new StatementExecution(SQLEvents.getStatementId(sql),
+                                                                     new ArrayList<>(parameters),
+                                                                     executedBatchParameters,
+                                                                     rowCount,
+                                                                     durationNanos));
+      }
+   }
+
+   private void __captureParameter(int parameterIndex, long value) {
+      if (parameters != null) {
+         __captureParameter(parameterIndex, Long.valueOf(value));
+      }
+   }
+
+   private void __captureParameter(int parameterIndex, Object value) {
+      if (parameters != null) {
+         while (parameters.size() < parameterIndex) {
+            parameters.add(null);
+         }
+         parameters.set(parameterIndex - 1, value);
+      }
+   }
+
    private static int bool2int(boolean value) {
       return value ? 1 : 0;
    }
@@ -27,6 +27,10 @@ import java.io.Serializable;
 public class SQLStrings implements Serializable {
    private static final long serialVersionUID = 1L;
 
+   // number of rows inserted by a single multi-row insert statement, which is kept small enough to stay
+   // within the bind parameter limits of all supported databases
+   public static final int CREATE_RESOURCE_BLOCK_SIZE = 200;
+
    // SQL string constants
 
    // ResourceClass - common
@@ -60,6 +64,7 @@ public class SQLStrings implements Serializable {
    public final String SQL_findInGrantDomainCreatePermissionSys_withoutInheritance_SysPermissionID_BY_AccessorID;
    public final String SQL_createInGrantDomainCreatePermissionSys_WITH_AccessorID_GrantorID_IsWithGrant_SysPermissionID;
    public final String SQL_updateInGrantDomainCreatePermissionSys_SET_GrantorID_IsWithGrant_BY_AccessorID_SysPermissionID;
+   public final String SQL_upsertInGrantDomainCreatePermissionSys_WITH_AccessorID_GrantorID_IsWithGrant_SysPermissionID;
    public final String SQL_removeInGrantDomainCreatePermissionSys_BY_AccessorID;
    public final String SQL_removeInGrantDomainCreatePermissionSys_BY_AccessorID_SysPermissionID;
    // GrantDomainCreatePermissionSys - recursive
@@ -71,6 +76,7 @@ public class SQLStrings implements Serializable {
    public final String SQL_removeInGrantDomainCreatePermissionPostCreateSys_BY_AccessorID_PostCreateSysPermissionID;
    public final String SQL_createInGrantDomainCreatePermissionPostCreateSys_WITH_AccessorID_GrantorID_IsWithGrant_PostCreateIsWithGrant_PostCreateSysPermissionID;
    public final String SQL_updateInGrantDomainCreatePermissionPostCreateSys_SET_GrantorID_IsWithGrant_PostCreateIsWithGrant_BY_AccessorID_PostCreateSysPermissionID;
+   public final String SQL_upsertInGrantDomainCreatePermissionPostCreateSys_WITH_AccessorID_GrantorID_IsWithGrant_PostCreateIsWithGrant_PostCreateSysPermissionID;
    // GrantDomainCreatePermissionPostCreateSys - recursive
    public final String SQL_findInGrantDomainCreatePermissionPostCreateSys_PostCreateSysPermissionID_PostCreateIsWithGrant_IsWithGrant_BY_AccessorID;
 
@@ -79,6 +85,7 @@ public class SQLStrings implements Serializable {
    public final String SQL_findInGrantDomainPermissionSys_withoutInheritance_ResourceDomainName_SysPermissionID_IsWithGrant_BY_AccessorID;
    public final String SQL_createInGrantDomainPermissionSys_WITH_AccessorID_GrantorID_AccessedDomainID_IsWithGrant_SysPermissionID;
    public final String SQL_updateInGrantDomainPermissionSys_SET_GrantorID_IsWithGrant_BY_AccessorID_AccessedDomainID_SysPermissionID;
+   public final String SQL_upsertInGrantDomainPermissionSys_WITH_AccessorID_GrantorID_AccessedDomainID_IsWithGrant_SysPermissionID;
    public final String SQL_removeInGrantDomainPermissionSys_BY_AccessorID;
    public final String SQL_removeInGrantDomainPermissionSys_BY_AccessedDomainID;
    public final String SQL_removeInGrantDomainPermissionSys_BY_AccessorID_AccessedDomainID;
@@ -96,6 +103,7 @@ public class SQLStrings implements Serializable {
    public final String SQL_findInResource_COUNTResourceID_BY_ResourceClassID_DomainID;
    public final String SQL_createInResource_WITH_ResourceID_ResourceClassID_DomainID;
    public final String SQL_createInResource_WITH_ResourceClassID_DomainID;
+   public final String SQL_createInResource_WITH_ResourceClassID_DomainID_BLOCK;
    public final String SQL_removeInResource_BY_ResourceID;
    public final String SQL_findInResource_ResourceId_BY_ResourceID;
    public final String SQL_findInResource_ResourceId_ExternalId_BY_ResourceID;
@@ -104,16 +112,21 @@ public class SQLStrings implements Serializable {
    public final String SQL_createInResourceExternalId_WITH_ResourceID_ExternalID;
    public final String SQL_removeInResourceExternalId_BY_ResourceID;
    public final String SQL_findInResourceExternalId_ResourceId_ExternalId_BY_ExternalID;
+   public final String SQL_findInResource_ResourceId_ExternalId_ResourceClassInfo_DomainID_DomainName_BY_ResourceID;
+   public final String SQL_findInResource_ResourceId_ExternalId_ResourceClassInfo_DomainID_DomainName_BY_ExternalID;
    // Resource - recursive
    public final String SQL_findInResource_COUNTResourceID_BY_DomainID;
+   public final String SQL_findInResource_ResourceId_ExternalId_BY_DomainID;
    // Resource - non-recursive
    public final String SQL_findInResource_withoutInheritance_COUNTResourceID_BY_DomainID;
+   public final String SQL_findInResource_withoutInheritance_ResourceId_ExternalId_BY_DomainID;
 
    // GrantResourceCreatePermissionSys - common
    public final String SQL_findInGrantResourceCreatePermissionSys_withoutInheritance_SysPermissionId_IsWithGrant_BY_AccessorID_AccessedDomainID_ResourceClassID;
    public final String SQL_findInGrantResourceCreatePermissionSys_withoutInheritance_ResourceDomainName_ResourceClassName_SysPermissionId_IsWithGrant_BY_AccessorID;
    public final String SQL_createInGrantResourceCreatePermissionSys_WITH_AccessorID_GrantorID_AccessedDomainID_IsWithGrant_ResourceClassID_SysPermissionId;
    public final String SQL_updateInGrantResourceCreatePermissionSys_SET_GrantorID_IsWithGrant_BY__AccessorID_AccessedDomainID_ResourceClassID_SysPermissionId;
+   public final String SQL_upsertInGrantResourceCreatePermissionSys_WITH_AccessorID_GrantorID_AccessedDomainID_IsWithGrant_ResourceClassID_SysPermissionId;
    public final String SQL_removeInGrantResourceCreatePermissionSys_BY_AccessorID;
    public final String SQL_removeInGrantResourceCreatePermissionSys_BY_AccessedDomainId;
    public final String SQL_removeInGrantResourceCreatePermissionSys_BY_AccessorID_AccessedDomainID_ResourceClassID;
@@ -128,6 +141,7 @@ public class SQLStrings implements Serializable {
    public final String SQL_findInGrantResourceCreatePermissionPostCreateSys_withoutInheritance_ResourceDomainName_ResourceClassName_PostCreateSysPermissionID_PostCreateIsWithGrant_IsWithGrant_BY_AccessorID;
    public final String SQL_createInGrantResourceCreatePermissionPostCreateSys_WITH_AccessorID_GrantorID_AccessedDomainID_IsWithGrant_PostCreateIsWithGrant_ResourceClassID_PostCreateSysPermissionID;
    public final String SQL_updateInGrantResourceCreatePermissionPostCreateSys_SET_GrantorID_IsWithGrant_PostCreateIsWithGrant_BY_AccessorID_AccessedDomainID_ResourceClassID_PostCreateSysPermissionID;
+   public final String SQL_upsertInGrantResourceCreatePermissionPostCreateSys_WITH_AccessorID_GrantorID_AccessedDomainID_IsWithGrant_PostCreateIsWithGrant_ResourceClassID_PostCreateSysPermissionID;
    public final String SQL_removeInGrantResourceCreatePermissionPostCreateSys_BY_AccessorID;
    public final String SQL_removeInGrantResourceCreatePermissionPostCreateSys_BY_AccessedDomainID;
    public final String SQL_removeInGrantResourceCreatePermissionPostCreateSys_BY_AccessorID_AccessedDomainID_ResourceClassID;
@@ -142,6 +156,7 @@ public class SQLStrings implements Serializable {
    public final String SQL_findInGrantResourceCreatePermissionPostCreate_withoutInheritance_ResourceDomainName_ResourceClassName_PostCreatePermissionName_PostCreateIsWithGrant_IsWithGrant_BY_AccessorID;
    public final String SQL_createInGrantResourceCreatePermissionPostCreate_WITH_AccessorID_GrantorID_AccessedDomainID_IsWithGrant_PostCreateIsWithGrant_ResourceClassID_PostCreatePermissionName;
    public final String SQL_updateInGrantResourceCreatePermissionPostCreate_SET_GrantorID_IsWithGrant_PostCreateIsWithGrant_BY_AccessorID_AccessedDomainID_ResourceClassID_PostCreatePermissionName;
+   public final String SQL_upsertInGrantResourceCreatePermissionPostCreate_WITH_AccessorID_GrantorID_AccessedDomainID_IsWithGrant_PostCreateIsWithGrant_ResourceClassID_PostCreatePermissionName;
    public final String SQL_removeInGrantResourceCreatePermissionPostCreate_BY_AccessorID;
    public final String SQL_removeInGrantResourceCreatePermissionPostCreate_BY_AccessedDomainId;
    public final String SQL_removeInGrantResourceCreatePermissionPostCreate_BY_AccessorID_AccessedDomainID_ResourceClassID;
@@ -156,6 +171,7 @@ public class SQLStrings implements Serializable {
    public final String SQL_findInGrantResourcePermissionSys_withoutInheritance_ResourceClassName_SysPermissionID_IsWithGrant_BY_AccessorID_AccessedID;
    public final String SQL_createInGrantResourcePermissionSys_WITH_AccessorID_GrantorID_AccessedID_IsWithGrant_ResourceClassID_SysPermissionID;
    public final String SQL_updateInGrantResourcePermissionSys_SET_GrantorID_IsWithGrant_BY_AccessorID_AccessedID_ResourceClassID_SysPermissionID;
+   public final String SQL_upsertInGrantResourcePermissionSys_WITH_AccessorID_GrantorID_AccessedID_IsWithGrant_ResourceClassID_SysPermissionID;
    public final String SQL_removeInGrantResourcePermissionSys_BY_AccessorID_OR_AccessedID;
    public final String SQL_removeInGrantResourcePermissionSys_BY_AccessorID_AccessedID;
    public final String SQL_removeInGrantResourcePermissionSys_BY_AccessorID_AccessedID_ResourceClassID_SysPermissionID;
@@ -173,6 +189,7 @@ public class SQLStrings implements Serializable {
    public final String SQL_findInGrantResourcePermission_withoutInheritance_ResourceClassName_PermissionName_IsWithGrant_BY_AccessorID_AccessedID;
    public final String SQL_createInGrantResourcePermission_WITH_AccessorID_GrantorID_AccessedID_IsWithGrant_ResourceClassID_PermissionName;
    public final String SQL_updateInGrantResourcePermission_SET_GrantorID_IsWithGrant_BY_AccessorID_AccessedID_ResourceClassID_PermissionName;
+   public final String SQL_upsertInGrantResourcePermission_WITH_AccessorID_GrantorID_AccessedID_IsWithGrant_ResourceClassID_PermissionName;
    public final String SQL_removeInGrantResourcePermission_BY_AccessorID_OR_AccessedID;
    public final String SQL_removeInGrantResourcePermission_BY_AccessorID_AccessedID;
    public final String SQL_removeInGrantResourcePermission_BY_AccessorID_AccessedID_ResourceClassID_PermissionName;
@@ -189,6 +206,7 @@ public class SQLStrings implements Serializable {
    public final String SQL_findInGrantGlobalResourcePermissionSys_withoutInheritance_ResourceDomainName_ResourceClassName_SysPermissionID_IsWithGrant_BY_AccessorID;
    public final String SQL_createInGrantGlobalResourcePermissionSys_WITH_AccessorID_GrantorID_AccessedDomainID_IsWithGrant_ResourceClassID_SysPermissionID;
    public final String SQL_updateInGrantGlobalResourcePermissionSys_SET_GrantorID_IsWithGrant_BY_AccessorID_AccessedDomainID_ResourceClassID_SysPermissionID;
+   public final String SQL_upsertInGrantGlobalResourcePermissionSys_WITH_AccessorID_GrantorID_AccessedDomainID_IsWithGrant_ResourceClassID_SysPermissionID;
    public final String SQL_removeInGrantGlobalResourcePermissionSys_BY_AccessorID;
    public final String SQL_removeInGrantGlobalResourcePermissionSys_BY_AccessedDomainId;
    public final String SQL_removeInGrantGlobalResourcePermissionSys_BY_AccessorID_AccessedDomainID_ResourceClassID;
@@ -207,6 +225,7 @@ public class SQLStrings implements Serializable {
    public final String SQL_findInGrantGlobalResourcePermission_withoutInheritance_ResourceDomainName_ResourceClassName_PermissionName_IsWithGrant_BY_AccessorID;
    public final String SQL_createInGrantGlobalResourcePermission_WITH_AccessorID_GrantorID_AccessedDomainID_IsWithGrant_ResourceClassID_PermissionName;
    public final String SQL_updateInGrantGlobalResourcePermission_SET_GrantorID_IsWithGrant_BY_AccessorID_AccessedDomainID_ResourceClassID_PermissionName;
+   public final String SQL_upsertInGrantGlobalResourcePermission_WITH_AccessorID_GrantorID_AccessedDomainID_IsWithGrant_ResourceClassID_PermissionName;
    public final String SQL_removeInGrantGlobalResourcePermission_BY_AccessorID;
    public final String SQL_removeInGrantGlobalResourcePermission_BY_AccessedDomainId;
    public final String SQL_removeInGrantGlobalResourcePermission_BY_AccessorID_AccessedDomainID_ResourceClassID;
@@ -220,8 +239,29 @@ public class SQLStrings implements Serializable {
    // GrantGlobalResourcePermission - non-recursive
    public final String SQL_findInGrantGlobalResourcePermission_withoutInheritance_ResourceDomainID_BY_AccessorID_ResourceClassID_PermissionID_IsWithGrant;
 
+   // ChangeLog
+   public final String SQL_createInChangeLog_WITH_ChangeType_AccessorID_AccessedID_DomainName_ResourceClassName;
+   public final String SQL_findInChangeLog_ChangeVersion_ChangeType_AccessorID_AccessedID_DomainName_ResourceClassName_BY_ChangeVersion;
+   public final String SQL_findInChangeLog_MAXChangeVersion;
+   public final String SQL_removeInChangeLog_BY_ChangeVersion;
+
+   // ResourceFilter - the grant queries end with an IN predicate, to which the caller appends the list of accessor ids
+   public final String SQL_findInResource_ResourceID_BY_ResourceClassID;
+   public final String SQL_findInGrantResourcePermission_withoutInheritance_AccessedID_BY_ResourceClassID_PermissionID_IsWithGrant_AccessorIDs;
+   public final String SQL_findInGrantResourcePermissionSys_withoutInheritance_AccessedID_BY_ResourceClassID_SysPermissionID_IsWithGrant_AccessorIDs;
+   // ResourceFilter - the resource filter subquery goes between the prefix and the suffix
+   public final String SQL_findInResourceFilter_COUNTResourceID_PREFIX;
+   public final String SQL_findInResourceFilter_COUNTResourceID_SUFFIX;
+   public final String SQL_findInResourceFilter_HasResource_PREFIX;
+   public final String SQL_findInResourceFilter_HasResource_SUFFIX;
+
+   // RedundantGrant - direct grants other than INHERIT, which structures the accessor graph and is never redundant
+   public final String SQL_findInGrantResourcePermission_withoutInheritance_AccessorID;
+   public final String SQL_findInGrantResourcePermission_withoutInheritance_AccessedID_BY_AccessorID;
+
    // Key generators
    public final String SQL_nextResourceID;
+   public final String SQL_nextResourceIDs;
 
    private final SQLProfile sqlProfile;
 
@@ -456,6 +496,15 @@ public class SQLStrings implements Serializable {
             + "Grant_DomCrPerm_Sys SET GrantorResourceId = ?, IsWithGrant = ? "
             + "WHERE AccessorResourceId = ? AND SysPermissionId = ?";
 
+      SQL_upsertInGrantDomainCreatePermissionSys_WITH_AccessorID_GrantorID_IsWithGrant_SysPermissionID
+            = dialectSpecificSQLGenerator.upsertStatement(schemaNameAndTablePrefix + "Grant_DomCrPerm_Sys",
+                                                          new String[]{"AccessorResourceId", "GrantorResourceId", "IsWithGrant", "SysPermissionId"},
+                                                          new String[]{"AccessorResourceId", "SysPermissionId"},
+                                                          new String[]{"GrantorResourceId", "IsWithGrant"},
+                                                          getParameterSourceQuery(dialectSpecificSQLGenerator,
+                                                                                  new String[]{"AccessorResourceId", "GrantorResourceId", "IsWithGrant", "SysPermissionId"},
+                                                                                  null));
+
       SQL_removeInGrantDomainCreatePermissionSys_BY_AccessorID
             = "DELETE FROM "
             + schemaNameAndTablePrefix
@@ -493,6 +542,15 @@ public class SQLStrings implements Serializable {
             + "Grant_DomCrPerm_PostCr_Sys SET GrantorResourceId = ?, IsWithGrant = ?, PostCreateIsWithGrant = ? "
             + "WHERE AccessorResourceId = ? AND PostCreateSysPermissionId  = ?";
 
+      SQL_upsertInGrantDomainCreatePermissionPostCreateSys_WITH_AccessorID_GrantorID_IsWithGrant_PostCreateIsWithGrant_PostCreateSysPermissionID
+            = dialectSpecificSQLGenerator.upsertStatement(schemaNameAndTablePrefix + "Grant_DomCrPerm_PostCr_Sys",
+                                                          new String[]{"AccessorResourceId", "GrantorResourceId", "IsWithGrant", "PostCreateIsWithGrant", "PostCreateSysPermissionId"},
+                                                          new String[]{"AccessorResourceId", "PostCreateSysPermissionId"},
+                                                          new String[]{"GrantorResourceId", "IsWithGrant", "PostCreateIsWithGrant"},
+                                                          getParameterSourceQuery(dialectSpecificSQLGenerator,
+                                                                                  new String[]{"AccessorResourceId", "GrantorResourceId", "IsWithGrant", "PostCreateIsWithGrant", "PostCreateSysPermissionId"},
+                                                                                  null));
+
       SQL_removeInGrantDomainCreatePermissionPostCreateSys_BY_AccessorID
             = "DELETE FROM "
             + schemaNameAndTablePrefix
@@ -537,6 +595,15 @@ public class SQLStrings implements Serializable {
             + "Grant_DomPerm_Sys SET GrantorResourceId = ?, IsWithGrant = ? "
             + "WHERE AccessorResourceId = ? AND AccessedDomainId = ? AND SysPermissionId = ?";
 
+      SQL_upsertInGrantDomainPermissionSys_WITH_AccessorID_GrantorID_AccessedDomainID_IsWithGrant_SysPermissionID
+            = dialectSpecificSQLGenerator.upsertStatement(schemaNameAndTablePrefix + "Grant_DomPerm_Sys",
+                                                          new String[]{"AccessorResourceId", "GrantorResourceId", "AccessedDomainId", "IsWithGrant", "SysPermissionId"},
+                                                          new String[]{"AccessorResourceId", "AccessedDomainId", "SysPermissionId"},
+                                                          new String[]{"GrantorResourceId", "IsWithGrant"},
+                                                          getParameterSourceQuery(dialectSpecificSQLGenerator,
+                                                                                  new String[]{"AccessorResourceId", "GrantorResourceId", "AccessedDomainId", "IsWithGrant", "SysPermissionId"},
+                                                                                  null));
+
       SQL_removeInGrantDomainPermissionSys_BY_AccessorID
             = "DELETE FROM "
             + schemaNameAndTablePrefix
@@ -683,6 +750,12 @@ public class SQLStrings implements Serializable {
             + schemaNameAndTablePrefix
             + "Resource ( ResourceClassId, DomainId ) VALUES ( ?, ? )";
 
+      SQL_createInResource_WITH_ResourceClassID_DomainID_BLOCK
+            = "INSERT INTO "
+            + schemaNameAndTablePrefix
+            + "Resource ( ResourceClassId, DomainId ) VALUES "
+            + getRowValueConstructors("( ?, ? )", CREATE_RESOURCE_BLOCK_SIZE);
+
       SQL_removeInResource_BY_ResourceID
             = "DELETE FROM " + schemaNameAndTablePrefix + "Resource WHERE ResourceId = ?";
 
@@ -715,6 +788,24 @@ public class SQLStrings implements Serializable {
             = "SELECT ResourceId, ExternalId FROM "
             + schemaNameAndTablePrefix + "ResourceExternalId WHERE ExternalId = ?";
 
+      SQL_findInResource_ResourceId_ExternalId_ResourceClassInfo_DomainID_DomainName_BY_ResourceID
+            = "SELECT A.ResourceId, E.ExternalId, A.ResourceClassId, C.ResourceClassName, C.IsAuthenticatable, "
+            + "C.IsUnauthenticatedCreateAllowed, A.DomainId, D.DomainName FROM "
+            + schemaNameAndTablePrefix + "Resource A LEFT JOIN "
+            + schemaNameAndTablePrefix + "ResourceExternalId E ON E.ResourceId = A.ResourceId JOIN "
+            + schemaNameAndTablePrefix + "ResourceClass C ON C.ResourceClassId = A.ResourceClassId JOIN "
+            + schemaNameAndTablePrefix + "Domain D ON D.DomainId = A.DomainId "
+            + "WHERE A.ResourceId = ?";
+
+      SQL_findInResource_ResourceId_ExternalId_ResourceClassInfo_DomainID_DomainName_BY_ExternalID
+            = "SELECT A.ResourceId, E.ExternalId, A.ResourceClassId, C.ResourceClassName, C.IsAuthenticatable, "
+            + "C.IsUnauthenticatedCreateAllowed, A.DomainId, D.DomainName FROM "
+            + schemaNameAndTablePrefix + "ResourceExternalId E JOIN "
+            + schemaNameAndTablePrefix + "Resource A ON A.ResourceId = E.ResourceId JOIN "
+            + schemaNameAndTablePrefix + "ResourceClass C ON C.ResourceClassId = A.ResourceClassId JOIN "
+            + schemaNameAndTablePrefix + "Domain D ON D.DomainId = A.DomainId "
+            + "WHERE E.ExternalId = ?";
+
       // Resource - recursive
       SQL_findInResource_COUNTResourceID_BY_DomainID
             = withClause + " "
@@ -723,12 +814,25 @@ public class SQLStrings implements Serializable {
             + schemaNameAndTablePrefix
             + "Resource C JOIN S ON S.DomainId = C.DomainId";
 
+      SQL_findInResource_ResourceId_ExternalId_BY_DomainID
+            = withClause + " "
+            + SQL_findDescendantsRecursiveInDomain_DomainID_BY_DomainID
+            + "SELECT A.ResourceId, E.ExternalId FROM "
+            + schemaNameAndTablePrefix + "Resource A JOIN S ON S.DomainId = A.DomainId LEFT JOIN "
+            + schemaNameAndTablePrefix + "ResourceExternalId E ON E.ResourceId = A.ResourceId";
+
       // Resource - non-recursive
       SQL_findInResource_withoutInheritance_COUNTResourceID_BY_DomainID
             = "SELECT COUNT( ResourceId ) COUNTResourceID FROM "
             + schemaNameAndTablePrefix
             + "Resource WHERE DomainId = ?";
 
+      SQL_findInResource_withoutInheritance_ResourceId_ExternalId_BY_DomainID
+            = "SELECT A.ResourceId, E.ExternalId FROM "
+            + schemaNameAndTablePrefix + "Resource A LEFT JOIN "
+            + schemaNameAndTablePrefix + "ResourceExternalId E ON E.ResourceId = A.ResourceId "
+            + "WHERE A.DomainId = ?";
+
      // GrantResourceCreatePermissionSys - common
       SQL_findInGrantResourceCreatePermissionSys_withoutInheritance_SysPermissionId_IsWithGrant_BY_AccessorID_AccessedDomainID_ResourceClassID
             = "SELECT A.SysPermissionId, A.IsWithGrant FROM "
@@ -758,6 +862,15 @@ public class SQLStrings implements Serializable {
             + "Grant_ResCrPerm_Sys SET GrantorResourceId = ?, IsWithGrant = ? "
             + "WHERE AccessorResourceId = ? AND AccessedDomainId = ? AND ResourceClassId = ? AND SysPermissionId = ?";
 
+      SQL_upsertInGrantResourceCreatePermissionSys_WITH_AccessorID_GrantorID_AccessedDomainID_IsWithGrant_ResourceClassID_SysPermissionId
+            = dialectSpecificSQLGenerator.upsertStatement(schemaNameAndTablePrefix + "Grant_ResCrPerm_Sys",
+                                                          new String[]{"AccessorResourceId", "GrantorResourceId", "AccessedDomainId", "IsWithGrant", "ResourceClassId", "SysPermissionId"},
+                                                          new String[]{"AccessorResourceId", "AccessedDomainId", "ResourceClassId", "SysPermissionId"},
+                                                          new String[]{"GrantorResourceId", "IsWithGrant"},
+                                                          getParameterSourceQuery(dialectSpecificSQLGenerator,
+                                                                                  new String[]{"AccessorResourceId", "GrantorResourceId", "AccessedDomainId", "IsWithGrant", "ResourceClassId", "SysPermissionId"},
+                                                                                  null));
+
       SQL_removeInGrantResourceCreatePermissionSys_BY_AccessorID
             = "DELETE FROM "
             + schemaNameAndTablePrefix
@@ -852,6 +965,15 @@ public class SQLStrings implements Serializable {
             + "Grant_ResCrPerm_PostCr_Sys SET GrantorResourceId = ?, IsWithGrant = ?, PostCreateIsWithGrant = ? "
             + "WHERE AccessorResourceId = ? AND AccessedDomainId = ? AND ResourceClassId = ? AND PostCreateSysPermissionId = ?";
 
+      SQL_upsertInGrantResourceCreatePermissionPostCreateSys_WITH_AccessorID_GrantorID_AccessedDomainID_IsWithGrant_PostCreateIsWithGrant_ResourceClassID_PostCreateSysPermissionID
+            = dialectSpecificSQLGenerator.upsertStatement(schemaNameAndTablePrefix + "Grant_ResCrPerm_PostCr_Sys",
+                                                          new String[]{"AccessorResourceId", "GrantorResourceId", "AccessedDomainId", "IsWithGrant", "PostCreateIsWithGrant", "ResourceClassId", "PostCreateSysPermissionId"},
+                                                          new String[]{"AccessorResourceId", "AccessedDomainId", "ResourceClassId", "PostCreateSysPermissionId"},
+                                                          new String[]{"GrantorResourceId", "IsWithGrant", "PostCreateIsWithGrant"},
+                                                          getParameterSourceQuery(dialectSpecificSQLGenerator,
+                                                                                  new String[]{"AccessorResourceId", "GrantorResourceId", "AccessedDomainId", "IsWithGrant", "PostCreateIsWithGrant", "ResourceClassId", "PostCreateSysPermissionId"},
+                                                                                  null));
+
       SQL_removeInGrantResourceCreatePermissionPostCreateSys_BY_AccessorID
             = "DELETE FROM "
             + schemaNameAndTablePrefix
@@ -955,6 +1077,17 @@ public class SQLStrings implements Serializable {
             + schemaNameAndTablePrefix
             + "ResourceClassPermission A WHERE A.ResourceClassId = ResourceClassId AND A.PermissionName = ? )";
 
+      SQL_upsertInGrantResourceCreatePermissionPostCreate_WITH_AccessorID_GrantorID_AccessedDomainID_IsWithGrant_PostCreateIsWithGrant_ResourceClassID_PostCreatePermissionName
+            = dialectSpecificSQLGenerator.upsertStatement(schemaNameAndTablePrefix + "Grant_ResCrPerm_PostCr",
+                                                          new String[]{"AccessorResourceId", "GrantorResourceId", "AccessedDomainId", "IsWithGrant", "PostCreateIsWithGrant", "ResourceClassId", "PostCreatePermissionId"},
+                                                          new String[]{"AccessorResourceId", "AccessedDomainId", "ResourceClassId", "PostCreatePermissionId"},
+                                                          new String[]{"GrantorResourceId", "IsWithGrant", "PostCreateIsWithGrant"},
+                                                          getParameterSourceQuery(dialectSpecificSQLGenerator,
+                                                                                  new String[]{"AccessorResourceId", "GrantorResourceId", "AccessedDomainId", "IsWithGrant", "PostCreateIsWithGrant"},
+                                                                                  "A.ResourceClassId ResourceClassId, A.PermissionId PostCreatePermissionId FROM "
+                                                                                        + schemaNameAndTablePrefix
+                                                                                        + "ResourceClassPermission A WHERE A.ResourceClassId = ? AND A.PermissionName = ?"));
+
       SQL_removeInGrantResourceCreatePermissionPostCreate_BY_AccessorID
             = "DELETE FROM "
             + schemaNameAndTablePrefix
@@ -1050,6 +1183,15 @@ public class SQLStrings implements Serializable {
             + "Grant_ResPerm_Sys SET GrantorResourceId = ?, IsWithGrant = ? "
             + "WHERE AccessorResourceId = ? AND AccessedResourceId = ? AND ResourceClassId = ? AND SysPermissionId = ?";
 
+      SQL_upsertInGrantResourcePermissionSys_WITH_AccessorID_GrantorID_AccessedID_IsWithGrant_ResourceClassID_SysPermissionID
+            = dialectSpecificSQLGenerator.upsertStatement(schemaNameAndTablePrefix + "Grant_ResPerm_Sys",
+                                                          new String[]{"AccessorResourceId", "GrantorResourceId", "AccessedResourceId", "IsWithGrant", "ResourceClassId", "SysPermissionId"},
+                                                          new String[]{"AccessorResourceId", "AccessedResourceId", "ResourceClassId", "SysPermissionId"},
+                                                          new String[]{"GrantorResourceId", "IsWithGrant"},
+                                                          getParameterSourceQuery(dialectSpecificSQLGenerator,
+                                                                                  new String[]{"AccessorResourceId", "GrantorResourceId", "AccessedResourceId", "IsWithGrant", "ResourceClassId", "SysPermissionId"},
+                                                                                  null));
+
       SQL_removeInGrantResourcePermissionSys_BY_AccessorID_OR_AccessedID
             = "DELETE FROM "
             + schemaNameAndTablePrefix
@@ -1162,6 +1304,17 @@ public class SQLStrings implements Serializable {
             + schemaNameAndTablePrefix
             + "ResourceClassPermission A WHERE A.ResourceClassId = ResourceClassId AND A.PermissionName = ? )";
 
+      SQL_upsertInGrantResourcePermission_WITH_AccessorID_GrantorID_AccessedID_IsWithGrant_ResourceClassID_PermissionName
+            = dialectSpecificSQLGenerator.upsertStatement(schemaNameAndTablePrefix + "Grant_ResPerm",
+                                                          new String[]{"AccessorResourceId", "GrantorResourceId", "AccessedResourceId", "IsWithGrant", "ResourceClassId", "PermissionId"},
+                                                          new String[]{"AccessorResourceId", "AccessedResourceId", "ResourceClassId", "PermissionId"},
+                                                          new String[]{"GrantorResourceId", "IsWithGrant"},
+                                                          getParameterSourceQuery(dialectSpecificSQLGenerator,
+                                                                                  new String[]{"AccessorResourceId", "GrantorResourceId", "AccessedResourceId", "IsWithGrant"},
+                                                                                  "A.ResourceClassId ResourceClassId, A.PermissionId PermissionId FROM "
+                                                                                        + schemaNameAndTablePrefix
+                                                                                        + "ResourceClassPermission A WHERE A.ResourceClassId = ? AND A.PermissionName = ?"));
+
       SQL_removeInGrantResourcePermission_BY_AccessorID_OR_AccessedID
             = "DELETE FROM "
             + schemaNameAndTablePrefix
@@ -1265,6 +1418,15 @@ public class SQLStrings implements Serializable {
             + "Grant_Global_ResPerm_Sys SET GrantorResourceId = ?, IsWithGrant = ? "
             + "WHERE AccessorResourceId = ? AND AccessedDomainId = ? AND ResourceClassId = ? AND SysPermissionId = ?";
 
+      SQL_upsertInGrantGlobalResourcePermissionSys_WITH_AccessorID_GrantorID_AccessedDomainID_IsWithGrant_ResourceClassID_SysPermissionID
+            = dialectSpecificSQLGenerator.upsertStatement(schemaNameAndTablePrefix + "Grant_Global_ResPerm_Sys",
+                                                          new String[]{"AccessorResourceId", "GrantorResourceId", "AccessedDomainId", "IsWithGrant", "ResourceClassId", "SysPermissionId"},
+                                                          new String[]{"AccessorResourceId", "AccessedDomainId", "ResourceClassId", "SysPermissionId"},
+                                                          new String[]{"GrantorResourceId", "IsWithGrant"},
+                                                          getParameterSourceQuery(dialectSpecificSQLGenerator,
+                                                                                  new String[]{"AccessorResourceId", "GrantorResourceId", "AccessedDomainId", "IsWithGrant", "ResourceClassId", "SysPermissionId"},
+                                                                                  null));
+
       SQL_removeInGrantGlobalResourcePermissionSys_BY_AccessorID
             = "DELETE FROM "
             + schemaNameAndTablePrefix
@@ -1425,6 +1587,17 @@ public class SQLStrings implements Serializable {
             + schemaNameAndTablePrefix
             + "ResourceClassPermission A WHERE A.ResourceClassId = ResourceClassId AND A.PermissionName = ? )";
 
+      SQL_upsertInGrantGlobalResourcePermission_WITH_AccessorID_GrantorID_AccessedDomainID_IsWithGrant_ResourceClassID_PermissionName
+            = dialectSpecificSQLGenerator.upsertStatement(schemaNameAndTablePrefix + "Grant_Global_ResPerm",
+                                                          new String[]{"AccessorResourceId", "GrantorResourceId", "AccessedDomainId", "IsWithGrant", "ResourceClassId", "PermissionId"},
+                                                          new String[]{"AccessorResourceId", "AccessedDomainId", "ResourceClassId", "PermissionId"},
+                                                          new String[]{"GrantorResourceId", "IsWithGrant"},
+                                                          getParameterSourceQuery(dialectSpecificSQLGenerator,
+                                                                                  new String[]{"AccessorResourceId", "GrantorResourceId", "AccessedDomainId", "IsWithGrant"},
+                                                                                  "A.ResourceClassId ResourceClassId, A.PermissionId PermissionId FROM "
+                                                                                        + schemaNameAndTablePrefix
+                                                                                        + "ResourceClassPermission A WHERE A.ResourceClassId = ? AND A.PermissionName = ?"));
+
       SQL_removeInGrantGlobalResourcePermission_BY_AccessorID
             = "DELETE FROM "
             + schemaNameAndTablePrefix
@@ -1554,9 +1727,122 @@ public class SQLStrings implements Serializable {
             + "Grant_Global_ResPerm "
             + "WHERE AccessorResourceId = ? AND ResourceClassId = ? AND PermissionId = ? AND ( ? IN ( 0, IsWithGrant ) )";
 
+      // ChangeLog
+      SQL_createInChangeLog_WITH_ChangeType_AccessorID_AccessedID_DomainName_ResourceClassName
+            = sqlProfile.isSequenceEnabled()
+              ? "INSERT INTO "
+                    + schemaNameAndTablePrefix
+                    + "ChangeLog ( ChangeVersion, ChangeType, AccessorResourceId, AccessedResourceId, DomainName, ResourceClassName ) VALUES ( "
+                    + dialectSpecificSQLGenerator.nextSequenceValueFragment(schemaNameAndTablePrefix + "ChangeVersion")
+                    + ", ?, ?, ?, ?, ? )"
+              : "INSERT INTO "
+                    + schemaNameAndTablePrefix
+                    + "ChangeLog ( ChangeType, AccessorResourceId, AccessedResourceId, DomainName, ResourceClassName ) VALUES ( ?, ?, ?, ?, ? )";
+
+      SQL_findInChangeLog_ChangeVersion_ChangeType_AccessorID_AccessedID_DomainName_ResourceClassName_BY_ChangeVersion
+            = "SELECT ChangeVersion, ChangeType, AccessorResourceId, AccessedResourceId, DomainName, ResourceClassName FROM "
+            + schemaNameAndTablePrefix
+            + "ChangeLog WHERE ChangeVersion > ? ORDER BY ChangeVersion";
+
+      SQL_findInChangeLog_MAXChangeVersion
+            = "SELECT MAX( ChangeVersion ) MAXChangeVersion FROM "
+            + schemaNameAndTablePrefix
+            + "ChangeLog";
+
+      SQL_removeInChangeLog_BY_ChangeVersion
+            = "DELETE FROM "
+            + schemaNameAndTablePrefix
+            + "ChangeLog WHERE ChangeVersion <= ?";
+
+      // ResourceFilter
+      SQL_findInResource_ResourceID_BY_ResourceClassID
+            = "SELECT R.ResourceId FROM "
+            + schemaNameAndTablePrefix
+            + "Resource R WHERE R.ResourceClassId = ?";
+
+      SQL_findInGrantResourcePermission_withoutInheritance_AccessedID_BY_ResourceClassID_PermissionID_IsWithGrant_AccessorIDs
+            = "SELECT G.AccessedResourceId FROM "
+            + schemaNameAndTablePrefix
+            + "Grant_ResPerm G WHERE G.ResourceClassId = ? AND G.PermissionId = ? AND ( ? IN ( 0, G.IsWithGrant ) ) AND ";
+
+      SQL_findInGrantResourcePermissionSys_withoutInheritance_AccessedID_BY_ResourceClassID_SysPermissionID_IsWithGrant_AccessorIDs
+            = "SELECT G.AccessedResourceId FROM "
+            + schemaNameAndTablePrefix
+            + "Grant_ResPerm_Sys G WHERE G.ResourceClassId = ? AND G.SysPermissionId = ? AND ( ? IN ( 0, G.IsWithGrant ) ) AND ";
+
+      SQL_findInResourceFilter_COUNTResourceID_PREFIX
+            = "SELECT COUNT( F.ResourceId ) COUNTResourceID FROM ( ";
+
+      SQL_findInResourceFilter_COUNTResourceID_SUFFIX
+            = " ) F";
+
+      SQL_findInResourceFilter_HasResource_PREFIX
+            = "SELECT CASE WHEN EXISTS ( ";
+
+      SQL_findInResourceFilter_HasResource_SUFFIX
+            = " ) THEN 1 ELSE 0 END HasResource"
+            + dialectSpecificSQLGenerator.singleRowFromClause();
+
+      // RedundantGrant
+      SQL_findInGrantResourcePermission_withoutInheritance_AccessorID
+            = "SELECT G.AccessorResourceId ResourceId FROM "
+            + schemaNameAndTablePrefix
+            + "Grant_ResPerm G UNION SELECT S.AccessorResourceId ResourceId FROM "
+            + schemaNameAndTablePrefix
+            + "Grant_ResPerm_Sys S WHERE S.SysPermissionId <> "
+            + ResourcePermission_INHERIT.getSystemPermissionId()
+            + " ORDER BY ResourceId";
+
+      SQL_findInGrantResourcePermission_withoutInheritance_AccessedID_BY_AccessorID
+            = "SELECT G.AccessedResourceId ResourceId FROM "
+            + schemaNameAndTablePrefix
+            + "Grant_ResPerm G WHERE G.AccessorResourceId = ? UNION SELECT S.AccessedResourceId ResourceId FROM "
+            + schemaNameAndTablePrefix
+            + "Grant_ResPerm_Sys S WHERE S.AccessorResourceId = ? AND S.SysPermissionId <> "
+            + ResourcePermission_INHERIT.getSystemPermissionId()
+            + " ORDER BY ResourceId";
+
       // Key generators
       SQL_nextResourceID
             = dialectSpecificSQLGenerator.nextSequenceValueStatement(schemaNameAndTablePrefix + "ResourceId");
+
+      SQL_nextResourceIDs
+            = dialectSpecificSQLGenerator.nextSequenceValuesStatement(schemaNameAndTablePrefix + "ResourceId");
+
+      // name the statements, so that statement events can identify them
+      SQLEvents.registerStatementIds(this);
+   }
+
+   // returns the specified row value constructor repeated as a comma separated list, for a multi-row insert
+   private static String getRowValueConstructors(String rowValueConstructor, int rowCount) {
+      final StringBuilder rowValueConstructors = new StringBuilder(rowValueConstructor);
+      for (int i = 1; i < rowCount; i++) {
+         rowValueConstructors.append(", ").append(rowValueConstructor);
+      }
+      return rowValueConstructors.toString();
+   }
+
+   // returns a single row query that selects a parameter for each of the specified columns, followed by the
+   // optional remainder of the query, or followed by the dialect's single row FROM clause if no remainder is given
+   private static String getParameterSourceQuery(DialectSpecificSQLGenerator dialectSpecificSQLGenerator,
+                                                 String[] parameterColumnNames,
+                                                 String remainderOfQuery) {
+      final StringBuilder sourceQuery = new StringBuilder("SELECT ");
+      for (int i = 0; i < parameterColumnNames.length; i++) {
+         if (i > 0) {
+            sourceQuery.append(", ");
+         }
+         // apart from the IDs, the only columns bound as parameters are the IsWithGrant flags
+         final String sqlType = parameterColumnNames[i].endsWith("Id") ? "BIGINT" : "SMALLINT";
+         sourceQuery.append(dialectSpecificSQLGenerator.parameterMarker(sqlType)).append(' ').append(parameterColumnNames[i]);
+      }
+      if (remainderOfQuery != null) {
+         sourceQuery.append(", ").append(remainderOfQuery);
+      }
+      else {
+         sourceQuery.append(dialectSpecificSQLGenerator.singleRowFromClause());
+      }
+      return sourceQuery.toString();
    }
 
    public SQLProfile getSqlProfile() {
@@ -33,14 +33,19 @@ public class TestAccessControlSuite  {
       suite.addTest(new JUnit4TestAdapter(TestAccessControl_assertResourceCreatePermissions.class));
       suite.addTest(new JUnit4TestAdapter(TestAccessControl_assertResourcePermissions.class));
       suite.addTest(new JUnit4TestAdapter(TestAccessControl_authenticate.class));
+      suite.addTest(new JUnit4TestAdapter(TestAccessControl_compilePermissionCheck.class));
+      suite.addTest(new JUnit4TestAdapter(TestAccessControl_countResourcesByResourcePermissions.class));
       suite.addTest(new JUnit4TestAdapter(TestAccessControl_createAuthenticatableResource.class));
       suite.addTest(new JUnit4TestAdapter(TestAccessControl_createDomain.class));
       suite.addTest(new JUnit4TestAdapter(TestAccessControl_createResource.class));
+      suite.addTest(new JUnit4TestAdapter(TestAccessControl_createResources.class));
       suite.addTest(new JUnit4TestAdapter(TestAccessControl_createResourceClass.class));
       suite.addTest(new JUnit4TestAdapter(TestAccessControl_createResourcePermission.class));
       suite.addTest(new JUnit4TestAdapter(TestAccessControl_customAuthenticationProvider.class));
       suite.addTest(new JUnit4TestAdapter(TestAccessControl_deleteDomain.class));
+      suite.addTest(new JUnit4TestAdapter(TestAccessControl_deleteDomainAndResources.class));
       suite.addTest(new JUnit4TestAdapter(TestAccessControl_deleteResource.class));
+      suite.addTest(new JUnit4TestAdapter(TestAccessControl_deleteResources.class));
       suite.addTest(new JUnit4TestAdapter(TestAccessControl_getAccessorResourcesByResourcePermissions.class));
       suite.addTest(new JUnit4TestAdapter(TestAccessControl_getAuthenticatedResource.class));
       suite.addTest(new JUnit4TestAdapter(TestAccessControl_getDomainCreatePermissions.class));
@@ -67,6 +72,7 @@ public class TestAccessControlSuite  {
       suite.addTest(new JUnit4TestAdapter(TestAccessControl_grantGlobalResourcePermissions.class));
       suite.addTest(new JUnit4TestAdapter(TestAccessControl_grantResourceCreatePermissions.class));
       suite.addTest(new JUnit4TestAdapter(TestAccessControl_grantResourcePermissions.class));
+      suite.addTest(new JUnit4TestAdapter(TestAccessControl_hasAnyResourceByResourcePermissions.class));
       suite.addTest(new JUnit4TestAdapter(TestAccessControl_hasDomainCreatePermissions.class));
       suite.addTest(new JUnit4TestAdapter(TestAccessControl_hasDomainPermissions.class));
       suite.addTest(new JUnit4TestAdapter(TestAccessControl_hasGlobalResourcePermissions.class));
@@ -75,6 +81,7 @@ public class TestAccessControlSuite  {
       suite.addTest(new JUnit4TestAdapter(TestAccessControl_hasResourceCreatePermissions.class));
       suite.addTest(new JUnit4TestAdapter(TestAccessControl_hasResourcePermissions.class));
       suite.addTest(new JUnit4TestAdapter(TestAccessControl_impersonate.class));
+      suite.addTest(new JUnit4TestAdapter(TestAccessControl_issueCapabilityToken.class));
       suite.addTest(new JUnit4TestAdapter(TestAccessControl_revokeDomainCreatePermissions.class));
       suite.addTest(new JUnit4TestAdapter(TestAccessControl_revokeDomainPermissions.class));
       suite.addTest(new JUnit4TestAdapter(TestAccessControl_revokeResourceCreatePermissions.class));
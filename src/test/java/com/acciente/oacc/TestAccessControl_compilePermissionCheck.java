@@ -0,0 +1,220 @@
+/*
+ * Copyright 2009-2016, Acciente LLC
+ *
+ * Acciente LLC licenses this file to you under the
+ * Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in
+ * writing, software distributed under the License is
+ * distributed on an "AS IS" BASIS, WITHOUT WARRANTIES
+ * OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.acciente.oacc;
+
+import org.junit.Test;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.hamcrest.CoreMatchers.containsString;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+public class TestAccessControl_compilePermissionCheck extends TestAccessControlBase {
+   @Test
+   public void compilePermissionCheck_validAsSystemResource() {
+      authenticateSystemResource();
+
+      final String resourceClassName = generateResourceClass(false, false);
+      final ResourcePermission customPermission
+            = ResourcePermissions.getInstance(generateResourceClassPermission(resourceClassName));
+      final ResourcePermission inheritPermission = ResourcePermissions.getInstance(ResourcePermissions.INHERIT);
+
+      final PermissionCheck permissionCheck
+            = accessControlContext.compilePermissionCheck(resourceClassName, customPermission, inheritPermission);
+      assertThat(permissionCheck.getResourceClassName(), is(resourceClassName));
+      assertThat(permissionCheck.getResourcePermissions(), is(setOf(customPermission, inheritPermission)));
+
+      final PermissionCheck permissionCheck2
+            = accessControlContext.compilePermissionCheck(" " + resourceClassName + " ", setOf(customPermission));
+      assertThat(permissionCheck2.getResourceClassName(), is(resourceClassName));
+      assertThat(permissionCheck2.getResourcePermissions(), is(setOf(customPermission)));
+
+      // verify
+      final Resource accessedResource = accessControlContext.createResource(resourceClassName,
+                                                                            accessControlContext
+                                                                                  .getDomainNameByResource(SYS_RESOURCE));
+      assertThat(accessControlContext.hasResourcePermissions(SYS_RESOURCE, accessedResource, permissionCheck), is(true));
+      accessControlContext.assertResourcePermissions(SYS_RESOURCE, accessedResource, permissionCheck2);
+   }
+
+   @Test
+   public void compilePermissionCheck_directPermissions_shouldSucceedAsAuthenticated() {
+      authenticateSystemResource();
+
+      final char[] password = generateUniquePassword();
+      final Resource accessorResource = generateAuthenticatableResource(password);
+      final Resource accessedResource = generateUnauthenticatableResource();
+      final String accessedResourceClassName
+            = accessControlContext.getResourceClassInfoByResource(accessedResource).getResourceClassName();
+      final ResourcePermission customPermission
+            = ResourcePermissions.getInstance(generateResourceClassPermission(accessedResourceClassName));
+      final ResourcePermission otherCustomPermission
+            = ResourcePermissions.getInstance(generateResourceClassPermission(accessedResourceClassName));
+
+      // setup direct permissions
+      accessControlContext.setResourcePermissions(accessorResource, accessedResource, setOf(customPermission));
+
+      // authenticate accessor resource
+      accessControlContext.authenticate(accessorResource, PasswordCredentials.newInstance(password));
+
+      // verify
+      final PermissionCheck grantedPermissionCheck
+            = accessControlContext.compilePermissionCheck(accessedResourceClassName, customPermission);
+      final PermissionCheck notGrantedPermissionCheck
+            = accessControlContext.compilePermissionCheck(accessedResourceClassName,
+                                                          customPermission,
+                                                          otherCustomPermission);
+
+      // a compiled check can be evaluated repeatedly
+      for (int i = 0; i < 3; i++) {
+         assertThat(accessControlContext.hasResourcePermissions(accessorResource,
+                                                                accessedResource,
+                                                                grantedPermissionCheck),
+                    is(true));
+         assertThat(accessControlContext.hasResourcePermissions(accessorResource,
+                                                                accessedResource,
+                                                                notGrantedPermissionCheck),
+                    is(false));
+      }
+
+      accessControlContext.assertResourcePermissions(accessorResource, accessedResource, grantedPermissionCheck);
+      try {
+         accessControlContext.assertResourcePermissions(accessorResource, accessedResource, notGrantedPermissionCheck);
+         fail("asserting a permission check with permissions that were not granted should have failed");
+      }
+      catch (NotAuthorizedException e) {
+         assertThat(e.getMessage().toLowerCase(), containsString("does not have permission"));
+      }
+   }
+
+   @Test
+   public void compilePermissionCheck_resourceOfOtherResourceClass_shouldFail() {
+      authenticateSystemResource();
+
+      final String resourceClassName = generateResourceClass(false, false);
+      final ResourcePermission customPermission
+            = ResourcePermissions.getInstance(generateResourceClassPermission(resourceClassName));
+      final PermissionCheck permissionCheck = accessControlContext.compilePermissionCheck(resourceClassName,
+                                                                                          customPermission);
+      final Resource otherResource = generateUnauthenticatableResource();
+
+      try {
+         accessControlContext.hasResourcePermissions(SYS_RESOURCE, otherResource, permissionCheck);
+         fail("evaluating a permission check on a resource of another resource class should have failed");
+      }
+      catch (IllegalArgumentException e) {
+         assertThat(e.getMessage().toLowerCase(), containsString("is not valid for resource"));
+      }
+   }
+
+   @Test
+   public void compilePermissionCheck_invalidPermissions_shouldFail() {
+      authenticateSystemResource();
+
+      final String resourceClassName = generateResourceClass(false, false);
+      final String otherResourceClassName = generateResourceClass(false, false);
+      final ResourcePermission otherCustomPermission
+            = ResourcePermissions.getInstance(generateResourceClassPermission(otherResourceClassName));
+
+      try {
+         accessControlContext.compilePermissionCheck(resourceClassName, otherCustomPermission);
+         fail("compiling a permission check with a permission of another resource class should have failed");
+      }
+      catch (IllegalArgumentException e) {
+         assertThat(e.getMessage().toLowerCase(), containsString("not defined for resource class"));
+      }
+      try {
+         accessControlContext.compilePermissionCheck(resourceClassName,
+                                                     ResourcePermissions.getInstance(ResourcePermissions.IMPERSONATE));
+         fail("compiling a permission check with a system permission invalid for the resource class should have failed");
+      }
+      catch (IllegalArgumentException e) {
+         assertThat(e.getMessage().toLowerCase(), containsString("not valid for unauthenticatable resource class"));
+      }
+      try {
+         accessControlContext.compilePermissionCheck("invalid_resource_class", otherCustomPermission);
+         fail("compiling a permission check for a non-existent resource class should have failed");
+      }
+      catch (IllegalArgumentException e) {
+         assertThat(e.getMessage().toLowerCase(), containsString("could not find resource class"));
+      }
+      try {
+         accessControlContext.compilePermissionCheck(resourceClassName, new HashSet<ResourcePermission>());
+         fail("compiling a permission check with an empty set of permissions should have failed");
+      }
+      catch (IllegalArgumentException e) {
+         assertThat(e.getMessage().toLowerCase(), containsString("permissions required"));
+      }
+   }
+
+   @Test
+   public void compilePermissionCheck_nulls_shouldFail() {
+      authenticateSystemResource();
+
+      final String resourceClassName = generateResourceClass(false, false);
+      final ResourcePermission customPermission
+            = ResourcePermissions.getInstance(generateResourceClassPermission(resourceClassName));
+
+      try {
+         accessControlContext.compilePermissionCheck(null, customPermission);
+         fail("compiling a permission check for a null resource class should have failed");
+      }
+      catch (NullPointerException e) {
+         assertThat(e.getMessage().toLowerCase(), containsString("resource class required"));
+      }
+      try {
+         accessControlContext.compilePermissionCheck(resourceClassName, (ResourcePermission) null);
+         fail("compiling a permission check with a null permission should have failed");
+      }
+      catch (NullPointerException e) {
+         assertThat(e.getMessage().toLowerCase(), containsString("permission required"));
+      }
+      try {
+         accessControlContext.compilePermissionCheck(resourceClassName, (Set<ResourcePermission>) null);
+         fail("compiling a permission check with a null permission set should have failed");
+      }
+      catch (NullPointerException e) {
+         assertThat(e.getMessage().toLowerCase(), containsString("permissions required"));
+      }
+      try {
+         accessControlContext.hasResourcePermissions(SYS_RESOURCE, SYS_RESOURCE, (PermissionCheck) null);
+         fail("evaluating a null permission check should have failed");
+      }
+      catch (NullPointerException e) {
+         assertThat(e.getMessage().toLowerCase(), containsString("permission check required"));
+      }
+   }
+
+   @Test
+   public void compilePermissionCheck_notAuthenticated_shouldFail() {
+      final String resourceClassName = generateResourceClass(false, false);
+      final ResourcePermission customPermission
+            = ResourcePermissions.getInstance(generateResourceClassPermission(resourceClassName));
+
+      try {
+         accessControlContext.compilePermissionCheck(resourceClassName, customPermission);
+         fail("compiling a permission check without an authenticated session should have failed");
+      }
+      catch (NotAuthenticatedException e) {
+         assertThat(e.getMessage().toLowerCase(), containsString("not authenticated"));
+      }
+   }
+}
@@ -0,0 +1,326 @@
+/*
+ * Copyright 2009-2016, Acciente LLC
+ *
+ * Acciente LLC licenses this file to you under the
+ * Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in
+ * writing, software distributed under the License is
+ * distributed on an "AS IS" BASIS, WITHOUT WARRANTIES
+ * OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.acciente.oacc;
+
+import org.junit.Test;
+
+import java.util.Set;
+
+import static org.hamcrest.CoreMatchers.containsString;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+public class TestAccessControl_countResourcesByResourcePermissions extends TestAccessControlBase {
+   @Test
+   public void countResourcesByResourcePermissions_emptyAsSystemResource() {
+      authenticateSystemResource();
+
+      final Resource accessorResource = generateUnauthenticatableResource();
+      final String resourceClassName = generateResourceClass(false, false);
+      final String permissionName = generateResourceClassPermission(resourceClassName);
+      final String domainName = generateDomain();
+
+      assertThat(accessControlContext.countResourcesByResourcePermissions(accessorResource,
+                                                                          resourceClassName,
+                                                                          ResourcePermissions.getInstance(permissionName)),
+                 is(0L));
+      assertThat(accessControlContext.countResourcesByResourcePermissions(accessorResource,
+                                                                          resourceClassName,
+                                                                          setOf(ResourcePermissions
+                                                                                      .getInstance(permissionName))),
+                 is(0L));
+      assertThat(accessControlContext.countResourcesByResourcePermissionsAndDomain(accessorResource,
+                                                                                   resourceClassName,
+                                                                                   domainName,
+                                                                                   ResourcePermissions
+                                                                                         .getInstance(permissionName)),
+                 is(0L));
+      assertThat(accessControlContext.countResourcesByResourcePermissionsAndDomain(accessorResource,
+                                                                                   resourceClassName,
+                                                                                   domainName,
+                                                                                   setOf(ResourcePermissions
+                                                                                               .getInstance(permissionName))),
+                 is(0L));
+   }
+
+   @Test
+   public void countResourcesByResourcePermissions_directInheritedGlobalAndSuperUser_validAsAuthenticated() {
+      authenticateSystemResource();
+
+      final char[] password = generateUniquePassword();
+      final Resource accessorResource = generateAuthenticatableResource(password);
+      final Resource donorResource = generateUnauthenticatableResource();
+
+      final String directDomain = generateDomain();
+      final String directChildDomain = generateChildDomain(directDomain);
+      final String globalDomain = generateDomain();
+      final String superUserDomain = generateDomain();
+      final String queriedResourceClass = generateResourceClass(false, false);
+      final String queriedPermission = generateResourceClassPermission(queriedResourceClass);
+      final String unqueriedPermission = generateResourceClassPermission(queriedResourceClass);
+      final ResourcePermission queriedResourcePermission = ResourcePermissions.getInstance(queriedPermission);
+
+      final Resource resource_direct = accessControlContext.createResource(queriedResourceClass, directDomain);
+      final Resource resource_inherited = accessControlContext.createResource(queriedResourceClass, directChildDomain);
+      final Resource resource_unqueriedPermission = accessControlContext.createResource(queriedResourceClass, directDomain);
+      accessControlContext.createResource(queriedResourceClass, globalDomain);
+      accessControlContext.createResource(queriedResourceClass, globalDomain);
+      accessControlContext.createResource(queriedResourceClass, superUserDomain);
+      accessControlContext.createResource(queriedResourceClass, generateDomain());
+
+      // direct permission, and an inherited one that also covers the directly accessible resource
+      accessControlContext.setResourcePermissions(accessorResource, resource_direct, setOf(queriedResourcePermission));
+      accessControlContext.setResourcePermissions(accessorResource,
+                                                  resource_unqueriedPermission,
+                                                  setOf(ResourcePermissions.getInstance(unqueriedPermission)));
+      accessControlContext.setResourcePermissions(donorResource, resource_direct, setOf(queriedResourcePermission));
+      accessControlContext.setResourcePermissions(donorResource, resource_inherited, setOf(queriedResourcePermission));
+      accessControlContext.setResourcePermissions(accessorResource,
+                                                  donorResource,
+                                                  setOf(ResourcePermissions.getInstance(ResourcePermissions.INHERIT)));
+
+      // global and super-user permissions
+      accessControlContext.setGlobalResourcePermissions(accessorResource,
+                                                        queriedResourceClass,
+                                                        globalDomain,
+                                                        setOf(queriedResourcePermission));
+      accessControlContext.setDomainPermissions(accessorResource,
+                                                superUserDomain,
+                                                setOf(DomainPermissions.getInstance(DomainPermissions.SUPER_USER)));
+
+      // verify as system resource
+      final long expectedCount
+            = accessControlContext.getResourcesByResourcePermissions(accessorResource,
+                                                                     queriedResourceClass,
+                                                                     queriedResourcePermission).size();
+      assertThat(expectedCount, is(5L));
+      __assertCounts(accessorResource,
+                     queriedResourceClass,
+                     directDomain,
+                     globalDomain,
+                     superUserDomain,
+                     queriedResourcePermission,
+                     expectedCount);
+
+      // authenticate as accessor and verify
+      accessControlContext.authenticate(accessorResource, PasswordCredentials.newInstance(password));
+
+      __assertCounts(accessorResource,
+                     queriedResourceClass,
+                     directDomain,
+                     globalDomain,
+                     superUserDomain,
+                     queriedResourcePermission,
+                     expectedCount);
+   }
+
+   private void __assertCounts(Resource accessorResource,
+                               String queriedResourceClass,
+                               String directDomain,
+                               String globalDomain,
+                               String superUserDomain,
+                               ResourcePermission queriedResourcePermission,
+                               long expectedCount) {
+      assertThat(accessControlContext.countResourcesByResourcePermissions(accessorResource,
+                                                                          queriedResourceClass,
+                                                                          queriedResourcePermission),
+                 is(expectedCount));
+      assertThat(accessControlContext.countResourcesByResourcePermissions(accessorResource,
+                                                                          queriedResourceClass,
+                                                                          setOf(queriedResourcePermission)),
+                 is(expectedCount));
+      assertThat(accessControlContext.countResourcesByResourcePermissionsAndDomain(accessorResource,
+                                                                                   queriedResourceClass,
+                                                                                   directDomain,
+                                                                                   queriedResourcePermission),
+                 is(2L));
+      assertThat(accessControlContext.countResourcesByResourcePermissionsAndDomain(accessorResource,
+                                                                                   queriedResourceClass,
+                                                                                   globalDomain,
+                                                                                   setOf(queriedResourcePermission)),
+                 is(2L));
+      assertThat(accessControlContext.countResourcesByResourcePermissionsAndDomain(accessorResource,
+                                                                                   queriedResourceClass,
+                                                                                   superUserDomain,
+                                                                                   queriedResourcePermission),
+                 is(1L));
+   }
+
+   @Test
+   public void countResourcesByResourcePermissions_multiplePermissions_validAsSystemResource() {
+      authenticateSystemResource();
+
+      final Resource accessorResource = generateUnauthenticatableResource();
+      final String resourceClassName = generateResourceClass(false, false);
+      final ResourcePermission permission1 = ResourcePermissions.getInstance(generateResourceClassPermission(resourceClassName));
+      final ResourcePermission permission2 = ResourcePermissions.getInstance(generateResourceClassPermission(resourceClassName));
+      final ResourcePermission sysPermission = ResourcePermissions.getInstance(ResourcePermissions.QUERY);
+      final String domainName = generateDomain();
+      final Resource resource_allPermissions = accessControlContext.createResource(resourceClassName, domainName);
+      final Resource resource_somePermissions = accessControlContext.createResource(resourceClassName, domainName);
+
+      accessControlContext.setResourcePermissions(accessorResource,
+                                                  resource_allPermissions,
+                                                  setOf(permission1, permission2, sysPermission));
+      accessControlContext.setResourcePermissions(accessorResource,
+                                                  resource_somePermissions,
+                                                  setOf(permission1, sysPermission));
+
+      // verify that all of the requested permissions are required
+      assertThat(accessControlContext.countResourcesByResourcePermissions(accessorResource,
+                                                                          resourceClassName,
+                                                                          permission1,
+                                                                          sysPermission),
+                 is(2L));
+      assertThat(accessControlContext.countResourcesByResourcePermissions(accessorResource,
+                                                                          resourceClassName,
+                                                                          setOf(permission1, permission2, sysPermission)),
+                 is(1L));
+      assertThat(accessControlContext.countResourcesByResourcePermissionsAndDomain(accessorResource,
+                                                                                   resourceClassName,
+                                                                                   domainName,
+                                                                                   permission2,
+                                                                                   sysPermission),
+                 is(1L));
+   }
+
+   @Test
+   public void countResourcesByResourcePermissions_withoutQueryAuthorization_shouldFailAsAuthenticated() {
+      authenticateSystemResource();
+
+      final char[] password = generateUniquePassword();
+      final Resource authenticatableResource = generateAuthenticatableResource(password);
+      final Resource accessorResource = generateAuthenticatableResource(generateUniquePassword());
+      final String queriedResourceClass = generateResourceClass(false, false);
+      final ResourcePermission queriedPermission
+            = ResourcePermissions.getInstance(generateResourceClassPermission(queriedResourceClass));
+      final String queriedDomain = generateDomain();
+
+      // authenticate without query authorization
+      accessControlContext.authenticate(authenticatableResource, PasswordCredentials.newInstance(password));
+
+      try {
+         accessControlContext.countResourcesByResourcePermissions(accessorResource, queriedResourceClass, queriedPermission);
+         fail("counting resources by resource permission without authorization should have failed");
+      }
+      catch (NotAuthorizedException e) {
+         assertThat(e.getMessage().toLowerCase(), containsString("is not authorized to query resource"));
+      }
+
+      try {
+         accessControlContext.countResourcesByResourcePermissionsAndDomain(accessorResource,
+                                                                           queriedResourceClass,
+                                                                           queriedDomain,
+                                                                           setOf(queriedPermission));
+         fail("counting resources by resource permission and domain without authorization should have failed");
+      }
+      catch (NotAuthorizedException e) {
+         assertThat(e.getMessage().toLowerCase(), containsString("is not authorized to query resource"));
+      }
+   }
+
+   @Test
+   public void countResourcesByResourcePermissions_nulls_shouldFail() {
+      authenticateSystemResource();
+
+      final Resource accessorResource = generateUnauthenticatableResource();
+      final String resourceClass = generateResourceClass(false, false);
+      final ResourcePermission resourcePermission
+            = ResourcePermissions.getInstance(generateResourceClassPermission(resourceClass));
+
+      try {
+         accessControlContext.countResourcesByResourcePermissions(null, resourceClass, resourcePermission);
+         fail("counting resources by resource permission with null accessor resource should have failed");
+      }
+      catch (NullPointerException e) {
+         assertThat(e.getMessage().toLowerCase(), containsString("resource required"));
+      }
+      try {
+         accessControlContext.countResourcesByResourcePermissions(accessorResource, null, resourcePermission);
+         fail("counting resources by resource permission with null resource class should have failed");
+      }
+      catch (NullPointerException e) {
+         assertThat(e.getMessage().toLowerCase(), containsString("resource class required"));
+      }
+      try {
+         accessControlContext.countResourcesByResourcePermissions(accessorResource,
+                                                                  resourceClass,
+                                                                  (Set<ResourcePermission>) null);
+         fail("counting resources by resource permission with null permission set should have failed");
+      }
+      catch (NullPointerException e) {
+         assertThat(e.getMessage().toLowerCase(), containsString("permissions required"));
+      }
+      try {
+         accessControlContext.countResourcesByResourcePermissionsAndDomain(accessorResource,
+                                                                           resourceClass,
+                                                                           null,
+                                                                           resourcePermission);
+         fail("counting resources by resource permission with null domain should have failed");
+      }
+      catch (NullPointerException e) {
+         assertThat(e.getMessage().toLowerCase(), containsString("domain required"));
+      }
+   }
+
+   @Test
+   public void countResourcesByResourcePermissions_nonExistentReferences_shouldFail() {
+      authenticateSystemResource();
+
+      final Resource accessorResource = generateUnauthenticatableResource();
+      final Resource nonExistentResource = Resources.getInstance(-999L);
+      final String resourceClass = generateResourceClass(false, false);
+      final ResourcePermission resourcePermission
+            = ResourcePermissions.getInstance(generateResourceClassPermission(resourceClass));
+
+      try {
+         accessControlContext.countResourcesByResourcePermissions(nonExistentResource, resourceClass, resourcePermission);
+         fail("counting resources by resource permission with non-existent accessor resource should have failed");
+      }
+      catch (IllegalArgumentException e) {
+         assertThat(e.getMessage().toLowerCase(), containsString(String.valueOf(nonExistentResource).toLowerCase() + " not found"));
+      }
+      try {
+         accessControlContext.countResourcesByResourcePermissions(accessorResource, "does_not_exist", resourcePermission);
+         fail("counting resources by resource permission with non-existent resource class name should have failed");
+      }
+      catch (IllegalArgumentException e) {
+         assertThat(e.getMessage().toLowerCase(), containsString("could not find resource class"));
+      }
+      try {
+         accessControlContext.countResourcesByResourcePermissionsAndDomain(accessorResource,
+                                                                           resourceClass,
+                                                                           "does_not_exist",
+                                                                           resourcePermission);
+         fail("counting resources by resource permission with non-existent domain should have failed");
+      }
+      catch (IllegalArgumentException e) {
+         assertThat(e.getMessage().toLowerCase(), containsString("could not find domain"));
+      }
+      try {
+         accessControlContext.countResourcesByResourcePermissions(accessorResource,
+                                                                  resourceClass,
+                                                                  ResourcePermissions.getInstance("does_not_exist"));
+         fail("counting resources by resource permission with non-existent permission should have failed");
+      }
+      catch (IllegalArgumentException e) {
+         assertThat(e.getMessage().toLowerCase(), containsString("is not defined for resource class"));
+      }
+   }
+}
@@ -0,0 +1,289 @@
+/*
+ * Copyright 2009-2016, Acciente LLC
+ *
+ * Acciente LLC licenses this file to you under the
+ * Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in
+ * writing, software distributed under the License is
+ * distributed on an "AS IS" BASIS, WITHOUT WARRANTIES
+ * OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.acciente.oacc;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.hamcrest.CoreMatchers.containsString;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+public class TestAccessControl_createResources extends TestAccessControlBase {
+   @Test
+   public void createResources_validAsSystemResource() {
+      authenticateSystemResource();
+
+      final String domainName = generateDomain();
+      final String resourceClassName = generateResourceClass(false, false);
+
+      // create resources and verify
+      final List<Resource> resources = accessControlContext.createResources(resourceClassName, domainName, 3);
+
+      assertThat(resources.size(), is(3));
+      assertThat(new HashSet<>(resources).size(), is(3));
+      for (Resource resource : resources) {
+         assertThat(accessControlContext.getDomainNameByResource(resource), is(domainName));
+         assertThat(accessControlContext.getResourceClassInfoByResource(resource).getResourceClassName(),
+                    is(resourceClassName));
+      }
+   }
+
+   @Test
+   public void createResources_moreThanOneBlock_validAsSystemResource() {
+      authenticateSystemResource();
+
+      final String domainName = generateDomain();
+      final String resourceClassName = generateResourceClass(false, false);
+      final int count = 450;
+
+      // create resources spanning several id blocks and verify
+      final List<Resource> resources = accessControlContext.createResources(resourceClassName, domainName, count);
+
+      assertThat(resources.size(), is(count));
+      assertThat(new HashSet<>(resources).size(), is(count));
+      assertThat(accessControlContext.getDomainNameByResource(resources.get(0)), is(domainName));
+      assertThat(accessControlContext.getDomainNameByResource(resources.get(count - 1)), is(domainName));
+   }
+
+   @Test
+   public void createResources_withExtIds_validAsSystemResource() {
+      authenticateSystemResource();
+
+      final String domainName = generateDomain();
+      final String resourceClassName = generateResourceClass(false, false);
+      final List<String> externalIds = Arrays.asList(generateUniqueExternalId(),
+                                                     generateUniqueExternalId(),
+                                                     generateUniqueExternalId());
+
+      // create resources and verify
+      final List<Resource> resources = accessControlContext.createResources(resourceClassName, domainName, externalIds);
+
+      assertThat(resources.size(), is(externalIds.size()));
+      for (int i = 0; i < externalIds.size(); i++) {
+         assertThat(resources.get(i).getExternalId(), is(externalIds.get(i)));
+         assertThat(accessControlContext.getDomainNameByResource(Resources.getInstance(externalIds.get(i))),
+                    is(domainName));
+      }
+   }
+
+   @Test
+   public void createResources_validAsAuthorized() {
+      final String domainName = generateDomain();
+      final String resourceClassName = generateResourceClass(false, false);
+
+      // set up an authenticatable resource with resource class create permission
+      final Resource authenticatedResource = generateResourceAndAuthenticate();
+      final String permissionName = generateResourceClassPermission(resourceClassName);
+      final ResourcePermission grantedResourcePermission = ResourcePermissions.getInstance(permissionName);
+      grantResourceCreatePermission(authenticatedResource, resourceClassName, domainName, permissionName);
+
+      // create resources and verify the post create permissions
+      final List<Resource> resources = accessControlContext.createResources(resourceClassName, domainName, 5);
+
+      final Set<Resource> expectedResources = new HashSet<>(resources);
+      Set<Resource> resourcesByPermission = accessControlContext.getResourcesByResourcePermissions(authenticatedResource,
+                                                                                                   resourceClassName,
+                                                                                                   grantedResourcePermission);
+      assertThat(resourcesByPermission, is(expectedResources));
+   }
+
+   @Test
+   public void createResources_validAsAuthorized_withPostCreateSysPermission() {
+      final String domainName = generateDomain();
+      final String resourceClassName = generateResourceClass(false, false);
+
+      // set up an authenticatable resource with resource class create permission incl. post create DELETE
+      final Resource authenticatedResource = generateResourceAndAuthenticate();
+      grantResourceCreatePermission(authenticatedResource, resourceClassName, domainName, ResourcePermissions.DELETE);
+
+      // create resources and verify the post create system permission
+      final List<Resource> resources = accessControlContext.createResources(resourceClassName,
+                                                                            domainName,
+                                                                            Collections.singletonList(generateUniqueExternalId()));
+
+      assertThat(accessControlContext.getEffectiveResourcePermissions(authenticatedResource, resources.get(0)),
+                 is(setOf(ResourcePermissions.getInstance(ResourcePermissions.DELETE))));
+   }
+
+   @Test
+   public void createResources_authenticatableResourceClass_withoutCredentials_shouldFail() {
+      authenticateSystemResource();
+
+      final String domainName = generateDomain();
+      final String resourceClassName = generateResourceClass(true, false);
+
+      try {
+         accessControlContext.createResources(resourceClassName, domainName, 2);
+         fail("creating resources without credentials for authenticatable resource class should have failed");
+      }
+      catch (InvalidCredentialsException e) {
+         assertThat(e.getMessage().toLowerCase(), containsString("credentials required"));
+      }
+   }
+
+   @Test
+   public void createResources_duplicateExternalId_shouldFail() {
+      authenticateSystemResource();
+
+      final String domainName = generateDomain();
+      final String resourceClassName = generateResourceClass(false, false);
+      final String externalId = generateUniqueExternalId();
+
+      // attempt to create resources with the same external id twice in one call
+      try {
+         accessControlContext.createResources(resourceClassName, domainName, Arrays.asList(externalId, externalId));
+         fail("creating resources with duplicate external ids should have failed");
+      }
+      catch (IllegalArgumentException e) {
+         assertThat(e.getMessage().toLowerCase(), containsString("duplicate external id"));
+      }
+
+      // attempt to create resources with an existing external id
+      accessControlContext.createResource(resourceClassName, domainName, externalId);
+      final String otherExternalId = generateUniqueExternalId();
+      try {
+         accessControlContext.createResources(resourceClassName, domainName, Arrays.asList(otherExternalId, externalId));
+         fail("creating resources with duplicate (i.e. non-unique) external id should have failed");
+      }
+      catch (IllegalArgumentException e) {
+         assertThat(e.getMessage().toLowerCase(), containsString("external id is not unique"));
+      }
+
+      // verify that none of the resources were created
+      try {
+         accessControlContext.getDomainNameByResource(Resources.getInstance(otherExternalId));
+         fail("resolving external id of resource that was not created should have failed");
+      }
+      catch (IllegalArgumentException e) {
+         assertThat(e.getMessage().toLowerCase(), containsString("not found"));
+      }
+   }
+
+   @Test
+   public void createResources_nulls_shouldFail() {
+      authenticateSystemResource();
+
+      final String domainName = generateDomain();
+      final String resourceClassName = generateResourceClass(false, false);
+
+      try {
+         accessControlContext.createResources(null, domainName, 1);
+         fail("creating resources with null resource class should have failed");
+      }
+      catch (NullPointerException e) {
+         assertThat(e.getMessage().toLowerCase(), containsString("resource class required"));
+      }
+      try {
+         accessControlContext.createResources(resourceClassName, null, 1);
+         fail("creating resources with null domain should have failed");
+      }
+      catch (NullPointerException e) {
+         assertThat(e.getMessage().toLowerCase(), containsString("domain required"));
+      }
+      try {
+         accessControlContext.createResources(resourceClassName, domainName, (List<String>) null);
+         fail("creating resources with null list of external ids should have failed");
+      }
+      catch (NullPointerException e) {
+         assertThat(e.getMessage().toLowerCase(), containsString("list of external ids required"));
+      }
+
+      final List<String> externalIds = new ArrayList<>();
+      externalIds.add(generateUniqueExternalId());
+      externalIds.add(null);
+      try {
+         accessControlContext.createResources(resourceClassName, domainName, externalIds);
+         fail("creating resources with null external id should have failed");
+      }
+      catch (NullPointerException e) {
+         assertThat(e.getMessage().toLowerCase(), containsString("external id required"));
+      }
+   }
+
+   @Test
+   public void createResources_emptyOrInvalidCount_shouldFail() {
+      authenticateSystemResource();
+
+      final String domainName = generateDomain();
+      final String resourceClassName = generateResourceClass(false, false);
+
+      try {
+         accessControlContext.createResources(resourceClassName, domainName, 0);
+         fail("creating zero resources should have failed");
+      }
+      catch (IllegalArgumentException e) {
+         assertThat(e.getMessage().toLowerCase(), containsString("at least one"));
+      }
+      try {
+         accessControlContext.createResources(resourceClassName, domainName, Collections.<String>emptyList());
+         fail("creating resources with empty list of external ids should have failed");
+      }
+      catch (IllegalArgumentException e) {
+         assertThat(e.getMessage().toLowerCase(), containsString("empty list specified"));
+      }
+   }
+
+   @Test
+   public void createResources_nonExistentReferences_shouldFail() {
+      authenticateSystemResource();
+
+      final String domainName = generateDomain();
+      final String resourceClassName = generateResourceClass(false, false);
+
+      try {
+         accessControlContext.createResources("invalid_resourceClass", domainName, 1);
+         fail("creating resources with non-existent resource class should have failed");
+      }
+      catch (IllegalArgumentException e) {
+         assertThat(e.getMessage().toLowerCase(), containsString("could not find resource class"));
+      }
+      try {
+         accessControlContext.createResources(resourceClassName, "invalid_domain", 1);
+         fail("creating resources with non-existent domain should have failed");
+      }
+      catch (IllegalArgumentException e) {
+         assertThat(e.getMessage().toLowerCase(), containsString("could not find domain"));
+      }
+   }
+
+   @Test
+   public void createResources_notAuthorized_shouldFail() {
+      final String domainName = generateDomain();
+      final String resourceClassName = generateResourceClass(false, false);
+
+      final Resource resource = generateResourceAndAuthenticate();
+
+      // attempt to create resources without create-permission authorization
+      try {
+         accessControlContext.createResources(resourceClassName, domainName, 2);
+         fail("creating resources without authorization should fail");
+      }
+      catch (NotAuthorizedException e) {
+         assertThat(e.getMessage().toLowerCase(), containsString(String.valueOf(resource).toLowerCase()
+                                                                       + " is not authorized to create resource"));
+      }
+   }
+}
@@ -0,0 +1,208 @@
+/*
+ * Copyright 2009-2016, Acciente LLC
+ *
+ * Acciente LLC licenses this file to you under the
+ * Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in
+ * writing, software distributed under the License is
+ * distributed on an "AS IS" BASIS, WITHOUT WARRANTIES
+ * OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.acciente.oacc;
+
+import org.junit.Test;
+
+import static junit.framework.TestCase.fail;
+import static org.hamcrest.CoreMatchers.containsString;
+import static org.hamcrest.CoreMatchers.hasItems;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+public class TestAccessControl_deleteDomainAndResources extends TestAccessControlBase {
+   @Test
+   public void deleteDomainAndResources_validAsSystemResource() {
+      authenticateSystemResource();
+
+      final String domainName_parent = generateUniqueDomainName();
+      final String domainName_child1 = "rd_child1Of-" + domainName_parent;
+      final String domainName_grandchild1 = "rd_grandchild1Of-" + domainName_child1;
+      final String otherDomain = generateDomain();
+
+      accessControlContext.createDomain(domainName_parent);
+      accessControlContext.createDomain(domainName_child1, domainName_parent);
+      accessControlContext.createDomain(domainName_grandchild1, domainName_child1);
+
+      // set up resources in the domain subtree, and one outside of it
+      final String resourceClassName = generateResourceClass(false, false);
+      final String externalId = generateUniqueExternalId();
+      final Resource parentResource = accessControlContext.createResource(resourceClassName, domainName_parent);
+      final Resource childResource = accessControlContext.createResource(resourceClassName,
+                                                                         domainName_child1,
+                                                                         externalId);
+      final Resource grandchildResource = accessControlContext.createResource(resourceClassName, domainName_grandchild1);
+      final Resource otherResource = accessControlContext.createResource(resourceClassName, otherDomain);
+
+      // set up permissions the subtree's resources have as accessors and as accessed resources
+      accessControlContext.setResourcePermissions(childResource,
+                                                  otherResource,
+                                                  setOf(ResourcePermissions.getInstance(ResourcePermissions.INHERIT)));
+      accessControlContext.setResourcePermissions(otherResource,
+                                                  grandchildResource,
+                                                  setOf(ResourcePermissions.getInstance(ResourcePermissions.INHERIT)));
+      grantDomainPermission(parentResource, otherDomain, DomainPermissions.getInstance(DomainPermissions.DELETE));
+      grantDomainPermission(otherResource, domainName_child1, DomainPermissions.getInstance(DomainPermissions.DELETE));
+
+      // delete domain and verify
+      assertThat(accessControlContext.deleteDomainAndResources(domainName_parent), is(true));
+
+      assertThat(accessControlContext.getDomainDescendants(domainName_parent).isEmpty(), is(true));
+      assertThat(accessControlContext.getDomainDescendants(domainName_child1).isEmpty(), is(true));
+      assertThat(accessControlContext.getDomainDescendants(domainName_grandchild1).isEmpty(), is(true));
+      assertThat(accessControlContext.getDomainDescendants(otherDomain), hasItems(otherDomain));
+
+      for (Resource obsoleteResource : setOf(parentResource, childResource, grandchildResource)) {
+         try {
+            accessControlContext.getDomainNameByResource(obsoleteResource);
+            fail("getting domain name for resource after deletion should have failed");
+         }
+         catch (IllegalArgumentException e) {
+            assertThat(e.getMessage().toLowerCase(), containsString("not found"));
+         }
+      }
+      try {
+         accessControlContext.getDomainNameByResource(Resources.getInstance(externalId));
+         fail("resolving external id of resource after deletion should have failed");
+      }
+      catch (IllegalArgumentException e) {
+         assertThat(e.getMessage().toLowerCase(), containsString("not found"));
+      }
+
+      assertThat(accessControlContext.getDomainNameByResource(otherResource), is(otherDomain));
+      assertThat(accessControlContext.getResourcesByResourcePermissions(otherResource,
+                                                                        resourceClassName,
+                                                                        ResourcePermissions
+                                                                              .getInstance(ResourcePermissions.INHERIT))
+                       .isEmpty(),
+                 is(true));
+      assertThat(accessControlContext.getDomainPermissionsMap(otherResource).isEmpty(), is(true));
+   }
+
+   @Test
+   public void deleteDomainAndResources_emptyDomain_shouldSucceed() {
+      authenticateSystemResource();
+
+      final String obsoleteDomain = generateDomain();
+
+      // delete domain and verify
+      assertThat(accessControlContext.deleteDomainAndResources(obsoleteDomain), is(true));
+      assertThat(accessControlContext.getDomainDescendants(obsoleteDomain).isEmpty(), is(true));
+   }
+
+   @Test
+   public void deleteDomainAndResources_repeatedly_shouldSucceed() {
+      authenticateSystemResource();
+
+      final String obsoleteDomain = generateDomain();
+      accessControlContext.createResource(generateResourceClass(false, false), obsoleteDomain);
+
+      // delete domain and verify
+      assertThat(accessControlContext.deleteDomainAndResources(obsoleteDomain), is(true));
+
+      // delete again and verify
+      assertThat(accessControlContext.deleteDomainAndResources(obsoleteDomain), is(false));
+   }
+
+   @Test
+   public void deleteDomainAndResources_authenticatedResource_shouldSucceed() {
+      authenticateSystemResource();
+
+      final String obsoleteDomain = generateDomain();
+      final char[] password = generateUniquePassword();
+      final Resource authenticatedResource
+            = accessControlContext.createResource(generateResourceClass(true, false),
+                                                  obsoleteDomain,
+                                                  PasswordCredentials.newInstance(password));
+      grantDomainPermission(authenticatedResource, obsoleteDomain, DomainPermissions.getInstance(DomainPermissions.SUPER_USER));
+
+      // authenticate, then delete the domain containing the authenticated resource
+      accessControlContext.authenticate(authenticatedResource, PasswordCredentials.newInstance(password));
+      assertThat(accessControlContext.deleteDomainAndResources(obsoleteDomain), is(true));
+
+      try {
+         accessControlContext.getSessionResource();
+         fail("getting session resource after deleting the authenticated resource should have failed");
+      }
+      catch (NotAuthenticatedException e) {
+         assertThat(e.getMessage().toLowerCase(), containsString("session not authenticated"));
+      }
+   }
+
+   @Test
+   public void deleteDomainAndResources_nulls_shouldFail() {
+      authenticateSystemResource();
+
+      try {
+         accessControlContext.deleteDomainAndResources(null);
+         fail("deleting domain with null reference should have failed");
+      }
+      catch (NullPointerException e) {
+         assertThat(e.getMessage().toLowerCase(), containsString("domain required"));
+      }
+   }
+
+   @Test
+   public void deleteDomainAndResources_nonExistentReferences_shouldSucceed() {
+      authenticateSystemResource();
+
+      assertThat(accessControlContext.deleteDomainAndResources("invalid_domain"), is(false));
+   }
+
+   @Test
+   public void deleteDomainAndResources_notAuthorizedForDomain_shouldFail() {
+      final String obsoleteDomain = generateDomain();
+
+      final Resource authenticatedResource = generateResourceAndAuthenticate();
+
+      try {
+         accessControlContext.deleteDomainAndResources(obsoleteDomain);
+         fail("deleting domain without authorization should have failed");
+      }
+      catch (NotAuthorizedException e) {
+         assertThat(e.getMessage().toLowerCase(), containsString(String.valueOf(authenticatedResource).toLowerCase()
+                                                                       + " does not have domain permission"));
+      }
+
+      assertThat(systemAccessControlContext.getDomainDescendants(obsoleteDomain), hasItems(obsoleteDomain));
+   }
+
+   @Test
+   public void deleteDomainAndResources_notAuthorizedForResources_shouldFail() {
+      final String obsoleteDomain = generateDomain();
+      final Resource containedResource
+            = systemAccessControlContext.createResource(generateResourceClass(false, false), obsoleteDomain);
+
+      // authorize the session resource to delete the domain, but not the resources contained in it
+      final Resource authenticatedResource = generateResourceAndAuthenticate();
+      grantDomainPermission(authenticatedResource, obsoleteDomain, DomainPermissions.getInstance(DomainPermissions.DELETE));
+
+      try {
+         accessControlContext.deleteDomainAndResources(obsoleteDomain);
+         fail("deleting domain without authorization to delete its resources should have failed");
+      }
+      catch (NotAuthorizedException e) {
+         assertThat(e.getMessage().toLowerCase(), containsString(String.valueOf(authenticatedResource).toLowerCase()
+                                                                       + " is not authorized to delete resource"));
+      }
+
+      // verify that neither the domain nor its resource was deleted
+      assertThat(systemAccessControlContext.getDomainDescendants(obsoleteDomain), hasItems(obsoleteDomain));
+      assertThat(systemAccessControlContext.getDomainNameByResource(containedResource), is(obsoleteDomain));
+   }
+}
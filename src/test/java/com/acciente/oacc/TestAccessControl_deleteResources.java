@@ -0,0 +1,249 @@
+/*
+ * Copyright 2009-2016, Acciente LLC
+ *
+ * Acciente LLC licenses this file to you under the
+ * Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in
+ * writing, software distributed under the License is
+ * distributed on an "AS IS" BASIS, WITHOUT WARRANTIES
+ * OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.acciente.oacc;
+
+import com.acciente.oacc.helper.FailingDataSource;
+import com.acciente.oacc.helper.TestConfigLoader;
+import com.acciente.oacc.sql.SQLAccessControlContextFactory;
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.Set;
+
+import static junit.framework.TestCase.fail;
+import static org.hamcrest.CoreMatchers.containsString;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+public class TestAccessControl_deleteResources extends TestAccessControlBase {
+   @Test
+   public void deleteResources_validAsSystemResource() {
+      authenticateSystemResource();
+
+      final String domainName = generateDomain();
+      final String resourceClassName = generateResourceClass(false, false);
+      final String externalId = generateUniqueExternalId();
+
+      // create resources
+      final Resource resource1 = accessControlContext.createResource(resourceClassName, domainName);
+      final Resource resource2 = accessControlContext.createResource(resourceClassName, domainName, externalId);
+      final Resource resource3 = accessControlContext.createResource(resourceClassName, domainName);
+
+      Set<Resource> resourcesByPermission
+            = accessControlContext.getResourcesByResourcePermissions(SYS_RESOURCE,
+                                                                     resourceClassName,
+                                                                     ResourcePermissions
+                                                                           .getInstance(ResourcePermissions.INHERIT));
+      assertThat(resourcesByPermission, is(setOf(resource1, resource2, resource3)));
+
+      // delete resources by resource id and by external id, and verify
+      assertThat(accessControlContext.deleteResources(setOf(Resources.getInstance(resource1.getId()),
+                                                            Resources.getInstance(externalId))),
+                 is(true));
+
+      Set<Resource> resourcesByPermission_postDelete
+            = accessControlContext.getResourcesByResourcePermissions(SYS_RESOURCE,
+                                                                     resourceClassName,
+                                                                     ResourcePermissions
+                                                                           .getInstance(ResourcePermissions.INHERIT));
+      assertThat(resourcesByPermission_postDelete, is(setOf(resource3)));
+
+      try {
+         accessControlContext.getDomainNameByResource(resource2);
+         fail("getting domain name for resource after deletion should have failed");
+      }
+      catch (IllegalArgumentException e) {
+         assertThat(e.getMessage().toLowerCase(), containsString("not found"));
+      }
+   }
+
+   @Test
+   public void deleteResources_validAsAuthorized() {
+      final String domainName = generateDomain();
+      final String resourceClassName = generateResourceClass(false, false);
+
+      // set up an authenticatable resource with resource class create permission
+      final Resource authenticatedResource = generateResourceAndAuthenticate();
+      final String permissionName = generateResourceClassPermission(resourceClassName);
+      final ResourcePermission grantedResourcePermission = ResourcePermissions.getInstance(permissionName);
+      grantResourceCreatePermission(authenticatedResource, resourceClassName, domainName, permissionName, ResourcePermissions.DELETE);
+
+      // create resources
+      final Resource resource1 = accessControlContext.createResource(resourceClassName, domainName);
+      final Resource resource2 = accessControlContext.createResource(resourceClassName, domainName);
+      final Resource resource3 = accessControlContext.createResource(resourceClassName, domainName);
+
+      // delete resources and verify
+      assertThat(accessControlContext.deleteResources(setOf(resource1, resource2)), is(true));
+
+      Set<Resource> resourcesByPermission_postDelete
+            = accessControlContext.getResourcesByResourcePermissions(authenticatedResource,
+                                                                     resourceClassName,
+                                                                     grantedResourcePermission);
+      assertThat(resourcesByPermission_postDelete, is(setOf(resource3)));
+   }
+
+   @Test
+   public void deleteResources_repeatedly_shouldSucceed() {
+      authenticateSystemResource();
+
+      final String domainName = generateDomain();
+      final String resourceClassName = generateResourceClass(false, false);
+      final Resource resource1 = accessControlContext.createResource(resourceClassName, domainName);
+      final Resource resource2 = accessControlContext.createResource(resourceClassName, domainName);
+
+      // delete resources and verify
+      assertThat(accessControlContext.deleteResources(setOf(resource1)), is(true));
+
+      // delete resources again, with one of them already deleted, and verify
+      assertThat(accessControlContext.deleteResources(setOf(resource1, resource2)), is(true));
+      assertThat(accessControlContext.deleteResources(setOf(resource1, resource2)), is(false));
+   }
+
+   @Test
+   public void deleteResources_authenticatedResource_shouldSucceed() {
+      authenticateSystemResource();
+
+      final String domainName = generateDomain();
+      final String resourceClassName = generateResourceClass(true, false);
+
+      final char[] password = generateUniquePassword();
+      final Resource authenticatedResource
+            = accessControlContext.createResource(resourceClassName,
+                                                  domainName,
+                                                  PasswordCredentials.newInstance(password));
+      final Resource otherResource = accessControlContext.createResource(resourceClassName,
+                                                                         domainName,
+                                                                         PasswordCredentials.newInstance(password));
+      accessControlContext.setResourcePermissions(authenticatedResource,
+                                                  authenticatedResource,
+                                                  setOf(ResourcePermissions.getInstance(ResourcePermissions.DELETE)));
+      accessControlContext.setResourcePermissions(authenticatedResource,
+                                                  otherResource,
+                                                  setOf(ResourcePermissions.getInstance(ResourcePermissions.DELETE)));
+
+      // authenticate, then delete the authenticated resource along with another resource
+      accessControlContext.authenticate(authenticatedResource, PasswordCredentials.newInstance(password));
+      assertThat(accessControlContext.deleteResources(setOf(authenticatedResource, otherResource)), is(true));
+
+      try {
+         accessControlContext.getSessionResource();
+         fail("getting session resource after deleting the authenticated resource should have failed");
+      }
+      catch (NotAuthenticatedException e) {
+         assertThat(e.getMessage().toLowerCase(), containsString("session not authenticated"));
+      }
+   }
+
+   @Test
+   public void deleteResources_nulls_shouldFail() {
+      authenticateSystemResource();
+
+      try {
+         accessControlContext.deleteResources(null);
+         fail("deleting resources with null set reference should have failed");
+      }
+      catch (NullPointerException e) {
+         assertThat(e.getMessage().toLowerCase(), containsString("set of resources required"));
+      }
+
+      try {
+         accessControlContext.deleteResources(setOf(Resources.getInstance(-999L), null));
+         fail("deleting resources with null element should have failed");
+      }
+      catch (NullPointerException e) {
+         assertThat(e.getMessage().toLowerCase(), containsString("contains null element"));
+      }
+   }
+
+   @Test
+   public void deleteResources_emptySet_shouldFail() {
+      authenticateSystemResource();
+
+      try {
+         accessControlContext.deleteResources(Collections.<Resource>emptySet());
+         fail("deleting resources with empty set should have failed");
+      }
+      catch (IllegalArgumentException e) {
+         assertThat(e.getMessage().toLowerCase(), containsString("empty set specified"));
+      }
+   }
+
+   @Test
+   public void deleteResources_nonExistentReferences_shouldSucceed() {
+      authenticateSystemResource();
+
+      assertThat(accessControlContext.deleteResources(setOf(Resources.getInstance(-999L),
+                                                            Resources.getInstance("invalid"))),
+                 is(false));
+   }
+
+   @Test
+   public void deleteResources_notAuthorized_shouldFail() {
+      final Resource obsoleteResource = generateUnauthenticatableResource();
+      final Resource unauthorizedResource = generateUnauthenticatableResource();
+
+      final Resource resource = generateResourceAndAuthenticate();
+      systemAccessControlContext.grantResourcePermissions(resource,
+                                                          obsoleteResource,
+                                                          ResourcePermissions.getInstance(ResourcePermissions.DELETE));
+
+      // attempt to delete resources when only authorized to delete one of them
+      try {
+         accessControlContext.deleteResources(setOf(obsoleteResource, unauthorizedResource));
+         fail("deleting resources without authorization should fail");
+      }
+      catch (NotAuthorizedException e) {
+         assertThat(e.getMessage().toLowerCase(), containsString(String.valueOf(resource).toLowerCase()
+                                                                       + " is not authorized to delete resource"));
+      }
+
+      // verify that neither resource was deleted
+      systemAccessControlContext.getDomainNameByResource(obsoleteResource);
+      systemAccessControlContext.getDomainNameByResource(unauthorizedResource);
+   }
+
+   @Test
+   public void deleteResources_failureAfterDeletingCredentials_shouldKeepCredentials() {
+      authenticateSystemResource();
+
+      final char[] password = generateUniquePassword();
+      final Resource authenticatableResource = generateAuthenticatableResource(password);
+
+      // the resources themselves are deleted after their credentials, so failing their delete rolls back both
+      final FailingDataSource failingDataSource
+            = new FailingDataSource(TestConfigLoader.getDataSource(), "DELETE FROM .*Resource WHERE ResourceId = \\?");
+      final AccessControlContext failingAccessControlContext
+            = SQLAccessControlContextFactory.getAccessControlContext(failingDataSource.getDataSource(),
+                                                                     TestConfigLoader.getDatabaseSchema(),
+                                                                     TestConfigLoader.getSQLProfile());
+      failingAccessControlContext.authenticate(SYS_RESOURCE,
+                                               PasswordCredentials.newInstance(TestConfigLoader.getOaccRootPassword()));
+
+      try {
+         failingAccessControlContext.deleteResources(setOf(authenticatableResource));
+         fail("deleting resources should have failed");
+      }
+      catch (RuntimeException e) {
+         assertThat(e.getMessage().toLowerCase(), containsString("simulated failure"));
+      }
+
+      accessControlContext.authenticate(authenticatableResource, PasswordCredentials.newInstance(password));
+      assertThat(accessControlContext.getSessionResource(), is(authenticatableResource));
+   }
+}
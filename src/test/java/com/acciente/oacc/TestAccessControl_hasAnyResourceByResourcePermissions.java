@@ -0,0 +1,219 @@
+/*
+ * Copyright 2009-2016, Acciente LLC
+ *
+ * Acciente LLC licenses this file to you under the
+ * Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in
+ * writing, software distributed under the License is
+ * distributed on an "AS IS" BASIS, WITHOUT WARRANTIES
+ * OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.acciente.oacc;
+
+import org.junit.Test;
+
+import java.util.Set;
+
+import static org.hamcrest.CoreMatchers.containsString;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+public class TestAccessControl_hasAnyResourceByResourcePermissions extends TestAccessControlBase {
+   @Test
+   public void hasAnyResourceByResourcePermissions_emptyAsSystemResource() {
+      authenticateSystemResource();
+
+      final Resource accessorResource = generateUnauthenticatableResource();
+      final String resourceClassName = generateResourceClass(false, false);
+      final String permissionName = generateResourceClassPermission(resourceClassName);
+      final String domainName = generateDomain();
+
+      assertThat(accessControlContext.hasAnyResourceByResourcePermissions(accessorResource,
+                                                                          resourceClassName,
+                                                                          ResourcePermissions.getInstance(permissionName)),
+                 is(false));
+      assertThat(accessControlContext.hasAnyResourceByResourcePermissions(accessorResource,
+                                                                          resourceClassName,
+                                                                          setOf(ResourcePermissions
+                                                                                      .getInstance(permissionName))),
+                 is(false));
+      assertThat(accessControlContext.hasAnyResourceByResourcePermissionsAndDomain(accessorResource,
+                                                                                   resourceClassName,
+                                                                                   domainName,
+                                                                                   ResourcePermissions
+                                                                                         .getInstance(permissionName)),
+                 is(false));
+      assertThat(accessControlContext.hasAnyResourceByResourcePermissionsAndDomain(accessorResource,
+                                                                                   resourceClassName,
+                                                                                   domainName,
+                                                                                   setOf(ResourcePermissions
+                                                                                               .getInstance(permissionName))),
+                 is(false));
+   }
+
+   @Test
+   public void hasAnyResourceByResourcePermissions_direct_validAsAuthenticated() {
+      authenticateSystemResource();
+
+      final char[] password = generateUniquePassword();
+      final Resource accessorResource = generateAuthenticatableResource(password);
+      final String queriedDomain = generateDomain();
+      final String queriedChildDomain = generateChildDomain(queriedDomain);
+      final String unqueriedDomain = generateDomain();
+      final String queriedResourceClass = generateResourceClass(false, false);
+      final ResourcePermission queriedPermission
+            = ResourcePermissions.getInstance(generateResourceClassPermission(queriedResourceClass));
+      final ResourcePermission unqueriedPermission
+            = ResourcePermissions.getInstance(generateResourceClassPermission(queriedResourceClass));
+      final Resource resource_childDomain = accessControlContext.createResource(queriedResourceClass, queriedChildDomain);
+      final Resource resource_unqueriedDomain = accessControlContext.createResource(queriedResourceClass, unqueriedDomain);
+
+      accessControlContext.setResourcePermissions(accessorResource, resource_childDomain, setOf(queriedPermission));
+      accessControlContext.setResourcePermissions(accessorResource, resource_unqueriedDomain, setOf(unqueriedPermission));
+
+      // verify as system resource
+      __assertHasAnyResource(accessorResource, queriedResourceClass, queriedDomain, unqueriedDomain, queriedPermission);
+
+      // authenticate as accessor and verify
+      accessControlContext.authenticate(accessorResource, PasswordCredentials.newInstance(password));
+
+      __assertHasAnyResource(accessorResource, queriedResourceClass, queriedDomain, unqueriedDomain, queriedPermission);
+   }
+
+   private void __assertHasAnyResource(Resource accessorResource,
+                                       String queriedResourceClass,
+                                       String queriedDomain,
+                                       String unqueriedDomain,
+                                       ResourcePermission queriedPermission) {
+      assertThat(accessControlContext.hasAnyResourceByResourcePermissions(accessorResource,
+                                                                          queriedResourceClass,
+                                                                          queriedPermission),
+                 is(true));
+      assertThat(accessControlContext.hasAnyResourceByResourcePermissions(accessorResource,
+                                                                          queriedResourceClass,
+                                                                          setOf(queriedPermission)),
+                 is(true));
+      assertThat(accessControlContext.hasAnyResourceByResourcePermissionsAndDomain(accessorResource,
+                                                                                   queriedResourceClass,
+                                                                                   queriedDomain,
+                                                                                   queriedPermission),
+                 is(true));
+      assertThat(accessControlContext.hasAnyResourceByResourcePermissionsAndDomain(accessorResource,
+                                                                                   queriedResourceClass,
+                                                                                   unqueriedDomain,
+                                                                                   setOf(queriedPermission)),
+                 is(false));
+   }
+
+   @Test
+   public void hasAnyResourceByResourcePermissions_globalAndSuperUser_validAsSystemResource() {
+      authenticateSystemResource();
+
+      final Resource accessorResource = generateUnauthenticatableResource();
+      final String globalDomain = generateDomain();
+      final String superUserDomain = generateDomain();
+      final String emptyDomain = generateDomain();
+      final String queriedResourceClass = generateResourceClass(false, false);
+      final ResourcePermission queriedPermission
+            = ResourcePermissions.getInstance(generateResourceClassPermission(queriedResourceClass));
+      accessControlContext.createResource(queriedResourceClass, globalDomain);
+      accessControlContext.createResource(queriedResourceClass, superUserDomain);
+
+      accessControlContext.setGlobalResourcePermissions(accessorResource,
+                                                        queriedResourceClass,
+                                                        globalDomain,
+                                                        setOf(queriedPermission));
+      accessControlContext.setGlobalResourcePermissions(accessorResource,
+                                                        queriedResourceClass,
+                                                        emptyDomain,
+                                                        setOf(queriedPermission));
+      accessControlContext.setDomainPermissions(accessorResource,
+                                                superUserDomain,
+                                                setOf(DomainPermissions.getInstance(DomainPermissions.SUPER_USER)));
+
+      assertThat(accessControlContext.hasAnyResourceByResourcePermissionsAndDomain(accessorResource,
+                                                                                   queriedResourceClass,
+                                                                                   globalDomain,
+                                                                                   queriedPermission),
+                 is(true));
+      assertThat(accessControlContext.hasAnyResourceByResourcePermissionsAndDomain(accessorResource,
+                                                                                   queriedResourceClass,
+                                                                                   superUserDomain,
+                                                                                   queriedPermission),
+                 is(true));
+      // a global permission on a domain without resources does not make any resource accessible
+      assertThat(accessControlContext.hasAnyResourceByResourcePermissionsAndDomain(accessorResource,
+                                                                                   queriedResourceClass,
+                                                                                   emptyDomain,
+                                                                                   queriedPermission),
+                 is(false));
+   }
+
+   @Test
+   public void hasAnyResourceByResourcePermissions_withoutQueryAuthorization_shouldFailAsAuthenticated() {
+      authenticateSystemResource();
+
+      final char[] password = generateUniquePassword();
+      final Resource authenticatableResource = generateAuthenticatableResource(password);
+      final Resource accessorResource = generateAuthenticatableResource(generateUniquePassword());
+      final String queriedResourceClass = generateResourceClass(false, false);
+      final ResourcePermission queriedPermission
+            = ResourcePermissions.getInstance(generateResourceClassPermission(queriedResourceClass));
+
+      // authenticate without query authorization
+      accessControlContext.authenticate(authenticatableResource, PasswordCredentials.newInstance(password));
+
+      try {
+         accessControlContext.hasAnyResourceByResourcePermissions(accessorResource, queriedResourceClass, queriedPermission);
+         fail("checking for any resource by resource permission without authorization should have failed");
+      }
+      catch (NotAuthorizedException e) {
+         assertThat(e.getMessage().toLowerCase(), containsString("is not authorized to query resource"));
+      }
+   }
+
+   @Test
+   public void hasAnyResourceByResourcePermissions_nulls_shouldFail() {
+      authenticateSystemResource();
+
+      final Resource accessorResource = generateUnauthenticatableResource();
+      final String resourceClass = generateResourceClass(false, false);
+      final ResourcePermission resourcePermission
+            = ResourcePermissions.getInstance(generateResourceClassPermission(resourceClass));
+
+      try {
+         accessControlContext.hasAnyResourceByResourcePermissions(null, resourceClass, resourcePermission);
+         fail("checking for any resource by resource permission with null accessor resource should have failed");
+      }
+      catch (NullPointerException e) {
+         assertThat(e.getMessage().toLowerCase(), containsString("resource required"));
+      }
+      try {
+         accessControlContext.hasAnyResourceByResourcePermissions(accessorResource,
+                                                                  resourceClass,
+                                                                  (Set<ResourcePermission>) null);
+         fail("checking for any resource by resource permission with null permission set should have failed");
+      }
+      catch (NullPointerException e) {
+         assertThat(e.getMessage().toLowerCase(), containsString("permissions required"));
+      }
+      try {
+         accessControlContext.hasAnyResourceByResourcePermissionsAndDomain(accessorResource,
+                                                                           resourceClass,
+                                                                           null,
+                                                                           resourcePermission);
+         fail("checking for any resource by resource permission with null domain should have failed");
+      }
+      catch (NullPointerException e) {
+         assertThat(e.getMessage().toLowerCase(), containsString("domain required"));
+      }
+   }
+}
@@ -0,0 +1,221 @@
+/*
+ * Copyright 2009-2016, Acciente LLC
+ *
+ * Acciente LLC licenses this file to you under the
+ * Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in
+ * writing, software distributed under the License is
+ * distributed on an "AS IS" BASIS, WITHOUT WARRANTIES
+ * OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.acciente.oacc;
+
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Set;
+
+import static org.hamcrest.CoreMatchers.containsString;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+public class TestAccessControl_issueCapabilityToken extends TestAccessControlBase {
+   private static final byte[] SIGNING_KEY = "capability-token-test-key".getBytes(StandardCharsets.UTF_8);
+
+   @Test
+   public void issueCapabilityToken_validAsAuthenticated() {
+      authenticateSystemResource();
+
+      final char[] password = generateUniquePassword();
+      final Resource accessorResource = generateAuthenticatableResource(password);
+      final String resourceClassName = generateResourceClass(false, false);
+      final ResourcePermission permission = ResourcePermissions.getInstance(generateResourceClassPermission(resourceClassName));
+      final ResourcePermission otherPermission
+            = ResourcePermissions.getInstance(generateResourceClassPermission(resourceClassName));
+      final String domainName = generateDomain();
+      final Resource accessedResource = accessControlContext.createResource(resourceClassName, domainName);
+      final Resource inaccessibleResource = accessControlContext.createResource(resourceClassName, domainName);
+
+      accessControlContext.setResourcePermissions(accessorResource, accessedResource, setOf(permission));
+
+      // authenticate as accessor and issue a token for its own permissions
+      accessControlContext.authenticate(accessorResource, PasswordCredentials.newInstance(password));
+
+      final String signedToken
+            = accessControlContext.issueCapabilityToken(SIGNING_KEY,
+                                                        60000,
+                                                        setOf(accessedResource, inaccessibleResource));
+
+      final CapabilityTokenVerifier verifier = new CapabilityTokenVerifier(SIGNING_KEY);
+      final CapabilityToken capabilityToken = verifier.verify(signedToken);
+
+      assertThat(capabilityToken.getAccessorResource().getId(), is(accessorResource.getId()));
+      assertThat(capabilityToken.getResourcePermissions(accessedResource),
+                 is(accessControlContext.getEffectiveResourcePermissions(accessorResource, accessedResource)));
+      assertThat(verifier.hasResourcePermissions(signedToken, accessedResource, permission), is(true));
+      assertThat(verifier.hasResourcePermissions(signedToken, accessedResource, otherPermission), is(false));
+      assertThat(verifier.hasResourcePermissions(signedToken, inaccessibleResource, permission), is(false));
+   }
+
+   @Test
+   public void issueCapabilityToken_withExtId() {
+      authenticateSystemResource();
+
+      final char[] password = generateUniquePassword();
+      final Resource accessorResource = generateAuthenticatableResource(password);
+      final String resourceClassName = generateResourceClass(false, false);
+      final ResourcePermission permission = ResourcePermissions.getInstance(generateResourceClassPermission(resourceClassName));
+      final String externalId = generateUniqueExternalId();
+      final Resource accessedResource
+            = accessControlContext.createResource(resourceClassName, generateDomain(), externalId);
+
+      accessControlContext.setResourcePermissions(accessorResource, accessedResource, setOf(permission));
+
+      accessControlContext.authenticate(accessorResource, PasswordCredentials.newInstance(password));
+
+      final String signedToken
+            = accessControlContext.issueCapabilityToken(SIGNING_KEY, 60000, setOf(Resources.getInstance(externalId)));
+
+      final CapabilityTokenVerifier verifier = new CapabilityTokenVerifier(SIGNING_KEY);
+      assertThat(verifier.hasResourcePermissions(signedToken, Resources.getInstance(externalId), permission), is(true));
+      assertThat(verifier.hasResourcePermissions(signedToken, Resources.getInstance(accessedResource.getId()), permission),
+                 is(true));
+   }
+
+   @Test
+   public void issueCapabilityTokenByDomain_validAsAuthenticated() {
+      authenticateSystemResource();
+
+      final char[] password = generateUniquePassword();
+      final Resource accessorResource = generateAuthenticatableResource(password);
+      final String resourceClassName = generateResourceClass(false, false);
+      final ResourcePermission permission = ResourcePermissions.getInstance(generateResourceClassPermission(resourceClassName));
+      final ResourcePermission permissionWithGrant
+            = ResourcePermissions.getInstanceWithGrantOption(permission.getPermissionName());
+      final String domainName = generateDomain();
+      final String childDomainName = generateChildDomain(domainName);
+      final String globalDomainName = generateChildDomain(domainName);
+      final String otherDomainName = generateDomain();
+      final Resource directResource = accessControlContext.createResource(resourceClassName, domainName);
+      final Resource grantableResource = accessControlContext.createResource(resourceClassName, childDomainName);
+      final Resource globalResource = accessControlContext.createResource(resourceClassName, globalDomainName);
+      final Resource inaccessibleResource = accessControlContext.createResource(resourceClassName, domainName);
+      final Resource otherDomainResource = accessControlContext.createResource(resourceClassName, otherDomainName);
+
+      accessControlContext.setResourcePermissions(accessorResource, directResource, setOf(permission));
+      accessControlContext.setResourcePermissions(accessorResource, grantableResource, setOf(permissionWithGrant));
+      accessControlContext.setResourcePermissions(accessorResource, otherDomainResource, setOf(permission));
+      accessControlContext.setGlobalResourcePermissions(accessorResource,
+                                                        resourceClassName,
+                                                        globalDomainName,
+                                                        setOf(ResourcePermissions
+                                                                    .getInstance(ResourcePermissions.QUERY)));
+
+      accessControlContext.authenticate(accessorResource, PasswordCredentials.newInstance(password));
+
+      final String signedToken
+            = accessControlContext.issueCapabilityTokenByDomain(SIGNING_KEY, 60000, resourceClassName, domainName);
+
+      final CapabilityTokenVerifier verifier = new CapabilityTokenVerifier(SIGNING_KEY);
+      final CapabilityToken capabilityToken = verifier.verify(signedToken);
+
+      assertThat(capabilityToken.getResourcePermissions(directResource), is(setOf(permission)));
+      assertThat(capabilityToken.getResourcePermissions(grantableResource), is(setOf(permissionWithGrant)));
+      assertThat(capabilityToken.getResourcePermissions(globalResource),
+                 is(setOf(ResourcePermissions.getInstance(ResourcePermissions.QUERY))));
+      assertThat(capabilityToken.hasResourcePermissions(grantableResource, permission), is(true));
+      assertThat(capabilityToken.hasResourcePermissions(inaccessibleResource, permission), is(false));
+      // resources outside of the domain are not covered by the token
+      assertThat(capabilityToken.hasResourcePermissions(otherDomainResource, permission), is(false));
+   }
+
+   @Test
+   public void issueCapabilityToken_nulls_shouldFail() {
+      authenticateSystemResource();
+
+      final Resource accessedResource = generateUnauthenticatableResource();
+      final String resourceClassName = generateResourceClass(false, false);
+      final String domainName = generateDomain();
+
+      try {
+         accessControlContext.issueCapabilityToken(null, 60000, setOf(accessedResource));
+         fail("issuing a capability token without a signing key should have failed");
+      }
+      catch (NullPointerException e) {
+         assertThat(e.getMessage().toLowerCase(), containsString("signing key required"));
+      }
+      try {
+         accessControlContext.issueCapabilityToken(SIGNING_KEY, 60000, (Set<Resource>) null);
+         fail("issuing a capability token without resources should have failed");
+      }
+      catch (NullPointerException e) {
+         assertThat(e.getMessage().toLowerCase(), containsString("set of resources required"));
+      }
+      try {
+         accessControlContext.issueCapabilityTokenByDomain(SIGNING_KEY, 60000, null, domainName);
+         fail("issuing a capability token without a resource class should have failed");
+      }
+      catch (NullPointerException e) {
+         assertThat(e.getMessage().toLowerCase(), containsString("resource class required"));
+      }
+      try {
+         accessControlContext.issueCapabilityTokenByDomain(SIGNING_KEY, 60000, resourceClassName, null);
+         fail("issuing a capability token without a domain should have failed");
+      }
+      catch (NullPointerException e) {
+         assertThat(e.getMessage().toLowerCase(), containsString("domain required"));
+      }
+   }
+
+   @Test
+   public void issueCapabilityToken_invalidArguments_shouldFail() {
+      authenticateSystemResource();
+
+      final Resource accessedResource = generateUnauthenticatableResource();
+      final String resourceClassName = generateResourceClass(false, false);
+
+      try {
+         accessControlContext.issueCapabilityToken(new byte[8], 60000, setOf(accessedResource));
+         fail("issuing a capability token with a short signing key should have failed");
+      }
+      catch (IllegalArgumentException e) {
+         assertThat(e.getMessage().toLowerCase(), containsString("at least 16 bytes"));
+      }
+      try {
+         accessControlContext.issueCapabilityToken(SIGNING_KEY, 0, setOf(accessedResource));
+         fail("issuing a capability token with a non-positive validity should have failed");
+      }
+      catch (IllegalArgumentException e) {
+         assertThat(e.getMessage().toLowerCase(), containsString("validity must be positive"));
+      }
+      try {
+         accessControlContext.issueCapabilityToken(SIGNING_KEY, 60000, setOf(Resources.getInstance(-999L)));
+         fail("issuing a capability token for a non-existent resource should have failed");
+      }
+      catch (IllegalArgumentException e) {
+         assertThat(e.getMessage().toLowerCase(), containsString("not found"));
+      }
+      try {
+         accessControlContext.issueCapabilityTokenByDomain(SIGNING_KEY, 60000, resourceClassName, "does_not_exist");
+         fail("issuing a capability token for a non-existent domain should have failed");
+      }
+      catch (IllegalArgumentException e) {
+         assertThat(e.getMessage().toLowerCase(), containsString("could not find domain"));
+      }
+      try {
+         accessControlContext.issueCapabilityTokenByDomain(SIGNING_KEY, 60000, "does_not_exist", generateDomain());
+         fail("issuing a capability token for a non-existent resource class should have failed");
+      }
+      catch (IllegalArgumentException e) {
+         assertThat(e.getMessage().toLowerCase(), containsString("could not find resource class"));
+      }
+   }
+}
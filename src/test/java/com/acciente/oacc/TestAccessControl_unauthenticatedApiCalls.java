@@ -19,6 +19,7 @@ package com.acciente.oacc;
 
 import org.junit.Test;
 
+import java.util.Collections;
 import java.util.Set;
 
 import static junit.framework.TestCase.fail;
@@ -133,6 +134,24 @@ public class TestAccessControl_unauthenticatedApiCalls extends TestAccessControl
       catch (NotAuthenticatedException e) {
          assertThat(e.getMessage().toLowerCase(), containsString("not authenticated"));
       }
+      try {
+         final String resourceClassName = generateResourceClass(false, false);
+         accessControlContext.createResources(resourceClassName, "any_domain_name", 1);
+         fail("operation should have failed from unauthenticated context");
+      }
+      catch (NotAuthenticatedException e) {
+         assertThat(e.getMessage().toLowerCase(), containsString("not authenticated"));
+      }
+      try {
+         final String resourceClassName = generateResourceClass(false, false);
+         accessControlContext.createResources(resourceClassName,
+                                              "any_domain_name",
+                                              Collections.singletonList("any_external_id"));
+         fail("operation should have failed from unauthenticated context");
+      }
+      catch (NotAuthenticatedException e) {
+         assertThat(e.getMessage().toLowerCase(), containsString("not authenticated"));
+      }
 
       // verify delete method(s)
       try {
@@ -142,6 +161,20 @@ public class TestAccessControl_unauthenticatedApiCalls extends TestAccessControl
       catch (NotAuthenticatedException e) {
          assertThat(e.getMessage().toLowerCase(), containsString("not authenticated"));
       }
+      try {
+         accessControlContext.deleteResources(null);
+         fail("operation should have failed from unauthenticated context");
+      }
+      catch (NotAuthenticatedException e) {
+         assertThat(e.getMessage().toLowerCase(), containsString("not authenticated"));
+      }
+      try {
+         accessControlContext.deleteDomainAndResources(null);
+         fail("operation should have failed from unauthenticated context");
+      }
+      catch (NotAuthenticatedException e) {
+         assertThat(e.getMessage().toLowerCase(), containsString("not authenticated"));
+      }
 
       // verify getters
       try {
@@ -18,8 +18,12 @@
 package com.acciente.oacc;
 
 import com.acciente.oacc.helper.Test_OACC_Resource;
+import com.acciente.oacc.sql.TestPermissionUtils;
 import com.acciente.oacc.sql.TestSQLAccessControlSystemInitializerSuite;
 import com.acciente.oacc.sql.TestSchemaNameValidator;
+import com.acciente.oacc.sql.internal.TestBloomFilter;
+import com.acciente.oacc.sql.internal.TestExportFormat;
+import com.acciente.oacc.sql.internal.TestOffHeapLongTable;
 import org.junit.runner.RunWith;
 import org.junit.runners.Suite;
 
@@ -29,11 +33,32 @@ import static org.junit.runners.Suite.SuiteClasses;
 @SuiteClasses({Test_OACC_Resource.class,
       TestSQLAccessControlSystemInitializerSuite.class,
       TestSQLAccessControlContextFactory.class,
+      TestSQLAccessControlSystemExportImport.class,
+      TestSQLAuthorizationSnapshot.class,
+      TestSQLChangeLogPoller.class,
+      TestSQLConnectionBulkhead.class,
+      TestSQLConnectionScope.class,
+      TestSQLEvents.class,
+      TestSQLGrantFilter.class,
+      TestSQLOffHeapIndexStore.class,
+      TestSQLParallelQueries.class,
+      TestSQLReadRouting.class,
+      TestSQLRedundantGrants.class,
+      TestSQLResourceFilter.class,
+      TestSQLResourceInfoCache.class,
+      TestSQLSessionSnapshot.class,
+      TestSQLSlowOperationRecorder.class,
+      TestSQLStatementTimeoutPolicy.class,
       TestResourcePermission.class,
       TestResourceCreatePermission.class,
       TestDomainPermission.class,
       TestDomainCreatePermission.class,
+      TestCapabilityTokenVerifier.class,
       TestSchemaNameValidator.class,
+      TestExportFormat.class,
+      TestBloomFilter.class,
+      TestOffHeapLongTable.class,
+      TestPermissionUtils.class,
       TestAccessControlSuite.class})
 public class TestAll {
 }
@@ -0,0 +1,208 @@
+/*
+ * Copyright 2009-2016, Acciente LLC
+ *
+ * Acciente LLC licenses this file to you under the
+ * Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in
+ * writing, software distributed under the License is
+ * distributed on an "AS IS" BASIS, WITHOUT WARRANTIES
+ * OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.acciente.oacc;
+
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+import static org.hamcrest.CoreMatchers.containsString;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+public class TestCapabilityTokenVerifier {
+   private static final byte[] SIGNING_KEY = "capability-token-test-key".getBytes(StandardCharsets.UTF_8);
+
+   private static final Resource           ACCESSOR_RESOURCE  = Resources.getInstance(1L);
+   private static final Resource           RESOURCE_WITH_EXT  = Resources.getInstance(2L, "ext-2");
+   private static final Resource           RESOURCE_WITHOUT   = Resources.getInstance(3L);
+   private static final ResourcePermission READ               = ResourcePermissions.getInstance("READ");
+   private static final ResourcePermission WRITE              = ResourcePermissions.getInstance("WRITE");
+   private static final ResourcePermission QUERY_WITH_GRANT
+         = ResourcePermissions.getInstanceWithGrantOption(ResourcePermissions.QUERY);
+
+   @Test
+   public void signAndVerify_roundTrip() {
+      final CapabilityTokenVerifier verifier = new CapabilityTokenVerifier(SIGNING_KEY);
+      final long expiresAt = System.currentTimeMillis() + 60000;
+
+      final CapabilityToken capabilityToken
+            = verifier.verify(verifier.sign(new CapabilityToken(ACCESSOR_RESOURCE, expiresAt, __getResourcePermissions())));
+
+      assertThat(capabilityToken.getAccessorResource(), is(ACCESSOR_RESOURCE));
+      assertThat(capabilityToken.getExpiresAt(), is(expiresAt));
+      assertThat(capabilityToken.getResources(), is(__getResourcePermissions().keySet()));
+      assertThat(capabilityToken.getResourcePermissions(RESOURCE_WITH_EXT), is(setOf(READ, QUERY_WITH_GRANT)));
+      assertThat(capabilityToken.getResourcePermissions(RESOURCE_WITHOUT), is(setOf(WRITE)));
+   }
+
+   @Test
+   public void hasResourcePermissions() {
+      final CapabilityTokenVerifier verifier = new CapabilityTokenVerifier(SIGNING_KEY);
+      final String signedToken
+            = verifier.sign(new CapabilityToken(ACCESSOR_RESOURCE,
+                                                System.currentTimeMillis() + 60000,
+                                                __getResourcePermissions()));
+
+      // by resource id, by external id, and by both
+      assertThat(verifier.hasResourcePermissions(signedToken, Resources.getInstance(2L), READ), is(true));
+      assertThat(verifier.hasResourcePermissions(signedToken, Resources.getInstance("ext-2"), READ), is(true));
+      assertThat(verifier.hasResourcePermissions(signedToken, RESOURCE_WITH_EXT, READ), is(true));
+      assertThat(verifier.hasResourcePermissions(signedToken, Resources.getInstance(2L, "ext-other"), READ), is(false));
+
+      // a permission with the grant option implies the one without, but not vice versa
+      assertThat(verifier.hasResourcePermissions(signedToken,
+                                                 RESOURCE_WITH_EXT,
+                                                 READ,
+                                                 ResourcePermissions.getInstance(ResourcePermissions.QUERY)),
+                 is(true));
+      assertThat(verifier.hasResourcePermissions(signedToken,
+                                                 RESOURCE_WITH_EXT,
+                                                 ResourcePermissions.getInstanceWithGrantOption("READ")),
+                 is(false));
+
+      // all requested permissions are required
+      assertThat(verifier.hasResourcePermissions(signedToken, RESOURCE_WITH_EXT, READ, WRITE), is(false));
+      assertThat(verifier.hasResourcePermissions(signedToken, RESOURCE_WITHOUT, WRITE), is(true));
+
+      // resources the token was not issued for
+      assertThat(verifier.hasResourcePermissions(signedToken, Resources.getInstance(4L), WRITE), is(false));
+   }
+
+   @Test
+   public void verify_emptyToken() {
+      final CapabilityTokenVerifier verifier = new CapabilityTokenVerifier(SIGNING_KEY);
+      final Map<Resource, Set<ResourcePermission>> noResourcePermissions = Collections.emptyMap();
+
+      final CapabilityToken capabilityToken
+            = verifier.verify(verifier.sign(new CapabilityToken(ACCESSOR_RESOURCE,
+                                                                System.currentTimeMillis() + 60000,
+                                                                noResourcePermissions)));
+
+      assertThat(capabilityToken.getResources().isEmpty(), is(true));
+      assertThat(capabilityToken.hasResourcePermissions(RESOURCE_WITHOUT, WRITE), is(false));
+   }
+
+   @Test
+   public void verify_tamperedToken_shouldFail() {
+      final CapabilityTokenVerifier verifier = new CapabilityTokenVerifier(SIGNING_KEY);
+      final String signedToken
+            = verifier.sign(new CapabilityToken(ACCESSOR_RESOURCE,
+                                                System.currentTimeMillis() + 60000,
+                                                __getResourcePermissions()));
+      final char replacedChar = signedToken.charAt(12);
+      final String tamperedToken
+            = signedToken.substring(0, 12) + (replacedChar == 'A' ? 'B' : 'A') + signedToken.substring(13);
+
+      try {
+         verifier.verify(tamperedToken);
+         fail("verifying a tampered capability token should have failed");
+      }
+      catch (IllegalArgumentException e) {
+         assertThat(e.getMessage().toLowerCase(), containsString("signature is invalid"));
+      }
+   }
+
+   @Test
+   public void verify_otherSigningKey_shouldFail() {
+      final String signedToken
+            = new CapabilityTokenVerifier(SIGNING_KEY).sign(new CapabilityToken(ACCESSOR_RESOURCE,
+                                                                                System.currentTimeMillis() + 60000,
+                                                                                __getResourcePermissions()));
+
+      try {
+         new CapabilityTokenVerifier("another-capability-key".getBytes(StandardCharsets.UTF_8)).verify(signedToken);
+         fail("verifying a capability token with another signing key should have failed");
+      }
+      catch (IllegalArgumentException e) {
+         assertThat(e.getMessage().toLowerCase(), containsString("signature is invalid"));
+      }
+   }
+
+   @Test
+   public void verify_expiredToken_shouldFail() {
+      final CapabilityTokenVerifier verifier = new CapabilityTokenVerifier(SIGNING_KEY);
+      final CapabilityToken expiredToken
+            = new CapabilityToken(ACCESSOR_RESOURCE, System.currentTimeMillis() - 1, __getResourcePermissions());
+
+      assertThat(expiredToken.isExpired(), is(true));
+      assertThat(expiredToken.hasResourcePermissions(RESOURCE_WITHOUT, WRITE), is(false));
+
+      try {
+         verifier.verify(verifier.sign(expiredToken));
+         fail("verifying an expired capability token should have failed");
+      }
+      catch (IllegalArgumentException e) {
+         assertThat(e.getMessage().toLowerCase(), containsString("expired"));
+      }
+   }
+
+   @Test
+   public void verify_malformedToken_shouldFail() {
+      final CapabilityTokenVerifier verifier = new CapabilityTokenVerifier(SIGNING_KEY);
+
+      for (String malformedToken : new String[]{"", "no-separator", "a.b", "!!!.???"}) {
+         try {
+            verifier.verify(malformedToken);
+            fail("verifying a malformed capability token should have failed");
+         }
+         catch (IllegalArgumentException e) {
+            assertThat(e.getMessage().toLowerCase(), containsString("capability token"));
+         }
+      }
+   }
+
+   @Test
+   public void construct_invalidSigningKey_shouldFail() {
+      try {
+         new CapabilityTokenVerifier(null);
+         fail("creating a capability token verifier without a signing key should have failed");
+      }
+      catch (NullPointerException e) {
+         assertThat(e.getMessage().toLowerCase(), containsString("signing key required"));
+      }
+
+      try {
+         new CapabilityTokenVerifier(new byte[8]);
+         fail("creating a capability token verifier with a short signing key should have failed");
+      }
+      catch (IllegalArgumentException e) {
+         assertThat(e.getMessage().toLowerCase(), containsString("at least 16 bytes"));
+      }
+   }
+
+   private static Map<Resource, Set<ResourcePermission>> __getResourcePermissions() {
+      final Map<Resource, Set<ResourcePermission>> resourcePermissions = new LinkedHashMap<>();
+      resourcePermissions.put(RESOURCE_WITH_EXT, setOf(READ, QUERY_WITH_GRANT));
+      resourcePermissions.put(RESOURCE_WITHOUT, setOf(WRITE));
+      return resourcePermissions;
+   }
+
+   @SafeVarargs
+   private static <T> Set<T> setOf(T... elements) {
+      final Set<T> set = new HashSet<>(elements.length);
+      Collections.addAll(set, elements);
+      return set;
+   }
+}
@@ -19,6 +19,11 @@ package com.acciente.oacc;
 
 import org.junit.Test;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+
 import static org.hamcrest.CoreMatchers.containsString;
 import static org.hamcrest.CoreMatchers.hasItem;
 import static org.hamcrest.CoreMatchers.is;
@@ -249,4 +254,28 @@ public class TestResourcePermission {
          assertThat(e.getMessage().toLowerCase(), containsString("invalid system permission name"));
       }
    }
+
+   @Test
+   @SuppressWarnings("deprecation")
+   public void deprecatedFactory_shouldReturnCachedInstance() {
+      final String permissionName = "this_is_a_valid_permission_name";
+      assertThat(ResourcePermissions.getInstance(permissionName, false),
+                 sameInstance(ResourcePermissions.getInstance(permissionName)));
+      assertThat(ResourcePermissions.getInstance(permissionName, true),
+                 sameInstance(ResourcePermissions.getInstanceWithGrantOption(permissionName)));
+   }
+
+   @Test
+   public void deserialize_shouldResolveToCachedInstance() throws Exception {
+      final ResourcePermission resourcePermission = ResourcePermissions.getInstanceWithGrantOption("this_is_a_valid_permission_name");
+
+      final ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream();
+      try (ObjectOutputStream objectOutputStream = new ObjectOutputStream(byteArrayOutputStream)) {
+         objectOutputStream.writeObject(resourcePermission);
+      }
+      try (ObjectInputStream objectInputStream
+                 = new ObjectInputStream(new ByteArrayInputStream(byteArrayOutputStream.toByteArray()))) {
+         assertThat(objectInputStream.readObject(), sameInstance((Object) resourcePermission));
+      }
+   }
 }
@@ -0,0 +1,128 @@
+/*
+ * Copyright 2009-2016, Acciente LLC
+ *
+ * Acciente LLC licenses this file to you under the
+ * Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in
+ * writing, software distributed under the License is
+ * distributed on an "AS IS" BASIS, WITHOUT WARRANTIES
+ * OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.acciente.oacc;
+
+import com.acciente.oacc.helper.SQLAccessControlSystemResetUtil;
+import com.acciente.oacc.helper.TestConfigLoader;
+import com.acciente.oacc.sql.SQLAccessControlSystemExporter;
+import com.acciente.oacc.sql.SQLAccessControlSystemImporter;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.sql.Connection;
+import java.sql.SQLException;
+
+import static org.hamcrest.CoreMatchers.containsString;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+public class TestSQLAccessControlSystemExportImport extends TestAccessControlBase {
+   @Test
+   public void exportAndImport_shouldPreserveAuthorizationGraph() throws SQLException, IOException {
+      authenticateSystemResource();
+      final String resourceClassName = generateResourceClass(true, false);
+      final ResourcePermission customPermission
+            = ResourcePermissions.getInstanceWithGrantOption(generateResourceClassPermission(resourceClassName));
+      final ResourcePermission globalPermission
+            = ResourcePermissions.getInstance(generateResourceClassPermission(resourceClassName));
+      final String domainName = generateDomain();
+      final String childDomainName = generateChildDomain(domainName);
+      final String userExternalId = generateUniqueExternalId();
+      final String groupExternalId = generateUniqueExternalId();
+      final String documentExternalId = generateUniqueExternalId();
+      final Resource user = accessControlContext.createResource(resourceClassName,
+                                                                domainName,
+                                                                userExternalId,
+                                                                PasswordCredentials.newInstance(generateUniquePassword()));
+      final Resource group = accessControlContext.createResource(resourceClassName,
+                                                                 domainName,
+                                                                 groupExternalId,
+                                                                 PasswordCredentials.newInstance(generateUniquePassword()));
+      final Resource document = accessControlContext.createResource(resourceClassName,
+                                                                    childDomainName,
+                                                                    documentExternalId,
+                                                                    PasswordCredentials.newInstance(generateUniquePassword()));
+
+      accessControlContext.setResourcePermissions(user,
+                                                  group,
+                                                  setOf(ResourcePermissions.getInstance(ResourcePermissions.INHERIT)));
+      accessControlContext.setResourcePermissions(group, document, setOf(customPermission));
+      accessControlContext.setGlobalResourcePermissions(user, resourceClassName, childDomainName, setOf(globalPermission));
+      accessControlContext.setDomainPermissions(group,
+                                                domainName,
+                                                setOf(DomainPermissions.getInstance(DomainPermissions.CREATE_CHILD_DOMAIN)));
+
+      final ByteArrayOutputStream export = new ByteArrayOutputStream();
+      try (Connection connection = TestConfigLoader.getDataSource().getConnection()) {
+         SQLAccessControlSystemExporter.exportOACC(connection,
+                                                   TestConfigLoader.getDatabaseSchema(),
+                                                   Channels.newChannel(export),
+                                                   true);
+      }
+
+      // import into a freshly initialized OACC, in small batches
+      accessControlContext.unauthenticate();
+      SQLAccessControlSystemResetUtil.resetOACC(TestConfigLoader.getDataSource(),
+                                                TestConfigLoader.getDatabaseSchema(),
+                                                TestConfigLoader.getOaccRootPassword());
+      try (Connection connection = TestConfigLoader.getDataSource().getConnection()) {
+         SQLAccessControlSystemImporter.importOACC(connection,
+                                                   TestConfigLoader.getDatabaseSchema(),
+                                                   TestConfigLoader.getSQLProfile(),
+                                                   Channels.newChannel(new ByteArrayInputStream(export.toByteArray())),
+                                                   2);
+      }
+
+      authenticateSystemResource();
+      final Resource importedUser = Resources.getInstance(userExternalId);
+      final Resource importedGroup = Resources.getInstance(groupExternalId);
+      final Resource importedDocument = Resources.getInstance(documentExternalId);
+
+      assertThat(accessControlContext.getDomainDescendants(domainName), is(setOf(domainName, childDomainName)));
+      assertThat(accessControlContext.getDomainNameByResource(importedDocument), is(childDomainName));
+      assertThat(accessControlContext.getResourceClassInfoByResource(importedUser).isAuthenticatable(), is(true));
+      assertThat(accessControlContext.getResourcePermissions(importedUser, importedGroup),
+                 is(setOf(ResourcePermissions.getInstance(ResourcePermissions.INHERIT))));
+      assertThat(accessControlContext.getResourcePermissions(importedGroup, importedDocument), is(setOf(customPermission)));
+      assertThat(accessControlContext.getEffectiveResourcePermissions(importedUser, importedDocument),
+                 is(setOf(customPermission, globalPermission)));
+      assertThat(accessControlContext.getGlobalResourcePermissions(importedUser, resourceClassName, childDomainName),
+                 is(setOf(globalPermission)));
+      assertThat(accessControlContext.getDomainPermissions(importedGroup, domainName),
+                 is(setOf(DomainPermissions.getInstance(DomainPermissions.CREATE_CHILD_DOMAIN))));
+   }
+
+   @Test
+   public void importOACC_notAnExport_shouldFail() throws SQLException, IOException {
+      try (Connection connection = TestConfigLoader.getDataSource().getConnection()) {
+         SQLAccessControlSystemImporter.importOACC(connection,
+                                                   TestConfigLoader.getDatabaseSchema(),
+                                                   TestConfigLoader.getSQLProfile(),
+                                                   Channels.newChannel(new ByteArrayInputStream(new byte[]{1, 2, 3, 4, 5, 6, 7})),
+                                                   100);
+         fail("importing a stream that is not an OACC export should have failed");
+      }
+      catch (IllegalArgumentException e) {
+         assertThat(e.getMessage().toLowerCase(), containsString("not an oacc export"));
+      }
+   }
+}
@@ -0,0 +1,154 @@
+/*
+ * Copyright 2009-2016, Acciente LLC
+ *
+ * Acciente LLC licenses this file to you under the
+ * Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in
+ * writing, software distributed under the License is
+ * distributed on an "AS IS" BASIS, WITHOUT WARRANTIES
+ * OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.acciente.oacc;
+
+import com.acciente.oacc.helper.TestConfigLoader;
+import com.acciente.oacc.sql.AuthorizationSnapshot;
+import com.acciente.oacc.sql.SQLAuthorizationSnapshotBuilder;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.SQLException;
+
+import static org.hamcrest.CoreMatchers.containsString;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+public class TestSQLAuthorizationSnapshot extends TestAccessControlBase {
+   private Path snapshotFile;
+
+   @Before
+   public void createSnapshotFile() throws IOException {
+      snapshotFile = Files.createTempFile("oacc", ".snapshot");
+   }
+
+   @After
+   public void deleteSnapshotFile() throws IOException {
+      Files.deleteIfExists(snapshotFile);
+   }
+
+   @Test
+   public void snapshot_shouldMatchEffectivePermissionsOfDatabase() throws SQLException, IOException {
+      authenticateSystemResource();
+      final String resourceClassName = generateResourceClass(false, false);
+      final ResourcePermission readPermission
+            = ResourcePermissions.getInstanceWithGrantOption(generateResourceClassPermission(resourceClassName));
+      final ResourcePermission writePermission
+            = ResourcePermissions.getInstance(generateResourceClassPermission(resourceClassName));
+      final String domainName = generateDomain();
+      final String childDomainName = generateChildDomain(domainName);
+      final Resource user = generateUnauthenticatableResource();
+      final Resource group = generateUnauthenticatableResource();
+      final Resource superUser = generateUnauthenticatableResource();
+      final Resource document = accessControlContext.createResource(resourceClassName, childDomainName);
+      final Resource otherDocument = accessControlContext.createResource(resourceClassName, domainName);
+
+      accessControlContext.setResourcePermissions(user,
+                                                  group,
+                                                  setOf(ResourcePermissions.getInstance(ResourcePermissions.INHERIT)));
+      accessControlContext.setResourcePermissions(group, document, setOf(readPermission));
+      accessControlContext.setGlobalResourcePermissions(user, resourceClassName, domainName, setOf(writePermission));
+      accessControlContext.setDomainPermissions(superUser,
+                                                domainName,
+                                                setOf(DomainPermissions.getInstance(DomainPermissions.SUPER_USER)));
+
+      final AuthorizationSnapshot snapshot = __buildAndOpenSnapshot();
+
+      for (Resource accessor : new Resource[]{user, group, superUser}) {
+         for (Resource accessed : new Resource[]{document, otherDocument}) {
+            assertThat(snapshot.getEffectiveResourcePermissions(accessor, accessed),
+                       is(accessControlContext.getEffectiveResourcePermissions(accessor, accessed)));
+         }
+      }
+      assertThat(snapshot.hasResourcePermissions(user, document, readPermission, writePermission), is(true));
+      assertThat(snapshot.hasResourcePermissions(user, otherDocument, readPermission), is(false));
+      assertThat(snapshot.hasResourcePermissions(group, otherDocument, writePermission), is(false));
+      assertThat(snapshot.hasResourcePermissions(superUser,
+                                                 otherDocument,
+                                                 ResourcePermissions.getInstanceWithGrantOption(ResourcePermissions.DELETE)),
+                 is(true));
+   }
+
+   @Test
+   public void swap_shouldReflectChangesSinceThePreviousSnapshot() throws SQLException, IOException {
+      authenticateSystemResource();
+      final String resourceClassName = generateResourceClass(false, false);
+      final ResourcePermission permission
+            = ResourcePermissions.getInstance(generateResourceClassPermission(resourceClassName));
+      final Resource accessor = generateUnauthenticatableResource();
+      final Resource accessed = accessControlContext.createResource(resourceClassName, generateDomain());
+
+      final AuthorizationSnapshot snapshot = __buildAndOpenSnapshot();
+      assertThat(snapshot.hasResourcePermissions(accessor, accessed, permission), is(false));
+
+      accessControlContext.setResourcePermissions(accessor, accessed, setOf(permission));
+      try (Connection connection = TestConfigLoader.getDataSource().getConnection()) {
+         SQLAuthorizationSnapshotBuilder.buildSnapshot(connection,
+                                                       TestConfigLoader.getDatabaseSchema(),
+                                                       snapshotFile.toString());
+      }
+      // the previous snapshot is still mapped, even though its file was replaced
+      assertThat(snapshot.hasResourcePermissions(accessor, accessed, permission), is(false));
+
+      snapshot.swap(snapshotFile.toString());
+      assertThat(snapshot.hasResourcePermissions(accessor, accessed, permission), is(true));
+   }
+
+   @Test
+   public void snapshot_unknownResourceOrPermission_shouldFail() throws SQLException, IOException {
+      authenticateSystemResource();
+      final String resourceClassName = generateResourceClass(false, false);
+      final Resource accessor = generateUnauthenticatableResource();
+      final Resource accessed = accessControlContext.createResource(resourceClassName, generateDomain());
+
+      final AuthorizationSnapshot snapshot = __buildAndOpenSnapshot();
+      final Resource createdLater = generateUnauthenticatableResource();
+
+      try {
+         snapshot.getEffectiveResourcePermissions(accessor, createdLater);
+         fail("checking permissions on a resource that is not in the snapshot should have failed");
+      }
+      catch (IllegalArgumentException e) {
+         assertThat(e.getMessage().toLowerCase(), containsString("not found"));
+      }
+      try {
+         snapshot.hasResourcePermissions(accessor,
+                                         accessed,
+                                         ResourcePermissions.getInstance(ResourcePermissions.IMPERSONATE));
+         fail("checking a permission that is not valid for the resource class should have failed");
+      }
+      catch (IllegalArgumentException e) {
+         assertThat(e.getMessage().toLowerCase(), containsString("not valid for unauthenticatable resource class"));
+      }
+   }
+
+   private AuthorizationSnapshot __buildAndOpenSnapshot() throws SQLException, IOException {
+      try (Connection connection = TestConfigLoader.getDataSource().getConnection()) {
+         SQLAuthorizationSnapshotBuilder.buildSnapshot(connection,
+                                                       TestConfigLoader.getDatabaseSchema(),
+                                                       snapshotFile.toString());
+      }
+      return AuthorizationSnapshot.open(snapshotFile.toString());
+   }
+}
@@ -0,0 +1,263 @@
+/*
+ * Copyright 2009-2016, Acciente LLC
+ *
+ * Acciente LLC licenses this file to you under the
+ * Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in
+ * writing, software distributed under the License is
+ * distributed on an "AS IS" BASIS, WITHOUT WARRANTIES
+ * OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.acciente.oacc;
+
+import com.acciente.oacc.helper.TestConfigLoader;
+import com.acciente.oacc.sql.ChangeLogEntry;
+import com.acciente.oacc.sql.ChangeLogEntry.ChangeType;
+import com.acciente.oacc.sql.ChangeLogListener;
+import com.acciente.oacc.sql.SQLAccessControlContextFactory;
+import com.acciente.oacc.sql.SQLChangeLogPoller;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.hamcrest.CoreMatchers.containsString;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.junit.Assume.assumeNoException;
+
+public class TestSQLChangeLogPoller extends TestAccessControlBase {
+   private AccessControlContext otherAccessControlContext;
+   private SQLChangeLogPoller   changeLogPoller;
+   private RecordingListener    recordingListener;
+
+   @Before
+   public void setUpChangeLog() {
+      changeLogPoller = new SQLChangeLogPoller(TestConfigLoader.getDataSource(),
+                                               TestConfigLoader.getDatabaseSchema(),
+                                               TestConfigLoader.getSQLProfile());
+      recordingListener = new RecordingListener();
+      changeLogPoller.addChangeLogListener(recordingListener);
+
+      // the first poll only establishes the position at the end of the change log, and fails on test databases
+      // that were not migrated to include the OAC_ChangeLog table (see README), in which case these tests are skipped
+      try {
+         assertThat(changeLogPoller.poll(), is(0));
+      }
+      catch (RuntimeException e) {
+         assumeNoException(e);
+      }
+
+      // a second context sharing the same database, as another node would
+      otherAccessControlContext
+            = SQLAccessControlContextFactory.getAccessControlContext(TestConfigLoader.getDataSource(),
+                                                                     TestConfigLoader.getDatabaseSchema(),
+                                                                     TestConfigLoader.getSQLProfile());
+      SQLAccessControlContextFactory.setChangeLogEnabled(accessControlContext, true);
+      SQLAccessControlContextFactory.setChangeLogEnabled(otherAccessControlContext, true);
+   }
+
+   @After
+   public void tearDownChangeLog() {
+      if (otherAccessControlContext != null) {
+         otherAccessControlContext.unauthenticate();
+      }
+   }
+
+   @Test
+   public void poll_domainPermissionChange_shouldDeliverEntry() {
+      authenticateSystemResource();
+      final Resource accessorResource = generateUnauthenticatableResource();
+      final String domainName = generateDomain();
+      changeLogPoller.poll();
+      recordingListener.changeLogEntries.clear();
+
+      accessControlContext.setDomainPermissions(accessorResource,
+                                                domainName,
+                                                setOf(DomainPermissions.getInstance(DomainPermissions.DELETE)));
+
+      assertThat(changeLogPoller.poll(), is(1));
+      final ChangeLogEntry changeLogEntry = recordingListener.changeLogEntries.get(0);
+      assertThat(changeLogEntry.getChangeType(), is(ChangeType.DOMAIN_PERMISSIONS));
+      assertThat(changeLogEntry.getAccessorResource().getId(), is(accessorResource.getId()));
+      assertThat(changeLogEntry.getAccessedResource(), is(nullValue()));
+      assertThat(changeLogEntry.getDomainName(), is(domainName));
+      assertThat(changeLogEntry.getResourceClassName(), is(nullValue()));
+      assertThat(changeLogPoller.getLastChangeVersion(), is(changeLogEntry.getChangeVersion()));
+
+      // entries are only delivered once
+      assertThat(changeLogPoller.poll(), is(0));
+      assertThat(recordingListener.changeLogEntries.size(), is(1));
+   }
+
+   @Test
+   public void poll_changesFromTwoContexts_shouldDeliverEntriesInVersionOrder() {
+      authenticateSystemResource();
+      otherAccessControlContext.authenticate(getSystemResource(),
+                                             PasswordCredentials.newInstance(TestConfigLoader.getOaccRootPassword()));
+      final Resource accessorResource = generateUnauthenticatableResource();
+      final Resource accessedResource = generateUnauthenticatableResource();
+      final String resourceClassName = accessControlContext.getResourceClassInfoByResource(accessedResource).getResourceClassName();
+      final String permissionName = generateResourceClassPermission(resourceClassName);
+      changeLogPoller.poll();
+      recordingListener.changeLogEntries.clear();
+
+      accessControlContext.grantResourcePermissions(accessorResource,
+                                                    accessedResource,
+                                                    ResourcePermissions.getInstance(permissionName));
+      otherAccessControlContext.revokeResourcePermissions(accessorResource,
+                                                          accessedResource,
+                                                          ResourcePermissions.getInstance(permissionName));
+
+      assertThat(changeLogPoller.poll(), is(2));
+      final ChangeLogEntry grantEntry = recordingListener.changeLogEntries.get(0);
+      final ChangeLogEntry revokeEntry = recordingListener.changeLogEntries.get(1);
+      assertTrue(grantEntry.getChangeVersion() < revokeEntry.getChangeVersion());
+      for (ChangeLogEntry changeLogEntry : recordingListener.changeLogEntries) {
+         assertThat(changeLogEntry.getChangeType(), is(ChangeType.RESOURCE_PERMISSIONS));
+         assertThat(changeLogEntry.getAccessorResource().getId(), is(accessorResource.getId()));
+         assertThat(changeLogEntry.getAccessedResource().getId(), is(accessedResource.getId()));
+      }
+   }
+
+   @Test
+   public void poll_deleteResource_shouldDeliverResourceEntry() {
+      authenticateSystemResource();
+      final Resource obsoleteResource = generateUnauthenticatableResource();
+      changeLogPoller.poll();
+      recordingListener.changeLogEntries.clear();
+
+      otherAccessControlContext.authenticate(getSystemResource(),
+                                             PasswordCredentials.newInstance(TestConfigLoader.getOaccRootPassword()));
+      assertTrue(otherAccessControlContext.deleteResource(obsoleteResource));
+
+      changeLogPoller.poll();
+      final ChangeLogEntry changeLogEntry
+            = recordingListener.changeLogEntries.get(recordingListener.changeLogEntries.size() - 1);
+      assertThat(changeLogEntry.getChangeType(), is(ChangeType.RESOURCE));
+      assertThat(changeLogEntry.getAccessedResource().getId(), is(obsoleteResource.getId()));
+   }
+
+   @Test
+   public void poll_changeLogDisabled_shouldNotDeliverEntries() {
+      SQLAccessControlContextFactory.setChangeLogEnabled(accessControlContext, false);
+      authenticateSystemResource();
+
+      accessControlContext.createDomain(generateUniqueDomainName());
+      accessControlContext.createResourceClass(generateUniqueResourceClassName(), false, false);
+
+      assertThat(changeLogPoller.poll(), is(0));
+      assertThat(recordingListener.changeLogEntries.size(), is(0));
+   }
+
+   @Test
+   public void poll_listenerFails_shouldRedeliverEntry() {
+      authenticateSystemResource();
+      changeLogPoller.addChangeLogListener(new ChangeLogListener() {
+         private boolean failed;
+
+         @Override
+         public void onChange(ChangeLogEntry changeLogEntry) {
+            if (!failed) {
+               failed = true;
+               throw new IllegalStateException("listener failure");
+            }
+         }
+      });
+
+      accessControlContext.createDomain(generateUniqueDomainName());
+
+      try {
+         changeLogPoller.poll();
+         fail("polling with a failing listener should have failed");
+      }
+      catch (IllegalStateException e) {
+         assertThat(e.getMessage(), containsString("listener failure"));
+      }
+
+      changeLogPoller.run();
+      assertThat(changeLogPoller.getLastPollFailure(), is(nullValue()));
+      // the entry the failing listener rejected is delivered again, to all listeners
+      assertThat(recordingListener.changeLogEntries.get(0).getChangeVersion(),
+                 is(recordingListener.changeLogEntries.get(1).getChangeVersion()));
+   }
+
+   @Test
+   public void pruneUpTo_lastChangeVersion_shouldKeepUndeliveredAndLatestEntries() {
+      authenticateSystemResource();
+      final Resource accessorResource = generateUnauthenticatableResource();
+      final String domainName = generateDomain();
+      accessControlContext.setDomainPermissions(accessorResource,
+                                                domainName,
+                                                setOf(DomainPermissions.getInstance(DomainPermissions.DELETE)));
+      accessControlContext.setDomainPermissions(accessorResource,
+                                                domainName,
+                                                setOf(DomainPermissions.getInstance(DomainPermissions.CREATE_CHILD_DOMAIN)));
+      assertThat(changeLogPoller.poll(), is(2));
+      final long lastChangeVersion = changeLogPoller.getLastChangeVersion();
+
+      // the latest entry is kept, so that a poller started after pruning still finds the end of the change log
+      assertTrue(changeLogPoller.pruneUpTo(lastChangeVersion) >= 1);
+      assertThat(changeLogPoller.pruneUpTo(lastChangeVersion), is(0));
+
+      final SQLChangeLogPoller laterChangeLogPoller
+            = new SQLChangeLogPoller(TestConfigLoader.getDataSource(),
+                                     TestConfigLoader.getDatabaseSchema(),
+                                     TestConfigLoader.getSQLProfile());
+      // the pruned versions look like uncommitted ones to a new poller, which is not made to wait for them here
+      laterChangeLogPoller.setGapTimeoutMillis(0);
+      assertThat(laterChangeLogPoller.poll(), is(0));
+      assertThat(laterChangeLogPoller.getLastChangeVersion(), is(lastChangeVersion));
+
+      // entries after the pruned version are still delivered
+      recordingListener.changeLogEntries.clear();
+      accessControlContext.setDomainPermissions(accessorResource,
+                                                domainName,
+                                                setOf(DomainPermissions.getInstance(DomainPermissions.DELETE)));
+      assertThat(changeLogPoller.poll(), is(1));
+      assertThat(recordingListener.changeLogEntries.get(0).getDomainName(), is(domainName));
+   }
+
+   @Test
+   public void pruneUpTo_negative_shouldFail() {
+      try {
+         changeLogPoller.pruneUpTo(-1);
+         fail("pruning the change log up to a negative change version should have failed");
+      }
+      catch (IllegalArgumentException e) {
+         assertThat(e.getMessage().toLowerCase(), containsString("cannot be negative"));
+      }
+   }
+
+   @Test
+   public void setGapTimeoutMillis_negative_shouldFail() {
+      try {
+         changeLogPoller.setGapTimeoutMillis(-1);
+         fail("setting a negative gap timeout should have failed");
+      }
+      catch (IllegalArgumentException e) {
+         assertThat(e.getMessage().toLowerCase(), containsString("cannot be negative"));
+      }
+   }
+
+   private static class RecordingListener implements ChangeLogListener {
+      private final List<ChangeLogEntry> changeLogEntries = new ArrayList<>();
+
+      @Override
+      public void onChange(ChangeLogEntry changeLogEntry) {
+         changeLogEntries.add(changeLogEntry);
+      }
+   }
+}
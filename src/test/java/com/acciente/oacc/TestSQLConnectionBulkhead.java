@@ -0,0 +1,156 @@
+/*
+ * Copyright 2009-2016, Acciente LLC
+ *
+ * Acciente LLC licenses this file to you under the
+ * Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in
+ * writing, software distributed under the License is
+ * distributed on an "AS IS" BASIS, WITHOUT WARRANTIES
+ * OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.acciente.oacc;
+
+import com.acciente.oacc.helper.TestConfigLoader;
+import com.acciente.oacc.sql.ConnectionBulkhead;
+import com.acciente.oacc.sql.ConnectionRejectedException;
+import com.acciente.oacc.sql.ConnectionScope;
+import com.acciente.oacc.sql.SQLAccessControlContextFactory;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.hamcrest.CoreMatchers.containsString;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+public class TestSQLConnectionBulkhead extends TestAccessControlBase {
+   private AccessControlContext holdingAccessControlContext;
+   private AccessControlContext waitingAccessControlContext;
+
+   @Before
+   public void setUpAccessControlContexts() {
+      holdingAccessControlContext = __newAuthenticatedAccessControlContext();
+      waitingAccessControlContext = __newAuthenticatedAccessControlContext();
+   }
+
+   @Test
+   public void failFast_atCapacity_shouldReject() {
+      final ConnectionBulkhead connectionBulkhead = ConnectionBulkhead.getInstance(1);
+      SQLAccessControlContextFactory.setConnectionBulkhead(holdingAccessControlContext, connectionBulkhead);
+      SQLAccessControlContextFactory.setConnectionBulkhead(waitingAccessControlContext, connectionBulkhead);
+
+      try (ConnectionScope ignored = SQLAccessControlContextFactory.openConnectionScope(holdingAccessControlContext)) {
+         assertThat(connectionBulkhead.getActiveConnectionCount(), is(1));
+         try {
+            waitingAccessControlContext.getResourceClassNames();
+            fail("getting a connection from a bulkhead at capacity should have failed");
+         }
+         catch (ConnectionRejectedException e) {
+            assertThat(e.getMessage().toLowerCase(), containsString("at capacity"));
+         }
+         assertThat(connectionBulkhead.getRejectedCount(), is(1L));
+      }
+
+      assertThat(connectionBulkhead.getActiveConnectionCount(), is(0));
+      waitingAccessControlContext.getResourceClassNames();
+      assertThat(connectionBulkhead.getActiveConnectionCount(), is(0));
+      assertThat(connectionBulkhead.getAcquiredCount(), is(2L));
+   }
+
+   @Test
+   public void queueWithDeadline_atCapacity_shouldRejectAfterWaiting() {
+      final ConnectionBulkhead connectionBulkhead = ConnectionBulkhead.getInstance(1, 100);
+      SQLAccessControlContextFactory.setConnectionBulkhead(holdingAccessControlContext, connectionBulkhead);
+      SQLAccessControlContextFactory.setConnectionBulkhead(waitingAccessControlContext, connectionBulkhead);
+
+      try (ConnectionScope ignored = SQLAccessControlContextFactory.openConnectionScope(holdingAccessControlContext)) {
+         final long startMillis = System.currentTimeMillis();
+         try {
+            waitingAccessControlContext.getResourceClassNames();
+            fail("getting a connection from a bulkhead at capacity should have failed");
+         }
+         catch (ConnectionRejectedException e) {
+            assertThat(System.currentTimeMillis() - startMillis >= 100, is(true));
+         }
+         assertThat(connectionBulkhead.getRejectedCount(), is(1L));
+      }
+   }
+
+   @Test
+   public void queueWithDeadline_connectionReleased_shouldProceed() throws InterruptedException {
+      final ConnectionBulkhead connectionBulkhead = ConnectionBulkhead.getInstance(1, 10000);
+      SQLAccessControlContextFactory.setConnectionBulkhead(holdingAccessControlContext, connectionBulkhead);
+      SQLAccessControlContextFactory.setConnectionBulkhead(waitingAccessControlContext, connectionBulkhead);
+
+      final ConnectionScope connectionScope
+            = SQLAccessControlContextFactory.openConnectionScope(holdingAccessControlContext);
+      final Thread releasingThread = new Thread(new Runnable() {
+         @Override
+         public void run() {
+            try {
+               Thread.sleep(100);
+            }
+            catch (InterruptedException e) {
+               Thread.currentThread().interrupt();
+            }
+            connectionScope.close();
+         }
+      });
+      releasingThread.start();
+
+      waitingAccessControlContext.getResourceClassNames();
+      releasingThread.join();
+
+      assertThat(connectionBulkhead.getRejectedCount(), is(0L));
+      assertThat(connectionBulkhead.getActiveConnectionCount(), is(0));
+   }
+
+   @Test
+   public void failedOperation_shouldReleaseConnection() {
+      final ConnectionBulkhead connectionBulkhead = ConnectionBulkhead.getInstance(1);
+      SQLAccessControlContextFactory.setConnectionBulkhead(waitingAccessControlContext, connectionBulkhead);
+
+      try {
+         waitingAccessControlContext.getEffectiveResourcePermissions(SYS_RESOURCE, Resources.getInstance(-999L));
+         fail("getting effective permissions on a non-existent resource should have failed");
+      }
+      catch (IllegalArgumentException e) {
+         assertThat(connectionBulkhead.getActiveConnectionCount(), is(0));
+      }
+   }
+
+   @Test
+   public void getInstance_invalidArguments_shouldFail() {
+      try {
+         ConnectionBulkhead.getInstance(0);
+         fail("creating a connection bulkhead without capacity should have failed");
+      }
+      catch (IllegalArgumentException e) {
+         assertThat(e.getMessage().toLowerCase(), containsString("must be positive"));
+      }
+      try {
+         ConnectionBulkhead.getInstance(1, -1);
+         fail("creating a connection bulkhead with a negative wait time should have failed");
+      }
+      catch (IllegalArgumentException e) {
+         assertThat(e.getMessage().toLowerCase(), containsString("cannot be negative"));
+      }
+   }
+
+   private static AccessControlContext __newAuthenticatedAccessControlContext() {
+      final AccessControlContext accessControlContext
+            = SQLAccessControlContextFactory.getAccessControlContext(TestConfigLoader.getDataSource(),
+                                                                     TestConfigLoader.getDatabaseSchema(),
+                                                                     TestConfigLoader.getSQLProfile());
+      accessControlContext.authenticate(SYS_RESOURCE,
+                                        PasswordCredentials.newInstance(TestConfigLoader.getOaccRootPassword()));
+      return accessControlContext;
+   }
+}
@@ -0,0 +1,140 @@
+/*
+ * Copyright 2009-2016, Acciente LLC
+ *
+ * Acciente LLC licenses this file to you under the
+ * Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in
+ * writing, software distributed under the License is
+ * distributed on an "AS IS" BASIS, WITHOUT WARRANTIES
+ * OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.acciente.oacc;
+
+import com.acciente.oacc.sql.ConnectionScope;
+import com.acciente.oacc.sql.SQLAccessControlContextFactory;
+import org.junit.Test;
+
+import java.sql.Connection;
+
+import static org.hamcrest.CoreMatchers.containsString;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+public class TestSQLConnectionScope extends TestAccessControlBase {
+   @Test
+   public void openConnectionScope_callsWithinScope_shouldSucceed() {
+      authenticateSystemResource();
+      final Resource accessorResource = generateUnauthenticatableResource();
+      final String domainName = generateDomain();
+      final DomainPermission domainPermission = DomainPermissions.getInstance(DomainPermissions.DELETE);
+
+      try (ConnectionScope connectionScope = SQLAccessControlContextFactory.openConnectionScope(accessControlContext)) {
+         accessControlContext.setDomainPermissions(accessorResource, domainName, setOf(domainPermission));
+         assertThat(accessControlContext.hasDomainPermissions(accessorResource, domainName, domainPermission), is(true));
+         assertThat(accessControlContext.getDomainPermissions(accessorResource, domainName), is(setOf(domainPermission)));
+      }
+
+      // calls after the scope was closed use their own connections again
+      assertThat(accessControlContext.hasDomainPermissions(accessorResource, domainName, domainPermission), is(true));
+   }
+
+   @Test
+   public void openConnectionScope_afterPreviousScopeClosed_shouldSucceed() {
+      authenticateSystemResource();
+      final String domainName = generateDomain();
+
+      final ConnectionScope connectionScope = SQLAccessControlContextFactory.openConnectionScope(accessControlContext);
+      connectionScope.close();
+      // closing a scope again has no effect
+      connectionScope.close();
+
+      try (ConnectionScope otherConnectionScope = SQLAccessControlContextFactory.openConnectionScope(accessControlContext)) {
+         assertThat(accessControlContext.getDomainDescendants(domainName), is(setOf(domainName)));
+      }
+   }
+
+   @Test
+   public void openConnectionScope_whileScopeOpen_shouldFail() {
+      try (ConnectionScope connectionScope = SQLAccessControlContextFactory.openConnectionScope(accessControlContext)) {
+         try {
+            SQLAccessControlContextFactory.openConnectionScope(accessControlContext);
+            fail("opening a connection scope while another one is open should have failed");
+         }
+         catch (IllegalStateException e) {
+            assertThat(e.getMessage().toLowerCase(), containsString("another one is open"));
+         }
+         try {
+            SQLAccessControlContextFactory.openReadOnlyConnectionScope(accessControlContext,
+                                                                       Connection.TRANSACTION_SERIALIZABLE);
+            fail("opening a read-only connection scope while another one is open should have failed");
+         }
+         catch (IllegalStateException e) {
+            assertThat(e.getMessage().toLowerCase(), containsString("another one is open"));
+         }
+      }
+   }
+
+   @Test
+   public void openConnectionScope_nulls_shouldFail() {
+      try {
+         SQLAccessControlContextFactory.openConnectionScope(null);
+         fail("opening a connection scope with null access control context should have failed");
+      }
+      catch (NullPointerException e) {
+         assertThat(e.getMessage().toLowerCase(), containsString("none specified"));
+      }
+      try {
+         SQLAccessControlContextFactory.openReadOnlyConnectionScope(null, Connection.TRANSACTION_SERIALIZABLE);
+         fail("opening a read-only connection scope with null access control context should have failed");
+      }
+      catch (NullPointerException e) {
+         assertThat(e.getMessage().toLowerCase(), containsString("none specified"));
+      }
+   }
+
+   @Test
+   public void openReadOnlyConnectionScope_queriesWithinScope_shouldSucceed() {
+      authenticateSystemResource();
+      final Resource accessorResource = generateUnauthenticatableResource();
+      final String domainName = generateDomain();
+      final DomainPermission domainPermission = DomainPermissions.getInstance(DomainPermissions.DELETE);
+      accessControlContext.setDomainPermissions(accessorResource, domainName, setOf(domainPermission));
+
+      try (ConnectionScope connectionScope
+                 = SQLAccessControlContextFactory.openReadOnlyConnectionScope(accessControlContext,
+                                                                              Connection.TRANSACTION_SERIALIZABLE)) {
+         assertThat(accessControlContext.hasDomainPermissions(accessorResource, domainName, domainPermission), is(true));
+         accessControlContext.assertDomainPermissions(accessorResource, domainName, domainPermission);
+         assertThat(accessControlContext.getDomainNameByResource(accessorResource).isEmpty(), is(false));
+      }
+
+      // the connection's settings were restored, so mutations work again after the scope was closed
+      accessControlContext.setDomainPermissions(accessorResource, domainName, setOf(domainPermission));
+   }
+
+   @Test
+   public void openReadOnlyConnectionScope_invalidTransactionIsolation_shouldFail() {
+      try {
+         SQLAccessControlContextFactory.openReadOnlyConnectionScope(accessControlContext, Connection.TRANSACTION_NONE);
+         fail("opening a read-only connection scope without transaction isolation should have failed");
+      }
+      catch (IllegalArgumentException e) {
+         assertThat(e.getMessage().toLowerCase(), containsString("unsupported transaction isolation level"));
+      }
+      try {
+         SQLAccessControlContextFactory.openReadOnlyConnectionScope(accessControlContext, -1);
+         fail("opening a read-only connection scope with invalid transaction isolation should have failed");
+      }
+      catch (IllegalArgumentException e) {
+         assertThat(e.getMessage().toLowerCase(), containsString("unsupported transaction isolation level"));
+      }
+   }
+}
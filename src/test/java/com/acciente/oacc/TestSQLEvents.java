@@ -0,0 +1,208 @@
+/*
+ * Copyright 2009-2016, Acciente LLC
+ *
+ * Acciente LLC licenses this file to you under the
+ * Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in
+ * writing, software distributed under the License is
+ * distributed on an "AS IS" BASIS, WITHOUT WARRANTIES
+ * OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.acciente.oacc;
+
+import com.acciente.oacc.helper.TestConfigLoader;
+import com.acciente.oacc.sql.ConnectionScope;
+import com.acciente.oacc.sql.SQLAccessControlContextFactory;
+import com.acciente.oacc.sql.SQLEventListener;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.not;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.CoreMatchers.startsWith;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+public class TestSQLEvents extends TestAccessControlBase {
+   private RecordingEventListener eventListener;
+   private AccessControlContext   observedAccessControlContext;
+
+   @Before
+   public void setUpObservedAccessControlContext() {
+      observedAccessControlContext
+            = SQLAccessControlContextFactory.getObservedAccessControlContext(
+            SQLAccessControlContextFactory.getAccessControlContext(TestConfigLoader.getDataSource(),
+                                                                   TestConfigLoader.getDatabaseSchema(),
+                                                                   TestConfigLoader.getSQLProfile()));
+      eventListener = new RecordingEventListener();
+      SQLAccessControlContextFactory.setEventListener(eventListener);
+   }
+
+   @After
+   public void tearDownEventListener() {
+      SQLAccessControlContextFactory.setEventListener(null);
+   }
+
+   @Test
+   public void authenticate_shouldReportAuthenticatedResource() {
+      observedAccessControlContext.authenticate(SYS_RESOURCE,
+                                                PasswordCredentials.newInstance(TestConfigLoader.getOaccRootPassword()));
+
+      assertThat(eventListener.operations.size(), is(1));
+      final OperationEvent operationEvent = eventListener.operations.get(0);
+      assertThat(operationEvent.operationName, is("authenticate"));
+      assertThat(operationEvent.sessionResource, is(SYS_RESOURCE));
+      assertThat(operationEvent.failure, is(nullValue()));
+      assertThat(eventListener.connectionCheckoutCount > 0, is(true));
+   }
+
+   @Test
+   public void query_shouldReportOperationStatementsAndCheckout() {
+      authenticateSystemResource();
+      final Resource accessorResource = generateUnauthenticatableResource();
+      final Resource accessedResource = generateUnauthenticatableResource();
+      observedAccessControlContext.authenticate(SYS_RESOURCE,
+                                                PasswordCredentials.newInstance(TestConfigLoader.getOaccRootPassword()));
+      eventListener.clear();
+
+      observedAccessControlContext.getEffectiveResourcePermissions(accessorResource, accessedResource);
+
+      assertThat(eventListener.operations.size(), is(1));
+      final OperationEvent operationEvent = eventListener.operations.get(0);
+      assertThat(operationEvent.operationName, is("getEffectiveResourcePermissions"));
+      assertThat(operationEvent.sessionResource, is(SYS_RESOURCE));
+      assertThat(operationEvent.failure, is(nullValue()));
+      assertThat(operationEvent.durationNanos >= 0, is(true));
+
+      assertThat(eventListener.connectionCheckoutCount, is(1));
+      assertThat(eventListener.statementIds.isEmpty(), is(false));
+      for (String statementId : eventListener.statementIds) {
+         assertThat(statementId, startsWith("SQL_"));
+      }
+   }
+
+   @Test
+   public void failedOperation_shouldReportFailure() {
+      observedAccessControlContext.authenticate(SYS_RESOURCE,
+                                                PasswordCredentials.newInstance(TestConfigLoader.getOaccRootPassword()));
+      eventListener.clear();
+
+      try {
+         observedAccessControlContext.getEffectiveResourcePermissions(SYS_RESOURCE, Resources.getInstance(-999L));
+         fail("getting effective permissions on a non-existent resource should have failed");
+      }
+      catch (IllegalArgumentException e) {
+         assertThat(eventListener.operations.size(), is(1));
+         assertThat(eventListener.operations.get(0).failure, is((Throwable) e));
+      }
+   }
+
+   @Test
+   public void noListener_shouldNotReportEvents() {
+      SQLAccessControlContextFactory.setEventListener(null);
+
+      observedAccessControlContext.authenticate(SYS_RESOURCE,
+                                                PasswordCredentials.newInstance(TestConfigLoader.getOaccRootPassword()));
+      observedAccessControlContext.getSessionResource();
+
+      assertThat(eventListener.operations.isEmpty(), is(true));
+      assertThat(eventListener.statementIds.isEmpty(), is(true));
+      assertThat(eventListener.connectionCheckoutCount, is(0));
+   }
+
+   @Test
+   public void observedContext_shouldWorkWithFactoryMethods() {
+      observedAccessControlContext.authenticate(SYS_RESOURCE,
+                                                PasswordCredentials.newInstance(TestConfigLoader.getOaccRootPassword()));
+      assertThat(SQLAccessControlContextFactory.getObservedAccessControlContext(observedAccessControlContext),
+                 is(observedAccessControlContext));
+      SQLAccessControlContextFactory.setChangeLogEnabled(observedAccessControlContext, false);
+      eventListener.clear();
+
+      try (ConnectionScope ignored = SQLAccessControlContextFactory.openConnectionScope(observedAccessControlContext)) {
+         observedAccessControlContext.getResourceClassNames();
+         observedAccessControlContext.getDomainNameByResource(SYS_RESOURCE);
+      }
+
+      // only the connection pinned by the scope is checked out
+      assertThat(eventListener.connectionCheckoutCount, is(1));
+      assertThat(eventListener.operations.size(), is(2));
+   }
+
+   @Test
+   public void failingListener_shouldNotAffectOperation() {
+      SQLAccessControlContextFactory.setEventListener(new SQLEventListener() {
+         @Override
+         public void onOperation(String operationName, Resource sessionResource, Throwable failure, long durationNanos) {
+            throw new IllegalStateException("listener failure");
+         }
+
+         @Override
+         public void onStatement(String statementId, int rowCount, long durationNanos) {
+            throw new IllegalStateException("listener failure");
+         }
+
+         @Override
+         public void onConnectionCheckout(long durationNanos) {
+            throw new IllegalStateException("listener failure");
+         }
+      });
+
+      observedAccessControlContext.authenticate(SYS_RESOURCE,
+                                                PasswordCredentials.newInstance(TestConfigLoader.getOaccRootPassword()));
+      assertThat(observedAccessControlContext.getSessionResource(), is(not(nullValue())));
+   }
+
+   private static class OperationEvent {
+      private final String    operationName;
+      private final Resource  sessionResource;
+      private final Throwable failure;
+      private final long      durationNanos;
+
+      private OperationEvent(String operationName, Resource sessionResource, Throwable failure, long durationNanos) {
+         this.operationName = operationName;
+         this.sessionResource = sessionResource;
+         this.failure = failure;
+         this.durationNanos = durationNanos;
+      }
+   }
+
+   private static class RecordingEventListener implements SQLEventListener {
+      private final List<OperationEvent> operations   = new CopyOnWriteArrayList<>();
+      private final List<String>         statementIds = new CopyOnWriteArrayList<>();
+      private volatile int connectionCheckoutCount;
+
+      @Override
+      public void onOperation(String operationName, Resource sessionResource, Throwable failure, long durationNanos) {
+         operations.add(new OperationEvent(operationName, sessionResource, failure, durationNanos));
+      }
+
+      @Override
+      public void onStatement(String statementId, int rowCount, long durationNanos) {
+         statementIds.add(statementId);
+      }
+
+      @Override
+      public synchronized void onConnectionCheckout(long durationNanos) {
+         connectionCheckoutCount++;
+      }
+
+      private synchronized void clear() {
+         operations.clear();
+         statementIds.clear();
+         connectionCheckoutCount = 0;
+      }
+   }
+}
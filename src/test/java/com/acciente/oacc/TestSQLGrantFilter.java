@@ -0,0 +1,186 @@
+/*
+ * Copyright 2009-2016, Acciente LLC
+ *
+ * Acciente LLC licenses this file to you under the
+ * Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in
+ * writing, software distributed under the License is
+ * distributed on an "AS IS" BASIS, WITHOUT WARRANTIES
+ * OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.acciente.oacc;
+
+import com.acciente.oacc.helper.TestConfigLoader;
+import com.acciente.oacc.sql.ChangeLogEntry;
+import com.acciente.oacc.sql.SQLAccessControlContextFactory;
+import com.acciente.oacc.sql.SQLGrantFilter;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+public class TestSQLGrantFilter extends TestAccessControlBase {
+   private SQLGrantFilter       grantFilter;
+   private AccessControlContext filteredAccessControlContext;
+
+   @Before
+   public void setUpFilteredAccessControlContext() {
+      grantFilter = new SQLGrantFilter(TestConfigLoader.getDataSource(),
+                                       TestConfigLoader.getDatabaseSchema(),
+                                       SQLGrantFilter.DEFAULT_FALSE_POSITIVE_RATE);
+      filteredAccessControlContext
+            = SQLAccessControlContextFactory.getAccessControlContext(TestConfigLoader.getDataSource(),
+                                                                     TestConfigLoader.getDatabaseSchema(),
+                                                                     TestConfigLoader.getSQLProfile());
+      SQLAccessControlContextFactory.setGrantFilter(filteredAccessControlContext, grantFilter);
+      filteredAccessControlContext.authenticate(SYS_RESOURCE,
+                                                PasswordCredentials.newInstance(TestConfigLoader.getOaccRootPassword()));
+   }
+
+   @After
+   public void tearDownFilteredAccessControlContext() {
+      SQLAccessControlContextFactory.setGrantFilter(filteredAccessControlContext, null);
+   }
+
+   @Test
+   public void grantFilter_beforeRebuild_shouldNotRuleOutAnything() {
+      authenticateSystemResource();
+      final String resourceClassName = generateResourceClass(false, false);
+      final Resource accessorResource = generateUnauthenticatableResource();
+      final Resource accessedResource = accessControlContext.createResource(resourceClassName, generateDomain());
+
+      assertThat(grantFilter.isBuilt(), is(false));
+      assertThat(filteredAccessControlContext.getEffectiveResourcePermissions(accessorResource, accessedResource)
+                       .isEmpty(),
+                 is(true));
+      assertThat(grantFilter.getRuledOutCount(), is(0L));
+   }
+
+   @Test
+   public void grantFilter_withoutGrants_shouldRuleOutQuery() {
+      authenticateSystemResource();
+      final String resourceClassName = generateResourceClass(false, false);
+      final ResourcePermission permission
+            = ResourcePermissions.getInstance(generateResourceClassPermission(resourceClassName));
+      final Resource accessorResource = generateUnauthenticatableResource();
+      final Resource accessedResource = accessControlContext.createResource(resourceClassName, generateDomain());
+
+      grantFilter.rebuild();
+      final long ruledOutCount = grantFilter.getRuledOutCount();
+
+      assertThat(filteredAccessControlContext.hasResourcePermissions(accessorResource, accessedResource, permission),
+                 is(false));
+      assertThat(filteredAccessControlContext.getEffectiveResourcePermissions(accessorResource, accessedResource)
+                       .isEmpty(),
+                 is(true));
+      // a false positive is possible, but two in a row at the default rate is not worth accounting for
+      assertThat(grantFilter.getRuledOutCount() > ruledOutCount, is(true));
+   }
+
+   @Test
+   public void grantFilter_shouldMatchEffectivePermissionsOfDatabase() {
+      authenticateSystemResource();
+      final String resourceClassName = generateResourceClass(false, false);
+      final ResourcePermission readPermission
+            = ResourcePermissions.getInstanceWithGrantOption(generateResourceClassPermission(resourceClassName));
+      final ResourcePermission writePermission
+            = ResourcePermissions.getInstance(generateResourceClassPermission(resourceClassName));
+      final String domainName = generateDomain();
+      final String childDomainName = generateChildDomain(domainName);
+      final Resource user = generateUnauthenticatableResource();
+      final Resource group = generateUnauthenticatableResource();
+      final Resource superUser = generateUnauthenticatableResource();
+      final Resource bystander = generateUnauthenticatableResource();
+      final Resource document = accessControlContext.createResource(resourceClassName, childDomainName);
+      final Resource otherDocument = accessControlContext.createResource(resourceClassName, domainName);
+
+      accessControlContext.setResourcePermissions(user,
+                                                  group,
+                                                  setOf(ResourcePermissions.getInstance(ResourcePermissions.INHERIT)));
+      accessControlContext.setResourcePermissions(group, document, setOf(readPermission));
+      accessControlContext.setGlobalResourcePermissions(user, resourceClassName, domainName, setOf(writePermission));
+      accessControlContext.setDomainPermissions(superUser,
+                                                domainName,
+                                                setOf(DomainPermissions.getInstance(DomainPermissions.SUPER_USER)));
+
+      grantFilter.rebuild();
+
+      for (Resource accessor : new Resource[]{user, group, superUser, bystander}) {
+         for (Resource accessed : new Resource[]{document, otherDocument}) {
+            assertThat(filteredAccessControlContext.getEffectiveResourcePermissions(accessor, accessed),
+                       is(accessControlContext.getEffectiveResourcePermissions(accessor, accessed)));
+         }
+      }
+      assertThat(filteredAccessControlContext.hasResourcePermissions(user, document, readPermission, writePermission),
+                 is(true));
+      assertThat(filteredAccessControlContext.hasResourcePermissions(bystander, document, readPermission),
+                 is(false));
+   }
+
+   @Test
+   public void grantFilter_afterGrantThroughFilteredContext_shouldHonorGrant() {
+      authenticateSystemResource();
+      final String resourceClassName = generateResourceClass(false, false);
+      final ResourcePermission permission
+            = ResourcePermissions.getInstance(generateResourceClassPermission(resourceClassName));
+      final String domainName = generateDomain();
+      final Resource accessorResource = generateUnauthenticatableResource();
+      final Resource accessedResource = accessControlContext.createResource(resourceClassName, domainName);
+      final Resource otherAccessedResource = accessControlContext.createResource(resourceClassName, domainName);
+
+      grantFilter.rebuild();
+      assertThat(filteredAccessControlContext.hasResourcePermissions(accessorResource, accessedResource, permission),
+                 is(false));
+
+      filteredAccessControlContext.setResourcePermissions(accessorResource, accessedResource, setOf(permission));
+      assertThat(filteredAccessControlContext.hasResourcePermissions(accessorResource, accessedResource, permission),
+                 is(true));
+
+      filteredAccessControlContext.setGlobalResourcePermissions(accessorResource,
+                                                                resourceClassName,
+                                                                domainName,
+                                                                setOf(permission));
+      assertThat(filteredAccessControlContext.hasResourcePermissions(accessorResource,
+                                                                     otherAccessedResource,
+                                                                     permission),
+                 is(true));
+   }
+
+   @Test
+   public void grantFilter_afterGrantThroughOtherContext_shouldHonorGrantOnceNotified() {
+      authenticateSystemResource();
+      final String resourceClassName = generateResourceClass(false, false);
+      final ResourcePermission permission
+            = ResourcePermissions.getInstance(generateResourceClassPermission(resourceClassName));
+      final Resource accessorResource = generateUnauthenticatableResource();
+      final Resource accessedResource = accessControlContext.createResource(resourceClassName, generateDomain());
+
+      grantFilter.rebuild();
+      accessControlContext.setResourcePermissions(accessorResource, accessedResource, setOf(permission));
+
+      // the change was made through a context the filter does not listen to, e.g. on another node
+      grantFilter.onChange(new ChangeLogEntry(0,
+                                              ChangeLogEntry.ChangeType.RESOURCE_PERMISSIONS,
+                                              accessorResource,
+                                              accessedResource,
+                                              null,
+                                              null));
+      assertThat(filteredAccessControlContext.hasResourcePermissions(accessorResource, accessedResource, permission),
+                 is(true));
+
+      // a rebuild picks up the grant from the database as well
+      grantFilter.setReplayWindowMillis(0);
+      grantFilter.rebuild();
+      assertThat(filteredAccessControlContext.hasResourcePermissions(accessorResource, accessedResource, permission),
+                 is(true));
+   }
+}
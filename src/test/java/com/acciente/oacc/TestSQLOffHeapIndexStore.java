@@ -0,0 +1,142 @@
+/*
+ * Copyright 2009-2016, Acciente LLC
+ *
+ * Acciente LLC licenses this file to you under the
+ * Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in
+ * writing, software distributed under the License is
+ * distributed on an "AS IS" BASIS, WITHOUT WARRANTIES
+ * OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.acciente.oacc;
+
+import com.acciente.oacc.helper.TestConfigLoader;
+import com.acciente.oacc.sql.OffHeapIndexStore;
+import com.acciente.oacc.sql.SQLAccessControlContextFactory;
+import com.acciente.oacc.sql.SQLGrantFilter;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.hamcrest.CoreMatchers.containsString;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+public class TestSQLOffHeapIndexStore extends TestAccessControlBase {
+   private OffHeapIndexStore offHeapIndexStore;
+
+   @Before
+   public void setUpOffHeapIndexStore() {
+      offHeapIndexStore = new OffHeapIndexStore(1000, 1000, 60000);
+   }
+
+   @Test
+   public void resolveResource_throughOtherContext_shouldUseStore() {
+      authenticateSystemResource();
+      final String resourceClassName = generateResourceClass(false, false);
+      final String domainName = generateDomain();
+      final Resource resource = accessControlContext.createResource(resourceClassName, domainName);
+      final AccessControlContext firstAccessControlContext = __getAccessControlContextWithStore();
+      final AccessControlContext secondAccessControlContext = __getAccessControlContextWithStore();
+
+      assertThat(firstAccessControlContext.getDomainNameByResource(Resources.getInstance(resource.getId())),
+                 is(domainName));
+      assertThat(offHeapIndexStore.getResourceCount() > 0, is(true));
+
+      final long hitCount = offHeapIndexStore.getHitCount();
+      assertThat(secondAccessControlContext.getDomainNameByResource(Resources.getInstance(resource.getId())),
+                 is(domainName));
+      assertThat(secondAccessControlContext.getResourceClassInfoByResource(Resources.getInstance(resource.getId()))
+                       .getResourceClassName(),
+                 is(resourceClassName));
+      assertThat(offHeapIndexStore.getHitCount() > hitCount, is(true));
+   }
+
+   @Test
+   public void resolveResource_afterDeleteThroughOtherContext_shouldFail() {
+      authenticateSystemResource();
+      final Resource resource = accessControlContext.createResource(generateResourceClass(false, false),
+                                                                    generateDomain());
+      final AccessControlContext resolvingAccessControlContext = __getAccessControlContextWithStore();
+      final AccessControlContext deletingAccessControlContext = __getAccessControlContextWithStore();
+
+      resolvingAccessControlContext.getDomainNameByResource(resource);
+      deletingAccessControlContext.deleteResource(resource);
+
+      try {
+         __getAccessControlContextWithStore().getDomainNameByResource(Resources.getInstance(resource.getId()));
+         fail("resolving a resource deleted through a context sharing the store should have failed");
+      }
+      catch (IllegalArgumentException e) {
+         assertThat(e.getMessage().toLowerCase(), containsString("not found"));
+      }
+   }
+
+   @Test
+   public void resolveResource_withExternalId_shouldNotBeStored() {
+      authenticateSystemResource();
+      final Resource resource = accessControlContext.createResource(generateResourceClass(false, false),
+                                                                    generateDomain(),
+                                                                    generateUniqueExternalId());
+
+      final AccessControlContext resolvingAccessControlContext = __getAccessControlContextWithStore();
+      final int resourceCount = offHeapIndexStore.getResourceCount();
+
+      resolvingAccessControlContext.getDomainNameByResource(Resources.getInstance(resource.getId()));
+
+      assertThat(offHeapIndexStore.getResourceCount(), is(resourceCount));
+   }
+
+   @Test
+   public void grantFilter_afterInheritThroughOtherContext_shouldHonorInheritedGrant() {
+      authenticateSystemResource();
+      final String resourceClassName = generateResourceClass(false, false);
+      final ResourcePermission permission
+            = ResourcePermissions.getInstance(generateResourceClassPermission(resourceClassName));
+      final Resource user = generateUnauthenticatableResource();
+      final Resource group = generateUnauthenticatableResource();
+      final Resource otherGroup = generateUnauthenticatableResource();
+      final Resource document = accessControlContext.createResource(resourceClassName, generateDomain());
+      accessControlContext.setResourcePermissions(user,
+                                                  group,
+                                                  setOf(ResourcePermissions.getInstance(ResourcePermissions.INHERIT)));
+      accessControlContext.setResourcePermissions(otherGroup, document, setOf(permission));
+
+      final SQLGrantFilter grantFilter = new SQLGrantFilter(TestConfigLoader.getDataSource(),
+                                                            TestConfigLoader.getDatabaseSchema(),
+                                                            SQLGrantFilter.DEFAULT_FALSE_POSITIVE_RATE);
+      grantFilter.rebuild();
+      final AccessControlContext checkingAccessControlContext = __getAccessControlContextWithStore();
+      final AccessControlContext grantingAccessControlContext = __getAccessControlContextWithStore();
+      SQLAccessControlContextFactory.setGrantFilter(checkingAccessControlContext, grantFilter);
+      SQLAccessControlContextFactory.setGrantFilter(grantingAccessControlContext, grantFilter);
+
+      // stores the resources the user inherits from
+      assertThat(checkingAccessControlContext.hasResourcePermissions(user, document, permission), is(false));
+      assertThat(offHeapIndexStore.getAccessorCount() > 0, is(true));
+
+      grantingAccessControlContext.setResourcePermissions(user,
+                                                          otherGroup,
+                                                          setOf(ResourcePermissions.getInstance(ResourcePermissions.INHERIT)));
+
+      assertThat(checkingAccessControlContext.hasResourcePermissions(user, document, permission), is(true));
+   }
+
+   private AccessControlContext __getAccessControlContextWithStore() {
+      final AccessControlContext accessControlContext
+            = SQLAccessControlContextFactory.getAccessControlContext(TestConfigLoader.getDataSource(),
+                                                                     TestConfigLoader.getDatabaseSchema(),
+                                                                     TestConfigLoader.getSQLProfile());
+      SQLAccessControlContextFactory.setOffHeapIndexStore(accessControlContext, offHeapIndexStore);
+      accessControlContext.authenticate(SYS_RESOURCE,
+                                        PasswordCredentials.newInstance(TestConfigLoader.getOaccRootPassword()));
+      return accessControlContext;
+   }
+}
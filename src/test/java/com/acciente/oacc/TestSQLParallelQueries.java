@@ -0,0 +1,246 @@
+/*
+ * Copyright 2009-2016, Acciente LLC
+ *
+ * Acciente LLC licenses this file to you under the
+ * Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in
+ * writing, software distributed under the License is
+ * distributed on an "AS IS" BASIS, WITHOUT WARRANTIES
+ * OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.acciente.oacc;
+
+import com.acciente.oacc.helper.CountingDataSource;
+import com.acciente.oacc.helper.FixedSizeDataSource;
+import com.acciente.oacc.helper.TestConfigLoader;
+import com.acciente.oacc.sql.ConnectionBulkhead;
+import com.acciente.oacc.sql.ConnectionScope;
+import com.acciente.oacc.sql.SQLAccessControlContextFactory;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+public class TestSQLParallelQueries extends TestAccessControlBase {
+   private CountingDataSource   countingDataSource;
+   private AccessControlContext parallelAccessControlContext;
+
+   @Before
+   public void setUpParallelAccessControlContext() {
+      countingDataSource = new CountingDataSource(TestConfigLoader.getDataSource());
+      parallelAccessControlContext
+            = SQLAccessControlContextFactory.getAccessControlContext(countingDataSource.getDataSource(),
+                                                                     TestConfigLoader.getDatabaseSchema(),
+                                                                     TestConfigLoader.getSQLProfile());
+      SQLAccessControlContextFactory.setParallelQueriesEnabled(parallelAccessControlContext, true);
+      parallelAccessControlContext.authenticate(SYS_RESOURCE,
+                                                PasswordCredentials.newInstance(TestConfigLoader.getOaccRootPassword()));
+   }
+
+   @Test
+   public void parallel_effectiveResourcePermissions_shouldMatchSequential() {
+      authenticateSystemResource();
+
+      final Resource accessorResource = generateUnauthenticatableResource();
+      final String resourceClassName = generateResourceClass(false, false);
+      final String domainName = generateDomain();
+      final Resource accessedResource = accessControlContext.createResource(resourceClassName, domainName);
+      final ResourcePermission directPermission
+            = ResourcePermissions.getInstance(generateResourceClassPermission(resourceClassName));
+      final ResourcePermission globalPermission
+            = ResourcePermissions.getInstanceWithGrantOption(generateResourceClassPermission(resourceClassName));
+
+      accessControlContext.setResourcePermissions(accessorResource,
+                                                  accessedResource,
+                                                  setOf(directPermission,
+                                                        ResourcePermissions.getInstance(ResourcePermissions.QUERY)));
+      accessControlContext.setGlobalResourcePermissions(accessorResource,
+                                                        resourceClassName,
+                                                        domainName,
+                                                        setOf(globalPermission,
+                                                              ResourcePermissions.getInstance(ResourcePermissions.DELETE)));
+
+      final Set<ResourcePermission> expectedResourcePermissions
+            = accessControlContext.getEffectiveResourcePermissions(accessorResource, accessedResource);
+      assertThat(expectedResourcePermissions.size(), is(4));
+
+      final int connectionCount = countingDataSource.getConnectionCount();
+      assertThat(parallelAccessControlContext.getEffectiveResourcePermissions(accessorResource, accessedResource),
+                 is(expectedResourcePermissions));
+
+      // one connection for the caller, and one for each of the four grant sources
+      assertThat(countingDataSource.getConnectionCount(), is(connectionCount + 5));
+   }
+
+   @Test
+   public void parallel_effectiveResourcePermissions_superUser_shouldMatchSequential() {
+      authenticateSystemResource();
+
+      final Resource accessorResource = generateUnauthenticatableResource();
+      final String resourceClassName = generateResourceClass(false, false);
+      generateResourceClassPermission(resourceClassName);
+      final String domainName = generateDomain();
+      final Resource accessedResource = accessControlContext.createResource(resourceClassName, domainName);
+
+      accessControlContext.setDomainPermissions(accessorResource,
+                                                domainName,
+                                                setOf(DomainPermissions.getInstance(DomainPermissions.SUPER_USER)));
+
+      assertThat(parallelAccessControlContext.getEffectiveResourcePermissions(accessorResource, accessedResource),
+                 is(accessControlContext.getEffectiveResourcePermissions(accessorResource, accessedResource)));
+   }
+
+   @Test
+   public void parallel_effectiveResourceCreatePermissionsMap_shouldMatchSequential() {
+      authenticateSystemResource();
+
+      final Resource accessorResource = generateUnauthenticatableResource();
+      final String resourceClassName = generateResourceClass(false, false);
+      final String permissionName = generateResourceClassPermission(resourceClassName);
+      final String domainName = generateDomain();
+      final String superUserDomainName = generateDomain();
+
+      accessControlContext.setResourceCreatePermissions(accessorResource,
+                                                        resourceClassName,
+                                                        domainName,
+                                                        setOf(ResourceCreatePermissions
+                                                                    .getInstance(ResourceCreatePermissions.CREATE),
+                                                              ResourceCreatePermissions
+                                                                    .getInstance(ResourcePermissions
+                                                                                       .getInstance(permissionName)),
+                                                              ResourceCreatePermissions
+                                                                    .getInstance(ResourcePermissions
+                                                                                       .getInstance(ResourcePermissions.QUERY))));
+      accessControlContext.setDomainPermissions(accessorResource,
+                                                superUserDomainName,
+                                                setOf(DomainPermissions.getInstance(DomainPermissions.SUPER_USER)));
+
+      final Map<String, Map<String, Set<ResourceCreatePermission>>> expectedResourceCreatePermissionsMap
+            = accessControlContext.getEffectiveResourceCreatePermissionsMap(accessorResource);
+
+      final int connectionCount = countingDataSource.getConnectionCount();
+      assertThat(parallelAccessControlContext.getEffectiveResourceCreatePermissionsMap(accessorResource),
+                 is(expectedResourceCreatePermissionsMap));
+
+      // one connection for the caller, and one for each of the three grant sources
+      assertThat(countingDataSource.getConnectionCount(), is(connectionCount + 4));
+   }
+
+   @Test
+   public void parallel_disabled_shouldUseSingleConnection() {
+      authenticateSystemResource();
+
+      final Resource accessorResource = generateUnauthenticatableResource();
+      final Resource accessedResource = generateUnauthenticatableResource();
+      SQLAccessControlContextFactory.setParallelQueriesEnabled(parallelAccessControlContext, false);
+
+      final int connectionCount = countingDataSource.getConnectionCount();
+      parallelAccessControlContext.getEffectiveResourcePermissions(accessorResource, accessedResource);
+
+      assertThat(countingDataSource.getConnectionCount(), is(connectionCount + 1));
+   }
+
+   @Test
+   public void parallel_withinConnectionScope_shouldRunSequentially() {
+      authenticateSystemResource();
+
+      final Resource accessorResource = generateUnauthenticatableResource();
+      final String resourceClassName = generateResourceClass(false, false);
+      final ResourcePermission permission
+            = ResourcePermissions.getInstance(generateResourceClassPermission(resourceClassName));
+      final Resource accessedResource = accessControlContext.createResource(resourceClassName, generateDomain());
+      accessControlContext.setResourcePermissions(accessorResource, accessedResource, setOf(permission));
+
+      final int connectionCount = countingDataSource.getConnectionCount();
+      try (ConnectionScope ignored = SQLAccessControlContextFactory.openConnectionScope(parallelAccessControlContext)) {
+         assertThat(parallelAccessControlContext.getEffectiveResourcePermissions(accessorResource, accessedResource),
+                    is(setOf(permission)));
+         assertThat(parallelAccessControlContext.getEffectiveResourceCreatePermissionsMap(accessorResource).isEmpty(),
+                    is(true));
+      }
+
+      // only the connection pinned by the scope is used
+      assertThat(countingDataSource.getConnectionCount(), is(connectionCount + 1));
+   }
+
+   @Test
+   public void parallel_moreCallersThanPoolConnections_shouldNotStarvePool() throws InterruptedException {
+      authenticateSystemResource();
+
+      final Resource accessorResource = generateUnauthenticatableResource();
+      final String resourceClassName = generateResourceClass(false, false);
+      final ResourcePermission permission
+            = ResourcePermissions.getInstance(generateResourceClassPermission(resourceClassName));
+      final Resource accessedResource = accessControlContext.createResource(resourceClassName, generateDomain());
+      accessControlContext.setResourcePermissions(accessorResource, accessedResource, setOf(permission));
+
+      // just enough connections for one caller and its four grant source queries, shared by three times as many
+      // callers, which are admitted by a bulkhead of the same size, and would each wait for connections otherwise
+      final int poolSize = 5;
+      final FixedSizeDataSource fixedSizeDataSource
+            = new FixedSizeDataSource(TestConfigLoader.getDataSource(), poolSize, 10000);
+      final ConnectionBulkhead connectionBulkhead = ConnectionBulkhead.getInstance(poolSize, 30000);
+
+      final List<AccessControlContext> callerAccessControlContexts = new ArrayList<>();
+      for (int i = 0; i < 3 * poolSize; i++) {
+         final AccessControlContext callerAccessControlContext
+               = SQLAccessControlContextFactory.getAccessControlContext(fixedSizeDataSource.getDataSource(),
+                                                                        TestConfigLoader.getDatabaseSchema(),
+                                                                        TestConfigLoader.getSQLProfile());
+         SQLAccessControlContextFactory.setConnectionBulkhead(callerAccessControlContext, connectionBulkhead);
+         SQLAccessControlContextFactory.setParallelQueriesEnabled(callerAccessControlContext, true);
+         callerAccessControlContext.authenticate(SYS_RESOURCE,
+                                                 PasswordCredentials.newInstance(TestConfigLoader.getOaccRootPassword()));
+         callerAccessControlContexts.add(callerAccessControlContext);
+      }
+
+      final CountDownLatch startLatch = new CountDownLatch(1);
+      final Queue<Throwable> failures = new ConcurrentLinkedQueue<>();
+      final List<Thread> callerThreads = new ArrayList<>();
+      for (final AccessControlContext callerAccessControlContext : callerAccessControlContexts) {
+         final Thread callerThread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+               try {
+                  startLatch.await();
+                  for (int i = 0; i < 5; i++) {
+                     assertThat(callerAccessControlContext.getEffectiveResourcePermissions(accessorResource,
+                                                                                           accessedResource),
+                                is(setOf(permission)));
+                  }
+               }
+               catch (Throwable t) {
+                  failures.add(t);
+               }
+            }
+         });
+         callerThread.start();
+         callerThreads.add(callerThread);
+      }
+      startLatch.countDown();
+      for (Thread callerThread : callerThreads) {
+         callerThread.join();
+      }
+
+      assertThat(failures.toString(), failures.isEmpty(), is(true));
+      assertThat(connectionBulkhead.getRejectedCount(), is(0L));
+      assertThat(connectionBulkhead.getActiveConnectionCount(), is(0));
+      assertThat(fixedSizeDataSource.getOpenConnectionCount(), is(0));
+   }
+}
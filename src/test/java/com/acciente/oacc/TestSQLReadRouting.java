@@ -0,0 +1,190 @@
+/*
+ * Copyright 2009-2016, Acciente LLC
+ *
+ * Acciente LLC licenses this file to you under the
+ * Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in
+ * writing, software distributed under the License is
+ * distributed on an "AS IS" BASIS, WITHOUT WARRANTIES
+ * OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.acciente.oacc;
+
+import com.acciente.oacc.helper.CountingDataSource;
+import com.acciente.oacc.helper.TestConfigLoader;
+import com.acciente.oacc.sql.ReadRoutingPolicy;
+import com.acciente.oacc.sql.SQLAccessControlContextFactory;
+import org.junit.Before;
+import org.junit.Test;
+
+import javax.sql.DataSource;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.hamcrest.CoreMatchers.containsString;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+public class TestSQLReadRouting extends TestAccessControlBase {
+   private CountingDataSource primaryDataSource;
+   private CountingDataSource readDataSource;
+   private CountingDataSource otherReadDataSource;
+
+   @Before
+   public void setUpDataSources() {
+      // all data sources point to the same test database, we only observe where connections are checked out
+      primaryDataSource = new CountingDataSource(TestConfigLoader.getDataSource());
+      readDataSource = new CountingDataSource(TestConfigLoader.getDataSource());
+      otherReadDataSource = new CountingDataSource(TestConfigLoader.getDataSource());
+   }
+
+   @Test
+   public void routing_queries_shouldUseReadDataSource() {
+      final Resource accessorResource = generateUnauthenticatableResource();
+      final String domainName = generateDomain();
+      final AccessControlContext routingAccessControlContext
+            = getRoutingAccessControlContext(Arrays.asList(readDataSource.getDataSource()),
+                                             ReadRoutingPolicy.getInstance(ReadRoutingPolicy.Selection.ROUND_ROBIN));
+      authenticate(routingAccessControlContext);
+      final int primaryCount = primaryDataSource.getConnectionCount();
+
+      routingAccessControlContext.hasDomainPermissions(accessorResource,
+                                                       domainName,
+                                                       DomainPermissions.getInstance(DomainPermissions.DELETE));
+      routingAccessControlContext.getDomainDescendants(domainName);
+
+      assertThat(readDataSource.getConnectionCount(), is(2));
+      assertThat(primaryDataSource.getConnectionCount(), is(primaryCount));
+   }
+
+   @Test
+   public void routing_mutations_shouldUsePrimaryDataSource() {
+      final AccessControlContext routingAccessControlContext
+            = getRoutingAccessControlContext(Arrays.asList(readDataSource.getDataSource()),
+                                             ReadRoutingPolicy.getInstance(ReadRoutingPolicy.Selection.RANDOM));
+      authenticate(routingAccessControlContext);
+      final int primaryCount = primaryDataSource.getConnectionCount();
+
+      routingAccessControlContext.createDomain(generateUniqueDomainName());
+
+      assertThat(primaryDataSource.getConnectionCount(), is(primaryCount + 1));
+      assertThat(readDataSource.getConnectionCount(), is(0));
+   }
+
+   @Test
+   public void routing_roundRobin_shouldAlternateReadDataSources() {
+      final String domainName = generateDomain();
+      final AccessControlContext routingAccessControlContext
+            = getRoutingAccessControlContext(Arrays.asList(readDataSource.getDataSource(),
+                                                           otherReadDataSource.getDataSource()),
+                                             ReadRoutingPolicy.getInstance(ReadRoutingPolicy.Selection.ROUND_ROBIN));
+      authenticate(routingAccessControlContext);
+
+      for (int i = 0; i < 4; i++) {
+         routingAccessControlContext.getDomainDescendants(domainName);
+      }
+
+      assertThat(readDataSource.getConnectionCount(), is(2));
+      assertThat(otherReadDataSource.getConnectionCount(), is(2));
+   }
+
+   @Test
+   public void routing_readYourWrites_shouldUsePrimaryDataSourceAfterMutation() {
+      final AccessControlContext routingAccessControlContext
+            = getRoutingAccessControlContext(Arrays.asList(readDataSource.getDataSource()),
+                                             ReadRoutingPolicy.getInstance(ReadRoutingPolicy.Selection.ROUND_ROBIN,
+                                                                           60000));
+      authenticate(routingAccessControlContext);
+
+      final String domainName = generateUniqueDomainName();
+      routingAccessControlContext.createDomain(domainName);
+      final int primaryCount = primaryDataSource.getConnectionCount();
+
+      // the new domain is read back from the primary, even if a replica might not have it yet
+      assertThat(routingAccessControlContext.getDomainDescendants(domainName), is(setOf(domainName)));
+      assertThat(primaryDataSource.getConnectionCount(), is(primaryCount + 1));
+      assertThat(readDataSource.getConnectionCount(), is(0));
+   }
+
+   @Test
+   public void routing_readYourWrites_shouldUseReadDataSourceAfterPrimaryRead() {
+      final String domainName = generateDomain();
+      final AccessControlContext routingAccessControlContext
+            = getRoutingAccessControlContext(Arrays.asList(readDataSource.getDataSource()),
+                                             ReadRoutingPolicy.getInstance(ReadRoutingPolicy.Selection.ROUND_ROBIN,
+                                                                           60000));
+      // authentication reads from the primary, but does not write anything the session would have to read back
+      authenticate(routingAccessControlContext);
+      final int primaryCount = primaryDataSource.getConnectionCount();
+
+      routingAccessControlContext.getDomainDescendants(domainName);
+
+      assertThat(readDataSource.getConnectionCount(), is(1));
+      assertThat(primaryDataSource.getConnectionCount(), is(primaryCount));
+   }
+
+   @Test
+   public void getAccessControlContext_invalidReadDataSources_shouldFail() {
+      final ReadRoutingPolicy readRoutingPolicy = ReadRoutingPolicy.getInstance(ReadRoutingPolicy.Selection.ROUND_ROBIN);
+
+      assertGetAccessControlContextFails(null, readRoutingPolicy, "none specified");
+      assertGetAccessControlContextFails(Collections.<DataSource>emptyList(), readRoutingPolicy, "empty list specified");
+      assertGetAccessControlContextFails(Arrays.asList(readDataSource.getDataSource(), null),
+                                         readRoutingPolicy,
+                                         "cannot contain null elements");
+      assertGetAccessControlContextFails(Arrays.asList(readDataSource.getDataSource()), null, "none specified");
+   }
+
+   @Test
+   public void readRoutingPolicy_invalidArguments_shouldFail() {
+      try {
+         ReadRoutingPolicy.getInstance(null);
+         fail("getting a read routing policy without selection should have failed");
+      }
+      catch (NullPointerException e) {
+         assertThat(e.getMessage().toLowerCase(), containsString("none specified"));
+      }
+      try {
+         ReadRoutingPolicy.getInstance(ReadRoutingPolicy.Selection.ROUND_ROBIN, -1);
+         fail("getting a read routing policy with negative read-your-writes interval should have failed");
+      }
+      catch (IllegalArgumentException e) {
+         assertThat(e.getMessage().toLowerCase(), containsString("cannot be negative"));
+      }
+   }
+
+   private AccessControlContext getRoutingAccessControlContext(List<DataSource> readDataSources,
+                                                               ReadRoutingPolicy readRoutingPolicy) {
+      return SQLAccessControlContextFactory.getAccessControlContext(primaryDataSource.getDataSource(),
+                                                                    readDataSources,
+                                                                    TestConfigLoader.getDatabaseSchema(),
+                                                                    TestConfigLoader.getSQLProfile(),
+                                                                    readRoutingPolicy);
+   }
+
+   private void assertGetAccessControlContextFails(List<DataSource> readDataSources,
+                                                   ReadRoutingPolicy readRoutingPolicy,
+                                                   String expectedMessage) {
+      try {
+         getRoutingAccessControlContext(readDataSources, readRoutingPolicy);
+         fail("getting access control context with invalid read routing should have failed");
+      }
+      catch (IllegalArgumentException e) {
+         assertThat(e.getMessage().toLowerCase(), containsString(expectedMessage));
+      }
+   }
+
+   private static void authenticate(AccessControlContext accessControlContext) {
+      accessControlContext.authenticate(SYS_RESOURCE,
+                                        PasswordCredentials.newInstance(TestConfigLoader.getOaccRootPassword()));
+   }
+}
@@ -0,0 +1,200 @@
+/*
+ * Copyright 2009-2016, Acciente LLC
+ *
+ * Acciente LLC licenses this file to you under the
+ * Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in
+ * writing, software distributed under the License is
+ * distributed on an "AS IS" BASIS, WITHOUT WARRANTIES
+ * OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.acciente.oacc;
+
+import com.acciente.oacc.sql.RedundantGrant;
+import com.acciente.oacc.sql.RedundantGrantReport;
+import com.acciente.oacc.sql.SQLAccessControlContextFactory;
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+import static org.hamcrest.CoreMatchers.containsString;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+public class TestSQLRedundantGrants extends TestAccessControlBase {
+   @Test
+   public void findRedundantGrants_shouldReportSubsumedGrantsWithoutRemovingThem() {
+      authenticateSystemResource();
+      final String resourceClassName = generateResourceClass(false, false);
+      final String globalPermissionName = generateResourceClassPermission(resourceClassName);
+      final String inheritedPermissionName = generateResourceClassPermission(resourceClassName);
+      final String grantablePermissionName = generateResourceClassPermission(resourceClassName);
+      final String domainName = generateDomain();
+      final Resource accessedResource = accessControlContext.createResource(resourceClassName, domainName);
+      final Resource accessorResource = generateUnauthenticatableResource();
+      final Resource donorResource = generateUnauthenticatableResource();
+      final Resource superUserResource = generateUnauthenticatableResource();
+
+      // a global permission subsumes the direct one
+      accessControlContext.setGlobalResourcePermissions(accessorResource,
+                                                        resourceClassName,
+                                                        domainName,
+                                                        setOf(ResourcePermissions.getInstance(globalPermissionName)));
+      // an inherited permission subsumes the direct one, but only if it has at least the same grant option
+      accessControlContext.setResourcePermissions(accessorResource,
+                                                  donorResource,
+                                                  setOf(ResourcePermissions.getInstance(ResourcePermissions.INHERIT)));
+      final Set<ResourcePermission> directResourcePermissions
+            = setOf(ResourcePermissions.getInstance(globalPermissionName),
+                    ResourcePermissions.getInstanceWithGrantOption(inheritedPermissionName),
+                    ResourcePermissions.getInstanceWithGrantOption(grantablePermissionName));
+      accessControlContext.setResourcePermissions(accessorResource, accessedResource, directResourcePermissions);
+      accessControlContext.setResourcePermissions(donorResource,
+                                                  accessedResource,
+                                                  setOf(ResourcePermissions.getInstanceWithGrantOption(inheritedPermissionName),
+                                                        ResourcePermissions.getInstance(grantablePermissionName)));
+
+      // super-user subsumes all direct permissions
+      grantDomainPermission(superUserResource, domainName, DomainPermissions.getInstance(DomainPermissions.SUPER_USER));
+      accessControlContext.setResourcePermissions(superUserResource,
+                                                  accessedResource,
+                                                  setOf(ResourcePermissions.getInstance(ResourcePermissions.DELETE)));
+
+      final RedundantGrantReport redundantGrantReport
+            = SQLAccessControlContextFactory.findRedundantGrants(accessControlContext);
+
+      assertThat(redundantGrantReport.isRemoved(), is(false));
+      final Map<String, RedundantGrant.Reason> expectedRedundantGrants = new HashMap<>();
+      expectedRedundantGrants.put(__getKey(accessorResource,
+                                           accessedResource,
+                                           ResourcePermissions.getInstance(globalPermissionName)),
+                                  RedundantGrant.Reason.GLOBAL_PERMISSION);
+      expectedRedundantGrants.put(__getKey(accessorResource,
+                                           accessedResource,
+                                           ResourcePermissions.getInstanceWithGrantOption(inheritedPermissionName)),
+                                  RedundantGrant.Reason.INHERITED_PERMISSION);
+      expectedRedundantGrants.put(__getKey(superUserResource,
+                                           accessedResource,
+                                           ResourcePermissions.getInstance(ResourcePermissions.DELETE)),
+                                  RedundantGrant.Reason.SUPER_USER);
+      assertThat(__getRedundantGrants(redundantGrantReport), is(expectedRedundantGrants));
+
+      // a dry run leaves the grants in place
+      assertThat(accessControlContext.getResourcePermissions(accessorResource, accessedResource),
+                 is(directResourcePermissions));
+   }
+
+   @Test
+   public void removeRedundantGrants_shouldKeepEffectivePermissions() {
+      authenticateSystemResource();
+      final String resourceClassName = generateResourceClass(false, false);
+      final ResourcePermission customPermission
+            = ResourcePermissions.getInstance(generateResourceClassPermission(resourceClassName));
+      final ResourcePermission otherCustomPermission
+            = ResourcePermissions.getInstance(generateResourceClassPermission(resourceClassName));
+      final String domainName = generateDomain();
+      final Resource accessedResource = accessControlContext.createResource(resourceClassName, domainName);
+      final Resource otherAccessedResource = accessControlContext.createResource(resourceClassName, domainName);
+      final Resource accessorResource = generateUnauthenticatableResource();
+      final Resource donorResource = generateUnauthenticatableResource();
+      final Resource rootDonorResource = generateUnauthenticatableResource();
+
+      // a chain of inheritance, in which each resource has the same direct permissions
+      accessControlContext.setResourcePermissions(accessorResource,
+                                                  donorResource,
+                                                  setOf(ResourcePermissions.getInstance(ResourcePermissions.INHERIT)));
+      accessControlContext.setResourcePermissions(donorResource,
+                                                  rootDonorResource,
+                                                  setOf(ResourcePermissions.getInstance(ResourcePermissions.INHERIT)));
+      for (Resource resource : setOf(accessorResource, donorResource, rootDonorResource)) {
+         accessControlContext.setResourcePermissions(resource,
+                                                     accessedResource,
+                                                     setOf(customPermission, otherCustomPermission));
+         accessControlContext.setResourcePermissions(resource, otherAccessedResource, setOf(customPermission));
+      }
+
+      final Map<Resource, Set<ResourcePermission>> effectiveResourcePermissions = new HashMap<>();
+      for (Resource resource : setOf(accessorResource, donorResource, rootDonorResource)) {
+         effectiveResourcePermissions.put(resource,
+                                          accessControlContext.getEffectiveResourcePermissions(resource,
+                                                                                               accessedResource));
+      }
+
+      final RedundantGrantReport redundantGrantReport
+            = SQLAccessControlContextFactory.removeRedundantGrants(accessControlContext, 1);
+
+      assertThat(redundantGrantReport.isRemoved(), is(true));
+      assertThat(redundantGrantReport.getRedundantGrants().size(), is(6));
+      for (Resource resource : setOf(accessorResource, donorResource, rootDonorResource)) {
+         assertThat(accessControlContext.getEffectiveResourcePermissions(resource, accessedResource),
+                    is(effectiveResourcePermissions.get(resource)));
+         assertThat(accessControlContext.getEffectiveResourcePermissions(resource, otherAccessedResource),
+                    is(setOf(customPermission)));
+      }
+      // only the grants at the root of the inheritance chain, and the INHERIT grants themselves, remain
+      assertThat(accessControlContext.getResourcePermissions(accessorResource, accessedResource).isEmpty(), is(true));
+      assertThat(accessControlContext.getResourcePermissions(donorResource, accessedResource).isEmpty(), is(true));
+      assertThat(accessControlContext.getResourcePermissions(rootDonorResource, accessedResource),
+                 is(setOf(customPermission, otherCustomPermission)));
+      assertThat(accessControlContext.getResourcePermissions(accessorResource, donorResource),
+                 is(setOf(ResourcePermissions.getInstance(ResourcePermissions.INHERIT))));
+
+      // nothing is left to remove
+      assertThat(SQLAccessControlContextFactory.findRedundantGrants(accessControlContext).getRedundantGrants().isEmpty(),
+                 is(true));
+   }
+
+   @Test
+   public void removeRedundantGrants_invalidBatchSize_shouldFail() {
+      authenticateSystemResource();
+
+      try {
+         SQLAccessControlContextFactory.removeRedundantGrants(accessControlContext, 0);
+         fail("removing redundant grants with a batch size of zero should have failed");
+      }
+      catch (IllegalArgumentException e) {
+         assertThat(e.getMessage().toLowerCase(), containsString("batch size"));
+      }
+   }
+
+   @Test
+   public void findRedundantGrants_notAuthorized_shouldFail() {
+      generateResourceAndAuthenticate();
+
+      try {
+         SQLAccessControlContextFactory.findRedundantGrants(accessControlContext);
+         fail("finding redundant grants as a resource other than the system resource should have failed");
+      }
+      catch (NotAuthorizedException e) {
+         assertThat(e.getMessage().toLowerCase(), containsString("reserved for the system resource"));
+      }
+   }
+
+   // returns the redundant grants of the report by a key for their accessor, accessed resource and permission
+   private static Map<String, RedundantGrant.Reason> __getRedundantGrants(RedundantGrantReport redundantGrantReport) {
+      final Map<String, RedundantGrant.Reason> redundantGrants = new HashMap<>();
+      for (RedundantGrant redundantGrant : redundantGrantReport.getRedundantGrants()) {
+         redundantGrants.put(__getKey(redundantGrant.getAccessorResource(),
+                                      redundantGrant.getAccessedResource(),
+                                      redundantGrant.getResourcePermission()),
+                             redundantGrant.getReason());
+      }
+      return redundantGrants;
+   }
+
+   private static String __getKey(Resource accessorResource,
+                                  Resource accessedResource,
+                                  ResourcePermission resourcePermission) {
+      return accessorResource.getId() + ":" + accessedResource.getId() + ":" + resourcePermission;
+   }
+}
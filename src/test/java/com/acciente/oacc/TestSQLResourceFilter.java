@@ -0,0 +1,194 @@
+/*
+ * Copyright 2009-2016, Acciente LLC
+ *
+ * Acciente LLC licenses this file to you under the
+ * Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in
+ * writing, software distributed under the License is
+ * distributed on an "AS IS" BASIS, WITHOUT WARRANTIES
+ * OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.acciente.oacc;
+
+import com.acciente.oacc.helper.TestConfigLoader;
+import com.acciente.oacc.sql.ResourceFilter;
+import com.acciente.oacc.sql.SQLAccessControlContextFactory;
+import org.junit.Test;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.hamcrest.CoreMatchers.containsString;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+public class TestSQLResourceFilter extends TestAccessControlBase {
+   @Test
+   public void getResourceFilter_directPermissions_shouldSelectPermittedResources() throws SQLException {
+      authenticateSystemResource();
+      final String resourceClassName = generateResourceClass(false, false);
+      final ResourcePermission customPermission
+            = ResourcePermissions.getInstance(generateResourceClassPermission(resourceClassName));
+      final ResourcePermission otherCustomPermission
+            = ResourcePermissions.getInstance(generateResourceClassPermission(resourceClassName));
+      final String domainName = generateDomain();
+      final Resource accessorResource = generateUnauthenticatableResource();
+      final Resource resource1 = accessControlContext.createResource(resourceClassName, domainName);
+      final Resource resource2 = accessControlContext.createResource(resourceClassName, domainName);
+      accessControlContext.createResource(resourceClassName, domainName);
+
+      accessControlContext.setResourcePermissions(accessorResource, resource1, setOf(customPermission));
+      accessControlContext.setResourcePermissions(accessorResource,
+                                                  resource2,
+                                                  setOf(customPermission, otherCustomPermission));
+
+      final ResourceFilter resourceFilter
+            = SQLAccessControlContextFactory.getResourceFilterByResourcePermissions(accessControlContext,
+                                                                                    accessorResource,
+                                                                                    resourceClassName,
+                                                                                    setOf(customPermission));
+      assertThat(__getResourceIds(resourceFilter), is(setOf(resource1.getId(), resource2.getId())));
+
+      final ResourceFilter otherResourceFilter
+            = SQLAccessControlContextFactory.getResourceFilterByResourcePermissions(accessControlContext,
+                                                                                    accessorResource,
+                                                                                    resourceClassName,
+                                                                                    setOf(customPermission,
+                                                                                          otherCustomPermission));
+      assertThat(__getResourceIds(otherResourceFilter), is(setOf(resource2.getId())));
+   }
+
+   @Test
+   public void getResourceFilter_globalAndSuperUserPermissions_shouldSelectResourcesInDomains() throws SQLException {
+      authenticateSystemResource();
+      final String resourceClassName = generateResourceClass(false, false);
+      final ResourcePermission customPermission
+            = ResourcePermissions.getInstance(generateResourceClassPermission(resourceClassName));
+      final String domainName = generateDomain();
+      final String childDomainName = generateChildDomain(domainName);
+      final String otherDomainName = generateDomain();
+      final Resource accessorResource = generateUnauthenticatableResource();
+      final Resource resource = accessControlContext.createResource(resourceClassName, domainName);
+      final Resource childResource = accessControlContext.createResource(resourceClassName, childDomainName);
+      final Resource otherResource = accessControlContext.createResource(resourceClassName, otherDomainName);
+
+      accessControlContext.setGlobalResourcePermissions(accessorResource,
+                                                        resourceClassName,
+                                                        domainName,
+                                                        setOf(customPermission));
+
+      final Set<ResourcePermission> resourcePermissions = setOf(customPermission);
+      assertThat(__getResourceIds(SQLAccessControlContextFactory
+                                        .getResourceFilterByResourcePermissions(accessControlContext,
+                                                                                accessorResource,
+                                                                                resourceClassName,
+                                                                                resourcePermissions)),
+                 is(setOf(resource.getId(), childResource.getId())));
+      assertThat(__getResourceIds(SQLAccessControlContextFactory
+                                        .getResourceFilterByResourcePermissionsAndDomain(accessControlContext,
+                                                                                         accessorResource,
+                                                                                         resourceClassName,
+                                                                                         childDomainName,
+                                                                                         resourcePermissions)),
+                 is(setOf(childResource.getId())));
+
+      // the system resource is a super-user of all domains
+      assertThat(__getResourceIds(SQLAccessControlContextFactory
+                                        .getResourceFilterByResourcePermissionsAndDomain(accessControlContext,
+                                                                                         SYS_RESOURCE,
+                                                                                         resourceClassName,
+                                                                                         otherDomainName,
+                                                                                         resourcePermissions)),
+                 is(setOf(otherResource.getId())));
+   }
+
+   @Test
+   public void getResourceFilter_moreDomainsThanInListLimit_shouldSelectResourcesInDomains() throws SQLException {
+      authenticateSystemResource();
+      final String resourceClassName = generateResourceClass(false, false);
+      final ResourcePermission customPermission
+            = ResourcePermissions.getInstance(generateResourceClassPermission(resourceClassName));
+      final String domainName = generateDomain();
+      final Resource accessorResource = generateUnauthenticatableResource();
+
+      // more descendant domains than the 1000 values some databases allow in an IN list
+      String childDomainName = null;
+      for (int i = 0; i < 1000; i++) {
+         childDomainName = generateChildDomain(domainName);
+      }
+      final Resource resource = accessControlContext.createResource(resourceClassName, domainName);
+      final Resource childResource = accessControlContext.createResource(resourceClassName, childDomainName);
+      accessControlContext.setResourcePermissions(accessorResource, resource, setOf(customPermission));
+      accessControlContext.setResourcePermissions(accessorResource, childResource, setOf(customPermission));
+
+      final ResourceFilter resourceFilter
+            = SQLAccessControlContextFactory.getResourceFilterByResourcePermissionsAndDomain(accessControlContext,
+                                                                                             accessorResource,
+                                                                                             resourceClassName,
+                                                                                             domainName,
+                                                                                             setOf(customPermission));
+      assertThat(__getResourceIds(resourceFilter), is(setOf(resource.getId(), childResource.getId())));
+      assertThat(resourceFilter.getParameters().size() < 1000, is(true));
+   }
+
+   @Test
+   public void getResourceFilter_invalidPermission_shouldFail() {
+      authenticateSystemResource();
+      final String resourceClassName = generateResourceClass(false, false);
+      final String otherResourceClassName = generateResourceClass(false, false);
+      final ResourcePermission otherCustomPermission
+            = ResourcePermissions.getInstance(generateResourceClassPermission(otherResourceClassName));
+
+      try {
+         SQLAccessControlContextFactory.getResourceFilterByResourcePermissions(accessControlContext,
+                                                                               SYS_RESOURCE,
+                                                                               resourceClassName,
+                                                                               setOf(otherCustomPermission));
+         fail("getting a resource filter with a permission of another resource class should have failed");
+      }
+      catch (IllegalArgumentException e) {
+         assertThat(e.getMessage().toLowerCase(), containsString("not defined for resource class"));
+      }
+      try {
+         SQLAccessControlContextFactory.getResourceFilterByResourcePermissionsAndDomain(accessControlContext,
+                                                                                        SYS_RESOURCE,
+                                                                                        resourceClassName,
+                                                                                        "invalid_domain",
+                                                                                        setOf(otherCustomPermission));
+         fail("getting a resource filter for a non-existent domain should have failed");
+      }
+      catch (IllegalArgumentException e) {
+         assertThat(e.getMessage().toLowerCase(), containsString("could not find domain"));
+      }
+   }
+
+   private static Set<Long> __getResourceIds(ResourceFilter resourceFilter) throws SQLException {
+      final Set<Long> resourceIds = new HashSet<>();
+
+      try (Connection connection = TestConfigLoader.getDataSource().getConnection();
+           PreparedStatement statement = connection.prepareStatement("SELECT F.ResourceId FROM ( "
+                                                                           + resourceFilter.getSQL()
+                                                                           + " ) F")) {
+         resourceFilter.setParameters(statement, 1);
+         try (ResultSet resultSet = statement.executeQuery()) {
+            while (resultSet.next()) {
+               resourceIds.add(resultSet.getLong("ResourceId"));
+            }
+         }
+      }
+
+      return resourceIds;
+   }
+}
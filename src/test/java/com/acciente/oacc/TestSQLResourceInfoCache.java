@@ -0,0 +1,156 @@
+/*
+ * Copyright 2009-2016, Acciente LLC
+ *
+ * Acciente LLC licenses this file to you under the
+ * Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in
+ * writing, software distributed under the License is
+ * distributed on an "AS IS" BASIS, WITHOUT WARRANTIES
+ * OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.acciente.oacc;
+
+import com.acciente.oacc.sql.ChangeLogEntry;
+import com.acciente.oacc.sql.ChangeLogEntry.ChangeType;
+import com.acciente.oacc.sql.SQLAccessControlContextFactory;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.hamcrest.CoreMatchers.containsString;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+public class TestSQLResourceInfoCache extends TestAccessControlBase {
+   @Before
+   public void setUpResourceInfoCache() {
+      SQLAccessControlContextFactory.setResourceInfoCache(accessControlContext, 1000, 60000);
+   }
+
+   @Test
+   public void resolveResource_afterDeleteResource_shouldFail() {
+      authenticateSystemResource();
+      final String resourceClassName = generateResourceClass(false, false);
+      final String domainName = generateDomain();
+      final String externalId = generateUniqueExternalId();
+      final Resource resource = accessControlContext.createResource(resourceClassName, domainName, externalId);
+
+      // cache the resource by id and by external id
+      assertThat(accessControlContext.getDomainNameByResource(Resources.getInstance(resource.getId())), is(domainName));
+      assertThat(accessControlContext.getDomainNameByResource(Resources.getInstance(externalId)), is(domainName));
+
+      accessControlContext.deleteResource(resource);
+
+      try {
+         accessControlContext.getDomainNameByResource(Resources.getInstance(resource.getId()));
+         fail("resolving a deleted resource by id should have failed");
+      }
+      catch (IllegalArgumentException e) {
+         assertThat(e.getMessage().toLowerCase(), containsString("not found"));
+      }
+      try {
+         accessControlContext.getDomainNameByResource(Resources.getInstance(externalId));
+         fail("resolving a deleted resource by external id should have failed");
+      }
+      catch (IllegalArgumentException e) {
+         assertThat(e.getMessage().toLowerCase(), containsString("not found"));
+      }
+   }
+
+   @Test
+   public void resolveResource_afterSetExternalId_shouldSucceed() {
+      authenticateSystemResource();
+      final String resourceClassName = generateResourceClass(false, false);
+      final String domainName = generateDomain();
+      final Resource resource = accessControlContext.createResource(resourceClassName, domainName);
+
+      // cache the resource without an external id
+      assertThat(accessControlContext.getResourceClassInfoByResource(resource).getResourceClassName(),
+                 is(resourceClassName));
+
+      final String externalId = generateUniqueExternalId();
+      accessControlContext.setExternalId(resource, externalId);
+
+      assertThat(accessControlContext.getDomainNameByResource(Resources.getInstance(externalId)), is(domainName));
+      assertThat(accessControlContext.getDomainNameByResource(Resources.getInstance(resource.getId(), externalId)),
+                 is(domainName));
+   }
+
+   @Test
+   public void resolveResource_externalIdReusedAfterDelete_shouldResolveNewResource() {
+      authenticateSystemResource();
+      final String resourceClassName = generateResourceClass(false, false);
+      final String domainName = generateDomain();
+      final String otherDomainName = generateDomain();
+      final String externalId = generateUniqueExternalId();
+      final Resource resource = accessControlContext.createResource(resourceClassName, domainName, externalId);
+
+      assertThat(accessControlContext.getDomainNameByResource(Resources.getInstance(externalId)), is(domainName));
+
+      accessControlContext.deleteResource(resource);
+      final Resource otherResource = accessControlContext.createResource(resourceClassName, otherDomainName, externalId);
+
+      assertThat(accessControlContext.getDomainNameByResource(Resources.getInstance(externalId)), is(otherDomainName));
+      assertThat(accessControlContext.getDomainNameByResource(otherResource), is(otherDomainName));
+   }
+
+   @Test
+   public void resolveResource_afterDeleteResourceThroughOtherContextWithCacheDisabled_shouldFail() {
+      SQLAccessControlContextFactory.setResourceInfoCache(accessControlContext, 0, 0);
+      authenticateSystemResource();
+      final String resourceClassName = generateResourceClass(false, false);
+      final String domainName = generateDomain();
+      final Resource resource = accessControlContext.createResource(resourceClassName, domainName);
+      assertThat(accessControlContext.getDomainNameByResource(resource), is(domainName));
+
+      authenticateSystemAccessControlContext();
+      systemAccessControlContext.deleteResource(resource);
+
+      try {
+         accessControlContext.getDomainNameByResource(resource);
+         fail("resolving a resource deleted through another context should have failed");
+      }
+      catch (IllegalArgumentException e) {
+         assertThat(e.getMessage().toLowerCase(), containsString("not found"));
+      }
+   }
+
+   @Test
+   public void resolveResource_afterDeleteResourceThroughOtherContextDeliveredToListener_shouldFail() {
+      authenticateSystemResource();
+      final String resourceClassName = generateResourceClass(false, false);
+      final String domainName = generateDomain();
+      final String externalId = generateUniqueExternalId();
+      final Resource resource = accessControlContext.createResource(resourceClassName, domainName, externalId);
+      assertThat(accessControlContext.getDomainNameByResource(Resources.getInstance(resource.getId())), is(domainName));
+      assertThat(accessControlContext.getDomainNameByResource(Resources.getInstance(externalId)), is(domainName));
+
+      // the deletion reaches the cache the way a change log poller would deliver it from another node
+      authenticateSystemAccessControlContext();
+      systemAccessControlContext.deleteResource(resource);
+      SQLAccessControlContextFactory.getChangeLogListener(accessControlContext)
+            .onChange(new ChangeLogEntry(1, ChangeType.RESOURCE, null, Resources.getInstance(resource.getId()), null, null));
+
+      try {
+         accessControlContext.getDomainNameByResource(Resources.getInstance(resource.getId()));
+         fail("resolving a deleted resource by id should have failed");
+      }
+      catch (IllegalArgumentException e) {
+         assertThat(e.getMessage().toLowerCase(), containsString("not found"));
+      }
+      try {
+         accessControlContext.getDomainNameByResource(Resources.getInstance(externalId));
+         fail("resolving a deleted resource by external id should have failed");
+      }
+      catch (IllegalArgumentException e) {
+         assertThat(e.getMessage().toLowerCase(), containsString("not found"));
+      }
+   }
+}
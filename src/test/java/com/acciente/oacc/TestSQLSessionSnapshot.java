@@ -0,0 +1,145 @@
+/*
+ * Copyright 2009-2016, Acciente LLC
+ *
+ * Acciente LLC licenses this file to you under the
+ * Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in
+ * writing, software distributed under the License is
+ * distributed on an "AS IS" BASIS, WITHOUT WARRANTIES
+ * OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.acciente.oacc;
+
+import com.acciente.oacc.sql.ChangeLogEntry;
+import com.acciente.oacc.sql.ChangeLogEntry.ChangeType;
+import com.acciente.oacc.sql.ChangeLogListener;
+import com.acciente.oacc.sql.SQLAccessControlContextFactory;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Collections;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+public class TestSQLSessionSnapshot extends TestAccessControlBase {
+   @Before
+   public void setUpSessionSnapshot() {
+      SQLAccessControlContextFactory.setSessionSnapshotMaxAge(accessControlContext, 60000);
+   }
+
+   @Test
+   public void createChildDomain_parentCreatedThroughOtherContextAfterSnapshot_shouldSucceed() {
+      authenticateSystemResource();
+      final String parentDomainName = generateDomain();
+      final String childDomainName = generateUniqueDomainName();
+      accessControlContext.createDomain(childDomainName, parentDomainName);
+
+      // the other domain is not part of the session snapshot taken by the previous call
+      final String otherParentDomainName = generateDomain();
+      final String otherChildDomainName = generateUniqueDomainName();
+      accessControlContext.createDomain(otherChildDomainName, otherParentDomainName);
+
+      assertThat(accessControlContext.getDomainDescendants(otherParentDomainName),
+                 is(setOf(otherParentDomainName, otherChildDomainName)));
+   }
+
+   @Test
+   public void createChildDomain_parentCreatedThroughSameContextAfterSnapshot_shouldSucceed() {
+      final Resource accessorResource = generateResourceAndAuthenticate();
+      grantDomainAndChildCreatePermission(accessorResource);
+
+      final String parentDomainName = generateUniqueDomainName();
+      accessControlContext.createDomain(parentDomainName);
+      final String childDomainName = generateUniqueDomainName();
+      accessControlContext.createDomain(childDomainName, parentDomainName);
+
+      final String otherParentDomainName = generateUniqueDomainName();
+      accessControlContext.createDomain(otherParentDomainName);
+      final String otherChildDomainName = generateUniqueDomainName();
+      accessControlContext.createDomain(otherChildDomainName, otherParentDomainName);
+
+      authenticateSystemResource();
+      assertThat(accessControlContext.getDomainDescendants(otherParentDomainName),
+                 is(setOf(otherParentDomainName, otherChildDomainName)));
+   }
+
+   @Test
+   public void createChildDomain_afterReauthenticationAsOtherResource_shouldFail() {
+      final String parentDomainName = generateDomain();
+      final Resource accessorResource = generateResourceAndAuthenticate();
+      grantDomainPermission(accessorResource,
+                            parentDomainName,
+                            DomainPermissions.getInstance(DomainPermissions.CREATE_CHILD_DOMAIN));
+      accessControlContext.createDomain(generateUniqueDomainName(), parentDomainName);
+
+      // the snapshot of the previous session resource must not carry over
+      generateResourceAndAuthenticate();
+      try {
+         accessControlContext.createDomain(generateUniqueDomainName(), parentDomainName);
+         fail("creating a child domain without authorization should have failed");
+      }
+      catch (NotAuthorizedException e) {
+         assertThat(e.getMessage().toLowerCase().contains("not authorized"), is(true));
+      }
+   }
+
+   @Test
+   public void createChildDomain_superUserRevokedThroughOtherContextWithSnapshotDisabled_shouldFail() {
+      SQLAccessControlContextFactory.setSessionSnapshotMaxAge(accessControlContext, 0);
+      final String parentDomainName = generateDomain();
+      final Resource accessorResource = generateResourceAndAuthenticate();
+      grantDomainPermission(accessorResource,
+                            parentDomainName,
+                            DomainPermissions.getInstance(DomainPermissions.SUPER_USER));
+      accessControlContext.createDomain(generateUniqueDomainName(), parentDomainName);
+
+      systemAccessControlContext.setDomainPermissions(accessorResource,
+                                                      parentDomainName,
+                                                      Collections.<DomainPermission>emptySet());
+      try {
+         accessControlContext.createDomain(generateUniqueDomainName(), parentDomainName);
+         fail("creating a child domain after the super-user permission was revoked should have failed");
+      }
+      catch (NotAuthorizedException e) {
+         assertThat(e.getMessage().toLowerCase().contains("not authorized"), is(true));
+      }
+   }
+
+   @Test
+   public void createChildDomain_superUserRevokedThroughOtherContextAndDeliveredToListener_shouldFail() {
+      final String parentDomainName = generateDomain();
+      final Resource accessorResource = generateResourceAndAuthenticate();
+      grantDomainPermission(accessorResource,
+                            parentDomainName,
+                            DomainPermissions.getInstance(DomainPermissions.SUPER_USER));
+      accessControlContext.createDomain(generateUniqueDomainName(), parentDomainName);
+
+      // the revocation reaches the snapshot the way a change log poller would deliver it from another node
+      systemAccessControlContext.setDomainPermissions(accessorResource,
+                                                      parentDomainName,
+                                                      Collections.<DomainPermission>emptySet());
+      final ChangeLogListener changeLogListener = SQLAccessControlContextFactory.getChangeLogListener(accessControlContext);
+      changeLogListener.onChange(new ChangeLogEntry(1,
+                                                    ChangeType.DOMAIN_PERMISSIONS,
+                                                    accessorResource,
+                                                    null,
+                                                    parentDomainName,
+                                                    null));
+      try {
+         accessControlContext.createDomain(generateUniqueDomainName(), parentDomainName);
+         fail("creating a child domain after the super-user permission was revoked should have failed");
+      }
+      catch (NotAuthorizedException e) {
+         assertThat(e.getMessage().toLowerCase().contains("not authorized"), is(true));
+      }
+   }
+}
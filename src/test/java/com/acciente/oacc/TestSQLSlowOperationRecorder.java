@@ -0,0 +1,223 @@
+/*
+ * Copyright 2009-2016, Acciente LLC
+ *
+ * Acciente LLC licenses this file to you under the
+ * Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in
+ * writing, software distributed under the License is
+ * distributed on an "AS IS" BASIS, WITHOUT WARRANTIES
+ * OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.acciente.oacc;
+
+import com.acciente.oacc.helper.TestConfigLoader;
+import com.acciente.oacc.sql.SQLAccessControlContextFactory;
+import com.acciente.oacc.sql.SlowOperation;
+import com.acciente.oacc.sql.SlowOperationRecorder;
+import com.acciente.oacc.sql.StatementExecution;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.List;
+
+import static org.hamcrest.CoreMatchers.containsString;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.not;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+public class TestSQLSlowOperationRecorder extends TestAccessControlBase {
+   private AccessControlContext observedAccessControlContext;
+
+   @Before
+   public void setUpObservedAccessControlContext() {
+      observedAccessControlContext
+            = SQLAccessControlContextFactory.getObservedAccessControlContext(
+            SQLAccessControlContextFactory.getAccessControlContext(TestConfigLoader.getDataSource(),
+                                                                   TestConfigLoader.getDatabaseSchema(),
+                                                                   TestConfigLoader.getSQLProfile()));
+      observedAccessControlContext.authenticate(SYS_RESOURCE,
+                                                PasswordCredentials.newInstance(TestConfigLoader.getOaccRootPassword()));
+   }
+
+   @After
+   public void tearDownSlowOperationRecorder() {
+      SQLAccessControlContextFactory.setSlowOperationRecorder(null);
+   }
+
+   @Test
+   public void record_shouldCaptureStatementsAndBoundValues() throws IOException {
+      authenticateSystemResource();
+      final Resource accessorResource = generateUnauthenticatableResource();
+      final String resourceClassName = generateResourceClass(false, false);
+      final ResourcePermission permission
+            = ResourcePermissions.getInstance(generateResourceClassPermission(resourceClassName));
+      final String domainName = generateDomain();
+      final Resource accessedResource = accessControlContext.createResource(resourceClassName, domainName);
+      accessControlContext.setResourcePermissions(accessorResource, accessedResource, setOf(permission));
+
+      // a zero threshold records every operation
+      final SlowOperationRecorder slowOperationRecorder = SlowOperationRecorder.getInstance(0, 10);
+      SQLAccessControlContextFactory.setSlowOperationRecorder(slowOperationRecorder);
+
+      assertThat(observedAccessControlContext.getResourcesByResourcePermissionsAndDomain(accessorResource,
+                                                                                         resourceClassName,
+                                                                                         domainName,
+                                                                                         permission),
+                 is(setOf(accessedResource)));
+
+      final List<SlowOperation> slowOperations = slowOperationRecorder.getSlowOperations();
+      assertThat(slowOperations.size(), is(1));
+      final SlowOperation slowOperation = slowOperations.get(0);
+      assertThat(slowOperation.getOperationName(), is("getResourcesByResourcePermissionsAndDomain"));
+      assertThat(slowOperation.getSessionResource(), is(SYS_RESOURCE));
+      assertThat(slowOperation.getFailure(), is(nullValue()));
+      assertThat(slowOperation.getStatementExecutions().isEmpty(), is(false));
+
+      boolean accessorIdBound = false;
+      for (StatementExecution statementExecution : slowOperation.getStatementExecutions()) {
+         assertThat(statementExecution.getDurationNanos() >= 0, is(true));
+         if (statementExecution.getParameters().contains(accessorResource.getId())) {
+            accessorIdBound = true;
+         }
+      }
+      assertThat(accessorIdBound, is(true));
+
+      final StringBuilder dump = new StringBuilder();
+      slowOperationRecorder.dump(dump);
+      assertThat(dump.toString(), containsString("getResourcesByResourcePermissionsAndDomain"));
+   }
+
+   @Test
+   public void record_batchedStatement_shouldCaptureBoundValuesOfEachEntry() {
+      authenticateSystemResource();
+      final String resourceClassName = generateResourceClass(false, false);
+      final String domainName = generateDomain();
+      final Resource resource1 = accessControlContext.createResource(resourceClassName, domainName);
+      final Resource resource2 = accessControlContext.createResource(resourceClassName, domainName);
+
+      final SlowOperationRecorder slowOperationRecorder = SlowOperationRecorder.getInstance(0, 10);
+      SQLAccessControlContextFactory.setSlowOperationRecorder(slowOperationRecorder);
+
+      assertThat(observedAccessControlContext.deleteResources(setOf(resource1, resource2)), is(true));
+
+      final List<SlowOperation> slowOperations = slowOperationRecorder.getSlowOperations();
+      assertThat(slowOperations.size(), is(1));
+
+      // the resources are removed by batches with an entry for each of them
+      boolean eachResourceIdBound = false;
+      for (StatementExecution statementExecution : slowOperations.get(0).getStatementExecutions()) {
+         final List<List<Object>> batchParameters = statementExecution.getBatchParameters();
+         assertThat(statementExecution.getBatchSize(), is(batchParameters.size()));
+         if (batchParameters.size() == 2
+               && batchParameters.contains(Collections.<Object>singletonList(resource1.getId()))
+               && batchParameters.contains(Collections.<Object>singletonList(resource2.getId()))) {
+            eachResourceIdBound = true;
+         }
+      }
+      assertThat(eachResourceIdBound, is(true));
+   }
+
+   @Test
+   public void record_belowThreshold_shouldNotRecord() {
+      final SlowOperationRecorder slowOperationRecorder = SlowOperationRecorder.getInstance(60000, 10);
+      SQLAccessControlContextFactory.setSlowOperationRecorder(slowOperationRecorder);
+
+      observedAccessControlContext.getResourceClassNames();
+
+      assertThat(slowOperationRecorder.getSlowOperations().isEmpty(), is(true));
+      assertThat(slowOperationRecorder.getRecordedCount(), is(0L));
+   }
+
+   @Test
+   public void record_failedOperation_shouldCaptureFailure() {
+      final SlowOperationRecorder slowOperationRecorder = SlowOperationRecorder.getInstance(0, 10);
+      SQLAccessControlContextFactory.setSlowOperationRecorder(slowOperationRecorder);
+
+      try {
+         observedAccessControlContext.getEffectiveResourcePermissions(SYS_RESOURCE, Resources.getInstance(-999L));
+         fail("getting effective permissions on a non-existent resource should have failed");
+      }
+      catch (IllegalArgumentException e) {
+         assertThat(slowOperationRecorder.getSlowOperations().size(), is(1));
+         assertThat(slowOperationRecorder.getSlowOperations().get(0).getFailure(), is((Throwable) e));
+      }
+   }
+
+   @Test
+   public void record_password_shouldBeRedacted() {
+      authenticateSystemResource();
+      final Resource authenticatableResource = generateAuthenticatableResource(generateUniquePassword());
+
+      final SlowOperationRecorder slowOperationRecorder = SlowOperationRecorder.getInstance(0, 10);
+      SQLAccessControlContextFactory.setSlowOperationRecorder(slowOperationRecorder);
+
+      final char[] password = generateUniquePassword();
+      observedAccessControlContext.setCredentials(authenticatableResource, PasswordCredentials.newInstance(password));
+
+      final List<SlowOperation> slowOperations = slowOperationRecorder.getSlowOperations();
+      assertThat(slowOperations.size(), is(1));
+      boolean passwordBound = false;
+      for (StatementExecution statementExecution : slowOperations.get(0).getStatementExecutions()) {
+         if (statementExecution.getParameters().contains(StatementExecution.REDACTED_VALUE)) {
+            passwordBound = true;
+         }
+         for (Object parameter : statementExecution.getParameters()) {
+            assertThat(String.valueOf(parameter), not(containsString(new String(password))));
+         }
+      }
+      assertThat(passwordBound, is(true));
+   }
+
+   @Test
+   public void ringBuffer_shouldKeepMostRecentOperations() {
+      final SlowOperationRecorder slowOperationRecorder = SlowOperationRecorder.getInstance(0, 3);
+
+      for (int i = 0; i < 5; i++) {
+         slowOperationRecorder.record(new SlowOperation("operation" + i,
+                                                        SYS_RESOURCE,
+                                                        System.currentTimeMillis(),
+                                                        i,
+                                                        null,
+                                                        Collections.<StatementExecution>emptyList()));
+      }
+
+      final List<SlowOperation> slowOperations = slowOperationRecorder.getSlowOperations();
+      assertThat(slowOperations.size(), is(3));
+      assertThat(slowOperations.get(0).getOperationName(), is("operation2"));
+      assertThat(slowOperations.get(2).getOperationName(), is("operation4"));
+      assertThat(slowOperationRecorder.getRecordedCount(), is(5L));
+
+      slowOperationRecorder.clear();
+      assertThat(slowOperationRecorder.getSlowOperations().isEmpty(), is(true));
+   }
+
+   @Test
+   public void getInstance_invalidArguments_shouldFail() {
+      try {
+         SlowOperationRecorder.getInstance(-1, 10);
+         fail("creating a slow operation recorder with a negative threshold should have failed");
+      }
+      catch (IllegalArgumentException e) {
+         assertThat(e.getMessage().toLowerCase(), containsString("threshold cannot be negative"));
+      }
+      try {
+         SlowOperationRecorder.getInstance(100, 0);
+         fail("creating a slow operation recorder without capacity should have failed");
+      }
+      catch (IllegalArgumentException e) {
+         assertThat(e.getMessage().toLowerCase(), containsString("capacity must be positive"));
+      }
+   }
+}
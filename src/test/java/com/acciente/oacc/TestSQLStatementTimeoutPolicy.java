@@ -0,0 +1,156 @@
+/*
+ * Copyright 2009-2016, Acciente LLC
+ *
+ * Acciente LLC licenses this file to you under the
+ * Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in
+ * writing, software distributed under the License is
+ * distributed on an "AS IS" BASIS, WITHOUT WARRANTIES
+ * OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.acciente.oacc;
+
+import com.acciente.oacc.helper.TestConfigLoader;
+import com.acciente.oacc.sql.SQLAccessControlContextFactory;
+import com.acciente.oacc.sql.StatementTimeoutPolicy;
+import org.junit.Before;
+import org.junit.Test;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArraySet;
+
+import static org.hamcrest.CoreMatchers.containsString;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+public class TestSQLStatementTimeoutPolicy extends TestAccessControlBase {
+   private static final int CHECK_TIMEOUT_SECONDS    = 3;
+   private static final int LISTING_TIMEOUT_SECONDS  = 7;
+   private static final int MUTATION_TIMEOUT_SECONDS = 11;
+
+   private QueryTimeoutRecorder queryTimeoutRecorder;
+   private AccessControlContext  timeoutAccessControlContext;
+
+   @Before
+   public void setUpTimeoutAccessControlContext() {
+      queryTimeoutRecorder = new QueryTimeoutRecorder();
+      timeoutAccessControlContext
+            = SQLAccessControlContextFactory.getAccessControlContext(queryTimeoutRecorder.wrap(TestConfigLoader.getDataSource()),
+                                                                     TestConfigLoader.getDatabaseSchema(),
+                                                                     TestConfigLoader.getSQLProfile());
+      SQLAccessControlContextFactory.setStatementTimeoutPolicy(timeoutAccessControlContext,
+                                                               StatementTimeoutPolicy.getInstance(CHECK_TIMEOUT_SECONDS,
+                                                                                                  LISTING_TIMEOUT_SECONDS,
+                                                                                                  MUTATION_TIMEOUT_SECONDS));
+      timeoutAccessControlContext.authenticate(SYS_RESOURCE,
+                                               PasswordCredentials.newInstance(TestConfigLoader.getOaccRootPassword()));
+   }
+
+   @Test
+   public void check_shouldApplyCheckTimeout() {
+      queryTimeoutRecorder.clear();
+
+      timeoutAccessControlContext.hasDomainPermissions(SYS_RESOURCE,
+                                                       timeoutAccessControlContext.getDomainNameByResource(SYS_RESOURCE),
+                                                       DomainPermissions.getInstance(DomainPermissions.SUPER_USER));
+
+      assertThat(queryTimeoutRecorder.getQueryTimeouts().contains(CHECK_TIMEOUT_SECONDS), is(true));
+      assertThat(queryTimeoutRecorder.getQueryTimeouts().contains(MUTATION_TIMEOUT_SECONDS), is(false));
+   }
+
+   @Test
+   public void listing_shouldApplyListingTimeout() {
+      queryTimeoutRecorder.clear();
+
+      timeoutAccessControlContext.getResourceClassNames();
+
+      assertThat(queryTimeoutRecorder.getQueryTimeouts(), is(setOf(LISTING_TIMEOUT_SECONDS)));
+   }
+
+   @Test
+   public void mutation_shouldApplyMutationTimeout() {
+      queryTimeoutRecorder.clear();
+
+      timeoutAccessControlContext.createDomain(generateUniqueDomainName());
+
+      assertThat(queryTimeoutRecorder.getQueryTimeouts(), is(setOf(MUTATION_TIMEOUT_SECONDS)));
+   }
+
+   @Test
+   public void noPolicy_shouldNotApplyTimeouts() {
+      SQLAccessControlContextFactory.setStatementTimeoutPolicy(timeoutAccessControlContext, null);
+      queryTimeoutRecorder.clear();
+
+      timeoutAccessControlContext.getResourceClassNames();
+
+      assertThat(queryTimeoutRecorder.getQueryTimeouts().isEmpty(), is(true));
+   }
+
+   @Test
+   public void getInstance_negativeTimeout_shouldFail() {
+      try {
+         StatementTimeoutPolicy.getInstance(1, -1, 1);
+         fail("creating a statement timeout policy with a negative timeout should have failed");
+      }
+      catch (IllegalArgumentException e) {
+         assertThat(e.getMessage().toLowerCase(), containsString("listing statement timeout cannot be negative"));
+      }
+   }
+
+   // records the query timeouts set on the statements prepared on the connections of a data source
+   private static class QueryTimeoutRecorder {
+      private final Set<Integer> queryTimeouts = new CopyOnWriteArraySet<>();
+
+      private DataSource wrap(DataSource dataSource) {
+         return __proxy(DataSource.class, dataSource);
+      }
+
+      private Set<Integer> getQueryTimeouts() {
+         return queryTimeouts;
+      }
+
+      private void clear() {
+         queryTimeouts.clear();
+      }
+
+      private <T> T __proxy(final Class<T> type, final T target) {
+         return type.cast(Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type}, new InvocationHandler() {
+            @Override
+            public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+               if (type == PreparedStatement.class && method.getName().equals("setQueryTimeout")) {
+                  queryTimeouts.add((Integer) args[0]);
+               }
+               final Object result;
+               try {
+                  result = method.invoke(target, args);
+               }
+               catch (InvocationTargetException e) {
+                  throw e.getCause();
+               }
+               if (result instanceof Connection && method.getName().equals("getConnection")) {
+                  return __proxy(Connection.class, (Connection) result);
+               }
+               if (result instanceof PreparedStatement && method.getName().equals("prepareStatement")) {
+                  return __proxy(PreparedStatement.class, (PreparedStatement) result);
+               }
+               return result;
+            }
+         }));
+      }
+   }
+}
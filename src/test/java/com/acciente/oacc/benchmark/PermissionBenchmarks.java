@@ -0,0 +1,49 @@
+/*
+ * Copyright 2009-2016, Acciente LLC
+ *
+ * Acciente LLC licenses this file to you under the
+ * Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in
+ * writing, software distributed under the License is
+ * distributed on an "AS IS" BASIS, WITHOUT WARRANTIES
+ * OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.acciente.oacc.benchmark;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the DB-free microbenchmarks of the permission model classes, together with the GC profiler,
+ * so that the allocation rate (<code>gc.alloc.rate.norm</code>) of each operation is reported
+ * alongside its average time.
+ * <p/>
+ * To run these, compile the test classes (which requires disabling the default <code>maven.test.skip</code>),
+ * then run this class with the test classpath, e.g.:
+ * <pre>
+ *    mvn test-compile -Dmaven.test.skip=false
+ *    mvn exec:java -Dexec.mainClass=com.acciente.oacc.benchmark.PermissionBenchmarks -Dexec.classpathScope=test
+ * </pre>
+ * An optional argument restricts the run to the benchmarks matching the specified regular expression.
+ */
+public class PermissionBenchmarks {
+   public static void main(String[] args) throws RunnerException {
+      final String include = args.length > 0 ? args[0] : PermissionBenchmarks.class.getPackage().getName() + ".*";
+      final Options options = new OptionsBuilder()
+            .include(include)
+            .addProfiler(GCProfiler.class)
+            .build();
+
+      new Runner(options).run();
+   }
+}
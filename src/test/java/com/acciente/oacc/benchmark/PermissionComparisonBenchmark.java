@@ -0,0 +1,135 @@
+/*
+ * Copyright 2009-2016, Acciente LLC
+ *
+ * Acciente LLC licenses this file to you under the
+ * Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in
+ * writing, software distributed under the License is
+ * distributed on an "AS IS" BASIS, WITHOUT WARRANTIES
+ * OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.acciente.oacc.benchmark;
+
+import com.acciente.oacc.DomainCreatePermission;
+import com.acciente.oacc.DomainCreatePermissions;
+import com.acciente.oacc.DomainPermission;
+import com.acciente.oacc.DomainPermissions;
+import com.acciente.oacc.ResourceCreatePermission;
+import com.acciente.oacc.ResourceCreatePermissions;
+import com.acciente.oacc.ResourcePermission;
+import com.acciente.oacc.ResourcePermissions;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the equality, hashing and grantability checks of the permission value classes,
+ * which dominate the cost of the permission set operations.
+ * <p/>
+ * Each pair of permissions being compared are distinct but equal-named instances, so that
+ * the comparisons cannot short-circuit on identity.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class PermissionComparisonBenchmark {
+   private ResourcePermission       resourcePermission;
+   private ResourcePermission       resourcePermission_withGrant;
+   private DomainPermission         domainPermission;
+   private DomainPermission         domainPermission_withGrant;
+   private ResourceCreatePermission resourceCreatePermission;
+   private ResourceCreatePermission resourceCreatePermission_withGrant;
+   private DomainCreatePermission   domainCreatePermission;
+   private DomainCreatePermission   domainCreatePermission_withGrant;
+
+   @Setup
+   public void setUp() {
+      resourcePermission = ResourcePermissions.getInstance("READ_DOCUMENT");
+      resourcePermission_withGrant = ResourcePermissions.getInstanceWithGrantOption("READ_DOCUMENT");
+      domainPermission = DomainPermissions.getInstance(DomainPermissions.CREATE_CHILD_DOMAIN);
+      domainPermission_withGrant = DomainPermissions.getInstanceWithGrantOption(DomainPermissions.CREATE_CHILD_DOMAIN);
+      resourceCreatePermission = ResourceCreatePermissions.getInstance(resourcePermission);
+      resourceCreatePermission_withGrant = ResourceCreatePermissions.getInstanceWithGrantOption(resourcePermission);
+      domainCreatePermission = DomainCreatePermissions.getInstance(domainPermission);
+      domainCreatePermission_withGrant = DomainCreatePermissions.getInstanceWithGrantOption(domainPermission);
+   }
+
+   @Benchmark
+   public boolean resourcePermission_equals() {
+      return resourcePermission.equals(resourcePermission_withGrant);
+   }
+
+   @Benchmark
+   public boolean resourcePermission_isGrantableFrom() {
+      return resourcePermission.isGrantableFrom(resourcePermission_withGrant);
+   }
+
+   @Benchmark
+   public int resourcePermission_hashCode() {
+      return resourcePermission.hashCode();
+   }
+
+   @Benchmark
+   public boolean domainPermission_equals() {
+      return domainPermission.equals(domainPermission_withGrant);
+   }
+
+   @Benchmark
+   public boolean domainPermission_isGrantableFrom() {
+      return domainPermission.isGrantableFrom(domainPermission_withGrant);
+   }
+
+   @Benchmark
+   public int domainPermission_hashCode() {
+      return domainPermission.hashCode();
+   }
+
+   @Benchmark
+   public boolean resourceCreatePermission_equals() {
+      return resourceCreatePermission.equals(resourceCreatePermission_withGrant);
+   }
+
+   @Benchmark
+   public boolean resourceCreatePermission_isGrantableFrom() {
+      return resourceCreatePermission.isGrantableFrom(resourceCreatePermission_withGrant);
+   }
+
+   @Benchmark
+   public int resourceCreatePermission_hashCode() {
+      return resourceCreatePermission.hashCode();
+   }
+
+   @Benchmark
+   public boolean domainCreatePermission_equals() {
+      return domainCreatePermission.equals(domainCreatePermission_withGrant);
+   }
+
+   @Benchmark
+   public boolean domainCreatePermission_isGrantableFrom() {
+      return domainCreatePermission.isGrantableFrom(domainCreatePermission_withGrant);
+   }
+
+   @Benchmark
+   public int domainCreatePermission_hashCode() {
+      return domainCreatePermission.hashCode();
+   }
+}
@@ -0,0 +1,148 @@
+/*
+ * Copyright 2009-2016, Acciente LLC
+ *
+ * Acciente LLC licenses this file to you under the
+ * Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in
+ * writing, software distributed under the License is
+ * distributed on an "AS IS" BASIS, WITHOUT WARRANTIES
+ * OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.acciente.oacc.benchmark;
+
+import com.acciente.oacc.DomainCreatePermission;
+import com.acciente.oacc.DomainCreatePermissions;
+import com.acciente.oacc.DomainPermission;
+import com.acciente.oacc.DomainPermissions;
+import com.acciente.oacc.ResourceCreatePermission;
+import com.acciente.oacc.ResourceCreatePermissions;
+import com.acciente.oacc.ResourcePermission;
+import com.acciente.oacc.ResourcePermissions;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the permission factory methods, which are called for every permission read from the database
+ * and for every permission passed into the API.
+ * <p/>
+ * The permission names are copied into new (non-interned) strings, just like the names returned by a JDBC driver.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class PermissionFactoryBenchmark {
+   private String                   customPermissionName;
+   private String                   sysResourcePermissionName;
+   private String                   sysDomainPermissionName;
+   private String                   sysCreatePermissionName;
+   private ResourcePermission       resourcePermission;
+   private DomainPermission         domainPermission;
+   private ResourceCreatePermission resourceCreatePermission;
+   private DomainCreatePermission   domainCreatePermission;
+
+   @Setup
+   public void setUp() {
+      customPermissionName = new String("READ_DOCUMENT");
+      sysResourcePermissionName = new String(ResourcePermissions.IMPERSONATE);
+      sysDomainPermissionName = new String(DomainPermissions.CREATE_CHILD_DOMAIN);
+      sysCreatePermissionName = new String(ResourceCreatePermissions.CREATE);
+      resourcePermission = ResourcePermissions.getInstanceWithGrantOption(customPermissionName);
+      domainPermission = DomainPermissions.getInstanceWithGrantOption(sysDomainPermissionName);
+      resourceCreatePermission = ResourceCreatePermissions.getInstance(resourcePermission);
+      domainCreatePermission = DomainCreatePermissions.getInstance(domainPermission);
+   }
+
+   @Benchmark
+   public ResourcePermission resourcePermission_getInstance() {
+      return ResourcePermissions.getInstance(customPermissionName);
+   }
+
+   @Benchmark
+   public ResourcePermission resourcePermission_getInstanceWithGrantOption() {
+      return ResourcePermissions.getInstanceWithGrantOption(customPermissionName);
+   }
+
+   @Benchmark
+   public ResourcePermission resourcePermission_getInstance_sysPermission() {
+      return ResourcePermissions.getInstance(sysResourcePermissionName);
+   }
+
+   @Benchmark
+   @SuppressWarnings("deprecation")
+   public ResourcePermission resourcePermission_getInstance_deprecated() {
+      return ResourcePermissions.getInstance(customPermissionName, true);
+   }
+
+   @Benchmark
+   public DomainPermission domainPermission_getInstance() {
+      return DomainPermissions.getInstance(sysDomainPermissionName);
+   }
+
+   @Benchmark
+   @SuppressWarnings("deprecation")
+   public DomainPermission domainPermission_getInstance_deprecated() {
+      return DomainPermissions.getInstance(sysDomainPermissionName, true);
+   }
+
+   @Benchmark
+   public ResourceCreatePermission resourceCreatePermission_getInstance_sysPermission() {
+      return ResourceCreatePermissions.getInstance(sysCreatePermissionName);
+   }
+
+   @Benchmark
+   public ResourceCreatePermission resourceCreatePermission_getInstance_postCreatePermission() {
+      return ResourceCreatePermissions.getInstanceWithGrantOption(resourcePermission);
+   }
+
+   @Benchmark
+   @SuppressWarnings("deprecation")
+   public ResourceCreatePermission resourceCreatePermission_getInstance_deprecated() {
+      return ResourceCreatePermissions.getInstance(resourcePermission, true);
+   }
+
+   @Benchmark
+   public ResourceCreatePermission resourceCreatePermission_normalize() {
+      return ResourceCreatePermissions.getInstance(resourceCreatePermission);
+   }
+
+   @Benchmark
+   public DomainCreatePermission domainCreatePermission_getInstance_sysPermission() {
+      return DomainCreatePermissions.getInstance(sysCreatePermissionName);
+   }
+
+   @Benchmark
+   public DomainCreatePermission domainCreatePermission_getInstance_postCreatePermission() {
+      return DomainCreatePermissions.getInstanceWithGrantOption(domainPermission);
+   }
+
+   @Benchmark
+   @SuppressWarnings("deprecation")
+   public DomainCreatePermission domainCreatePermission_getInstance_deprecated() {
+      return DomainCreatePermissions.getInstance(domainPermission, true);
+   }
+
+   @Benchmark
+   public DomainCreatePermission domainCreatePermission_normalize() {
+      return DomainCreatePermissions.getInstance(domainCreatePermission);
+   }
+}
@@ -0,0 +1,184 @@
+/*
+ * Copyright 2009-2016, Acciente LLC
+ *
+ * Acciente LLC licenses this file to you under the
+ * Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in
+ * writing, software distributed under the License is
+ * distributed on an "AS IS" BASIS, WITHOUT WARRANTIES
+ * OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.acciente.oacc.benchmark;
+
+import com.acciente.oacc.DomainCreatePermission;
+import com.acciente.oacc.DomainCreatePermissions;
+import com.acciente.oacc.DomainPermission;
+import com.acciente.oacc.DomainPermissions;
+import com.acciente.oacc.ResourceCreatePermission;
+import com.acciente.oacc.ResourceCreatePermissions;
+import com.acciente.oacc.ResourcePermission;
+import com.acciente.oacc.ResourcePermissions;
+import com.acciente.oacc.sql.internal.PermissionUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the normalizing and collapsing of permission sets that the access control context performs
+ * on the way in and out of every permission-centric API method.
+ * <p/>
+ * Half of the (non-system) permissions in each set are also present with the grant option, so that
+ * collapsing has work to do. The {@code *_pairwise} benchmarks measure the previous quadratic
+ * {@code isGrantableFrom()} approach as a baseline.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class PermissionSetBenchmark {
+   @Param({"4", "16", "64"})
+   public int setSize;
+
+   private Set<ResourcePermission>       resourcePermissions;
+   private Set<DomainPermission>         domainPermissions;
+   private Set<ResourceCreatePermission> resourceCreatePermissions;
+   private Set<DomainCreatePermission>   domainCreatePermissions;
+   private ResourcePermission            firstResourcePermission;
+   private ResourcePermission[]          otherResourcePermissions;
+
+   @Setup
+   public void setUp() {
+      resourcePermissions = new HashSet<>();
+      resourceCreatePermissions = new HashSet<>();
+      for (int i = 0; i < setSize / 2; i++) {
+         final ResourcePermission resourcePermission = ResourcePermissions.getInstance("PERMISSION_" + i);
+         resourcePermissions.add(resourcePermission);
+         resourceCreatePermissions.add(ResourceCreatePermissions.getInstance(resourcePermission));
+         if (i % 2 == 0) {
+            final ResourcePermission grantablePermission = ResourcePermissions.getInstanceWithGrantOption("PERMISSION_" + i);
+            resourcePermissions.add(grantablePermission);
+            resourceCreatePermissions.add(ResourceCreatePermissions.getInstanceWithGrantOption(grantablePermission));
+         }
+         else {
+            resourcePermissions.add(ResourcePermissions.getInstance("OTHER_PERMISSION_" + i));
+            resourceCreatePermissions.add(ResourceCreatePermissions.getInstanceWithGrantOption(resourcePermission));
+         }
+      }
+      final ResourcePermission[] resourcePermissionArray
+            = resourcePermissions.toArray(new ResourcePermission[resourcePermissions.size()]);
+      firstResourcePermission = resourcePermissionArray[0];
+      otherResourcePermissions = Arrays.copyOfRange(resourcePermissionArray, 1, resourcePermissionArray.length);
+
+      // there are only a handful of system domain permissions, so these sets stay small regardless of setSize
+      domainPermissions = new HashSet<>();
+      domainCreatePermissions = new HashSet<>();
+      domainCreatePermissions.add(DomainCreatePermissions.getInstance(DomainCreatePermissions.CREATE));
+      domainCreatePermissions.add(DomainCreatePermissions.getInstanceWithGrantOption(DomainCreatePermissions.CREATE));
+      for (String sysPermissionName : DomainPermissions.getSysPermissionNames()) {
+         final DomainPermission domainPermission = DomainPermissions.getInstance(sysPermissionName);
+         domainPermissions.add(domainPermission);
+         domainPermissions.add(DomainPermissions.getInstanceWithGrantOption(sysPermissionName));
+         domainCreatePermissions.add(DomainCreatePermissions.getInstance(domainPermission));
+         domainCreatePermissions.add(DomainCreatePermissions.getInstanceWithGrantOption(domainPermission));
+      }
+   }
+
+   @Benchmark
+   public Set<ResourcePermission> resourcePermissions_normalize() {
+      return PermissionUtils.normalizeResourcePermissions(resourcePermissions);
+   }
+
+   @Benchmark
+   public Set<ResourcePermission> resourcePermissions_collapse() {
+      return PermissionUtils.collapseResourcePermissions(resourcePermissions);
+   }
+
+   @Benchmark
+   public Set<ResourcePermission> resourcePermissions_collapse_pairwise() {
+      final Set<ResourcePermission> collapsedPermissions = new HashSet<>(resourcePermissions);
+
+      for (ResourcePermission permission : resourcePermissions) {
+         for (ResourcePermission grantEquivalentPermission : resourcePermissions) {
+            if (permission.isGrantableFrom(grantEquivalentPermission) && !permission.equals(grantEquivalentPermission)) {
+               collapsedPermissions.remove(permission);
+               break;
+            }
+         }
+      }
+
+      return collapsedPermissions;
+   }
+
+   @Benchmark
+   public Set<ResourcePermission> resourcePermissions_getSetWithoutNullsOrDuplicates() {
+      return PermissionUtils.getSetWithoutNullsOrDuplicates(firstResourcePermission, otherResourcePermissions);
+   }
+
+   @Benchmark
+   public Set<ResourceCreatePermission> resourceCreatePermissions_normalize() {
+      return PermissionUtils.normalizeResourceCreatePermissions(resourceCreatePermissions);
+   }
+
+   @Benchmark
+   public Set<ResourceCreatePermission> resourceCreatePermissions_collapse() {
+      return PermissionUtils.collapseResourceCreatePermissions(resourceCreatePermissions);
+   }
+
+   @Benchmark
+   public Set<ResourceCreatePermission> resourceCreatePermissions_collapse_pairwise() {
+      final Set<ResourceCreatePermission> collapsedPermissions = new HashSet<>(resourceCreatePermissions);
+
+      for (ResourceCreatePermission permission : resourceCreatePermissions) {
+         for (ResourceCreatePermission grantEquivalentPermission : resourceCreatePermissions) {
+            if (permission.isGrantableFrom(grantEquivalentPermission) && !permission.equals(grantEquivalentPermission)) {
+               collapsedPermissions.remove(permission);
+               break;
+            }
+         }
+      }
+
+      return collapsedPermissions;
+   }
+
+   @Benchmark
+   public Set<DomainPermission> domainPermissions_normalize() {
+      return PermissionUtils.normalizeDomainPermissions(domainPermissions);
+   }
+
+   @Benchmark
+   public Set<DomainPermission> domainPermissions_collapse() {
+      return PermissionUtils.collapseDomainPermissions(domainPermissions);
+   }
+
+   @Benchmark
+   public Set<DomainCreatePermission> domainCreatePermissions_normalize() {
+      return PermissionUtils.normalizeDomainCreatePermissions(domainCreatePermissions);
+   }
+
+   @Benchmark
+   public Set<DomainCreatePermission> domainCreatePermissions_collapse() {
+      return PermissionUtils.collapseDomainCreatePermissions(domainCreatePermissions);
+   }
+}
@@ -0,0 +1,62 @@
+/*
+ * Copyright 2009-2016, Acciente LLC
+ *
+ * Acciente LLC licenses this file to you under the
+ * Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in
+ * writing, software distributed under the License is
+ * distributed on an "AS IS" BASIS, WITHOUT WARRANTIES
+ * OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.acciente.oacc.helper;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Wraps a data source to count the connections checked out from it, including by concurrent threads.
+ */
+public class CountingDataSource implements InvocationHandler {
+   private final DataSource    targetDataSource;
+   private final DataSource    dataSource;
+   private final AtomicInteger connectionCount = new AtomicInteger();
+
+   public CountingDataSource(DataSource targetDataSource) {
+      this.targetDataSource = targetDataSource;
+      this.dataSource = (DataSource) Proxy.newProxyInstance(DataSource.class.getClassLoader(),
+                                                            new Class<?>[]{DataSource.class},
+                                                            this);
+   }
+
+   @Override
+   public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+      if (method.getName().equals("getConnection")) {
+         connectionCount.incrementAndGet();
+      }
+      try {
+         return method.invoke(targetDataSource, args);
+      }
+      catch (InvocationTargetException e) {
+         throw e.getCause();
+      }
+   }
+
+   public DataSource getDataSource() {
+      return dataSource;
+   }
+
+   public int getConnectionCount() {
+      return connectionCount.get();
+   }
+}
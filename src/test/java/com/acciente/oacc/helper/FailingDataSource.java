@@ -0,0 +1,84 @@
+/*
+ * Copyright 2009-2016, Acciente LLC
+ *
+ * Acciente LLC licenses this file to you under the
+ * Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in
+ * writing, software distributed under the License is
+ * distributed on an "AS IS" BASIS, WITHOUT WARRANTIES
+ * OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.acciente.oacc.helper;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.regex.Pattern;
+
+/**
+ * Wraps a data source such that preparing any statement whose SQL matches a pattern fails, to simulate a database
+ * failure part way through an operation.
+ */
+public class FailingDataSource implements InvocationHandler {
+   private final DataSource targetDataSource;
+   private final DataSource dataSource;
+   private final Pattern    failingSqlPattern;
+
+   public FailingDataSource(DataSource targetDataSource, String failingSqlRegex) {
+      this.targetDataSource = targetDataSource;
+      this.failingSqlPattern = Pattern.compile(failingSqlRegex);
+      this.dataSource = (DataSource) Proxy.newProxyInstance(DataSource.class.getClassLoader(),
+                                                            new Class<?>[]{DataSource.class},
+                                                            this);
+   }
+
+   @Override
+   public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+      final Object result = __invoke(targetDataSource, method, args);
+      if (method.getName().equals("getConnection")) {
+         return __newFailingConnection((Connection) result);
+      }
+      return result;
+   }
+
+   public DataSource getDataSource() {
+      return dataSource;
+   }
+
+   private Connection __newFailingConnection(final Connection targetConnection) {
+      return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(),
+                                                 new Class<?>[]{Connection.class},
+                                                 new InvocationHandler() {
+                                                    @Override
+                                                    public Object invoke(Object proxy,
+                                                                         Method method,
+                                                                         Object[] args) throws Throwable {
+                                                       if (method.getName().equals("prepareStatement")
+                                                             && failingSqlPattern.matcher((String) args[0]).matches()) {
+                                                          throw new SQLException("Simulated failure of: " + args[0]);
+                                                       }
+                                                       return __invoke(targetConnection, method, args);
+                                                    }
+                                                 });
+   }
+
+   private static Object __invoke(Object target, Method method, Object[] args) throws Throwable {
+      try {
+         return method.invoke(target, args);
+      }
+      catch (InvocationTargetException e) {
+         throw e.getCause();
+      }
+   }
+}
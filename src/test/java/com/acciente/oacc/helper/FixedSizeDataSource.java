@@ -0,0 +1,112 @@
+/*
+ * Copyright 2009-2016, Acciente LLC
+ *
+ * Acciente LLC licenses this file to you under the
+ * Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in
+ * writing, software distributed under the License is
+ * distributed on an "AS IS" BASIS, WITHOUT WARRANTIES
+ * OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.acciente.oacc.helper;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Wraps a data source to behave like a connection pool of a fixed size: a connection is only checked out while fewer
+ * than the maximum number of connections are open, otherwise the checkout waits for one to be closed, and fails if
+ * none was closed within the maximum wait time.
+ */
+public class FixedSizeDataSource implements InvocationHandler {
+   private final DataSource targetDataSource;
+   private final DataSource dataSource;
+   private final int        maxConnections;
+   private final long       maxWaitMillis;
+   private final Semaphore  connectionPermits;
+
+   public FixedSizeDataSource(DataSource targetDataSource, int maxConnections, long maxWaitMillis) {
+      this.targetDataSource = targetDataSource;
+      this.maxConnections = maxConnections;
+      this.maxWaitMillis = maxWaitMillis;
+      this.connectionPermits = new Semaphore(maxConnections, true);
+      this.dataSource = (DataSource) Proxy.newProxyInstance(DataSource.class.getClassLoader(),
+                                                            new Class<?>[]{DataSource.class},
+                                                            this);
+   }
+
+   @Override
+   public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+      if (!method.getName().equals("getConnection")) {
+         return __invoke(targetDataSource, method, args);
+      }
+
+      if (!connectionPermits.tryAcquire(maxWaitMillis, TimeUnit.MILLISECONDS)) {
+         throw new SQLException("Connection pool of " + maxConnections + " connections exhausted after waiting "
+                                      + maxWaitMillis + "ms");
+      }
+      try {
+         return __newPooledConnection((Connection) __invoke(targetDataSource, method, args));
+      }
+      catch (Throwable t) {
+         connectionPermits.release();
+         throw t;
+      }
+   }
+
+   public DataSource getDataSource() {
+      return dataSource;
+   }
+
+   public int getOpenConnectionCount() {
+      return maxConnections - connectionPermits.availablePermits();
+   }
+
+   // returns the connection, such that closing it returns its permit to the pool, once
+   private Connection __newPooledConnection(final Connection targetConnection) {
+      final AtomicBoolean closed = new AtomicBoolean();
+      return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(),
+                                                 new Class<?>[]{Connection.class},
+                                                 new InvocationHandler() {
+                                                    @Override
+                                                    public Object invoke(Object proxy,
+                                                                         Method method,
+                                                                         Object[] args) throws Throwable {
+                                                       if (method.getName().equals("close")
+                                                             && closed.compareAndSet(false, true)) {
+                                                          try {
+                                                             return __invoke(targetConnection, method, args);
+                                                          }
+                                                          finally {
+                                                             connectionPermits.release();
+                                                          }
+                                                       }
+                                                       return __invoke(targetConnection, method, args);
+                                                    }
+                                                 });
+   }
+
+   private static Object __invoke(Object target, Method method, Object[] args) throws Throwable {
+      try {
+         return method.invoke(target, args);
+      }
+      catch (InvocationTargetException e) {
+         throw e.getCause();
+      }
+   }
+}
@@ -0,0 +1,626 @@
+/*
+ * Copyright 2009-2016, Acciente LLC
+ *
+ * Acciente LLC licenses this file to you under the
+ * Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in
+ * writing, software distributed under the License is
+ * distributed on an "AS IS" BASIS, WITHOUT WARRANTIES
+ * OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.acciente.oacc.load;
+
+import com.acciente.oacc.ResourceCreatePermissions;
+import com.acciente.oacc.ResourcePermissions;
+import com.acciente.oacc.helper.SQLAccessControlSystemResetUtil;
+import com.acciente.oacc.helper.TestConfigLoader;
+import com.acciente.oacc.sql.SQLProfile;
+import com.acciente.oacc.sql.internal.persister.SQLStrings;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * Generates a large, production-shaped data set in the database configured for the tests, by inserting
+ * directly into the OACC tables with batched JDBC statements instead of going through the API.
+ * <p/>
+ * <strong>The generator resets the OACC tables of the configured database</strong> (using the
+ * {@link com.acciente.oacc.sql.internal.SQLAccessControlSystemInitializer}, exactly like the tests do),
+ * and then generates:
+ * <ul>
+ *    <li>a tree of domains, below a single root domain, of the configured depth and fan-out</li>
+ *    <li>the configured number of resource classes, each with the configured number of permissions</li>
+ *    <li>resources of these resource classes, spread uniformly over the leaf domains</li>
+ *    <li>users, spread uniformly over the leaf domains, and chains of roles, where each role INHERITs from
+ *        the next role in its chain, and each user INHERITs from the first role of a chain</li>
+ *    <li>direct grants of users and roles to resources, global grants of roles to domains,
+ *        and create grants (with a post-create permission) of roles to domains</li>
+ * </ul>
+ * Resources and role chains are chosen with a Zipfian skew, so that a few resources and roles are very popular.
+ * All choices are drawn from a single seeded random number generator, so the same configuration always generates
+ * the same graph (the ids themselves may differ between runs, if the database does not reset its identity
+ * columns when the tables are cleared).
+ * <p/>
+ * The database is selected with the same <code>-Ddbconfig</code> system property as the tests. The data set is
+ * configured with the following system properties (defaults in parentheses):
+ * <ul>
+ *    <li><code>dataset.domainDepth</code> (3) and <code>dataset.domainFanOut</code> (5) - the shape of the domain tree</li>
+ *    <li><code>dataset.resourceClasses</code> (5) and <code>dataset.permissionsPerClass</code> (4)</li>
+ *    <li><code>dataset.resources</code> (1000000) and <code>dataset.users</code> (10000)</li>
+ *    <li><code>dataset.roleChains</code> (100) and <code>dataset.inheritDepth</code> (3) - the number of role chains,
+ *        and the number of roles in each chain; each user thus inherits through <code>inheritDepth</code> levels</li>
+ *    <li><code>dataset.directGrantsPerAccessor</code> (10) - the number of direct grants of each user and role</li>
+ *    <li><code>dataset.globalGrantsPerRole</code> (2) and <code>dataset.createGrantsPerRole</code> (1)</li>
+ *    <li><code>dataset.zipfExponent</code> (0.99) - the skew of the resource and role choice; 0 means uniform</li>
+ *    <li><code>dataset.batchSize</code> (1000) - the number of rows per JDBC batch (and transaction)</li>
+ *    <li><code>dataset.seed</code> (42)</li>
+ * </ul>
+ * The generated users have no passwords, so they cannot authenticate with the built-in password authentication.
+ */
+public class DatasetGenerator {
+   private static final long   SYSTEM_RESOURCE_ID      = 0;
+   private static final String ROOT_DOMAIN             = "GEN";
+   private static final String RESOURCE_CLASS_USER     = "GEN_USER";
+   private static final String RESOURCE_CLASS_ROLE     = "GEN_ROLE";
+   private static final String RESOURCE_CLASS_PREFIX   = "GEN_CLASS_";
+   private static final String PERMISSION_PREFIX       = "PERMISSION_";
+   private static final long   SYSPERMISSION_INHERIT_ID
+         = ResourcePermissions.getInstance(ResourcePermissions.INHERIT).getSystemPermissionId();
+   private static final long   SYSPERMISSION_CREATE_ID
+         = ResourceCreatePermissions.getInstance(ResourceCreatePermissions.CREATE).getSystemPermissionId();
+
+   private final int    domainDepth;
+   private final int    domainFanOut;
+   private final int    resourceClassCount;
+   private final int    permissionsPerClass;
+   private final int    resourceCount;
+   private final int    userCount;
+   private final int    roleChainCount;
+   private final int    inheritDepth;
+   private final int    directGrantsPerAccessor;
+   private final int    globalGrantsPerRole;
+   private final int    createGrantsPerRole;
+   private final double zipfExponent;
+   private final int    batchSize;
+   private final long   seed;
+
+   private final DataSource dataSource;
+   private final SQLProfile sqlProfile;
+   private final SQLStrings sqlStrings;
+   private final String     schemaNameAndTablePrefix;
+   private final Random     random;
+
+   // the generated graph, by index; the ids are only known once the rows have been inserted
+   private long[] domainIds;
+   private long[] leafDomainIds;
+   private long[] resourceClassIds;
+   private long   userResourceClassId;
+   private long   roleResourceClassId;
+   private long[] resourceIds;
+   private int[]  resourceClassIndexes;
+   private long[] userIds;
+   private long[] roleIds;
+
+   public static void main(String[] args) throws Exception {
+      new DatasetGenerator().generate();
+   }
+
+   DatasetGenerator() {
+      domainDepth = Integer.getInteger("dataset.domainDepth", 3);
+      domainFanOut = Integer.getInteger("dataset.domainFanOut", 5);
+      resourceClassCount = Integer.getInteger("dataset.resourceClasses", 5);
+      permissionsPerClass = Integer.getInteger("dataset.permissionsPerClass", 4);
+      resourceCount = Integer.getInteger("dataset.resources", 1000000);
+      userCount = Integer.getInteger("dataset.users", 10000);
+      roleChainCount = Integer.getInteger("dataset.roleChains", 100);
+      inheritDepth = Integer.getInteger("dataset.inheritDepth", 3);
+      directGrantsPerAccessor = Integer.getInteger("dataset.directGrantsPerAccessor", 10);
+      globalGrantsPerRole = Integer.getInteger("dataset.globalGrantsPerRole", 2);
+      createGrantsPerRole = Integer.getInteger("dataset.createGrantsPerRole", 1);
+      zipfExponent = Double.parseDouble(System.getProperty("dataset.zipfExponent", "0.99"));
+      batchSize = Integer.getInteger("dataset.batchSize", 1000);
+      seed = Long.getLong("dataset.seed", 42L);
+
+      if (domainDepth < 0 || domainFanOut <= 0) {
+         throw new IllegalArgumentException("Domain depth cannot be negative and domain fan-out must be positive");
+      }
+      if (resourceClassCount <= 0 || permissionsPerClass <= 0 || resourceCount <= 0 || userCount <= 0) {
+         throw new IllegalArgumentException("Number of resource classes, permissions, resources and users must be positive");
+      }
+      if (roleChainCount < 0 || inheritDepth < 0
+            || directGrantsPerAccessor < 0 || globalGrantsPerRole < 0 || createGrantsPerRole < 0) {
+         throw new IllegalArgumentException("Number of role chains, inherit depth and grants cannot be negative");
+      }
+      if (batchSize <= 0) {
+         throw new IllegalArgumentException("Batch size must be positive");
+      }
+
+      dataSource = TestConfigLoader.getDataSource();
+      sqlProfile = TestConfigLoader.getSQLProfile();
+      sqlStrings = SQLStrings.getSQLStrings(TestConfigLoader.getDatabaseSchema(), sqlProfile);
+      schemaNameAndTablePrefix = TestConfigLoader.getDatabaseSchema() != null
+                                 ? TestConfigLoader.getDatabaseSchema() + ".OAC_"
+                                 : "OAC_";
+      random = new Random(seed);
+   }
+
+   void generate() throws SQLException {
+      final long startNanos = System.nanoTime();
+
+      SQLAccessControlSystemResetUtil.resetOACC(dataSource,
+                                                TestConfigLoader.getDatabaseSchema(),
+                                                TestConfigLoader.getOaccRootPassword());
+
+      try (Connection connection = dataSource.getConnection()) {
+         connection.setAutoCommit(false);
+
+         __generateDomains(connection);
+         __generateResourceClasses(connection);
+         __generateResources(connection);
+         __generateUsersAndRoles(connection);
+         __generateInheritGrants(connection);
+         __generateDirectGrants(connection);
+         __generateGlobalAndCreateGrants(connection);
+      }
+
+      System.out.println(String.format("Generated data set for %s in %.1fs",
+                                       sqlProfile, (System.nanoTime() - startNanos) / 1e9));
+   }
+
+   // private helper methods
+
+   private void __generateDomains(Connection connection) throws SQLException {
+      final long phaseStartNanos = System.nanoTime();
+
+      final List<String> domainNames = new ArrayList<>();
+      List<String> levelDomainNames = new ArrayList<>();
+      levelDomainNames.add(ROOT_DOMAIN);
+      try (PreparedStatement statement = connection.prepareStatement(sqlStrings.SQL_createInDomain_WITH_ResourceDomainName)) {
+         statement.setString(1, ROOT_DOMAIN);
+         statement.executeUpdate();
+      }
+      connection.commit();
+      domainNames.add(ROOT_DOMAIN);
+
+      // create the tree level by level, since the children need the ids of their parents
+      for (int level = 1; level <= domainDepth; level++) {
+         final Map<String, Long> domainIdsByName = __getDomainIdsByName(connection);
+         final List<String> childDomainNames = new ArrayList<>(levelDomainNames.size() * domainFanOut);
+
+         try (Batch batch = new Batch(connection, sqlStrings.SQL_createInDomain_WITH_ResourceDomainName_ParentDomainID)) {
+            for (String parentDomainName : levelDomainNames) {
+               for (int i = 0; i < domainFanOut; i++) {
+                  final String childDomainName = parentDomainName + "_" + i;
+                  batch.statement.setString(1, childDomainName);
+                  batch.statement.setLong(2, domainIdsByName.get(parentDomainName));
+                  batch.add();
+                  childDomainNames.add(childDomainName);
+               }
+            }
+         }
+         domainNames.addAll(childDomainNames);
+         levelDomainNames = childDomainNames;
+      }
+
+      final Map<String, Long> domainIdsByName = __getDomainIdsByName(connection);
+      domainIds = new long[domainNames.size()];
+      for (int i = 0; i < domainIds.length; i++) {
+         domainIds[i] = domainIdsByName.get(domainNames.get(i));
+      }
+      leafDomainIds = new long[levelDomainNames.size()];
+      for (int i = 0; i < leafDomainIds.length; i++) {
+         leafDomainIds[i] = domainIdsByName.get(levelDomainNames.get(i));
+      }
+
+      __printProgress("domains", domainIds.length, phaseStartNanos);
+   }
+
+   private Map<String, Long> __getDomainIdsByName(Connection connection) throws SQLException {
+      final Map<String, Long> domainIdsByName = new HashMap<>();
+      try (PreparedStatement statement
+                 = connection.prepareStatement("SELECT DomainId, DomainName FROM " + schemaNameAndTablePrefix + "Domain");
+           ResultSet resultSet = statement.executeQuery()) {
+         while (resultSet.next()) {
+            domainIdsByName.put(resultSet.getString("DomainName"), resultSet.getLong("DomainId"));
+         }
+      }
+      return domainIdsByName;
+   }
+
+   private void __generateResourceClasses(Connection connection) throws SQLException {
+      final long phaseStartNanos = System.nanoTime();
+
+      try (Batch batch = new Batch(connection,
+                                   sqlStrings.SQL_createInResourceClass_WITH_ResourceClassName_IsAuthenticatable_IsUnauthenticatedCreateAllowed)) {
+         __addResourceClass(batch, RESOURCE_CLASS_USER, true);
+         __addResourceClass(batch, RESOURCE_CLASS_ROLE, false);
+         for (int i = 0; i < resourceClassCount; i++) {
+            __addResourceClass(batch, RESOURCE_CLASS_PREFIX + i, false);
+         }
+      }
+
+      userResourceClassId = __getResourceClassId(connection, RESOURCE_CLASS_USER);
+      roleResourceClassId = __getResourceClassId(connection, RESOURCE_CLASS_ROLE);
+      resourceClassIds = new long[resourceClassCount];
+      for (int i = 0; i < resourceClassCount; i++) {
+         resourceClassIds[i] = __getResourceClassId(connection, RESOURCE_CLASS_PREFIX + i);
+      }
+
+      try (Batch batch = new Batch(connection, sqlStrings.SQL_createInResourceClassPermission_WITH_ResourceClassID_PermissionName)) {
+         for (long resourceClassId : resourceClassIds) {
+            for (int i = 0; i < permissionsPerClass; i++) {
+               batch.statement.setLong(1, resourceClassId);
+               batch.statement.setString(2, PERMISSION_PREFIX + i);
+               batch.add();
+            }
+         }
+      }
+
+      __printProgress("resource classes", resourceClassCount + 2, phaseStartNanos);
+   }
+
+   private static void __addResourceClass(Batch batch, String resourceClassName, boolean authenticatable) throws SQLException {
+      batch.statement.setString(1, resourceClassName);
+      batch.statement.setInt(2, authenticatable ? 1 : 0);
+      batch.statement.setInt(3, 0);
+      batch.add();
+   }
+
+   private long __getResourceClassId(Connection connection, String resourceClassName) throws SQLException {
+      try (PreparedStatement statement
+                 = connection.prepareStatement(sqlStrings.SQL_findInResourceClass_ResourceClassID_ResourceClassName_IsAuthenticatable_IsUnauthenticatedCreateAllowed_BY_ResourceClassName)) {
+         statement.setString(1, resourceClassName);
+         try (ResultSet resultSet = statement.executeQuery()) {
+            if (!resultSet.next()) {
+               throw new IllegalStateException("Could not find generated resource class: " + resourceClassName);
+            }
+            return resultSet.getLong("ResourceClassId");
+         }
+      }
+   }
+
+   private void __generateResources(Connection connection) throws SQLException {
+      final long phaseStartNanos = System.nanoTime();
+
+      resourceClassIndexes = new int[resourceCount];
+      final long[] resourceClassIdsByResource = new long[resourceCount];
+      final long[] domainIdsByResource = new long[resourceCount];
+      for (int i = 0; i < resourceCount; i++) {
+         resourceClassIndexes[i] = random.nextInt(resourceClassCount);
+         resourceClassIdsByResource[i] = resourceClassIds[resourceClassIndexes[i]];
+         domainIdsByResource[i] = leafDomainIds[random.nextInt(leafDomainIds.length)];
+      }
+      resourceIds = __insertResources(connection, resourceClassIdsByResource, domainIdsByResource);
+
+      __printProgress("resources", resourceCount, phaseStartNanos);
+   }
+
+   private void __generateUsersAndRoles(Connection connection) throws SQLException {
+      final long phaseStartNanos = System.nanoTime();
+
+      final long[] userResourceClassIds = new long[userCount];
+      final long[] userDomainIds = new long[userCount];
+      for (int i = 0; i < userCount; i++) {
+         userResourceClassIds[i] = userResourceClassId;
+         userDomainIds[i] = leafDomainIds[random.nextInt(leafDomainIds.length)];
+      }
+      userIds = __insertResources(connection, userResourceClassIds, userDomainIds);
+
+      // the roles live in the root domain
+      final int roleCount = roleChainCount * inheritDepth;
+      final long[] roleResourceClassIds = new long[roleCount];
+      final long[] roleDomainIds = new long[roleCount];
+      for (int i = 0; i < roleCount; i++) {
+         roleResourceClassIds[i] = roleResourceClassId;
+         roleDomainIds[i] = domainIds[0];
+      }
+      roleIds = __insertResources(connection, roleResourceClassIds, roleDomainIds);
+
+      __printProgress("users and roles", userCount + roleCount, phaseStartNanos);
+   }
+
+   /**
+    * Inserts a resource for each of the specified resource class and domain ids, and returns the ids of
+    * the new resources in the same order.
+    */
+   private long[] __insertResources(Connection connection,
+                                    long[] resourceClassIdsByResource,
+                                    long[] domainIdsByResource) throws SQLException {
+      final int count = resourceClassIdsByResource.length;
+      final long[] newResourceIds = new long[count];
+
+      if (count == 0) {
+         return newResourceIds;
+      }
+
+      if (sqlProfile.isSequenceEnabled()) {
+         try (Batch batch = new Batch(connection, sqlStrings.SQL_createInResource_WITH_ResourceID_ResourceClassID_DomainID)) {
+            for (int offset = 0; offset < count; offset += batchSize) {
+               final int blockSize = Math.min(batchSize, count - offset);
+               __getNextResourceIds(connection, newResourceIds, offset, blockSize);
+               for (int i = offset; i < offset + blockSize; i++) {
+                  batch.statement.setLong(1, newResourceIds[i]);
+                  batch.statement.setLong(2, resourceClassIdsByResource[i]);
+                  batch.statement.setLong(3, domainIdsByResource[i]);
+                  batch.add();
+               }
+            }
+         }
+      }
+      else {
+         // identity columns: insert without ids, then read the ids back in insertion order
+         final long maxResourceIdBefore = __getMaxResourceId(connection);
+         try (Batch batch = new Batch(connection, sqlStrings.SQL_createInResource_WITH_ResourceClassID_DomainID)) {
+            for (int i = 0; i < count; i++) {
+               batch.statement.setLong(1, resourceClassIdsByResource[i]);
+               batch.statement.setLong(2, domainIdsByResource[i]);
+               batch.add();
+            }
+         }
+
+         try (PreparedStatement statement
+                    = connection.prepareStatement("SELECT ResourceId FROM " + schemaNameAndTablePrefix
+                                                        + "Resource WHERE ResourceId > ? ORDER BY ResourceId")) {
+            statement.setLong(1, maxResourceIdBefore);
+            try (ResultSet resultSet = statement.executeQuery()) {
+               int i = 0;
+               while (resultSet.next()) {
+                  if (i == count) {
+                     throw new IllegalStateException("Found more new resources than were inserted");
+                  }
+                  newResourceIds[i++] = resultSet.getLong(1);
+               }
+               if (i != count) {
+                  throw new IllegalStateException("Inserted " + count + " resources, but found " + i);
+               }
+            }
+         }
+      }
+
+      return newResourceIds;
+   }
+
+   private void __getNextResourceIds(Connection connection,
+                                     long[] newResourceIds,
+                                     int offset,
+                                     int count) throws SQLException {
+      if (sqlStrings.SQL_nextResourceIDs != null) {
+         try (PreparedStatement statement = connection.prepareStatement(sqlStrings.SQL_nextResourceIDs)) {
+            statement.setInt(1, count);
+            try (ResultSet resultSet = statement.executeQuery()) {
+               int i = 0;
+               while (resultSet.next() && i < count) {
+                  newResourceIds[offset + i++] = resultSet.getLong(1);
+               }
+               if (i != count) {
+                  throw new IllegalStateException("Could not retrieve " + count + " next ResourceIds from sequence");
+               }
+            }
+         }
+      }
+      else {
+         // one round-trip per id, if the database cannot select several sequence values in one query
+         try (PreparedStatement statement = connection.prepareStatement(sqlStrings.SQL_nextResourceID)) {
+            for (int i = 0; i < count; i++) {
+               try (ResultSet resultSet = statement.executeQuery()) {
+                  if (!resultSet.next()) {
+                     throw new IllegalStateException("Could not retrieve next ResourceId from sequence");
+                  }
+                  newResourceIds[offset + i] = resultSet.getLong(1);
+               }
+            }
+         }
+      }
+   }
+
+   private long __getMaxResourceId(Connection connection) throws SQLException {
+      try (PreparedStatement statement
+                 = connection.prepareStatement("SELECT MAX(ResourceId) FROM " + schemaNameAndTablePrefix + "Resource");
+           ResultSet resultSet = statement.executeQuery()) {
+         return resultSet.next() ? resultSet.getLong(1) : 0;
+      }
+   }
+
+   private void __generateInheritGrants(Connection connection) throws SQLException {
+      final long phaseStartNanos = System.nanoTime();
+      int grantCount = 0;
+
+      if (inheritDepth > 0 && roleChainCount > 0) {
+         final ZipfianDistribution roleChainDistribution = new ZipfianDistribution(roleChainCount, zipfExponent, seed + 1);
+
+         try (Batch batch = new Batch(connection,
+                                      sqlStrings.SQL_createInGrantResourcePermissionSys_WITH_AccessorID_GrantorID_AccessedID_IsWithGrant_ResourceClassID_SysPermissionID)) {
+            // each role in a chain inherits from the next one
+            for (int chain = 0; chain < roleChainCount; chain++) {
+               for (int i = 0; i < inheritDepth - 1; i++) {
+                  __addInheritGrant(batch, roleIds[chain * inheritDepth + i], roleIds[chain * inheritDepth + i + 1]);
+                  grantCount++;
+               }
+            }
+            // and each user inherits from the first role of a (popular) chain
+            for (long userId : userIds) {
+               __addInheritGrant(batch, userId, roleIds[roleChainDistribution.next(random) * inheritDepth]);
+               grantCount++;
+            }
+         }
+      }
+
+      __printProgress("INHERIT grants", grantCount, phaseStartNanos);
+   }
+
+   private void __addInheritGrant(Batch batch, long accessorId, long accessedRoleId) throws SQLException {
+      batch.statement.setLong(1, accessorId);
+      batch.statement.setLong(2, SYSTEM_RESOURCE_ID);
+      batch.statement.setLong(3, accessedRoleId);
+      batch.statement.setInt(4, 0);
+      batch.statement.setLong(5, roleResourceClassId);
+      batch.statement.setLong(6, SYSPERMISSION_INHERIT_ID);
+      batch.add();
+   }
+
+   private void __generateDirectGrants(Connection connection) throws SQLException {
+      final long phaseStartNanos = System.nanoTime();
+      final ZipfianDistribution resourceDistribution = new ZipfianDistribution(resourceCount, zipfExponent, seed + 2);
+      // an accessor cannot be granted more distinct permissions than exist
+      final long maxGrantsPerAccessor = Math.min(directGrantsPerAccessor, (long) resourceCount * permissionsPerClass);
+      int grantCount = 0;
+
+      try (Batch batch = new Batch(connection,
+                                   sqlStrings.SQL_createInGrantResourcePermission_WITH_AccessorID_GrantorID_AccessedID_IsWithGrant_ResourceClassID_PermissionName)) {
+         final Set<Long> grantedResourcePermissions = new HashSet<>();
+
+         for (long[] accessorIds : new long[][]{userIds, roleIds}) {
+            for (long accessorId : accessorIds) {
+               grantedResourcePermissions.clear();
+               while (grantedResourcePermissions.size() < maxGrantsPerAccessor) {
+                  final int resourceIndex = resourceDistribution.next(random);
+                  final int permissionIndex = random.nextInt(permissionsPerClass);
+                  if (!grantedResourcePermissions.add((long) resourceIndex * permissionsPerClass + permissionIndex)) {
+                     continue;
+                  }
+
+                  batch.statement.setLong(1, accessorId);
+                  batch.statement.setLong(2, SYSTEM_RESOURCE_ID);
+                  batch.statement.setLong(3, resourceIds[resourceIndex]);
+                  batch.statement.setInt(4, 0);
+                  batch.statement.setLong(5, resourceClassIds[resourceClassIndexes[resourceIndex]]);
+                  batch.statement.setString(6, PERMISSION_PREFIX + permissionIndex);
+                  batch.add();
+                  grantCount++;
+               }
+            }
+         }
+      }
+
+      __printProgress("direct grants", grantCount, phaseStartNanos);
+   }
+
+   private void __generateGlobalAndCreateGrants(Connection connection) throws SQLException {
+      final long phaseStartNanos = System.nanoTime();
+      final long maxGlobalGrantsPerRole
+            = Math.min(globalGrantsPerRole, (long) domainIds.length * resourceClassCount * permissionsPerClass);
+      final long maxCreateGrantsPerRole = Math.min(createGrantsPerRole, (long) domainIds.length * resourceClassCount);
+      int grantCount = 0;
+
+      try (Batch globalBatch = new Batch(connection,
+                                         sqlStrings.SQL_createInGrantGlobalResourcePermission_WITH_AccessorID_GrantorID_AccessedDomainID_IsWithGrant_ResourceClassID_PermissionName);
+           Batch createBatch = new Batch(connection,
+                                         sqlStrings.SQL_createInGrantResourceCreatePermissionSys_WITH_AccessorID_GrantorID_AccessedDomainID_IsWithGrant_ResourceClassID_SysPermissionId);
+           Batch postCreateBatch = new Batch(connection,
+                                             sqlStrings.SQL_createInGrantResourceCreatePermissionPostCreate_WITH_AccessorID_GrantorID_AccessedDomainID_IsWithGrant_PostCreateIsWithGrant_ResourceClassID_PostCreatePermissionName)) {
+         final Set<Long> grantedPermissions = new HashSet<>();
+
+         for (long roleId : roleIds) {
+            grantedPermissions.clear();
+            while (grantedPermissions.size() < maxGlobalGrantsPerRole) {
+               final int domainIndex = random.nextInt(domainIds.length);
+               final int resourceClassIndex = random.nextInt(resourceClassCount);
+               final int permissionIndex = random.nextInt(permissionsPerClass);
+               if (!grantedPermissions.add(((long) domainIndex * resourceClassCount + resourceClassIndex) * permissionsPerClass
+                                                 + permissionIndex)) {
+                  continue;
+               }
+
+               globalBatch.statement.setLong(1, roleId);
+               globalBatch.statement.setLong(2, SYSTEM_RESOURCE_ID);
+               globalBatch.statement.setLong(3, domainIds[domainIndex]);
+               globalBatch.statement.setInt(4, 0);
+               globalBatch.statement.setLong(5, resourceClassIds[resourceClassIndex]);
+               globalBatch.statement.setString(6, PERMISSION_PREFIX + permissionIndex);
+               globalBatch.add();
+               grantCount++;
+            }
+
+            grantedPermissions.clear();
+            while (grantedPermissions.size() < maxCreateGrantsPerRole) {
+               final int domainIndex = random.nextInt(domainIds.length);
+               final int resourceClassIndex = random.nextInt(resourceClassCount);
+               if (!grantedPermissions.add((long) domainIndex * resourceClassCount + resourceClassIndex)) {
+                  continue;
+               }
+
+               createBatch.statement.setLong(1, roleId);
+               createBatch.statement.setLong(2, SYSTEM_RESOURCE_ID);
+               createBatch.statement.setLong(3, domainIds[domainIndex]);
+               createBatch.statement.setInt(4, 0);
+               createBatch.statement.setLong(5, resourceClassIds[resourceClassIndex]);
+               createBatch.statement.setLong(6, SYSPERMISSION_CREATE_ID);
+               createBatch.add();
+
+               postCreateBatch.statement.setLong(1, roleId);
+               postCreateBatch.statement.setLong(2, SYSTEM_RESOURCE_ID);
+               postCreateBatch.statement.setLong(3, domainIds[domainIndex]);
+               postCreateBatch.statement.setInt(4, 0);
+               postCreateBatch.statement.setInt(5, 0);
+               postCreateBatch.statement.setLong(6, resourceClassIds[resourceClassIndex]);
+               postCreateBatch.statement.setString(7, PERMISSION_PREFIX + random.nextInt(permissionsPerClass));
+               postCreateBatch.add();
+               grantCount += 2;
+            }
+         }
+      }
+
+      __printProgress("global and create grants", grantCount, phaseStartNanos);
+   }
+
+   private static void __printProgress(String rowType, int rowCount, long phaseStartNanos) {
+      final double seconds = (System.nanoTime() - phaseStartNanos) / 1e9;
+      System.out.println(String.format("Generated %d %s in %.1fs (%.0f/s)", rowCount, rowType, seconds, rowCount / seconds));
+   }
+
+   /**
+    * A prepared statement that is executed, and committed, every time the configured number of rows has been added.
+    */
+   private class Batch implements AutoCloseable {
+      private final Connection        connection;
+      private final PreparedStatement statement;
+      private       int               rowCount;
+
+      private Batch(Connection connection, String sql) throws SQLException {
+         this.connection = connection;
+         this.statement = connection.prepareStatement(sql);
+      }
+
+      private void add() throws SQLException {
+         statement.addBatch();
+         if (++rowCount == batchSize) {
+            __flush();
+         }
+      }
+
+      @Override
+      public void close() throws SQLException {
+         try {
+            __flush();
+         }
+         finally {
+            statement.close();
+         }
+      }
+
+      private void __flush() throws SQLException {
+         if (rowCount > 0) {
+            statement.executeBatch();
+            connection.commit();
+            rowCount = 0;
+         }
+      }
+   }
+}
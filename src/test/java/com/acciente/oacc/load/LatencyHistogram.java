@@ -0,0 +1,116 @@
+/*
+ * Copyright 2009-2016, Acciente LLC
+ *
+ * Acciente LLC licenses this file to you under the
+ * Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in
+ * writing, software distributed under the License is
+ * distributed on an "AS IS" BASIS, WITHOUT WARRANTIES
+ * OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.acciente.oacc.load;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A lock-free latency histogram with log-linear buckets, which records values with a relative
+ * precision of about 3% in a fixed amount of memory, regardless of the number of values recorded.
+ * <p/>
+ * Values below 64 get a bucket each; larger values share a bucket with the other values that agree
+ * in their six most significant bits.
+ */
+class LatencyHistogram {
+   private static final int SUB_BUCKET_BITS  = 5;
+   private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+   private static final int LINEAR_LIMIT     = SUB_BUCKET_COUNT * 2;
+   private static final int BUCKET_COUNT     = (63 - SUB_BUCKET_BITS) * SUB_BUCKET_COUNT + LINEAR_LIMIT;
+
+   private final AtomicLongArray counts;
+   private final AtomicLong      totalCount;
+   private final AtomicLong      maxValue;
+
+   LatencyHistogram() {
+      counts = new AtomicLongArray(BUCKET_COUNT);
+      totalCount = new AtomicLong();
+      maxValue = new AtomicLong();
+   }
+
+   void record(long value) {
+      if (value < 0) {
+         value = 0;
+      }
+
+      counts.incrementAndGet(__getBucketIndex(value));
+      totalCount.incrementAndGet();
+
+      long currentMaxValue = maxValue.get();
+      while (value > currentMaxValue && !maxValue.compareAndSet(currentMaxValue, value)) {
+         currentMaxValue = maxValue.get();
+      }
+   }
+
+   long getTotalCount() {
+      return totalCount.get();
+   }
+
+   long getMaxValue() {
+      return maxValue.get();
+   }
+
+   /**
+    * Returns the (upper bound of the bucket of the) value at the specified percentile.
+    *
+    * @param percentile a percentile between 0 and 100
+    * @return the value at the specified percentile, or 0 if no values were recorded
+    */
+   long getValueAtPercentile(double percentile) {
+      if (percentile < 0 || percentile > 100) {
+         throw new IllegalArgumentException("Percentile must be between 0 and 100");
+      }
+
+      final long totalCount = this.totalCount.get();
+      if (totalCount == 0) {
+         return 0;
+      }
+
+      final long rank = Math.max(1, (long) Math.ceil(percentile / 100 * totalCount));
+      long cumulativeCount = 0;
+      for (int bucketIndex = 0; bucketIndex < BUCKET_COUNT; bucketIndex++) {
+         cumulativeCount += counts.get(bucketIndex);
+         if (cumulativeCount >= rank) {
+            return Math.min(__getBucketUpperBound(bucketIndex), maxValue.get());
+         }
+      }
+      return maxValue.get();
+   }
+
+   // private helper methods
+
+   private static int __getBucketIndex(long value) {
+      if (value < LINEAR_LIMIT) {
+         return (int) value;
+      }
+
+      final int exponent = 63 - Long.numberOfLeadingZeros(value);
+      final int shift = exponent - SUB_BUCKET_BITS;
+      return shift * SUB_BUCKET_COUNT + (int) (value >>> shift);
+   }
+
+   private static long __getBucketUpperBound(int bucketIndex) {
+      if (bucketIndex < LINEAR_LIMIT) {
+         return bucketIndex;
+      }
+
+      final int shift = bucketIndex / SUB_BUCKET_COUNT - 1;
+      final long subBucket = bucketIndex % SUB_BUCKET_COUNT + SUB_BUCKET_COUNT;
+      return ((subBucket + 1) << shift) - 1;
+   }
+}
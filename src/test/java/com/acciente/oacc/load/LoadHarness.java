@@ -0,0 +1,393 @@
+/*
+ * Copyright 2009-2016, Acciente LLC
+ *
+ * Acciente LLC licenses this file to you under the
+ * Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in
+ * writing, software distributed under the License is
+ * distributed on an "AS IS" BASIS, WITHOUT WARRANTIES
+ * OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.acciente.oacc.load;
+
+import com.acciente.oacc.AccessControlContext;
+import com.acciente.oacc.PasswordCredentials;
+import com.acciente.oacc.Resource;
+import com.acciente.oacc.ResourcePermission;
+import com.acciente.oacc.ResourcePermissions;
+import com.acciente.oacc.Resources;
+import com.acciente.oacc.helper.SQLAccessControlSystemResetUtil;
+import com.acciente.oacc.helper.TestConfigLoader;
+import com.acciente.oacc.sql.SQLAccessControlContextFactory;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * A multi-threaded workload harness that drives a configurable mix of access control operations against
+ * the database configured for the tests, and reports the throughput and latency percentiles of each operation.
+ * <p/>
+ * <strong>The harness resets the OACC tables of the configured database</strong>, exactly like the tests do,
+ * and then creates its own resource classes, accessors, resources and grants before it starts the workload.
+ * Each worker thread uses its own access control context, like one session per concurrent user. Accessors and
+ * accessed resources are chosen with a Zipfian skew, so that a few "hot" accessors dominate the workload.
+ * <p/>
+ * The database is selected with the same <code>-Ddbconfig</code> system property as the tests, and the report
+ * starts with its SQL profile, so the profiles can be compared by running the harness once per configuration file.
+ * The workload is configured with the following system properties (defaults in parentheses):
+ * <ul>
+ *    <li><code>load.threads</code> (64) - the number of concurrent users</li>
+ *    <li><code>load.virtualThreads</code> (false) - run the users on virtual threads, if the JVM supports them</li>
+ *    <li><code>load.warmupSeconds</code> (10) and <code>load.durationSeconds</code> (60) - the length of
+ *        the warm-up phase, which is not measured, and of the measured phase</li>
+ *    <li><code>load.accessors</code> (500) and <code>load.resources</code> (5000) - the size of the data set</li>
+ *    <li><code>load.grantsPerAccessor</code> (20) - the number of initial grants of each accessor</li>
+ *    <li><code>load.zipfExponent</code> (0.99) - the skew of the accessor and resource choice; 0 means uniform</li>
+ *    <li><code>load.mix</code> - the relative weight of each operation, as a comma-separated list of
+ *        <code>operation=weight</code> pairs (see {@link Operation} for the operation names and default weights)</li>
+ *    <li><code>load.seed</code> (42) - the seed for the data set and the workload</li>
+ * </ul>
+ * For example:
+ * <pre>
+ *    mvn test-compile exec:java -Dmaven.test.skip=false -Dexec.classpathScope=test \
+ *        -Dexec.mainClass=com.acciente.oacc.load.LoadHarness \
+ *        -Ddbconfig=dbconfig_hsqldb.properties -Dload.threads=500 -Dload.mix=hasResourcePermissions=90,authenticate=10
+ * </pre>
+ */
+public class LoadHarness {
+   private static final String RESOURCE_CLASS_USER     = "LOAD_USER";
+   private static final String RESOURCE_CLASS_DOCUMENT = "LOAD_DOCUMENT";
+   private static final String PERMISSION_READ         = "READ";
+   private static final String DOMAIN                  = "LOAD_DOMAIN";
+   private static final char[] ACCESSOR_PASSWORD       = "load-harness-password".toCharArray();
+
+   enum Operation {
+      AUTHENTICATE("authenticate", 5),
+      HAS_RESOURCE_PERMISSIONS("hasResourcePermissions", 60),
+      GET_RESOURCES_BY_RESOURCE_PERMISSIONS("getResourcesByResourcePermissions", 20),
+      GRANT_RESOURCE_PERMISSIONS("grantResourcePermissions", 10),
+      CREATE_RESOURCE("createResource", 5);
+
+      private final String methodName;
+      private final int    defaultWeight;
+
+      Operation(String methodName, int defaultWeight) {
+         this.methodName = methodName;
+         this.defaultWeight = defaultWeight;
+      }
+
+      static Operation getInstanceByMethodName(String methodName) {
+         for (Operation operation : values()) {
+            if (operation.methodName.equals(methodName)) {
+               return operation;
+            }
+         }
+         throw new IllegalArgumentException("Unsupported operation: " + methodName);
+      }
+
+      @Override
+      public String toString() {
+         return methodName;
+      }
+   }
+
+   private final int                                     threadCount;
+   private final boolean                                 virtualThreads;
+   private final int                                     warmupSeconds;
+   private final int                                     durationSeconds;
+   private final int                                     accessorCount;
+   private final int                                     resourceCount;
+   private final int                                     grantsPerAccessor;
+   private final double                                  zipfExponent;
+   private final long                                    seed;
+   private final Operation[]                             operationsByWeight;
+   private final Map<Operation, LatencyHistogram>        histograms;
+   private final Map<Operation, AtomicLong>              errorCounts;
+   private final Map<Operation, AtomicReference<String>> firstErrors;
+   private final ResourcePermission                      readPermission;
+
+   private List<Resource>      accessors;
+   private List<Resource>      resources;
+   private ZipfianDistribution accessorDistribution;
+   private ZipfianDistribution resourceDistribution;
+   private volatile boolean    measuring;
+   private volatile boolean    stopped;
+
+   public static void main(String[] args) throws Exception {
+      new LoadHarness().run();
+   }
+
+   LoadHarness() {
+      threadCount = Integer.getInteger("load.threads", 64);
+      virtualThreads = Boolean.getBoolean("load.virtualThreads");
+      warmupSeconds = Integer.getInteger("load.warmupSeconds", 10);
+      durationSeconds = Integer.getInteger("load.durationSeconds", 60);
+      accessorCount = Integer.getInteger("load.accessors", 500);
+      resourceCount = Integer.getInteger("load.resources", 5000);
+      grantsPerAccessor = Integer.getInteger("load.grantsPerAccessor", 20);
+      zipfExponent = Double.parseDouble(System.getProperty("load.zipfExponent", "0.99"));
+      seed = Long.getLong("load.seed", 42L);
+      operationsByWeight = __parseOperationMix(System.getProperty("load.mix"));
+
+      if (threadCount <= 0) {
+         throw new IllegalArgumentException("Number of threads must be positive");
+      }
+      if (warmupSeconds < 0 || durationSeconds <= 0) {
+         throw new IllegalArgumentException("Warm-up duration cannot be negative and measured duration must be positive");
+      }
+
+      histograms = new EnumMap<>(Operation.class);
+      errorCounts = new EnumMap<>(Operation.class);
+      firstErrors = new EnumMap<>(Operation.class);
+      for (Operation operation : Operation.values()) {
+         histograms.put(operation, new LatencyHistogram());
+         errorCounts.put(operation, new AtomicLong());
+         firstErrors.put(operation, new AtomicReference<String>());
+      }
+      readPermission = ResourcePermissions.getInstance(PERMISSION_READ);
+   }
+
+   void run() throws Exception {
+      System.out.println("Setting up " + accessorCount + " accessors and " + resourceCount + " resources...");
+      __setUpDataSet();
+
+      final ExecutorService executorService = __createExecutorService();
+      final CountDownLatch startLatch = new CountDownLatch(1);
+      for (int i = 0; i < threadCount; i++) {
+         final long threadSeed = seed + i + 1;
+         executorService.execute(new Runnable() {
+            @Override
+            public void run() {
+               __runUser(startLatch, new Random(threadSeed));
+            }
+         });
+      }
+
+      System.out.println("Running " + threadCount + " users for " + warmupSeconds + "s of warm-up...");
+      startLatch.countDown();
+      TimeUnit.SECONDS.sleep(warmupSeconds);
+
+      System.out.println("Measuring for " + durationSeconds + "s...");
+      final long measureStartNanos = System.nanoTime();
+      measuring = true;
+      TimeUnit.SECONDS.sleep(durationSeconds);
+      measuring = false;
+      final long measuredNanos = System.nanoTime() - measureStartNanos;
+
+      stopped = true;
+      executorService.shutdown();
+      executorService.awaitTermination(1, TimeUnit.MINUTES);
+
+      __printReport(measuredNanos);
+   }
+
+   // private helper methods
+
+   private void __setUpDataSet() throws Exception {
+      SQLAccessControlSystemResetUtil.resetOACC(TestConfigLoader.getDataSource(),
+                                                TestConfigLoader.getDatabaseSchema(),
+                                                TestConfigLoader.getOaccRootPassword());
+
+      final AccessControlContext systemContext = __newSystemAccessControlContext();
+      systemContext.createDomain(DOMAIN);
+      systemContext.createResourceClass(RESOURCE_CLASS_USER, true, false);
+      systemContext.createResourceClass(RESOURCE_CLASS_DOCUMENT, false, false);
+      systemContext.createResourcePermission(RESOURCE_CLASS_DOCUMENT, PERMISSION_READ);
+
+      accessors = new ArrayList<>(accessorCount);
+      for (int i = 0; i < accessorCount; i++) {
+         accessors.add(systemContext.createResource(RESOURCE_CLASS_USER,
+                                                    DOMAIN,
+                                                    PasswordCredentials.newInstance(ACCESSOR_PASSWORD)));
+      }
+      resources = systemContext.createResources(RESOURCE_CLASS_DOCUMENT, DOMAIN, resourceCount);
+
+      accessorDistribution = new ZipfianDistribution(accessorCount, zipfExponent, seed);
+      resourceDistribution = new ZipfianDistribution(resourceCount, zipfExponent, seed + 1);
+
+      final Random random = new Random(seed);
+      for (Resource accessor : accessors) {
+         for (int i = 0; i < grantsPerAccessor; i++) {
+            systemContext.grantResourcePermissions(accessor,
+                                                   resources.get(resourceDistribution.next(random)),
+                                                   readPermission);
+         }
+      }
+      systemContext.unauthenticate();
+   }
+
+   private void __runUser(CountDownLatch startLatch, Random random) {
+      final AccessControlContext systemContext = __newSystemAccessControlContext();
+      final AccessControlContext userContext = __newAccessControlContext();
+
+      try {
+         startLatch.await();
+      }
+      catch (InterruptedException e) {
+         Thread.currentThread().interrupt();
+         return;
+      }
+
+      while (!stopped) {
+         final Operation operation = operationsByWeight[random.nextInt(operationsByWeight.length)];
+         final Resource accessor = accessors.get(accessorDistribution.next(random));
+         final boolean measured = measuring;
+         final long startNanos = System.nanoTime();
+
+         try {
+            switch (operation) {
+               case AUTHENTICATE:
+                  userContext.authenticate(accessor, PasswordCredentials.newInstance(ACCESSOR_PASSWORD));
+                  break;
+               case HAS_RESOURCE_PERMISSIONS:
+                  systemContext.hasResourcePermissions(accessor,
+                                                       resources.get(resourceDistribution.next(random)),
+                                                       readPermission);
+                  break;
+               case GET_RESOURCES_BY_RESOURCE_PERMISSIONS:
+                  systemContext.getResourcesByResourcePermissions(accessor, RESOURCE_CLASS_DOCUMENT, readPermission);
+                  break;
+               case GRANT_RESOURCE_PERMISSIONS:
+                  // uniformly chosen, so that the grants spread out beyond the initially popular resources
+                  systemContext.grantResourcePermissions(accessor,
+                                                         resources.get(random.nextInt(resources.size())),
+                                                         readPermission);
+                  break;
+               case CREATE_RESOURCE:
+                  systemContext.createResource(RESOURCE_CLASS_DOCUMENT, DOMAIN);
+                  break;
+               default:
+                  throw new IllegalStateException("Unsupported operation: " + operation);
+            }
+
+            if (measured) {
+               histograms.get(operation).record(System.nanoTime() - startNanos);
+            }
+         }
+         catch (RuntimeException e) {
+            if (measured) {
+               errorCounts.get(operation).incrementAndGet();
+               firstErrors.get(operation).compareAndSet(null, e.toString());
+            }
+         }
+      }
+   }
+
+   private AccessControlContext __newAccessControlContext() {
+      return SQLAccessControlContextFactory.getAccessControlContext(TestConfigLoader.getDataSource(),
+                                                                    TestConfigLoader.getDatabaseSchema(),
+                                                                    TestConfigLoader.getSQLProfile());
+   }
+
+   private AccessControlContext __newSystemAccessControlContext() {
+      final AccessControlContext accessControlContext = __newAccessControlContext();
+      accessControlContext.authenticate(Resources.getInstance(0),
+                                        PasswordCredentials.newInstance(TestConfigLoader.getOaccRootPassword()));
+      return accessControlContext;
+   }
+
+   private ExecutorService __createExecutorService() {
+      if (virtualThreads) {
+         // looked up reflectively, because the sources have to compile for Java 7
+         try {
+            final Method method = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) method.invoke(null);
+         }
+         catch (Exception e) {
+            System.out.println("Virtual threads are not supported by this JVM, using platform threads instead");
+         }
+      }
+      return Executors.newFixedThreadPool(threadCount);
+   }
+
+   private void __printReport(long measuredNanos) {
+      final double measuredSeconds = measuredNanos / 1e9;
+
+      System.out.println();
+      System.out.println(String.format("SQL profile: %s, users: %d%s, measured: %.1fs, accessors: %d, resources: %d, zipf exponent: %.2f",
+                                       TestConfigLoader.getSQLProfile(),
+                                       threadCount,
+                                       virtualThreads ? " (virtual threads)" : "",
+                                       measuredSeconds,
+                                       accessorCount,
+                                       resourceCount,
+                                       zipfExponent));
+      System.out.println(String.format("%-34s %10s %10s %8s %10s %10s %10s %10s",
+                                       "operation", "count", "ops/s", "errors", "p50 us", "p99 us", "p99.9 us", "max us"));
+
+      long totalCount = 0;
+      for (Operation operation : Operation.values()) {
+         final LatencyHistogram histogram = histograms.get(operation);
+         totalCount += histogram.getTotalCount();
+         System.out.println(String.format("%-34s %10d %10.1f %8d %10.1f %10.1f %10.1f %10.1f",
+                                          operation,
+                                          histogram.getTotalCount(),
+                                          histogram.getTotalCount() / measuredSeconds,
+                                          errorCounts.get(operation).get(),
+                                          histogram.getValueAtPercentile(50) / 1e3,
+                                          histogram.getValueAtPercentile(99) / 1e3,
+                                          histogram.getValueAtPercentile(99.9) / 1e3,
+                                          histogram.getMaxValue() / 1e3));
+      }
+      System.out.println(String.format("%-34s %10d %10.1f", "total", totalCount, totalCount / measuredSeconds));
+
+      for (Operation operation : Operation.values()) {
+         final String firstError = firstErrors.get(operation).get();
+         if (firstError != null) {
+            System.out.println("first " + operation + " error: " + firstError);
+         }
+      }
+   }
+
+   private static Operation[] __parseOperationMix(String operationMix) {
+      final Map<Operation, Integer> weights = new EnumMap<>(Operation.class);
+
+      if (operationMix == null || operationMix.trim().isEmpty()) {
+         for (Operation operation : Operation.values()) {
+            weights.put(operation, operation.defaultWeight);
+         }
+      }
+      else {
+         for (String weightedOperation : operationMix.split(",")) {
+            final String[] nameAndWeight = weightedOperation.split("=");
+            if (nameAndWeight.length != 2) {
+               throw new IllegalArgumentException("Invalid operation mix entry (expected operation=weight): " + weightedOperation);
+            }
+            final int weight = Integer.parseInt(nameAndWeight[1].trim());
+            if (weight < 0) {
+               throw new IllegalArgumentException("Operation weight cannot be negative: " + weightedOperation);
+            }
+            weights.put(Operation.getInstanceByMethodName(nameAndWeight[0].trim()), weight);
+         }
+      }
+
+      // each operation appears as often as its weight, so that a uniform choice follows the mix
+      final List<Operation> operationsByWeight = new ArrayList<>();
+      for (Map.Entry<Operation, Integer> weightByOperation : weights.entrySet()) {
+         for (int i = 0; i < weightByOperation.getValue(); i++) {
+            operationsByWeight.add(weightByOperation.getKey());
+         }
+      }
+      if (operationsByWeight.isEmpty()) {
+         throw new IllegalArgumentException("Operation mix must have at least one operation with a positive weight");
+      }
+      return operationsByWeight.toArray(new Operation[operationsByWeight.size()]);
+   }
+}
@@ -0,0 +1,74 @@
+/*
+ * Copyright 2009-2016, Acciente LLC
+ *
+ * Acciente LLC licenses this file to you under the
+ * Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in
+ * writing, software distributed under the License is
+ * distributed on an "AS IS" BASIS, WITHOUT WARRANTIES
+ * OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.acciente.oacc.load;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Draws indexes in the range [0, n) following a Zipfian distribution, i.e. the k-th most popular index
+ * is drawn with a probability proportional to 1 / k<sup>s</sup>, where s is the skew exponent.
+ * <p/>
+ * To avoid that popularity correlates with creation order (and thus with the id of the resources
+ * under test), the ranks are mapped to indexes through a permutation derived from the seed.
+ * <p/>
+ * Instances are immutable and may be shared across threads.
+ */
+class ZipfianDistribution {
+   private final double[] cumulativeProbabilities;
+   private final int[]    indexesByRank;
+
+   ZipfianDistribution(int n, double skew, long seed) {
+      if (n <= 0) {
+         throw new IllegalArgumentException("Number of elements must be positive");
+      }
+      if (skew < 0) {
+         throw new IllegalArgumentException("Skew exponent cannot be negative");
+      }
+
+      cumulativeProbabilities = new double[n];
+      double cumulativeWeight = 0;
+      for (int rank = 0; rank < n; rank++) {
+         cumulativeWeight += 1 / Math.pow(rank + 1, skew);
+         cumulativeProbabilities[rank] = cumulativeWeight;
+      }
+      for (int rank = 0; rank < n; rank++) {
+         cumulativeProbabilities[rank] /= cumulativeWeight;
+      }
+      // guard against rounding, so that every draw finds a rank
+      cumulativeProbabilities[n - 1] = 1.0;
+
+      indexesByRank = new int[n];
+      for (int i = 0; i < n; i++) {
+         indexesByRank[i] = i;
+      }
+      final Random random = new Random(seed);
+      for (int i = n - 1; i > 0; i--) {
+         final int j = random.nextInt(i + 1);
+         final int swap = indexesByRank[i];
+         indexesByRank[i] = indexesByRank[j];
+         indexesByRank[j] = swap;
+      }
+   }
+
+   int next(Random random) {
+      final int searchResult = Arrays.binarySearch(cumulativeProbabilities, random.nextDouble());
+      final int rank = searchResult >= 0 ? searchResult : -searchResult - 1;
+      return indexesByRank[rank];
+   }
+}
@@ -0,0 +1,146 @@
+/*
+ * Copyright 2009-2016, Acciente LLC
+ *
+ * Acciente LLC licenses this file to you under the
+ * Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in
+ * writing, software distributed under the License is
+ * distributed on an "AS IS" BASIS, WITHOUT WARRANTIES
+ * OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.acciente.oacc.sql;
+
+import com.acciente.oacc.DomainCreatePermission;
+import com.acciente.oacc.DomainCreatePermissions;
+import com.acciente.oacc.DomainPermission;
+import com.acciente.oacc.DomainPermissions;
+import com.acciente.oacc.ResourceCreatePermission;
+import com.acciente.oacc.ResourceCreatePermissions;
+import com.acciente.oacc.ResourcePermission;
+import com.acciente.oacc.ResourcePermissions;
+import com.acciente.oacc.sql.internal.PermissionUtils;
+import org.junit.Test;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.hamcrest.CoreMatchers.containsString;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.junit.Assert.fail;
+
+public class TestPermissionUtils {
+   @Test
+   public void collapseResourcePermissions_shouldDropPermissionsImpliedByGrantOption() {
+      final Set<ResourcePermission> resourcePermissions
+            = setOf(ResourcePermissions.getInstance("READ"),
+                    ResourcePermissions.getInstanceWithGrantOption("READ"),
+                    ResourcePermissions.getInstance("WRITE"),
+                    ResourcePermissions.getInstance(ResourcePermissions.DELETE),
+                    ResourcePermissions.getInstanceWithGrantOption(ResourcePermissions.DELETE));
+
+      assertThat(PermissionUtils.collapseResourcePermissions(resourcePermissions),
+                 is(setOf(ResourcePermissions.getInstanceWithGrantOption("READ"),
+                          ResourcePermissions.getInstance("WRITE"),
+                          ResourcePermissions.getInstanceWithGrantOption(ResourcePermissions.DELETE))));
+   }
+
+   @Test
+   public void collapseDomainPermissions_shouldDropPermissionsImpliedByGrantOption() {
+      final Set<DomainPermission> domainPermissions
+            = setOf(DomainPermissions.getInstance(DomainPermissions.DELETE),
+                    DomainPermissions.getInstanceWithGrantOption(DomainPermissions.DELETE),
+                    DomainPermissions.getInstance(DomainPermissions.SUPER_USER));
+
+      assertThat(PermissionUtils.collapseDomainPermissions(domainPermissions),
+                 is(setOf(DomainPermissions.getInstanceWithGrantOption(DomainPermissions.DELETE),
+                          DomainPermissions.getInstance(DomainPermissions.SUPER_USER))));
+   }
+
+   @Test
+   public void collapseResourceCreatePermissions_shouldDropPermissionsImpliedByGrantOption() {
+      final ResourcePermission read = ResourcePermissions.getInstance("READ");
+      final ResourcePermission read_withGrant = ResourcePermissions.getInstanceWithGrantOption("READ");
+      final ResourcePermission write = ResourcePermissions.getInstance("WRITE");
+      final ResourcePermission write_withGrant = ResourcePermissions.getInstanceWithGrantOption("WRITE");
+
+      final Set<ResourceCreatePermission> resourceCreatePermissions
+            = setOf(ResourceCreatePermissions.getInstance(ResourceCreatePermissions.CREATE),
+                    ResourceCreatePermissions.getInstanceWithGrantOption(ResourceCreatePermissions.CREATE),
+                    // implied by the grantable create permission with the ungrantable post-create permission
+                    ResourceCreatePermissions.getInstance(read),
+                    ResourceCreatePermissions.getInstanceWithGrantOption(read),
+                    ResourceCreatePermissions.getInstance(read_withGrant),
+                    // the grantable create permission with the ungrantable post-create permission implies neither
+                    ResourceCreatePermissions.getInstanceWithGrantOption(write),
+                    ResourceCreatePermissions.getInstance(write_withGrant));
+
+      assertThat(PermissionUtils.collapseResourceCreatePermissions(resourceCreatePermissions),
+                 is(setOf(ResourceCreatePermissions.getInstanceWithGrantOption(ResourceCreatePermissions.CREATE),
+                          ResourceCreatePermissions.getInstanceWithGrantOption(read),
+                          ResourceCreatePermissions.getInstance(read_withGrant),
+                          ResourceCreatePermissions.getInstanceWithGrantOption(write),
+                          ResourceCreatePermissions.getInstance(write_withGrant))));
+
+      resourceCreatePermissions.add(ResourceCreatePermissions.getInstanceWithGrantOption(read_withGrant));
+      assertThat(PermissionUtils.collapseResourceCreatePermissions(resourceCreatePermissions),
+                 is(setOf(ResourceCreatePermissions.getInstanceWithGrantOption(ResourceCreatePermissions.CREATE),
+                          ResourceCreatePermissions.getInstanceWithGrantOption(read_withGrant),
+                          ResourceCreatePermissions.getInstanceWithGrantOption(write),
+                          ResourceCreatePermissions.getInstance(write_withGrant))));
+   }
+
+   @Test
+   public void collapseDomainCreatePermissions_shouldDropPermissionsImpliedByGrantOption() {
+      final DomainPermission delete = DomainPermissions.getInstance(DomainPermissions.DELETE);
+      final DomainPermission delete_withGrant = DomainPermissions.getInstanceWithGrantOption(DomainPermissions.DELETE);
+
+      final Set<DomainCreatePermission> domainCreatePermissions
+            = setOf(DomainCreatePermissions.getInstance(DomainCreatePermissions.CREATE),
+                    DomainCreatePermissions.getInstanceWithGrantOption(DomainCreatePermissions.CREATE),
+                    DomainCreatePermissions.getInstance(delete),
+                    DomainCreatePermissions.getInstanceWithGrantOption(delete),
+                    DomainCreatePermissions.getInstance(delete_withGrant),
+                    DomainCreatePermissions.getInstanceWithGrantOption(delete_withGrant));
+
+      assertThat(PermissionUtils.collapseDomainCreatePermissions(domainCreatePermissions),
+                 is(setOf(DomainCreatePermissions.getInstanceWithGrantOption(DomainCreatePermissions.CREATE),
+                          DomainCreatePermissions.getInstanceWithGrantOption(delete_withGrant))));
+   }
+
+   @Test
+   public void getSetWithoutNullsOrDuplicates_shouldRejectNullsAndDuplicates() {
+      assertThat(PermissionUtils.getSetWithoutNullsOrDuplicates("a", "b", "c"), is(setOf("a", "b", "c")));
+
+      try {
+         PermissionUtils.getSetWithoutNullsOrDuplicates("a", "b", null);
+         fail("getting set with null element should have failed");
+      }
+      catch (NullPointerException e) {
+         assertThat(e.getMessage().toLowerCase(), containsString("without null elements"));
+      }
+      try {
+         PermissionUtils.getSetWithoutNullsOrDuplicates("a", "b", "b");
+         fail("getting set with duplicate element should have failed");
+      }
+      catch (IllegalArgumentException e) {
+         assertThat(e.getMessage().toLowerCase(), containsString("duplicate element"));
+      }
+   }
+
+   @SafeVarargs
+   private static <T> Set<T> setOf(T... elements) {
+      final Set<T> set = new HashSet<>(elements.length);
+      for (T element : elements) {
+         set.add(element);
+      }
+      return set;
+   }
+}
@@ -0,0 +1,71 @@
+/*
+ * Copyright 2009-2016, Acciente LLC
+ *
+ * Acciente LLC licenses this file to you under the
+ * Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in
+ * writing, software distributed under the License is
+ * distributed on an "AS IS" BASIS, WITHOUT WARRANTIES
+ * OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.acciente.oacc.sql.internal;
+
+import org.junit.Test;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.junit.Assert.fail;
+
+public class TestBloomFilter {
+   @Test
+   public void mightContain_addedKeys_shouldNeverBeRuledOut() {
+      final BloomFilter bloomFilter = new BloomFilter(10000, 0.01);
+      for (long i = 0; i < 10000; i++) {
+         bloomFilter.add(BloomFilter.hash(1, i, i * 31, 0));
+      }
+      for (long i = 0; i < 10000; i++) {
+         assertThat(bloomFilter.mightContain(BloomFilter.hash(1, i, i * 31, 0)), is(true));
+      }
+   }
+
+   @Test
+   public void mightContain_absentKeys_shouldStayNearFalsePositiveRate() {
+      final BloomFilter bloomFilter = new BloomFilter(10000, 0.01);
+      for (long i = 0; i < 10000; i++) {
+         bloomFilter.add(BloomFilter.hash(1, i, 0, 0));
+      }
+      int falsePositiveCount = 0;
+      for (long i = 0; i < 100000; i++) {
+         if (bloomFilter.mightContain(BloomFilter.hash(2, i, 0, 0))) {
+            falsePositiveCount++;
+         }
+      }
+      // allow twice the configured rate, to keep the test from being flaky
+      assertThat(falsePositiveCount < 2000, is(true));
+   }
+
+   @Test
+   public void construct_invalidArguments_shouldFail() {
+      try {
+         new BloomFilter(10, 0);
+         fail("creating a bloom filter with a false positive rate of zero should have failed");
+      }
+      catch (IllegalArgumentException e) {
+         // expected
+      }
+      try {
+         new BloomFilter(10, 1);
+         fail("creating a bloom filter with a false positive rate of one should have failed");
+      }
+      catch (IllegalArgumentException e) {
+         // expected
+      }
+   }
+}
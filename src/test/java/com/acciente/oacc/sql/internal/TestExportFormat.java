@@ -0,0 +1,150 @@
+/*
+ * Copyright 2009-2016, Acciente LLC
+ *
+ * Acciente LLC licenses this file to you under the
+ * Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in
+ * writing, software distributed under the License is
+ * distributed on an "AS IS" BASIS, WITHOUT WARRANTIES
+ * OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.acciente.oacc.sql.internal;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
+
+import static org.hamcrest.CoreMatchers.containsString;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.junit.Assert.fail;
+
+public class TestExportFormat {
+   @Test
+   public void roundTrip_shouldPreserveValues() throws IOException {
+      final StringBuilder longString = new StringBuilder();
+      for (int i = 0; i < 100000; i++) {
+         longString.append('é');
+      }
+
+      final ByteArrayOutputStream out = new ByteArrayOutputStream();
+      final ExportFormatWriter writer = new ExportFormatWriter(Channels.newChannel(out));
+      writer.writeHeader(true);
+      writer.beginSection((byte) 1);
+      for (int i = 0; i < 10000; i++) {
+         writer.beginRow();
+         writer.writeLong(i);
+         writer.writeLong(-i);
+         writer.writeNullableLong(i % 2 == 0 ? null : Long.valueOf(Long.MAX_VALUE - i));
+         writer.writeFlag(i % 3 == 0);
+         writer.writeString("name-" + i);
+         writer.writeNullableString(i % 2 == 0 ? "ext-" + i : null);
+         writer.endRow();
+      }
+      writer.beginRow();
+      writer.writeString(longString.toString());
+      writer.endRow();
+      writer.endSection();
+      writer.finish();
+
+      final ExportFormatReader reader = new ExportFormatReader(Channels.newChannel(new ByteArrayInputStream(out.toByteArray())));
+      reader.readHeader();
+      assertThat(reader.isPasswordsIncluded(), is(true));
+      assertThat(reader.readSectionTag(), is((byte) 1));
+      for (int i = 0; i < 10000; i++) {
+         assertThat(reader.nextRow(), is(true));
+         assertThat(reader.readLong(), is((long) i));
+         assertThat(reader.readLong(), is((long) -i));
+         if (i % 2 == 0) {
+            assertThat(reader.readNullableLong(), is(nullValue()));
+         }
+         else {
+            assertThat(reader.readNullableLong(), is(Long.valueOf(Long.MAX_VALUE - i)));
+         }
+         assertThat(reader.readFlag(), is(i % 3 == 0));
+         assertThat(reader.readString(), is("name-" + i));
+         if (i % 2 == 0) {
+            assertThat(reader.readNullableString(), is("ext-" + i));
+         }
+         else {
+            assertThat(reader.readNullableString(), is(nullValue()));
+         }
+      }
+      assertThat(reader.nextRow(), is(true));
+      assertThat(reader.readString(), is(longString.toString()));
+      assertThat(reader.nextRow(), is(false));
+      assertThat(reader.readSectionTag(), is(ExportFormat.TAG_END));
+   }
+
+   @Test
+   public void read_unknownSectionsAndTrailingFields_shouldBeSkipped() throws IOException {
+      final ByteArrayOutputStream out = new ByteArrayOutputStream();
+      final ExportFormatWriter writer = new ExportFormatWriter(Channels.newChannel(out));
+      writer.writeHeader(false);
+      writer.beginSection((byte) 99);
+      writer.beginRow();
+      writer.writeString("from a newer version");
+      writer.endRow();
+      writer.endSection();
+      writer.beginSection((byte) 1);
+      writer.beginRow();
+      writer.writeLong(7);
+      writer.writeString("trailing field added by a newer version");
+      writer.endRow();
+      writer.beginRow();
+      writer.writeLong(8);
+      writer.endRow();
+      writer.endSection();
+      writer.finish();
+
+      final ExportFormatReader reader = new ExportFormatReader(Channels.newChannel(new ByteArrayInputStream(out.toByteArray())));
+      reader.readHeader();
+      assertThat(reader.isPasswordsIncluded(), is(false));
+      assertThat(reader.readSectionTag(), is((byte) 99));
+      reader.skipSection();
+      assertThat(reader.readSectionTag(), is((byte) 1));
+      assertThat(reader.nextRow(), is(true));
+      assertThat(reader.readLong(), is(7L));
+      assertThat(reader.nextRow(), is(true));
+      assertThat(reader.readLong(), is(8L));
+      assertThat(reader.nextRow(), is(false));
+      assertThat(reader.readSectionTag(), is(ExportFormat.TAG_END));
+   }
+
+   @Test
+   public void readHeader_badMagic_shouldFail() throws IOException {
+      final ExportFormatReader reader
+            = new ExportFormatReader(Channels.newChannel(new ByteArrayInputStream(new byte[]{1, 2, 3, 4, 0, 1, 0})));
+      try {
+         reader.readHeader();
+         fail("reading a stream that is not an OACC export should have failed");
+      }
+      catch (IllegalArgumentException e) {
+         assertThat(e.getMessage().toLowerCase(), containsString("not an oacc export"));
+      }
+   }
+
+   @Test
+   public void longLongHashMap_shouldGrowAndRetainMappings() {
+      final LongLongHashMap map = new LongLongHashMap(16);
+      for (long key = 0; key < 100000; key++) {
+         map.put(key * 31, key + 1);
+      }
+      assertThat(map.size(), is(100000));
+      for (long key = 0; key < 100000; key++) {
+         assertThat(map.get(key * 31, -1), is(key + 1));
+      }
+      assertThat(map.get(1, -1), is(-1L));
+   }
+}
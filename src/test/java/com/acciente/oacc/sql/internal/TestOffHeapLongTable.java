@@ -0,0 +1,106 @@
+/*
+ * Copyright 2009-2016, Acciente LLC
+ *
+ * Acciente LLC licenses this file to you under the
+ * Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in
+ * writing, software distributed under the License is
+ * distributed on an "AS IS" BASIS, WITHOUT WARRANTIES
+ * OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.acciente.oacc.sql.internal;
+
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.junit.Assert.fail;
+
+public class TestOffHeapLongTable {
+   @Test
+   public void insertFindRemove_shouldMatchHashMap() {
+      final OffHeapLongTable table = new OffHeapLongTable(1000, 2);
+      final Map<Long, Long> expected = new HashMap<>();
+      final Random random = new Random(42);
+
+      for (int i = 0; i < 100000; i++) {
+         // draw from twice as many keys as fit, so that the table fills up and probe sequences get long
+         final long key = random.nextInt(2000);
+         switch (random.nextInt(3)) {
+            case 0: {
+               final long slot = table.insert(key);
+               if (slot >= 0) {
+                  table.setValue(slot, 1, i);
+                  expected.put(key, (long) i);
+               }
+               else {
+                  assertThat(expected.size(), is(1000));
+               }
+               break;
+            }
+            case 1:
+               assertThat(table.remove(key), is(expected.remove(key) != null));
+               break;
+            default: {
+               final long slot = table.find(key);
+               assertThat(slot >= 0, is(expected.containsKey(key)));
+               if (slot >= 0) {
+                  assertThat(table.getValue(slot, 1), is(expected.get(key)));
+               }
+            }
+         }
+         assertThat(table.size(), is(expected.size()));
+      }
+   }
+
+   @Test
+   public void insert_newKey_shouldHaveZeroValues() {
+      final OffHeapLongTable table = new OffHeapLongTable(10, 3);
+      final long slot = table.insert(7);
+
+      assertThat(table.insert(7), is(slot));
+      for (int i = 0; i < 3; i++) {
+         assertThat(table.getValue(slot, i), is(0L));
+      }
+   }
+
+   @Test
+   public void insert_whenFull_shouldFailUntilCleared() {
+      final OffHeapLongTable table = new OffHeapLongTable(2, 1);
+
+      assertThat(table.insert(1) >= 0, is(true));
+      assertThat(table.insert(2) >= 0, is(true));
+      assertThat(table.isFull(), is(true));
+      assertThat(table.insert(3), is(-1L));
+      // keys already in the table are still found
+      assertThat(table.insert(2) >= 0, is(true));
+
+      table.clear();
+      assertThat(table.size(), is(0));
+      assertThat(table.find(1), is(-1L));
+      assertThat(table.insert(3) >= 0, is(true));
+   }
+
+   @Test
+   public void insert_negativeKey_shouldFail() {
+      final OffHeapLongTable table = new OffHeapLongTable(2, 1);
+      try {
+         table.insert(-1);
+         fail("inserting a negative key should have failed");
+      }
+      catch (IllegalArgumentException e) {
+         // expected
+      }
+   }
+}